@@ -0,0 +1,117 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hit throughput of the {@link CacheBuilder.EvictionPolicy}s when many threads read a cache that holds all the keys
+ * that they look up, with keys drawn from a skewed distribution so that a few keys are much hotter than the others.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class CacheBenchmark {
+    private static final int NUMBER_OF_KEYS = 1 << 16;
+
+    @Param({ "LRU", "TINY_LFU" })
+    private CacheBuilder.EvictionPolicy evictionPolicy;
+
+    private Cache<Integer, Integer> cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = CacheBuilder.<Integer, Integer>builder().setEvictionPolicy(evictionPolicy).setMaximumWeight(NUMBER_OF_KEYS).build();
+        for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+            cache.put(i, i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private final int[] keys = new int[NUMBER_OF_KEYS];
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(Thread.currentThread().getId());
+            for (int i = 0; i < keys.length; i++) {
+                // squaring a uniform variable skews the distribution towards the small keys
+                double uniform = random.nextDouble();
+                keys[i] = (int) (uniform * uniform * NUMBER_OF_KEYS);
+            }
+        }
+
+        int next() {
+            return keys[index++ & (NUMBER_OF_KEYS - 1)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer get_01(Keys keys) {
+        return cache.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Integer get_02(Keys keys) {
+        return cache.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer get_04(Keys keys) {
+        return cache.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Integer get_08(Keys keys) {
+        return cache.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Integer get_16(Keys keys) {
+        return cache.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Integer get_32(Keys keys) {
+        return cache.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Integer get_64(Keys keys) {
+        return cache.get(keys.next());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the read and write throughput of {@link LongArray}s and {@link DoubleArray}s backed by heap pages with the same arrays backed
+ * by off-heap pages, see {@link PageCacheRecycler#LIMIT_OFF_HEAP_SETTING}, as well as the cost of allocating and releasing them.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class BigArraysPageBenchmark {
+
+    @Param({ "heap", "off_heap" })
+    private String pages;
+
+    @Param({ "65536", "4194304" })
+    private int size;
+
+    private BigArrays bigArrays;
+    private LongArray longArray;
+    private DoubleArray doubleArray;
+    private long[] randomIndices;
+
+    @Setup
+    public void setUp() {
+        final Settings settings = switch (pages) {
+            case "heap" -> Settings.EMPTY;
+            case "off_heap" -> Settings.builder().put(PageCacheRecycler.LIMIT_OFF_HEAP_SETTING.getKey(), "256mb").build();
+            default -> throw new IllegalArgumentException("unknown pages [" + pages + "]");
+        };
+        bigArrays = new BigArrays(new PageCacheRecycler(settings), new NoneCircuitBreakerService(), CircuitBreaker.REQUEST);
+        longArray = bigArrays.newLongArray(size);
+        doubleArray = bigArrays.newDoubleArray(size);
+        for (long i = 0; i < size; i++) {
+            longArray.set(i, i);
+            doubleArray.set(i, i);
+        }
+        // a fixed pseudo random walk so that reads don't benefit from prefetching
+        randomIndices = new long[4096];
+        long index = 0;
+        for (int i = 0; i < randomIndices.length; i++) {
+            index = (index * 6364136223846793005L + 1442695040888963407L) & Long.MAX_VALUE;
+            randomIndices[i] = index % size;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        longArray.close();
+        doubleArray.close();
+    }
+
+    @Benchmark
+    public long sequentialLongReads() {
+        long sum = 0;
+        for (long i = 0; i < size; i++) {
+            sum += longArray.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long randomLongReads() {
+        long sum = 0;
+        for (long index : randomIndices) {
+            sum += longArray.get(index);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void sequentialLongIncrements() {
+        for (long i = 0; i < size; i++) {
+            longArray.increment(i, 1);
+        }
+    }
+
+    @Benchmark
+    public double sequentialDoubleReads() {
+        double sum = 0;
+        for (long i = 0; i < size; i++) {
+            sum += doubleArray.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void sequentialDoubleIncrements() {
+        for (long i = 0; i < size; i++) {
+            doubleArray.increment(i, 1);
+        }
+    }
+
+    @Benchmark
+    public long allocateAndRelease() {
+        try (LongArray array = bigArrays.newLongArray(size)) {
+            return array.size();
+        }
+    }
+}
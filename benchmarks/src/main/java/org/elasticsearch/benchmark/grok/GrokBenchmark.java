@@ -0,0 +1,109 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.grok;
+
+import org.elasticsearch.grok.Grok;
+import org.elasticsearch.grok.MatcherWatchdog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches a log line against a pattern of the built-in pattern bank, either with joni or with the compiled matcher that grok uses
+ * when {@code ingest.grok.compiled_matcher.enabled} is set. The {@code matchMiss} benchmark matches a line that the pattern doesn't
+ * match, which is where the prefilters of the compiled matcher help most.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class GrokBenchmark {
+
+    private static final Map<String, String> LINES = Map.of(
+        "COMBINEDAPACHELOG",
+        "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326 \"http://www.example.com/start.html\" "
+            + "\"Mozilla/4.08 [en] (Win98; I ;Nav)\"",
+        "HTTPD_ERRORLOG",
+        "[Wed Oct 11 14:32:52 2000] [error] [client 127.0.0.1] client denied by server configuration: /export/home/live/ap/htdocs/test",
+        "SYSLOGLINE",
+        "Oct 11 22:14:15 mymachine su[123]: 'su root' failed for lonvick on /dev/pts/8",
+        "CATALINALOG",
+        "Nov 13, 2017 3:14:15 PM org.apache.catalina.startup.Catalina start Server startup in 1234 ms",
+        "TIMESTAMP_ISO8601",
+        "2016-11-23T08:11:44.123+01:00",
+        "URI",
+        "https://user:pw@host.example.com:8080/p/a/t/h?query=1&b=2#frag",
+        "IP",
+        "fe80::1ff:fe23:4567:890a"
+    );
+
+    private static final String MISS = "this line does not look like any log line that the benchmarked patterns match";
+
+    @Param({ "COMBINEDAPACHELOG", "HTTPD_ERRORLOG", "SYSLOGLINE", "CATALINALOG", "TIMESTAMP_ISO8601", "URI", "IP" })
+    private String pattern;
+
+    @Param({ "false", "true" })
+    private boolean ecsCompatibility;
+
+    @Param({ "joni", "compiled" })
+    private String matcher;
+
+    private Grok grok;
+    private String line;
+
+    @Setup
+    public void setUp() {
+        grok = new Grok(
+            Grok.getBuiltinPatterns(ecsCompatibility),
+            "%{" + pattern + "}",
+            MatcherWatchdog.noop(),
+            matcher.equals("compiled"),
+            message -> {}
+        );
+        line = LINES.get(pattern);
+        if (grok.match(line) == false) {
+            throw new IllegalStateException("pattern [" + pattern + "] doesn't match [" + line + "]");
+        }
+    }
+
+    @Benchmark
+    public boolean match() {
+        return grok.match(line);
+    }
+
+    @Benchmark
+    public boolean matchMiss() {
+        return grok.match(MISS);
+    }
+
+    @Benchmark
+    public boolean captures(Blackhole blackhole) {
+        return grok.captures(line, (name, value) -> blackhole.consume(value));
+    }
+
+    @Benchmark
+    public Map<String, Object> capturesToMap() {
+        return grok.captures(line);
+    }
+}
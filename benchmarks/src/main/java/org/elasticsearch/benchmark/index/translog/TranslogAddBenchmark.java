@@ -0,0 +1,135 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.index.translog;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogConfig;
+import org.elasticsearch.index.translog.TranslogDeletionPolicy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of adding index operations to the translog, which is the last step of the indexing path of a bulk request.
+ * The {@link TranslogBytes} counters report how many bytes per operation were copied into the write buffer of the translog and how
+ * many were buffered by reference instead, run with {@code -prof gc} to see the matching allocation rates.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class TranslogAddBenchmark {
+
+    /**
+     * The size of the source of the indexed documents.
+     */
+    @Param({ "512", "4096", "16384", "131072" })
+    private int sourceSize;
+
+    private final ShardId shardId = new ShardId("index", "_na_", 0);
+    private Path path;
+    private Translog translog;
+    private TranslogDeletionPolicy deletionPolicy;
+    private byte[] source;
+    private long seqNo;
+
+    /**
+     * The bytes of the serialized operations that were copied into the write buffer and the bytes that were buffered by reference,
+     * per operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class TranslogBytes {
+        public long copiedBytes;
+        public long referencedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            copiedBytes = 0;
+            referencedBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        path = Files.createTempDirectory("translog");
+        final IndexSettings indexSettings = new IndexSettings(
+            IndexMetadata.builder(shardId.getIndexName())
+                .settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .build(),
+            Settings.EMPTY
+        );
+        final BigArrays bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY), null, "translog");
+        deletionPolicy = new TranslogDeletionPolicy();
+        final String translogUUID = Translog.createEmptyTranslog(path, SequenceNumbers.NO_OPS_PERFORMED, shardId, 1);
+        translog = new Translog(
+            new TranslogConfig(shardId, path, indexSettings, bigArrays),
+            translogUUID,
+            deletionPolicy,
+            () -> SequenceNumbers.NO_OPS_PERFORMED,
+            () -> 1,
+            persistedSeqNo -> {}
+        );
+        source = new byte[sourceSize];
+        new Random(0).nextBytes(source);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        IOUtils.close(translog);
+        IOUtils.rm(path);
+    }
+
+    @Benchmark
+    public Translog.Location add(TranslogBytes bytes) throws IOException {
+        final long copiedBefore = translog.getCopiedBytes();
+        final long referencedBefore = translog.getReferencedBytes();
+        final long id = seqNo++;
+        final Translog.Location location = translog.add(new Translog.Index(Long.toString(id), id, 1, source));
+        bytes.copiedBytes += translog.getCopiedBytes() - copiedBefore;
+        bytes.referencedBytes += translog.getReferencedBytes() - referencedBefore;
+        if (translog.shouldRollGeneration()) {
+            // pretend that everything was committed so that the old generations are deleted
+            translog.rollGeneration();
+            deletionPolicy.setLocalCheckpointOfSafeCommit(id);
+            translog.trimUnreferencedReaders();
+        }
+        return location;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.ingest;
+
+import org.elasticsearch.grok.MatcherWatchdog;
+import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.Pipeline;
+import org.elasticsearch.ingest.Processor;
+import org.elasticsearch.ingest.common.ConvertProcessor;
+import org.elasticsearch.ingest.common.DateProcessor;
+import org.elasticsearch.ingest.common.DissectProcessor;
+import org.elasticsearch.ingest.common.GrokProcessor;
+import org.elasticsearch.ingest.common.LowercaseProcessor;
+import org.elasticsearch.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.xcontent.XContentHelper.convertToMap;
+
+/**
+ * Runs the documents of a bulk request through a pipeline that parses web server access logs, either one document at a time like
+ * ingest does by default, or as a single batch with {@link Pipeline#executeBatch(List, Processor.BatchHandler)}. The {@code grok}
+ * pipeline parses the log line with a grok pattern and the {@code dissect} pipeline with a dissect pattern, and both parse the timestamp
+ * and convert the numeric fields afterwards. Only the date processor shares work between the documents of a batch, the other
+ * processors execute them one by one.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class IngestPipelineBenchmark {
+
+    private static final String[] VERBS = { "GET", "GET", "GET", "POST", "PUT", "DELETE" };
+    private static final String[] PATHS = { "/", "/index.html", "/images/logo.png", "/api/search", "/api/orders", "/login" };
+    private static final String[] AGENTS = {
+        "Mozilla/5.0 (X11; Linux x86_64; rv:96.0) Gecko/20100101 Firefox/96.0",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/15.2 Safari/605.1.15",
+        "curl/7.79.1" };
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ROOT);
+
+    @Param({ "grok", "dissect" })
+    private String pipeline;
+
+    @Param({ "1000" })
+    private int numDocuments;
+
+    private Pipeline ingestPipeline;
+    private List<Map<String, Object>> sources;
+    private List<IngestDocument> documents;
+
+    @Setup
+    public void setUp() throws Exception {
+        final Map<String, Processor.Factory> factories = Map.of(
+            GrokProcessor.TYPE,
+            new GrokProcessor.Factory(MatcherWatchdog.noop()),
+            DissectProcessor.TYPE,
+            new DissectProcessor.Factory(),
+            DateProcessor.TYPE,
+            new DateProcessor.Factory(null),
+            ConvertProcessor.TYPE,
+            new ConvertProcessor.Factory(),
+            LowercaseProcessor.TYPE,
+            new LowercaseProcessor.Factory()
+        );
+        final String parser = switch (pipeline) {
+            case "grok" -> """
+                { "grok": { "field": "message", "patterns": [ "%{COMBINEDAPACHELOG}" ] } }""";
+            case "dissect" -> """
+                { "dissect": { "field": "message", "pattern": \
+                "%{clientip} %{ident} %{auth} [%{timestamp}] \
+                \\"%{verb} %{request} HTTP/%{httpversion}\\" %{response} %{bytes} %{rest}" } }""";
+            default -> throw new IllegalArgumentException("unknown pipeline [" + pipeline + "]");
+        };
+        final String config = """
+            {
+              "processors": [
+                %s,
+                { "date": { "field": "timestamp", "formats": [ "dd/MMM/yyyy:HH:mm:ss Z" ] } },
+                { "lowercase": { "field": "verb" } },
+                { "convert": { "field": "response", "type": "integer" } },
+                { "convert": { "field": "bytes", "type": "long" } }
+              ]
+            }""".formatted(parser);
+        ingestPipeline = Pipeline.create(pipeline, convertToMap(XContentType.JSON.xContent(), config, false), factories, null);
+
+        final Random random = new Random(42);
+        final ZonedDateTime start = ZonedDateTime.of(2022, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        sources = new ArrayList<>(numDocuments);
+        for (int i = 0; i < numDocuments; i++) {
+            final String message = String.format(
+                Locale.ROOT,
+                "10.%d.%d.%d - - [%s] \"%s %s HTTP/1.1\" %d %d \"-\" \"%s\"",
+                random.nextInt(256),
+                random.nextInt(256),
+                random.nextInt(256),
+                TIMESTAMP_FORMAT.format(start.plusSeconds(i)),
+                VERBS[random.nextInt(VERBS.length)],
+                PATHS[random.nextInt(PATHS.length)],
+                random.nextInt(10) == 0 ? 404 : 200,
+                random.nextInt(100_000),
+                AGENTS[random.nextInt(AGENTS.length)]
+            );
+            sources.add(Map.of("message", message));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createDocuments() {
+        documents = new ArrayList<>(numDocuments);
+        for (int i = 0; i < numDocuments; i++) {
+            documents.add(new IngestDocument("index", Integer.toString(i), null, null, null, new HashMap<>(sources.get(i))));
+        }
+    }
+
+    @Benchmark
+    public void executeDocuments(Blackhole bh) {
+        for (IngestDocument document : documents) {
+            ingestPipeline.execute(document, (result, e) -> bh.consume(e == null ? result : e));
+        }
+    }
+
+    @Benchmark
+    public void executeBatch(Blackhole bh) {
+        ingestPipeline.executeBatch(documents, (slot, result, e) -> bh.consume(e == null ? result : e));
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.routing;
+
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.RecoverySource;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.UnassignedInfo;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a stream of searches against the three copies of a shard with adaptive replica selection, in virtual time. One of the nodes
+ * regularly stops processing requests for a while, like it would during a long GC, and rejects requests once its search queue is full.
+ * Each invocation simulates the same stream of requests, and the {@link Latencies} counters report the median and the 99th percentile of
+ * the simulated search latencies, so comparing the {@code strategy} parameters shows how much the in flight feedback of
+ * {@link ResponseCollectorService#IN_FLIGHT_FEEDBACK_SETTING} improves the tail latency. The measured time is the cost of the simulation
+ * itself, which is mostly the cost of ranking the copies.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class AdaptiveReplicaSelectionSimulationBenchmark {
+
+    private static final long NETWORK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final long MEAN_SERVICE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MEAN_INTERARRIVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long STALL_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(300);
+    private static final int QUEUE_CAPACITY = 100;
+
+    /**
+     * {@code v1} ranks the copies with the response time, service time and queue size statistics only, {@code in_flight} also takes
+     * into account for how long the requests in flight to a node have been stuck and how many requests the node rejected.
+     */
+    @Param({ "v1", "in_flight" })
+    private String strategy;
+
+    @Param({ "20000" })
+    private int requests;
+
+    private IndexShardRoutingTable routingTable;
+    private ResponseCollectorService collector;
+    private Map<String, SimulatedNode> nodes;
+    private PriorityQueue<Completion> completions;
+    private long[] latencies;
+    private int completed;
+    private long nowNanos;
+
+    /**
+     * The latencies of the simulated searches of the last invocation, in microseconds.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Latencies {
+        public long p50Micros;
+        public long p99Micros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            p50Micros = 0;
+            p99Micros = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final ShardId shardId = new ShardId("index", "_na_", 0);
+        final IndexShardRoutingTable.Builder builder = new IndexShardRoutingTable.Builder(shardId);
+        for (int i = 0; i < 3; i++) {
+            final ShardRouting shard = ShardRouting.newUnassigned(
+                shardId,
+                i == 0,
+                i == 0 ? RecoverySource.EmptyStoreRecoverySource.INSTANCE : RecoverySource.PeerRecoverySource.INSTANCE,
+                new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, null)
+            );
+            builder.addShard(shard.initialize("node_" + i, null, -1).moveToStarted());
+        }
+        routingTable = builder.build();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        final ClusterSettings clusterSettings = new ClusterSettings(
+            Settings.builder()
+                .put(ResponseCollectorService.IN_FLIGHT_FEEDBACK_SETTING.getKey(), strategy.equals("in_flight"))
+                .build(),
+            ClusterSettings.BUILT_IN_CLUSTER_SETTINGS
+        );
+        nowNanos = 0;
+        collector = new ResponseCollectorService(clusterSettings, () -> nowNanos);
+        nodes = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            nodes.put("node_" + i, new SimulatedNode("node_" + i, i == 0));
+        }
+        completions = new PriorityQueue<>((c1, c2) -> Long.compare(c1.completionNanos, c2.completionNanos));
+        latencies = new long[requests];
+        completed = 0;
+    }
+
+    @Benchmark
+    public long simulate(Latencies result) {
+        final Random random = new Random(42);
+        long arrivalNanos = 0;
+        for (int i = 0; i < requests; i++) {
+            arrivalNanos += exponential(random, MEAN_INTERARRIVAL_NANOS);
+            completeUntil(arrivalNanos, random);
+            nowNanos = arrivalNanos;
+            send(arrivalNanos, routingTable.activeInitializingShardsRankedIt(collector, inFlightCounts()), random);
+        }
+        completeUntil(Long.MAX_VALUE, random);
+        Arrays.sort(latencies, 0, completed);
+        result.p50Micros = TimeUnit.NANOSECONDS.toMicros(latencies[(int) (completed * 0.5)]);
+        result.p99Micros = TimeUnit.NANOSECONDS.toMicros(latencies[(int) (completed * 0.99)]);
+        return completed;
+    }
+
+    /**
+     * The number of requests in flight to each node, like {@code SearchTransportService} counts them for every search.
+     */
+    private Map<String, Long> inFlightCounts() {
+        final Map<String, Long> counts = new HashMap<>(nodes.size());
+        for (SimulatedNode node : nodes.values()) {
+            counts.put(node.id, (long) node.inFlight);
+        }
+        return counts;
+    }
+
+    private void send(long arrivalNanos, ShardIterator shards, Random random) {
+        final ShardRouting shard = shards.nextOrNull();
+        if (shard == null) {
+            // all copies rejected the request, which fails the search
+            latencies[completed++] = nowNanos - arrivalNanos;
+            return;
+        }
+        final SimulatedNode node = nodes.get(shard.currentNodeId());
+        collector.onRequestSent(node.id);
+        node.inFlight++;
+        if (node.queued >= QUEUE_CAPACITY) {
+            completions.add(new Completion(node, arrivalNanos, nowNanos, nowNanos + NETWORK_NANOS, 0, true, shards));
+            return;
+        }
+        final long serviceNanos = exponential(random, MEAN_SERVICE_NANOS);
+        final long startNanos = node.resumeTime(Math.max(nowNanos + NETWORK_NANOS / 2, node.freeAtNanos));
+        node.freeAtNanos = startNanos + serviceNanos;
+        node.queued++;
+        completions.add(
+            new Completion(node, arrivalNanos, nowNanos, node.freeAtNanos + NETWORK_NANOS / 2, serviceNanos, false, shards)
+        );
+    }
+
+    private void completeUntil(long untilNanos, Random random) {
+        while (completions.isEmpty() == false && completions.peek().completionNanos <= untilNanos) {
+            final Completion completion = completions.poll();
+            final SimulatedNode node = completion.node;
+            nowNanos = completion.completionNanos;
+            node.inFlight--;
+            collector.onRequestCompleted(node.id, completion.rejected);
+            if (completion.rejected) {
+                // try the next copy, like a search does on shard failures
+                send(completion.arrivalNanos, completion.shards, random);
+            } else {
+                node.queued--;
+                node.serviceTime.addValue(completion.serviceNanos);
+                collector.addNodeStatistics(
+                    node.id,
+                    node.queued,
+                    nowNanos - completion.sentNanos,
+                    (long) node.serviceTime.getAverage()
+                );
+                latencies[completed++] = nowNanos - completion.arrivalNanos;
+            }
+        }
+    }
+
+    private static long exponential(Random random, long meanNanos) {
+        return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * meanNanos));
+    }
+
+    /**
+     * A node that runs one search at a time, in the order they arrive.
+     */
+    private static final class SimulatedNode {
+        final String id;
+        final boolean stalls;
+        final ExponentiallyWeightedMovingAverage serviceTime = new ExponentiallyWeightedMovingAverage(
+            ResponseCollectorService.ALPHA,
+            MEAN_SERVICE_NANOS
+        );
+        long freeAtNanos;
+        int queued;
+        int inFlight;
+
+        SimulatedNode(String id, boolean stalls) {
+            this.id = id;
+            this.stalls = stalls;
+        }
+
+        /**
+         * Returns the time at which a search that would start at the given time actually starts, after the stall it falls into if any.
+         */
+        long resumeTime(long nanos) {
+            final long sinceStall = nanos % STALL_PERIOD_NANOS;
+            if (stalls && nanos >= STALL_PERIOD_NANOS && sinceStall < STALL_NANOS) {
+                return nanos - sinceStall + STALL_NANOS;
+            }
+            return nanos;
+        }
+    }
+
+    private record Completion(
+        SimulatedNode node,
+        long arrivalNanos,
+        long sentNanos,
+        long completionNanos,
+        long serviceNanos,
+        boolean rejected,
+        ShardIterator shards
+    ) {}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.routing;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateChangeSet;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of finding what changed between two cluster states with a {@link ClusterStateChangeSet}, which is computed once per
+ * applied cluster state, with the cost of walking all the indices and shards of the cluster state, which is what every cluster state
+ * applier used to do. The new cluster state either only updates the mapping of a single index, or is the result of a reroute that
+ * rebuilt the whole routing table and started a single shard.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class ClusterStateChangeSetBenchmark {
+
+    @Param({ "1000", "10000" })
+    private int indices;
+
+    @Param({ "5" })
+    private int shards;
+
+    @Param({ "mapping", "reroute" })
+    private String change;
+
+    private ClusterState previousState;
+    private ClusterState state;
+
+    @Setup
+    public void setUp() {
+        final Metadata.Builder metadataBuilder = Metadata.builder();
+        for (int i = 0; i < indices; i++) {
+            metadataBuilder.put(
+                IndexMetadata.builder("index_" + i)
+                    .settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT))
+                    .numberOfShards(shards)
+                    .numberOfReplicas(1)
+            );
+        }
+        final Metadata metadata = metadataBuilder.build();
+        final RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
+        for (IndexMetadata indexMetadata : metadata.indices().values()) {
+            routingTableBuilder.addAsNew(indexMetadata);
+        }
+        previousState = ClusterState.builder(ClusterName.DEFAULT).metadata(metadata).routingTable(routingTableBuilder.build()).build();
+
+        final IndexMetadata changedIndex = metadata.index("index_" + (indices / 2));
+        switch (change) {
+            case "mapping" -> state = ClusterState.builder(previousState)
+                .metadata(
+                    Metadata.builder(metadata)
+                        .put(IndexMetadata.builder(changedIndex).mappingVersion(changedIndex.getMappingVersion() + 1), true)
+                )
+                .build();
+            case "reroute" -> state = ClusterState.builder(previousState)
+                .routingTable(rebuildRoutingTable(previousState.routingTable(), new ShardId(changedIndex.getIndex(), 0)))
+                .build();
+            default -> throw new IllegalArgumentException("unknown change [" + change + "]");
+        }
+    }
+
+    /**
+     * Copies all the index routing tables like the master does when it reroutes, and initializes the primary of the given shard.
+     */
+    private static RoutingTable rebuildRoutingTable(RoutingTable routingTable, ShardId changedShard) {
+        final RoutingTable.Builder builder = RoutingTable.builder().version(routingTable.version() + 1);
+        for (IndexRoutingTable indexRoutingTable : routingTable) {
+            final IndexRoutingTable.Builder indexBuilder = IndexRoutingTable.builder(indexRoutingTable.getIndex());
+            for (IndexShardRoutingTable indexShardRoutingTable : indexRoutingTable) {
+                final IndexShardRoutingTable.Builder shardBuilder = new IndexShardRoutingTable.Builder(indexShardRoutingTable.shardId());
+                for (ShardRouting shardRouting : indexShardRoutingTable) {
+                    if (shardRouting.primary() && shardRouting.shardId().equals(changedShard)) {
+                        shardBuilder.addShard(shardRouting.initialize("node", null, -1));
+                    } else {
+                        shardBuilder.addShard(shardRouting);
+                    }
+                }
+                indexBuilder.addIndexShard(shardBuilder.build());
+            }
+            builder.add(indexBuilder);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public int changeSet() {
+        final ClusterStateChangeSet changeSet = ClusterStateChangeSet.between(previousState, state);
+        int changed = 0;
+        for (Index index : changeSet.indicesWithChangedMetadata()) {
+            changed += state.metadata().index(index).getNumberOfShards();
+        }
+        return changed + changeSet.shardsWithChangedRouting().size();
+    }
+
+    @Benchmark
+    public int fullWalk() {
+        int changed = 0;
+        for (IndexMetadata indexMetadata : state.metadata().indices().values()) {
+            if (previousState.metadata().index(indexMetadata.getIndex()) != indexMetadata) {
+                changed += indexMetadata.getNumberOfShards();
+            }
+        }
+        for (IndexRoutingTable indexRoutingTable : state.routingTable()) {
+            final IndexRoutingTable previousIndexRoutingTable = previousState.routingTable().index(indexRoutingTable.getIndex());
+            for (IndexShardRoutingTable indexShardRoutingTable : indexRoutingTable) {
+                final IndexShardRoutingTable previous = previousIndexRoutingTable.shard(indexShardRoutingTable.shardId().id());
+                for (ShardRouting shardRouting : indexShardRoutingTable) {
+                    if (previous.shards().contains(shardRouting) == false) {
+                        changed++;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.routing.allocation;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.cluster.routing.allocation.FailedShard;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
+import org.elasticsearch.common.settings.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Measures the reroute that follows the start of a single shard in a large cluster whose other shards are all started and balanced,
+ * like when a replica finishes recovering after a node restarted. Unlike {@link AllocationBenchmark}, which measures how long it takes to
+ * allocate a whole cluster, this shows the latency that every shard start adds on the master with and without
+ * {@link BalancedShardsAllocator#INCREMENTAL_BALANCE_SETTING}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class SingleShardStartedBenchmark {
+
+    @Param(
+        {
+            // indices| shards| replicas| nodes
+            "      200|      5|        1|    10",
+            "     1000|      5|        1|    50",
+            "     6000|      5|        1|   200" }
+    )
+    public String indicesShardsReplicasNodes = "200|5|1|10";
+
+    @Param({ "false", "true" })
+    public boolean incremental;
+
+    private AllocationService strategy;
+    private ClusterState clusterState;
+    private List<ShardRouting> initializingShards;
+
+    @Setup
+    public void setUp() {
+        final String[] params = indicesShardsReplicasNodes.split("\\|");
+        final int numIndices = toInt(params[0]);
+        final int numShards = toInt(params[1]);
+        final int numReplicas = toInt(params[2]);
+        final int numNodes = toInt(params[3]);
+
+        Metadata.Builder mb = Metadata.builder();
+        for (int i = 1; i <= numIndices; i++) {
+            mb.put(
+                IndexMetadata.builder("test_" + i)
+                    .settings(Settings.builder().put("index.version.created", Version.CURRENT))
+                    .numberOfShards(numShards)
+                    .numberOfReplicas(numReplicas)
+            );
+        }
+        Metadata metadata = mb.build();
+        RoutingTable.Builder rb = RoutingTable.builder();
+        for (int i = 1; i <= numIndices; i++) {
+            rb.addAsNew(metadata.index("test_" + i));
+        }
+        DiscoveryNodes.Builder nb = DiscoveryNodes.builder();
+        for (int i = 1; i <= numNodes; i++) {
+            nb.add(Allocators.newNode("node" + i, Collections.emptyMap()));
+        }
+        ClusterState state = ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY))
+            .metadata(metadata)
+            .routingTable(rb.build())
+            .nodes(nb)
+            .build();
+
+        // allocate and balance the cluster without throttling the recoveries to keep the setup short
+        final int recoveries = numIndices * numShards * (numReplicas + 1);
+        final AllocationService setupStrategy = Allocators.createAllocationService(
+            Settings.builder()
+                .put("cluster.routing.allocation.node_initial_primaries_recoveries", recoveries)
+                .put("cluster.routing.allocation.node_concurrent_recoveries", recoveries)
+                .put("cluster.routing.allocation.cluster_concurrent_rebalance", recoveries)
+                .build()
+        );
+        state = setupStrategy.reroute(state, "reroute");
+        while (state.getRoutingNodes().hasUnassignedShards() || state.getRoutingNodes().hasInactiveShards()) {
+            state = setupStrategy.applyStartedShards(state, initializingShards(state));
+            state = setupStrategy.reroute(state, "reroute");
+        }
+
+        // fail a started replica, which is allocated again and starts recovering
+        strategy = Allocators.createAllocationService(
+            Settings.builder().put(BalancedShardsAllocator.INCREMENTAL_BALANCE_SETTING.getKey(), incremental).build()
+        );
+        final ShardRouting replica = state.routingTable().index("test_1").shard(0).replicaShards().get(0);
+        clusterState = strategy.applyFailedShards(state, List.of(new FailedShard(replica, "benchmark", null, false)));
+        initializingShards = initializingShards(clusterState);
+        if (initializingShards.size() != 1) {
+            throw new IllegalStateException("expected a single initializing shard but got " + initializingShards);
+        }
+    }
+
+    private static int toInt(String v) {
+        return Integer.valueOf(v.trim());
+    }
+
+    private static List<ShardRouting> initializingShards(ClusterState clusterState) {
+        return StreamSupport.stream(clusterState.getRoutingNodes().spliterator(), false)
+            .flatMap(shardRoutings -> StreamSupport.stream(shardRoutings.spliterator(), false))
+            .filter(ShardRouting::initializing)
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public ClusterState measureSingleShardStarted() {
+        return strategy.applyStartedShards(clusterState, initializingShards);
+    }
+}
@@ -16,8 +16,10 @@ import org.elasticsearch.action.search.SearchPhaseController;
 import org.elasticsearch.action.search.SearchProgressListener;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
@@ -29,12 +31,15 @@ import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.query.QuerySearchResult;
+import org.openjdk.jmh.annotations.AuxCounters;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
@@ -44,6 +49,9 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -56,7 +64,15 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Measures the reduce latency of top level {@code terms} aggregations on the coordinating node, with {@code mode} switching between
+ * batched partial reduces and streaming partial reduces (see {@link QueryPhaseResultConsumer#STREAMING_TERMS_REDUCE_SETTING}).
+ * Streaming only applies to {@code terms} aggregations without sub-aggregations, so it falls back to batched reduces when
+ * {@code withSubAggs} is set. The peak memory of each reduce is reported as auxiliary counters, run with {@code -prof gc} to also
+ * compare the allocation rates of both modes.
+ */
 @Warmup(iterations = 5)
 @Measurement(iterations = 7)
 @BenchmarkMode(Mode.AverageTime)
@@ -65,21 +81,33 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Fork(value = 1)
 public class TermsReduceBenchmark {
 
-    private final SearchPhaseController controller = new SearchPhaseController((task, req) -> new AggregationReduceContext.Builder() {
-        @Override
-        public AggregationReduceContext forPartialReduction() {
-            return new AggregationReduceContext.ForPartial(null, null, task);
-        }
+    /**
+     * Builds a controller whose partial reduces allocate from big arrays that account their memory in the given breaker, like the
+     * big arrays of the search service account theirs in the request circuit breaker.
+     */
+    private static SearchPhaseController controller(CircuitBreaker circuitBreaker) {
+        final BigArrays bigArrays = new BigArrays(null, new NoneCircuitBreakerService() {
+            @Override
+            public CircuitBreaker getBreaker(String name) {
+                return circuitBreaker;
+            }
+        }, CircuitBreaker.REQUEST).withCircuitBreaking();
+        return new SearchPhaseController((task, req) -> new AggregationReduceContext.Builder() {
+            @Override
+            public AggregationReduceContext forPartialReduction() {
+                return new AggregationReduceContext.ForPartial(bigArrays, null, task);
+            }
 
-        @Override
-        public AggregationReduceContext forFinalReduction() {
-            final MultiBucketConsumerService.MultiBucketConsumer bucketConsumer = new MultiBucketConsumerService.MultiBucketConsumer(
-                Integer.MAX_VALUE,
-                new NoneCircuitBreakerService().getBreaker(CircuitBreaker.REQUEST)
-            );
-            return new AggregationReduceContext.ForFinal(null, null, bucketConsumer, PipelineAggregator.PipelineTree.EMPTY, task);
-        }
-    });
+            @Override
+            public AggregationReduceContext forFinalReduction() {
+                final MultiBucketConsumerService.MultiBucketConsumer bucketConsumer = new MultiBucketConsumerService.MultiBucketConsumer(
+                    Integer.MAX_VALUE,
+                    new NoneCircuitBreakerService().getBreaker(CircuitBreaker.REQUEST)
+                );
+                return new AggregationReduceContext.ForFinal(null, null, bucketConsumer, PipelineAggregator.PipelineTree.EMPTY, task);
+            }
+        });
+    }
 
     @State(Scope.Benchmark)
     public static class TermsList extends AbstractList<InternalAggregations> {
@@ -95,6 +123,9 @@ public class TermsReduceBenchmark {
         @Param({ "1", "10", "100" })
         int cardinalityFactor;
 
+        @Param({ "true", "false" })
+        boolean withSubAggs;
+
         List<InternalAggregations> aggsList;
 
         @Setup
@@ -107,7 +138,7 @@ public class TermsReduceBenchmark {
                 dict[i] = new BytesRef(Long.toString(rand.nextLong()));
             }
             for (int i = 0; i < numShards; i++) {
-                aggsList.add(InternalAggregations.from(Collections.singletonList(newTerms(rand, dict, true))));
+                aggsList.add(InternalAggregations.from(Collections.singletonList(newTerms(rand, dict, withSubAggs))));
             }
         }
 
@@ -158,8 +189,76 @@ public class TermsReduceBenchmark {
     @Param({ "32", "512" })
     private int bufferSize;
 
+    @Param({ "batched", "streaming" })
+    private String mode;
+
+    /**
+     * The peak memory of the reduces of an iteration: the peak number of bytes that the consumer and the big arrays of the partial
+     * reduces accounted in the request circuit breaker, and the peak usage of the heap memory pools, which also counts garbage that
+     * wasn't collected yet.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ReduceMemory {
+        public long peakBreakerBytes;
+        public long peakHeapBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            peakBreakerBytes = 0;
+            peakHeapBytes = 0;
+        }
+
+        void record(long breakerBytes) {
+            peakBreakerBytes = Math.max(peakBreakerBytes, breakerBytes);
+            long heapBytes = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    heapBytes += pool.getPeakUsage().getUsed();
+                }
+            }
+            peakHeapBytes = Math.max(peakHeapBytes, heapBytes);
+        }
+
+        static void resetPeakHeapUsage() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+    }
+
+    /**
+     * A circuit breaker that never breaks but tracks the peak number of bytes that were accounted in it.
+     */
+    private static class PeakTrackingCircuitBreaker extends NoopCircuitBreaker {
+        private final AtomicLong used = new AtomicLong();
+        private final AtomicLong peak = new AtomicLong();
+
+        PeakTrackingCircuitBreaker() {
+            super(CircuitBreaker.REQUEST);
+        }
+
+        @Override
+        public void addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+            addWithoutBreaking(bytes);
+        }
+
+        @Override
+        public void addWithoutBreaking(long bytes) {
+            final long newUsed = used.addAndGet(bytes);
+            peak.accumulateAndGet(newUsed, Math::max);
+        }
+
+        @Override
+        public long getUsed() {
+            return used.get();
+        }
+    }
+
     @Benchmark
-    public SearchPhaseController.ReducedQueryPhase reduceAggs(TermsList candidateList) throws Exception {
+    public SearchPhaseController.ReducedQueryPhase reduceAggs(TermsList candidateList, ReduceMemory memory) throws Exception {
         List<QuerySearchResult> shards = new ArrayList<>();
         for (int i = 0; i < candidateList.size(); i++) {
             QuerySearchResult result = new QuerySearchResult();
@@ -177,20 +276,27 @@ public class TermsReduceBenchmark {
             result.setSearchShardTarget(new SearchShardTarget("node", new ShardId(new Index("index", "index"), i), null));
             shards.add(result);
         }
+        TermsAggregationBuilder terms = AggregationBuilders.terms("terms");
+        if (candidateList.withSubAggs) {
+            terms.subAggregation(AggregationBuilders.terms("terms"));
+        }
         SearchRequest request = new SearchRequest();
-        request.source(new SearchSourceBuilder().size(0).aggregation(AggregationBuilders.terms("test")));
+        request.source(new SearchSourceBuilder().size(0).aggregation(terms));
         request.setBatchedReduceSize(bufferSize);
         ExecutorService executor = Executors.newFixedThreadPool(1);
         AtomicBoolean isCanceled = new AtomicBoolean();
+        PeakTrackingCircuitBreaker circuitBreaker = new PeakTrackingCircuitBreaker();
+        ReduceMemory.resetPeakHeapUsage();
         QueryPhaseResultConsumer consumer = new QueryPhaseResultConsumer(
             request,
             executor,
-            new NoopCircuitBreaker(CircuitBreaker.REQUEST),
-            controller,
+            circuitBreaker,
+            controller(circuitBreaker),
             isCanceled::get,
             SearchProgressListener.NOOP,
             shards.size(),
-            exc -> {}
+            exc -> {},
+            mode.equals("streaming")
         );
         CountDownLatch latch = new CountDownLatch(shards.size());
         for (int i = 0; i < shards.size(); i++) {
@@ -198,6 +304,8 @@ public class TermsReduceBenchmark {
         }
         latch.await();
         SearchPhaseController.ReducedQueryPhase phase = consumer.reduce();
+        memory.record(circuitBreaker.peak.get());
+        consumer.close();
         executor.shutdownNow();
         return phase;
     }
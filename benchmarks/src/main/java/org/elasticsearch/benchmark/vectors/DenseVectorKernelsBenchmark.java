@@ -0,0 +1,129 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.vectors;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
+import org.elasticsearch.xpack.vectors.query.VectorKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores a query vector against many encoded dense vectors, like a brute-force {@code script_score} query does, with the scalar and with
+ * the Vector API implementations of {@link VectorKernels}. {@code decodedDotProduct} measures decoding each vector to a {@code float[]}
+ * before computing the dot product for comparison.
+ */
+@Fork(value = 1, jvmArgsAppend = { "--add-modules=jdk.incubator.vector" })
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class DenseVectorKernelsBenchmark {
+
+    private static final int NUM_VECTORS = 1000;
+
+    @Param({ "128", "256", "512", "1024", "2048" })
+    private int dims;
+
+    @Param({ "scalar", "vector" })
+    private String kernels;
+
+    private VectorKernels vectorKernels;
+    private float[] queryVector;
+    private float[] decoded;
+    private BytesRef[] vectors;
+
+    @Setup
+    public void setUp() {
+        vectorKernels = switch (kernels) {
+            case "scalar" -> VectorKernels.scalar();
+            case "vector" -> VectorKernels.get();
+            default -> throw new IllegalArgumentException("unknown kernels [" + kernels + "]");
+        };
+        if (kernels.equals("vector") && vectorKernels == VectorKernels.scalar()) {
+            throw new IllegalStateException("the Vector API kernels are not available on this JVM");
+        }
+        final Random random = new Random(42);
+        queryVector = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            queryVector[i] = random.nextFloat() * 2 - 1;
+        }
+        decoded = new float[dims];
+        // all vectors share a single array, like they do in a doc values page
+        final int vectorLength = (dims + 1) * Float.BYTES;
+        final ByteBuffer buffer = ByteBuffer.allocate(NUM_VECTORS * vectorLength);
+        vectors = new BytesRef[NUM_VECTORS];
+        for (int v = 0; v < NUM_VECTORS; v++) {
+            vectors[v] = new BytesRef(buffer.array(), buffer.position(), vectorLength);
+            double magnitude = 0;
+            for (int i = 0; i < dims; i++) {
+                final float value = random.nextFloat() * 2 - 1;
+                buffer.putFloat(value);
+                magnitude += value * value;
+            }
+            buffer.putFloat((float) Math.sqrt(magnitude));
+        }
+    }
+
+    @Benchmark
+    public double dotProduct() {
+        double sum = 0;
+        for (BytesRef vector : vectors) {
+            sum += vectorKernels.dotProduct(queryVector, vector);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double l1Norm() {
+        double sum = 0;
+        for (BytesRef vector : vectors) {
+            sum += vectorKernels.l1Norm(queryVector, vector);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double l2Norm() {
+        double sum = 0;
+        for (BytesRef vector : vectors) {
+            sum += vectorKernels.l2Norm(queryVector, vector);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double decodedDotProduct() {
+        double sum = 0;
+        for (BytesRef vector : vectors) {
+            VectorEncoderDecoder.decodeDenseVector(vector, decoded);
+            double dotProduct = 0;
+            for (int i = 0; i < dims; i++) {
+                dotProduct += queryVector[i] * decoded[i];
+            }
+            sum += dotProduct;
+        }
+        return sum;
+    }
+}
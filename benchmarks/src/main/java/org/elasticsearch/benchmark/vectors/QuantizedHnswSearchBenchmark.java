@@ -0,0 +1,208 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.vectors;
+
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene90.Lucene90Codec;
+import org.apache.lucene.codecs.lucene90.Lucene90HnswVectorsFormat;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.KnnVectorField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnVectorQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.xpack.vectors.codec.Int8HnswVectorsFormat;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs kNN searches against a single segment that is indexed with the {@code hnsw} format or with the {@code int8_hnsw} format, with and
+ * without rescoring. The measured time is the latency of a batch of searches, and the {@link Quality} counters report the recall of these
+ * searches against a brute-force search and the size of the vector files that the graph reads while searching, so that the formats can
+ * be compared on both sides of the trade-off.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class QuantizedHnswSearchBenchmark {
+
+    private static final int NUM_QUERIES = 100;
+
+    @Param({ "hnsw", "int8_hnsw", "int8_hnsw_no_rescore" })
+    private String format;
+
+    @Param({ "128", "768" })
+    private int dims;
+
+    @Param({ "50000" })
+    private int numVectors;
+
+    @Param({ "10" })
+    private int k;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private float[][] queries;
+    private double recall;
+    private long graphVectorBytes;
+
+    /**
+     * The recall of the searches of the benchmark and the size of the vectors that the graph is built over.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Quality {
+        public double recall;
+        public long graphVectorBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            recall = 0;
+            graphVectorBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        final KnnVectorsFormat knnVectorsFormat = switch (format) {
+            case "hnsw" -> new Lucene90HnswVectorsFormat(16, 100);
+            case "int8_hnsw" -> new Int8HnswVectorsFormat(16, 100, true);
+            case "int8_hnsw_no_rescore" -> new Int8HnswVectorsFormat(16, 100, false);
+            default -> throw new IllegalArgumentException("unknown format [" + format + "]");
+        };
+        final Random random = new Random(42);
+        final float[][] vectors = new float[numVectors][];
+        for (int i = 0; i < numVectors; i++) {
+            vectors[i] = randomUnitVector(random);
+        }
+        queries = new float[NUM_QUERIES][];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            queries[i] = randomUnitVector(random);
+        }
+
+        directory = new ByteBuffersDirectory();
+        final IndexWriterConfig config = new IndexWriterConfig().setCodec(new Lucene90Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return knnVectorsFormat;
+            }
+        });
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            for (float[] vector : vectors) {
+                final Document doc = new Document();
+                doc.add(new KnnVectorField("vector", vector, VectorSimilarityFunction.DOT_PRODUCT));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+
+        // the graph of hnsw reads the float vectors, the graph of int8_hnsw reads the quantized ones
+        final String graphVectorExtension = format.equals("hnsw") ? ".vec" : ".veq";
+        for (String file : directory.listAll()) {
+            if (file.endsWith(graphVectorExtension)) {
+                graphVectorBytes += directory.fileLength(file);
+            }
+        }
+
+        int found = 0;
+        for (float[] query : queries) {
+            final Set<Integer> expected = bruteForce(vectors, query);
+            for (ScoreDoc scoreDoc : search(query).scoreDocs) {
+                if (expected.contains(scoreDoc.doc)) {
+                    found++;
+                }
+            }
+        }
+        recall = (double) found / (NUM_QUERIES * k);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public long search(Quality quality) throws IOException {
+        long totalHits = 0;
+        for (float[] query : queries) {
+            totalHits += search(query).scoreDocs.length;
+        }
+        quality.recall = recall;
+        quality.graphVectorBytes = graphVectorBytes;
+        return totalHits;
+    }
+
+    private TopDocs search(float[] query) throws IOException {
+        return searcher.search(new KnnVectorQuery("vector", query, k), k);
+    }
+
+    private Set<Integer> bruteForce(float[][] vectors, float[] query) {
+        final float[] scores = new float[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            scores[i] = VectorSimilarityFunction.DOT_PRODUCT.compare(query, vectors[i]);
+        }
+        final float[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        final float threshold = sorted[sorted.length - k];
+        final Set<Integer> topK = new HashSet<>();
+        for (int i = 0; i < vectors.length && topK.size() < k; i++) {
+            if (scores[i] >= threshold) {
+                topK.add(i);
+            }
+        }
+        return topK;
+    }
+
+    private float[] randomUnitVector(Random random) {
+        final float[] vector = new float[dims];
+        double norm = 0;
+        for (int i = 0; i < dims; i++) {
+            vector[i] = random.nextFloat() * 2 - 1;
+            norm += vector[i] * vector[i];
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < dims; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,816 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.grok;
+
+import org.elasticsearch.grok.GrokRegexParser.Alternation;
+import org.elasticsearch.grok.GrokRegexParser.Assertion;
+import org.elasticsearch.grok.GrokRegexParser.AssertionKind;
+import org.elasticsearch.grok.GrokRegexParser.CharClass;
+import org.elasticsearch.grok.GrokRegexParser.Concat;
+import org.elasticsearch.grok.GrokRegexParser.Group;
+import org.elasticsearch.grok.GrokRegexParser.GroupKind;
+import org.elasticsearch.grok.GrokRegexParser.Literal;
+import org.elasticsearch.grok.GrokRegexParser.Node;
+import org.elasticsearch.grok.GrokRegexParser.Repeat;
+import org.elasticsearch.grok.GrokRegexParser.UnsupportedRegexException;
+import org.joni.Region;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A matcher that compiles a grok expression, once its pattern references are resolved to a regular expression, into a program for a
+ * specialized backtracking matcher over the UTF-8 bytes of the text. It produces the same matches as joni does, but:
+ * <ul>
+ *     <li>rejects texts that can't match before running the program, because they don't contain a literal that every match contains,
+ *     or because the expression is anchored or no byte of the text can start a match</li>
+ *     <li>matches runs of a character class, like {@code \S+} or {@code .*}, in a single tight loop and backtracks over them without
+ *     a backtracking entry per byte</li>
+ *     <li>reuses its matching state, including the {@link Region} of captures that is passed to {@link GrokCaptureExtracter}s, so that
+ *     matching doesn't allocate</li>
+ * </ul>
+ * The program only supports ASCII texts, and gives up on texts that need too many steps to match, in both cases {@link #match} returns
+ * {@link #FALLBACK} and the text is matched by joni, which is also what {@link MatcherWatchdog} watches. Expressions that use
+ * constructs that {@link GrokRegexParser} doesn't support aren't compiled at all.
+ */
+final class CompiledGrokMatcher {
+
+    static final int MATCHED = 1;
+    static final int FAILED = 0;
+    static final int FALLBACK = -1;
+
+    // instructions, followed by their operands
+    private static final int CHAR = 0; // byte
+    private static final int LITERAL = 1; // literal index
+    private static final int CLASS = 2; // class index
+    private static final int REPEAT = 3; // class index, min, max (-1 if unbounded), 1 if greedy
+    private static final int SPLIT = 4; // preferred pc, alternative pc
+    private static final int JUMP = 5; // pc
+    private static final int SAVE = 6; // slot
+    private static final int ASSERT = 7; // assertion kind
+    private static final int ATOMIC_START = 8;
+    private static final int ATOMIC_END = 9;
+    private static final int LOOK_START = 10; // 1 if negative, lookbehind length (-1 for lookahead), pc after the lookaround
+    private static final int LOOK_END = 11;
+    private static final int MATCH = 12;
+
+    // backtracking entries, each made of a kind and three values
+    private static final int BRANCH = 0; // pc, pos
+    private static final int RESTORE = 1; // slot, previous value
+    private static final int GREEDY = 2; // pc of the repeat, minimum end, current end
+    private static final int LAZY = 3; // pc of the repeat, current end, maximum end
+    private static final int ATOMIC_MARK = 4;
+    private static final int LOOK_MARK = 5; // pc of the lookaround, pos
+    private static final int ENTRY_SIZE = 4;
+
+    private static final int MAX_PROGRAM_SIZE = 1 << 16;
+    private static final int MIN_STEPS = 1 << 14;
+    private static final int STEPS_PER_BYTE = 1 << 10;
+    private static final int MAX_RETAINED_STACK_SIZE = 1 << 16;
+
+    private static final AssertionKind[] ASSERTION_KINDS = AssertionKind.values();
+
+    private static final int NOT_ANCHORED = 0;
+    private static final int TEXT_START_ANCHORED = 1;
+    private static final int LINE_START_ANCHORED = 2;
+
+    private final int[] code;
+    private final byte[][] literals;
+    private final long[] classes;
+    // the joni group number of each captured group, whose slots are 2 * (group + 1) and 2 * (group + 1) + 1
+    private final int[] groupNumbers;
+
+    private final byte[] requiredLiteral;
+    private final int anchor;
+    private final boolean filterFirstByte;
+    private final long firstByteLow;
+    private final long firstByteHigh;
+
+    private final ThreadLocal<State> states;
+
+    private CompiledGrokMatcher(
+        int[] code,
+        byte[][] literals,
+        long[] classes,
+        int[] groupNumbers,
+        int regionSize,
+        byte[] requiredLiteral,
+        int anchor,
+        FirstBytes firstBytes
+    ) {
+        this.code = code;
+        this.literals = literals;
+        this.classes = classes;
+        this.groupNumbers = groupNumbers;
+        this.requiredLiteral = requiredLiteral;
+        this.anchor = anchor;
+        this.filterFirstByte = firstBytes.nullable == false;
+        this.firstByteLow = firstBytes.low;
+        this.firstByteHigh = firstBytes.high;
+        this.states = ThreadLocal.withInitial(() -> new State(groupNumbers.length, regionSize));
+    }
+
+    /**
+     * Compiles the given regular expression, which joni compiled into the given number of captures and named groups.
+     *
+     * @return the compiled matcher or {@code null} if the expression uses constructs that aren't supported
+     */
+    static CompiledGrokMatcher compile(String regex, int numberOfCaptures, Map<String, int[]> backRefsByName) {
+        try {
+            Node node = GrokRegexParser.parse(regex);
+            List<Group> groups = new ArrayList<>();
+            collectCapturingGroups(node, groups);
+            Map<String, Integer> occurrences = new HashMap<>();
+            int[] groupNumbers = new int[groups.size()];
+            for (int i = 0; i < groups.size(); i++) {
+                // joni numbers named groups in the order in which they appear in the expression
+                String name = groups.get(i).name;
+                int[] backRefs = backRefsByName.get(name);
+                int occurrence = occurrences.merge(name, 1, Integer::sum) - 1;
+                if (backRefs == null || occurrence >= backRefs.length) {
+                    return null;
+                }
+                int[] sortedBackRefs = backRefs.clone();
+                Arrays.sort(sortedBackRefs);
+                groupNumbers[i] = sortedBackRefs[occurrence];
+            }
+            ProgramBuilder builder = new ProgramBuilder(groups);
+            builder.emit(node, false);
+            builder.add(MATCH);
+            return new CompiledGrokMatcher(
+                Arrays.copyOf(builder.code, builder.size),
+                builder.literals.toArray(new byte[0][]),
+                Arrays.copyOf(builder.classes, builder.classCount * 2),
+                groupNumbers,
+                numberOfCaptures + 1,
+                requiredLiteral(node),
+                anchor(node),
+                firstBytes(node)
+            );
+        } catch (UnsupportedRegexException e) {
+            return null;
+        }
+    }
+
+    private static void collectCapturingGroups(Node node, List<Group> groups) {
+        if (node instanceof Group group) {
+            if (group.kind == GroupKind.CAPTURING) {
+                groups.add(group);
+            }
+            collectCapturingGroups(group.node, groups);
+        } else if (node instanceof Concat concat) {
+            for (Node child : concat.nodes) {
+                collectCapturingGroups(child, groups);
+            }
+        } else if (node instanceof Alternation alternation) {
+            for (Node child : alternation.nodes) {
+                collectCapturingGroups(child, groups);
+            }
+        } else if (node instanceof Repeat repeat) {
+            collectCapturingGroups(repeat.node, groups);
+        }
+    }
+
+    /**
+     * Matches the text and passes the captures to the extracter, if any.
+     *
+     * @return {@link #MATCHED}, {@link #FAILED}, or {@link #FALLBACK} if the text needs to be matched by joni
+     */
+    int match(byte[] utf8Bytes, int offset, int length, GrokCaptureExtracter extracter) {
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (utf8Bytes[i] < 0) {
+                return FALLBACK;
+            }
+        }
+        if (requiredLiteral != null && indexOf(utf8Bytes, offset, end, requiredLiteral) == -1) {
+            return FAILED;
+        }
+        final State state = states.get();
+        state.steps = MIN_STEPS + (long) STEPS_PER_BYTE * length;
+        try {
+            for (int start = offset; start <= end; start++) {
+                if (anchor == TEXT_START_ANCHORED && start > offset) {
+                    break;
+                }
+                if (anchor == LINE_START_ANCHORED && start > offset && utf8Bytes[start - 1] != '\n') {
+                    continue;
+                }
+                if (filterFirstByte && (start == end || containsByte(firstByteLow, firstByteHigh, utf8Bytes[start]) == false)) {
+                    continue;
+                }
+                int result = run(state, utf8Bytes, offset, end, start);
+                if (result == MATCHED) {
+                    if (extracter != null) {
+                        extracter.extract(utf8Bytes, offset, state.region(groupNumbers));
+                    }
+                    return MATCHED;
+                } else if (result == FALLBACK) {
+                    return FALLBACK;
+                }
+            }
+            return FAILED;
+        } finally {
+            state.reset();
+        }
+    }
+
+    /**
+     * Runs the program from the given start position.
+     */
+    private int run(State state, byte[] bytes, int textStart, int textEnd, int start) {
+        final int[] slots = state.slots;
+        int sp = 0;
+        int pc = 0;
+        int pos = start;
+        while (true) {
+            if (--state.steps < 0) {
+                return FALLBACK;
+            }
+            boolean failed = false;
+            switch (code[pc]) {
+                case CHAR -> {
+                    if (pos < textEnd && bytes[pos] == code[pc + 1]) {
+                        pos++;
+                        pc += 2;
+                    } else {
+                        failed = true;
+                    }
+                }
+                case LITERAL -> {
+                    byte[] literal = literals[code[pc + 1]];
+                    if (pos + literal.length <= textEnd && Arrays.equals(bytes, pos, pos + literal.length, literal, 0, literal.length)) {
+                        pos += literal.length;
+                        pc += 2;
+                    } else {
+                        failed = true;
+                    }
+                }
+                case CLASS -> {
+                    if (pos < textEnd && containsByte(code[pc + 1], bytes[pos])) {
+                        pos++;
+                        pc += 2;
+                    } else {
+                        failed = true;
+                    }
+                }
+                case REPEAT -> {
+                    int charClass = code[pc + 1];
+                    int min = code[pc + 2];
+                    int max = code[pc + 3];
+                    int limit = max < 0 ? textEnd : (int) Math.min(textEnd, (long) pos + max);
+                    if (code[pc + 4] == 1) {
+                        int p = pos;
+                        while (p < limit && containsByte(charClass, bytes[p])) {
+                            p++;
+                        }
+                        state.steps -= p - pos;
+                        if (p - pos < min) {
+                            failed = true;
+                        } else {
+                            if (p > pos + min) {
+                                sp = push(state, sp, GREEDY, pc, pos + min, p);
+                            }
+                            pos = p;
+                            pc += 5;
+                        }
+                    } else {
+                        int p = pos;
+                        while (p < pos + min && p < limit && containsByte(charClass, bytes[p])) {
+                            p++;
+                        }
+                        if (p < pos + min) {
+                            failed = true;
+                        } else {
+                            if (p < limit) {
+                                sp = push(state, sp, LAZY, pc, p, limit);
+                            }
+                            pos = p;
+                            pc += 5;
+                        }
+                    }
+                }
+                case SPLIT -> {
+                    sp = push(state, sp, BRANCH, code[pc + 2], pos, 0);
+                    pc = code[pc + 1];
+                }
+                case JUMP -> pc = code[pc + 1];
+                case SAVE -> {
+                    int slot = code[pc + 1];
+                    sp = push(state, sp, RESTORE, slot, slots[slot], 0);
+                    slots[slot] = pos - textStart;
+                    pc += 2;
+                }
+                case ASSERT -> {
+                    if (assertion(code[pc + 1], bytes, textStart, textEnd, pos)) {
+                        pc += 2;
+                    } else {
+                        failed = true;
+                    }
+                }
+                case ATOMIC_START -> {
+                    sp = push(state, sp, ATOMIC_MARK, 0, 0, 0);
+                    pc++;
+                }
+                case ATOMIC_END -> {
+                    // the group matched, drop the alternatives that it left behind
+                    sp = cut(state.stack, sp, lastMark(state.stack, sp));
+                    pc++;
+                }
+                case LOOK_START -> {
+                    int behind = code[pc + 2];
+                    if (behind > 0 && pos - behind < textStart) {
+                        if (code[pc + 1] == 1) {
+                            pc = code[pc + 3];
+                        } else {
+                            failed = true;
+                        }
+                    } else {
+                        sp = push(state, sp, LOOK_MARK, pc, pos, 0);
+                        pos -= Math.max(behind, 0);
+                        pc += 4;
+                    }
+                }
+                case LOOK_END -> {
+                    int mark = lastMark(state.stack, sp);
+                    int lookPc = state.stack[mark + 1];
+                    pos = state.stack[mark + 2];
+                    sp = cut(state.stack, sp, mark);
+                    if (code[lookPc + 1] == 1) {
+                        failed = true;
+                    } else {
+                        pc = code[lookPc + 3];
+                    }
+                }
+                case MATCH -> {
+                    slots[0] = start - textStart;
+                    slots[1] = pos - textStart;
+                    return MATCHED;
+                }
+                default -> throw new IllegalStateException("unknown instruction [" + code[pc] + "]");
+            }
+            if (failed == false) {
+                continue;
+            }
+            // backtrack to the last alternative
+            final int[] stack = state.stack;
+            boolean resumed = false;
+            while (resumed == false) {
+                if (sp == 0) {
+                    return FAILED;
+                }
+                sp -= ENTRY_SIZE;
+                int a = stack[sp + 1];
+                int b = stack[sp + 2];
+                int c = stack[sp + 3];
+                switch (stack[sp]) {
+                    case BRANCH -> {
+                        pc = a;
+                        pos = b;
+                        resumed = true;
+                    }
+                    case RESTORE -> slots[a] = b;
+                    case GREEDY -> {
+                        int p = c - 1;
+                        if (p > b) {
+                            sp = push(state, sp, GREEDY, a, b, p);
+                        }
+                        pos = p;
+                        pc = a + 5;
+                        resumed = true;
+                    }
+                    case LAZY -> {
+                        if (b < c && containsByte(code[a + 1], bytes[b])) {
+                            int p = b + 1;
+                            if (p < c) {
+                                sp = push(state, sp, LAZY, a, p, c);
+                            }
+                            pos = p;
+                            pc = a + 5;
+                            resumed = true;
+                        }
+                    }
+                    case LOOK_MARK -> {
+                        if (code[a + 1] == 1) {
+                            // the negative lookaround didn't match
+                            pos = b;
+                            pc = code[a + 3];
+                            resumed = true;
+                        }
+                    }
+                    default -> {
+                        // an atomic group didn't match
+                    }
+                }
+            }
+        }
+    }
+
+    private static int push(State state, int sp, int kind, int a, int b, int c) {
+        int[] stack = state.stack;
+        if (sp + ENTRY_SIZE > stack.length) {
+            stack = state.stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[sp] = kind;
+        stack[sp + 1] = a;
+        stack[sp + 2] = b;
+        stack[sp + 3] = c;
+        return sp + ENTRY_SIZE;
+    }
+
+    private static int lastMark(int[] stack, int sp) {
+        for (int i = sp - ENTRY_SIZE; i >= 0; i -= ENTRY_SIZE) {
+            if (stack[i] == ATOMIC_MARK || stack[i] == LOOK_MARK) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("no atomic group or lookaround to close");
+    }
+
+    /**
+     * Removes the mark and the alternatives above it, but keeps the captures to restore when backtracking past the mark.
+     */
+    private static int cut(int[] stack, int sp, int mark) {
+        int newSp = mark;
+        for (int i = mark + ENTRY_SIZE; i < sp; i += ENTRY_SIZE) {
+            if (stack[i] == RESTORE) {
+                System.arraycopy(stack, i, stack, newSp, ENTRY_SIZE);
+                newSp += ENTRY_SIZE;
+            }
+        }
+        return newSp;
+    }
+
+    private static boolean assertion(int kind, byte[] bytes, int textStart, int textEnd, int pos) {
+        return switch (ASSERTION_KINDS[kind]) {
+            case LINE_START -> pos == textStart || bytes[pos - 1] == '\n';
+            case LINE_END -> pos == textEnd || bytes[pos] == '\n';
+            case TEXT_START -> pos == textStart;
+            case TEXT_END -> pos == textEnd;
+            case TEXT_END_BEFORE_NEWLINE -> pos == textEnd || (pos == textEnd - 1 && bytes[pos] == '\n');
+            case WORD_BOUNDARY -> isWordBoundary(bytes, textStart, textEnd, pos);
+            case NOT_WORD_BOUNDARY -> isWordBoundary(bytes, textStart, textEnd, pos) == false;
+        };
+    }
+
+    private static boolean isWordBoundary(byte[] bytes, int textStart, int textEnd, int pos) {
+        boolean wordBefore = pos > textStart && isWordByte(bytes[pos - 1]);
+        boolean wordAfter = pos < textEnd && isWordByte(bytes[pos]);
+        return wordBefore != wordAfter;
+    }
+
+    private static boolean isWordByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+
+    private boolean containsByte(int charClass, byte b) {
+        return containsByte(classes[charClass * 2], classes[charClass * 2 + 1], b);
+    }
+
+    private static boolean containsByte(long low, long high, byte b) {
+        return b < 64 ? b >= 0 && (low & (1L << b)) != 0 : (high & (1L << (b - 64))) != 0;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte[] literal) {
+        final byte first = literal[0];
+        for (int i = from; i <= to - literal.length; i++) {
+            if (bytes[i] == first && Arrays.equals(bytes, i, i + literal.length, literal, 0, literal.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The longest literal that every match contains, or {@code null} if there is none.
+     */
+    private static byte[] requiredLiteral(Node node) {
+        if (node instanceof Literal literal) {
+            return literal.bytes.length > 0 ? literal.bytes : null;
+        } else if (node instanceof Group group) {
+            return group.isLookaround() ? null : requiredLiteral(group.node);
+        } else if (node instanceof Repeat repeat) {
+            return repeat.min > 0 ? requiredLiteral(repeat.node) : null;
+        } else if (node instanceof Concat concat) {
+            byte[] longest = null;
+            for (Node child : concat.nodes) {
+                byte[] literal = requiredLiteral(child);
+                if (literal != null && (longest == null || literal.length > longest.length)) {
+                    longest = literal;
+                }
+            }
+            return longest;
+        }
+        return null;
+    }
+
+    private static int anchor(Node node) {
+        if (node instanceof Assertion assertion) {
+            return switch (assertion.kind) {
+                case TEXT_START -> TEXT_START_ANCHORED;
+                case LINE_START -> LINE_START_ANCHORED;
+                default -> NOT_ANCHORED;
+            };
+        } else if (node instanceof Group group) {
+            return group.isLookaround() ? NOT_ANCHORED : anchor(group.node);
+        } else if (node instanceof Concat concat && concat.nodes.isEmpty() == false) {
+            return anchor(concat.nodes.get(0));
+        }
+        return NOT_ANCHORED;
+    }
+
+    /**
+     * The bytes that a match can start with, and whether it can be empty.
+     */
+    private record FirstBytes(long low, long high, boolean nullable) {
+        static final FirstBytes EMPTY = new FirstBytes(0, 0, true);
+
+        FirstBytes union(FirstBytes other, boolean nullable) {
+            return new FirstBytes(low | other.low, high | other.high, nullable);
+        }
+    }
+
+    private static FirstBytes firstBytes(Node node) {
+        if (node instanceof Literal literal) {
+            if (literal.bytes.length == 0) {
+                return FirstBytes.EMPTY;
+            }
+            // a non-ASCII literal can't match the ASCII texts that the program runs on
+            byte first = literal.bytes[0];
+            return first < 0 ? new FirstBytes(0, 0, false) : new FirstBytes(bit(first, 0), bit(first, 64), false);
+        } else if (node instanceof CharClass charClass) {
+            return new FirstBytes(charClass.low, charClass.high, false);
+        } else if (node instanceof Group group) {
+            return group.isLookaround() ? FirstBytes.EMPTY : firstBytes(group.node);
+        } else if (node instanceof Repeat repeat) {
+            if (repeat.max == 0) {
+                return FirstBytes.EMPTY;
+            }
+            FirstBytes first = firstBytes(repeat.node);
+            return repeat.min == 0 ? first.union(FirstBytes.EMPTY, true) : first;
+        } else if (node instanceof Concat concat) {
+            FirstBytes first = FirstBytes.EMPTY;
+            for (Node child : concat.nodes) {
+                FirstBytes childFirst = firstBytes(child);
+                first = first.union(childFirst, childFirst.nullable);
+                if (childFirst.nullable == false) {
+                    break;
+                }
+            }
+            return first;
+        } else if (node instanceof Alternation alternation) {
+            FirstBytes first = new FirstBytes(0, 0, false);
+            for (Node child : alternation.nodes) {
+                FirstBytes childFirst = firstBytes(child);
+                first = first.union(childFirst, first.nullable || childFirst.nullable);
+            }
+            return first;
+        }
+        return FirstBytes.EMPTY;
+    }
+
+    private static long bit(byte b, int base) {
+        return b >= base && b < base + 64 ? 1L << (b - base) : 0;
+    }
+
+    /**
+     * Emits the program of a parsed expression.
+     */
+    private static final class ProgramBuilder {
+        private final Map<Group, Integer> groupIndices = new IdentityHashMap<>();
+        private final List<byte[]> literals = new ArrayList<>();
+        private int[] code = new int[64];
+        private int size = 0;
+        private long[] classes = new long[16];
+        private int classCount = 0;
+
+        ProgramBuilder(List<Group> groups) {
+            for (int i = 0; i < groups.size(); i++) {
+                groupIndices.put(groups.get(i), i);
+            }
+        }
+
+        int add(int... instruction) {
+            if (size + instruction.length > MAX_PROGRAM_SIZE) {
+                throw new UnsupportedRegexException("program exceeds [" + MAX_PROGRAM_SIZE + "] instructions");
+            }
+            if (size + instruction.length > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+            }
+            int pc = size;
+            System.arraycopy(instruction, 0, code, size, instruction.length);
+            size += instruction.length;
+            return pc;
+        }
+
+        int addClass(CharClass charClass) {
+            for (int i = 0; i < classCount; i++) {
+                if (classes[i * 2] == charClass.low && classes[i * 2 + 1] == charClass.high) {
+                    return i;
+                }
+            }
+            if (classCount * 2 == classes.length) {
+                classes = Arrays.copyOf(classes, classes.length * 2);
+            }
+            classes[classCount * 2] = charClass.low;
+            classes[classCount * 2 + 1] = charClass.high;
+            return classCount++;
+        }
+
+        void emit(Node node, boolean inLookaround) {
+            if (node instanceof Literal literal) {
+                if (literal.bytes.length == 1) {
+                    add(CHAR, literal.bytes[0]);
+                } else if (literal.bytes.length > 1) {
+                    literals.add(literal.bytes);
+                    add(LITERAL, literals.size() - 1);
+                }
+            } else if (node instanceof CharClass charClass) {
+                add(CLASS, addClass(charClass));
+            } else if (node instanceof Assertion assertion) {
+                add(ASSERT, assertion.kind.ordinal());
+            } else if (node instanceof Group group) {
+                emitGroup(group, inLookaround);
+            } else if (node instanceof Concat concat) {
+                for (Node child : concat.nodes) {
+                    emit(child, inLookaround);
+                }
+            } else if (node instanceof Alternation alternation) {
+                int last = alternation.nodes.size() - 1;
+                int[] jumps = new int[last];
+                for (int i = 0; i < last; i++) {
+                    int split = add(SPLIT, 0, 0);
+                    code[split + 1] = size;
+                    emit(alternation.nodes.get(i), inLookaround);
+                    jumps[i] = add(JUMP, 0);
+                    code[split + 2] = size;
+                }
+                emit(alternation.nodes.get(last), inLookaround);
+                for (int jump : jumps) {
+                    code[jump + 1] = size;
+                }
+            } else if (node instanceof Repeat repeat) {
+                emitRepeat(repeat, inLookaround);
+            } else {
+                throw new UnsupportedRegexException("unknown node [" + node + "]");
+            }
+        }
+
+        private void emitGroup(Group group, boolean inLookaround) {
+            switch (group.kind) {
+                case NON_CAPTURING -> emit(group.node, inLookaround);
+                case CAPTURING -> {
+                    if (inLookaround) {
+                        throw new UnsupportedRegexException("named group [" + group.name + "] in a lookaround");
+                    }
+                    int slot = 2 * (groupIndices.get(group) + 1);
+                    add(SAVE, slot);
+                    emit(group.node, false);
+                    add(SAVE, slot + 1);
+                }
+                case ATOMIC -> {
+                    add(ATOMIC_START);
+                    emit(group.node, inLookaround);
+                    add(ATOMIC_END);
+                }
+                default -> {
+                    boolean negative = group.kind == GroupKind.NEGATIVE_LOOKAHEAD || group.kind == GroupKind.NEGATIVE_LOOKBEHIND;
+                    int behind = -1;
+                    if (group.kind == GroupKind.LOOKBEHIND || group.kind == GroupKind.NEGATIVE_LOOKBEHIND) {
+                        behind = group.node.fixedLength();
+                        if (behind < 0) {
+                            throw new UnsupportedRegexException("lookbehind without a fixed length");
+                        }
+                    }
+                    int start = add(LOOK_START, negative ? 1 : 0, behind, 0);
+                    emit(group.node, true);
+                    add(LOOK_END);
+                    code[start + 3] = size;
+                }
+            }
+        }
+
+        private void emitRepeat(Repeat repeat, boolean inLookaround) {
+            if (repeat.possessive) {
+                add(ATOMIC_START);
+                emitRepeat(new Repeat(repeat.node, repeat.min, repeat.max, repeat.greedy, false), inLookaround);
+                add(ATOMIC_END);
+                return;
+            }
+            CharClass charClass = singleByteClass(repeat.node);
+            if (charClass != null) {
+                add(REPEAT, addClass(charClass), repeat.min, repeat.max, repeat.greedy ? 1 : 0);
+                return;
+            }
+            if (repeat.node.nullable() && (repeat.max == Repeat.UNBOUNDED || repeat.max > 1)) {
+                // joni stops repeating empty matches, which this program doesn't track
+                throw new UnsupportedRegexException("repeated empty match");
+            }
+            for (int i = 0; i < repeat.min; i++) {
+                emit(repeat.node, inLookaround);
+            }
+            if (repeat.max == Repeat.UNBOUNDED) {
+                int split = add(SPLIT, 0, 0);
+                emit(repeat.node, inLookaround);
+                add(JUMP, split);
+                setTargets(split, repeat.greedy);
+            } else {
+                int[] splits = new int[repeat.max - repeat.min];
+                for (int i = 0; i < splits.length; i++) {
+                    splits[i] = add(SPLIT, 0, 0);
+                    emit(repeat.node, inLookaround);
+                }
+                for (int split : splits) {
+                    setTargets(split, repeat.greedy);
+                }
+            }
+        }
+
+        /**
+         * Points a split of a repetition to the repeated node, which directly follows the split, and to the end of the repetition.
+         */
+        private void setTargets(int split, boolean greedy) {
+            code[split + 1] = greedy ? split + 3 : size;
+            code[split + 2] = greedy ? size : split + 3;
+        }
+
+        /**
+         * Returns the class of characters that a node matches if it always matches a single ASCII character, {@code null} otherwise.
+         */
+        private static CharClass singleByteClass(Node node) {
+            if (node instanceof CharClass charClass) {
+                return charClass;
+            } else if (node instanceof Literal literal && literal.bytes.length == 1 && literal.bytes[0] >= 0) {
+                byte b = literal.bytes[0];
+                return new CharClass(bit(b, 0), bit(b, 64));
+            } else if (node instanceof Group group && (group.kind == GroupKind.NON_CAPTURING || group.kind == GroupKind.ATOMIC)) {
+                return singleByteClass(group.node);
+            } else if (node instanceof Alternation alternation) {
+                long low = 0;
+                long high = 0;
+                for (Node child : alternation.nodes) {
+                    CharClass charClass = singleByteClass(child);
+                    if (charClass == null) {
+                        return null;
+                    }
+                    low |= charClass.low;
+                    high |= charClass.high;
+                }
+                return new CharClass(low, high);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The matching state of a thread, which is reused from one match to the next.
+     */
+    private static final class State {
+        private final int[] slots;
+        private final Region region;
+        private int[] stack = new int[256];
+        private long steps;
+
+        State(int groupCount, int regionSize) {
+            slots = new int[2 * (groupCount + 1)];
+            Arrays.fill(slots, -1);
+            region = new Region(regionSize);
+        }
+
+        /**
+         * Fills the region with the captures of the last match.
+         */
+        Region region(int[] groupNumbers) {
+            Arrays.fill(region.beg, -1);
+            Arrays.fill(region.end, -1);
+            region.beg[0] = slots[0];
+            region.end[0] = slots[1];
+            for (int group = 0; group < groupNumbers.length; group++) {
+                int begin = slots[2 * (group + 1)];
+                int end = slots[2 * (group + 1) + 1];
+                if (begin >= 0 && end >= begin) {
+                    region.beg[groupNumbers[group]] = begin;
+                    region.end[groupNumbers[group]] = end;
+                }
+            }
+            return region;
+        }
+
+        void reset() {
+            Arrays.fill(slots, -1);
+            if (stack.length > MAX_RETAINED_STACK_SIZE) {
+                stack = new int[256];
+            }
+        }
+    }
+}
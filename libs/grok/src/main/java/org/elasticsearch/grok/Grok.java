@@ -24,11 +24,13 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public final class Grok {
@@ -71,17 +73,32 @@ public final class Grok {
     private final Regex compiledExpression;
     private final MatcherWatchdog matcherWatchdog;
     private final List<GrokCaptureConfig> captureConfig;
+    private final CompiledGrokMatcher compiledMatcher;
 
     public Grok(Map<String, String> patternBank, String grokPattern, Consumer<String> logCallBack) {
-        this(patternBank, grokPattern, true, MatcherWatchdog.noop(), logCallBack);
+        this(patternBank, grokPattern, true, MatcherWatchdog.noop(), false, logCallBack);
     }
 
     public Grok(Map<String, String> patternBank, String grokPattern, MatcherWatchdog matcherWatchdog, Consumer<String> logCallBack) {
-        this(patternBank, grokPattern, true, matcherWatchdog, logCallBack);
+        this(patternBank, grokPattern, true, matcherWatchdog, false, logCallBack);
+    }
+
+    /**
+     * @param useCompiledMatcher whether to match with a {@link CompiledGrokMatcher} when the expression and the text allow it, and
+     *                           with joni otherwise
+     */
+    public Grok(
+        Map<String, String> patternBank,
+        String grokPattern,
+        MatcherWatchdog matcherWatchdog,
+        boolean useCompiledMatcher,
+        Consumer<String> logCallBack
+    ) {
+        this(patternBank, grokPattern, true, matcherWatchdog, useCompiledMatcher, logCallBack);
     }
 
     Grok(Map<String, String> patternBank, String grokPattern, boolean namedCaptures, Consumer<String> logCallBack) {
-        this(patternBank, grokPattern, namedCaptures, MatcherWatchdog.noop(), logCallBack);
+        this(patternBank, grokPattern, namedCaptures, MatcherWatchdog.noop(), false, logCallBack);
     }
 
     private Grok(
@@ -89,6 +106,7 @@ public final class Grok {
         String grokPattern,
         boolean namedCaptures,
         MatcherWatchdog matcherWatchdog,
+        boolean useCompiledMatcher,
         Consumer<String> logCallBack
     ) {
         this.patternBank = patternBank;
@@ -109,10 +127,17 @@ public final class Grok {
         );
 
         List<GrokCaptureConfig> grokCaptureConfigs = new ArrayList<>();
+        Map<String, int[]> backRefsByName = new HashMap<>();
         for (Iterator<NameEntry> entry = compiledExpression.namedBackrefIterator(); entry.hasNext();) {
-            grokCaptureConfigs.add(new GrokCaptureConfig(entry.next()));
+            NameEntry nameEntry = entry.next();
+            grokCaptureConfigs.add(new GrokCaptureConfig(nameEntry));
+            String name = new String(nameEntry.name, nameEntry.nameP, nameEntry.nameEnd - nameEntry.nameP, StandardCharsets.UTF_8);
+            backRefsByName.put(name, nameEntry.getBackRefs());
         }
         this.captureConfig = List.copyOf(grokCaptureConfigs);
+        this.compiledMatcher = useCompiledMatcher
+            ? CompiledGrokMatcher.compile(expression, compiledExpression.numberOfCaptures(), backRefsByName)
+            : null;
     }
 
     /**
@@ -262,6 +287,13 @@ public final class Grok {
      * @return true if grok expression matches text or there is a timeout, false otherwise.
      */
     public boolean match(String text) {
+        if (compiledMatcher != null) {
+            byte[] utf8Bytes = text.getBytes(StandardCharsets.UTF_8);
+            int result = compiledMatcher.match(utf8Bytes, 0, utf8Bytes.length, null);
+            if (result != CompiledGrokMatcher.FALLBACK) {
+                return result == CompiledGrokMatcher.MATCHED;
+            }
+        }
         Matcher matcher = compiledExpression.matcher(text.getBytes(StandardCharsets.UTF_8));
         int result;
         try {
@@ -288,6 +320,17 @@ public final class Grok {
         return null;
     }
 
+    /**
+     * Matches and passes the name and the coerced value of any named captures to {@code emit}, without collecting them in a map.
+     *
+     * @param text the text to match and extract values from.
+     * @return true if there was a match, false otherwise
+     */
+    public boolean captures(String text, BiConsumer<String, Object> emit) {
+        byte[] utf8Bytes = text.getBytes(StandardCharsets.UTF_8);
+        return match(utf8Bytes, 0, utf8Bytes.length, new GrokCaptureExtracter.EmitExtracter(captureConfig, emit));
+    }
+
     /**
      * Matches and collects any named captures.
      * @param utf8Bytes array containing the text to match against encoded in utf-8
@@ -298,6 +341,12 @@ public final class Grok {
      * @throws RuntimeException if there was a timeout
      */
     public boolean match(byte[] utf8Bytes, int offset, int length, GrokCaptureExtracter extracter) {
+        if (compiledMatcher != null) {
+            int result = compiledMatcher.match(utf8Bytes, offset, length, extracter);
+            if (result != CompiledGrokMatcher.FALLBACK) {
+                return result == CompiledGrokMatcher.MATCHED;
+            }
+        }
         Matcher matcher = compiledExpression.matcher(utf8Bytes, offset, offset + length);
         int result;
         try {
@@ -325,6 +374,13 @@ public final class Grok {
         return captureConfig;
     }
 
+    /**
+     * Whether this {@linkplain Grok} matches with a {@link CompiledGrokMatcher}, and only falls back to joni for texts it can't match.
+     */
+    public boolean isCompiled() {
+        return compiledMatcher != null;
+    }
+
     /**
      * Load built-in patterns.
      */
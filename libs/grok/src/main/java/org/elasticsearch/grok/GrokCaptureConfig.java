@@ -9,6 +9,7 @@
 package org.elasticsearch.grok;
 
 import org.joni.NameEntry;
+import org.joni.Region;
 
 import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
@@ -47,6 +48,20 @@ public final class GrokCaptureConfig {
         return type;
     }
 
+    /**
+     * Extracts the first value that this capture matched, coerced to its type and boxed, or {@code null} if it didn't match anything.
+     */
+    Object extractObject(byte[] utf8Bytes, int offset, Region region) {
+        for (int number : backRefs) {
+            if (region.beg[number] >= 0) {
+                int matchOffset = offset + region.beg[number];
+                int matchLength = region.end[number] - region.beg[number];
+                return type.parse(new String(utf8Bytes, matchOffset, matchLength, StandardCharsets.UTF_8));
+            }
+        }
+        return null;
+    }
+
     /**
      * Build a {@linkplain GrokCaptureExtracter} that will call {@code emit} when
      * it extracts text, boxed if the "native" representation is primitive type.
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import static java.util.Collections.emptyMap;
 
@@ -49,5 +50,29 @@ public abstract class GrokCaptureExtracter {
         }
     }
 
+    /**
+     * Passes the name and the value of each capture to a {@link BiConsumer}, so that the captures are written directly to their
+     * destination. This implementation of {@link GrokCaptureExtracter} is stateless but is bound to its destination.
+     */
+    static class EmitExtracter extends GrokCaptureExtracter {
+        private final List<GrokCaptureConfig> captureConfig;
+        private final BiConsumer<String, Object> emit;
+
+        EmitExtracter(List<GrokCaptureConfig> captureConfig, BiConsumer<String, Object> emit) {
+            this.captureConfig = captureConfig;
+            this.emit = emit;
+        }
+
+        @Override
+        void extract(byte[] utf8Bytes, int offset, Region region) {
+            for (GrokCaptureConfig config : captureConfig) {
+                Object value = config.extractObject(utf8Bytes, offset, region);
+                if (value != null) {
+                    emit.accept(config.name(), value);
+                }
+            }
+        }
+    }
+
     abstract void extract(byte[] utf8Bytes, int offset, Region region);
 }
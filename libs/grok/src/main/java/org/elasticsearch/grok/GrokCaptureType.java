@@ -57,6 +57,20 @@ enum GrokCaptureType {
 
     abstract <T> T nativeExtracter(int[] backRefs, NativeExtracterMap<T> map);
 
+    /**
+     * Coerces captured text to this type, boxed.
+     */
+    Object parse(String str) {
+        return switch (this) {
+            case STRING -> str;
+            case INTEGER -> Integer.valueOf(str);
+            case LONG -> Long.valueOf(str);
+            case FLOAT -> Float.valueOf(str);
+            case DOUBLE -> Double.valueOf(str);
+            case BOOLEAN -> Boolean.valueOf(str);
+        };
+    }
+
     static GrokCaptureType fromString(String str) {
         return switch (str) {
             case "string" -> STRING;
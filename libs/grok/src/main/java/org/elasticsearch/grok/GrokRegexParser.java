@@ -0,0 +1,713 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.grok;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses the subset of the Ruby regular expression syntax that grok expressions use into a tree of {@link Node}s that
+ * {@link CompiledGrokMatcher} compiles. The subset covers literals, ASCII character classes, anchors, word boundaries, alternation,
+ * greedy, lazy and possessive quantifiers, non-capturing, named, atomic and lookaround groups. Anything else, like back references,
+ * inline options, non-ASCII character classes or quantified empty loops, is rejected with an {@link UnsupportedRegexException} so that
+ * the expression is matched by joni instead.
+ * <p>
+ * Like joni with the Ruby syntax, unnamed groups don't capture since grok expressions only extract named groups.
+ */
+final class GrokRegexParser {
+
+    /**
+     * Thrown when an expression uses a construct that {@link CompiledGrokMatcher} doesn't support.
+     */
+    static final class UnsupportedRegexException extends RuntimeException {
+        UnsupportedRegexException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    enum AssertionKind {
+        LINE_START,
+        LINE_END,
+        TEXT_START,
+        TEXT_END,
+        TEXT_END_BEFORE_NEWLINE,
+        WORD_BOUNDARY,
+        NOT_WORD_BOUNDARY
+    }
+
+    enum GroupKind {
+        NON_CAPTURING,
+        CAPTURING,
+        ATOMIC,
+        LOOKAHEAD,
+        NEGATIVE_LOOKAHEAD,
+        LOOKBEHIND,
+        NEGATIVE_LOOKBEHIND
+    }
+
+    abstract static class Node {
+        /**
+         * The number of bytes every match of this node consumes, or {@code -1} if matches have different lengths.
+         */
+        abstract int fixedLength();
+
+        /**
+         * Whether this node can match without consuming any byte.
+         */
+        abstract boolean nullable();
+    }
+
+    static final class Literal extends Node {
+        final byte[] bytes;
+
+        Literal(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        int fixedLength() {
+            return bytes.length;
+        }
+
+        @Override
+        boolean nullable() {
+            return bytes.length == 0;
+        }
+    }
+
+    /**
+     * A set of ASCII characters, as a bitmap over the 128 ASCII code points.
+     */
+    static final class CharClass extends Node {
+        final long low;
+        final long high;
+
+        CharClass(long low, long high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        boolean contains(int c) {
+            return c < 64 ? (low & (1L << c)) != 0 : c < 128 && (high & (1L << (c - 64))) != 0;
+        }
+
+        @Override
+        int fixedLength() {
+            return 1;
+        }
+
+        @Override
+        boolean nullable() {
+            return false;
+        }
+    }
+
+    static final class Assertion extends Node {
+        final AssertionKind kind;
+
+        Assertion(AssertionKind kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        int fixedLength() {
+            return 0;
+        }
+
+        @Override
+        boolean nullable() {
+            return true;
+        }
+    }
+
+    static final class Group extends Node {
+        final GroupKind kind;
+        final Node node;
+        final String name;
+
+        Group(GroupKind kind, Node node, String name) {
+            this.kind = kind;
+            this.node = node;
+            this.name = name;
+        }
+
+        boolean isLookaround() {
+            return kind == GroupKind.LOOKAHEAD
+                || kind == GroupKind.NEGATIVE_LOOKAHEAD
+                || kind == GroupKind.LOOKBEHIND
+                || kind == GroupKind.NEGATIVE_LOOKBEHIND;
+        }
+
+        @Override
+        int fixedLength() {
+            return isLookaround() ? 0 : node.fixedLength();
+        }
+
+        @Override
+        boolean nullable() {
+            return isLookaround() || node.nullable();
+        }
+    }
+
+    static final class Concat extends Node {
+        final List<Node> nodes;
+
+        Concat(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        int fixedLength() {
+            int length = 0;
+            for (Node node : nodes) {
+                int nodeLength = node.fixedLength();
+                if (nodeLength < 0) {
+                    return -1;
+                }
+                length += nodeLength;
+            }
+            return length;
+        }
+
+        @Override
+        boolean nullable() {
+            for (Node node : nodes) {
+                if (node.nullable() == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Alternation extends Node {
+        final List<Node> nodes;
+
+        Alternation(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        int fixedLength() {
+            int length = nodes.get(0).fixedLength();
+            for (Node node : nodes) {
+                if (node.fixedLength() != length) {
+                    return -1;
+                }
+            }
+            return length;
+        }
+
+        @Override
+        boolean nullable() {
+            for (Node node : nodes) {
+                if (node.nullable()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Repeat extends Node {
+        static final int UNBOUNDED = -1;
+
+        final Node node;
+        final int min;
+        final int max;
+        final boolean greedy;
+        final boolean possessive;
+
+        Repeat(Node node, int min, int max, boolean greedy, boolean possessive) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+            this.greedy = greedy;
+            this.possessive = possessive;
+        }
+
+        @Override
+        int fixedLength() {
+            int length = node.fixedLength();
+            return min == max && length >= 0 ? length * min : -1;
+        }
+
+        @Override
+        boolean nullable() {
+            return min == 0 || node.nullable();
+        }
+    }
+
+    private static final long DIGIT_LOW = rangeBits('0', '9');
+    private static final CharClass DIGIT = new CharClass(DIGIT_LOW, 0);
+    private static final CharClass WORD = new CharClass(
+        DIGIT_LOW,
+        rangeBits('A' - 64, 'Z' - 64) | rangeBits('_' - 64, '_' - 64) | rangeBits('a' - 64, 'z' - 64)
+    );
+    private static final CharClass SPACE = new CharClass(rangeBits('\t', '\r') | rangeBits(' ', ' '), 0);
+    private static final CharClass HEX_DIGIT = new CharClass(DIGIT_LOW, rangeBits('A' - 64, 'F' - 64) | rangeBits('a' - 64, 'f' - 64));
+    static final CharClass ANY_BUT_NEWLINE = new CharClass(~(1L << '\n'), -1L);
+
+    private final String regex;
+    private int pos = 0;
+    // the bounds of the last interval quantifier parsed by parseInterval
+    private int intervalMin;
+    private int intervalMax;
+
+    private GrokRegexParser(String regex) {
+        this.regex = regex;
+    }
+
+    /**
+     * Parses the given regular expression.
+     *
+     * @throws UnsupportedRegexException if the expression uses a construct that isn't supported
+     */
+    static Node parse(String regex) {
+        GrokRegexParser parser = new GrokRegexParser(regex);
+        Node node = parser.parseAlternation();
+        if (parser.pos != regex.length()) {
+            throw new UnsupportedRegexException("unbalanced [)] at position [" + parser.pos + "]");
+        }
+        return node;
+    }
+
+    private Node parseAlternation() {
+        List<Node> alternatives = new ArrayList<>();
+        alternatives.add(parseConcat());
+        while (pos < regex.length() && regex.charAt(pos) == '|') {
+            pos++;
+            alternatives.add(parseConcat());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private Node parseConcat() {
+        List<Node> nodes = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            if (c == '|' || c == ')') {
+                break;
+            }
+            Node atom = parseAtom();
+            atom = parseQuantifiers(atom);
+            if (atom instanceof Literal l && l.bytes.length > 0) {
+                // merge runs of literal characters so that they're compared at once
+                literal.append(new String(l.bytes, StandardCharsets.UTF_8));
+                continue;
+            }
+            flushLiteral(nodes, literal);
+            nodes.add(atom);
+        }
+        flushLiteral(nodes, literal);
+        return nodes.size() == 1 ? nodes.get(0) : new Concat(nodes);
+    }
+
+    private static void flushLiteral(List<Node> nodes, StringBuilder literal) {
+        if (literal.length() > 0) {
+            nodes.add(new Literal(literal.toString().getBytes(StandardCharsets.UTF_8)));
+            literal.setLength(0);
+        }
+    }
+
+    private Node parseQuantifiers(Node atom) {
+        if (pos == regex.length()) {
+            return atom;
+        }
+        int min;
+        int max;
+        char c = regex.charAt(pos);
+        boolean interval = false;
+        if (c == '*') {
+            min = 0;
+            max = Repeat.UNBOUNDED;
+            pos++;
+        } else if (c == '+') {
+            min = 1;
+            max = Repeat.UNBOUNDED;
+            pos++;
+        } else if (c == '?') {
+            min = 0;
+            max = 1;
+            pos++;
+        } else if (c == '{' && parseInterval()) {
+            min = intervalMin;
+            max = intervalMax;
+            interval = true;
+        } else {
+            return atom;
+        }
+        if (atom instanceof Assertion || (atom instanceof Group g && g.isLookaround())) {
+            throw new UnsupportedRegexException("quantified assertion at position [" + pos + "]");
+        }
+        boolean greedy = true;
+        boolean possessive = false;
+        if (pos < regex.length()) {
+            char next = regex.charAt(pos);
+            if (next == '?') {
+                greedy = false;
+                pos++;
+            } else if (next == '+' && interval == false) {
+                possessive = true;
+                pos++;
+            }
+        }
+        if (pos < regex.length() && isQuantifierStart(regex.charAt(pos))) {
+            throw new UnsupportedRegexException("nested quantifier at position [" + pos + "]");
+        }
+        // atoms are single characters or groups, literal runs are only merged after their quantifiers were parsed
+        return new Repeat(atom, min, max, greedy, possessive);
+    }
+
+    private boolean isQuantifierStart(char c) {
+        if (c == '*' || c == '+' || c == '?') {
+            return true;
+        }
+        if (c == '{') {
+            int start = pos;
+            boolean isInterval = parseInterval();
+            pos = start;
+            return isInterval;
+        }
+        return false;
+    }
+
+    /**
+     * Parses {@code {n}}, {@code {n,}}, {@code {n,m}} or {@code {,m}} at the current position. Anything else is a literal {@code {}.
+     */
+    private boolean parseInterval() {
+        int end = regex.indexOf('}', pos);
+        if (end == -1) {
+            return false;
+        }
+        String interval = regex.substring(pos + 1, end);
+        int comma = interval.indexOf(',');
+        try {
+            if (comma == -1) {
+                if (isDigits(interval) == false) {
+                    return false;
+                }
+                intervalMin = intervalMax = Integer.parseInt(interval);
+            } else {
+                String min = interval.substring(0, comma);
+                String max = interval.substring(comma + 1);
+                if ((min.isEmpty() && max.isEmpty()) || (min.isEmpty() == false && isDigits(min) == false)
+                    || (max.isEmpty() == false && isDigits(max) == false)) {
+                    return false;
+                }
+                intervalMin = min.isEmpty() ? 0 : Integer.parseInt(min);
+                intervalMax = max.isEmpty() ? Repeat.UNBOUNDED : Integer.parseInt(max);
+                if (intervalMax != Repeat.UNBOUNDED && intervalMax < intervalMin) {
+                    throw new UnsupportedRegexException("invalid interval [" + interval + "]");
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new UnsupportedRegexException("invalid interval [" + interval + "]");
+        }
+        pos = end + 1;
+        return true;
+    }
+
+    private static boolean isDigits(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Node parseAtom() {
+        char c = regex.charAt(pos);
+        switch (c) {
+            case '(':
+                return parseGroup();
+            case '[':
+                pos++;
+                return parseCharClass();
+            case '.':
+                pos++;
+                return ANY_BUT_NEWLINE;
+            case '^':
+                pos++;
+                return new Assertion(AssertionKind.LINE_START);
+            case '$':
+                pos++;
+                return new Assertion(AssertionKind.LINE_END);
+            case '\\':
+                pos++;
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+                throw new UnsupportedRegexException("dangling quantifier at position [" + pos + "]");
+            case '{':
+                if (isQuantifierStart(c)) {
+                    throw new UnsupportedRegexException("dangling quantifier at position [" + pos + "]");
+                }
+                pos++;
+                return literal(c);
+            default:
+                int codePoint = regex.codePointAt(pos);
+                pos += Character.charCount(codePoint);
+                return literal(codePoint);
+        }
+    }
+
+    private static Literal literal(int codePoint) {
+        return new Literal(new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Node parseGroup() {
+        pos++; // (
+        GroupKind kind = GroupKind.NON_CAPTURING;
+        String name = null;
+        if (regex.startsWith("?", pos)) {
+            if (regex.startsWith("?:", pos)) {
+                pos += 2;
+            } else if (regex.startsWith("?>", pos)) {
+                kind = GroupKind.ATOMIC;
+                pos += 2;
+            } else if (regex.startsWith("?=", pos)) {
+                kind = GroupKind.LOOKAHEAD;
+                pos += 2;
+            } else if (regex.startsWith("?!", pos)) {
+                kind = GroupKind.NEGATIVE_LOOKAHEAD;
+                pos += 2;
+            } else if (regex.startsWith("?<=", pos)) {
+                kind = GroupKind.LOOKBEHIND;
+                pos += 3;
+            } else if (regex.startsWith("?<!", pos)) {
+                kind = GroupKind.NEGATIVE_LOOKBEHIND;
+                pos += 3;
+            } else if (regex.startsWith("?<", pos)) {
+                int end = regex.indexOf('>', pos);
+                if (end == -1) {
+                    throw new UnsupportedRegexException("unterminated group name at position [" + pos + "]");
+                }
+                kind = GroupKind.CAPTURING;
+                name = regex.substring(pos + 2, end);
+                pos = end + 1;
+            } else {
+                throw new UnsupportedRegexException("unsupported group at position [" + pos + "]");
+            }
+        }
+        Node node = parseAlternation();
+        if (pos == regex.length() || regex.charAt(pos) != ')') {
+            throw new UnsupportedRegexException("unterminated group at position [" + pos + "]");
+        }
+        pos++;
+        return new Group(kind, node, name);
+    }
+
+    private Node parseEscape() {
+        if (pos == regex.length()) {
+            throw new UnsupportedRegexException("trailing [\\]");
+        }
+        char c = regex.charAt(pos++);
+        return switch (c) {
+            case 'A' -> new Assertion(AssertionKind.TEXT_START);
+            case 'z' -> new Assertion(AssertionKind.TEXT_END);
+            case 'Z' -> new Assertion(AssertionKind.TEXT_END_BEFORE_NEWLINE);
+            case 'b' -> new Assertion(AssertionKind.WORD_BOUNDARY);
+            case 'B' -> new Assertion(AssertionKind.NOT_WORD_BOUNDARY);
+            default -> {
+                CharClass shorthand = shorthandClass(c);
+                yield shorthand != null ? shorthand : literal(escapedChar(c));
+            }
+        };
+    }
+
+    private static CharClass shorthandClass(char c) {
+        return switch (c) {
+            case 'd' -> DIGIT;
+            case 'D' -> negate(DIGIT);
+            case 'w' -> WORD;
+            case 'W' -> negate(WORD);
+            case 's' -> SPACE;
+            case 'S' -> negate(SPACE);
+            case 'h' -> HEX_DIGIT;
+            case 'H' -> negate(HEX_DIGIT);
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns the character that an escape sequence other than a class shorthand stands for.
+     */
+    private int escapedChar(char c) {
+        switch (c) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'v':
+                return 0x0B;
+            case 'a':
+                return 0x07;
+            case 'e':
+                return 0x1B;
+            case 'x':
+                int end = pos;
+                while (end < regex.length() && end < pos + 2 && Character.digit(regex.charAt(end), 16) != -1) {
+                    end++;
+                }
+                if (end == pos) {
+                    throw new UnsupportedRegexException("invalid hex escape at position [" + pos + "]");
+                }
+                int value = Integer.parseInt(regex.substring(pos, end), 16);
+                if (value > 0x7F) {
+                    throw new UnsupportedRegexException("non-ASCII hex escape at position [" + pos + "]");
+                }
+                pos = end;
+                return value;
+            default:
+                if (c < 128 && Character.isLetterOrDigit(c) == false) {
+                    return c;
+                }
+                throw new UnsupportedRegexException("unsupported escape [\\" + c + "] at position [" + (pos - 1) + "]");
+        }
+    }
+
+    /**
+     * Parses a character class after its opening {@code [}.
+     */
+    private CharClass parseCharClass() {
+        boolean negated = false;
+        if (pos < regex.length() && regex.charAt(pos) == '^') {
+            negated = true;
+            pos++;
+        }
+        long low = 0;
+        long high = 0;
+        boolean first = true;
+        while (true) {
+            if (pos == regex.length()) {
+                throw new UnsupportedRegexException("unterminated character class");
+            }
+            char c = regex.charAt(pos);
+            if (c == ']' && first == false) {
+                pos++;
+                break;
+            }
+            first = false;
+            if (c == '[') {
+                CharClass posix = parsePosixClass();
+                low |= posix.low;
+                high |= posix.high;
+                continue;
+            }
+            if (c == '&' && regex.startsWith("&&", pos)) {
+                throw new UnsupportedRegexException("character class intersection at position [" + pos + "]");
+            }
+            int from;
+            if (c == '\\') {
+                pos++;
+                if (pos == regex.length()) {
+                    throw new UnsupportedRegexException("unterminated character class");
+                }
+                char escaped = regex.charAt(pos++);
+                CharClass shorthand = shorthandClass(escaped);
+                if (shorthand != null) {
+                    low |= shorthand.low;
+                    high |= shorthand.high;
+                    continue;
+                }
+                from = escaped == 'b' ? 0x08 : escapedChar(escaped);
+            } else {
+                from = c;
+                pos++;
+            }
+            int to = from;
+            if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+                pos++;
+                char end = regex.charAt(pos);
+                if (end == '[') {
+                    throw new UnsupportedRegexException("invalid range end at position [" + pos + "]");
+                } else if (end == '\\') {
+                    pos++;
+                    if (pos == regex.length() || shorthandClass(regex.charAt(pos)) != null) {
+                        throw new UnsupportedRegexException("invalid range end at position [" + pos + "]");
+                    }
+                    char escaped = regex.charAt(pos++);
+                    to = escaped == 'b' ? 0x08 : escapedChar(escaped);
+                } else {
+                    to = end;
+                    pos++;
+                }
+                if (to < from) {
+                    throw new UnsupportedRegexException("empty range in character class at position [" + pos + "]");
+                }
+            }
+            if (to > 0x7F) {
+                throw new UnsupportedRegexException("non-ASCII character class at position [" + pos + "]");
+            }
+            if (from < 64) {
+                low |= rangeBits(from, Math.min(to, 63));
+            }
+            if (to >= 64) {
+                high |= rangeBits(Math.max(from, 64) - 64, to - 64);
+            }
+        }
+        return negated ? new CharClass(~low, ~high) : new CharClass(low, high);
+    }
+
+    private CharClass parsePosixClass() {
+        int end = regex.indexOf(":]", pos);
+        if (regex.startsWith("[:", pos) == false || end == -1) {
+            throw new UnsupportedRegexException("nested character class at position [" + pos + "]");
+        }
+        String name = regex.substring(pos + 2, end);
+        pos = end + 2;
+        boolean negated = name.startsWith("^");
+        CharClass posix = switch (negated ? name.substring(1) : name) {
+            case "alnum" -> new CharClass(DIGIT_LOW, rangeBits('A' - 64, 'Z' - 64) | rangeBits('a' - 64, 'z' - 64));
+            case "alpha" -> new CharClass(0, rangeBits('A' - 64, 'Z' - 64) | rangeBits('a' - 64, 'z' - 64));
+            case "ascii" -> new CharClass(-1L, -1L);
+            case "blank" -> new CharClass(rangeBits('\t', '\t') | rangeBits(' ', ' '), 0);
+            case "cntrl" -> new CharClass(rangeBits(0, 31), rangeBits(127 - 64, 127 - 64));
+            case "digit" -> DIGIT;
+            case "graph" -> new CharClass(rangeBits('!', 63), rangeBits(0, '~' - 64));
+            case "lower" -> new CharClass(0, rangeBits('a' - 64, 'z' - 64));
+            case "print" -> new CharClass(rangeBits(' ', 63), rangeBits(0, '~' - 64));
+            case "punct" -> new CharClass(
+                rangeBits('!', '/') | rangeBits(':', '@'),
+                rangeBits('[' - 64, '`' - 64) | rangeBits('{' - 64, '~' - 64)
+            );
+            case "space" -> SPACE;
+            case "upper" -> new CharClass(0, rangeBits('A' - 64, 'Z' - 64));
+            case "word" -> WORD;
+            case "xdigit" -> HEX_DIGIT;
+            default -> throw new UnsupportedRegexException("unknown POSIX class [" + name.toLowerCase(Locale.ROOT) + "]");
+        };
+        return negated ? negate(posix) : posix;
+    }
+
+    private static CharClass negate(CharClass charClass) {
+        return new CharClass(~charClass.low, ~charClass.high);
+    }
+
+    /**
+     * A bitmap with the bits {@code from} to {@code to} (inclusive) set, both between 0 and 63.
+     */
+    private static long rangeBits(int from, int to) {
+        long upTo = to == 63 ? -1L : (1L << (to + 1)) - 1;
+        return upTo & -(1L << from);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.grok;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class CompiledGrokMatcherTests extends ESTestCase {
+
+    private static final List<String> LOG_LINES = List.of(
+        "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326 \"http://www.example.com/start.html\" "
+            + "\"Mozilla/4.08 [en] (Win98; I ;Nav)\"",
+        "[Wed Oct 11 14:32:52 2000] [error] [client 127.0.0.1] client denied by server configuration: /export/home/live/ap/htdocs/test",
+        "Oct 11 22:14:15 mymachine su[123]: 'su root' failed for lonvick on /dev/pts/8",
+        "2016-11-23T08:11:44.123+01:00 INFO [main] org.example.Foo - Started in 3.2 seconds",
+        "55.3.244.1 GET /index.html 15824 0.043",
+        "fe80::1ff:fe23:4567:890a%eth2 https://user:pw@host.example.com:8080/p/a/t/h?query=1&b=2#frag",
+        "12345678-1234-1234-1234-123456789abc 01:23:45:67:89:ab C:\\Windows\\system32 -12.5e 0x1F",
+        "\"quoted \\\" string\" tail 2000/10/11-13:55:36 Mon Nov 13 2017 ERROR",
+        "line one\nline two\n"
+    );
+
+    public void testBuiltinPatternsMatchLikeJoni() {
+        testBuiltinPatternsMatchLikeJoni(false);
+        testBuiltinPatternsMatchLikeJoni(true);
+    }
+
+    private void testBuiltinPatternsMatchLikeJoni(boolean ecsCompatibility) {
+        Map<String, String> patternBank = Grok.getBuiltinPatterns(ecsCompatibility);
+        int compiled = 0;
+        for (String name : patternBank.keySet()) {
+            String pattern = "%{" + name + ":value}";
+            Grok joni = new Grok(patternBank, pattern, MatcherWatchdog.noop(), false, logger::warn);
+            Grok grok = new Grok(patternBank, pattern, MatcherWatchdog.noop(), true, logger::warn);
+            if (grok.isCompiled() == false) {
+                continue;
+            }
+            compiled++;
+            for (String line : LOG_LINES) {
+                assertMatchesLikeJoni(joni, grok, line);
+                int start = randomIntBetween(0, line.length());
+                assertMatchesLikeJoni(joni, grok, line.substring(start, randomIntBetween(start, line.length())));
+            }
+        }
+        // most built-in patterns only use constructs that the compiled matcher supports
+        assertThat(compiled, greaterThan(patternBank.size() * 3 / 4));
+    }
+
+    private static void assertMatchesLikeJoni(Grok joni, Grok grok, String text) {
+        assertThat(text, grok.match(text), equalTo(joni.match(text)));
+        assertThat(text, grok.captures(text), equalTo(joni.captures(text)));
+    }
+
+    public void testCapturesAreEmitted() {
+        Grok grok = new Grok(
+            Grok.getBuiltinPatterns(false),
+            "%{IP:client} %{WORD:method} %{NUMBER:bytes:int} %{NUMBER:duration:float}",
+            MatcherWatchdog.noop(),
+            true,
+            logger::warn
+        );
+        assertThat(grok.isCompiled(), is(true));
+        Map<String, Object> captures = new HashMap<>();
+        assertThat(grok.captures("55.3.244.1 GET 15824 0.043", captures::put), is(true));
+        assertThat(captures, equalTo(Map.of("client", "55.3.244.1", "method", "GET", "bytes", 15824, "duration", 0.043f)));
+        captures.clear();
+        assertThat(grok.captures("55.3.244.1 GET", captures::put), is(false));
+        assertThat(captures, equalTo(Map.of()));
+    }
+
+    public void testRepeatedNamesCaptureTheFirstMatch() {
+        Grok grok = new Grok(Map.of(), "(?<a>x)(?<b>y)|(?<a>z)", MatcherWatchdog.noop(), true, logger::warn);
+        assertThat(grok.isCompiled(), is(true));
+        assertThat(grok.captures("xy"), equalTo(Map.of("a", "x", "b", "y")));
+        assertThat(grok.captures("z"), equalTo(Map.of("a", "z")));
+    }
+
+    public void testUnsupportedExpressionsMatchWithJoni() {
+        for (String pattern : List.of("(?<a>\\w)\\k<a>", "(?i)ab", "(?<a>[[:alpha:]&&[^b]]+)", "(?<a>\\p{Alpha}+)", "(?<a>x*)*")) {
+            Grok grok = new Grok(Map.of(), pattern, MatcherWatchdog.noop(), true, logger::warn);
+            assertThat(pattern, grok.isCompiled(), is(false));
+        }
+        Grok grok = new Grok(Map.of(), "(?<a>\\w)\\k<a>", MatcherWatchdog.noop(), true, logger::warn);
+        assertThat(grok.captures("abba"), equalTo(Map.of("a", "b")));
+    }
+
+    public void testNonAsciiTextMatchesWithJoni() {
+        Map<String, String> patternBank = Grok.getBuiltinPatterns(false);
+        Grok joni = new Grok(patternBank, "%{WORD:first} %{GREEDYDATA:rest}", MatcherWatchdog.noop(), false, logger::warn);
+        Grok grok = new Grok(patternBank, "%{WORD:first} %{GREEDYDATA:rest}", MatcherWatchdog.noop(), true, logger::warn);
+        assertThat(grok.isCompiled(), is(true));
+        for (String text : List.of("héllo wörld", "grüße aus köln", "ascii only")) {
+            assertMatchesLikeJoni(joni, grok, text);
+        }
+    }
+
+    public void testPrefilters() {
+        Grok anchored = new Grok(Map.of(), "^(?<a>\\d+)-", MatcherWatchdog.noop(), true, logger::warn);
+        assertThat(anchored.captures("12-"), equalTo(Map.of("a", "12")));
+        assertThat(anchored.captures("x12-"), nullValue());
+        assertThat(anchored.captures("x\n12-"), equalTo(Map.of("a", "12")));
+
+        Grok literal = new Grok(Map.of(), "(?<a>\\w+) literal (?<b>\\w+)", MatcherWatchdog.noop(), true, logger::warn);
+        assertThat(literal.captures("one literal two"), equalTo(Map.of("a", "one", "b", "two")));
+        assertThat(literal.captures("one literally two"), nullValue());
+
+        Grok firstByte = new Grok(Map.of(), "[xy](?<a>\\d)", MatcherWatchdog.noop(), true, logger::warn);
+        assertThat(firstByte.captures("aaay7"), equalTo(Map.of("a", "7")));
+        assertThat(firstByte.captures("aaa7"), nullValue());
+    }
+
+    public void testRandomTextsMatchLikeJoni() {
+        List<String> patterns = List.of(
+            "(?<a>a|ab)(?<b>c|bcd)",
+            "^(?<a>.*?)x$",
+            "(?<a>[^\"]*)\"",
+            "(?>a+)b",
+            "(?<a>a*?)(?<b>a*)b",
+            "\\bfoo\\b",
+            "(?<![0-9])(?<a>\\d{1,3})(?![0-9])",
+            "(?:(?<a>x)|y)+z",
+            "(?<a>[a-c]{2,4}?)c",
+            "x{,2}y",
+            "(?<a>ab|a)*?c",
+            "(?<a>[[:alpha:]]+)\\Z",
+            "(?=ab)(?<a>a)",
+            "(?<=a)(?<b>b+)",
+            "(?<!a)b",
+            "\\S+\\s*$",
+            "x*+x",
+            "\\B.",
+            "[\\]a-]+",
+            "\\Ab.*\\z"
+        );
+        String alphabet = "aabbcxyzfoo01 \"\n-.:_";
+        for (String pattern : patterns) {
+            Grok joni = new Grok(Map.of(), pattern, MatcherWatchdog.noop(), false, logger::warn);
+            Grok grok = new Grok(Map.of(), pattern, MatcherWatchdog.noop(), true, logger::warn);
+            assertThat(pattern, grok.isCompiled(), is(true));
+            for (int i = 0; i < 100; i++) {
+                StringBuilder text = new StringBuilder();
+                int length = randomIntBetween(0, 16);
+                for (int j = 0; j < length; j++) {
+                    text.append(alphabet.charAt(randomIntBetween(0, alphabet.length() - 1)));
+                }
+                assertMatchesLikeJoni(joni, grok, text.toString());
+            }
+        }
+    }
+}
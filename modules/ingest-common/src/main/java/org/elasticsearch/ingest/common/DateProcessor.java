@@ -12,6 +12,7 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.common.util.LocaleUtils;
 import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Tuple;
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
 import org.elasticsearch.ingest.IngestDocument;
@@ -23,6 +24,7 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -90,6 +92,54 @@ public final class DateProcessor extends AbstractProcessor {
 
     @Override
     public IngestDocument execute(IngestDocument ingestDocument) {
+        final Map<String, Object> params = ingestDocument.getSourceAndMetadata();
+        final List<Function<String, ZonedDateTime>> parsers = new ArrayList<>(dateParsers.size());
+        for (Function<Map<String, Object>, Function<String, ZonedDateTime>> dateParser : dateParsers) {
+            parsers.add(value -> dateParser.apply(params).apply(value));
+        }
+        return execute(ingestDocument, parsers);
+    }
+
+    @Override
+    public void executeBatch(List<IngestDocument> ingestDocuments, BatchHandler handler) {
+        // the parsers only depend on the time zone and the locale, which are usually the same for all documents of a batch, so they're
+        // created once per time zone and locale of the batch instead of once per document
+        final Map<Tuple<ZoneId, Locale>, List<Function<String, ZonedDateTime>>> parsersByZoneAndLocale = new HashMap<>();
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            final IngestDocument ingestDocument = ingestDocuments.get(i);
+            final IngestDocument result;
+            try {
+                final Map<String, Object> params = ingestDocument.getSourceAndMetadata();
+                List<Function<String, ZonedDateTime>> parsers;
+                try {
+                    final Tuple<ZoneId, Locale> zoneAndLocale = new Tuple<>(newDateTimeZone(params), newLocale(params));
+                    parsers = parsersByZoneAndLocale.computeIfAbsent(zoneAndLocale, k -> newDateParsers(k.v1(), k.v2()));
+                } catch (Exception e) {
+                    // an invalid time zone or locale fails all parsers of the document
+                    parsers = null;
+                }
+                result = parsers == null ? execute(ingestDocument) : execute(ingestDocument, parsers);
+            } catch (Exception e) {
+                handler.accept(i, null, e);
+                continue;
+            }
+            handler.accept(i, result, null);
+        }
+    }
+
+    private List<Function<String, ZonedDateTime>> newDateParsers(ZoneId zoneId, Locale locale) {
+        final List<Function<String, ZonedDateTime>> parsers = new ArrayList<>(formats.size());
+        for (String format : formats) {
+            try {
+                parsers.add(DateFormat.fromString(format).getFunction(format, zoneId, locale));
+            } catch (RuntimeException e) {
+                parsers.add(value -> { throw e; });
+            }
+        }
+        return parsers;
+    }
+
+    private IngestDocument execute(IngestDocument ingestDocument, List<Function<String, ZonedDateTime>> parsers) {
         Object obj = ingestDocument.getFieldValue(field, Object.class);
         String value = null;
         if (obj != null) {
@@ -99,9 +149,9 @@ public final class DateProcessor extends AbstractProcessor {
 
         ZonedDateTime dateTime = null;
         Exception lastException = null;
-        for (Function<Map<String, Object>, Function<String, ZonedDateTime>> dateParser : dateParsers) {
+        for (Function<String, ZonedDateTime> parser : parsers) {
             try {
-                dateTime = dateParser.apply(ingestDocument.getSourceAndMetadata()).apply(value);
+                dateTime = parser.apply(value);
             } catch (Exception e) {
                 // try the next parser and keep track of the exceptions
                 lastException = ExceptionsHelper.useOrSuppress(lastException, e);
@@ -17,6 +17,7 @@ import org.elasticsearch.ingest.ConfigurationUtils;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,11 +47,25 @@ public final class GrokProcessor extends AbstractProcessor {
         boolean traceMatch,
         boolean ignoreMissing,
         MatcherWatchdog matcherWatchdog
+    ) {
+        this(tag, description, patternBank, matchPatterns, matchField, traceMatch, ignoreMissing, matcherWatchdog, false);
+    }
+
+    GrokProcessor(
+        String tag,
+        String description,
+        Map<String, String> patternBank,
+        List<String> matchPatterns,
+        String matchField,
+        boolean traceMatch,
+        boolean ignoreMissing,
+        MatcherWatchdog matcherWatchdog,
+        boolean useCompiledMatcher
     ) {
         super(tag, description);
         this.matchField = matchField;
         this.matchPatterns = matchPatterns;
-        this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch), matcherWatchdog, logger::debug);
+        this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch), matcherWatchdog, useCompiledMatcher, logger::debug);
         this.traceMatch = traceMatch;
         this.ignoreMissing = ignoreMissing;
         // Joni warnings are only emitted on an attempt to match, and the warning emitted for every call to match which is too verbose
@@ -68,12 +83,21 @@ public final class GrokProcessor extends AbstractProcessor {
             throw new IllegalArgumentException("field [" + matchField + "] is null, cannot process it.");
         }
 
-        Map<String, Object> matches = grok.captures(fieldValue);
-        if (matches == null) {
+        // the captures are converted while matching but only set once all of them were, so that a failing conversion leaves the
+        // document as is
+        List<String> names = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        boolean matched = grok.captures(fieldValue, (name, value) -> {
+            names.add(name);
+            values.add(value);
+        });
+        if (matched == false) {
             throw new IllegalArgumentException("Provided Grok expressions do not match field value: [" + fieldValue + "]");
         }
 
-        matches.forEach(ingestDocument::setFieldValue);
+        for (int i = 0; i < names.size(); i++) {
+            ingestDocument.setFieldValue(names.get(i), values.get(i));
+        }
 
         if (traceMatch) {
             if (matchPatterns.size() > 1) {
@@ -136,9 +160,15 @@ public final class GrokProcessor extends AbstractProcessor {
     public static final class Factory implements Processor.Factory {
 
         private final MatcherWatchdog matcherWatchdog;
+        private final boolean useCompiledMatcher;
 
         public Factory(MatcherWatchdog matcherWatchdog) {
+            this(matcherWatchdog, false);
+        }
+
+        public Factory(MatcherWatchdog matcherWatchdog, boolean useCompiledMatcher) {
             this.matcherWatchdog = matcherWatchdog;
+            this.useCompiledMatcher = useCompiledMatcher;
         }
 
         @Override
@@ -181,7 +211,8 @@ public final class GrokProcessor extends AbstractProcessor {
                     matchField,
                     traceMatch,
                     ignoreMissing,
-                    matcherWatchdog
+                    matcherWatchdog,
+                    useCompiledMatcher
                 );
             } catch (Exception e) {
                 throw newConfigurationException(
@@ -48,6 +48,11 @@ public class IngestCommonPlugin extends Plugin implements ActionPlugin, IngestPl
         TimeValue.timeValueSeconds(1),
         Setting.Property.NodeScope
     );
+    static final Setting<Boolean> COMPILED_MATCHER_ENABLED = Setting.boolSetting(
+        "ingest.grok.compiled_matcher.enabled",
+        false,
+        Setting.Property.NodeScope
+    );
 
     public IngestCommonPlugin() {}
 
@@ -70,7 +75,7 @@ public class IngestCommonPlugin extends Plugin implements ActionPlugin, IngestPl
             entry(ForEachProcessor.TYPE, new ForEachProcessor.Factory(parameters.scriptService)),
             entry(DateIndexNameProcessor.TYPE, new DateIndexNameProcessor.Factory(parameters.scriptService)),
             entry(SortProcessor.TYPE, new SortProcessor.Factory()),
-            entry(GrokProcessor.TYPE, new GrokProcessor.Factory(createGrokThreadWatchdog(parameters))),
+            entry(GrokProcessor.TYPE, createGrokFactory(parameters)),
             entry(ScriptProcessor.TYPE, new ScriptProcessor.Factory(parameters.scriptService)),
             entry(DotExpanderProcessor.TYPE, new DotExpanderProcessor.Factory()),
             entry(JsonProcessor.TYPE, new JsonProcessor.Factory()),
@@ -112,7 +117,11 @@ public class IngestCommonPlugin extends Plugin implements ActionPlugin, IngestPl
 
     @Override
     public List<Setting<?>> getSettings() {
-        return Arrays.asList(WATCHDOG_INTERVAL, WATCHDOG_MAX_EXECUTION_TIME);
+        return Arrays.asList(WATCHDOG_INTERVAL, WATCHDOG_MAX_EXECUTION_TIME, COMPILED_MATCHER_ENABLED);
+    }
+
+    private static GrokProcessor.Factory createGrokFactory(Processor.Parameters parameters) {
+        return new GrokProcessor.Factory(createGrokThreadWatchdog(parameters), COMPILED_MATCHER_ENABLED.get(parameters.env.settings()));
     }
 
     private static MatcherWatchdog createGrokThreadWatchdog(Processor.Parameters parameters) {
@@ -8,6 +8,7 @@
 
 package org.elasticsearch.ingest.common;
 
+import org.elasticsearch.grok.Grok;
 import org.elasticsearch.grok.MatcherWatchdog;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.RandomDocumentPicks;
@@ -41,6 +42,30 @@ public class GrokProcessorTests extends ESTestCase {
         assertThat(doc.getFieldValue("one", String.class), equalTo("1"));
     }
 
+    public void testMatchWithCompiledMatcher() throws Exception {
+        String fieldName = RandomDocumentPicks.randomFieldName(random());
+        IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        doc.setFieldValue(fieldName, "55.3.244.1 GET /index.html 15824 0.043");
+        GrokProcessor processor = new GrokProcessor(
+            randomAlphaOfLength(10),
+            null,
+            Grok.getBuiltinPatterns(false),
+            Collections.singletonList("%{IP:client} %{WORD:method} %{URIPATHPARAM:request} %{NUMBER:bytes:int} %{NUMBER:duration:double}"),
+            fieldName,
+            false,
+            false,
+            MatcherWatchdog.noop(),
+            true
+        );
+        assertThat(processor.getGrok().isCompiled(), equalTo(true));
+        processor.execute(doc);
+        assertThat(doc.getFieldValue("client", String.class), equalTo("55.3.244.1"));
+        assertThat(doc.getFieldValue("method", String.class), equalTo("GET"));
+        assertThat(doc.getFieldValue("request", String.class), equalTo("/index.html"));
+        assertThat(doc.getFieldValue("bytes", Integer.class), equalTo(15824));
+        assertThat(doc.getFieldValue("duration", Double.class), equalTo(0.043));
+    }
+
     public void testIgnoreCase() throws Exception {
         String fieldName = RandomDocumentPicks.randomFieldName(random());
         IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
@@ -77,6 +102,27 @@ public class GrokProcessorTests extends ESTestCase {
         assertThat(e.getMessage(), equalTo("Provided Grok expressions do not match field value: [23]"));
     }
 
+    public void testFailedConversionLeavesDocumentUnchanged() {
+        String fieldName = RandomDocumentPicks.randomFieldName(random());
+        IngestDocument originalIngestDocument = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        originalIngestDocument.setFieldValue(fieldName, "first second");
+        IngestDocument ingestDocument = new IngestDocument(originalIngestDocument);
+        GrokProcessor processor = new GrokProcessor(
+            randomAlphaOfLength(10),
+            null,
+            Collections.singletonMap("WORD", "\\w+"),
+            Collections.singletonList("%{WORD:one} %{WORD:two:int}"),
+            fieldName,
+            false,
+            false,
+            MatcherWatchdog.noop(),
+            randomBoolean()
+        );
+        // the first capture converts fine, but it's not set since the second one fails to convert
+        expectThrows(NumberFormatException.class, () -> processor.execute(ingestDocument));
+        assertIngestDocument(originalIngestDocument, ingestDocument);
+    }
+
     public void testNoMatchingPatternName() {
         String fieldName = RandomDocumentPicks.randomFieldName(random());
         IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
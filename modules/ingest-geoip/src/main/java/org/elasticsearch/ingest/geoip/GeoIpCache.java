@@ -7,32 +7,72 @@
  */
 package org.elasticsearch.ingest.geoip;
 
+import com.maxmind.db.Network;
 import com.maxmind.db.NodeCache;
+import com.maxmind.geoip2.model.AbstractCountryResponse;
 import com.maxmind.geoip2.model.AbstractResponse;
+import com.maxmind.geoip2.model.AsnResponse;
+import com.maxmind.geoip2.model.CityResponse;
 
 import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.ingest.geoip.stats.GeoIpCacheStats;
 
 import java.net.InetAddress;
 import java.nio.file.Path;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 /**
  * The in-memory cache for the geoip data. There should only be 1 instance of this class..
  * This cache differs from the maxmind's {@link NodeCache} such that this cache stores the deserialized Json objects to avoid the
  * cost of deserialization for each lookup (cached or not). This comes at slight expense of higher memory usage, but significant
  * reduction of CPU usage.
+ *
+ * Responses are cached by the network that the database returned them for rather than by the looked up ip address, so that a single
+ * entry answers the lookups of every address in that network. The cache remembers which network prefix lengths it holds entries for
+ * per database, and a lookup probes the masked address for each of them. Networks in a database never overlap, so at most one probe
+ * hits.
  */
 final class GeoIpCache {
+
+    // rough estimates of the heap used by a deserialized response of the GeoLite2 databases, including its cache entry
+    static final long CITY_RESPONSE_SIZE_IN_BYTES = 4096;
+    static final long COUNTRY_RESPONSE_SIZE_IN_BYTES = 2048;
+    static final long ASN_RESPONSE_SIZE_IN_BYTES = 256;
+
     private final Cache<CacheKey, AbstractResponse> cache;
+    private final LongSupplier relativeNanoTimeProvider;
+    private final Map<String, PrefixLengths> prefixLengthsByDatabase = ConcurrentCollections.newConcurrentMap();
+    private final LongAdder hitsCount = new LongAdder();
+    private final LongAdder missesCount = new LongAdder();
+    private final LongAdder hitsTimeInNanos = new LongAdder();
+    private final LongAdder missesTimeInNanos = new LongAdder();
 
     // package private for testing
     GeoIpCache(long maxSize) {
+        this(maxSize, false, System::nanoTime);
+    }
+
+    /**
+     * @param maxSize the maximum number of entries, or the maximum estimated size of the entries in bytes if {@code maxSizeInBytes}
+     * @param maxSizeInBytes whether the cache is sized by the estimated size of its entries rather than by their number
+     */
+    GeoIpCache(long maxSize, boolean maxSizeInBytes, LongSupplier relativeNanoTimeProvider) {
         if (maxSize < 0) {
             throw new IllegalArgumentException("geoip max cache size must be 0 or greater");
         }
-        this.cache = CacheBuilder.<CacheKey, AbstractResponse>builder().setMaximumWeight(maxSize).build();
+        CacheBuilder<CacheKey, AbstractResponse> builder = CacheBuilder.<CacheKey, AbstractResponse>builder().setMaximumWeight(maxSize);
+        if (maxSizeInBytes) {
+            builder.weigher((key, response) -> estimateSizeInBytes(response));
+        }
+        this.cache = builder.build();
+        this.relativeNanoTimeProvider = relativeNanoTimeProvider;
     }
 
     @SuppressWarnings("unchecked")
@@ -41,28 +81,55 @@ final class GeoIpCache {
         String databasePath,
         Function<InetAddress, AbstractResponse> retrieveFunction
     ) {
-
+        long startTime = relativeNanoTimeProvider.getAsLong();
         // can't use cache.computeIfAbsent due to the elevated permissions for the jackson (run via the cache loader)
-        CacheKey cacheKey = new CacheKey(ip, databasePath);
         // intentionally non-locking for simplicity...it's OK if we re-put the same key/value in the cache during a race condition.
-        AbstractResponse response = cache.get(cacheKey);
-        if (response == null) {
-            response = retrieveFunction.apply(ip);
-            if (response != null) {
-                cache.put(cacheKey, response);
-            }
+        AbstractResponse response = get(ip, databasePath);
+        if (response != null) {
+            hitsCount.increment();
+            hitsTimeInNanos.add(relativeNanoTimeProvider.getAsLong() - startTime);
+            return (T) response;
         }
+        response = retrieveFunction.apply(ip);
+        if (response != null) {
+            put(ip, databasePath, response);
+        }
+        missesCount.increment();
+        missesTimeInNanos.add(relativeNanoTimeProvider.getAsLong() - startTime);
         return (T) response;
     }
 
-    // only useful for testing
     AbstractResponse get(InetAddress ip, String databasePath) {
-        CacheKey cacheKey = new CacheKey(ip, databasePath);
-        return cache.get(cacheKey);
+        PrefixLengths prefixLengths = prefixLengthsByDatabase.get(databasePath);
+        if (prefixLengths == null) {
+            return null;
+        }
+        byte[] address = ip.getAddress();
+        int prefixLength = prefixLengths.next(address.length, address.length * Byte.SIZE);
+        while (prefixLength >= 0) {
+            AbstractResponse response = cache.get(CacheKey.of(databasePath, address, prefixLength));
+            if (response != null) {
+                return response;
+            }
+            prefixLength = prefixLengths.next(address.length, prefixLength - 1);
+        }
+        return null;
+    }
+
+    private void put(InetAddress ip, String databasePath, AbstractResponse response) {
+        byte[] address = ip.getAddress();
+        Network network = network(response);
+        int prefixLength = address.length * Byte.SIZE;
+        if (network != null && network.getNetworkAddress().getAddress().length == address.length) {
+            prefixLength = Math.max(0, Math.min(prefixLength, network.getPrefixLength()));
+        }
+        prefixLengthsByDatabase.computeIfAbsent(databasePath, path -> new PrefixLengths()).add(address.length, prefixLength);
+        cache.put(CacheKey.of(databasePath, address, prefixLength), response);
     }
 
     public int purgeCacheEntriesForDatabase(Path databaseFile) {
         String databasePath = databaseFile.toString();
+        prefixLengthsByDatabase.remove(databasePath);
         int counter = 0;
         for (CacheKey key : cache.keys()) {
             if (key.databasePath.equals(databasePath)) {
@@ -77,34 +144,99 @@ final class GeoIpCache {
         return cache.count();
     }
 
+    public GeoIpCacheStats getCacheStats() {
+        return new GeoIpCacheStats(
+            cache.count(),
+            hitsCount.sum(),
+            missesCount.sum(),
+            cache.stats().getEvictions(),
+            TimeUnit.NANOSECONDS.toMillis(hitsTimeInNanos.sum()),
+            TimeUnit.NANOSECONDS.toMillis(missesTimeInNanos.sum())
+        );
+    }
+
+    private static Network network(AbstractResponse response) {
+        if (response instanceof AbstractCountryResponse countryResponse) {
+            return countryResponse.getTraits().getNetwork();
+        } else if (response instanceof AsnResponse asnResponse) {
+            return asnResponse.getNetwork();
+        }
+        return null;
+    }
+
+    private static long estimateSizeInBytes(AbstractResponse response) {
+        if (response instanceof CityResponse) {
+            return CITY_RESPONSE_SIZE_IN_BYTES;
+        } else if (response instanceof AsnResponse) {
+            return ASN_RESPONSE_SIZE_IN_BYTES;
+        }
+        return COUNTRY_RESPONSE_SIZE_IN_BYTES;
+    }
+
     /**
-     * The key to use for the cache. Since this cache can span multiple geoip processors that all use different databases, the database
-     * path is needed to be included in the cache key. For example, if we only used the IP address as the key the City and ASN the same
-     * IP may be in both with different values and we need to cache both.
+     * The prefix lengths of the networks that are cached for a database, as a bit set per address family.
      */
-    private static class CacheKey {
+    private static class PrefixLengths {
 
-        private final InetAddress ip;
-        private final String databasePath;
+        private final AtomicLongArray ipv4 = new AtomicLongArray(1);
+        private final AtomicLongArray ipv6 = new AtomicLongArray(3);
 
-        private CacheKey(InetAddress ip, String databasePath) {
-            this.ip = ip;
-            this.databasePath = databasePath;
+        void add(int addressLength, int prefixLength) {
+            AtomicLongArray bits = addressLength == 4 ? ipv4 : ipv6;
+            long bit = 1L << prefixLength;
+            if ((bits.get(prefixLength >> 6) & bit) == 0) {
+                bits.getAndAccumulate(prefixLength >> 6, bit, (current, added) -> current | added);
+            }
         }
 
-        // generated
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            CacheKey cacheKey = (CacheKey) o;
-            return Objects.equals(ip, cacheKey.ip) && Objects.equals(databasePath, cacheKey.databasePath);
+        /**
+         * @return the longest cached prefix length that isn't longer than {@code maxPrefixLength}, or -1 if there is none
+         */
+        int next(int addressLength, int maxPrefixLength) {
+            AtomicLongArray bits = addressLength == 4 ? ipv4 : ipv6;
+            for (int word = maxPrefixLength >> 6; word >= 0; word--) {
+                long value = bits.get(word);
+                if (word == maxPrefixLength >> 6) {
+                    value &= -1L >>> (63 - (maxPrefixLength & 63));
+                }
+                if (value != 0) {
+                    return word * Long.SIZE + 63 - Long.numberOfLeadingZeros(value);
+                }
+            }
+            return -1;
         }
+    }
 
-        // generated
-        @Override
-        public int hashCode() {
-            return Objects.hash(ip, databasePath);
+    /**
+     * The key to use for the cache. Since this cache can span multiple geoip processors that all use different databases, the database
+     * path is needed to be included in the cache key. For example, if we only used the IP address as the key the City and ASN the same
+     * IP may be in both with different values and we need to cache both. The address is masked to the prefix length of the network
+     * that the response was returned for.
+     */
+    private record CacheKey(String databasePath, boolean ipv6, long high, long low, int prefixLength) {
+
+        static CacheKey of(String databasePath, byte[] address, int prefixLength) {
+            if (address.length == 4) {
+                long value = 0;
+                for (byte b : address) {
+                    value = (value << 8) | (b & 0xFFL);
+                }
+                long mask = prefixLength == 0 ? 0 : (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
+                return new CacheKey(databasePath, false, 0, value & mask, prefixLength);
+            }
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < 8; i++) {
+                high = (high << 8) | (address[i] & 0xFFL);
+                low = (low << 8) | (address[i + 8] & 0xFFL);
+            }
+            if (prefixLength <= 64) {
+                high &= prefixLength == 0 ? 0 : -1L << (64 - prefixLength);
+                low = 0;
+            } else {
+                low &= -1L << (128 - prefixLength);
+            }
+            return new CacheKey(databasePath, true, high, low, prefixLength);
         }
     }
 }
@@ -22,6 +22,7 @@ import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.ResourceNotFoundException;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.CheckedBiFunction;
 import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.logging.DeprecationCategory;
 import org.elasticsearch.common.logging.DeprecationLogger;
@@ -114,6 +115,58 @@ public final class GeoIpProcessor extends AbstractProcessor {
 
     @Override
     public IngestDocument execute(IngestDocument ingestDocument) throws IOException {
+        return execute(ingestDocument, isValid, supplier, this::getGeoData);
+    }
+
+    @Override
+    public void executeBatch(List<IngestDocument> ingestDocuments, BatchHandler handler) {
+        // the validity of the database is checked and the database is acquired once for the whole batch, and the ips that several
+        // documents of the batch share are only looked up once
+        final boolean valid = isValid.get();
+        final BatchDatabaseSupplier database = new BatchDatabaseSupplier(supplier);
+        final Map<String, Map<String, Object>> geoDataByIp = new HashMap<>();
+        final CheckedBiFunction<DatabaseReaderLazyLoader, String, Map<String, Object>, IOException> geoDataLookup = (lazyLoader, ip) -> {
+            final Map<String, Object> geoData = geoDataByIp.get(ip);
+            if (geoData != null) {
+                // every document gets its own copy of the geo data
+                return IngestDocument.deepCopyMap(geoData);
+            }
+            final Map<String, Object> newGeoData = lookupGeoData(lazyLoader, ip);
+            geoDataByIp.put(ip, newGeoData);
+            return newGeoData;
+        };
+
+        final IngestDocument[] results = new IngestDocument[ingestDocuments.size()];
+        final Exception[] failures = new Exception[ingestDocuments.size()];
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            try {
+                results[i] = execute(ingestDocuments.get(i), () -> valid, database, geoDataLookup);
+            } catch (Exception e) {
+                failures[i] = e;
+            }
+        }
+        Exception releaseFailure = null;
+        try {
+            database.release();
+        } catch (Exception e) {
+            releaseFailure = e;
+        }
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            if (failures[i] == null && releaseFailure != null) {
+                // like a failure to release the database after looking up a single document
+                handler.accept(i, null, releaseFailure);
+            } else {
+                handler.accept(i, results[i], failures[i]);
+            }
+        }
+    }
+
+    private IngestDocument execute(
+        IngestDocument ingestDocument,
+        Supplier<Boolean> isValid,
+        CheckedSupplier<DatabaseReaderLazyLoader, IOException> supplier,
+        CheckedBiFunction<DatabaseReaderLazyLoader, String, Map<String, Object>, IOException> geoDataLookup
+    ) throws IOException {
         Object ip = ingestDocument.getFieldValue(field, Object.class, ignoreMissing);
 
         if (isValid.get() == false) {
@@ -125,14 +178,14 @@ public final class GeoIpProcessor extends AbstractProcessor {
             throw new IllegalArgumentException("field [" + field + "] is null, cannot extract geoip information.");
         }
 
-        DatabaseReaderLazyLoader lazyLoader = this.supplier.get();
+        DatabaseReaderLazyLoader lazyLoader = supplier.get();
         if (lazyLoader == null) {
             tag(ingestDocument, databaseFile);
             return ingestDocument;
         }
 
         if (ip instanceof String ipString) {
-            Map<String, Object> geoData = getGeoData(lazyLoader, ipString);
+            Map<String, Object> geoData = geoDataLookup.apply(lazyLoader, ipString);
             if (geoData.isEmpty() == false) {
                 ingestDocument.setFieldValue(targetField, geoData);
             }
@@ -143,7 +196,7 @@ public final class GeoIpProcessor extends AbstractProcessor {
                 if (ipAddr instanceof String == false) {
                     throw new IllegalArgumentException("array in field [" + field + "] should only contain strings");
                 }
-                Map<String, Object> geoData = getGeoData(lazyLoader, (String) ipAddr);
+                Map<String, Object> geoData = geoDataLookup.apply(lazyLoader, (String) ipAddr);
                 if (geoData.isEmpty()) {
                     geoDataList.add(null);
                     continue;
@@ -166,26 +219,59 @@ public final class GeoIpProcessor extends AbstractProcessor {
 
     private Map<String, Object> getGeoData(DatabaseReaderLazyLoader lazyLoader, String ip) throws IOException {
         try {
-            final String databaseType = lazyLoader.getDatabaseType();
-            final InetAddress ipAddress = InetAddresses.forString(ip);
-            Map<String, Object> geoData;
-            if (databaseType.endsWith(CITY_DB_SUFFIX)) {
-                geoData = retrieveCityGeoData(lazyLoader, ipAddress);
-            } else if (databaseType.endsWith(COUNTRY_DB_SUFFIX)) {
-                geoData = retrieveCountryGeoData(lazyLoader, ipAddress);
+            return lookupGeoData(lazyLoader, ip);
+        } finally {
+            lazyLoader.postLookup();
+        }
+    }
 
-            } else if (databaseType.endsWith(ASN_DB_SUFFIX)) {
-                geoData = retrieveAsnGeoData(lazyLoader, ipAddress);
+    private Map<String, Object> lookupGeoData(DatabaseReaderLazyLoader lazyLoader, String ip) throws IOException {
+        final String databaseType = lazyLoader.getDatabaseType();
+        final InetAddress ipAddress = InetAddresses.forString(ip);
+        Map<String, Object> geoData;
+        if (databaseType.endsWith(CITY_DB_SUFFIX)) {
+            geoData = retrieveCityGeoData(lazyLoader, ipAddress);
+        } else if (databaseType.endsWith(COUNTRY_DB_SUFFIX)) {
+            geoData = retrieveCountryGeoData(lazyLoader, ipAddress);
 
-            } else {
-                throw new ElasticsearchParseException(
-                    "Unsupported database type [" + lazyLoader.getDatabaseType() + "]",
-                    new IllegalStateException()
-                );
+        } else if (databaseType.endsWith(ASN_DB_SUFFIX)) {
+            geoData = retrieveAsnGeoData(lazyLoader, ipAddress);
+
+        } else {
+            throw new ElasticsearchParseException(
+                "Unsupported database type [" + lazyLoader.getDatabaseType() + "]",
+                new IllegalStateException()
+            );
+        }
+        return geoData;
+    }
+
+    /**
+     * Acquires the database on the first lookup of a batch, and holds on to it until the whole batch was looked up.
+     */
+    private static final class BatchDatabaseSupplier implements CheckedSupplier<DatabaseReaderLazyLoader, IOException> {
+
+        private final CheckedSupplier<DatabaseReaderLazyLoader, IOException> supplier;
+        private boolean acquired;
+        private DatabaseReaderLazyLoader lazyLoader;
+
+        BatchDatabaseSupplier(CheckedSupplier<DatabaseReaderLazyLoader, IOException> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public DatabaseReaderLazyLoader get() throws IOException {
+            if (acquired == false) {
+                lazyLoader = supplier.get();
+                acquired = true;
+            }
+            return lazyLoader;
+        }
+
+        void release() throws IOException {
+            if (lazyLoader != null) {
+                lazyLoader.postLookup();
             }
-            return geoData;
-        } finally {
-            lazyLoader.postLookup();
         }
     }
 
@@ -24,6 +24,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
 import org.elasticsearch.common.settings.SettingsModule;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.indices.SystemIndexDescriptor;
@@ -72,6 +73,12 @@ import static org.elasticsearch.xcontent.XContentFactory.jsonBuilder;
 
 public class IngestGeoIpPlugin extends Plugin implements IngestPlugin, SystemIndexPlugin, Closeable, PersistentTaskPlugin, ActionPlugin {
     public static final Setting<Long> CACHE_SIZE = Setting.longSetting("ingest.geoip.cache_size", 1000, 0, Setting.Property.NodeScope);
+    // sizes the cache by the estimated size of the cached responses instead of their number, if set
+    public static final Setting<ByteSizeValue> CACHE_MEMORY_SIZE = Setting.byteSizeSetting(
+        "ingest.geoip.cache_memory_size",
+        ByteSizeValue.MINUS_ONE,
+        Setting.Property.NodeScope
+    );
 
     static Set<String> DEFAULT_DATABASE_FILENAMES = Set.of("GeoLite2-ASN.mmdb", "GeoLite2-City.mmdb", "GeoLite2-Country.mmdb");
 
@@ -83,6 +90,7 @@ public class IngestGeoIpPlugin extends Plugin implements IngestPlugin, SystemInd
     public List<Setting<?>> getSettings() {
         return Arrays.asList(
             CACHE_SIZE,
+            CACHE_MEMORY_SIZE,
             GeoIpDownloader.ENDPOINT_SETTING,
             GeoIpDownloader.POLL_INTERVAL_SETTING,
             GeoIpDownloaderTaskExecutor.ENABLED_SETTING
@@ -94,7 +102,10 @@ public class IngestGeoIpPlugin extends Plugin implements IngestPlugin, SystemInd
         ingestService.set(parameters.ingestService);
 
         long cacheSize = CACHE_SIZE.get(parameters.env.settings());
-        GeoIpCache geoIpCache = new GeoIpCache(cacheSize);
+        long cacheMemorySize = CACHE_MEMORY_SIZE.get(parameters.env.settings()).getBytes();
+        GeoIpCache geoIpCache = cacheMemorySize >= 0
+            ? new GeoIpCache(cacheMemorySize, true, System::nanoTime)
+            : new GeoIpCache(cacheSize, false, System::nanoTime);
         DatabaseNodeService registry = new DatabaseNodeService(parameters.env, parameters.client, geoIpCache, parameters.genericExecutor);
         databaseRegistry.set(registry);
         return Map.of(GeoIpProcessor.TYPE, new GeoIpProcessor.Factory(registry, parameters.ingestService.getClusterService()));
@@ -0,0 +1,121 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.ingest.geoip.stats;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Statistics of the geoip result cache of a node. The times are the total time spent looking up addresses that were found in the cache
+ * and addresses that had to be looked up in a database, respectively.
+ */
+public class GeoIpCacheStats implements Writeable, ToXContentFragment {
+
+    private final long count;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long hitsTimeInMillis;
+    private final long missesTimeInMillis;
+
+    public GeoIpCacheStats(long count, long hits, long misses, long evictions, long hitsTimeInMillis, long missesTimeInMillis) {
+        this.count = count;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.hitsTimeInMillis = hitsTimeInMillis;
+        this.missesTimeInMillis = missesTimeInMillis;
+    }
+
+    public GeoIpCacheStats(StreamInput in) throws IOException {
+        count = in.readVLong();
+        hits = in.readVLong();
+        misses = in.readVLong();
+        evictions = in.readVLong();
+        hitsTimeInMillis = in.readVLong();
+        missesTimeInMillis = in.readVLong();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getHitsTimeInMillis() {
+        return hitsTimeInMillis;
+    }
+
+    public long getMissesTimeInMillis() {
+        return missesTimeInMillis;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(count);
+        out.writeVLong(hits);
+        out.writeVLong(misses);
+        out.writeVLong(evictions);
+        out.writeVLong(hitsTimeInMillis);
+        out.writeVLong(missesTimeInMillis);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("cache_stats");
+        builder.field("count", count);
+        builder.field("hits", hits);
+        builder.field("misses", misses);
+        builder.field("evictions", evictions);
+        builder.field("hits_time_in_millis", hitsTimeInMillis);
+        builder.field("misses_time_in_millis", missesTimeInMillis);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GeoIpCacheStats that = (GeoIpCacheStats) o;
+        return count == that.count
+            && hits == that.hits
+            && misses == that.misses
+            && evictions == that.evictions
+            && hitsTimeInMillis == that.hitsTimeInMillis
+            && missesTimeInMillis == that.missesTimeInMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, hits, misses, evictions, hitsTimeInMillis, missesTimeInMillis);
+    }
+
+    @Override
+    public String toString() {
+        return Strings.toString(this);
+    }
+}
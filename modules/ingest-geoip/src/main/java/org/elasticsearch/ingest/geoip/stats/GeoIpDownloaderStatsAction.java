@@ -133,6 +133,9 @@ public class GeoIpDownloaderStatsAction extends ActionType<GeoIpDownloaderStatsA
                 if (response.configDatabases.isEmpty() == false) {
                     builder.array("config_databases", response.configDatabases.toArray(String[]::new));
                 }
+                if (response.cacheStats != null) {
+                    response.cacheStats.toXContent(builder, params);
+                }
                 builder.endObject();
             }
             builder.endObject();
@@ -160,6 +163,7 @@ public class GeoIpDownloaderStatsAction extends ActionType<GeoIpDownloaderStatsA
         private final Set<String> databases;
         private final Set<String> filesInTemp;
         private final Set<String> configDatabases;
+        private final GeoIpCacheStats cacheStats;
 
         protected NodeResponse(StreamInput in) throws IOException {
             super(in);
@@ -167,6 +171,7 @@ public class GeoIpDownloaderStatsAction extends ActionType<GeoIpDownloaderStatsA
             databases = in.readSet(StreamInput::readString);
             filesInTemp = in.readSet(StreamInput::readString);
             configDatabases = in.getVersion().onOrAfter(Version.V_8_0_0) ? in.readSet(StreamInput::readString) : null;
+            cacheStats = in.getVersion().onOrAfter(Version.V_8_1_0) ? in.readOptionalWriteable(GeoIpCacheStats::new) : null;
         }
 
         protected NodeResponse(
@@ -174,13 +179,15 @@ public class GeoIpDownloaderStatsAction extends ActionType<GeoIpDownloaderStatsA
             GeoIpDownloaderStats stats,
             Set<String> databases,
             Set<String> filesInTemp,
-            Set<String> configDatabases
+            Set<String> configDatabases,
+            GeoIpCacheStats cacheStats
         ) {
             super(node);
             this.stats = stats;
             this.databases = databases;
             this.filesInTemp = filesInTemp;
             this.configDatabases = configDatabases;
+            this.cacheStats = cacheStats;
         }
 
         public GeoIpDownloaderStats getStats() {
@@ -199,6 +206,10 @@ public class GeoIpDownloaderStatsAction extends ActionType<GeoIpDownloaderStatsA
             return configDatabases;
         }
 
+        public GeoIpCacheStats getCacheStats() {
+            return cacheStats;
+        }
+
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
@@ -211,6 +222,9 @@ public class GeoIpDownloaderStatsAction extends ActionType<GeoIpDownloaderStatsA
             if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
                 out.writeCollection(configDatabases, StreamOutput::writeString);
             }
+            if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+                out.writeOptionalWriteable(cacheStats);
+            }
         }
 
         @Override
@@ -221,12 +235,13 @@ public class GeoIpDownloaderStatsAction extends ActionType<GeoIpDownloaderStatsA
             return stats.equals(that.stats)
                 && databases.equals(that.databases)
                 && filesInTemp.equals(that.filesInTemp)
-                && Objects.equals(configDatabases, that.configDatabases);
+                && Objects.equals(configDatabases, that.configDatabases)
+                && Objects.equals(cacheStats, that.cacheStats);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(stats, databases, filesInTemp, configDatabases);
+            return Objects.hash(stats, databases, filesInTemp, configDatabases, cacheStats);
         }
     }
 }
@@ -8,12 +8,21 @@
 
 package org.elasticsearch.ingest.geoip;
 
+import com.maxmind.db.Network;
 import com.maxmind.geoip2.model.AbstractResponse;
+import com.maxmind.geoip2.model.AsnResponse;
 
 import org.elasticsearch.common.network.InetAddresses;
+import org.elasticsearch.core.PathUtils;
+import org.elasticsearch.ingest.geoip.stats.GeoIpCacheStats;
 import org.elasticsearch.test.ESTestCase;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class GeoIpCacheTests extends ESTestCase {
 
@@ -64,4 +73,74 @@ public class GeoIpCacheTests extends ESTestCase {
         IllegalArgumentException ex = expectThrows(IllegalArgumentException.class, () -> new GeoIpCache(-1));
         assertEquals("geoip max cache size must be 0 or greater", ex.getMessage());
     }
+
+    public void testCachesResultsByNetwork() {
+        GeoIpCache cache = new GeoIpCache(10);
+        AsnResponse ipv4Response = asnResponse("10.1.0.0", 16);
+        AsnResponse ipv6Response = asnResponse("2001:db8::", 32);
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertSame(ipv4Response, cache.putIfAbsent(InetAddresses.forString("10.1.2.3"), "path/to/db", ip -> {
+            lookups.incrementAndGet();
+            return ipv4Response;
+        }));
+        assertSame(ipv6Response, cache.putIfAbsent(InetAddresses.forString("2001:db8::1"), "path/to/db", ip -> {
+            lookups.incrementAndGet();
+            return ipv6Response;
+        }));
+        assertEquals(2, lookups.get());
+        assertEquals(2, cache.count());
+
+        // every address in the network is answered by the cached entry
+        assertSame(ipv4Response, cache.get(InetAddresses.forString("10.1.255.254"), "path/to/db"));
+        assertSame(ipv4Response, cache.get(InetAddresses.forString("10.1.0.0"), "path/to/db"));
+        assertSame(ipv6Response, cache.get(InetAddresses.forString("2001:db8:ffff::1"), "path/to/db"));
+        assertNull(cache.get(InetAddresses.forString("10.2.0.1"), "path/to/db"));
+        assertNull(cache.get(InetAddresses.forString("2001:db9::1"), "path/to/db"));
+        assertNull(cache.get(InetAddresses.forString("10.1.2.3"), "path/to/other_db"));
+
+        // a more specific network next to a cached one
+        AsnResponse narrowResponse = asnResponse("10.2.3.0", 24);
+        assertSame(narrowResponse, cache.putIfAbsent(InetAddresses.forString("10.2.3.4"), "path/to/db", ip -> narrowResponse));
+        assertSame(narrowResponse, cache.get(InetAddresses.forString("10.2.3.200"), "path/to/db"));
+        assertSame(ipv4Response, cache.get(InetAddresses.forString("10.1.3.200"), "path/to/db"));
+        assertNull(cache.get(InetAddresses.forString("10.2.4.1"), "path/to/db"));
+
+        assertEquals(3, cache.purgeCacheEntriesForDatabase(PathUtils.get("path/to/db")));
+        assertNull(cache.get(InetAddresses.forString("10.1.2.3"), "path/to/db"));
+        assertEquals(0, cache.count());
+    }
+
+    public void testMaxSizeInBytes() {
+        GeoIpCache cache = new GeoIpCache(GeoIpCache.ASN_RESPONSE_SIZE_IN_BYTES * 2, true, System::nanoTime);
+        for (int i = 0; i < 3; i++) {
+            AsnResponse response = asnResponse("10." + i + ".0.0", 16);
+            assertSame(response, cache.putIfAbsent(InetAddresses.forString("10." + i + ".0.1"), "path/to/db", ip -> response));
+        }
+        assertEquals(2, cache.count());
+        assertEquals(1, cache.getCacheStats().getEvictions());
+    }
+
+    public void testCacheStats() {
+        AtomicLong time = new AtomicLong();
+        GeoIpCache cache = new GeoIpCache(10, false, time::get);
+        AsnResponse response = asnResponse("10.1.0.0", 16);
+
+        cache.putIfAbsent(InetAddresses.forString("10.1.2.3"), "path/to/db", ip -> {
+            time.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+            return response;
+        });
+        cache.putIfAbsent(InetAddresses.forString("10.1.2.4"), "path/to/db", ip -> { throw new AssertionError("should be cached"); });
+        cache.putIfAbsent(InetAddresses.forString("10.2.0.1"), "path/to/db", ip -> {
+            time.addAndGet(TimeUnit.MILLISECONDS.toNanos(3));
+            return null;
+        });
+        assertEquals(new GeoIpCacheStats(1, 1, 2, 0, 0, 8), cache.getCacheStats());
+    }
+
+    private static AsnResponse asnResponse(String networkAddress, int prefixLength) {
+        AsnResponse response = mock(AsnResponse.class);
+        when(response.getNetwork()).thenReturn(new Network(InetAddresses.forString(networkAddress), prefixLength));
+        return response;
+    }
 }
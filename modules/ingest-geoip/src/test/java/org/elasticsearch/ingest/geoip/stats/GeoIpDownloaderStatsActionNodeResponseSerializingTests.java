@@ -38,7 +38,17 @@ public class GeoIpDownloaderStatsActionNodeResponseSerializingTests extends Abst
             GeoIpDownloaderStatsSerializingTests.createRandomInstance(),
             databases,
             files,
-            configDatabases
+            configDatabases,
+            randomBoolean()
+                ? null
+                : new GeoIpCacheStats(
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong()
+                )
         );
     }
 }
@@ -34,6 +34,12 @@ public class IngestUserAgentPlugin extends Plugin implements IngestPlugin {
         Setting.Property.NodeScope
     );
 
+    private final Setting<Boolean> LITERAL_PREFILTER_SETTING = Setting.boolSetting(
+        "ingest.user_agent.literal_prefilter.enabled",
+        false,
+        Setting.Property.NodeScope
+    );
+
     static final String DEFAULT_PARSER_NAME = "_default_";
 
     @Override
@@ -47,9 +53,10 @@ public class IngestUserAgentPlugin extends Plugin implements IngestPlugin {
         }
 
         long cacheSize = CACHE_SIZE_SETTING.get(parameters.env.settings());
+        boolean literalPrefilter = LITERAL_PREFILTER_SETTING.get(parameters.env.settings());
         Map<String, UserAgentParser> userAgentParsers;
         try {
-            userAgentParsers = createUserAgentParsers(userAgentConfigDirectory, new UserAgentCache(cacheSize));
+            userAgentParsers = createUserAgentParsers(userAgentConfigDirectory, new UserAgentCache(cacheSize), literalPrefilter);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -57,13 +64,22 @@ public class IngestUserAgentPlugin extends Plugin implements IngestPlugin {
     }
 
     static Map<String, UserAgentParser> createUserAgentParsers(Path userAgentConfigDirectory, UserAgentCache cache) throws IOException {
+        return createUserAgentParsers(userAgentConfigDirectory, cache, false);
+    }
+
+    static Map<String, UserAgentParser> createUserAgentParsers(
+        Path userAgentConfigDirectory,
+        UserAgentCache cache,
+        boolean literalPrefilter
+    ) throws IOException {
         Map<String, UserAgentParser> userAgentParsers = new HashMap<>();
 
         UserAgentParser defaultParser = new UserAgentParser(
             DEFAULT_PARSER_NAME,
             IngestUserAgentPlugin.class.getResourceAsStream("/regexes.yml"),
             IngestUserAgentPlugin.class.getResourceAsStream("/device_type_regexes.yml"),
-            cache
+            cache,
+            literalPrefilter
         );
         userAgentParsers.put(DEFAULT_PARSER_NAME, defaultParser);
 
@@ -84,7 +100,10 @@ public class IngestUserAgentPlugin extends Plugin implements IngestPlugin {
                         InputStream regexStream = Files.newInputStream(path, StandardOpenOption.READ);
                         InputStream deviceTypeRegexStream = IngestUserAgentPlugin.class.getResourceAsStream("/device_type_regexes.yml")
                     ) {
-                        userAgentParsers.put(parserName, new UserAgentParser(parserName, regexStream, deviceTypeRegexStream, cache));
+                        userAgentParsers.put(
+                            parserName,
+                            new UserAgentParser(parserName, regexStream, deviceTypeRegexStream, cache, literalPrefilter)
+                        );
                     }
                 }
             }
@@ -95,6 +114,6 @@ public class IngestUserAgentPlugin extends Plugin implements IngestPlugin {
 
     @Override
     public List<Setting<?>> getSettings() {
-        return Collections.singletonList(CACHE_SIZE_SETTING);
+        return List.of(CACHE_SIZE_SETTING, LITERAL_PREFILTER_SETTING);
     }
 }
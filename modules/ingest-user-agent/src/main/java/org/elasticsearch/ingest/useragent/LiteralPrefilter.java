@@ -0,0 +1,455 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.ingest.useragent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds the regular expressions that can possibly match a user agent string, so that a parser only has to evaluate those. Each
+ * expression is analyzed for a set of literals of which every match has to contain at least one, and all literals of all expressions
+ * are searched for at once with an Aho-Corasick automaton. Expressions without such literals are always candidates.
+ *
+ * Literals and the searched text are lower cased character by character, which keeps the prefilter exact for expressions that match
+ * case insensitively.
+ */
+final class LiteralPrefilter {
+
+    // an alternation with more alternatives than this doesn't make for a useful prefilter
+    static final int MAX_ALTERNATIVES = 256;
+
+    private final long[] unfiltered;
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] failures;
+    private final int[][] outputs;
+
+    /**
+     * @param regexes the expressions to prefilter, a candidate set has a bit for each of them in the same order
+     */
+    LiteralPrefilter(List<String> regexes) {
+        unfiltered = new long[(regexes.size() + Long.SIZE - 1) / Long.SIZE];
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Set<Integer>> matches = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        matches.add(new HashSet<>());
+        for (int i = 0; i < regexes.size(); i++) {
+            Set<String> literals = requiredLiterals(regexes.get(i));
+            if (literals == null) {
+                unfiltered[i / Long.SIZE] |= 1L << i;
+                continue;
+            }
+            for (String literal : literals) {
+                int node = 0;
+                for (int j = 0; j < literal.length(); j++) {
+                    Integer next = trie.get(node).get(literal.charAt(j));
+                    if (next == null) {
+                        next = trie.size();
+                        trie.add(new TreeMap<>());
+                        matches.add(new HashSet<>());
+                        trie.get(node).put(literal.charAt(j), next);
+                    }
+                    node = next;
+                }
+                matches.get(node).add(i);
+            }
+        }
+
+        labels = new char[trie.size()][];
+        targets = new int[trie.size()][];
+        for (int node = 0; node < trie.size(); node++) {
+            Map<Character, Integer> children = trie.get(node);
+            labels[node] = new char[children.size()];
+            targets[node] = new int[children.size()];
+            int j = 0;
+            for (Map.Entry<Character, Integer> child : children.entrySet()) {
+                labels[node][j] = child.getKey();
+                targets[node][j] = child.getValue();
+                j++;
+            }
+        }
+
+        outputs = new int[trie.size()][];
+        for (int node = 0; node < trie.size(); node++) {
+            outputs[node] = matches.get(node).stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+
+        // breadth first, so that the failure link of a node is known before the node's children are visited
+        failures = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (queue.isEmpty() == false) {
+            int node = queue.poll();
+            for (int j = 0; j < labels[node].length; j++) {
+                int child = targets[node][j];
+                int failure = failures[node];
+                int next = transition(failure, labels[node][j]);
+                while (next < 0 && failure != 0) {
+                    failure = failures[failure];
+                    next = transition(failure, labels[node][j]);
+                }
+                failures[child] = next < 0 ? 0 : next;
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @return the candidate expressions for the given text, as a bit set
+     */
+    long[] candidates(String text) {
+        long[] candidates = unfiltered.clone();
+        // the literals ending at a node are those of the node and of the nodes on its failure chain, which only need to be added once
+        long[] visited = new long[(failures.length + Long.SIZE - 1) / Long.SIZE];
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = transition(node, c);
+            while (next < 0 && node != 0) {
+                node = failures[node];
+                next = transition(node, c);
+            }
+            node = next < 0 ? 0 : next;
+            for (int n = node; n != 0 && isCandidate(visited, n) == false; n = failures[n]) {
+                visited[n / Long.SIZE] |= 1L << n;
+                for (int id : outputs[n]) {
+                    candidates[id / Long.SIZE] |= 1L << id;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    static boolean isCandidate(long[] candidates, int id) {
+        return (candidates[id / Long.SIZE] & (1L << id)) != 0;
+    }
+
+    private int transition(int node, char c) {
+        int index = Arrays.binarySearch(labels[node], c);
+        return index < 0 ? -1 : targets[node][index];
+    }
+
+    /**
+     * Returns lower cased literals of which every match of the expression contains at least one, or {@code null} if the expression
+     * has no such literals or uses syntax that isn't analyzed.
+     */
+    static Set<String> requiredLiterals(String regex) {
+        try {
+            Extractor extractor = new Extractor(regex);
+            Info info = extractor.alternation();
+            if (extractor.pos != regex.length()) {
+                return null;
+            }
+            Set<String> literals = info.required();
+            return literals == null || literals.isEmpty() ? null : literals;
+        } catch (UnsupportedOperationException | IndexOutOfBoundsException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * What is known about the strings that a part of an expression matches: either the part always matches exactly the same string,
+     * or every match contains one of the required literals, or nothing is known ({@code null}).
+     */
+    private record Info(String exact, Set<String> literals) {
+
+        static final Info UNKNOWN = new Info(null, null);
+        static final Info EMPTY = new Info("", null);
+
+        Set<String> required() {
+            if (exact != null) {
+                return exact.isEmpty() ? null : Set.of(exact);
+            }
+            return literals;
+        }
+    }
+
+    private static final class Extractor {
+
+        private final String regex;
+        private int pos;
+
+        Extractor(String regex) {
+            this.regex = regex;
+        }
+
+        Info alternation() {
+            List<Info> alternatives = new ArrayList<>();
+            alternatives.add(concatenation());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                alternatives.add(concatenation());
+            }
+            if (alternatives.size() == 1) {
+                return alternatives.get(0);
+            }
+            Set<String> literals = new HashSet<>();
+            for (Info alternative : alternatives) {
+                Set<String> required = alternative.required();
+                if (required == null) {
+                    return Info.UNKNOWN;
+                }
+                literals.addAll(required);
+            }
+            return literals.size() > MAX_ALTERNATIVES ? Info.UNKNOWN : new Info(null, literals);
+        }
+
+        Info concatenation() {
+            StringBuilder run = new StringBuilder();
+            boolean exact = true;
+            Set<String> best = null;
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                Info info = quantified();
+                if (info.exact() != null) {
+                    run.append(info.exact());
+                } else {
+                    exact = false;
+                    best = better(best, run.isEmpty() ? null : Set.of(run.toString()));
+                    best = better(best, info.literals());
+                    run.setLength(0);
+                }
+            }
+            if (exact) {
+                return new Info(run.toString(), null);
+            }
+            return new Info(null, better(best, run.isEmpty() ? null : Set.of(run.toString())));
+        }
+
+        Info quantified() {
+            Info atom = atom();
+            if (pos >= regex.length()) {
+                return atom;
+            }
+            int min;
+            int max;
+            switch (regex.charAt(pos)) {
+                case '?' -> {
+                    min = 0;
+                    max = 1;
+                    pos++;
+                }
+                case '*' -> {
+                    min = 0;
+                    max = -1;
+                    pos++;
+                }
+                case '+' -> {
+                    min = 1;
+                    max = -1;
+                    pos++;
+                }
+                case '{' -> {
+                    int end = regex.indexOf('}', pos);
+                    String[] bounds = regex.substring(pos + 1, end).split(",", -1);
+                    min = Integer.parseInt(bounds[0].trim());
+                    max = bounds.length == 1 ? min : bounds[1].isBlank() ? -1 : Integer.parseInt(bounds[1].trim());
+                    pos = end + 1;
+                }
+                default -> {
+                    return atom;
+                }
+            }
+            // lazy and possessive quantifiers match the same strings
+            if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+                pos++;
+            }
+            if (min == 0) {
+                return Info.UNKNOWN;
+            }
+            if (atom.exact() != null && min == max) {
+                return new Info(atom.exact().repeat(min), null);
+            }
+            return new Info(null, atom.required());
+        }
+
+        Info atom() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '(':
+                    return group();
+                case '[': {
+                    int start = pos;
+                    skipCharacterClass();
+                    return characterClass(regex.substring(start, pos - 1));
+                }
+                case '.':
+                    return Info.UNKNOWN;
+                case '^':
+                case '$':
+                    return Info.EMPTY;
+                case '\\':
+                    return escape();
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw new UnsupportedOperationException("dangling quantifier");
+                default:
+                    return literal(c);
+            }
+        }
+
+        Info group() {
+            Info info;
+            if (regex.charAt(pos) != '?') {
+                info = alternation();
+            } else {
+                pos++;
+                char kind = regex.charAt(pos);
+                if (kind == ':' || kind == '>') {
+                    pos++;
+                    info = alternation();
+                } else if (kind == '=' || kind == '!') {
+                    pos++;
+                    alternation();
+                    info = Info.EMPTY;
+                } else if (kind == '<' && (regex.charAt(pos + 1) == '=' || regex.charAt(pos + 1) == '!')) {
+                    pos += 2;
+                    alternation();
+                    info = Info.EMPTY;
+                } else if (kind == '<') {
+                    pos = regex.indexOf('>', pos) + 1;
+                    info = alternation();
+                } else {
+                    // comments and unicode case folding would change what the literals match, so only these flags are supported
+                    int start = pos;
+                    while ("idms-".indexOf(regex.charAt(pos)) >= 0) {
+                        pos++;
+                    }
+                    if (pos == start) {
+                        throw new UnsupportedOperationException("unsupported group");
+                    }
+                    if (regex.charAt(pos) == ')') {
+                        pos++;
+                        return Info.EMPTY;
+                    } else if (regex.charAt(pos) == ':') {
+                        pos++;
+                        info = alternation();
+                    } else {
+                        throw new UnsupportedOperationException("unsupported flags");
+                    }
+                }
+            }
+            if (regex.charAt(pos) != ')') {
+                throw new UnsupportedOperationException("unbalanced group");
+            }
+            pos++;
+            return info;
+        }
+
+        void skipCharacterClass() {
+            if (regex.charAt(pos) == '^') {
+                pos++;
+            }
+            // a closing bracket right at the start of a class is a member of the class
+            if (regex.charAt(pos) == ']') {
+                pos++;
+            }
+            while (true) {
+                char c = regex.charAt(pos++);
+                if (c == '\\') {
+                    if (regex.charAt(pos) == 'Q') {
+                        throw new UnsupportedOperationException("quoted class members");
+                    }
+                    pos++;
+                } else if (c == '[') {
+                    skipCharacterClass();
+                } else if (c == ']') {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Classes like {@code [Ss]} that only match the cases of a single character are literals once lower cased.
+         */
+        private static Info characterClass(String members) {
+            if (members.isEmpty() == false
+                && members.chars().allMatch(Character::isLetterOrDigit)
+                && members.chars().map(Character::toLowerCase).distinct().count() == 1) {
+                return literal(members.charAt(0));
+            }
+            return Info.UNKNOWN;
+        }
+
+        Info escape() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case 'd', 'D', 'w', 'W', 's', 'S', 'h', 'H', 'v', 'V', 'R', 'X':
+                    return Info.UNKNOWN;
+                case 'p', 'P':
+                    if (regex.charAt(pos) == '{') {
+                        pos = regex.indexOf('}', pos) + 1;
+                    } else {
+                        pos++;
+                    }
+                    return Info.UNKNOWN;
+                case 'b', 'B', 'A', 'z', 'Z', 'G':
+                    return Info.EMPTY;
+                case 't':
+                    return literal('\t');
+                case 'n':
+                    return literal('\n');
+                case 'r':
+                    return literal('\r');
+                case 'f':
+                    return literal('\f');
+                case 'Q': {
+                    int end = regex.indexOf("\\E", pos);
+                    String quoted = end < 0 ? regex.substring(pos) : regex.substring(pos, end);
+                    pos = end < 0 ? regex.length() : end + 2;
+                    return new Info(lowerCase(quoted), null);
+                }
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        // back references, octal, hex and unicode escapes, control characters
+                        throw new UnsupportedOperationException("unsupported escape");
+                    }
+                    return literal(c);
+            }
+        }
+
+        private static Info literal(char c) {
+            return new Info(String.valueOf(Character.toLowerCase(c)), null);
+        }
+
+        private static String lowerCase(String s) {
+            char[] chars = s.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(chars[i]);
+            }
+            return new String(chars);
+        }
+
+        /**
+         * Prefers the literals whose shortest literal is longest, as they are the least likely to occur by chance.
+         */
+        private static Set<String> better(Set<String> a, Set<String> b) {
+            if (a == null) {
+                return b;
+            } else if (b == null) {
+                return a;
+            }
+            return shortest(b) > shortest(a) ? b : a;
+        }
+
+        private static int shortest(Set<String> literals) {
+            return literals.stream().mapToInt(String::length).min().orElse(0);
+        }
+    }
+}
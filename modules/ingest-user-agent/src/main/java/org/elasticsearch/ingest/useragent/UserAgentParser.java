@@ -32,8 +32,23 @@ final class UserAgentParser {
     private final List<UserAgentSubpattern> osPatterns = new ArrayList<>();
     private final List<UserAgentSubpattern> devicePatterns = new ArrayList<>();
     private final String name;
+    private final LiteralPrefilter prefilter;
 
     UserAgentParser(String name, InputStream regexStream, InputStream deviceTypeRegexStream, UserAgentCache cache) {
+        this(name, regexStream, deviceTypeRegexStream, cache, false);
+    }
+
+    /**
+     * @param literalPrefilter whether to only evaluate the expressions that contain a literal that the user agent contains, see
+     *                         {@link LiteralPrefilter}
+     */
+    UserAgentParser(
+        String name,
+        InputStream regexStream,
+        InputStream deviceTypeRegexStream,
+        UserAgentCache cache,
+        boolean literalPrefilter
+    ) {
         this.name = name;
         this.cache = cache;
 
@@ -45,6 +60,18 @@ final class UserAgentParser {
         } catch (IOException e) {
             throw new ElasticsearchParseException("error parsing regular expression file", e);
         }
+
+        if (literalPrefilter) {
+            List<String> regexes = new ArrayList<>();
+            for (List<UserAgentSubpattern> patterns : List.of(uaPatterns, osPatterns, devicePatterns)) {
+                for (UserAgentSubpattern pattern : patterns) {
+                    regexes.add(pattern.pattern.pattern());
+                }
+            }
+            this.prefilter = new LiteralPrefilter(regexes);
+        } else {
+            this.prefilter = null;
+        }
     }
 
     private void init(InputStream regexStream) throws IOException {
@@ -178,9 +205,19 @@ final class UserAgentParser {
         Details details = cache.get(name, agentString);
 
         if (details == null) {
-            VersionedName userAgent = findMatch(uaPatterns, agentString);
-            VersionedName operatingSystem = findMatch(osPatterns, agentString);
-            VersionedName device = findMatch(devicePatterns, agentString);
+            VersionedName userAgent;
+            VersionedName operatingSystem;
+            VersionedName device;
+            if (prefilter != null) {
+                long[] candidates = prefilter.candidates(agentString);
+                userAgent = findMatch(uaPatterns, agentString, candidates, 0);
+                operatingSystem = findMatch(osPatterns, agentString, candidates, uaPatterns.size());
+                device = findMatch(devicePatterns, agentString, candidates, uaPatterns.size() + osPatterns.size());
+            } else {
+                userAgent = findMatch(uaPatterns, agentString);
+                operatingSystem = findMatch(osPatterns, agentString);
+                device = findMatch(devicePatterns, agentString);
+            }
             String deviceType = extractDeviceType ? deviceTypeParser.findDeviceType(agentString, userAgent, operatingSystem, device) : null;
             details = new Details(userAgent, operatingSystem, device, deviceType);
             cache.put(name, agentString, details);
@@ -202,6 +239,19 @@ final class UserAgentParser {
         return null;
     }
 
+    private VersionedName findMatch(List<UserAgentSubpattern> possiblePatterns, String agentString, long[] candidates, int offset) {
+        for (int i = 0; i < possiblePatterns.size(); i++) {
+            if (LiteralPrefilter.isCandidate(candidates, offset + i)) {
+                VersionedName versionedName = possiblePatterns.get(i).match(agentString);
+                if (versionedName != null) {
+                    return versionedName;
+                }
+            }
+        }
+
+        return null;
+    }
+
     static final class Details {
         public final VersionedName userAgent;
         public final VersionedName operatingSystem;
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import static org.elasticsearch.ingest.ConfigurationUtils.newConfigurationException;
 import static org.elasticsearch.ingest.ConfigurationUtils.readBooleanProperty;
@@ -70,6 +71,30 @@ public class UserAgentProcessor extends AbstractProcessor {
 
     @Override
     public IngestDocument execute(IngestDocument ingestDocument) {
+        return execute(ingestDocument, userAgent -> parser.parse(userAgent, extractDeviceType));
+    }
+
+    @Override
+    public void executeBatch(List<IngestDocument> ingestDocuments, BatchHandler handler) {
+        // the documents of a batch often share user agents, which are only parsed once per batch
+        final Map<String, Details> detailsByUserAgent = new HashMap<>();
+        final Function<String, Details> parse = userAgent -> detailsByUserAgent.computeIfAbsent(
+            userAgent,
+            key -> parser.parse(key, extractDeviceType)
+        );
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            final IngestDocument result;
+            try {
+                result = execute(ingestDocuments.get(i), parse);
+            } catch (Exception e) {
+                handler.accept(i, null, e);
+                continue;
+            }
+            handler.accept(i, result, null);
+        }
+    }
+
+    private IngestDocument execute(IngestDocument ingestDocument, Function<String, Details> parse) {
         String userAgent = ingestDocument.getFieldValue(field, String.class, ignoreMissing);
 
         if (userAgent == null && ignoreMissing) {
@@ -78,7 +103,7 @@ public class UserAgentProcessor extends AbstractProcessor {
             throw new IllegalArgumentException("field [" + field + "] is null, cannot parse user-agent.");
         }
 
-        Details uaClient = parser.parse(userAgent, extractDeviceType);
+        Details uaClient = parse.apply(userAgent);
 
         Map<String, Object> uaDetails = new HashMap<>();
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.ingest.useragent;
+
+import org.elasticsearch.ingest.useragent.UserAgentParser.Details;
+import org.elasticsearch.ingest.useragent.UserAgentParser.VersionedName;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class LiteralPrefilterTests extends ESTestCase {
+
+    private static final List<String> USER_AGENTS = List.of(
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36",
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36 "
+            + "Edg/96.0.1054.62",
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:95.0) Gecko/20100101 Firefox/95.0",
+        "Mozilla/5.0 (Windows NT 6.1; WOW64; Trident/7.0; rv:11.0) like Gecko",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/15.2 Safari/605.1.15",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10.15; rv:95.0) Gecko/20100101 Firefox/95.0",
+        "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36",
+        "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:95.0) Gecko/20100101 Firefox/95.0",
+        "Mozilla/5.0 (X11; CrOS x86_64 14268.67.0) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.111 Safari/537.36",
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36 "
+            + "OPR/82.0.4227.43",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 15_2 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/15.2 Mobile/15E148 "
+            + "Safari/604.1",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 15_2 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) CriOS/96.0.4664.116 "
+            + "Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (iPad; CPU OS 15_2 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/15.2 Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 14_8 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Mobile/15E148 "
+            + "[FBAN/FBIOS;FBDV/iPhone12,1;FBMD/iPhone;FBSN/iOS;FBSV/14.8;FBSS/2;FBID/phone;FBLC/en_US;FBOP/5]",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 15_1 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Mobile/15E148 Instagram "
+            + "216.0.0.12.135 (iPhone13,2; iOS 15_1; en_US; en-US; scale=3.00; 1170x2532; 338132060)",
+        "Mozilla/5.0 (Linux; Android 12; Pixel 6) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 11; SM-G991B) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 10; SM-A505FN) AppleWebKit/537.36 (KHTML, like Gecko) SamsungBrowser/16.0 Chrome/92.0.4515.166 "
+            + "Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 11; M2101K6G) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.92 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 10; ELE-L29) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 9; LM-Q720) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/95.0.4638.74 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 7.0; SM-T813) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 11; KB2003) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.92 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; U; Android 4.0.3; ko-kr; LG-L160L Build/IML74K) AppleWebkit/534.30 (KHTML, like Gecko) Version/4.0 Mobile "
+            + "Safari/534.30",
+        "Mozilla/5.0 (Linux; U; Android 2.3.6; en-us; Nexus S Build/GRK39F) AppleWebKit/533.1 (KHTML, like Gecko) Version/4.0 Mobile "
+            + "Safari/533.1",
+        "Mozilla/5.0 (Linux; Android 11; Redmi Note 8 Pro) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Mobile "
+            + "Safari/537.36 YaBrowser/21.11.5.61.00 SA/3",
+        "Mozilla/5.0 (Android 12; Mobile; rv:95.0) Gecko/95.0 Firefox/95.0",
+        "Mozilla/5.0 (Linux; Android 9; AFTMM Build/PS7233) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/95.0.4638.74 Mobile "
+            + "Safari/537.36",
+        "Mozilla/5.0 (SMART-TV; Linux; Tizen 5.0) AppleWebKit/537.36 (KHTML, like Gecko) Version/5.0 TV Safari/537.36",
+        "Mozilla/5.0 (Web0S; Linux/SmartTV) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/79.0.3945.79 Safari/537.36 WebAppManager",
+        "Mozilla/5.0 (PlayStation 4 8.52) AppleWebKit/605.1.15 (KHTML, like Gecko)",
+        "Mozilla/5.0 (Nintendo Switch; WifiWebAuthApplet) AppleWebKit/606.4 (KHTML, like Gecko) NF/6.0.1.15.4 NintendoBrowser/5.1.0.20393",
+        "Mozilla/5.0 (Windows Phone 10.0; Android 6.0.1; Microsoft; Lumia 950) AppleWebKit/537.36 (KHTML, like Gecko) "
+            + "Chrome/52.0.2743.116 Mobile Safari/537.36 Edge/15.15063",
+        "Mozilla/5.0 (BlackBerry; U; BlackBerry 9900; en) AppleWebKit/534.11+ (KHTML, like Gecko) Version/7.1.0.346 Mobile Safari/534.11+",
+        "Opera/9.80 (J2ME/MIDP; Opera Mini/9.80 (S60; SymbOS; Opera Mobi/23.348; U; en) Presto/2.5.25 Version/10.54",
+        "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+        "Mozilla/5.0 (compatible; bingbot/2.0; +http://www.bing.com/bingbot.htm)",
+        "Mozilla/5.0 (compatible; YandexBot/3.0; +http://yandex.com/bots)",
+        "Mozilla/5.0 (compatible; AhrefsBot/7.0; +http://ahrefs.com/robot/)",
+        "facebookexternalhit/1.1 (+http://www.facebook.com/externalhit_uatext.php)",
+        "Twitterbot/1.0",
+        "Slackbot-LinkExpanding 1.0 (+https://api.slack.com/robots)",
+        "curl/7.79.1",
+        "Wget/1.21.2",
+        "python-requests/2.26.0",
+        "Go-http-client/1.1",
+        "Apache-HttpClient/4.5.13 (Java/11.0.13)",
+        "okhttp/4.9.2",
+        "PostmanRuntime/7.28.4",
+        "Dalvik/2.1.0 (Linux; U; Android 11; SM-G973F Build/RP1A.200720.012)",
+        "Spotify/8.6.84 iOS/15.2 (iPhone12,1)",
+        "WhatsApp/2.21.24.22 A",
+        "Microsoft Office/16.0 (Windows NT 10.0; Microsoft Outlook 16.0.14701; Pro)",
+        "Outlook-iOS/709.2226530.prod.iphone (3.24.1)",
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Electron/16.0.5 Safari/537.36",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 (KHTML, like Gecko) HeadlessChrome/96.0.4664.110 Safari/537.36",
+        "Mozilla/5.0 (compatible; MSIE 10.0; Windows NT 6.2; Trident/6.0)",
+        "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.1; SV1)",
+        "Mozilla/5.0 (Linux; Android 10; K) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 8.1.0; vivo 1820) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 6.0; HUAWEI MT7-TL10 Build/HuaweiMT7-TL10) AppleWebKit/537.36 (KHTML, like Gecko) Version/4.0 "
+            + "Chrome/55.0 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 9; moto g(7) power) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 7.1.1; Lenovo TB-X304F) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 5.1; Archos 50 Cobalt) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.104 Mobile "
+            + "Safari/537.36",
+        "Mozilla/5.0 (Linux; U; Android 4.4.2; en-US; HM NOTE 1W Build/KOT49H) AppleWebKit/534.30 (KHTML, like Gecko) Version/4.0 "
+            + "UCBrowser/11.0.5.850 U3/0.8.0 Mobile Safari/534.30",
+        "Mozilla/5.0 (X11; U; Linux armv7l like Android; en-us) AppleWebKit/531.2+ (KHTML, like Gecko) Version/5.0 Safari/533.2+ "
+            + "Kindle/3.0+",
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36 "
+            + "Vivaldi/5.0.2497.35",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36 "
+            + "Brave/1.33"
+    );
+
+    public void testRequiredLiterals() {
+        assertThat(LiteralPrefilter.requiredLiterals("ArcGIS Client Using WinInet"), equalTo(Set.of("arcgis client using wininet")));
+        assertThat(LiteralPrefilter.requiredLiterals("(Firefox)/(\\d+)\\.(\\d+)"), equalTo(Set.of("firefox/")));
+        assertThat(LiteralPrefilter.requiredLiterals("; *(?:Build|\\) AppleWebKit)"), equalTo(Set.of("build", ") applewebkit")));
+        assertThat(LiteralPrefilter.requiredLiterals("(?:[Ss][Pp][Ii][Dd][Ee][Rr]|[Ss]crape)"), equalTo(Set.of("spider", "scrape")));
+        assertThat(LiteralPrefilter.requiredLiterals("(?i)x{2}\\bY+z"), equalTo(Set.of("xx")));
+        assertThat(LiteralPrefilter.requiredLiterals("\\Qa.b\\E(?=cd)e"), equalTo(Set.of("a.be")));
+        assertThat(LiteralPrefilter.requiredLiterals("[]a]bc[^x]"), equalTo(Set.of("bc")));
+        // nothing is required
+        assertThat(LiteralPrefilter.requiredLiterals("(?:abc|)\\d+"), nullValue());
+        assertThat(LiteralPrefilter.requiredLiterals("(abc)?[a-z]*"), nullValue());
+        assertThat(LiteralPrefilter.requiredLiterals(""), nullValue());
+        // syntax that isn't analyzed
+        assertThat(LiteralPrefilter.requiredLiterals("(a)bc\\1"), nullValue());
+        assertThat(LiteralPrefilter.requiredLiterals("(?x)a b c"), nullValue());
+        assertThat(LiteralPrefilter.requiredLiterals("(?u)abc"), nullValue());
+    }
+
+    public void testCandidates() {
+        List<String> regexes = List.of("abc", "(?:bcd|xyz)", "\\d+", "cd", "zz");
+        LiteralPrefilter prefilter = new LiteralPrefilter(regexes);
+        assertCandidates(prefilter, regexes.size(), "", 2);
+        assertCandidates(prefilter, regexes.size(), "ABCD", 0, 1, 2, 3);
+        assertCandidates(prefilter, regexes.size(), "xaxyzz", 1, 2, 4);
+        assertCandidates(prefilter, regexes.size(), "abxcd", 2, 3);
+    }
+
+    private static void assertCandidates(LiteralPrefilter prefilter, int numRegexes, String text, int... expected) {
+        long[] candidates = prefilter.candidates(text);
+        int[] actual = IntStream.range(0, numRegexes).filter(i -> LiteralPrefilter.isCandidate(candidates, i)).toArray();
+        assertThat(text, actual, equalTo(expected));
+    }
+
+    public void testParsesLikeWithoutPrefilter() {
+        UserAgentParser parser = new UserAgentParser(
+            "default",
+            UserAgentProcessor.class.getResourceAsStream("/regexes.yml"),
+            UserAgentProcessor.class.getResourceAsStream("/device_type_regexes.yml"),
+            new UserAgentCache(0)
+        );
+        UserAgentParser prefiltered = new UserAgentParser(
+            "prefiltered",
+            UserAgentProcessor.class.getResourceAsStream("/regexes.yml"),
+            UserAgentProcessor.class.getResourceAsStream("/device_type_regexes.yml"),
+            new UserAgentCache(0),
+            true
+        );
+        for (String userAgent : USER_AGENTS) {
+            assertSameDetails(userAgent, parser.parse(userAgent, true), prefiltered.parse(userAgent, true));
+            String mixedCase = randomBoolean() ? userAgent.toLowerCase(Locale.ROOT) : userAgent.toUpperCase(Locale.ROOT);
+            assertSameDetails(mixedCase, parser.parse(mixedCase, true), prefiltered.parse(mixedCase, true));
+            List<String> words = Arrays.asList(userAgent.split(" "));
+            Collections.shuffle(words, random());
+            String shuffled = String.join(" ", words);
+            assertSameDetails(shuffled, parser.parse(shuffled, true), prefiltered.parse(shuffled, true));
+        }
+    }
+
+    private static void assertSameDetails(String userAgent, Details expected, Details actual) {
+        assertSameName(userAgent, expected.userAgent, actual.userAgent);
+        assertSameName(userAgent, expected.operatingSystem, actual.operatingSystem);
+        assertSameName(userAgent, expected.device, actual.device);
+        assertThat(userAgent, actual.deviceType, equalTo(expected.deviceType));
+    }
+
+    private static void assertSameName(String userAgent, VersionedName expected, VersionedName actual) {
+        if (expected == null) {
+            assertThat(userAgent, actual, nullValue());
+        } else {
+            assertThat(
+                userAgent,
+                Arrays.asList(actual.name, actual.major, actual.minor, actual.patch, actual.build),
+                equalTo(Arrays.asList(expected.name, expected.major, expected.minor, expected.patch, expected.build))
+            );
+        }
+    }
+}
@@ -10,6 +10,7 @@ package org.elasticsearch.reindex;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.DocWriteResponse;
@@ -63,6 +64,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
@@ -122,6 +124,21 @@ public abstract class AbstractAsyncBulkByScrollAction<
      * in order to compute a correct scroll keep alive time.
      */
     private final AtomicInteger totalBatchSizeInSingleScrollResponse = new AtomicInteger();
+    /**
+     * The bulk requests in flight if the request pipelines them, {@code null} if the request sends one bulk request at a time.
+     */
+    @Nullable
+    private final InFlightBulks inFlightBulks;
+    /**
+     * Why a pipelined request finishes, merged from all the bulk requests and scroll responses that end it. The request only finishes once
+     * no bulk request is in flight anymore, so the bulk requests that complete in the meantime still count towards its status.
+     */
+    private final PipelinedOutcome pipelinedOutcome = new PipelinedOutcome();
+    /**
+     * Set by the first attempt to finish the request. Only pipelined requests can try to finish more than once because more than one
+     * bulk request can complete or fail.
+     */
+    private final AtomicBoolean finished = new AtomicBoolean();
 
     AbstractAsyncBulkByScrollAction(
         BulkByScrollTask task,
@@ -177,8 +194,26 @@ public abstract class AbstractAsyncBulkByScrollAction<
         this.threadPool = threadPool;
         this.mainRequest = mainRequest;
         this.listener = listener;
+        /*
+         * Pipelining doesn't work with max_docs because the number of documents processed so far is only known once all the bulk requests
+         * that are in flight completed.
+         */
+        if (mainRequest.getMaxInFlightBulkBytes().getBytes() > 0 && mainRequest.getMaxDocs() == MAX_DOCS_ALL_MATCHES) {
+            int scrollSize = mainRequest.getSearchRequest().source().size();
+            inFlightBulks = new InFlightBulks(
+                worker,
+                mainRequest.getMaxInFlightBulkBytes().getBytes(),
+                scrollSize > 0 ? scrollSize : AbstractBulkByScrollRequest.DEFAULT_SCROLL_SIZE
+            );
+        } else {
+            inFlightBulks = null;
+        }
+        Runnable onBulkRetry = inFlightBulks == null ? worker::countBulkRetry : () -> {
+            worker.countBulkRetry();
+            inFlightBulks.onRejection();
+        };
         BackoffPolicy backoffPolicy = buildBackoffPolicy();
-        bulkRetry = new Retry(BackoffPolicy.wrap(backoffPolicy, worker::countBulkRetry), threadPool);
+        bulkRetry = new Retry(BackoffPolicy.wrap(backoffPolicy, onBulkRetry), threadPool);
         scrollSource = buildScrollableResultSource(
             backoffPolicy,
             prepareSearchRequest(mainRequest, needsSourceDocumentVersions, needsSourceDocumentSeqNoAndPrimaryTerm)
@@ -404,7 +439,9 @@ public abstract class AbstractAsyncBulkByScrollAction<
         worker.countBatch();
         final List<? extends ScrollableHitSource.Hit> hits;
 
-        if (mainRequest.getMaxDocs() != MAX_DOCS_ALL_MATCHES) {
+        if (inFlightBulks != null) {
+            hits = asyncResponse.consumeHits(min(inFlightBulks.batchSize(), asyncResponse.remainingHits()));
+        } else if (mainRequest.getMaxDocs() != MAX_DOCS_ALL_MATCHES) {
             // Truncate the hits if we have more than the request max docs
             long remainingDocsToProcess = max(0, mainRequest.getMaxDocs() - worker.getSuccessfullyProcessed());
             hits = remainingDocsToProcess < asyncResponse.remainingHits()
@@ -424,7 +461,65 @@ public abstract class AbstractAsyncBulkByScrollAction<
         }
         request.timeout(mainRequest.getTimeout());
         request.waitForActiveShards(mainRequest.getWaitForActiveShards());
-        sendBulkRequest(request, () -> notifyDone(thisBatchStartTimeNS, asyncResponse, request.requests().size()));
+        if (inFlightBulks != null) {
+            pipelineBulkRequest(request, () -> notifyDone(thisBatchStartTimeNS, asyncResponse, request.requests().size()));
+        } else {
+            sendBulkRequest(request, () -> notifyDone(thisBatchStartTimeNS, asyncResponse, request.requests().size()));
+        }
+    }
+
+    /**
+     * Send a bulk request of a pipelined request as soon as it fits into the budget for bulk requests in flight and move on to the next
+     * batch of documents right after it was sent, which prefetches the next scroll response while the bulk request is executing. Nothing
+     * is sent once the request is about to finish.
+     */
+    void pipelineBulkRequest(BulkRequest request, Runnable next) {
+        final long bulkBytes = request.estimatedSizeInBytes();
+        inFlightBulks.submit(bulkBytes, () -> {
+            final long startNanos = System.nanoTime();
+            final Runnable onCompletion = () -> {
+                Runnable afterCompletion = inFlightBulks.onCompletion(bulkBytes, System.nanoTime() - startNanos, this::finishPipelined);
+                if (afterCompletion != null) {
+                    afterCompletion.run();
+                }
+            };
+            if (task.isCancelled()) {
+                logger.debug("[{}]: finishing early because the task was cancelled", task.getId());
+                finishHim(null);
+                onCompletion.run();
+                return;
+            }
+            executeBulkRequest(request, ActionListener.runAfter(new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    logger.debug("[{}]: completed [{}] entry pipelined bulk request", task.getId(), request.requests().size());
+                    try {
+                        List<Failure> failures = countBulkResponse(response);
+                        if (task.isCancelled()) {
+                            logger.debug("[{}]: Finishing early because the task was cancelled", task.getId());
+                            finishHim(null);
+                        } else if (false == failures.isEmpty()) {
+                            refreshAndFinish(unmodifiableList(failures), emptyList(), false);
+                        }
+                    } catch (Exception e) {
+                        finishHim(e);
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    finishHim(e);
+                }
+            }, onCompletion));
+            next.run();
+        });
+    }
+
+    /**
+     * Execute a bulk request, handling retries.
+     */
+    void executeBulkRequest(BulkRequest request, ActionListener<BulkResponse> listener) {
+        bulkRetry.withBackoff(bulkClient::bulk, request, listener);
     }
 
     /**
@@ -445,7 +540,7 @@ public abstract class AbstractAsyncBulkByScrollAction<
             finishHim(null);
             return;
         }
-        bulkRetry.withBackoff(bulkClient::bulk, request, new ActionListener<BulkResponse>() {
+        executeBulkRequest(request, new ActionListener<BulkResponse>() {
             @Override
             public void onResponse(BulkResponse response) {
                 logger.debug("[{}]: completed [{}] entry bulk request", task.getId(), requestSize);
@@ -464,32 +559,7 @@ public abstract class AbstractAsyncBulkByScrollAction<
      */
     void onBulkResponse(BulkResponse response, Runnable onSuccess) {
         try {
-            List<Failure> failures = new ArrayList<>();
-            Set<String> destinationIndicesThisBatch = new HashSet<>();
-            for (BulkItemResponse item : response) {
-                if (item.isFailed()) {
-                    recordFailure(item.getFailure(), failures);
-                    continue;
-                }
-                switch (item.getOpType()) {
-                    case CREATE:
-                    case INDEX:
-                        if (item.getResponse().getResult() == DocWriteResponse.Result.CREATED) {
-                            worker.countCreated();
-                        } else {
-                            worker.countUpdated();
-                        }
-                        break;
-                    case UPDATE:
-                        worker.countUpdated();
-                        break;
-                    case DELETE:
-                        worker.countDeleted();
-                        break;
-                }
-                // Track the indexes we've seen so we can refresh them if requested
-                destinationIndicesThisBatch.add(item.getIndex());
-            }
+            List<Failure> failures = countBulkResponse(response);
 
             if (task.isCancelled()) {
                 logger.debug("[{}]: Finishing early because the task was cancelled", task.getId());
@@ -497,8 +567,6 @@ public abstract class AbstractAsyncBulkByScrollAction<
                 return;
             }
 
-            addDestinationIndices(destinationIndicesThisBatch);
-
             if (false == failures.isEmpty()) {
                 refreshAndFinish(unmodifiableList(failures), emptyList(), false);
                 return;
@@ -522,6 +590,42 @@ public abstract class AbstractAsyncBulkByScrollAction<
         }
     }
 
+    /**
+     * Counts the documents of a bulk response towards the status and tracks the indices they were written to.
+     *
+     * @return the failures that abort the request
+     */
+    private List<Failure> countBulkResponse(BulkResponse response) {
+        List<Failure> failures = new ArrayList<>();
+        Set<String> destinationIndicesThisBatch = new HashSet<>();
+        for (BulkItemResponse item : response) {
+            if (item.isFailed()) {
+                recordFailure(item.getFailure(), failures);
+                continue;
+            }
+            switch (item.getOpType()) {
+                case CREATE:
+                case INDEX:
+                    if (item.getResponse().getResult() == DocWriteResponse.Result.CREATED) {
+                        worker.countCreated();
+                    } else {
+                        worker.countUpdated();
+                    }
+                    break;
+                case UPDATE:
+                    worker.countUpdated();
+                    break;
+                case DELETE:
+                    worker.countDeleted();
+                    break;
+            }
+            // Track the indexes we've seen so we can refresh them if requested
+            destinationIndicesThisBatch.add(item.getIndex());
+        }
+        addDestinationIndices(destinationIndicesThisBatch);
+        return failures;
+    }
+
     void notifyDone(long thisBatchStartTimeNS, ScrollConsumableHitsResponse asyncResponse, int batchSize) {
         if (task.isCancelled()) {
             logger.debug("[{}]: finishing early because the task was cancelled", task.getId());
@@ -551,9 +655,22 @@ public abstract class AbstractAsyncBulkByScrollAction<
 
     /**
      * Start terminating a request that finished non-catastrophically by refreshing the modified indices and then proceeding to
-     * {@link #finishHim(Exception, List, List, boolean)}.
+     * {@link #finishHim(Exception, List, List, boolean)}. A pipelined request stops sending bulk requests right away but only does so
+     * once the bulk requests in flight completed.
      */
     void refreshAndFinish(List<Failure> indexingFailures, List<SearchFailure> searchFailures, boolean timedOut) {
+        if (inFlightBulks != null) {
+            stopPipelined(null, indexingFailures, searchFailures, timedOut);
+            return;
+        }
+        refreshAndFinishNow(indexingFailures, searchFailures, timedOut);
+    }
+
+    private void refreshAndFinishNow(List<Failure> indexingFailures, List<SearchFailure> searchFailures, boolean timedOut) {
+        if (finished.compareAndSet(false, true) == false) {
+            logger.debug("[{}]: already finishing", task.getId());
+            return;
+        }
         if (task.isCancelled() || false == mainRequest.isRefresh() || destinationIndices.isEmpty()) {
             finishHim(null, indexingFailures, searchFailures, timedOut);
             return;
@@ -569,21 +686,69 @@ public abstract class AbstractAsyncBulkByScrollAction<
 
             @Override
             public void onFailure(Exception e) {
-                finishHim(e);
+                finishHim(e, emptyList(), emptyList(), false);
             }
         });
     }
 
     /**
-     * Finish the request.
+     * Finish the request. A pipelined request stops sending bulk requests right away but only finishes once the bulk requests in flight
+     * completed.
      *
      * @param failure if non null then the request failed catastrophically with this exception
      */
     protected void finishHim(Exception failure) {
+        if (inFlightBulks != null) {
+            stopPipelined(failure, emptyList(), emptyList(), false);
+            return;
+        }
+        finishHimNow(failure);
+    }
+
+    private void finishHimNow(Exception failure) {
+        if (finished.compareAndSet(false, true) == false) {
+            logger.debug(() -> new ParameterizedMessage("[{}]: already finishing, ignoring failure", task.getId()), failure);
+            return;
+        }
         logger.debug(() -> new ParameterizedMessage("[{}]: finishing with a catastrophic failure", task.getId()), failure);
         finishHim(failure, emptyList(), emptyList(), false);
     }
 
+    /**
+     * Record why a pipelined request finishes, stop sending bulk requests and finish once no bulk request is in flight anymore.
+     */
+    private void stopPipelined(
+        @Nullable Exception failure,
+        List<Failure> indexingFailures,
+        List<SearchFailure> searchFailures,
+        boolean timedOut
+    ) {
+        pipelinedOutcome.merge(failure, indexingFailures, searchFailures, timedOut);
+        if (inFlightBulks.stop()) {
+            finishPipelined();
+        } else {
+            logger.debug("[{}]: finishing once the bulk requests in flight completed", task.getId());
+        }
+    }
+
+    private void finishPipelined() {
+        final Exception failure;
+        final List<Failure> indexingFailures;
+        final List<SearchFailure> searchFailures;
+        final boolean timedOut;
+        synchronized (pipelinedOutcome) {
+            failure = pipelinedOutcome.failure;
+            indexingFailures = unmodifiableList(new ArrayList<>(pipelinedOutcome.indexingFailures));
+            searchFailures = unmodifiableList(new ArrayList<>(pipelinedOutcome.searchFailures));
+            timedOut = pipelinedOutcome.timedOut;
+        }
+        if (failure != null) {
+            finishHimNow(failure);
+        } else {
+            refreshAndFinishNow(indexingFailures, searchFailures, timedOut);
+        }
+    }
+
     /**
      * Finish the request.
      * @param failure if non null then the request failed catastrophically with this exception
@@ -1011,4 +1176,29 @@ public abstract class AbstractAsyncBulkByScrollAction<
             asyncResponse.done(extraKeepAlive);
         }
     }
+
+    /**
+     * Why a pipelined request finishes. The first catastrophic failure wins over all other outcomes and suppresses later ones, and the
+     * indexing and search failures of all bulk requests and scroll responses are reported.
+     */
+    private static class PipelinedOutcome {
+        private Exception failure;
+        private final List<Failure> indexingFailures = new ArrayList<>();
+        private final List<SearchFailure> searchFailures = new ArrayList<>();
+        private boolean timedOut;
+
+        synchronized void merge(
+            @Nullable Exception failure,
+            List<Failure> indexingFailures,
+            List<SearchFailure> searchFailures,
+            boolean timedOut
+        ) {
+            if (failure != null) {
+                this.failure = ExceptionsHelper.useOrSuppress(this.failure, failure);
+            }
+            this.indexingFailures.addAll(indexingFailures);
+            this.searchFailures.addAll(searchFailures);
+            this.timedOut |= timedOut;
+        }
+    }
 }
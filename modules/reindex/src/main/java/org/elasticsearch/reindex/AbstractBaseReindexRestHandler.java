@@ -80,6 +80,7 @@ public abstract class AbstractBaseReindexRestHandler<
 
         request.setRefresh(restRequest.paramAsBoolean("refresh", request.isRefresh()));
         request.setTimeout(restRequest.paramAsTime("timeout", request.getTimeout()));
+        request.setMaxInFlightBulkBytes(restRequest.paramAsSize("max_in_flight_bulk_bytes", request.getMaxInFlightBulkBytes()));
 
         Integer slices = parseSlices(restRequest);
         if (slices != null) {
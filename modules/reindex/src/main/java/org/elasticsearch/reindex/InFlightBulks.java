@@ -0,0 +1,168 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.reindex;
+
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.reindex.AbstractBulkByScrollRequest;
+import org.elasticsearch.index.reindex.WorkerBulkByScrollTaskState;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Keeps track of the bulk requests that a {@link AbstractAsyncBulkByScrollAction} has in flight when the request pipelines its bulk
+ * requests, see {@link AbstractBulkByScrollRequest#getMaxInFlightBulkBytes()}.
+ * <p>
+ * Bulk requests are started as long as their estimated size fits into the budget, and at least one is always in flight. A bulk request
+ * that doesn't fit waits for in flight bulk requests to complete and, because the action only moves on to the next batch once its bulk
+ * request started, it is the only one waiting.
+ * <p>
+ * Once the source ran out of documents or the request failed or was cancelled, the bulk requests are {@link #stop stopped}: no more bulk
+ * requests are started, but the ones in flight still complete so that the request can only finish once none are in flight anymore.
+ * <p>
+ * The number of documents per bulk request adapts like TCP's congestion window: it is halved whenever a bulk request is rejected or takes
+ * longer than {@link #TARGET_LATENCY} and grows by a tenth of the scroll size whenever a bulk request completes faster than that.
+ */
+final class InFlightBulks {
+
+    /**
+     * Bulk requests that take longer than this make the batches smaller. Bulk requests of the default size complete well within this on a
+     * healthy cluster so the batches only shrink if the cluster struggles to keep up.
+     */
+    static final TimeValue TARGET_LATENCY = TimeValue.timeValueSeconds(5);
+
+    private final WorkerBulkByScrollTaskState worker;
+    private final long maxInFlightBytes;
+    private final int maxBatchSize;
+    private final int batchSizeIncrement;
+
+    private int batchSize;
+    private int count;
+    private long bytes;
+    @Nullable
+    private Pending pending;
+    private boolean stopped;
+
+    private record Pending(long bytes, Runnable start) {}
+
+    /**
+     * @param worker the task state to report the bulk requests in flight to
+     * @param maxInFlightBytes the maximum estimated size of the bulk requests in flight
+     * @param maxBatchSize the maximum number of documents per bulk request, which is the size of the scroll
+     */
+    InFlightBulks(WorkerBulkByScrollTaskState worker, long maxInFlightBytes, int maxBatchSize) {
+        assert maxInFlightBytes > 0 : "pipelining requires a budget but got [" + maxInFlightBytes + "]";
+        this.worker = worker;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.maxBatchSize = max(1, maxBatchSize);
+        this.batchSizeIncrement = max(1, this.maxBatchSize / 10);
+        this.batchSize = this.maxBatchSize;
+        report();
+    }
+
+    /**
+     * The number of documents that should go into the next bulk request.
+     */
+    synchronized int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Start a bulk request as soon as it fits into the budget. Runs {@code start} right away if it does, otherwise once enough in flight
+     * bulk requests completed, on the thread that completed the last one of them. Never runs {@code start} once the bulk requests were
+     * stopped.
+     */
+    void submit(long bulkBytes, Runnable start) {
+        synchronized (this) {
+            assert pending == null : "only one bulk request may wait for the budget";
+            if (stopped) {
+                return;
+            }
+            if (count > 0 && bytes + bulkBytes > maxInFlightBytes) {
+                pending = new Pending(bulkBytes, start);
+                return;
+            }
+            acquire(bulkBytes);
+        }
+        start.run();
+    }
+
+    /**
+     * Call when a bulk request was rejected and is about to be retried.
+     */
+    synchronized void onRejection() {
+        shrink();
+    }
+
+    /**
+     * Call when a bulk request that was started by {@link #submit} completed, whether it succeeded or not.
+     *
+     * @param onDrained what to do if the bulk requests were stopped and this was the last one in flight
+     * @return the start of the bulk request that was waiting for the budget if it fits now, {@code onDrained} if this was the last bulk
+     *         request, {@code null} otherwise
+     */
+    @Nullable
+    synchronized Runnable onCompletion(long bulkBytes, long tookNanos, Runnable onDrained) {
+        if (tookNanos > TARGET_LATENCY.nanos()) {
+            shrink();
+        } else {
+            batchSize = min(maxBatchSize, batchSize + batchSizeIncrement);
+        }
+        count--;
+        bytes -= bulkBytes;
+        assert count >= 0 && bytes >= 0 : "released more than acquired";
+        Runnable next = null;
+        if (pending != null && (count == 0 || bytes + pending.bytes <= maxInFlightBytes)) {
+            acquire(pending.bytes);
+            next = pending.start;
+            pending = null;
+        } else if (stopped && count == 0) {
+            next = onDrained;
+        }
+        report();
+        return next;
+    }
+
+    /**
+     * Stop starting bulk requests, including the one waiting for the budget, because the source ran out of documents or the request is
+     * about to finish early. May be called more than once.
+     *
+     * @return true if no bulk request is in flight anymore so the caller has to finish the request, otherwise the completion of the last
+     *         one in flight returns the {@code onDrained} passed to {@link #onCompletion}
+     */
+    synchronized boolean stop() {
+        stopped = true;
+        pending = null;
+        return count == 0;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private void acquire(long bulkBytes) {
+        count++;
+        bytes += bulkBytes;
+        report();
+    }
+
+    private void shrink() {
+        batchSize = max(1, batchSize / 2);
+        report();
+    }
+
+    private void report() {
+        worker.setInFlightBulks(count, bytes, batchSize);
+    }
+}
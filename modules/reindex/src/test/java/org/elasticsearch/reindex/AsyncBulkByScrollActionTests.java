@@ -48,6 +48,7 @@ import org.elasticsearch.client.internal.ParentTaskAssigningClient;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.core.CheckedConsumer;
@@ -87,6 +88,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -489,6 +491,136 @@ public class AsyncBulkByScrollActionTests extends ESTestCase {
         assertThat(e.getCause().getMessage(), equalTo("surprise"));
     }
 
+    /**
+     * Tests that a request that pipelines its bulk requests fetches the next scroll response while the bulk request is in flight and only
+     * sends more bulk requests as long as they fit into the budget.
+     */
+    public void testPipelinedBulkRequests() throws Exception {
+        int scrollSize = between(1, 100);
+        testRequest.getSearchRequest().source().size(scrollSize);
+        testRequest.setMaxInFlightBulkBytes(ByteSizeValue.ofBytes(1));
+        List<RequestAndListener<BulkRequest, BulkResponse>> bulks = new CopyOnWriteArrayList<>();
+        DummyAsyncBulkByScrollAction action = pipelinedAction(bulks);
+        action.setScroll(scrollId());
+        AtomicInteger scrollsRequested = new AtomicInteger();
+
+        action.onScrollResponse(pipelinedScrollResponse(scrollSize, scrollsRequested));
+        assertBusy(() -> assertEquals(1, scrollsRequested.get()));
+        assertThat(bulks, hasSize(1));
+        BulkByScrollTask.Status status = testTask.getStatus();
+        assertEquals(1, status.getInFlightBulks());
+        assertThat(status.getInFlightBulksSizeInBytes(), greaterThan(0L));
+        assertEquals(scrollSize, status.getBatchSize());
+
+        // the next bulk request doesn't fit into the budget so it waits for the first one to complete
+        action.onScrollResponse(pipelinedScrollResponse(scrollSize, scrollsRequested));
+        bulks.get(0).listener.onResponse(createdResponse(bulks.get(0).request));
+        assertBusy(() -> assertEquals(2, scrollsRequested.get()));
+        assertThat(bulks, hasSize(2));
+        assertEquals(1, testTask.getStatus().getInFlightBulks());
+        assertEquals(2, testTask.getStatus().getBatches());
+
+        // the request finishes once the scroll is exhausted and the last bulk request completed
+        action.onScrollResponse(pipelinedScrollResponse(0, scrollsRequested));
+        assertFalse(listener.isDone());
+        bulks.get(1).listener.onResponse(createdResponse(bulks.get(1).request));
+        assertBusy(() -> assertTrue(listener.isDone()));
+        assertEquals(0, listener.get().getStatus().getInFlightBulks());
+        assertEquals(0, listener.get().getStatus().getInFlightBulksSizeInBytes());
+    }
+
+    /**
+     * Tests that a pipelined request stops sending bulk requests as soon as one of them fails but only finishes once the other bulk
+     * requests in flight completed, and that their responses count towards the status.
+     */
+    public void testPipelinedBulkFailureWaitsForBulksInFlight() throws Exception {
+        int scrollSize = between(1, 100);
+        testRequest.getSearchRequest().source().size(scrollSize);
+        testRequest.setMaxInFlightBulkBytes(ByteSizeValue.ofMb(10));
+        List<RequestAndListener<BulkRequest, BulkResponse>> bulks = new CopyOnWriteArrayList<>();
+        DummyAsyncBulkByScrollAction action = pipelinedAction(bulks);
+        action.setScroll(scrollId());
+        AtomicInteger scrollsRequested = new AtomicInteger();
+
+        // both bulk requests fit into the budget so they are in flight at the same time
+        action.onScrollResponse(pipelinedScrollResponse(scrollSize, scrollsRequested));
+        assertBusy(() -> assertEquals(1, scrollsRequested.get()));
+        action.onScrollResponse(pipelinedScrollResponse(scrollSize, scrollsRequested));
+        assertBusy(() -> assertEquals(2, scrollsRequested.get()));
+        assertThat(bulks, hasSize(2));
+        assertEquals(2, testTask.getStatus().getInFlightBulks());
+
+        boolean catastrophic = randomBoolean();
+        Failure itemFailure = new Failure("index", "id0", new RuntimeException("item"));
+        if (catastrophic) {
+            bulks.get(0).listener.onFailure(new RuntimeException("boom"));
+        } else {
+            bulks.get(0).listener.onResponse(
+                new BulkResponse(new BulkItemResponse[] { BulkItemResponse.failure(0, DocWriteRequest.OpType.INDEX, itemFailure) }, 1)
+            );
+        }
+        assertFalse(listener.isDone());
+        assertEquals(1, testTask.getStatus().getInFlightBulks());
+
+        bulks.get(1).listener.onResponse(createdResponse(bulks.get(1).request));
+        assertBusy(() -> assertTrue(listener.isDone()));
+        assertThat(bulks, hasSize(2));
+        assertEquals(0, testTask.getStatus().getInFlightBulks());
+        assertEquals(scrollSize, testTask.getStatus().getCreated());
+        if (catastrophic) {
+            ExecutionException e = expectThrows(ExecutionException.class, () -> listener.get());
+            assertThat(e.getCause().getMessage(), equalTo("boom"));
+        } else {
+            assertThat(listener.get().getBulkFailures(), contains(itemFailure));
+            assertEquals(scrollSize, listener.get().getCreated());
+        }
+    }
+
+    private DummyAsyncBulkByScrollAction pipelinedAction(List<RequestAndListener<BulkRequest, BulkResponse>> bulks) {
+        return new DummyAsyncBulkByScrollAction() {
+            @Override
+            protected AbstractAsyncBulkByScrollAction.RequestWrapper<?> buildRequest(Hit doc) {
+                return wrap(new IndexRequest(doc.getIndex()).id(doc.getId()).source(doc.getSource(), doc.getXContentType()));
+            }
+
+            @Override
+            void executeBulkRequest(BulkRequest request, ActionListener<BulkResponse> listener) {
+                bulks.add(new RequestAndListener<>(request, listener));
+            }
+        };
+    }
+
+    private static BulkResponse createdResponse(BulkRequest request) {
+        BulkItemResponse[] responses = new BulkItemResponse[request.requests().size()];
+        for (int i = 0; i < responses.length; i++) {
+            DocWriteRequest<?> item = request.requests().get(i);
+            ShardId shardId = new ShardId(new Index(item.index(), "uuid"), 0);
+            responses[i] = BulkItemResponse.success(i, item.opType(), new IndexResponse(shardId, item.id(), 0, 1, 1, true));
+        }
+        return new BulkResponse(responses, 1);
+    }
+
+    private AbstractAsyncBulkByScrollAction.ScrollConsumableHitsResponse pipelinedScrollResponse(int hits, AtomicInteger scrollsRequested) {
+        List<Hit> docs = new ArrayList<>();
+        for (int i = 0; i < hits; i++) {
+            ScrollableHitSource.BasicHit hit = new ScrollableHitSource.BasicHit("index", "id" + i, 0);
+            hit.setSource(new BytesArray("{}"), XContentType.JSON);
+            docs.add(hit);
+        }
+        ScrollableHitSource.Response response = new ScrollableHitSource.Response(false, emptyList(), hits, docs, scrollId);
+        return new AbstractAsyncBulkByScrollAction.ScrollConsumableHitsResponse(new ScrollableHitSource.AsyncResponse() {
+            @Override
+            public ScrollableHitSource.Response response() {
+                return response;
+            }
+
+            @Override
+            public void done(TimeValue extraKeepAlive) {
+                scrollsRequested.incrementAndGet();
+            }
+        });
+    }
+
     /**
      * Mimicks bulk rejections. These should be retried and eventually succeed.
      */
@@ -0,0 +1,119 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.reindex;
+
+import org.elasticsearch.index.reindex.BulkByScrollTask;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Before;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyMap;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class InFlightBulksTests extends ESTestCase {
+
+    private BulkByScrollTask task;
+
+    @Before
+    public void createTask() {
+        task = new BulkByScrollTask(1, "test_type", "test_action", "test", TaskId.EMPTY_TASK_ID, emptyMap());
+        task.setWorker(Float.POSITIVE_INFINITY, null);
+    }
+
+    public void testBulksWaitForTheBudget() {
+        InFlightBulks bulks = new InFlightBulks(task.getWorkerState(), 100, 1000);
+        AtomicInteger started = new AtomicInteger();
+        Runnable onDrained = () -> fail("the source isn't exhausted");
+
+        // the first bulk request is always started, even if it is bigger than the budget
+        bulks.submit(150, started::incrementAndGet);
+        assertThat(started.get(), equalTo(1));
+        bulks.submit(10, started::incrementAndGet);
+        assertThat(started.get(), equalTo(1));
+        assertThat(task.getStatus().getInFlightBulks(), equalTo(1));
+        assertThat(task.getStatus().getInFlightBulksSizeInBytes(), equalTo(150L));
+
+        Runnable next = bulks.onCompletion(150, 0, onDrained);
+        assertThat(started.get(), equalTo(1));
+        next.run();
+        assertThat(started.get(), equalTo(2));
+        assertThat(bulks.count(), equalTo(1));
+        assertThat(bulks.bytes(), equalTo(10L));
+
+        // bulk requests that fit into the budget are started right away
+        bulks.submit(90, started::incrementAndGet);
+        assertThat(started.get(), equalTo(3));
+        assertThat(task.getStatus().getInFlightBulks(), equalTo(2));
+        assertThat(task.getStatus().getInFlightBulksSizeInBytes(), equalTo(100L));
+        assertThat(bulks.onCompletion(10, 0, onDrained), nullValue());
+        assertThat(bulks.onCompletion(90, 0, onDrained), nullValue());
+        assertThat(bulks.count(), equalTo(0));
+        assertThat(bulks.bytes(), equalTo(0L));
+    }
+
+    public void testFinishesAfterTheLastBulk() {
+        InFlightBulks bulks = new InFlightBulks(task.getWorkerState(), 100, 1000);
+        Runnable onDrained = () -> {};
+        bulks.submit(10, () -> {});
+        bulks.submit(10, () -> {});
+        assertFalse(bulks.stop());
+        assertThat(bulks.onCompletion(10, 0, onDrained), nullValue());
+        assertThat(bulks.onCompletion(10, 0, onDrained), sameInstance(onDrained));
+
+        InFlightBulks idle = new InFlightBulks(task.getWorkerState(), 100, 1000);
+        assertTrue(idle.stop());
+    }
+
+    public void testStopDropsWaitingBulk() {
+        InFlightBulks bulks = new InFlightBulks(task.getWorkerState(), 100, 1000);
+        Runnable onDrained = () -> {};
+        AtomicInteger started = new AtomicInteger();
+        bulks.submit(100, started::incrementAndGet);
+        bulks.submit(10, started::incrementAndGet);
+        assertThat(started.get(), equalTo(1));
+
+        // the bulk request waiting for the budget is never started, neither are bulk requests submitted later
+        assertFalse(bulks.stop());
+        bulks.submit(10, started::incrementAndGet);
+        assertThat(bulks.onCompletion(100, 0, onDrained), sameInstance(onDrained));
+        assertThat(started.get(), equalTo(1));
+        assertThat(bulks.count(), equalTo(0));
+        assertTrue(bulks.stop());
+    }
+
+    public void testBatchSizeAdapts() {
+        int scrollSize = between(20, 1000);
+        InFlightBulks bulks = new InFlightBulks(task.getWorkerState(), 100, scrollSize);
+        assertThat(bulks.batchSize(), equalTo(scrollSize));
+        assertThat(task.getStatus().getBatchSize(), equalTo(scrollSize));
+
+        bulks.onRejection();
+        assertThat(bulks.batchSize(), equalTo(scrollSize / 2));
+        bulks.submit(10, () -> {});
+        bulks.onCompletion(10, InFlightBulks.TARGET_LATENCY.nanos() + 1, () -> {});
+        assertThat(bulks.batchSize(), equalTo(scrollSize / 4));
+        assertThat(task.getStatus().getBatchSize(), equalTo(scrollSize / 4));
+
+        // fast bulk requests grow the batches back to the size of the scroll
+        for (int i = 0; i < 20; i++) {
+            bulks.submit(10, () -> {});
+            bulks.onCompletion(10, 0, () -> {});
+        }
+        assertThat(bulks.batchSize(), equalTo(scrollSize));
+
+        for (int i = 0; i < 20; i++) {
+            bulks.onRejection();
+        }
+        assertThat(bulks.batchSize(), equalTo(1));
+    }
+}
@@ -9,6 +9,7 @@
 package org.elasticsearch.search.fields;
 
 import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.Strings;
@@ -26,6 +27,7 @@ import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.script.MockScriptPlugin;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.DocValueColumns;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.lookup.FieldLookup;
@@ -773,6 +775,64 @@ public class SearchFieldsIT extends ESIntegTestCase {
         assertThat(fields.get("test_field").getValue(), equalTo("foobar"));
     }
 
+    public void testColumnarDocValueFields() throws Exception {
+        assertAcked(
+            prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", between(1, 3)))
+                .setMapping("order", "type=long", "number", "type=long", "tags", "type=keyword", "text", "type=text")
+        );
+        int numDocs = between(1, 50);
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            IndexRequestBuilder doc = client().prepareIndex("test").setId(Integer.toString(i));
+            if (i % 5 == 0) {
+                // none of the requested doc values
+                docs.add(doc.setSource("order", i, "text", "foo"));
+            } else {
+                docs.add(doc.setSource("order", i, "number", i, "tags", List.of("a", "b" + i)));
+            }
+        }
+        indexRandom(true, docs);
+
+        SearchRequest request = new SearchRequest("test").source(
+            new SearchSourceBuilder().query(matchAllQuery())
+                .size(numDocs)
+                .sort("order", randomFrom(SortOrder.values()))
+                .docValueField("number")
+                .docValueField("tags")
+                .fetchField("text")
+        );
+        request.columnarDocValueFields(true);
+        SearchResponse response = client().search(request).actionGet();
+        assertNoFailures(response);
+        assertHitCount(response, numDocs);
+
+        DocValueColumns columns = response.getHits().getDocValueColumns();
+        assertThat(columns, notNullValue());
+        assertThat(columns.rows(), equalTo(numDocs));
+        Map<String, DocValueColumns.Column> byName = new HashMap<>();
+        for (DocValueColumns.Column column : columns.columns()) {
+            byName.put(column.name(), column);
+        }
+        assertThat(byName.keySet(), equalTo(Set.of("number", "tags")));
+        for (int row = 0; row < numDocs; row++) {
+            SearchHit hit = response.getHits().getAt(row);
+            int id = Integer.parseInt(hit.getId());
+            // the doc values are only returned as columns
+            assertThat(hit.getFields().keySet(), equalTo(id % 5 == 0 ? Set.of("text") : Set.of()));
+            assertThat(values(byName.get("number"), row), equalTo(id % 5 == 0 ? List.of() : List.of((long) id)));
+            assertThat(values(byName.get("tags"), row), equalTo(id % 5 == 0 ? List.of() : List.of("a", "b" + id)));
+        }
+    }
+
+    private static List<Object> values(DocValueColumns.Column column, int row) {
+        List<Object> values = new ArrayList<>();
+        int offset = column.offset(row);
+        for (int v = 0; v < column.valueCount(row); v++) {
+            values.add(column.value(offset + v));
+        }
+        return values;
+    }
+
     public void testDocValueFields() throws Exception {
         createIndex("test");
 
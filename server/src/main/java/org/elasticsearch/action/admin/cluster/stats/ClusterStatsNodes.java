@@ -799,6 +799,9 @@ public class ClusterStatsNodes implements ToXContentFragment {
             long currentCoordinatingOps = 0;
             long currentPrimaryOps = 0;
             long currentReplicaOps = 0;
+            long coalescedWrites = 0;
+            long coalescedRequests = 0;
+            long coalescedOps = 0;
             for (NodeStats nodeStat : nodeStats) {
                 IndexingPressureStats nodeStatIndexingPressureStats = nodeStat.getIndexingPressureStats();
                 if (nodeStatIndexingPressureStats != null) {
@@ -820,6 +823,9 @@ public class ClusterStatsNodes implements ToXContentFragment {
                     currentCoordinatingOps += nodeStatIndexingPressureStats.getCurrentCoordinatingOps();
                     currentPrimaryOps += nodeStatIndexingPressureStats.getCurrentPrimaryOps();
                     currentReplicaOps += nodeStatIndexingPressureStats.getCurrentReplicaOps();
+                    coalescedWrites += nodeStatIndexingPressureStats.getCoalescedWrites();
+                    coalescedRequests += nodeStatIndexingPressureStats.getCoalescedRequests();
+                    coalescedOps += nodeStatIndexingPressureStats.getCoalescedOps();
                 }
             }
             indexingPressureStats = new IndexingPressureStats(
@@ -840,7 +846,10 @@ public class ClusterStatsNodes implements ToXContentFragment {
                 totalReplicaOps,
                 currentCoordinatingOps,
                 currentPrimaryOps,
-                currentReplicaOps
+                currentReplicaOps,
+                coalescedWrites,
+                coalescedRequests,
+                coalescedOps
             );
         }
 
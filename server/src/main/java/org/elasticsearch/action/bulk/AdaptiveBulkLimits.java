@@ -0,0 +1,147 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.core.TimeValue;
+
+import java.util.function.IntConsumer;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * The flush thresholds and the number of concurrent requests of a {@link BulkProcessor} in adaptive mode, see
+ * {@link BulkProcessor.Builder#setAdaptive(TimeValue)}.
+ * <p>
+ * The limits that the processor was built with are upper bounds and the limits start out at them. They adapt like TCP's congestion
+ * window: whenever an attempt to execute a bulk request is rejected with {@code 429 Too Many Requests}, for instance because the
+ * indexing pressure on a node is too high, or takes longer than the target latency, the flush thresholds and the number of concurrent
+ * requests are halved. Attempts that started before the last decrease don't decrease the limits again so that a burst of rejections of
+ * the requests that were in flight at the time only counts once. Attempts that complete within the target latency grow the flush
+ * thresholds by a tenth of their upper bound and, once they are back at their upper bound, the number of concurrent requests by one.
+ */
+final class AdaptiveBulkLimits {
+
+    /**
+     * The flush thresholds never drop below this fraction of their upper bound.
+     */
+    static final int MIN_FRACTION = 32;
+
+    private final long targetLatencyNanos;
+    private final int maxBulkActions;
+    private final long maxBulkSize;
+    private final int maxConcurrentRequests;
+    private final IntConsumer onConcurrentRequestsChange;
+
+    private volatile int bulkActions;
+    private volatile long bulkSize;
+    private volatile int concurrentRequests;
+    private boolean decreased;
+    private long lastDecreaseNanos;
+    private boolean frozen;
+
+    /**
+     * @param targetLatency attempts that take longer than this decrease the limits
+     * @param maxBulkActions the maximum number of actions per bulk request, {@code -1} if the number of actions doesn't trigger a flush
+     * @param maxBulkSize the maximum size of a bulk request in bytes, {@code -1} if the size doesn't trigger a flush
+     * @param maxConcurrentRequests the maximum number of concurrent requests, {@code 0} if bulk requests are executed synchronously
+     * @param onConcurrentRequestsChange called with the difference whenever the number of concurrent requests changes
+     */
+    AdaptiveBulkLimits(
+        TimeValue targetLatency,
+        int maxBulkActions,
+        long maxBulkSize,
+        int maxConcurrentRequests,
+        IntConsumer onConcurrentRequestsChange
+    ) {
+        this.targetLatencyNanos = targetLatency.nanos();
+        this.maxBulkActions = maxBulkActions;
+        this.maxBulkSize = maxBulkSize;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.onConcurrentRequestsChange = onConcurrentRequestsChange;
+        this.bulkActions = maxBulkActions;
+        this.bulkSize = maxBulkSize;
+        this.concurrentRequests = maxConcurrentRequests;
+    }
+
+    int bulkActions() {
+        return bulkActions;
+    }
+
+    long bulkSize() {
+        return bulkSize;
+    }
+
+    int concurrentRequests() {
+        return concurrentRequests;
+    }
+
+    /**
+     * Call whenever an attempt to execute a bulk request completed, including the attempts that are retried.
+     *
+     * @param startNanos the relative time at which the attempt started
+     * @param endNanos the relative time at which the attempt completed
+     * @param rejected whether the attempt or any of its items was rejected with {@code 429 Too Many Requests}
+     */
+    synchronized void onAttempt(long startNanos, long endNanos, boolean rejected) {
+        if (frozen) {
+            return;
+        }
+        if (rejected || endNanos - startNanos > targetLatencyNanos) {
+            if (decreased == false || startNanos - lastDecreaseNanos > 0) {
+                decreased = true;
+                lastDecreaseNanos = endNanos;
+                decrease();
+            }
+        } else {
+            increase();
+        }
+    }
+
+    /**
+     * Stops adapting the number of concurrent requests so that the processor can wait for all of them to complete.
+     *
+     * @return the number of concurrent requests from now on
+     */
+    synchronized int freeze() {
+        frozen = true;
+        return concurrentRequests;
+    }
+
+    private void decrease() {
+        if (maxBulkActions != -1) {
+            bulkActions = max(max(1, maxBulkActions / MIN_FRACTION), bulkActions / 2);
+        }
+        if (maxBulkSize != -1) {
+            bulkSize = max(max(1, maxBulkSize / MIN_FRACTION), bulkSize / 2);
+        }
+        setConcurrentRequests(max(min(1, maxConcurrentRequests), concurrentRequests / 2));
+    }
+
+    private void increase() {
+        final boolean atMax = bulkActions == maxBulkActions && bulkSize == maxBulkSize;
+        if (maxBulkActions != -1) {
+            bulkActions = min(maxBulkActions, bulkActions + max(1, maxBulkActions / 10));
+        }
+        if (maxBulkSize != -1) {
+            bulkSize = min(maxBulkSize, bulkSize + max(1, maxBulkSize / 10));
+        }
+        if (atMax) {
+            setConcurrentRequests(min(maxConcurrentRequests, concurrentRequests + 1));
+        }
+    }
+
+    private void setConcurrentRequests(int newConcurrentRequests) {
+        final int delta = newConcurrentRequests - concurrentRequests;
+        if (delta != 0) {
+            concurrentRequests = newConcurrentRequests;
+            onConcurrentRequestsChange.accept(delta);
+        }
+    }
+}
@@ -85,6 +85,7 @@ public class BulkProcessor implements Closeable {
         private ByteSizeValue bulkSize = new ByteSizeValue(5, ByteSizeUnit.MB);
         private TimeValue flushInterval = null;
         private BackoffPolicy backoffPolicy = BackoffPolicy.exponentialBackoff();
+        private TimeValue adaptiveTargetLatency = null;
         private String globalIndex;
         private String globalRouting;
         private String globalPipeline;
@@ -174,6 +175,20 @@ public class BulkProcessor implements Closeable {
             return this;
         }
 
+        /**
+         * Enables the adaptive mode, in which the number of actions and the size that trigger a flush and the number of concurrent requests
+         * adapt to how fast the cluster completes bulk requests. The limits that are set on this builder become upper bounds. The limits
+         * are halved whenever an attempt to execute a bulk request is rejected with {@code 429 Too Many Requests}, as a whole or for some
+         * of its items, or takes longer than the given target latency, and grow back slowly while attempts complete within the target
+         * latency. Defaults to not set, which keeps the limits fixed.
+         *
+         * @see BulkProcessor#stats()
+         */
+        public Builder setAdaptive(TimeValue targetLatency) {
+            this.adaptiveTargetLatency = targetLatency;
+            return this;
+        }
+
         /**
          * Builds a new bulk processor.
          */
@@ -190,7 +205,8 @@ public class BulkProcessor implements Closeable {
                 retryScheduler,
                 onClose,
                 createBulkRequestWithGlobalDefaults(),
-                flushCondition
+                flushCondition,
+                adaptiveTargetLatency
             );
         }
 
@@ -268,9 +284,6 @@ public class BulkProcessor implements Closeable {
         );
     }
 
-    private final int bulkActions;
-    private final long bulkSize;
-
     private final Scheduler.Cancellable cancellableFlushTask;
 
     private final AtomicLong executionIdGen = new AtomicLong();
@@ -296,19 +309,58 @@ public class BulkProcessor implements Closeable {
         Scheduler retryScheduler,
         Runnable onClose,
         Supplier<BulkRequest> bulkRequestSupplier,
-        Supplier<Boolean> flushSupplier
+        Supplier<Boolean> flushSupplier,
+        @Nullable TimeValue adaptiveTargetLatency
     ) {
-        this.bulkActions = bulkActions;
-        this.bulkSize = bulkSize.getBytes();
         this.bulkRequest = bulkRequestSupplier.get();
         this.bulkRequestSupplier = bulkRequestSupplier;
         this.flushSupplier = flushSupplier;
-        this.bulkRequestHandler = new BulkRequestHandler(consumer, backoffPolicy, listener, retryScheduler, concurrentRequests);
+        this.bulkRequestHandler = new BulkRequestHandler(
+            consumer,
+            backoffPolicy,
+            listener,
+            retryScheduler,
+            concurrentRequests,
+            bulkActions,
+            bulkSize.getBytes(),
+            adaptiveTargetLatency
+        );
         // Start period flushing task after everything is setup
         this.cancellableFlushTask = startFlushTask(flushInterval, flushScheduler);
         this.onClose = onClose;
     }
 
+    BulkProcessor(
+        BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer,
+        BackoffPolicy backoffPolicy,
+        Listener listener,
+        int concurrentRequests,
+        int bulkActions,
+        ByteSizeValue bulkSize,
+        @Nullable TimeValue flushInterval,
+        Scheduler flushScheduler,
+        Scheduler retryScheduler,
+        Runnable onClose,
+        Supplier<BulkRequest> bulkRequestSupplier,
+        Supplier<Boolean> flushSupplier
+    ) {
+        this(
+            consumer,
+            backoffPolicy,
+            listener,
+            concurrentRequests,
+            bulkActions,
+            bulkSize,
+            flushInterval,
+            flushScheduler,
+            retryScheduler,
+            onClose,
+            bulkRequestSupplier,
+            flushSupplier,
+            null
+        );
+    }
+
     BulkProcessor(
         BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer,
         BackoffPolicy backoffPolicy,
@@ -539,15 +591,24 @@ public class BulkProcessor implements Closeable {
 
     // needs to be executed under a lock
     private boolean isOverTheLimit() {
+        final int bulkActions = bulkRequestHandler.bulkActions();
         if (bulkActions != -1 && bulkRequest.numberOfActions() >= bulkActions) {
             return true;
         }
+        final long bulkSize = bulkRequestHandler.bulkSize();
         if (bulkSize != -1 && bulkRequest.estimatedSizeInBytes() >= bulkSize) {
             return true;
         }
         return false;
     }
 
+    /**
+     * Returns the statistics of the bulk requests that this processor executed and the limits that currently trigger a flush.
+     */
+    public BulkProcessorStats stats() {
+        return bulkRequestHandler.stats();
+    }
+
     /**
      * Flush pending delete or index requests.
      */
@@ -0,0 +1,162 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.xcontent.ToXContentObject;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Statistics of a {@link BulkProcessor}, see {@link BulkProcessor#stats()}. The counts of bulk requests don't include retries, the counts
+ * of attempts do. The current limits are the ones that the processor was built with unless it is in adaptive mode, see
+ * {@link BulkProcessor.Builder#setAdaptive}.
+ */
+public final class BulkProcessorStats implements ToXContentObject {
+
+    private final long bulks;
+    private final long failedBulks;
+    private final long inFlightBulks;
+    private final long attempts;
+    private final long rejectedAttempts;
+    private final long attemptsTimeInMillis;
+    private final int bulkActions;
+    private final long bulkSizeInBytes;
+    private final int concurrentRequests;
+
+    public BulkProcessorStats(
+        long bulks,
+        long failedBulks,
+        long inFlightBulks,
+        long attempts,
+        long rejectedAttempts,
+        long attemptsTimeInMillis,
+        int bulkActions,
+        long bulkSizeInBytes,
+        int concurrentRequests
+    ) {
+        this.bulks = bulks;
+        this.failedBulks = failedBulks;
+        this.inFlightBulks = inFlightBulks;
+        this.attempts = attempts;
+        this.rejectedAttempts = rejectedAttempts;
+        this.attemptsTimeInMillis = attemptsTimeInMillis;
+        this.bulkActions = bulkActions;
+        this.bulkSizeInBytes = bulkSizeInBytes;
+        this.concurrentRequests = concurrentRequests;
+    }
+
+    /**
+     * The number of bulk requests that completed, successfully or not.
+     */
+    public long getBulks() {
+        return bulks;
+    }
+
+    /**
+     * The number of bulk requests that failed as a whole, even after retrying them.
+     */
+    public long getFailedBulks() {
+        return failedBulks;
+    }
+
+    public long getInFlightBulks() {
+        return inFlightBulks;
+    }
+
+    /**
+     * The number of attempts to execute a bulk request that completed, including retries.
+     */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * The number of attempts that were rejected with {@code 429 Too Many Requests} as a whole or for some of their items.
+     */
+    public long getRejectedAttempts() {
+        return rejectedAttempts;
+    }
+
+    public long getAttemptsTimeInMillis() {
+        return attemptsTimeInMillis;
+    }
+
+    /**
+     * The number of actions that currently triggers a flush, {@code -1} if the number of actions doesn't trigger a flush.
+     */
+    public int getBulkActions() {
+        return bulkActions;
+    }
+
+    /**
+     * The size in bytes that currently triggers a flush, {@code -1} if the size doesn't trigger a flush.
+     */
+    public long getBulkSizeInBytes() {
+        return bulkSizeInBytes;
+    }
+
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field("bulks", bulks);
+        builder.field("failed_bulks", failedBulks);
+        builder.field("in_flight_bulks", inFlightBulks);
+        builder.field("attempts", attempts);
+        builder.field("rejected_attempts", rejectedAttempts);
+        builder.field("attempts_time_in_millis", attemptsTimeInMillis);
+        builder.field("bulk_actions", bulkActions);
+        builder.field("bulk_size_in_bytes", bulkSizeInBytes);
+        builder.field("concurrent_requests", concurrentRequests);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BulkProcessorStats that = (BulkProcessorStats) o;
+        return bulks == that.bulks
+            && failedBulks == that.failedBulks
+            && inFlightBulks == that.inFlightBulks
+            && attempts == that.attempts
+            && rejectedAttempts == that.rejectedAttempts
+            && attemptsTimeInMillis == that.attemptsTimeInMillis
+            && bulkActions == that.bulkActions
+            && bulkSizeInBytes == that.bulkSizeInBytes
+            && concurrentRequests == that.concurrentRequests;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+            bulks,
+            failedBulks,
+            inFlightBulks,
+            attempts,
+            rejectedAttempts,
+            attemptsTimeInMillis,
+            bulkActions,
+            bulkSizeInBytes,
+            concurrentRequests
+        );
+    }
+
+    @Override
+    public String toString() {
+        return Strings.toString(this);
+    }
+}
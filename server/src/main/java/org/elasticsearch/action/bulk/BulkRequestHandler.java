@@ -10,7 +10,13 @@ package org.elasticsearch.action.bulk;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.threadpool.Scheduler;
 
 import java.util.concurrent.CountDownLatch;
@@ -25,24 +31,82 @@ public final class BulkRequestHandler {
     private final Logger logger;
     private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer;
     private final BulkProcessor.Listener listener;
-    private final Semaphore semaphore;
+    private final AdjustableSemaphore semaphore;
     private final Retry retry;
     private final int concurrentRequests;
+    private final int bulkActions;
+    private final long bulkSize;
+    @Nullable
+    private final AdaptiveBulkLimits adaptiveLimits;
 
+    private final CounterMetric bulks = new CounterMetric();
+    private final CounterMetric failedBulks = new CounterMetric();
+    private final CounterMetric inFlightBulks = new CounterMetric();
+    private final MeanMetric attempts = new MeanMetric();
+    private final CounterMetric rejectedAttempts = new CounterMetric();
+
+    /**
+     * @param adaptiveTargetLatency the target latency of the attempts to execute a bulk request in adaptive mode, {@code null} if the
+     *                              limits are fixed, see {@link BulkProcessor.Builder#setAdaptive(TimeValue)}
+     */
     BulkRequestHandler(
         BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer,
         BackoffPolicy backoffPolicy,
         BulkProcessor.Listener listener,
         Scheduler scheduler,
-        int concurrentRequests
+        int concurrentRequests,
+        int bulkActions,
+        long bulkSize,
+        @Nullable TimeValue adaptiveTargetLatency
     ) {
         assert concurrentRequests >= 0;
         this.logger = LogManager.getLogger(getClass());
         this.consumer = consumer;
         this.listener = listener;
         this.concurrentRequests = concurrentRequests;
+        this.bulkActions = bulkActions;
+        this.bulkSize = bulkSize;
         this.retry = new Retry(backoffPolicy, scheduler);
-        this.semaphore = new Semaphore(concurrentRequests > 0 ? concurrentRequests : 1);
+        this.semaphore = new AdjustableSemaphore(concurrentRequests > 0 ? concurrentRequests : 1);
+        if (adaptiveTargetLatency == null) {
+            this.adaptiveLimits = null;
+        } else {
+            this.adaptiveLimits = new AdaptiveBulkLimits(adaptiveTargetLatency, bulkActions, bulkSize, concurrentRequests, delta -> {
+                if (delta > 0) {
+                    semaphore.release(delta);
+                } else {
+                    semaphore.reducePermits(-delta);
+                }
+            });
+        }
+    }
+
+    /**
+     * The number of actions that currently triggers a flush, {@code -1} if the number of actions doesn't trigger a flush.
+     */
+    int bulkActions() {
+        return adaptiveLimits == null ? bulkActions : adaptiveLimits.bulkActions();
+    }
+
+    /**
+     * The size in bytes that currently triggers a flush, {@code -1} if the size doesn't trigger a flush.
+     */
+    long bulkSize() {
+        return adaptiveLimits == null ? bulkSize : adaptiveLimits.bulkSize();
+    }
+
+    BulkProcessorStats stats() {
+        return new BulkProcessorStats(
+            bulks.count(),
+            failedBulks.count(),
+            inFlightBulks.count(),
+            attempts.count(),
+            rejectedAttempts.count(),
+            TimeValue.nsecToMSec(attempts.sum()),
+            bulkActions(),
+            bulkSize(),
+            adaptiveLimits == null ? concurrentRequests : adaptiveLimits.concurrentRequests()
+        );
     }
 
     public void execute(BulkRequest bulkRequest, long executionId) {
@@ -51,19 +115,27 @@ public final class BulkRequestHandler {
         try {
             listener.beforeBulk(executionId, bulkRequest);
             semaphore.acquire();
-            toRelease = semaphore::release;
+            inFlightBulks.inc();
+            toRelease = () -> {
+                inFlightBulks.dec();
+                semaphore.release();
+            };
             CountDownLatch latch = new CountDownLatch(1);
-            retry.withBackoff(consumer, bulkRequest, ActionListener.runAfter(new ActionListener<BulkResponse>() {
+            retry.withBackoff(this::executeAttempt, bulkRequest, ActionListener.runAfter(new ActionListener<BulkResponse>() {
                 @Override
                 public void onResponse(BulkResponse response) {
+                    bulks.inc();
                     listener.afterBulk(executionId, bulkRequest, response);
                 }
 
                 @Override
                 public void onFailure(Exception e) {
+                    bulks.inc();
+                    failedBulks.inc();
                     listener.afterBulk(executionId, bulkRequest, e);
                 }
             }, () -> {
+                inFlightBulks.dec();
                 semaphore.release();
                 latch.countDown();
             }));
@@ -85,11 +157,71 @@ public final class BulkRequestHandler {
         }
     }
 
+    /**
+     * Executes a single attempt of a bulk request, the first one or a retry, and records how long it took and whether it was rejected.
+     */
+    private void executeAttempt(BulkRequest bulkRequest, ActionListener<BulkResponse> attemptListener) {
+        final long startNanos = System.nanoTime();
+        consumer.accept(bulkRequest, new ActionListener<>() {
+            @Override
+            public void onResponse(BulkResponse response) {
+                onAttempt(startNanos, isRejected(response));
+                attemptListener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                onAttempt(startNanos, ExceptionsHelper.status(e) == RestStatus.TOO_MANY_REQUESTS);
+                attemptListener.onFailure(e);
+            }
+        });
+    }
+
+    private void onAttempt(long startNanos, boolean rejected) {
+        final long endNanos = System.nanoTime();
+        attempts.inc(endNanos - startNanos);
+        if (rejected) {
+            rejectedAttempts.inc();
+        }
+        if (adaptiveLimits != null) {
+            adaptiveLimits.onAttempt(startNanos, endNanos, rejected);
+        }
+    }
+
+    private static boolean isRejected(BulkResponse response) {
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response) {
+                if (item.isFailed() && item.status() == RestStatus.TOO_MANY_REQUESTS) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
-        if (semaphore.tryAcquire(this.concurrentRequests, timeout, unit)) {
-            semaphore.release(this.concurrentRequests);
+        // the number of concurrent requests mustn't change while waiting for all of them to complete
+        final int permits = adaptiveLimits == null ? concurrentRequests : adaptiveLimits.freeze();
+        if (semaphore.tryAcquire(permits, timeout, unit)) {
+            semaphore.release(permits);
             return true;
         }
         return false;
     }
+
+    /**
+     * A semaphore whose number of permits can be reduced while permits are held, which the adaptive mode needs to reduce the number of
+     * concurrent requests.
+     */
+    private static final class AdjustableSemaphore extends Semaphore {
+
+        AdjustableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
 }
@@ -133,6 +133,11 @@ public class BulkShardRequest extends ReplicatedWriteRequest<BulkShardRequest> i
         return super.routedBasedOnClusterVersion(routedBasedOnClusterVersion);
     }
 
+    @Override
+    protected long routedBasedOnClusterVersion() {
+        return super.routedBasedOnClusterVersion();
+    }
+
     @Override
     public void onRetry() {
         for (BulkItemRequest item : items) {
@@ -0,0 +1,300 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.ContextPreservingActionListener;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.IndexingPressure;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.tasks.TaskCancelledException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the {@link BulkShardRequest}s that a coordinating node sends to the same shard concurrently, see
+ * {@link TransportBulkAction#COALESCING_ENABLED_SETTING}. It's used by {@link TransportBulkAction} when it splits up bulk requests,
+ * so requests that other nodes forward to the primary are not coalesced again.
+ * <p>
+ * Up to {@link TransportBulkAction#COALESCING_MAX_IN_FLIGHT_SETTING} requests per shard are executed right away. Further requests
+ * queue up until one of them completes and are then merged into a single request, which costs a single primary execution, replication
+ * round-trip and translog sync instead of one per request. Only requests with the same refresh policy, timeout and number of active
+ * shards to wait for are merged, and no more of them than fit into {@link TransportBulkAction#COALESCING_MAX_ITEMS_SETTING} items.
+ * The items of a merged request are renumbered and their responses are handed back to the requests they came from under their
+ * original ids.
+ * <p>
+ * A merged request executes in the thread context of the oldest request that it contains. Requests are only merged if their thread
+ * contexts carry the same headers so that a request never executes on behalf of another user. A merged request acts for several
+ * bulk requests, so it has no parent task. Queued requests whose sender was cancelled are failed instead of being merged.
+ */
+final class ShardBulkCoalescer {
+
+    private final BiConsumer<BulkShardRequest, ActionListener<BulkShardResponse>> executor;
+    private final IndexingPressure indexingPressure;
+    private final ThreadContext threadContext;
+    private final ConcurrentMap<ShardId, ShardQueue> queues = ConcurrentCollections.newConcurrentMap();
+
+    private volatile int maxInFlight;
+    private volatile int maxItems;
+
+    /**
+     * @param executor executes a request on its shard, merged or not
+     * @param indexingPressure where to record the merged requests
+     */
+    ShardBulkCoalescer(
+        BiConsumer<BulkShardRequest, ActionListener<BulkShardResponse>> executor,
+        IndexingPressure indexingPressure,
+        ThreadContext threadContext,
+        int maxInFlight,
+        int maxItems
+    ) {
+        this.executor = executor;
+        this.indexingPressure = indexingPressure;
+        this.threadContext = threadContext;
+        this.maxInFlight = maxInFlight;
+        this.maxItems = maxItems;
+    }
+
+    void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    void setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Executes the given request, or queues it until a request of the same shard completes.
+     *
+     * @param cancelled whether whatever sent the request was cancelled, in which case the request is failed if it's still queued
+     */
+    void execute(BulkShardRequest request, BooleanSupplier cancelled, ActionListener<BulkShardResponse> listener) {
+        final Queued queued = new Queued(
+            request,
+            cancelled,
+            ContextPreservingActionListener.wrapPreservingContext(listener, threadContext),
+            threadContext.newRestorableContext(false),
+            threadContext.getHeaders()
+        );
+        while (true) {
+            final ShardQueue queue = queues.computeIfAbsent(request.shardId(), ShardQueue::new);
+            synchronized (queue) {
+                if (queue.removed) {
+                    // lost the race with the last request in flight, which removed the queue
+                    continue;
+                }
+                if (queue.inFlight >= maxInFlight) {
+                    queue.queued.add(queued);
+                    return;
+                }
+                queue.inFlight++;
+            }
+            send(queue, List.of(queued));
+            return;
+        }
+    }
+
+    /**
+     * The number of shards that have requests in flight, for testing.
+     */
+    int activeShards() {
+        return queues.size();
+    }
+
+    private void onCompletion(ShardQueue queue) {
+        synchronized (queue) {
+            queue.freedSlots++;
+            if (queue.draining) {
+                // the thread handing slots over picks this one up too, so requests that complete synchronously do not recurse
+                return;
+            }
+            queue.draining = true;
+        }
+        drain(queue);
+    }
+
+    /**
+     * Hands the freed slots of a shard over to the queued requests, or gives them up if there are none.
+     */
+    private void drain(ShardQueue queue) {
+        while (true) {
+            final List<Queued> next;
+            final List<Queued> cancelled = new ArrayList<>();
+            synchronized (queue) {
+                if (queue.freedSlots == 0) {
+                    queue.draining = false;
+                    return;
+                }
+                queue.freedSlots--;
+                next = queue.pollCompatible(maxItems, cancelled);
+                if (next.isEmpty()) {
+                    queue.inFlight--;
+                    if (queue.inFlight == 0) {
+                        queue.removed = true;
+                        queues.remove(queue.shardId, queue);
+                    }
+                }
+            }
+            for (Queued queued : cancelled) {
+                queued.listener.onFailure(new TaskCancelledException("the task that sent the bulk request was cancelled"));
+            }
+            if (next.isEmpty() == false) {
+                send(queue, next);
+            }
+        }
+    }
+
+    private void send(ShardQueue queue, List<Queued> requests) {
+        if (requests.size() == 1) {
+            final Queued queued = requests.get(0);
+            try (ThreadContext.StoredContext ignored = queued.context.get()) {
+                executor.accept(queued.request, ActionListener.runAfter(queued.listener, () -> onCompletion(queue)));
+            }
+            return;
+        }
+
+        final Queued first = requests.get(0);
+        final BulkItemRequest[] items = new BulkItemRequest[requests.stream().mapToInt(r -> r.request.items().length).sum()];
+        final int[] origins = new int[items.length];
+        final int[] originalIds = new int[items.length];
+        long routedBasedOnClusterVersion = 0;
+        int id = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            final BulkShardRequest request = requests.get(i).request;
+            for (BulkItemRequest item : request.items()) {
+                origins[id] = i;
+                originalIds[id] = item.id();
+                items[id] = new BulkItemRequest(id, item.request());
+                id++;
+            }
+            routedBasedOnClusterVersion = Math.max(routedBasedOnClusterVersion, request.routedBasedOnClusterVersion());
+        }
+        final BulkShardRequest merged = new BulkShardRequest(first.request.shardId(), first.request.getRefreshPolicy(), items);
+        merged.waitForActiveShards(first.request.waitForActiveShards());
+        merged.timeout(first.request.timeout());
+        merged.routedBasedOnClusterVersion(routedBasedOnClusterVersion);
+        indexingPressure.recordCoalescedWrite(requests.size(), items.length);
+
+        final ActionListener<BulkShardResponse> listener = ActionListener.runAfter(new ActionListener<>() {
+            @Override
+            public void onResponse(BulkShardResponse response) {
+                final List<List<BulkItemResponse>> responses = new ArrayList<>(requests.size());
+                for (Queued queued : requests) {
+                    responses.add(new ArrayList<>(queued.request.items().length));
+                }
+                for (BulkItemResponse itemResponse : response.getResponses()) {
+                    final int mergedId = itemResponse.getItemId();
+                    responses.get(origins[mergedId]).add(withId(originalIds[mergedId], itemResponse));
+                }
+                for (int i = 0; i < requests.size(); i++) {
+                    final Queued queued = requests.get(i);
+                    final List<BulkItemResponse> itemResponses = responses.get(i);
+                    final BulkShardResponse demultiplexed = new BulkShardResponse(
+                        queued.request.shardId(),
+                        itemResponses.toArray(new BulkItemResponse[0])
+                    );
+                    demultiplexed.setShardInfo(response.getShardInfo());
+                    queued.listener.onResponse(demultiplexed);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                ActionListener.onFailure(requests.stream().map(queued -> queued.listener).toList(), e);
+            }
+        }, () -> onCompletion(queue));
+        try (ThreadContext.StoredContext ignored = first.context.get()) {
+            executor.accept(merged, listener);
+        }
+    }
+
+    private static BulkItemResponse withId(int id, BulkItemResponse response) {
+        if (response.isFailed()) {
+            return BulkItemResponse.failure(id, response.getOpType(), response.getFailure());
+        } else {
+            return BulkItemResponse.success(id, response.getOpType(), response.getResponse());
+        }
+    }
+
+    private record Queued(
+        BulkShardRequest request,
+        BooleanSupplier cancelled,
+        ActionListener<BulkShardResponse> listener,
+        Supplier<ThreadContext.StoredContext> context,
+        Map<String, String> headers
+    ) {
+
+        /**
+         * Requests can only be merged if they agree on everything but their items.
+         */
+        boolean compatibleWith(Queued other) {
+            final BulkShardRequest otherRequest = other.request;
+            return request.getRefreshPolicy() == otherRequest.getRefreshPolicy()
+                && Objects.equals(request.waitForActiveShards(), otherRequest.waitForActiveShards())
+                && Objects.equals(request.timeout(), otherRequest.timeout())
+                && headers.equals(other.headers);
+        }
+    }
+
+    private static final class ShardQueue {
+        private final ShardId shardId;
+        private final ArrayDeque<Queued> queued = new ArrayDeque<>();
+        private int inFlight;
+        private boolean removed;
+        // the slots of completed requests that are yet to be handed over, and whether a thread is handing them over
+        private int freedSlots;
+        private boolean draining;
+
+        ShardQueue(ShardId shardId) {
+            this.shardId = shardId;
+        }
+
+        /**
+         * Takes the oldest queued request and the queued requests that can be merged with it, as long as they fit into the given number
+         * of items. The oldest request is taken even if it has more items than that. Cancelled requests that it comes across are moved
+         * to the given list instead.
+         */
+        List<Queued> pollCompatible(int maxItems, List<Queued> cancelled) {
+            Queued head;
+            while ((head = queued.poll()) != null && head.cancelled.getAsBoolean()) {
+                cancelled.add(head);
+            }
+            if (head == null) {
+                return List.of();
+            }
+            final List<Queued> requests = new ArrayList<>();
+            requests.add(head);
+            int items = head.request.items().length;
+            final Iterator<Queued> iterator = queued.iterator();
+            while (iterator.hasNext() && items < maxItems) {
+                final Queued candidate = iterator.next();
+                final int candidateItems = candidate.request.items().length;
+                if (candidate.cancelled.getAsBoolean()) {
+                    iterator.remove();
+                    cancelled.add(candidate);
+                } else if (head.compatibleWith(candidate) && items + candidateItems <= maxItems) {
+                    iterator.remove();
+                    requests.add(candidate);
+                    items += candidateItems;
+                }
+            }
+            return requests;
+        }
+    }
+}
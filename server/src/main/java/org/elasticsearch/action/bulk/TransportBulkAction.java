@@ -44,6 +44,9 @@ import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.cluster.routing.IndexRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.TimeValue;
@@ -57,7 +60,9 @@ import org.elasticsearch.indices.IndexClosedException;
 import org.elasticsearch.indices.SystemIndices;
 import org.elasticsearch.ingest.IngestService;
 import org.elasticsearch.node.NodeClosedException;
+import org.elasticsearch.tasks.CancellableTask;
 import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.threadpool.ThreadPool.Names;
 import org.elasticsearch.transport.TransportService;
@@ -74,6 +79,7 @@ import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BooleanSupplier;
 import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
@@ -92,12 +98,47 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
     private final ClusterService clusterService;
     private final IngestService ingestService;
     private final LongSupplier relativeTimeProvider;
+    /**
+     * Whether to coalesce the shard-level bulk requests that this node sends to the same shard concurrently into fewer, larger requests.
+     */
+    public static final Setting<Boolean> COALESCING_ENABLED_SETTING = Setting.boolSetting(
+        "action.bulk.coalescing.enabled",
+        false,
+        Setting.Property.Dynamic,
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * The number of shard-level bulk requests per shard that are executed right away when coalescing. Further requests wait for one of
+     * them to complete and are coalesced.
+     */
+    public static final Setting<Integer> COALESCING_MAX_IN_FLIGHT_SETTING = Setting.intSetting(
+        "action.bulk.coalescing.max_in_flight_per_shard",
+        2,
+        1,
+        Setting.Property.Dynamic,
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * The maximum number of items of a coalesced request. Requests that have more items on their own are not coalesced.
+     */
+    public static final Setting<Integer> COALESCING_MAX_ITEMS_SETTING = Setting.intSetting(
+        "action.bulk.coalescing.max_items",
+        1000,
+        1,
+        Setting.Property.Dynamic,
+        Setting.Property.NodeScope
+    );
+
     private final IngestActionForwarder ingestForwarder;
     private final NodeClient client;
     private final IndexNameExpressionResolver indexNameExpressionResolver;
     private static final String DROPPED_ITEM_WITH_AUTO_GENERATED_ID = "auto-generated";
     private final IndexingPressure indexingPressure;
     private final SystemIndices systemIndices;
+    private final ShardBulkCoalescer coalescer;
+    private volatile boolean coalescingEnabled;
 
     @Inject
     public TransportBulkAction(
@@ -149,6 +190,19 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
         this.indexingPressure = indexingPressure;
         this.systemIndices = systemIndices;
         clusterService.addStateApplier(this.ingestForwarder);
+        final Settings settings = clusterService.getSettings();
+        this.coalescer = new ShardBulkCoalescer(
+            (request, listener) -> client.executeLocally(TransportShardBulkAction.TYPE, request, listener),
+            indexingPressure,
+            threadPool.getThreadContext(),
+            COALESCING_MAX_IN_FLIGHT_SETTING.get(settings),
+            COALESCING_MAX_ITEMS_SETTING.get(settings)
+        );
+        this.coalescingEnabled = COALESCING_ENABLED_SETTING.get(settings);
+        final ClusterSettings clusterSettings = clusterService.getClusterSettings();
+        clusterSettings.addSettingsUpdateConsumer(COALESCING_ENABLED_SETTING, v -> coalescingEnabled = v);
+        clusterSettings.addSettingsUpdateConsumer(COALESCING_MAX_IN_FLIGHT_SETTING, coalescer::setMaxInFlight);
+        clusterSettings.addSettingsUpdateConsumer(COALESCING_MAX_ITEMS_SETTING, coalescer::setMaxItems);
     }
 
     /**
@@ -564,6 +618,7 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
 
             final AtomicInteger counter = new AtomicInteger(requestsByShard.size());
             String nodeId = clusterService.localNode().getId();
+            final BooleanSupplier senderCancelled = senderCancelled(nodeId);
             for (Map.Entry<ShardId, List<BulkItemRequest>> entry : requestsByShard.entrySet()) {
                 final ShardId shardId = entry.getKey();
                 final List<BulkItemRequest> requests = entry.getValue();
@@ -578,7 +633,7 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
                 if (task != null) {
                     bulkShardRequest.setParentTask(nodeId, task.getId());
                 }
-                client.executeLocally(TransportShardBulkAction.TYPE, bulkShardRequest, new ActionListener<>() {
+                final ActionListener<BulkShardResponse> shardListener = new ActionListener<>() {
                     @Override
                     public void onResponse(BulkShardResponse bulkShardResponse) {
                         for (BulkItemResponse bulkItemResponse : bulkShardResponse.getResponses()) {
@@ -612,11 +667,33 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
                             new BulkResponse(responses.toArray(new BulkItemResponse[responses.length()]), buildTookInMillis(startTimeNanos))
                         );
                     }
-                });
+                };
+                if (coalescingEnabled) {
+                    coalescer.execute(bulkShardRequest, senderCancelled, shardListener);
+                } else {
+                    client.executeLocally(TransportShardBulkAction.TYPE, bulkShardRequest, shardListener);
+                }
             }
             bulkRequest = null; // allow memory for bulk request items to be reclaimed before all items have been completed
         }
 
+        /**
+         * Bulk tasks can't be cancelled, but the tasks that send bulk requests, such as reindex, can. Returns whether the task that sent
+         * this bulk request was cancelled.
+         */
+        private BooleanSupplier senderCancelled(String localNodeId) {
+            final TaskId sender = task == null ? TaskId.EMPTY_TASK_ID : task.getParentTaskId();
+            if (sender.isSet() == false) {
+                return () -> false;
+            }
+            if (sender.getNodeId().equals(localNodeId)) {
+                final CancellableTask cancellableTask = taskManager.getCancellableTask(sender.getId());
+                return cancellableTask == null ? () -> false : cancellableTask::isCancelled;
+            }
+            // the node of the sender bans its child tasks on this node when it's cancelled
+            return () -> taskManager.isBanned(sender);
+        }
+
         private boolean handleBlockExceptions(ClusterState state) {
             ClusterBlockException blockException = state.blocks().globalBlockedException(ClusterBlockLevel.WRITE);
             if (blockException != null) {
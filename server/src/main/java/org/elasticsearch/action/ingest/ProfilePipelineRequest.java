@@ -0,0 +1,69 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.ingest;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * Request to profile a pipeline on the documents that were most recently sampled for profiling on the node that executes it.
+ */
+public class ProfilePipelineRequest extends ActionRequest {
+
+    private final String id;
+    private int size = Integer.MAX_VALUE;
+
+    public ProfilePipelineRequest(String id) {
+        this.id = Objects.requireNonNull(id);
+    }
+
+    public ProfilePipelineRequest(StreamInput in) throws IOException {
+        super(in);
+        id = in.readString();
+        size = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(id);
+        out.writeVInt(size);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return The maximum number of documents to profile the pipeline on, all the documents kept for the pipeline by default.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (size < 1) {
+            validationException = addValidationError("[size] must be at least 1 but was [" + size + "]", validationException);
+        }
+        return validationException;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.ingest;
+
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.ingest.IngestStats;
+import org.elasticsearch.xcontent.ToXContent;
+import org.elasticsearch.xcontent.ToXContentObject;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The stats and profiles of the processors of a pipeline, from executing the pipeline on the documents that were most recently sampled
+ * for profiling.
+ */
+public class ProfilePipelineResponse extends ActionResponse implements ToXContentObject {
+
+    private final String pipelineId;
+    private final int documentCount;
+    private final IngestStats.Stats pipelineStats;
+    private final List<IngestStats.ProcessorStat> processorStats;
+
+    public ProfilePipelineResponse(
+        String pipelineId,
+        int documentCount,
+        IngestStats.Stats pipelineStats,
+        List<IngestStats.ProcessorStat> processorStats
+    ) {
+        this.pipelineId = pipelineId;
+        this.documentCount = documentCount;
+        this.pipelineStats = pipelineStats;
+        this.processorStats = processorStats;
+    }
+
+    public ProfilePipelineResponse(StreamInput in) throws IOException {
+        super(in);
+        pipelineId = in.readString();
+        documentCount = in.readVInt();
+        pipelineStats = new IngestStats.Stats(in);
+        processorStats = in.readList(
+            input -> new IngestStats.ProcessorStat(
+                input.readString(),
+                input.readString(),
+                new IngestStats.Stats(input),
+                input.readOptionalWriteable(IngestStats.ProcessorProfile::new)
+            )
+        );
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(pipelineId);
+        out.writeVInt(documentCount);
+        pipelineStats.writeTo(out);
+        out.writeCollection(processorStats, (output, processorStat) -> {
+            output.writeString(processorStat.getName());
+            output.writeString(processorStat.getType());
+            processorStat.getStats().writeTo(output);
+            output.writeOptionalWriteable(processorStat.getProfile());
+        });
+    }
+
+    public String getPipelineId() {
+        return pipelineId;
+    }
+
+    /**
+     * @return The number of documents that the pipeline was profiled on.
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    public IngestStats.Stats getPipelineStats() {
+        return pipelineStats;
+    }
+
+    public List<IngestStats.ProcessorStat> getProcessorStats() {
+        return processorStats;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        final Params profileParams = new ToXContent.DelegatingMapParams(Map.of(IngestStats.PROFILE_PARAM, "true"), params);
+        builder.startObject();
+        builder.field("pipeline", pipelineId);
+        builder.field("docs", documentCount);
+        builder.startObject("stats");
+        pipelineStats.toXContent(builder, params);
+        builder.endObject();
+        builder.startArray("processors");
+        for (IngestStats.ProcessorStat processorStat : processorStats) {
+            processorStat.toXContent(builder, profileParams);
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProfilePipelineResponse that = (ProfilePipelineResponse) o;
+        return documentCount == that.documentCount
+            && Objects.equals(pipelineId, that.pipelineId)
+            && Objects.equals(pipelineStats, that.pipelineStats)
+            && Objects.equals(processorStats, that.processorStats);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pipelineId, documentCount, pipelineStats, processorStats);
+    }
+}
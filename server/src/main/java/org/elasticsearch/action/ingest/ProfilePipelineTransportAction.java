@@ -0,0 +1,43 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.ingest;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRunnable;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.ingest.IngestService;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+public class ProfilePipelineTransportAction extends HandledTransportAction<ProfilePipelineRequest, ProfilePipelineResponse> {
+
+    private final ThreadPool threadPool;
+    private final IngestService ingestService;
+
+    @Inject
+    public ProfilePipelineTransportAction(
+        ThreadPool threadPool,
+        TransportService transportService,
+        ActionFilters actionFilters,
+        IngestService ingestService
+    ) {
+        super(ProfilePipelineAction.NAME, transportService, actionFilters, ProfilePipelineRequest::new);
+        this.threadPool = threadPool;
+        this.ingestService = ingestService;
+    }
+
+    @Override
+    protected void doExecute(Task task, ProfilePipelineRequest request, ActionListener<ProfilePipelineResponse> listener) {
+        threadPool.executor(ThreadPool.Names.MANAGEMENT)
+            .execute(ActionRunnable.wrap(listener, l -> ingestService.profilePipeline(request.getId(), request.getSize(), l)));
+    }
+}
@@ -16,6 +16,9 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.io.stream.DelayableWriteable;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
@@ -23,6 +26,7 @@ import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.AggregationReduceContext;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.StreamingTermsReducer;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.query.QuerySearchResult;
 
@@ -49,10 +53,26 @@ import static org.elasticsearch.action.search.SearchPhaseController.setShardInde
  * in the {@link CircuitBreaker#REQUEST} circuit breaker. Before any partial or final reduce, the memory
  * needed to reduce the aggregations is estimated and a {@link CircuitBreakingException} is thrown if it
  * exceeds the maximum memory allowed in this breaker.
+ * <p>
+ * When {@link #STREAMING_TERMS_REDUCE_SETTING} is enabled and the top level aggregations of the request are all {@code terms}
+ * aggregations without sub-aggregations, partial reduces merge the buckets of each shard result into a
+ * {@link StreamingTermsReducer} instead of reducing the batch of shard results with the previous partial result. The reducer
+ * allocates its memory from the circuit breaking {@link BigArrays} of the reduce context, so it's
+ * accounted in the request circuit breaker while it grows, and by this consumer once the final reduce turns it into a partial result.
  */
 public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhaseResult> implements Releasable {
     private static final Logger logger = LogManager.getLogger(QueryPhaseResultConsumer.class);
 
+    /**
+     * Whether partial reduces of top level {@code terms} aggregations merge the shard results into paged hashes one at a time.
+     */
+    public static final Setting<Boolean> STREAMING_TERMS_REDUCE_SETTING = Setting.boolSetting(
+        "search.aggs.streaming_terms_reduce",
+        false,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
     private final Executor executor;
     private final CircuitBreaker circuitBreaker;
     private final SearchPhaseController controller;
@@ -67,6 +87,10 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
     private final PendingMerges pendingMerges;
     private final Consumer<Exception> onPartialMergeFailure;
 
+    // only accessed by the partial reduces, which never run concurrently, and by the final reduce once they completed. It is
+    // reset to null once a shard result can't be streamed, the partial reduces fall back to reducing batches from then on.
+    private StreamingTermsReducer streamingTermsReducer;
+
     /**
      * Creates a {@link QueryPhaseResultConsumer} that incrementally reduces aggregation results
      * as shard results are consumed.
@@ -80,6 +104,35 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         SearchProgressListener progressListener,
         int expectedResultSize,
         Consumer<Exception> onPartialMergeFailure
+    ) {
+        this(
+            request,
+            executor,
+            circuitBreaker,
+            controller,
+            isCanceled,
+            progressListener,
+            expectedResultSize,
+            onPartialMergeFailure,
+            false
+        );
+    }
+
+    /**
+     * Creates a {@link QueryPhaseResultConsumer} that incrementally reduces aggregation results
+     * as shard results are consumed, streaming the shard results of top level {@code terms}
+     * aggregations into a {@link StreamingTermsReducer} if {@code streamingTermsReduce} is set.
+     */
+    public QueryPhaseResultConsumer(
+        SearchRequest request,
+        Executor executor,
+        CircuitBreaker circuitBreaker,
+        SearchPhaseController controller,
+        Supplier<Boolean> isCanceled,
+        SearchProgressListener progressListener,
+        int expectedResultSize,
+        Consumer<Exception> onPartialMergeFailure,
+        boolean streamingTermsReduce
     ) {
         super(expectedResultSize);
         this.executor = executor;
@@ -96,11 +149,14 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         this.hasAggs = source != null && source.aggregations() != null;
         int batchReduceSize = (hasAggs || hasTopDocs) ? Math.min(request.getBatchedReduceSize(), expectedResultSize) : expectedResultSize;
         this.pendingMerges = new PendingMerges(batchReduceSize, request.resolveTrackTotalHitsUpTo());
+        if (streamingTermsReduce && hasAggs && StreamingTermsReducer.canStream(source.aggregations())) {
+            this.streamingTermsReducer = new StreamingTermsReducer(aggReduceContextBuilder.forPartialReduction().bigArrays());
+        }
     }
 
     @Override
     public void close() {
-        Releasables.close(pendingMerges);
+        Releasables.close(pendingMerges, streamingTermsReducer);
     }
 
     @Override
@@ -195,13 +251,29 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         final InternalAggregations newAggs;
         if (hasAggs) {
             List<InternalAggregations> aggsList = new ArrayList<>();
-            if (lastMerge != null) {
+            if (lastMerge != null && lastMerge.reducedAggs != null) {
                 aggsList.add(lastMerge.reducedAggs);
             }
             for (QuerySearchResult result : toConsume) {
-                aggsList.add(result.consumeAggs());
+                InternalAggregations aggs = result.consumeAggs();
+                if (streamingTermsReducer == null || streamingTermsReducer.accept(aggs) == false) {
+                    aggsList.add(aggs);
+                }
+            }
+            if (aggsList.isEmpty()) {
+                // all the shard results were streamed
+                newAggs = null;
+            } else {
+                if (streamingTermsReducer != null) {
+                    // fall back to reducing batches, starting with the shard results that were streamed so far
+                    if (streamingTermsReducer.isEmpty() == false) {
+                        aggsList.add(0, streamingTermsReducer.toPartialResult());
+                    }
+                    Releasables.close(streamingTermsReducer);
+                    streamingTermsReducer = null;
+                }
+                newAggs = InternalAggregations.topLevelReduce(aggsList, aggReduceContextBuilder.forPartialReduction());
             }
-            newAggs = InternalAggregations.topLevelReduce(aggsList, aggReduceContextBuilder.forPartialReduction());
         } else {
             newAggs = null;
         }
@@ -213,11 +285,24 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             SearchShardTarget target = result.getSearchShardTarget();
             processedShards.add(new SearchShard(target.getClusterAlias(), target.getShardId()));
         }
-        progressListener.notifyPartialReduce(processedShards, topDocsStats.getTotalHits(), newAggs, numReducePhases);
-        // we leave the results un-serialized because serializing is slow but we compute the serialized
-        // size as an estimate of the memory used by the newly reduced aggregations.
-        long serializedSize = hasAggs ? DelayableWriteable.getSerializedSize(newAggs) : 0;
-        return new MergeResult(processedShards, newTopDocs, newAggs, hasAggs ? serializedSize : 0);
+        final boolean streamed = hasAggs && newAggs == null;
+        progressListener.notifyPartialReduce(
+            processedShards,
+            topDocsStats.getTotalHits(),
+            // only build the partial result of the streamed aggregations if someone listens to it
+            streamed && progressListener != SearchProgressListener.NOOP ? streamingTermsReducer.toPartialResult() : newAggs,
+            numReducePhases
+        );
+        final long estimatedSize;
+        if (streamed) {
+            // the big arrays of the reducer already account its memory
+            estimatedSize = 0;
+        } else {
+            // we leave the results un-serialized because serializing is slow but we compute the serialized
+            // size as an estimate of the memory used by the newly reduced aggregations.
+            estimatedSize = hasAggs ? DelayableWriteable.getSerializedSize(newAggs) : 0;
+        }
+        return new MergeResult(processedShards, newTopDocs, newAggs, estimatedSize);
     }
 
     public int getNumReducePhases() {
@@ -488,9 +573,16 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
                 return Collections.emptyList();
             }
             List<InternalAggregations> aggsList = new ArrayList<>();
-            if (mergeResult != null) {
+            if (mergeResult != null && mergeResult.reducedAggs != null) {
                 aggsList.add(mergeResult.reducedAggs);
             }
+            if (streamingTermsReducer != null && streamingTermsReducer.isEmpty() == false) {
+                aggsList.add(streamingTermsReducer.toPartialResult());
+                // the partial result takes over from the pages of the reducer, and stays accounted until the final reduce completes
+                addWithoutBreaking(streamingTermsReducer.ramBytesUsed());
+                Releasables.close(streamingTermsReducer);
+                streamingTermsReducer = null;
+            }
             for (QuerySearchResult result : buffer) {
                 aggsList.add(result.consumeAggs());
             }
@@ -8,33 +8,58 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.transport.Transport;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 
 /**
  * A wrapper of search action listeners (search results) that unwraps the query
  * result to get the piggybacked queue size and service time EWMA, adding those
- * values to the coordinating nodes' {@link ResponseCollectorService}.
+ * values to the coordinating nodes' {@link ResponseCollectorService}. It also
+ * tells the collector when the request was sent and completed, and whether the
+ * node rejected it. A request is only reported as completed once, and only if
+ * it was reported as sent.
  */
 public final class SearchExecutionStatsCollector extends ActionListener.Delegating<SearchPhaseResult, SearchPhaseResult> {
 
     private final String nodeId;
     private final ResponseCollectorService collector;
-    private final long startNanos;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+    private volatile long startNanos;
 
     SearchExecutionStatsCollector(ActionListener<SearchPhaseResult> listener, ResponseCollectorService collector, String nodeId) {
         super(Objects.requireNonNull(listener, "listener cannot be null"));
         this.collector = Objects.requireNonNull(collector, "response collector cannot be null");
-        this.startNanos = System.nanoTime();
         this.nodeId = nodeId;
     }
 
+    /**
+     * Records that the request is about to be sent to the node. Must be called before the request is sent, so that its completion
+     * can't be reported first.
+     */
+    void onRequestSent() {
+        startNanos = System.nanoTime();
+        if (nodeId != null && inFlight.compareAndSet(false, true)) {
+            collector.onRequestSent(nodeId);
+        }
+    }
+
+    private boolean onRequestCompleted(boolean rejected) {
+        if (inFlight.compareAndSet(true, false)) {
+            collector.onRequestCompleted(nodeId, rejected);
+            return true;
+        }
+        return false;
+    }
+
     @SuppressWarnings("unchecked")
     public static
         BiFunction<Transport.Connection, SearchActionListener<? super SearchPhaseResult>, ActionListener<? super SearchPhaseResult>>
@@ -49,7 +74,7 @@ public final class SearchExecutionStatsCollector extends ActionListener.Delegati
     @Override
     public void onResponse(SearchPhaseResult response) {
         QuerySearchResult queryResult = response.queryResult();
-        if (nodeId != null && queryResult != null) {
+        if (onRequestCompleted(false) && queryResult != null) {
             final long serviceTimeEWMA = queryResult.serviceTimeEWMA();
             final int queueSize = queryResult.nodeQueueSize();
             final long responseDuration = System.nanoTime() - startNanos;
@@ -60,4 +85,10 @@ public final class SearchExecutionStatsCollector extends ActionListener.Delegati
         }
         delegate.onResponse(response);
     }
+
+    @Override
+    public void onFailure(Exception e) {
+        onRequestCompleted(ExceptionsHelper.unwrap(e, EsRejectedExecutionException.class) != null);
+        super.onFailure(e);
+    }
 }
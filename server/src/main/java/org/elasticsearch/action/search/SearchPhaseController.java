@@ -26,6 +26,7 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.lucene.grouping.TopFieldGroups;
+import org.elasticsearch.search.DocValueColumns;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -331,6 +332,10 @@ public final class SearchPhaseController {
         numSearchHits = Math.min(sortedTopDocs.scoreDocs.length - sortedTopDocs.numberOfCompletionsSuggestions, numSearchHits);
         // merge hits
         List<SearchHit> hits = new ArrayList<>();
+        // shards on nodes that don't support doc value columns return document fields instead
+        DocValueColumns docValueColumns = fetchResults.stream().anyMatch(r -> r.fetchResult().hits().getDocValueColumns() != null)
+            ? new DocValueColumns()
+            : null;
         if (fetchResults.isEmpty() == false) {
             for (int i = 0; i < numSearchHits; i++) {
                 ScoreDoc shardDoc = sortedTopDocs.scoreDocs[i];
@@ -358,6 +363,13 @@ public final class SearchPhaseController {
                     searchHit.score(shardDoc.score);
                 }
                 hits.add(searchHit);
+                if (docValueColumns != null) {
+                    if (fetchResult.hits().getDocValueColumns() != null) {
+                        docValueColumns.copyRow(fetchResult.hits().getDocValueColumns(), index);
+                    } else {
+                        docValueColumns.endRow();
+                    }
+                }
             }
         }
         return new SearchHits(
@@ -366,7 +378,8 @@ public final class SearchPhaseController {
             reducedQueryPhase.maxScore,
             sortedTopDocs.sortFields,
             sortedTopDocs.collapseField,
-            sortedTopDocs.collapseValues
+            sortedTopDocs.collapseValues,
+            docValueColumns
         );
     }
 
@@ -688,6 +701,23 @@ public final class SearchPhaseController {
         SearchRequest request,
         int numShards,
         Consumer<Exception> onPartialMergeFailure
+    ) {
+        return newSearchPhaseResults(executor, circuitBreaker, isCanceled, listener, request, numShards, onPartialMergeFailure, false);
+    }
+
+    /**
+     * Returns a new {@link QueryPhaseResultConsumer} instance that reduces search responses incrementally,
+     * streaming the results of top level {@code terms} aggregations if {@code streamingTermsReduce} is set.
+     */
+    QueryPhaseResultConsumer newSearchPhaseResults(
+        Executor executor,
+        CircuitBreaker circuitBreaker,
+        Supplier<Boolean> isCanceled,
+        SearchProgressListener listener,
+        SearchRequest request,
+        int numShards,
+        Consumer<Exception> onPartialMergeFailure,
+        boolean streamingTermsReduce
     ) {
         return new QueryPhaseResultConsumer(
             request,
@@ -697,7 +727,8 @@ public final class SearchPhaseController {
             isCanceled,
             listener,
             numShards,
-            onPartialMergeFailure
+            onPartialMergeFailure,
+            streamingTermsReduce
         );
     }
 
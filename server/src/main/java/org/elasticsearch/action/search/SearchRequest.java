@@ -102,6 +102,8 @@ public class SearchRequest extends ActionRequest implements IndicesRequest.Repla
 
     private TimeValue waitForCheckpointsTimeout = TimeValue.timeValueSeconds(30);
 
+    private boolean columnarDocValueFields;
+
     public SearchRequest() {
         this((Version) null);
     }
@@ -212,6 +214,7 @@ public class SearchRequest extends ActionRequest implements IndicesRequest.Repla
         this.minCompatibleShardNode = searchRequest.minCompatibleShardNode;
         this.waitForCheckpoints = searchRequest.waitForCheckpoints;
         this.waitForCheckpointsTimeout = searchRequest.waitForCheckpointsTimeout;
+        this.columnarDocValueFields = searchRequest.columnarDocValueFields;
     }
 
     /**
@@ -261,6 +264,9 @@ public class SearchRequest extends ActionRequest implements IndicesRequest.Repla
             waitForCheckpoints = in.readMap(StreamInput::readString, StreamInput::readLongArray);
             waitForCheckpointsTimeout = in.readTimeValue();
         }
+        if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+            columnarDocValueFields = in.readBoolean();
+        }
     }
 
     @Override
@@ -308,6 +314,9 @@ public class SearchRequest extends ActionRequest implements IndicesRequest.Repla
                     + "] or greater."
             );
         }
+        if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+            out.writeBoolean(columnarDocValueFields);
+        }
     }
 
     @Override
@@ -671,6 +680,24 @@ public class SearchRequest extends ActionRequest implements IndicesRequest.Repla
         this.waitForCheckpointsTimeout = waitForCheckpointsTimeout;
     }
 
+    /**
+     * Returns whether the values of the {@code docvalue_fields} of the top level hits are returned column by column in the
+     * {@link org.elasticsearch.search.SearchHits#getDocValueColumns() doc value columns} of the hits rather than as document fields of
+     * every hit.
+     */
+    public boolean columnarDocValueFields() {
+        return columnarDocValueFields;
+    }
+
+    /**
+     * Sets whether the values of the {@code docvalue_fields} of the top level hits are returned column by column, which saves
+     * building an object per hit and field for callers that consume the values by column anyway. Defaults to {@code false}. Shards on
+     * nodes that don't support it return document fields.
+     */
+    public void columnarDocValueFields(boolean columnarDocValueFields) {
+        this.columnarDocValueFields = columnarDocValueFields;
+    }
+
     /**
      * Sets a threshold that enforces a pre-filter roundtrip to pre-filter search shards based on query rewriting if the number of shards
      * the search request expands to exceeds the threshold. This filter roundtrip can limit the number of shards significantly if for
@@ -804,7 +831,8 @@ public class SearchRequest extends ActionRequest implements IndicesRequest.Repla
             && Objects.equals(localClusterAlias, that.localClusterAlias)
             && absoluteStartMillis == that.absoluteStartMillis
             && ccsMinimizeRoundtrips == that.ccsMinimizeRoundtrips
-            && Objects.equals(minCompatibleShardNode, that.minCompatibleShardNode);
+            && Objects.equals(minCompatibleShardNode, that.minCompatibleShardNode)
+            && columnarDocValueFields == that.columnarDocValueFields;
     }
 
     @Override
@@ -825,7 +853,8 @@ public class SearchRequest extends ActionRequest implements IndicesRequest.Repla
             localClusterAlias,
             absoluteStartMillis,
             ccsMinimizeRoundtrips,
-            minCompatibleShardNode
+            minCompatibleShardNode,
+            columnarDocValueFields
         );
     }
 
@@ -21,6 +21,7 @@ import org.elasticsearch.action.search.TransportSearchAction.SearchTimeProvider;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.lucene.grouping.TopFieldGroups;
+import org.elasticsearch.search.DocValueColumns;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchShardTarget;
@@ -308,7 +309,7 @@ final class SearchResponseMerger {
                     sortValues = hit.getRawSortValues();
                 }
             }
-            scoreDocs[i] = new FieldDocAndSearchHit(hit.docId(), hit.getScore(), sortValues, hit);
+            scoreDocs[i] = new FieldDocAndSearchHit(hit.docId(), hit.getScore(), sortValues, hit, searchHits.getDocValueColumns(), i);
         }
         return topDocs;
     }
@@ -358,14 +359,28 @@ final class SearchResponseMerger {
 
     private static SearchHits topDocsToSearchHits(TopDocs topDocs, TopDocsStats topDocsStats) {
         SearchHit[] searchHits;
+        DocValueColumns docValueColumns = null;
         if (topDocs == null) {
             // merged TopDocs is null whenever all clusters have returned empty hits
             searchHits = new SearchHit[0];
         } else {
             searchHits = new SearchHit[topDocs.scoreDocs.length];
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                if (((FieldDocAndSearchHit) scoreDoc).docValueColumns != null) {
+                    docValueColumns = new DocValueColumns();
+                    break;
+                }
+            }
             for (int i = 0; i < topDocs.scoreDocs.length; i++) {
                 FieldDocAndSearchHit scoreDoc = (FieldDocAndSearchHit) topDocs.scoreDocs[i];
                 searchHits[i] = scoreDoc.searchHit;
+                if (docValueColumns != null) {
+                    if (scoreDoc.docValueColumns != null) {
+                        docValueColumns.copyRow(scoreDoc.docValueColumns, scoreDoc.docValueColumnsRow);
+                    } else {
+                        docValueColumns.endRow();
+                    }
+                }
             }
         }
         SortField[] sortFields = null;
@@ -378,16 +393,28 @@ final class SearchResponseMerger {
                 groupValues = topFieldGroups.groupValues;
             }
         }
-        return new SearchHits(searchHits, topDocsStats.getTotalHits(), topDocsStats.getMaxScore(), sortFields, groupField, groupValues);
+        return new SearchHits(
+            searchHits,
+            topDocsStats.getTotalHits(),
+            topDocsStats.getMaxScore(),
+            sortFields,
+            groupField,
+            groupValues,
+            docValueColumns
+        );
     }
 
     private static final class FieldDocAndSearchHit extends FieldDoc {
         private final SearchHit searchHit;
+        private final DocValueColumns docValueColumns;
+        private final int docValueColumnsRow;
 
         // to simplify things, we use a FieldDoc all the time, even when only a ScoreDoc is needed, in which case fields are null.
-        FieldDocAndSearchHit(int doc, float score, Object[] fields, SearchHit searchHit) {
+        FieldDocAndSearchHit(int doc, float score, Object[] fields, SearchHit searchHit, DocValueColumns docValueColumns, int row) {
             super(doc, score, fields);
             this.searchHit = searchHit;
+            this.docValueColumns = docValueColumns;
+            this.docValueColumnsRow = row;
         }
     }
 
@@ -247,6 +247,9 @@ public class SearchTransportService {
         Writeable.Reader<SearchPhaseResult> reader = fetchDocuments ? QueryFetchSearchResult::new : in -> new QuerySearchResult(in, true);
 
         final ActionListener<? super SearchPhaseResult> handler = responseWrapper.apply(connection, listener);
+        if (handler instanceof SearchExecutionStatsCollector statsCollector) {
+            statsCollector.onRequestSent();
+        }
         transportService.sendChildRequest(
             connection,
             QUERY_ACTION_NAME,
@@ -131,6 +131,7 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     private final CircuitBreaker circuitBreaker;
     private final ExecutorSelector executorSelector;
     private final int defaultPreFilterShardSize;
+    private volatile boolean streamingTermsReduce;
 
     @Inject
     public TransportSearchAction(
@@ -159,6 +160,13 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.executorSelector = executorSelector;
         this.defaultPreFilterShardSize = DEFAULT_PRE_FILTER_SHARD_SIZE.get(clusterService.getSettings());
+        this.streamingTermsReduce = QueryPhaseResultConsumer.STREAMING_TERMS_REDUCE_SETTING.get(clusterService.getSettings());
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(QueryPhaseResultConsumer.STREAMING_TERMS_REDUCE_SETTING, this::setStreamingTermsReduce);
+    }
+
+    private void setStreamingTermsReduce(boolean streamingTermsReduce) {
+        this.streamingTermsReduce = streamingTermsReduce;
     }
 
     private Map<String, OriginalIndices> buildPerIndexOriginalIndices(
@@ -1189,7 +1197,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 task.getProgressListener(),
                 searchRequest,
                 shardIterators.size(),
-                exc -> searchTransportService.cancelSearchTask(task, "failed to merge result [" + exc.getMessage() + "]")
+                exc -> searchTransportService.cancelSearchTask(task, "failed to merge result [" + exc.getMessage() + "]"),
+                streamingTermsReduce
             );
             AbstractSearchAsyncAction<? extends SearchPhaseResult> searchAsyncAction = switch (searchRequest.searchType()) {
                 case DFS_QUERY_THEN_FETCH -> new SearchDfsQueryThenFetchAsyncAction(
@@ -175,7 +175,7 @@ public abstract class ReplicationRequest<Request extends ReplicationRequest<Requ
         return (Request) this;
     }
 
-    long routedBasedOnClusterVersion() {
+    protected long routedBasedOnClusterVersion() {
         return routedBasedOnClusterVersion;
     }
 
@@ -13,7 +13,6 @@ import org.elasticsearch.cluster.metadata.IndexGraveyard.IndexGraveyardDiff;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
-import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.gateway.GatewayService;
 import org.elasticsearch.index.Index;
 
@@ -39,6 +38,9 @@ public class ClusterChangedEvent {
 
     private final DiscoveryNodes.Delta nodesDelta;
 
+    // computed on first use, and then shared by all the appliers and listeners of this event
+    private volatile ClusterStateChangeSet changeSet;
+
     public ClusterChangedEvent(String source, ClusterState state, ClusterState previousState) {
         Objects.requireNonNull(source, "source must not be null");
         Objects.requireNonNull(state, "state must not be null");
@@ -142,25 +144,26 @@ public class ClusterChangedEvent {
      * returned iff they have been added, updated or removed between the previous and the current state
      */
     public Set<String> changedCustomMetadataSet() {
-        Set<String> result = new HashSet<>();
-        ImmutableOpenMap<String, Metadata.Custom> currentCustoms = state.metadata().customs();
-        ImmutableOpenMap<String, Metadata.Custom> previousCustoms = previousState.metadata().customs();
-        if (currentCustoms.equals(previousCustoms) == false) {
-            for (Map.Entry<String, Metadata.Custom> currentCustomMetadata : currentCustoms.entrySet()) {
-                // new custom md added or existing custom md changed
-                if (previousCustoms.containsKey(currentCustomMetadata.getKey()) == false
-                    || currentCustomMetadata.getValue().equals(previousCustoms.get(currentCustomMetadata.getKey())) == false) {
-                    result.add(currentCustomMetadata.getKey());
-                }
-            }
-            // existing custom md deleted
-            for (Map.Entry<String, Metadata.Custom> previousCustomMetadata : previousCustoms.entrySet()) {
-                if (currentCustoms.containsKey(previousCustomMetadata.getKey()) == false) {
-                    result.add(previousCustomMetadata.getKey());
-                }
-            }
+        final ClusterStateChangeSet changeSet = this.changeSet;
+        if (changeSet != null) {
+            return changeSet.changedCustomMetadata();
+        }
+        return ClusterStateChangeSet.changedCustomMetadata(state.metadata().customs(), previousState.metadata().customs());
+    }
+
+    /**
+     * Returns the indices and shards whose metadata or routing changed between the previous cluster state and the new cluster
+     * state, and the custom metadata that changed. The change set is computed once and shared by all the callers, except for the
+     * routing changes which are only computed if a caller asks for them.
+     */
+    public ClusterStateChangeSet changeSet() {
+        ClusterStateChangeSet changeSet = this.changeSet;
+        if (changeSet == null) {
+            // computing it twice concurrently is harmless
+            changeSet = ClusterStateChangeSet.between(previousState, state);
+            this.changeSet = changeSet;
         }
-        return result;
+        return changeSet;
     }
 
     /**
@@ -0,0 +1,241 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.cluster;
+
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of the metadata and of the routing table that changed between two cluster states, so that cluster state appliers and
+ * listeners can only look at the indices and shards that changed instead of walking the whole cluster state. It is computed once per
+ * applied cluster state, see {@link ClusterChangedEvent#changeSet()}.
+ * <p>
+ * Index metadata is compared by reference, like {@link ClusterChangedEvent#indexMetadataChanged} does, since the same instance is kept
+ * across cluster states as long as the index metadata doesn't change. Routing tables are compared by reference first and then by value,
+ * because the master rebuilds the whole routing table when it reroutes even if the routing of most indices stayed the same. Comparing
+ * routing tables by value visits every shard, so the routing changes are only computed when they are first asked for.
+ */
+public final class ClusterStateChangeSet {
+
+    private final Set<Index> indicesWithChangedMetadata;
+    private final Set<Index> indicesRemovedFromMetadata;
+    private final Set<String> changedCustomMetadata;
+    private final RoutingTable routingTable;
+    private final RoutingTable previousRoutingTable;
+
+    // computed on first use, since most callers only need the metadata changes
+    private volatile RoutingChanges routingChanges;
+
+    private ClusterStateChangeSet(
+        Set<Index> indicesWithChangedMetadata,
+        Set<Index> indicesRemovedFromMetadata,
+        Set<String> changedCustomMetadata,
+        RoutingTable routingTable,
+        RoutingTable previousRoutingTable
+    ) {
+        this.indicesWithChangedMetadata = Collections.unmodifiableSet(indicesWithChangedMetadata);
+        this.indicesRemovedFromMetadata = Collections.unmodifiableSet(indicesRemovedFromMetadata);
+        this.changedCustomMetadata = Collections.unmodifiableSet(changedCustomMetadata);
+        this.routingTable = routingTable;
+        this.previousRoutingTable = previousRoutingTable;
+    }
+
+    /**
+     * Computes the changes between the given cluster states.
+     */
+    public static ClusterStateChangeSet between(ClusterState previousState, ClusterState state) {
+        final Set<Index> indicesWithChangedMetadata = new HashSet<>();
+        final Set<Index> indicesRemovedFromMetadata = new HashSet<>();
+        final Metadata metadata = state.metadata();
+        final Metadata previousMetadata = previousState.metadata();
+        if (metadata != previousMetadata) {
+            for (IndexMetadata indexMetadata : metadata.indices().values()) {
+                if (previousMetadata.index(indexMetadata.getIndex()) != indexMetadata) {
+                    indicesWithChangedMetadata.add(indexMetadata.getIndex());
+                }
+            }
+            for (IndexMetadata previousIndexMetadata : previousMetadata.indices().values()) {
+                if (metadata.index(previousIndexMetadata.getIndex()) == null) {
+                    indicesRemovedFromMetadata.add(previousIndexMetadata.getIndex());
+                }
+            }
+        }
+        return new ClusterStateChangeSet(
+            indicesWithChangedMetadata,
+            indicesRemovedFromMetadata,
+            changedCustomMetadata(metadata.customs(), previousMetadata.customs()),
+            state.routingTable(),
+            previousState.routingTable()
+        );
+    }
+
+    /**
+     * Returns the types of the custom metadata that were added, changed or removed between the given customs.
+     */
+    static Set<String> changedCustomMetadata(
+        ImmutableOpenMap<String, Metadata.Custom> currentCustoms,
+        ImmutableOpenMap<String, Metadata.Custom> previousCustoms
+    ) {
+        Set<String> result = new HashSet<>();
+        if (currentCustoms.equals(previousCustoms) == false) {
+            for (Map.Entry<String, Metadata.Custom> currentCustomMetadata : currentCustoms.entrySet()) {
+                // new custom md added or existing custom md changed
+                if (previousCustoms.containsKey(currentCustomMetadata.getKey()) == false
+                    || currentCustomMetadata.getValue().equals(previousCustoms.get(currentCustomMetadata.getKey())) == false) {
+                    result.add(currentCustomMetadata.getKey());
+                }
+            }
+            // existing custom md deleted
+            for (Map.Entry<String, Metadata.Custom> previousCustomMetadata : previousCustoms.entrySet()) {
+                if (currentCustoms.containsKey(previousCustomMetadata.getKey()) == false) {
+                    result.add(previousCustomMetadata.getKey());
+                }
+            }
+        }
+        return result;
+    }
+
+    private RoutingChanges routingChanges() {
+        RoutingChanges routingChanges = this.routingChanges;
+        if (routingChanges == null) {
+            // computing them twice concurrently is harmless
+            routingChanges = RoutingChanges.between(previousRoutingTable, routingTable);
+            this.routingChanges = routingChanges;
+        }
+        return routingChanges;
+    }
+
+    /**
+     * Returns the indices of the new cluster state whose {@link IndexMetadata} was added or changed.
+     */
+    public Set<Index> indicesWithChangedMetadata() {
+        return indicesWithChangedMetadata;
+    }
+
+    /**
+     * Returns the indices of the previous cluster state that are not part of the metadata of the new cluster state anymore.
+     */
+    public Set<Index> indicesRemovedFromMetadata() {
+        return indicesRemovedFromMetadata;
+    }
+
+    /**
+     * Returns the indices whose routing table was added, changed or removed.
+     */
+    public Set<Index> indicesWithChangedRouting() {
+        return routingChanges().indices();
+    }
+
+    /**
+     * Returns the shards whose routing entries were added, changed or removed.
+     */
+    public Set<ShardId> shardsWithChangedRouting() {
+        return routingChanges().shards();
+    }
+
+    /**
+     * Returns the types of the custom metadata that were added, changed or removed.
+     */
+    public Set<String> changedCustomMetadata() {
+        return changedCustomMetadata;
+    }
+
+    /**
+     * Returns {@code true} iff the {@link IndexMetadata} of the given index was added or changed.
+     */
+    public boolean indexMetadataChanged(Index index) {
+        return indicesWithChangedMetadata.contains(index);
+    }
+
+    /**
+     * Returns {@code true} iff the routing entries of the given shard were added, changed or removed.
+     */
+    public boolean shardRoutingChanged(ShardId shardId) {
+        return routingChanges().shards().contains(shardId);
+    }
+
+    /**
+     * Returns {@code true} iff neither the metadata of the indices, nor the routing table, nor the custom metadata changed.
+     */
+    public boolean isEmpty() {
+        return indicesWithChangedMetadata.isEmpty()
+            && indicesRemovedFromMetadata.isEmpty()
+            && changedCustomMetadata.isEmpty()
+            && routingChanges().indices().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterStateChangeSet{"
+            + "indicesWithChangedMetadata="
+            + indicesWithChangedMetadata
+            + ", indicesRemovedFromMetadata="
+            + indicesRemovedFromMetadata
+            + ", changedCustomMetadata="
+            + changedCustomMetadata
+            + ", routingChanges="
+            + routingChanges
+            + '}';
+    }
+
+    /**
+     * The indices and shards whose routing entries were added, changed or removed.
+     */
+    private record RoutingChanges(Set<Index> indices, Set<ShardId> shards) {
+
+        static RoutingChanges between(RoutingTable previousRoutingTable, RoutingTable routingTable) {
+            final Set<Index> indicesWithChangedRouting = new HashSet<>();
+            final Set<ShardId> shardsWithChangedRouting = new HashSet<>();
+            if (routingTable != previousRoutingTable) {
+                for (IndexRoutingTable indexRoutingTable : routingTable.indicesRouting().values()) {
+                    final IndexRoutingTable previousIndexRoutingTable = previousRoutingTable.index(indexRoutingTable.getIndex());
+                    if (previousIndexRoutingTable == indexRoutingTable) {
+                        continue;
+                    }
+                    boolean changed = false;
+                    for (IndexShardRoutingTable indexShardRoutingTable : indexRoutingTable) {
+                        final IndexShardRoutingTable previousIndexShardRoutingTable = previousIndexRoutingTable == null
+                            ? null
+                            : previousIndexRoutingTable.shard(indexShardRoutingTable.shardId().id());
+                        if (indexShardRoutingTable.equals(previousIndexShardRoutingTable) == false) {
+                            shardsWithChangedRouting.add(indexShardRoutingTable.shardId());
+                            changed = true;
+                        }
+                    }
+                    if (changed || previousIndexRoutingTable == null) {
+                        indicesWithChangedRouting.add(indexRoutingTable.getIndex());
+                    }
+                }
+                for (IndexRoutingTable previousIndexRoutingTable : previousRoutingTable.indicesRouting().values()) {
+                    if (routingTable.index(previousIndexRoutingTable.getIndex()) == null) {
+                        indicesWithChangedRouting.add(previousIndexRoutingTable.getIndex());
+                        for (IndexShardRoutingTable previousIndexShardRoutingTable : previousIndexRoutingTable) {
+                            shardsWithChangedRouting.add(previousIndexShardRoutingTable.shardId());
+                        }
+                    }
+                }
+            }
+            return new RoutingChanges(
+                Collections.unmodifiableSet(indicesWithChangedRouting),
+                Collections.unmodifiableSet(shardsWithChangedRouting)
+            );
+        }
+    }
+}
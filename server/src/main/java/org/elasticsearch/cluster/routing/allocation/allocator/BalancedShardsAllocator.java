@@ -12,9 +12,11 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IntroSorter;
+import org.elasticsearch.cluster.ClusterInfo;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.cluster.metadata.SingleNodeShutdownMetadata;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -31,11 +33,13 @@ import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision.Type;
 import org.elasticsearch.cluster.routing.allocation.decider.DiskThresholdDecider;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.gateway.PriorityComparator;
 
@@ -63,6 +67,8 @@ import static org.elasticsearch.cluster.routing.ShardRoutingState.RELOCATING;
  * of {@link org.elasticsearch.cluster.routing.ShardRouting}s per index allocated on a specific node</li>
  * <li><code>cluster.routing.allocation.balance.threshold</code> - A <b>threshold</b> to set the minimal optimization
  * value of operations that should be performed</li>
+ * <li><code>cluster.routing.allocation.balance.incremental</code> - Whether the index level allocation decisions are kept
+ * across reroutes, see {@link #INCREMENTAL_BALANCE_SETTING}</li>
  * </ul>
  * <p>
  * These parameters are combined in a {@link WeightFunction} that allows calculation of node weights which
@@ -93,9 +99,24 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         Property.Dynamic,
         Property.NodeScope
     );
+    /**
+     * Balancing the cluster asks the allocation deciders on which nodes the shards of each index may be allocated, which is
+     * O(indices &times; nodes) per reroute. If set, these decisions are kept across reroutes and only asked again for the indices whose
+     * metadata changed, or for all indices if the nodes, the cluster settings or the cluster info changed. Indices whose shards are
+     * balanced are then skipped without sorting the nodes. Deciders that depend on other inputs, like the frozen cache of the nodes, are
+     * only taken into account on the next reroute that asks all the deciders again.
+     */
+    public static final Setting<Boolean> INCREMENTAL_BALANCE_SETTING = Setting.boolSetting(
+        "cluster.routing.allocation.balance.incremental",
+        false,
+        Property.Dynamic,
+        Property.NodeScope
+    );
 
     private volatile WeightFunction weightFunction;
     private volatile float threshold;
+    private volatile boolean incrementalBalance;
+    private final ExcludedNodesCache excludedNodesCache = new ExcludedNodesCache();
 
     public BalancedShardsAllocator(Settings settings) {
         this(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
@@ -105,8 +126,10 @@ public class BalancedShardsAllocator implements ShardsAllocator {
     public BalancedShardsAllocator(Settings settings, ClusterSettings clusterSettings) {
         setWeightFunction(INDEX_BALANCE_FACTOR_SETTING.get(settings), SHARD_BALANCE_FACTOR_SETTING.get(settings));
         setThreshold(THRESHOLD_SETTING.get(settings));
+        setIncrementalBalance(INCREMENTAL_BALANCE_SETTING.get(settings));
         clusterSettings.addSettingsUpdateConsumer(INDEX_BALANCE_FACTOR_SETTING, SHARD_BALANCE_FACTOR_SETTING, this::setWeightFunction);
         clusterSettings.addSettingsUpdateConsumer(THRESHOLD_SETTING, this::setThreshold);
+        clusterSettings.addSettingsUpdateConsumer(INCREMENTAL_BALANCE_SETTING, this::setIncrementalBalance);
     }
 
     private void setWeightFunction(float indexBalance, float shardBalanceFactor) {
@@ -117,13 +140,23 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         this.threshold = threshold;
     }
 
+    private void setIncrementalBalance(boolean incrementalBalance) {
+        this.incrementalBalance = incrementalBalance;
+        if (incrementalBalance == false) {
+            synchronized (excludedNodesCache) {
+                excludedNodesCache.clear();
+            }
+        }
+    }
+
     @Override
     public void allocate(RoutingAllocation allocation) {
         if (allocation.routingNodes().size() == 0) {
             failAllocationOfNewPrimaries(allocation);
             return;
         }
-        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
+        final ExcludedNodesCache cache = incrementalBalance ? excludedNodesCache : null;
+        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold, cache);
         balancer.allocateUnassigned();
         balancer.moveShards();
         balancer.balance();
@@ -238,8 +271,12 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         }
 
         float weight(Balancer balancer, ModelNode node, String index) {
-            final float weightShard = node.numShards() - balancer.avgShardsPerNode();
-            final float weightIndex = node.numShards(index) - balancer.avgShardsPerNode(index);
+            return weight(balancer.avgShardsPerNode(), balancer.avgShardsPerNode(index), node, index);
+        }
+
+        float weight(float avgShardsPerNode, float avgShardsPerNodeOfIndex, ModelNode node, String index) {
+            final float weightShard = node.numShards() - avgShardsPerNode;
+            final float weightIndex = node.numShards(index) - avgShardsPerNodeOfIndex;
             return theta0 * weightShard + theta1 * weightIndex;
         }
     }
@@ -258,9 +295,22 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         private final Metadata metadata;
         private final float avgShardsPerNode;
         private final NodeSorter sorter;
+        @Nullable
+        private final ExcludedNodesCache excludedNodesCache;
 
         public Balancer(Logger logger, RoutingAllocation allocation, WeightFunction weight, float threshold) {
+            this(logger, allocation, weight, threshold, null);
+        }
+
+        Balancer(
+            Logger logger,
+            RoutingAllocation allocation,
+            WeightFunction weight,
+            float threshold,
+            @Nullable ExcludedNodesCache excludedNodesCache
+        ) {
             this.logger = logger;
+            this.excludedNodesCache = excludedNodesCache;
             this.allocation = allocation;
             this.weight = weight;
             this.threshold = threshold;
@@ -348,7 +398,15 @@ public class BalancedShardsAllocator implements ShardsAllocator {
                 logger.trace("skipping rebalance as single node only");
                 return;
             }
-            balanceByWeights();
+            if (excludedNodesCache == null) {
+                balanceByWeights();
+            } else {
+                // the cache is shared by all the allocations of this allocator
+                synchronized (excludedNodesCache) {
+                    excludedNodesCache.refresh(allocation);
+                    balanceByWeights();
+                }
+            }
         }
 
         /**
@@ -490,6 +548,9 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             final float[] weights = sorter.weights;
             for (String index : buildWeightOrderedIndices()) {
                 IndexMetadata indexMetadata = metadata.index(index);
+                final Set<String> excludedNodes = excludedNodesCache == null
+                    ? null
+                    : excludedNodesCache.excludedNodes(indexMetadata, modelNodes, allocation);
 
                 // find nodes that have a shard of this index or where shards of this index are allowed to be allocated to,
                 // move these nodes to the front of modelNodes so that we can only balance based on these nodes
@@ -497,7 +558,9 @@ public class BalancedShardsAllocator implements ShardsAllocator {
                 for (int i = 0; i < modelNodes.length; i++) {
                     ModelNode modelNode = modelNodes[i];
                     if (modelNode.getIndex(index) != null
-                        || deciders.canAllocate(indexMetadata, modelNode.getRoutingNode(), allocation).type() != Type.NO) {
+                        || (excludedNodes == null
+                            ? deciders.canAllocate(indexMetadata, modelNode.getRoutingNode(), allocation).type() != Type.NO
+                            : excludedNodes.contains(modelNode.getNodeId()) == false)) {
                         // swap nodes at position i and relevantNodes
                         modelNodes[i] = modelNodes[relevantNodes];
                         modelNodes[relevantNodes] = modelNode;
@@ -508,6 +571,10 @@ public class BalancedShardsAllocator implements ShardsAllocator {
                 if (relevantNodes < 2) {
                     continue;
                 }
+                if (excludedNodesCache != null && lessThan(unsortedDelta(index, relevantNodes), threshold)) {
+                    // balanced already, the loop below wouldn't relocate anything but only sort the nodes
+                    continue;
+                }
 
                 sorter.reset(index, 0, relevantNodes);
                 int lowIdx = 0;
@@ -622,8 +689,12 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
             final float[] deltas = new float[indices.length];
             for (int i = 0; i < deltas.length; i++) {
-                sorter.reset(indices[i]);
-                deltas[i] = sorter.delta();
+                if (excludedNodesCache == null) {
+                    sorter.reset(indices[i]);
+                    deltas[i] = sorter.delta();
+                } else {
+                    deltas[i] = unsortedDelta(indices[i], sorter.modelNodes.length);
+                }
             }
             new IntroSorter() {
 
@@ -658,6 +729,24 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             return indices;
         }
 
+        /**
+         * Returns the delta between the highest and the lowest weight of the first {@code numNodes} nodes of the sorter with respect to
+         * the given index, like {@link NodeSorter#delta()} but without sorting the nodes. If this delta is under the threshold then
+         * {@link #balanceByWeights()} won't relocate any shard of the index since the delta of any narrower range of nodes is lower.
+         */
+        private float unsortedDelta(String index, int numNodes) {
+            final ModelNode[] modelNodes = sorter.modelNodes;
+            final float avgShardsPerNodeOfIndex = avgShardsPerNode(index);
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < numNodes; i++) {
+                final float nodeWeight = weight.weight(avgShardsPerNode, avgShardsPerNodeOfIndex, modelNodes[i], index);
+                min = Math.min(min, nodeWeight);
+                max = Math.max(max, nodeWeight);
+            }
+            return max - min;
+        }
+
         /**
          * Move started shards that can not be allocated to a node anymore
          *
@@ -1093,6 +1182,79 @@ public class BalancedShardsAllocator implements ShardsAllocator {
 
     }
 
+    /**
+     * Remembers the nodes to which the allocation deciders don't allow to allocate the shards of each index, as decided by
+     * {@link AllocationDeciders#canAllocate(IndexMetadata, RoutingNode, RoutingAllocation)}, across reroutes. The decisions of an index are
+     * reused as long as its {@link IndexMetadata} is the same instance and the nodes, the cluster settings, the custom metadata, the
+     * cluster info and the deciders are the same, which is the case for most reroutes, e.g. the ones that follow the start of a shard.
+     * Custom metadata is compared by value since every new {@link Metadata} has a new map of them, deciders read some of them, e.g. the
+     * registered repositories or the node shutdowns.
+     */
+    static final class ExcludedNodesCache {
+        private final Map<String, ExcludedNodes> indices = new HashMap<>();
+        // indices with the same filters share the same set, there are usually only a few distinct ones, e.g. one per data tier
+        private final Map<Set<String>, Set<String>> distinctExcludedNodes = new HashMap<>();
+        private DiscoveryNodes nodes;
+        private Settings clusterSettings;
+        private ImmutableOpenMap<String, Metadata.Custom> customs;
+        private ClusterInfo clusterInfo;
+        private AllocationDeciders deciders;
+
+        /**
+         * Drops all the decisions if the inputs of the deciders other than the index metadata changed since the last allocation, and the
+         * decisions of the deleted indices otherwise.
+         */
+        void refresh(RoutingAllocation allocation) {
+            final Metadata metadata = allocation.metadata();
+            if (allocation.nodes() != nodes
+                || allocation.clusterInfo() != clusterInfo
+                || allocation.deciders() != deciders
+                || metadata.settings().equals(clusterSettings) == false
+                || metadata.customs().equals(customs) == false) {
+                clear();
+                nodes = allocation.nodes();
+                clusterSettings = metadata.settings();
+                customs = metadata.customs();
+                clusterInfo = allocation.clusterInfo();
+                deciders = allocation.deciders();
+            } else {
+                indices.keySet().removeIf(index -> metadata.hasIndex(index) == false);
+            }
+        }
+
+        void clear() {
+            indices.clear();
+            distinctExcludedNodes.clear();
+            nodes = null;
+            clusterSettings = null;
+            customs = null;
+            clusterInfo = null;
+            deciders = null;
+        }
+
+        /**
+         * Returns the ids of the nodes to which the shards of the given index must not be allocated, asking the deciders about all the
+         * given nodes unless the decisions for this {@link IndexMetadata} instance are cached already.
+         */
+        Set<String> excludedNodes(IndexMetadata indexMetadata, ModelNode[] modelNodes, RoutingAllocation allocation) {
+            final ExcludedNodes cached = indices.get(indexMetadata.getIndex().getName());
+            if (cached != null && cached.indexMetadata() == indexMetadata) {
+                return cached.nodeIds();
+            }
+            final Set<String> nodeIds = new HashSet<>();
+            for (ModelNode modelNode : modelNodes) {
+                if (allocation.deciders().canAllocate(indexMetadata, modelNode.getRoutingNode(), allocation).type() == Type.NO) {
+                    nodeIds.add(modelNode.getNodeId());
+                }
+            }
+            final Set<String> excludedNodes = distinctExcludedNodes.computeIfAbsent(nodeIds, Set::copyOf);
+            indices.put(indexMetadata.getIndex().getName(), new ExcludedNodes(indexMetadata, excludedNodes));
+            return excludedNodes;
+        }
+
+        private record ExcludedNodes(IndexMetadata indexMetadata, Set<String> nodeIds) {}
+    }
+
     static class ModelNode implements Iterable<ModelIndex> {
         private final Map<String, ModelIndex> indices = new HashMap<>();
         private int numShards = 0;
@@ -127,16 +127,28 @@ public class Cache<K, V> {
         this.maximumWeight = maximumWeight;
     }
 
+    long getMaximumWeight() {
+        return this.maximumWeight;
+    }
+
     void setWeigher(ToLongBiFunction<K, V> weigher) {
         Objects.requireNonNull(weigher);
         this.weigher = weigher;
     }
 
+    ToLongBiFunction<K, V> getWeigher() {
+        return this.weigher;
+    }
+
     void setRemovalListener(RemovalListener<K, V> removalListener) {
         Objects.requireNonNull(removalListener);
         this.removalListener = removalListener;
     }
 
+    RemovalListener<K, V> getRemovalListener() {
+        return this.removalListener;
+    }
+
     /**
      * The relative time used to track time-based evictions.
      *
@@ -14,6 +14,23 @@ import java.util.Objects;
 import java.util.function.ToLongBiFunction;
 
 public class CacheBuilder<K, V> {
+
+    /**
+     * The policy that decides which entries are evicted once a cache exceeds its maximum weight.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evicts the least recently used entry, see {@link Cache}.
+         */
+        LRU,
+        /**
+         * Admits new entries only if they are used more frequently than the entries they would evict, with reads that never take a
+         * lock, see {@link TinyLfuCache}.
+         */
+        TINY_LFU
+    }
+
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
     private long maximumWeight = -1;
     private long expireAfterAccessNanos = -1;
     private long expireAfterWriteNanos = -1;
@@ -78,8 +95,17 @@ public class CacheBuilder<K, V> {
         return this;
     }
 
+    public CacheBuilder<K, V> setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        Objects.requireNonNull(evictionPolicy);
+        this.evictionPolicy = evictionPolicy;
+        return this;
+    }
+
     public Cache<K, V> build() {
-        Cache<K, V> cache = new Cache<>();
+        Cache<K, V> cache = switch (evictionPolicy) {
+            case LRU -> new Cache<>();
+            case TINY_LFU -> new TinyLfuCache<>();
+        };
         if (maximumWeight != -1) {
             cache.setMaximumWeight(maximumWeight);
         }
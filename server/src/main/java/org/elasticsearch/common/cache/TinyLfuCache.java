@@ -0,0 +1,721 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A concurrent cache whose reads never take a lock, built with {@link CacheBuilder.EvictionPolicy#TINY_LFU}.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}. Rather than moving an entry to the head of an LRU list on every hit like
+ * {@link Cache} does, a read records the entry into a small striped buffer that drops accesses when it is full, and a write
+ * records its change into an unbounded queue. Both are replayed against the eviction policy in batches by the thread that holds
+ * the eviction lock, so that a hit only costs a map lookup and a buffer append. Readers only ever try to acquire the eviction
+ * lock, writers acquire it to keep the weight of the cache bounded.
+ * <p>
+ * The eviction policy is W-TinyLFU. New entries enter a small LRU admission window that holds 1% of the maximum weight. Entries
+ * that overflow the window compete with the least recently used entry of the probation segment of a segmented LRU, and the
+ * entry that a {@link FrequencySketch} estimates to be used less frequently is evicted. Entries of the probation segment that
+ * are accessed again are promoted to the protected segment, which holds up to 80% of the main space. This keeps entries that are
+ * read once from flushing frequently used entries out of the cache.
+ * <p>
+ * Expired entries are never returned. They are evicted when the eviction policy is maintained if they are the least recently used
+ * entry of their segment, and by a full scan when {@link #refresh()} is called. Unlike {@link Cache}, {@link #keys()},
+ * {@link #values()} and {@link #forEach(BiConsumer)} iterate in no particular order.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+class TinyLfuCache<K, V> extends Cache<K, V> {
+
+    // the number of read buffers, threads are spread across them to limit contention
+    private static final int READ_BUFFER_COUNT = ceilingPowerOfTwo(4 * Runtime.getRuntime().availableProcessors());
+    // the number of accesses that each read buffer holds before dropping accesses
+    private static final int READ_BUFFER_SIZE = 16;
+    // the number of pending accesses in a read buffer that triggers an attempt at maintaining the eviction policy
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 4;
+
+    private static final double WINDOW_PERCENTAGE = 0.01d;
+    private static final double PROTECTED_PERCENTAGE = 0.80d;
+
+    // the queues that an entry can belong to in the eviction policy
+    private static final byte NONE = 0;
+    private static final byte WINDOW = 1;
+    private static final byte PROBATION = 2;
+    private static final byte PROTECTED = 3;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final ConcurrentMap<K, Node<K, V>> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+
+    @SuppressWarnings("unchecked")
+    private final ReadBuffer<K, V>[] readBuffers = (ReadBuffer<K, V>[]) Array.newInstance(ReadBuffer.class, READ_BUFFER_COUNT);
+
+    private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    // lock protecting the eviction policy, everything below is guarded by it
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AccessOrderQueue<K, V> window = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K, V> probation = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K, V> protectedQueue = new AccessOrderQueue<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private List<Node<K, V>> pendingEvictions = new ArrayList<>();
+
+    // the number of entries in the cache, read without the lock
+    private volatile int count = 0;
+
+    // the weight of the entries in the cache, read without the lock
+    private volatile long weight = 0;
+
+    // use CacheBuilder to construct
+    TinyLfuCache() {
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        // completed with the value once it is loaded, never completed with null
+        final CompletableFuture<V> future;
+        final long writeTime;
+        volatile long accessTime;
+
+        // guarded by the eviction lock
+        Node<K, V> previous;
+        Node<K, V> next;
+        byte queue = NONE;
+        long weight;
+        // whether this node was removed from the eviction policy, after which it must not be added to it
+        boolean retired;
+
+        Node(K key, CompletableFuture<V> future, long writeTime) {
+            this.key = key;
+            this.future = future;
+            this.writeTime = this.accessTime = writeTime;
+        }
+
+        /**
+         * Returns the value of the node, waiting for it to be loaded if needed, or null if loading it failed.
+         */
+        V value() {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                return null;
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Returns the value of the node, or null if it is still being loaded or if loading it failed.
+         */
+        V valueIfLoaded() {
+            return future.isDone() ? value() : null;
+        }
+    }
+
+    /**
+     * A doubly-linked list of nodes from the least to the most recently used, tracking the weight of its nodes.
+     */
+    private static final class AccessOrderQueue<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        long weight;
+
+        void addLast(Node<K, V> node) {
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                assert head == node;
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                assert tail == node;
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * A bounded buffer of accessed nodes that drops accesses when it is full or contended. Any number of threads append to the
+     * buffer while a single thread drains it under the eviction lock.
+     */
+    private static final class ReadBuffer<K, V> {
+        private final AtomicReferenceArray<Node<K, V>> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicLong writeCount = new AtomicLong();
+        // only written under the eviction lock
+        private volatile long readCount;
+
+        /**
+         * Records an access to the node.
+         *
+         * @return whether the buffer holds enough pending accesses that it should be drained
+         */
+        boolean offer(Node<K, V> node) {
+            final long head = readCount;
+            final long tail = writeCount.get();
+            final long size = tail - head;
+            if (size >= READ_BUFFER_SIZE) {
+                return true;
+            }
+            if (writeCount.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & (READ_BUFFER_SIZE - 1)), node);
+                return size + 1 >= READ_BUFFER_DRAIN_THRESHOLD;
+            }
+            // another thread raced us, drop the access
+            return false;
+        }
+
+        void drain(TinyLfuCache<K, V> cache) {
+            long head = readCount;
+            final long tail = writeCount.get();
+            for (; head < tail; head++) {
+                final int index = (int) (head & (READ_BUFFER_SIZE - 1));
+                final Node<K, V> node = buffer.get(index);
+                if (node == null) {
+                    // the access is not published yet, it will be drained next time
+                    break;
+                }
+                buffer.lazySet(index, null);
+                cache.onAccess(node);
+            }
+            readCount = head;
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        return get(key, now(), false);
+    }
+
+    private V get(K key, long now, boolean eagerEvict) {
+        final Node<K, V> node = map.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        final V value = node.value();
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        if (isExpired(node, now)) {
+            misses.increment();
+            if (eagerEvict) {
+                removeExpired(node);
+            }
+            return null;
+        }
+        hits.increment();
+        if (getExpireAfterAccessNanos() != -1) {
+            node.accessTime = now;
+        }
+        afterRead(node);
+        return value;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, CacheLoader<K, V> loader) throws ExecutionException {
+        final long now = now();
+        // we have to eagerly evict expired entries or our putIfAbsent call below will fail
+        final V value = get(key, now, true);
+        if (value != null) {
+            return value;
+        }
+        // the loader is invoked outside of any lock to avoid deadlocks due to dependent key loading, and at most once per key since
+        // concurrent callers wait for the future of the node that won the race to be put into the map
+        final Node<K, V> node = new Node<>(key, new CompletableFuture<>(), now);
+        final Node<K, V> existing = map.putIfAbsent(key, node);
+        if (existing != null) {
+            final V existingValue;
+            try {
+                existingValue = existing.future.get();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            afterRead(existing);
+            return existingValue;
+        }
+
+        final V loaded;
+        try {
+            loaded = loader.load(key);
+        } catch (Exception e) {
+            map.remove(key, node);
+            node.future.completeExceptionally(e);
+            throw new ExecutionException(e);
+        }
+        if (loaded == null) {
+            NullPointerException npe = new NullPointerException("loader returned a null value");
+            map.remove(key, node);
+            node.future.completeExceptionally(npe);
+            throw new ExecutionException(npe);
+        }
+        node.future.complete(loaded);
+        final long weight = getWeigher().applyAsLong(key, loaded);
+        afterWrite(() -> onAdd(node, weight));
+        return loaded;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        final Node<K, V> node = new Node<>(key, CompletableFuture.completedFuture(value), now());
+        final long weight = getWeigher().applyAsLong(key, value);
+        final Node<K, V> existing = map.put(key, node);
+        if (existing == null) {
+            afterWrite(() -> onAdd(node, weight));
+        } else {
+            afterWrite(() -> {
+                onRemove(existing);
+                onAdd(node, weight);
+            });
+            notifyRemoval(existing, RemovalNotification.RemovalReason.REPLACED);
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        final Node<K, V> existing = map.remove(key);
+        if (existing != null) {
+            evictions.increment();
+            afterWrite(() -> onRemove(existing));
+            notifyRemoval(existing, RemovalNotification.RemovalReason.INVALIDATED);
+        }
+    }
+
+    @Override
+    public void invalidate(K key, V value) {
+        final Node<K, V> existing = map.get(key);
+        if (existing != null && Objects.equals(value, existing.valueIfLoaded()) && map.remove(key, existing)) {
+            evictions.increment();
+            afterWrite(() -> onRemove(existing));
+            notifyRemoval(existing, RemovalNotification.RemovalReason.INVALIDATED);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        final List<Node<K, V>> removed = new ArrayList<>();
+        for (Node<K, V> node : map.values()) {
+            if (map.remove(node.key, node)) {
+                removed.add(node);
+                writeBuffer.add(() -> onRemove(node));
+            }
+        }
+        maintain();
+        for (Node<K, V> node : removed) {
+            notifyRemoval(node, RemovalNotification.RemovalReason.INVALIDATED);
+        }
+    }
+
+    /**
+     * Force any outstanding size-based and time-based evictions to occur
+     */
+    @Override
+    public void refresh() {
+        final boolean expires = getExpireAfterAccessNanos() != -1 || getExpireAfterWriteNanos() != -1;
+        final long now = now();
+        evictionLock.lock();
+        try {
+            if (expires) {
+                for (Node<K, V> node : map.values()) {
+                    if (node.future.isDone() && isExpired(node, now)) {
+                        evict(node);
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        maintain();
+    }
+
+    @Override
+    public int count() {
+        maintain();
+        return count;
+    }
+
+    @Override
+    public long weight() {
+        maintain();
+        return weight;
+    }
+
+    @Override
+    public Iterable<K> keys() {
+        return () -> new Iterator<>() {
+            private final EntryIterator iterator = new EntryIterator();
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public K next() {
+                return iterator.next().key;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+            }
+        };
+    }
+
+    @Override
+    public Iterable<V> values() {
+        return () -> new Iterator<>() {
+            private final EntryIterator iterator = new EntryIterator();
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public V next() {
+                return iterator.next().value;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<K, V> consumer) {
+        for (Node<K, V> node : map.values()) {
+            final V value = node.valueIfLoaded();
+            if (value != null) {
+                consumer.accept(node.key, value);
+            }
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Iterates over the loaded entries of the map.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Iterator<Node<K, V>> nodes = map.values().iterator();
+        private Map.Entry<K, V> current;
+        private Map.Entry<K, V> next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && nodes.hasNext()) {
+                final Node<K, V> node = nodes.next();
+                final V value = node.valueIfLoaded();
+                if (value != null) {
+                    next = Map.entry(node.key, value);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (hasNext() == false) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = null;
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if (current != null) {
+                invalidate(current.getKey(), current.getValue());
+                current = null;
+            }
+        }
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        final long expireAfterAccessNanos = getExpireAfterAccessNanos();
+        final long expireAfterWriteNanos = getExpireAfterWriteNanos();
+        return (expireAfterAccessNanos != -1 && now - node.accessTime > expireAfterAccessNanos)
+            || (expireAfterWriteNanos != -1 && now - node.writeTime > expireAfterWriteNanos);
+    }
+
+    private void removeExpired(Node<K, V> node) {
+        if (map.remove(node.key, node)) {
+            evictions.increment();
+            afterWrite(() -> onRemove(node));
+            notifyRemoval(node, RemovalNotification.RemovalReason.EVICTED);
+        }
+    }
+
+    private void notifyRemoval(Node<K, V> node, RemovalNotification.RemovalReason reason) {
+        final RemovalListener<K, V> removalListener = getRemovalListener();
+        if (node.future.isDone()) {
+            final V value = node.value();
+            if (value != null) {
+                removalListener.onRemoval(new RemovalNotification<>(node.key, value, reason));
+            }
+        } else {
+            // the value is still being loaded, notify once it is there so that it is accounted for
+            node.future.thenAccept(value -> removalListener.onRemoval(new RemovalNotification<>(node.key, value, reason)));
+        }
+    }
+
+    private void afterRead(Node<K, V> node) {
+        final ReadBuffer<K, V> readBuffer = readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFER_COUNT - 1)];
+        if (readBuffer.offer(node) && evictionLock.tryLock()) {
+            final List<Node<K, V>> evicted;
+            try {
+                evicted = runMaintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+            notifyEvicted(evicted);
+        }
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        maintain();
+    }
+
+    /**
+     * Applies all pending reads and writes to the eviction policy, and evicts entries as needed.
+     */
+    private void maintain() {
+        final List<Node<K, V>> evicted;
+        evictionLock.lock();
+        try {
+            evicted = runMaintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyEvicted(evicted);
+    }
+
+    private List<Node<K, V>> runMaintenance() {
+        assert evictionLock.isHeldByCurrentThread();
+        for (ReadBuffer<K, V> readBuffer : readBuffers) {
+            readBuffer.drain(this);
+        }
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+        expireEntries(now());
+        evictEntries();
+        if (pendingEvictions.isEmpty()) {
+            return List.of();
+        }
+        final List<Node<K, V>> evicted = pendingEvictions;
+        pendingEvictions = new ArrayList<>();
+        return evicted;
+    }
+
+    private void notifyEvicted(List<Node<K, V>> evicted) {
+        for (Node<K, V> node : evicted) {
+            notifyRemoval(node, RemovalNotification.RemovalReason.EVICTED);
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        assert evictionLock.isHeldByCurrentThread();
+        switch (node.queue) {
+            case WINDOW -> {
+                sketch.increment(node.key);
+                window.moveToBack(node);
+            }
+            case PROBATION -> {
+                sketch.increment(node.key);
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                final long protectedMaximum = protectedMaximum();
+                while (protectedQueue.weight > protectedMaximum && protectedQueue.head != node) {
+                    final Node<K, V> demoted = protectedQueue.head;
+                    protectedQueue.remove(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            case PROTECTED -> {
+                sketch.increment(node.key);
+                protectedQueue.moveToBack(node);
+            }
+            default -> {
+                // the node was not added yet, or was removed already
+            }
+        }
+    }
+
+    private void onAdd(Node<K, V> node, long weight) {
+        assert evictionLock.isHeldByCurrentThread();
+        if (node.retired) {
+            return;
+        }
+        node.weight = weight;
+        node.queue = WINDOW;
+        window.addLast(node);
+        this.weight += weight;
+        this.count++;
+        if (getMaximumWeight() != -1 && sketch.capacity() < count) {
+            sketch.ensureCapacity(2L * count);
+        }
+        sketch.increment(node.key);
+    }
+
+    private void onRemove(Node<K, V> node) {
+        assert evictionLock.isHeldByCurrentThread();
+        switch (node.queue) {
+            case WINDOW -> window.remove(node);
+            case PROBATION -> probation.remove(node);
+            case PROTECTED -> protectedQueue.remove(node);
+            default -> {
+                node.retired = true;
+                return;
+            }
+        }
+        node.queue = NONE;
+        node.retired = true;
+        this.weight -= node.weight;
+        this.count--;
+    }
+
+    /**
+     * Evicts the node from the cache if it is still mapped, unless the node was removed or replaced concurrently in which case the
+     * thread that did so takes care of the notification.
+     */
+    private void evict(Node<K, V> node) {
+        assert evictionLock.isHeldByCurrentThread();
+        onRemove(node);
+        if (map.remove(node.key, node)) {
+            evictions.increment();
+            pendingEvictions.add(node);
+        }
+    }
+
+    private void expireEntries(long now) {
+        if (getExpireAfterAccessNanos() == -1 && getExpireAfterWriteNanos() == -1) {
+            return;
+        }
+        for (AccessOrderQueue<K, V> queue : List.of(window, probation, protectedQueue)) {
+            while (queue.head != null && isExpired(queue.head, now)) {
+                evict(queue.head);
+            }
+        }
+    }
+
+    private void evictEntries() {
+        final long maximumWeight = getMaximumWeight();
+        if (maximumWeight == -1) {
+            return;
+        }
+        // entries that overflow the admission window move to probation, where they are candidates for the main space
+        final long windowMaximum = windowMaximum();
+        int candidates = 0;
+        while (window.weight > windowMaximum && window.head != null) {
+            final Node<K, V> node = window.head;
+            window.remove(node);
+            node.queue = PROBATION;
+            probation.addLast(node);
+            candidates++;
+        }
+        while (weight > maximumWeight) {
+            Node<K, V> victim = probation.head;
+            if (victim == null) {
+                victim = protectedQueue.head != null ? protectedQueue.head : window.head;
+            }
+            if (victim == null) {
+                break;
+            }
+            final Node<K, V> candidate = candidates > 0 ? probation.tail : null;
+            if (candidate != null && candidate != victim && victim.queue == PROBATION) {
+                candidates--;
+                // the candidate is only admitted if it is used more often than the victim
+                if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                    evict(victim);
+                } else {
+                    evict(candidate);
+                }
+            } else {
+                if (candidate == victim) {
+                    candidates--;
+                }
+                evict(victim);
+            }
+        }
+    }
+
+    private long windowMaximum() {
+        return Math.max(1L, (long) (getMaximumWeight() * WINDOW_PERCENTAGE));
+    }
+
+    private long protectedMaximum() {
+        return (long) ((getMaximumWeight() - windowMaximum()) * PROTECTED_PERCENTAGE);
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(x - 1);
+    }
+}
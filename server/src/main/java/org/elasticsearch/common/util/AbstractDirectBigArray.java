@@ -0,0 +1,162 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.core.Releasables;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Common implementation for arrays that slice data into fixed-size off-heap pages obtained from
+ * {@link PageCacheRecycler#directPage(boolean)}. Since the pool of off-heap pages is bounded, allocations may fail, in which case
+ * {@link #tryResize(long)} leaves the array untouched and {@link BigArrays} falls back to a heap array.
+ */
+abstract class AbstractDirectBigArray extends AbstractArray {
+
+    private final PageCacheRecycler recycler;
+    private final int elementShift;
+    private final int pageShift;
+    private final int pageMask;
+    protected ByteBuffer[] pages;
+    private Recycler.V<?>[] cache;
+    protected long size;
+
+    protected AbstractDirectBigArray(int elementShift, BigArrays bigArrays, boolean clearOnResize) {
+        super(bigArrays, clearOnResize);
+        assert bigArrays.recycler != null && bigArrays.recycler.hasDirectPages();
+        this.recycler = bigArrays.recycler;
+        this.elementShift = elementShift;
+        final int pageSize = PageCacheRecycler.BYTE_PAGE_SIZE >>> elementShift;
+        this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+        this.pageMask = pageSize - 1;
+        this.pages = new ByteBuffer[0];
+        this.cache = new Recycler.V<?>[0];
+        this.size = 0;
+    }
+
+    final int numPages(long capacity) {
+        final long numPages = (capacity + pageMask) >>> pageShift;
+        if (numPages > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("pageSize=" + (pageMask + 1) + " is too small for such as capacity: " + capacity);
+        }
+        return (int) numPages;
+    }
+
+    final int pageSize() {
+        return pageMask + 1;
+    }
+
+    final int pageIndex(long index) {
+        return (int) (index >>> pageShift);
+    }
+
+    /** The offset in bytes of the element at the given index in its page. */
+    final int offsetInPage(long index) {
+        return (int) (index & pageMask) << elementShift;
+    }
+
+    @Override
+    public final long size() {
+        return size;
+    }
+
+    @Override
+    public final long ramBytesUsed() {
+        return ramBytesEstimated(size);
+    }
+
+    /** Given the size of the array, estimate the number of bytes it will use, this is the same as for heap arrays. */
+    public final long ramBytesEstimated(final long size) {
+        return ((long) pageIndex(size - 1) + 1) * pageSize() << elementShift;
+    }
+
+    /**
+     * Change the size of this array, preserving the content between indexes <code>0</code> and <code>min(size(), newSize)</code>.
+     * Returns {@code false} and leaves the array untouched if there aren't enough off-heap pages left.
+     */
+    final boolean tryResize(long newSize) {
+        final int numPages = numPages(newSize);
+        if (numPages > pages.length) {
+            final int newLength = ArrayUtil.oversize(numPages, RamUsageEstimator.NUM_BYTES_OBJECT_REF);
+            pages = Arrays.copyOf(pages, newLength);
+            cache = Arrays.copyOf(cache, newLength);
+        }
+        for (int i = numPages - 1; i >= 0 && pages[i] == null; --i) {
+            final Recycler.V<ByteBuffer> v = recycler.directPage(clearOnResize);
+            if (v == null) {
+                // roll back the pages that this call allocated
+                for (int j = i + 1; j < numPages; ++j) {
+                    releasePage(j);
+                }
+                return false;
+            }
+            assert v.v().capacity() == PageCacheRecycler.BYTE_PAGE_SIZE;
+            cache[i] = v;
+            pages[i] = v.v();
+        }
+        for (int i = numPages; i < pages.length && pages[i] != null; ++i) {
+            releasePage(i);
+        }
+        this.size = newSize;
+        return true;
+    }
+
+    private void releasePage(int page) {
+        pages[page] = null;
+        cache[page].close();
+        cache[page] = null;
+    }
+
+    /**
+     * Bulk copies values encoded in native byte order, {@code len} values of {@code buf} starting at {@code offset}.
+     */
+    protected final void setBytes(long index, byte[] buf, int offset, int len) {
+        assert index + len <= size();
+        int pageIndex = pageIndex(index);
+        int offsetInPage = offsetInPage(index);
+        int byteOffset = offset << elementShift;
+        int remaining = len << elementShift;
+        while (remaining > 0) {
+            final int copyLen = Math.min(remaining, PageCacheRecycler.BYTE_PAGE_SIZE - offsetInPage);
+            pages[pageIndex].put(offsetInPage, buf, byteOffset, copyLen);
+            byteOffset += copyLen;
+            remaining -= copyLen;
+            ++pageIndex;
+            offsetInPage = 0;
+        }
+    }
+
+    /**
+     * Copies the first {@code len} values of this array to a heap array, page by page.
+     */
+    protected final void copyTo(BulkSetter dest, long len) {
+        final byte[] scratch = new byte[PageCacheRecycler.BYTE_PAGE_SIZE];
+        for (long from = 0; from < len; from += pageSize()) {
+            final int count = (int) Math.min(pageSize(), len - from);
+            pages[pageIndex(from)].get(0, scratch, 0, count << elementShift);
+            dest.set(from, scratch, 0, count);
+        }
+    }
+
+    @FunctionalInterface
+    interface BulkSetter {
+        void set(long index, byte[] buf, int offset, int len);
+    }
+
+    @Override
+    protected final void doClose() {
+        Releasables.close(cache);
+        cache = null;
+        pages = null;
+    }
+}
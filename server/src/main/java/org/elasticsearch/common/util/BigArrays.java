@@ -496,6 +496,24 @@ public class BigArrays {
         return array;
     }
 
+    private boolean hasDirectPages() {
+        return recycler != null && recycler.hasDirectPages();
+    }
+
+    /**
+     * Resizes an off-heap array, accounting for the difference with the circuit breaker first. Returns {@code false}, without changing
+     * the array nor the circuit breaker, if there aren't enough off-heap pages left.
+     */
+    private boolean tryResizeDirect(AbstractDirectBigArray array, long newSize) {
+        final long estimatedIncreaseInBytes = array.ramBytesEstimated(newSize) - array.ramBytesUsed();
+        adjustBreaker(estimatedIncreaseInBytes, false);
+        if (array.tryResize(newSize)) {
+            return true;
+        }
+        adjustBreaker(-estimatedIncreaseInBytes, false);
+        return false;
+    }
+
     private <T extends BigArray> T validate(T array) {
         boolean success = false;
         try {
@@ -649,6 +667,12 @@ public class BigArrays {
         if (size > PageCacheRecycler.LONG_PAGE_SIZE || (size >= PageCacheRecycler.LONG_PAGE_SIZE / 2 && recycler != null)) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
+            if (hasDirectPages()) {
+                final DirectBigLongArray array = new DirectBigLongArray(this, clearOnResize);
+                if (tryResizeDirect(array, size)) {
+                    return array;
+                }
+            }
             adjustBreaker(BigLongArray.estimateRamBytes(size), false);
             return new BigLongArray(size, this, clearOnResize);
         } else {
@@ -668,6 +692,16 @@ public class BigArrays {
     public LongArray resize(LongArray array, long size) {
         if (array instanceof BigLongArray) {
             return resizeInPlace((BigLongArray) array, size);
+        } else if (array instanceof DirectBigLongArray directArray) {
+            if (tryResizeDirect(directArray, size)) {
+                return directArray;
+            }
+            // out of off-heap pages, move the content to the heap
+            adjustBreaker(BigLongArray.estimateRamBytes(size), false);
+            final BigLongArray newArray = new BigLongArray(size, this, directArray.clearOnResize);
+            directArray.copyTo(newArray::set, Math.min(size, array.size()));
+            array.close();
+            return newArray;
         } else {
             AbstractArray arr = (AbstractArray) array;
             final LongArray newArray = newLongArray(size, arr.clearOnResize);
@@ -696,6 +730,12 @@ public class BigArrays {
         if (size > PageCacheRecycler.DOUBLE_PAGE_SIZE || (size >= PageCacheRecycler.DOUBLE_PAGE_SIZE / 2 && recycler != null)) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
+            if (hasDirectPages()) {
+                final DirectBigDoubleArray array = new DirectBigDoubleArray(this, clearOnResize);
+                if (tryResizeDirect(array, size)) {
+                    return array;
+                }
+            }
             adjustBreaker(BigDoubleArray.estimateRamBytes(size), false);
             return new BigDoubleArray(size, this, clearOnResize);
         } else {
@@ -712,6 +752,16 @@ public class BigArrays {
     public DoubleArray resize(DoubleArray array, long size) {
         if (array instanceof BigDoubleArray) {
             return resizeInPlace((BigDoubleArray) array, size);
+        } else if (array instanceof DirectBigDoubleArray directArray) {
+            if (tryResizeDirect(directArray, size)) {
+                return directArray;
+            }
+            // out of off-heap pages, move the content to the heap
+            adjustBreaker(BigDoubleArray.estimateRamBytes(size), false);
+            final BigDoubleArray newArray = new BigDoubleArray(size, this, directArray.clearOnResize);
+            directArray.copyTo(newArray::set, Math.min(size, array.size()));
+            array.close();
+            return newArray;
         } else {
             AbstractArray arr = (AbstractArray) array;
             final DoubleArray newArray = newDoubleArray(size, arr.clearOnResize);
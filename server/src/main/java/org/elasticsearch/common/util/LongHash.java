@@ -8,6 +8,8 @@
 
 package org.elasticsearch.common.util;
 
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.core.Releasable;
 
 /**
@@ -18,7 +20,9 @@ import org.elasticsearch.core.Releasable;
  * This class is not thread-safe.
  */
 // IDs are internally stored as id + 1 so that 0 encodes for an empty slot
-public final class LongHash extends AbstractHash {
+public final class LongHash extends AbstractHash implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(LongHash.class);
 
     private LongArray keys;
 
@@ -114,6 +118,11 @@ public final class LongHash extends AbstractHash {
         reset(key, id);
     }
 
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + ids.ramBytesUsed() + keys.ramBytesUsed();
+    }
+
     @Override
     public void close() {
         try (Releasable releasable = keys) {
@@ -17,8 +17,13 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.elasticsearch.common.recycler.Recyclers.concurrent;
 import static org.elasticsearch.common.recycler.Recyclers.concurrentDeque;
@@ -39,6 +44,15 @@ public class PageCacheRecycler {
         "10%",
         Property.NodeScope
     );
+    /**
+     * The maximum amount of direct memory that {@link BigArrays} may use for the pages of its long and double arrays. Off-heap pages are
+     * disabled by default, and arrays fall back to heap pages once this limit is reached.
+     */
+    public static final Setting<ByteSizeValue> LIMIT_OFF_HEAP_SETTING = Setting.byteSizeSetting(
+        "cache.recycler.page.limit.off_heap",
+        ByteSizeValue.ZERO,
+        Property.NodeScope
+    );
     public static final Setting<Double> WEIGHT_BYTES_SETTING = Setting.doubleSetting(
         "cache.recycler.page.weight.bytes",
         1d,
@@ -78,6 +92,7 @@ public class PageCacheRecycler {
 
     private final Recycler<byte[]> bytePage;
     private final Recycler<Object[]> objectPage;
+    private final DirectPagePool directPages;
 
     public static final PageCacheRecycler NON_RECYCLING_INSTANCE;
 
@@ -125,6 +140,10 @@ public class PageCacheRecycler {
         });
 
         assert PAGE_SIZE_IN_BYTES * (maxBytePageCount + maxObjectPageCount) <= limit;
+
+        final long offHeapLimit = LIMIT_OFF_HEAP_SETTING.get(settings).getBytes();
+        final int maxDirectPageCount = (int) Math.min(Integer.MAX_VALUE, offHeapLimit / PAGE_SIZE_IN_BYTES);
+        directPages = maxDirectPageCount == 0 ? null : new DirectPagePool(maxDirectPageCount);
     }
 
     public Recycler.V<byte[]> bytePage(boolean clear) {
@@ -140,6 +159,22 @@ public class PageCacheRecycler {
         return objectPage.obtain();
     }
 
+    /**
+     * Whether off-heap pages are enabled, see {@link #LIMIT_OFF_HEAP_SETTING}.
+     */
+    public boolean hasDirectPages() {
+        return directPages != null;
+    }
+
+    /**
+     * Obtains an off-heap page of {@link #BYTE_PAGE_SIZE} bytes in native byte order, or returns {@code null} if off-heap pages are
+     * disabled or if all the off-heap pages are in use, in which case the caller should fall back to heap pages. The page must be
+     * released explicitly, off-heap pages are never released to the operating system but recycled for the life of the node.
+     */
+    public Recycler.V<ByteBuffer> directPage(boolean clear) {
+        return directPages == null ? null : directPages.obtain(clear);
+    }
+
     private static <T> Recycler<T> build(Type type, int limit, int availableProcessors, Recycler.C<T> c) {
         final Recycler<T> recycler;
         if (limit == 0) {
@@ -180,4 +215,62 @@ public class PageCacheRecycler {
 
         abstract <T> Recycler<T> build(Recycler.C<T> c, int limit, int availableProcessors);
     }
+
+    /**
+     * A bounded pool of direct byte buffers. Unlike heap pages, direct buffers are expensive to allocate and are only freed when they get
+     * garbage collected, so all the pages that were allocated are kept for reuse.
+     */
+    private static final class DirectPagePool {
+
+        private static final byte[] ZERO_PAGE = new byte[BYTE_PAGE_SIZE];
+
+        private final int maxPages;
+        private final AtomicInteger allocatedPages = new AtomicInteger();
+        private final Queue<ByteBuffer> freePages = new ConcurrentLinkedQueue<>();
+
+        DirectPagePool(int maxPages) {
+            this.maxPages = maxPages;
+        }
+
+        Recycler.V<ByteBuffer> obtain(boolean clear) {
+            ByteBuffer page = freePages.poll();
+            final boolean recycled = page != null;
+            if (recycled) {
+                if (clear) {
+                    page.put(0, ZERO_PAGE);
+                }
+            } else {
+                if (allocatedPages.incrementAndGet() > maxPages) {
+                    allocatedPages.decrementAndGet();
+                    return null;
+                }
+                boolean success = false;
+                try {
+                    page = ByteBuffer.allocateDirect(BYTE_PAGE_SIZE).order(ByteOrder.nativeOrder());
+                    success = true;
+                } finally {
+                    if (success == false) {
+                        allocatedPages.decrementAndGet();
+                    }
+                }
+            }
+            final ByteBuffer v = page;
+            return new Recycler.V<>() {
+                @Override
+                public ByteBuffer v() {
+                    return v;
+                }
+
+                @Override
+                public boolean isRecycled() {
+                    return recycled;
+                }
+
+                @Override
+                public void close() {
+                    freePages.add(v);
+                }
+            };
+        }
+    }
 }
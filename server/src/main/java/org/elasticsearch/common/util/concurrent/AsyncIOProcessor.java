@@ -16,6 +16,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -24,7 +25,8 @@ import java.util.function.Supplier;
  * This can be used to ensure that threads can continue with other work while the actual IO operation is still processed
  * by a single worker. A worker in this context can be any caller of the {@link #put(Object, Consumer)} method since it will
  * hijack a worker if nobody else is currently processing queued items. If the internal queue has reached it's capacity incoming threads
- * might be blocked until other items are processed
+ * might be blocked until other items are processed. Subclasses can ask the processing thread to wait a little for more items to be
+ * queued before writing a batch, see {@link #batchWindowNanos(int, long)}.
  */
 public abstract class AsyncIOProcessor<Item> {
     private final Logger logger;
@@ -82,6 +84,7 @@ public abstract class AsyncIOProcessor<Item> {
         Exception exception;
         try {
             queue.drainTo(candidates);
+            gatherMore(candidates);
             exception = processList(candidates);
         } finally {
             promiseSemaphore.release();
@@ -90,6 +93,27 @@ public abstract class AsyncIOProcessor<Item> {
         candidates.clear();
     }
 
+    private void gatherMore(List<Tuple<Item, Consumer<Exception>>> candidates) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        long waitNanos;
+        while ((waitNanos = batchWindowNanos(candidates.size(), System.nanoTime() - startNanos)) > 0L) {
+            final Tuple<Item, Consumer<Exception>> next;
+            try {
+                next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next != null) {
+                candidates.add(next);
+                queue.drainTo(candidates);
+            }
+        }
+    }
+
     private Exception processList(List<Tuple<Item, Consumer<Exception>>> candidates) {
         Exception exception = null;
         if (candidates.isEmpty() == false) {
@@ -124,6 +148,19 @@ public abstract class AsyncIOProcessor<Item> {
         };
     }
 
+    /**
+     * Returns how much longer the processing thread should wait for more items to be queued before the current batch of
+     * {@code batchSize} items is written, or {@code 0} if the batch should be written right away. This method is called by the
+     * processing thread once before every write and again whenever new items joined the batch or the previously returned time
+     * elapsed, so it can be used to implement group commits. The default implementation never waits.
+     *
+     * @param batchSize   the number of items in the current batch
+     * @param waitedNanos the time spent waiting for more items to join the current batch so far
+     */
+    protected long batchWindowNanos(int batchSize, long waitedNanos) {
+        return 0L;
+    }
+
     /**
      * Writes or processes the items out or to disk.
      */
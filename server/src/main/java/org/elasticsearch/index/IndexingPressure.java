@@ -52,6 +52,10 @@ public class IndexingPressure {
     private final AtomicLong primaryRejections = new AtomicLong(0);
     private final AtomicLong replicaRejections = new AtomicLong(0);
 
+    private final AtomicLong coalescedWrites = new AtomicLong(0);
+    private final AtomicLong coalescedRequests = new AtomicLong(0);
+    private final AtomicLong coalescedOps = new AtomicLong(0);
+
     private final long primaryAndCoordinatingLimits;
     private final long replicaLimits;
 
@@ -194,6 +198,16 @@ public class IndexingPressure {
         });
     }
 
+    /**
+     * Records that the given number of shard-level write requests with the given number of operations in total were coalesced into a
+     * single write on their shard.
+     */
+    public void recordCoalescedWrite(int requests, int operations) {
+        coalescedWrites.getAndIncrement();
+        coalescedRequests.getAndAdd(requests);
+        coalescedOps.getAndAdd(operations);
+    }
+
     public IndexingPressureStats stats() {
         return new IndexingPressureStats(
             totalCombinedCoordinatingAndPrimaryBytes.get(),
@@ -213,7 +227,10 @@ public class IndexingPressure {
             totalReplicaOps.get(),
             currentCoordinatingOps.get(),
             currentPrimaryOps.get(),
-            currentReplicaOps.get()
+            currentReplicaOps.get(),
+            coalescedWrites.get(),
+            coalescedRequests.get(),
+            coalescedOps.get()
         );
     }
 }
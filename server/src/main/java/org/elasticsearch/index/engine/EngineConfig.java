@@ -51,6 +51,7 @@ public final class EngineConfig {
     private volatile boolean enableGcDeletes = true;
     private final TimeValue flushMergesAfter;
     private final String codecName;
+    private final VersionMapStorage versionMapStorage;
     private final IndexStorePlugin.SnapshotCommitSupplier snapshotCommitSupplier;
     private final ThreadPool threadPool;
     private final Engine.Warmer warmer;
@@ -108,6 +109,33 @@ public final class EngineConfig {
         }
     }, Property.IndexScope, Property.NodeScope);
 
+    /**
+     * Where the live version map keeps the versions of the documents that were indexed since the last refresh.
+     */
+    public enum VersionMapStorage {
+        /**
+         * One set of objects per document on heap.
+         */
+        HEAP,
+        /**
+         * Recycled pages of {@link org.elasticsearch.common.util.BigArrays} whose size is accounted for in the request circuit
+         * breaker. This avoids allocating objects for every indexed document, which matters for frequent updates of the same
+         * documents.
+         */
+        PAGED
+    }
+
+    /**
+     * Index setting to choose where the live version map stores the versions of recently indexed documents.
+     * This setting is <b>not</b> realtime updateable.
+     */
+    public static final Setting<VersionMapStorage> INDEX_VERSION_MAP_STORAGE_SETTING = Setting.enumSetting(
+        VersionMapStorage.class,
+        "index.version_map.storage",
+        VersionMapStorage.HEAP,
+        Property.IndexScope
+    );
+
     private final TranslogConfig translogConfig;
 
     /**
@@ -149,6 +177,7 @@ public final class EngineConfig {
         this.codecService = codecService;
         this.eventListener = eventListener;
         codecName = indexSettings.getValue(INDEX_CODEC_SETTING);
+        versionMapStorage = indexSettings.getValue(INDEX_VERSION_MAP_STORAGE_SETTING);
         // We need to make the indexing buffer for this shard at least as large
         // as the amount of memory that is available for all engines on the
         // local node so that decisions to flush segments to disk are made by
@@ -219,6 +248,13 @@ public final class EngineConfig {
         return codecService.codec(codecName);
     }
 
+    /**
+     * Returns where the live version map stores the versions of recently indexed documents.
+     */
+    public VersionMapStorage getVersionMapStorage() {
+        return versionMapStorage;
+    }
+
     /**
      * Returns a thread-pool mainly used to get estimated time stamps from
      * {@link org.elasticsearch.threadpool.ThreadPool#relativeTimeInMillis()} and to schedule
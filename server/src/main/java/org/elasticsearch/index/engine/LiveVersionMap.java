@@ -12,8 +12,10 @@ import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.KeyedLock;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 
 import java.io.IOException;
@@ -57,6 +59,22 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
             this.map = map;
         }
 
+        /**
+         * The bytes used by this map, exact for a {@link PagedVersionMap} and estimated otherwise.
+         */
+        long ramBytesUsed() {
+            return map instanceof PagedVersionMap pagedMap ? pagedMap.ramBytesUsed() : ramBytesUsed.get();
+        }
+
+        /**
+         * Releases the pages of a {@link PagedVersionMap}, the map behaves like an empty map afterwards.
+         */
+        void release() {
+            if (map instanceof PagedVersionMap pagedMap) {
+                pagedMap.close();
+            }
+        }
+
         VersionValue get(BytesRef key) {
             return map.get(key);
         }
@@ -111,8 +129,8 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
             this.previousMapsNeededSafeAccess = previousMapsNeededSafeAccess;
         }
 
-        Maps() {
-            this(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency()), VersionLookup.EMPTY, false);
+        Maps(VersionLookup current) {
+            this(current, VersionLookup.EMPTY, false);
         }
 
         boolean isSafeAccessMode() {
@@ -129,12 +147,8 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         /**
          * Builds a new map for the refresh transition this should be called in beforeRefresh()
          */
-        Maps buildTransitionMap() {
-            return new Maps(
-                new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(current.size())),
-                current,
-                shouldInheritSafeAccess()
-            );
+        Maps buildTransitionMap(VersionLookup newCurrent) {
+            return new Maps(newCurrent, current, shouldInheritSafeAccess());
         }
 
         /**
@@ -181,10 +195,38 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
     // All deletes also go here, and delete "tombstones" are retained after refresh:
     private final Map<BytesRef, DeleteVersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
-    private volatile Maps maps = new Maps();
+    // the pages of the current and old maps if they are stored in a PagedVersionMap, null if the maps are stored on heap
+    @Nullable
+    private final BigArrays bigArrays;
+
+    private volatile Maps maps;
     // we maintain a second map that only receives the updates that we skip on the actual map (unsafe ops)
     // this map is only maintained if assertions are enabled
-    private volatile Maps unsafeKeysMap = new Maps();
+    private volatile Maps unsafeKeysMap = new Maps(newHeapLookup(0));
+
+    /**
+     * Creates a version map that stores its entries on heap.
+     */
+    LiveVersionMap() {
+        this(null);
+    }
+
+    /**
+     * Creates a version map that stores the entries of the indexing operations that happened since the last refresh in pages of
+     * the given {@link BigArrays}, or on heap if {@code null}. Tombstones of deletes are stored on heap in both cases.
+     */
+    LiveVersionMap(@Nullable BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+        this.maps = new Maps(newLookup(0));
+    }
+
+    private VersionLookup newLookup(int expectedSize) {
+        return bigArrays == null ? newHeapLookup(expectedSize) : new VersionLookup(new PagedVersionMap(bigArrays, expectedSize));
+    }
+
+    private static VersionLookup newHeapLookup(int expectedSize) {
+        return new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(expectedSize));
+    }
 
     /**
      * Bytes consumed for each BytesRef UID:
@@ -232,8 +274,11 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         // map. While reopen is running, any lookup will first
         // try this new map, then fallback to old, then to the
         // current searcher:
-        maps = maps.buildTransitionMap();
-        assert (unsafeKeysMap = unsafeKeysMap.buildTransitionMap()) != null;
+        final Maps previousMaps = maps;
+        maps = previousMaps.buildTransitionMap(newLookup(previousMaps.current.size()));
+        // a refresh that didn't call afterRefresh leaves an old map behind which the transition map just dropped
+        previousMaps.old.release();
+        assert (unsafeKeysMap = unsafeKeysMap.buildTransitionMap(newHeapLookup(unsafeKeysMap.current.size()))) != null;
         // This is not 100% correct, since concurrent indexing ops can change these counters in between our execution of the previous
         // line and this one, but that should be minor, and the error won't accumulate over time:
     }
@@ -247,7 +292,10 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         // reopen, and so any concurrent indexing requests can still sneak in a few additions to that current map that are in fact
         // reflected in the previous reader. We don't touch tombstones here: they expire on their own index.gc_deletes timeframe:
 
-        maps = maps.invalidateOldMap();
+        final Maps previousMaps = maps;
+        maps = previousMaps.invalidateOldMap();
+        // concurrent operations that still read or write the old map complete before its pages are released
+        previousMaps.old.release();
         assert (unsafeKeysMap = unsafeKeysMap.invalidateOldMap()) != null;
 
     }
@@ -405,7 +453,11 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * Called when this index is closed.
      */
     synchronized void clear() {
-        maps = new Maps();
+        final Maps previousMaps = maps;
+        // the index is closed so no pages are allocated anymore
+        maps = new Maps(newHeapLookup(0));
+        previousMaps.current.release();
+        previousMaps.old.release();
         tombstones.clear();
         // NOTE: we can't zero this here, because a refresh thread could be calling InternalEngine.pruneDeletedTombstones at the same time,
         // and this will lead to an assert trip. Presumably it's fine if our ramBytesUsedTombstones is non-zero after clear since the
@@ -415,7 +467,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
 
     @Override
     public long ramBytesUsed() {
-        return maps.current.ramBytesUsed.get() + ramBytesUsedTombstones.get();
+        return maps.current.ramBytesUsed() + ramBytesUsedTombstones.get();
     }
 
     /**
@@ -423,7 +475,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * don't clear on refresh.
      */
     long ramBytesUsedForRefresh() {
-        return maps.current.ramBytesUsed.get();
+        return maps.current.ramBytesUsed();
     }
 
     /**
@@ -431,7 +483,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * except does not include tombstones because they don't clear on refresh.
      */
     long getRefreshingBytes() {
-        return maps.old.ramBytesUsed.get();
+        return maps.old.ramBytesUsed();
     }
 
     @Override
@@ -0,0 +1,293 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps _uid values to the {@link IndexVersionValue} of their last indexing operation like the map of a {@link LiveVersionMap}, but
+ * stores the ids and the versions in pages that are allocated and recycled by {@link BigArrays} instead of allocating a handful of
+ * objects per entry. This keeps frequently updated ids from churning the young generation and makes the footprint that
+ * {@link #ramBytesUsed()} reports exact, as well as accounted for in the circuit breaker of the {@link BigArrays}.
+ * <p>
+ * The map is split into segments that are each guarded by their own lock. Removing an id only marks its slot as empty since the
+ * underlying hash doesn't support removals, the slot is reused if the id is indexed again and freed with the whole map on refresh.
+ * Values returned by {@link #get} are decoded on every call. Once {@link #close() closed} the map behaves like an empty map that
+ * ignores writes, which is what {@link LiveVersionMap} expects from a map that was dropped after a refresh by a concurrent operation
+ * that still holds a reference to it.
+ */
+final class PagedVersionMap extends AbstractMap<BytesRef, VersionValue> implements Accountable, Releasable {
+
+    private static final int SEGMENTS = 16;
+    private static final int MAX_INITIAL_CAPACITY_PER_SEGMENT = 1 << 12;
+
+    // version, seqNo, term, translog generation, translog offset, state
+    private static final int LONGS_PER_VALUE = 6;
+    // the state is 0 if the slot is empty, -1 if the value has no translog location and the size of the location + 1 otherwise
+    private static final long EMPTY = 0L;
+    private static final long NO_LOCATION = -1L;
+
+    private final Segment[] segments;
+    private final AbstractRefCounted refCounted = AbstractRefCounted.of(this::closeSegments);
+
+    PagedVersionMap(BigArrays bigArrays, int expectedSize) {
+        final long capacity = Math.min(expectedSize / SEGMENTS, MAX_INITIAL_CAPACITY_PER_SEGMENT);
+        final Segment[] segments = new Segment[SEGMENTS];
+        boolean success = false;
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(bigArrays, capacity);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(segments);
+            }
+        }
+        this.segments = segments;
+    }
+
+    private Segment segment(int code) {
+        return segments[(code ^ (code >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    @Override
+    public VersionValue get(Object key) {
+        if (key instanceof BytesRef == false) {
+            return null;
+        }
+        final BytesRef uid = (BytesRef) key;
+        if (refCounted.tryIncRef() == false) {
+            return null;
+        }
+        try {
+            final int code = uid.hashCode();
+            return segment(code).get(uid, code);
+        } finally {
+            refCounted.decRef();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public VersionValue put(BytesRef uid, VersionValue value) {
+        if (value instanceof IndexVersionValue == false) {
+            throw new IllegalArgumentException("only index versions can be stored in a paged version map but got [" + value + "]");
+        }
+        if (refCounted.tryIncRef() == false) {
+            return null;
+        }
+        try {
+            final int code = uid.hashCode();
+            return segment(code).put(uid, code, value);
+        } finally {
+            refCounted.decRef();
+        }
+    }
+
+    @Override
+    public VersionValue remove(Object key) {
+        if (key instanceof BytesRef == false) {
+            return null;
+        }
+        final BytesRef uid = (BytesRef) key;
+        if (refCounted.tryIncRef() == false) {
+            return null;
+        }
+        try {
+            final int code = uid.hashCode();
+            return segment(code).remove(uid, code);
+        } finally {
+            refCounted.decRef();
+        }
+    }
+
+    @Override
+    public int size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Segment segment : segments) {
+            if (segment.size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a point in time copy of the entries of this map, this is expensive and only meant for testing.
+     */
+    @Override
+    public Set<Entry<BytesRef, VersionValue>> entrySet() {
+        final Map<BytesRef, VersionValue> copy = new HashMap<>();
+        if (refCounted.tryIncRef()) {
+            try {
+                for (Segment segment : segments) {
+                    segment.copyTo(copy);
+                }
+            } finally {
+                refCounted.decRef();
+            }
+        }
+        return copy.entrySet();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Segment segment : segments) {
+            ramBytesUsed += segment.ramBytesUsed;
+        }
+        return ramBytesUsed;
+    }
+
+    /**
+     * Releases the pages of this map once all concurrent operations on it completed.
+     */
+    @Override
+    public void close() {
+        refCounted.decRef();
+    }
+
+    private void closeSegments() {
+        Releasables.close(segments);
+    }
+
+    private static final class Segment implements Releasable {
+        private final BigArrays bigArrays;
+        private final BytesRefHash ids;
+        private LongArray values;
+        private final BytesRef spare = new BytesRef();
+        // written under the lock of the segment, read without it for stats
+        private volatile int size;
+        private volatile long ramBytesUsed;
+
+        Segment(BigArrays bigArrays, long capacity) {
+            this.bigArrays = bigArrays;
+            this.ids = new BytesRefHash(capacity, bigArrays);
+            boolean success = false;
+            try {
+                this.values = bigArrays.newLongArray(capacity * LONGS_PER_VALUE, true);
+                success = true;
+            } finally {
+                if (success == false) {
+                    ids.close();
+                }
+            }
+            updateRamBytesUsed();
+        }
+
+        synchronized VersionValue get(BytesRef uid, int code) {
+            final long id = ids.find(uid, code);
+            return id < 0 ? null : read(id);
+        }
+
+        synchronized VersionValue put(BytesRef uid, int code, VersionValue value) {
+            long id = ids.add(uid, code);
+            final VersionValue previous;
+            if (id < 0) {
+                id = -1 - id;
+                previous = read(id);
+            } else {
+                previous = null;
+                values = bigArrays.grow(values, (id + 1) * LONGS_PER_VALUE);
+            }
+            final long offset = id * LONGS_PER_VALUE;
+            values.set(offset, value.version);
+            values.set(offset + 1, value.seqNo);
+            values.set(offset + 2, value.term);
+            final Translog.Location location = value.getLocation();
+            if (location == null) {
+                values.set(offset + 5, NO_LOCATION);
+            } else {
+                values.set(offset + 3, location.generation);
+                values.set(offset + 4, location.translogLocation);
+                values.set(offset + 5, location.size + 1L);
+            }
+            if (previous == null) {
+                size++;
+            }
+            updateRamBytesUsed();
+            return previous;
+        }
+
+        synchronized VersionValue remove(BytesRef uid, int code) {
+            final long id = ids.find(uid, code);
+            if (id < 0) {
+                return null;
+            }
+            final VersionValue previous = read(id);
+            if (previous != null) {
+                values.set(id * LONGS_PER_VALUE + 5, EMPTY);
+                size--;
+            }
+            return previous;
+        }
+
+        synchronized void copyTo(Map<BytesRef, VersionValue> copy) {
+            for (long id = 0; id < ids.size(); id++) {
+                final VersionValue value = read(id);
+                if (value != null) {
+                    copy.put(BytesRef.deepCopyOf(ids.get(id, spare)), value);
+                }
+            }
+        }
+
+        private VersionValue read(long id) {
+            final long offset = id * LONGS_PER_VALUE;
+            if (offset >= values.size()) {
+                // a previous put added the id but failed to grow the values
+                return null;
+            }
+            final long state = values.get(offset + 5);
+            if (state == EMPTY) {
+                return null;
+            }
+            final Translog.Location location = state == NO_LOCATION
+                ? null
+                : new Translog.Location(values.get(offset + 3), values.get(offset + 4), (int) (state - 1));
+            return new IndexVersionValue(location, values.get(offset), values.get(offset + 1), values.get(offset + 2));
+        }
+
+        private void updateRamBytesUsed() {
+            ramBytesUsed = ids.ramBytesUsed() + values.ramBytesUsed();
+        }
+
+        @Override
+        public synchronized void close() {
+            Releasables.close(ids, values);
+            size = 0;
+            ramBytesUsed = 0;
+        }
+    }
+}
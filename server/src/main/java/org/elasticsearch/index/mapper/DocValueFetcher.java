@@ -11,6 +11,7 @@ package org.elasticsearch.index.mapper;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.index.fielddata.FormattedDocValues;
 import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.search.DocValueColumns;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.lookup.SourceLookup;
 
@@ -50,4 +51,15 @@ public final class DocValueFetcher implements ValueFetcher {
         return result;
     }
 
+    /**
+     * Adds the values of the given document to a column, without collecting them into a list first.
+     */
+    public void fetchValues(int docId, DocValueColumns.Column column) throws IOException {
+        if (formattedDocValues.advanceExact(docId)) {
+            for (int i = 0, count = formattedDocValues.docValueCount(); i < count; ++i) {
+                column.add(formattedDocValues.nextValue());
+            }
+        }
+    }
+
 }
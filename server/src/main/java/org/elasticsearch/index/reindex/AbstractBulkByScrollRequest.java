@@ -8,6 +8,7 @@
 
 package org.elasticsearch.index.reindex;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.search.SearchRequest;
@@ -15,6 +16,7 @@ import org.elasticsearch.action.support.ActiveShardCount;
 import org.elasticsearch.action.support.replication.ReplicationRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
@@ -98,6 +100,13 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
      */
     private int slices = DEFAULT_SLICES;
 
+    /**
+     * The maximum estimated size of the bulk requests that this request keeps in flight at once. {@link ByteSizeValue#ZERO}, the
+     * default, sends one bulk request at a time and only fetches the next batch of documents once it completed. Otherwise the next batch
+     * is fetched while the bulk requests are executing and the number of documents per bulk request adapts to their latency.
+     */
+    private ByteSizeValue maxInFlightBulkBytes = ByteSizeValue.ZERO;
+
     public AbstractBulkByScrollRequest(StreamInput in) throws IOException {
         super(in);
         searchRequest = new SearchRequest(in);
@@ -110,6 +119,9 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         maxRetries = in.readVInt();
         requestsPerSecond = in.readFloat();
         slices = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+            maxInFlightBulkBytes = new ByteSizeValue(in);
+        }
     }
 
     /**
@@ -156,6 +168,9 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
                 e
             );
         }
+        if (maxInFlightBulkBytes.getBytes() < 0) {
+            e = addValidationError("max_in_flight_bulk_bytes cannot be negative", e);
+        }
         if (searchRequest.source().slice() != null && slices != DEFAULT_SLICES) {
             e = addValidationError("can't specify both manual and automatic slicing at the same time", e);
         }
@@ -386,6 +401,25 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         return slices;
     }
 
+    /**
+     * The maximum estimated size of the bulk requests that this request keeps in flight at once. {@link ByteSizeValue#ZERO} means that
+     * bulk requests are sent one at a time.
+     */
+    public ByteSizeValue getMaxInFlightBulkBytes() {
+        return maxInFlightBulkBytes;
+    }
+
+    /**
+     * Set the maximum estimated size of the bulk requests that this request keeps in flight at once. If greater than
+     * {@link ByteSizeValue#ZERO} then the next batch of documents is fetched while the bulk requests are executing, more bulk requests
+     * are sent as long as they fit into this budget and the number of documents per bulk request adapts to their latency and rejections.
+     * At least one bulk request is always in flight, even if it is bigger than this budget.
+     */
+    public Self setMaxInFlightBulkBytes(ByteSizeValue maxInFlightBulkBytes) {
+        this.maxInFlightBulkBytes = maxInFlightBulkBytes;
+        return self();
+    }
+
     /**
      * Build a new request for a slice of the parent request.
      */
@@ -409,6 +443,12 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
             .setShouldStoreResult(false)
             // Split requests per second between all slices
             .setRequestsPerSecond(requestsPerSecond / totalSlices)
+            // Split the in flight bulk budget between all slices too but keep slices pipelining if this request does
+            .setMaxInFlightBulkBytes(
+                maxInFlightBulkBytes.getBytes() > 0
+                    ? ByteSizeValue.ofBytes(Math.max(1, maxInFlightBulkBytes.getBytes() / totalSlices))
+                    : maxInFlightBulkBytes
+            )
             // Sub requests don't have workers
             .setSlices(1);
         if (maxDocs != MAX_DOCS_ALL_MATCHES) {
@@ -440,6 +480,9 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         out.writeVInt(maxRetries);
         out.writeFloat(requestsPerSecond);
         out.writeVInt(slices);
+        if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+            maxInFlightBulkBytes.writeTo(out);
+        }
     }
 
     /**
@@ -9,6 +9,7 @@
 package org.elasticsearch.index.reindex;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -40,6 +41,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.util.Collections.emptyList;
 import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
@@ -207,6 +209,9 @@ public class BulkByScrollTask extends CancellableTask {
         private Float requestsPerSecond = null;
         private String reasonCancelled = null;
         private TimeValue throttledUntil = null;
+        private int inFlightBulks = 0;
+        private long inFlightBulksSizeInBytes = 0;
+        private int batchSize = 0; // Only present when the request pipelines its bulk requests
         private List<StatusOrException> sliceStatuses = new ArrayList<>();
 
         public void setSliceId(Integer sliceId) {
@@ -279,6 +284,24 @@ public class BulkByScrollTask extends CancellableTask {
             }
         }
 
+        public void setInFlightBulks(Integer inFlightBulks) {
+            if (inFlightBulks != null) {
+                this.inFlightBulks = inFlightBulks;
+            }
+        }
+
+        public void setInFlightBulksSizeInBytes(Long inFlightBulksSizeInBytes) {
+            if (inFlightBulksSizeInBytes != null) {
+                this.inFlightBulksSizeInBytes = inFlightBulksSizeInBytes;
+            }
+        }
+
+        public void setBatchSize(Integer batchSize) {
+            if (batchSize != null) {
+                this.batchSize = batchSize;
+            }
+        }
+
         public void setSliceStatuses(List<StatusOrException> sliceStatuses) {
             if (sliceStatuses != null) {
                 this.sliceStatuses.addAll(sliceStatuses);
@@ -306,7 +329,10 @@ public class BulkByScrollTask extends CancellableTask {
                         throttled,
                         requestsPerSecond,
                         reasonCancelled,
-                        throttledUntil
+                        throttledUntil,
+                        inFlightBulks,
+                        inFlightBulksSizeInBytes,
+                        batchSize
                     );
                 } catch (NullPointerException npe) {
                     throw new IllegalArgumentException("a required field is null when building Status");
@@ -358,6 +384,9 @@ public class BulkByScrollTask extends CancellableTask {
         public static final String THROTTLED_UNTIL_RAW_FIELD = "throttled_until_millis";
         public static final String THROTTLED_UNTIL_HR_FIELD = "throttled_until";
         public static final String SLICES_FIELD = "slices";
+        public static final String IN_FLIGHT_BULKS_FIELD = "in_flight_bulks";
+        public static final String IN_FLIGHT_BULKS_SIZE_FIELD = "in_flight_bulks_size_in_bytes";
+        public static final String BATCH_SIZE_FIELD = "batch_size";
 
         public static Set<String> FIELDS_SET = new HashSet<>();
         static {
@@ -378,6 +407,9 @@ public class BulkByScrollTask extends CancellableTask {
             FIELDS_SET.add(THROTTLED_UNTIL_RAW_FIELD);
             FIELDS_SET.add(THROTTLED_UNTIL_HR_FIELD);
             FIELDS_SET.add(SLICES_FIELD);
+            FIELDS_SET.add(IN_FLIGHT_BULKS_FIELD);
+            FIELDS_SET.add(IN_FLIGHT_BULKS_SIZE_FIELD);
+            FIELDS_SET.add(BATCH_SIZE_FIELD);
         }
 
         static final ConstructingObjectParser<Tuple<Long, Long>, Void> RETRIES_PARSER = new ConstructingObjectParser<>(
@@ -404,6 +436,9 @@ public class BulkByScrollTask extends CancellableTask {
             parser.declareFloat(StatusBuilder::setRequestsPerSecond, new ParseField(REQUESTS_PER_SEC_FIELD));
             parser.declareString(StatusBuilder::setReasonCancelled, new ParseField(CANCELED_FIELD));
             parser.declareLong(StatusBuilder::setThrottledUntil, new ParseField(THROTTLED_UNTIL_RAW_FIELD));
+            parser.declareInt(StatusBuilder::setInFlightBulks, new ParseField(IN_FLIGHT_BULKS_FIELD));
+            parser.declareLong(StatusBuilder::setInFlightBulksSizeInBytes, new ParseField(IN_FLIGHT_BULKS_SIZE_FIELD));
+            parser.declareInt(StatusBuilder::setBatchSize, new ParseField(BATCH_SIZE_FIELD));
             parser.declareObjectArray(
                 StatusBuilder::setSliceStatuses,
                 (p, c) -> StatusOrException.fromXContent(p),
@@ -425,6 +460,9 @@ public class BulkByScrollTask extends CancellableTask {
         private final float requestsPerSecond;
         private final String reasonCancelled;
         private final TimeValue throttledUntil;
+        private final int inFlightBulks;
+        private final long inFlightBulksSizeInBytes;
+        private final int batchSize;
         private final List<StatusOrException> sliceStatuses;
 
         public Status(
@@ -442,6 +480,46 @@ public class BulkByScrollTask extends CancellableTask {
             float requestsPerSecond,
             @Nullable String reasonCancelled,
             TimeValue throttledUntil
+        ) {
+            this(
+                sliceId,
+                total,
+                updated,
+                created,
+                deleted,
+                batches,
+                versionConflicts,
+                noops,
+                bulkRetries,
+                searchRetries,
+                throttled,
+                requestsPerSecond,
+                reasonCancelled,
+                throttledUntil,
+                0,
+                0,
+                0
+            );
+        }
+
+        public Status(
+            Integer sliceId,
+            long total,
+            long updated,
+            long created,
+            long deleted,
+            int batches,
+            long versionConflicts,
+            long noops,
+            long bulkRetries,
+            long searchRetries,
+            TimeValue throttled,
+            float requestsPerSecond,
+            @Nullable String reasonCancelled,
+            TimeValue throttledUntil,
+            int inFlightBulks,
+            long inFlightBulksSizeInBytes,
+            int batchSize
         ) {
             this.sliceId = sliceId == null ? null : checkPositive(sliceId, "sliceId");
             this.total = checkPositive(total, "total");
@@ -457,6 +535,9 @@ public class BulkByScrollTask extends CancellableTask {
             this.requestsPerSecond = requestsPerSecond;
             this.reasonCancelled = reasonCancelled;
             this.throttledUntil = throttledUntil;
+            this.inFlightBulks = checkPositive(inFlightBulks, "inFlightBulks");
+            this.inFlightBulksSizeInBytes = checkPositive(inFlightBulksSizeInBytes, "inFlightBulksSizeInBytes");
+            this.batchSize = checkPositive(batchSize, "batchSize");
             this.sliceStatuses = emptyList();
         }
 
@@ -483,6 +564,9 @@ public class BulkByScrollTask extends CancellableTask {
             long mergedThrottled = 0;
             float mergedRequestsPerSecond = 0;
             long mergedThrottledUntil = Long.MAX_VALUE;
+            int mergedInFlightBulks = 0;
+            long mergedInFlightBulksSizeInBytes = 0;
+            int mergedBatchSize = 0;
 
             for (StatusOrException slice : sliceStatuses) {
                 if (slice == null) {
@@ -505,6 +589,10 @@ public class BulkByScrollTask extends CancellableTask {
                 mergedThrottled += slice.status.getThrottled().nanos();
                 mergedRequestsPerSecond += slice.status.getRequestsPerSecond();
                 mergedThrottledUntil = min(mergedThrottledUntil, slice.status.getThrottledUntil().nanos());
+                mergedInFlightBulks += slice.status.getInFlightBulks();
+                mergedInFlightBulksSizeInBytes += slice.status.getInFlightBulksSizeInBytes();
+                // slices adapt their batch sizes independently so summing them up wouldn't mean anything
+                mergedBatchSize = max(mergedBatchSize, slice.status.getBatchSize());
             }
 
             total = mergedTotal;
@@ -519,6 +607,9 @@ public class BulkByScrollTask extends CancellableTask {
             throttled = timeValueNanos(mergedThrottled);
             requestsPerSecond = mergedRequestsPerSecond;
             throttledUntil = timeValueNanos(mergedThrottledUntil == Long.MAX_VALUE ? 0 : mergedThrottledUntil);
+            inFlightBulks = mergedInFlightBulks;
+            inFlightBulksSizeInBytes = mergedInFlightBulksSizeInBytes;
+            batchSize = mergedBatchSize;
             this.sliceStatuses = sliceStatuses;
         }
 
@@ -537,6 +628,15 @@ public class BulkByScrollTask extends CancellableTask {
             requestsPerSecond = in.readFloat();
             reasonCancelled = in.readOptionalString();
             throttledUntil = in.readTimeValue();
+            if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+                inFlightBulks = in.readVInt();
+                inFlightBulksSizeInBytes = in.readVLong();
+                batchSize = in.readVInt();
+            } else {
+                inFlightBulks = 0;
+                inFlightBulksSizeInBytes = 0;
+                batchSize = 0;
+            }
             sliceStatuses = in.readList(stream -> stream.readOptionalWriteable(StatusOrException::new));
         }
 
@@ -556,6 +656,11 @@ public class BulkByScrollTask extends CancellableTask {
             out.writeFloat(requestsPerSecond);
             out.writeOptionalString(reasonCancelled);
             out.writeTimeValue(throttledUntil);
+            if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+                out.writeVInt(inFlightBulks);
+                out.writeVLong(inFlightBulksSizeInBytes);
+                out.writeVInt(batchSize);
+            }
             out.writeVInt(sliceStatuses.size());
             for (StatusOrException sliceStatus : sliceStatuses) {
                 out.writeOptionalWriteable(sliceStatus);
@@ -606,6 +711,11 @@ public class BulkByScrollTask extends CancellableTask {
                 builder.field(CANCELED_FIELD, reasonCancelled);
             }
             builder.humanReadableField(THROTTLED_UNTIL_RAW_FIELD, THROTTLED_UNTIL_HR_FIELD, throttledUntil);
+            if (batchSize > 0) {
+                builder.field(IN_FLIGHT_BULKS_FIELD, inFlightBulks);
+                builder.field(IN_FLIGHT_BULKS_SIZE_FIELD, inFlightBulksSizeInBytes);
+                builder.field(BATCH_SIZE_FIELD, batchSize);
+            }
             if (false == sliceStatuses.isEmpty()) {
                 builder.startArray(SLICES_FIELD);
                 for (StatusOrException slice : sliceStatuses) {
@@ -669,6 +779,9 @@ public class BulkByScrollTask extends CancellableTask {
                         case Status.REQUESTS_PER_SEC_FIELD -> builder.setRequestsPerSecond(parser.floatValue());
                         case Status.CANCELED_FIELD -> builder.setReasonCancelled(parser.text());
                         case Status.THROTTLED_UNTIL_RAW_FIELD -> builder.setThrottledUntil(parser.longValue());
+                        case Status.IN_FLIGHT_BULKS_FIELD -> builder.setInFlightBulks(parser.intValue());
+                        case Status.IN_FLIGHT_BULKS_SIZE_FIELD -> builder.setInFlightBulksSizeInBytes(parser.longValue());
+                        case Status.BATCH_SIZE_FIELD -> builder.setBatchSize(parser.intValue());
                     }
                 }
             }
@@ -696,6 +809,11 @@ public class BulkByScrollTask extends CancellableTask {
                 builder.append(",canceled=").append(reasonCancelled);
             }
             builder.append(",throttledUntil=").append(throttledUntil);
+            if (batchSize > 0) {
+                builder.append(",inFlightBulks=").append(inFlightBulks);
+                builder.append(",inFlightBulksSizeInBytes=").append(inFlightBulksSizeInBytes);
+                builder.append(",batchSize=").append(batchSize);
+            }
             if (false == sliceStatuses.isEmpty()) {
                 builder.append(",workers=").append(sliceStatuses);
             }
@@ -794,6 +912,28 @@ public class BulkByScrollTask extends CancellableTask {
             return throttledUntil;
         }
 
+        /**
+         * Number of bulk requests that are currently in flight. Only more than one if the request pipelines its bulk requests.
+         */
+        public int getInFlightBulks() {
+            return inFlightBulks;
+        }
+
+        /**
+         * The estimated size of the bulk requests that are currently in flight.
+         */
+        public long getInFlightBulksSizeInBytes() {
+            return inFlightBulksSizeInBytes;
+        }
+
+        /**
+         * The number of documents that the request currently puts into a bulk request if it pipelines its bulk requests, 0 otherwise.
+         * This adapts to the latency of the bulk requests and to rejections and is at most the size of the scroll.
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
         /**
          * Statuses of the sub requests into which this sub-request was sliced. Empty if this request wasn't sliced into sub-requests.
          */
@@ -818,6 +958,9 @@ public class BulkByScrollTask extends CancellableTask {
                 requestsPerSecond,
                 reasonCancelled,
                 throttledUntil,
+                inFlightBulks,
+                inFlightBulksSizeInBytes,
+                batchSize,
                 sliceStatuses
             );
         }
@@ -839,7 +982,10 @@ public class BulkByScrollTask extends CancellableTask {
                 && Objects.equals(throttled, other.throttled)
                 && requestsPerSecond == other.requestsPerSecond
                 && Objects.equals(reasonCancelled, other.reasonCancelled)
-                && Objects.equals(throttledUntil, other.throttledUntil);
+                && Objects.equals(throttledUntil, other.throttledUntil)
+                && inFlightBulks == other.inFlightBulks
+                && inFlightBulksSizeInBytes == other.inFlightBulksSizeInBytes
+                && batchSize == other.batchSize;
         }
 
         @Override
@@ -61,6 +61,14 @@ public class WorkerBulkByScrollTaskState implements SuccessfullyProcessed {
     private final AtomicLong searchRetries = new AtomicLong(0);
     private final AtomicLong throttledNanos = new AtomicLong();
 
+    /**
+     * The bulk requests in flight and the size of the batches if the request pipelines its bulk requests. Set together by
+     * {@link #setInFlightBulks(int, long, int)}, which is enough for a status that is only ever a snapshot.
+     */
+    private volatile int inFlightBulks;
+    private volatile long inFlightBulksSizeInBytes;
+    private volatile int batchSize;
+
     /**
      * The number of requests per second to which to throttle the request that this task represents. The other variables are all AtomicXXX
      * style variables but there isn't an AtomicFloat so we just use a volatile.
@@ -93,7 +101,10 @@ public class WorkerBulkByScrollTaskState implements SuccessfullyProcessed {
             timeValueNanos(throttledNanos.get()),
             getRequestsPerSecond(),
             task.getReasonCancelled(),
-            throttledUntil()
+            throttledUntil(),
+            inFlightBulks,
+            inFlightBulksSizeInBytes,
+            batchSize
         );
     }
 
@@ -153,6 +164,16 @@ public class WorkerBulkByScrollTaskState implements SuccessfullyProcessed {
         searchRetries.incrementAndGet();
     }
 
+    /**
+     * Record the bulk requests that are in flight and the number of documents that go into the next bulk request of a request that
+     * pipelines its bulk requests.
+     */
+    public void setInFlightBulks(int inFlightBulks, long inFlightBulksSizeInBytes, int batchSize) {
+        this.inFlightBulks = inFlightBulks;
+        this.inFlightBulksSizeInBytes = inFlightBulksSizeInBytes;
+        this.batchSize = batchSize;
+    }
+
     float getRequestsPerSecond() {
         return requestsPerSecond;
     }
@@ -0,0 +1,108 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.shard;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.util.concurrent.AsyncIOProcessor;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.core.Tuple;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogSyncStats;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Syncs the translog locations of write requests in group commits: the locations that are queued while the translog is being synced
+ * are synced together with a single fsync of the largest location once the current sync completed.
+ * <p>
+ * On top of that, when the previous batch contained several requests, the thread that processes the next batch waits for up to as
+ * many requests to join it before syncing. The wait is bounded by half the average fsync time and by
+ * {@link org.elasticsearch.index.IndexSettings#INDEX_TRANSLOG_GROUP_COMMIT_WINDOW_SETTING}, so that it never costs more than the
+ * fsyncs that it saves. Batches shrink back to a single request once the concurrency goes away, at which point requests stop
+ * waiting altogether.
+ */
+final class TranslogSyncProcessor extends AsyncIOProcessor<Translog.Location> {
+
+    static final int QUEUE_SIZE = 1024;
+
+    private final Logger logger;
+    private final Supplier<Engine> engineSupplier;
+    private final Supplier<TimeValue> maxWindowSupplier;
+
+    private final ExponentiallyWeightedMovingAverage fsyncTimeNanos = new ExponentiallyWeightedMovingAverage(0.3, 0);
+    // only accessed by the thread that processes the current batch, which is serialized by the processor
+    private int expectedBatchSize = 1;
+
+    private final MeanMetric batches = new MeanMetric();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final MeanMetric fsyncs = new MeanMetric();
+    private final CounterMetric waitTimeNanos = new CounterMetric();
+
+    TranslogSyncProcessor(Logger logger, ThreadContext threadContext, Supplier<Engine> engineSupplier, Supplier<TimeValue> maxWindow) {
+        super(logger, QUEUE_SIZE, threadContext);
+        this.logger = logger;
+        this.engineSupplier = engineSupplier;
+        this.maxWindowSupplier = maxWindow;
+    }
+
+    @Override
+    protected long batchWindowNanos(int batchSize, long waitedNanos) {
+        final long windowNanos = Math.min(maxWindowSupplier.get().nanos(), (long) (fsyncTimeNanos.getAverage() / 2));
+        if (batchSize >= expectedBatchSize || waitedNanos >= windowNanos) {
+            waitTimeNanos.inc(waitedNanos);
+            return 0L;
+        }
+        return windowNanos - waitedNanos;
+    }
+
+    @Override
+    protected void write(List<Tuple<Translog.Location, Consumer<Exception>>> candidates) throws IOException {
+        final int batchSize = candidates.size();
+        batches.inc(batchSize);
+        maxBatchSize.accumulateAndGet(batchSize, Math::max);
+        // expect as many requests as last time, the batch will be written earlier if they don't show up within the window
+        expectedBatchSize = batchSize;
+        final long startNanos = System.nanoTime();
+        try {
+            if (engineSupplier.get().ensureTranslogSynced(candidates.stream().map(Tuple::v1))) {
+                final long tookNanos = System.nanoTime() - startNanos;
+                fsyncs.inc(tookNanos);
+                fsyncTimeNanos.addValue(tookNanos);
+            }
+        } catch (AlreadyClosedException ex) {
+            // that's fine since we already synced everything on engine close - this also is conform with the methods
+            // documentation
+        } catch (IOException ex) { // if this fails we are in deep shit - fail the request
+            logger.debug("failed to sync translog", ex);
+            throw ex;
+        }
+    }
+
+    TranslogSyncStats stats() {
+        return new TranslogSyncStats(
+            batches.count(),
+            batches.sum(),
+            maxBatchSize.get(),
+            fsyncs.count(),
+            TimeUnit.NANOSECONDS.toMillis(fsyncs.sum()),
+            TimeUnit.NANOSECONDS.toMillis(waitTimeNanos.count())
+        );
+    }
+}
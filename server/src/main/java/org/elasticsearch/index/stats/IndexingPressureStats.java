@@ -42,6 +42,10 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
     private final long currentPrimaryOps;
     private final long currentReplicaOps;
 
+    private final long coalescedWrites;
+    private final long coalescedRequests;
+    private final long coalescedOps;
+
     public IndexingPressureStats(StreamInput in) throws IOException {
         totalCombinedCoordinatingAndPrimaryBytes = in.readVLong();
         totalCoordinatingBytes = in.readVLong();
@@ -63,6 +67,16 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
             memoryLimit = -1L;
         }
 
+        if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+            coalescedWrites = in.readVLong();
+            coalescedRequests = in.readVLong();
+            coalescedOps = in.readVLong();
+        } else {
+            coalescedWrites = 0;
+            coalescedRequests = 0;
+            coalescedOps = 0;
+        }
+
         // These are not currently propagated across the network yet
         this.totalCoordinatingOps = 0;
         this.totalPrimaryOps = 0;
@@ -90,7 +104,10 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         long totalReplicaOps,
         long currentCoordinatingOps,
         long currentPrimaryOps,
-        long currentReplicaOps
+        long currentReplicaOps,
+        long coalescedWrites,
+        long coalescedRequests,
+        long coalescedOps
     ) {
         this.totalCombinedCoordinatingAndPrimaryBytes = totalCombinedCoordinatingAndPrimaryBytes;
         this.totalCoordinatingBytes = totalCoordinatingBytes;
@@ -111,6 +128,10 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         this.currentCoordinatingOps = currentCoordinatingOps;
         this.currentPrimaryOps = currentPrimaryOps;
         this.currentReplicaOps = currentReplicaOps;
+
+        this.coalescedWrites = coalescedWrites;
+        this.coalescedRequests = coalescedRequests;
+        this.coalescedOps = coalescedOps;
     }
 
     @Override
@@ -132,6 +153,12 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         if (out.getVersion().onOrAfter(Version.V_7_10_0)) {
             out.writeVLong(memoryLimit);
         }
+
+        if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+            out.writeVLong(coalescedWrites);
+            out.writeVLong(coalescedRequests);
+            out.writeVLong(coalescedOps);
+        }
     }
 
     public long getTotalCombinedCoordinatingAndPrimaryBytes() {
@@ -206,6 +233,28 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         return memoryLimit;
     }
 
+    /**
+     * The number of writes that shard-level write requests were coalesced into, see
+     * {@link org.elasticsearch.action.bulk.TransportBulkAction#COALESCING_ENABLED_SETTING}.
+     */
+    public long getCoalescedWrites() {
+        return coalescedWrites;
+    }
+
+    /**
+     * The number of shard-level write requests that were coalesced into the {@link #getCoalescedWrites() coalesced writes}.
+     */
+    public long getCoalescedRequests() {
+        return coalescedRequests;
+    }
+
+    /**
+     * The number of operations in the {@link #getCoalescedWrites() coalesced writes}.
+     */
+    public long getCoalescedOps() {
+        return coalescedOps;
+    }
+
     private static final String COMBINED = "combined_coordinating_and_primary";
     private static final String COMBINED_IN_BYTES = "combined_coordinating_and_primary_in_bytes";
     private static final String COORDINATING = "coordinating";
@@ -245,6 +294,13 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         builder.endObject();
         builder.humanReadableField(LIMIT_IN_BYTES, LIMIT, new ByteSizeValue(memoryLimit));
         builder.endObject();
+        if (coalescedWrites > 0) {
+            builder.startObject("coalescing");
+            builder.field("writes", coalescedWrites);
+            builder.field("requests", coalescedRequests);
+            builder.field("ops", coalescedOps);
+            builder.endObject();
+        }
         return builder.endObject();
     }
 }
@@ -529,7 +529,14 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
     }
 
     public static void checkIntegrity(final StoreFileMetadata md, final Directory directory) throws IOException {
-        try (IndexInput input = directory.openInput(md.name(), IOContext.READONCE)) {
+        checkIntegrity(md.name(), md, directory);
+    }
+
+    /**
+     * Checks that the given file, which may be a temporary copy of the file described by the given metadata, matches this metadata.
+     */
+    public static void checkIntegrity(final String fileName, final StoreFileMetadata md, final Directory directory) throws IOException {
+        try (IndexInput input = directory.openInput(fileName, IOContext.READONCE)) {
             if (input.length() != md.length()) { // first check the length no matter how old this file is
                 throw new CorruptIndexException(
                     "expected length=" + md.length() + " != actual length: " + input.length() + " : file truncated?",
@@ -0,0 +1,178 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.core.CheckedFunction;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.internal.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * Reads batches of operations from a {@link Translog.Snapshot} on an executor, one batch ahead of its consumer, so that the consumer
+ * never blocks on the disk reads and the decompression of stored fields behind {@link Translog.Snapshot#next()}.
+ * <p>
+ * The consumer {@link #poll polls} for the next batch. If it has been read already, it is handed over and the batch after it starts to be
+ * read in the background. Otherwise the consumer is notified once it is ready and polls again. At most one batch is read at any time and
+ * at most one batch is held on to, so that the snapshot is only ever accessed by one thread at a time. Since the consumer may itself hold
+ * on to a batch it polled ahead of using it, like the read-ahead request of a
+ * {@link org.elasticsearch.indices.recovery.MultiChunkTransfer}, up to three batches may be in memory at once: the consumer's, the ready
+ * one and the one being read.
+ * <p>
+ * Closing the reader closes the snapshot. If a batch is being read at the time, the snapshot is closed once that read completes.
+ *
+ * @param <B> the type of the batches
+ */
+public final class ReadAheadSnapshotReader<B> implements Closeable {
+
+    private final Translog.Snapshot snapshot;
+    private final Executor executor;
+    private final CheckedFunction<Translog.Snapshot, B, IOException> readBatch;
+    private final Predicate<B> isLastBatch;
+
+    // all guarded by this
+    private B ready;
+    private Exception failure;
+    private boolean reading;
+    private boolean exhausted;
+    private boolean closed;
+    private Runnable onReady;
+
+    /**
+     * @param snapshot the snapshot to read from, owned by the reader from now on
+     * @param executor the executor to read batches on
+     * @param readBatch reads the next batch from the snapshot
+     * @param isLastBatch whether a batch is the last one, after which nothing is read anymore
+     */
+    public ReadAheadSnapshotReader(
+        Translog.Snapshot snapshot,
+        Executor executor,
+        CheckedFunction<Translog.Snapshot, B, IOException> readBatch,
+        Predicate<B> isLastBatch
+    ) {
+        this.snapshot = snapshot;
+        this.executor = executor;
+        this.readBatch = readBatch;
+        this.isLastBatch = isLastBatch;
+    }
+
+    /**
+     * Returns the next batch if it has been read already and starts reading the one after it. Otherwise returns {@code null} and calls
+     * the given runnable once the next batch has been read or reading it failed, on the thread that read it. Must not be called again
+     * after the last batch has been returned.
+     *
+     * @throws IOException if reading the next batch failed
+     */
+    @Nullable
+    public B poll(Runnable onReady) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("reader is closed");
+            }
+            rethrowFailure();
+            if (ready != null) {
+                final B batch = ready;
+                ready = null;
+                if (exhausted == false) {
+                    readNext();
+                }
+                return batch;
+            }
+            assert exhausted == false : "the last batch was returned already";
+            // the consumer may poll again before the batch is ready, the latest runnable wins
+            this.onReady = onReady;
+            if (reading == false) {
+                readNext();
+                rethrowFailure();
+            }
+            return null;
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        assert Thread.holdsLock(this);
+        if (failure != null) {
+            if (failure instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+    }
+
+    private void readNext() {
+        assert Thread.holdsLock(this);
+        assert reading == false && ready == null;
+        reading = true;
+        try {
+            executor.execute(this::read);
+        } catch (Exception e) {
+            // surfaces on the next poll
+            reading = false;
+            failure = e;
+        }
+    }
+
+    private void read() {
+        B batch = null;
+        Exception readFailure = null;
+        try {
+            batch = readBatch.apply(snapshot);
+            assert batch != null;
+        } catch (Exception e) {
+            readFailure = e;
+        }
+        final Runnable toNotify;
+        final boolean closeSnapshot;
+        synchronized (this) {
+            assert reading;
+            reading = false;
+            closeSnapshot = closed;
+            if (closed) {
+                // nobody is interested in this batch anymore, failures included, since reads may fail once the shard closes
+                toNotify = null;
+            } else {
+                if (readFailure == null) {
+                    ready = batch;
+                    exhausted = isLastBatch.test(batch);
+                } else {
+                    failure = readFailure;
+                }
+                toNotify = onReady;
+                onReady = null;
+            }
+        }
+        if (closeSnapshot) {
+            IOUtils.closeWhileHandlingException(snapshot);
+        }
+        if (toNotify != null) {
+            toNotify.run();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            ready = null;
+            onReady = null;
+            if (reading) {
+                // the snapshot is closed by the read in progress
+                return;
+            }
+        }
+        snapshot.close();
+    }
+}
@@ -15,17 +15,21 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.DiskIoBufferPool;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.core.AbstractRefCounted;
 import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.RefCounted;
 import org.elasticsearch.core.Releasable;
-import org.elasticsearch.core.Releasables;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
@@ -107,6 +111,11 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
     static final Pattern PARSE_STRICT_ID_PATTERN = Pattern.compile("^" + TRANSLOG_FILE_PREFIX + "(\\d+)(\\.tlog)$");
     public static final int DEFAULT_HEADER_SIZE_IN_BYTES = TranslogHeader.headerSizeInBytes(UUIDs.randomBase64UUID());
+    /**
+     * Serialized operations of at least this size are handed to the {@link TranslogWriter} by reference rather than copied into its
+     * write buffer. Smaller operations are copied since holding on to their pages until the next write would waste memory.
+     */
+    static final int ADD_BY_REFERENCE_THRESHOLD_IN_BYTES = PageCacheRecycler.BYTE_PAGE_SIZE / 2;
 
     // the list of translog readers is guaranteed to be in order of translog generation
     private final List<TranslogReader> readers = new ArrayList<>();
@@ -125,6 +134,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final String translogUUID;
     private final TranslogDeletionPolicy deletionPolicy;
     private final LongConsumer persistedSequenceNumberConsumer;
+    private final CounterMetric copiedBytes = new CounterMetric();
+    private final CounterMetric referencedBytes = new CounterMetric();
 
     /**
      * Creates a new Translog instance. This method will create a new transaction log unless the given {@link TranslogGeneration} is
@@ -570,6 +581,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
      */
     public Location add(final Operation operation) throws IOException {
         final ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
+        // the writer may retain the serialized operation, in which case the pages are released once it wrote the operation
+        final RefCounted pages = AbstractRefCounted.of(out::close);
         try {
             final long start = out.position();
             out.skip(Integer.BYTES);
@@ -580,6 +593,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             out.writeInt(operationSize);
             out.seek(end);
             final BytesReference bytes = out.bytes();
+            final boolean byReference = bytes.length() >= ADD_BY_REFERENCE_THRESHOLD_IN_BYTES;
             try (ReleasableLock ignored = readLock.acquire()) {
                 ensureOpen();
                 if (operation.primaryTerm() > current.getPrimaryTerm()) {
@@ -599,7 +613,15 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                             + "]"
                     );
                 }
-                return current.add(bytes, operation.seqNo());
+                final Location location;
+                if (byReference) {
+                    location = current.addByReference(new ReleasableBytesReference(bytes, pages), operation.seqNo());
+                    referencedBytes.inc(bytes.length());
+                } else {
+                    location = current.add(bytes, operation.seqNo());
+                    copiedBytes.inc(bytes.length());
+                }
+                return location;
             }
         } catch (final AlreadyClosedException | IOException ex) {
             closeOnTragicEvent(ex);
@@ -608,10 +630,25 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             closeOnTragicEvent(ex);
             throw new TranslogException(shardId, "Failed to write operation [" + operation + "]", ex);
         } finally {
-            Releasables.close(out);
+            pages.decRef();
         }
     }
 
+    /**
+     * Returns the number of bytes of serialized operations that were copied into the write buffer of the translog since it was opened.
+     */
+    public long getCopiedBytes() {
+        return copiedBytes.count();
+    }
+
+    /**
+     * Returns the number of bytes of serialized operations that were buffered by reference, without copying them, since the translog
+     * was opened.
+     */
+    public long getReferencedBytes() {
+        return referencedBytes.count();
+    }
+
     /**
      * Tests whether or not the translog generation should be rolled to a new generation. This test
      * is based on the size of the current generation compared to the configured generation
@@ -7,6 +7,7 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -24,8 +25,11 @@ public class TranslogStats implements Writeable, ToXContentFragment {
     private long uncommittedSizeInBytes;
     private int uncommittedOperations;
     private long earliestLastModifiedAge;
+    private final TranslogSyncStats syncStats;
 
-    public TranslogStats() {}
+    public TranslogStats() {
+        syncStats = new TranslogSyncStats();
+    }
 
     public TranslogStats(StreamInput in) throws IOException {
         numberOfOperations = in.readVInt();
@@ -33,6 +37,11 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         uncommittedOperations = in.readVInt();
         uncommittedSizeInBytes = in.readVLong();
         earliestLastModifiedAge = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+            syncStats = new TranslogSyncStats(in);
+        } else {
+            syncStats = new TranslogSyncStats();
+        }
     }
 
     public TranslogStats(
@@ -62,6 +71,7 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         this.uncommittedSizeInBytes = uncommittedSizeInBytes;
         this.uncommittedOperations = uncommittedOperations;
         this.earliestLastModifiedAge = earliestLastModifiedAge;
+        this.syncStats = new TranslogSyncStats();
     }
 
     public void add(TranslogStats translogStats) {
@@ -78,6 +88,14 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         } else {
             this.earliestLastModifiedAge = Math.min(this.earliestLastModifiedAge, translogStats.earliestLastModifiedAge);
         }
+        this.syncStats.add(translogStats.syncStats);
+    }
+
+    /**
+     * Adds the statistics of the translog syncs that write requests of the shard asked for.
+     */
+    public void addSyncStats(TranslogSyncStats syncStats) {
+        this.syncStats.add(syncStats);
     }
 
     public long getTranslogSizeInBytes() {
@@ -102,6 +120,10 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         return earliestLastModifiedAge;
     }
 
+    public TranslogSyncStats getSyncStats() {
+        return syncStats;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("translog");
@@ -110,6 +132,7 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         builder.field("uncommitted_operations", uncommittedOperations);
         builder.humanReadableField("uncommitted_size_in_bytes", "uncommitted_size", new ByteSizeValue(uncommittedSizeInBytes));
         builder.field("earliest_last_modified_age", earliestLastModifiedAge);
+        syncStats.toXContent(builder, params);
         builder.endObject();
         return builder;
     }
@@ -126,5 +149,8 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         out.writeVInt(uncommittedOperations);
         out.writeVLong(uncommittedSizeInBytes);
         out.writeVLong(earliestLastModifiedAge);
+        if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+            syncStats.writeTo(out);
+        }
     }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Statistics about the group commits of the translog syncs that are requested by write requests, which are used when the translog
+ * durability is {@link Translog.Durability#REQUEST}. Requests that arrive while the translog is being synced are gathered and
+ * their locations are synced together, so the ratio of {@link #getRequests()} to {@link #getBatches()} is the average batch size.
+ */
+public class TranslogSyncStats implements Writeable, ToXContentFragment {
+
+    private long batches;
+    private long requests;
+    private long maxBatchSize;
+    private long fsyncs;
+    private long fsyncTimeInMillis;
+    private long waitTimeInMillis;
+
+    public TranslogSyncStats() {}
+
+    public TranslogSyncStats(long batches, long requests, long maxBatchSize, long fsyncs, long fsyncTimeInMillis, long waitTimeInMillis) {
+        this.batches = batches;
+        this.requests = requests;
+        this.maxBatchSize = maxBatchSize;
+        this.fsyncs = fsyncs;
+        this.fsyncTimeInMillis = fsyncTimeInMillis;
+        this.waitTimeInMillis = waitTimeInMillis;
+    }
+
+    public TranslogSyncStats(StreamInput in) throws IOException {
+        batches = in.readVLong();
+        requests = in.readVLong();
+        maxBatchSize = in.readVLong();
+        fsyncs = in.readVLong();
+        fsyncTimeInMillis = in.readVLong();
+        waitTimeInMillis = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(batches);
+        out.writeVLong(requests);
+        out.writeVLong(maxBatchSize);
+        out.writeVLong(fsyncs);
+        out.writeVLong(fsyncTimeInMillis);
+        out.writeVLong(waitTimeInMillis);
+    }
+
+    public void add(TranslogSyncStats other) {
+        if (other == null) {
+            return;
+        }
+        batches += other.batches;
+        requests += other.requests;
+        maxBatchSize = Math.max(maxBatchSize, other.maxBatchSize);
+        fsyncs += other.fsyncs;
+        fsyncTimeInMillis += other.fsyncTimeInMillis;
+        waitTimeInMillis += other.waitTimeInMillis;
+    }
+
+    /**
+     * The number of batches of sync requests that were processed together.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * The number of sync requests that were processed.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * The largest number of sync requests that were processed together.
+     */
+    public long getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * The number of batches that caused an actual fsync, batches whose locations were already synced don't need one.
+     */
+    public long getFsyncs() {
+        return fsyncs;
+    }
+
+    public TimeValue getFsyncTime() {
+        return new TimeValue(fsyncTimeInMillis);
+    }
+
+    /**
+     * The time spent waiting for more sync requests to join a batch before syncing it.
+     */
+    public TimeValue getWaitTime() {
+        return new TimeValue(waitTimeInMillis);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("sync");
+        builder.field("batches", batches);
+        builder.field("requests", requests);
+        builder.field("max_batch_size", maxBatchSize);
+        builder.field("fsyncs", fsyncs);
+        builder.humanReadableField("fsync_time_in_millis", "fsync_time", getFsyncTime());
+        builder.humanReadableField("wait_time_in_millis", "wait_time", getWaitTime());
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TranslogSyncStats that = (TranslogSyncStats) o;
+        return batches == that.batches
+            && requests == that.requests
+            && maxBatchSize == that.maxBatchSize
+            && fsyncs == that.fsyncs
+            && fsyncTimeInMillis == that.fsyncTimeInMillis
+            && waitTimeInMillis == that.waitTimeInMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(batches, requests, maxBatchSize, fsyncs, fsyncTimeInMillis, waitTimeInMillis);
+    }
+
+    @Override
+    public String toString() {
+        return Strings.toString(this, true, true);
+    }
+}
@@ -17,6 +17,7 @@ import org.apache.lucene.util.BytesRefIterator;
 import org.elasticsearch.Assertions;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.Channels;
 import org.elasticsearch.common.io.DiskIoBufferPool;
@@ -24,6 +25,7 @@ import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.core.SuppressForbidden;
 import org.elasticsearch.core.Tuple;
@@ -37,7 +39,9 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -79,6 +83,8 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     private final int forceWriteThreshold;
     private volatile long bufferedBytes;
     private ReleasableBytesStreamOutput buffer;
+    // the filled parts of the buffer and the operations that were added by reference, in the order they were added
+    private final List<ReleasableBytesReference> bufferedChunks = new ArrayList<>();
 
     private final Map<Long, Tuple<BytesReference, Exception>> seenSequenceNumbers;
 
@@ -213,6 +219,19 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
      * @throws IOException if writing to the translog resulted in an I/O exception
      */
     public Translog.Location add(final BytesReference data, final long seqNo) throws IOException {
+        return add(data, false, seqNo);
+    }
+
+    /**
+     * Like {@link #add(BytesReference, long)}, but the bytes are not copied into the write buffer. The buffer retains a reference to
+     * them until they are written to the file instead, the caller remains responsible for releasing its own reference. This saves a
+     * copy of large operations, whereas small operations are cheaper to copy than to keep a whole page of memory around for.
+     */
+    public Translog.Location addByReference(final ReleasableBytesReference data, final long seqNo) throws IOException {
+        return add(data, true, seqNo);
+    }
+
+    private Translog.Location add(final BytesReference data, final boolean byReference, final long seqNo) throws IOException {
         long bufferedBytesBeforeAdd = this.bufferedBytes;
         if (bufferedBytesBeforeAdd >= forceWriteThreshold) {
             writeBufferedOps(Long.MAX_VALUE, bufferedBytesBeforeAdd >= forceWriteThreshold * 4);
@@ -221,13 +240,18 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         final Translog.Location location;
         synchronized (this) {
             ensureOpen();
-            if (buffer == null) {
-                buffer = new ReleasableBytesStreamOutput(bigArrays);
-            }
-            assert bufferedBytes == buffer.size();
+            assert assertBufferedBytes();
             final long offset = totalOffset;
             totalOffset += data.length();
-            data.writeTo(buffer);
+            if (byReference) {
+                sealBuffer();
+                bufferedChunks.add(((ReleasableBytesReference) data).retain());
+            } else {
+                if (buffer == null) {
+                    buffer = new ReleasableBytesStreamOutput(bigArrays);
+                }
+                data.writeTo(buffer);
+            }
 
             assert minSeqNo != SequenceNumbers.NO_OPS_PERFORMED || operationCounter == 0;
             assert maxSeqNo != SequenceNumbers.NO_OPS_PERFORMED || operationCounter == 0;
@@ -242,12 +266,35 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
             assert assertNoSeqNumberConflict(seqNo, data);
 
             location = new Translog.Location(generation, offset, data.length());
-            bufferedBytes = buffer.size();
+            bufferedBytes += data.length();
         }
 
         return location;
     }
 
+    /**
+     * Moves the bytes that were copied into the buffer so far to the buffered chunks, so that the next operation is buffered after them.
+     */
+    private synchronized void sealBuffer() {
+        if (buffer != null) {
+            if (buffer.size() > 0) {
+                bufferedChunks.add(new ReleasableBytesReference(buffer.bytes(), buffer));
+            } else {
+                buffer.close();
+            }
+            buffer = null;
+        }
+    }
+
+    private synchronized boolean assertBufferedBytes() {
+        long expected = buffer == null ? 0 : buffer.size();
+        for (ReleasableBytesReference chunk : bufferedChunks) {
+            expected += chunk.length();
+        }
+        assert bufferedBytes == expected : "buffered bytes [" + bufferedBytes + "] but expected [" + expected + "]";
+        return true;
+    }
+
     private synchronized boolean assertNoSeqNumberConflict(long seqNo, BytesReference data) throws IOException {
         if (seqNo == SequenceNumbers.UNASSIGNED_SEQ_NO) {
             // nothing to do
@@ -393,7 +440,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                         throw ex;
                     }
                     // If we reached this point, all of the buffered ops should have been flushed successfully.
-                    assert buffer == null;
+                    assert buffer == null && bufferedChunks.isEmpty();
                     assert checkChannelPositionWhileHandlingException(totalOffset);
                     assert totalOffset == lastSyncedCheckpoint.offset;
                     if (closed.compareAndSet(false, true)) {
@@ -431,7 +478,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                         throw new TranslogException(shardId, "exception while syncing before creating a snapshot", e);
                     }
                     // If we reached this point, all of the buffered ops should have been flushed successfully.
-                    assert buffer == null;
+                    assert buffer == null && bufferedChunks.isEmpty();
                     assert checkChannelPositionWhileHandlingException(totalOffset);
                     assert totalOffset == lastSyncedCheckpoint.offset;
                     return super.newSnapshot();
@@ -520,14 +567,19 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
 
     private synchronized ReleasableBytesReference pollOpsToWrite() {
         ensureOpen();
-        if (this.buffer != null) {
-            ReleasableBytesStreamOutput toWrite = this.buffer;
-            this.buffer = null;
-            this.bufferedBytes = 0;
-            return new ReleasableBytesReference(toWrite.bytes(), toWrite);
-        } else {
+        sealBuffer();
+        final ReleasableBytesReference toWrite;
+        if (bufferedChunks.isEmpty()) {
             return ReleasableBytesReference.empty();
+        } else if (bufferedChunks.size() == 1) {
+            toWrite = bufferedChunks.get(0);
+        } else {
+            final ReleasableBytesReference[] chunks = bufferedChunks.toArray(new ReleasableBytesReference[0]);
+            toWrite = new ReleasableBytesReference(CompositeBytesReference.of(chunks), () -> Releasables.close(chunks));
         }
+        bufferedChunks.clear();
+        this.bufferedBytes = 0;
+        return toWrite;
     }
 
     private void writeAndReleaseOps(ReleasableBytesReference toWrite) throws IOException {
@@ -626,7 +678,9 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         if (closed.compareAndSet(false, true)) {
             synchronized (this) {
                 Releasables.closeWhileHandlingException(buffer);
+                Releasables.closeWhileHandlingException(bufferedChunks.toArray(new Releasable[0]));
                 buffer = null;
+                bufferedChunks.clear();
                 bufferedBytes = 0;
             }
             IOUtils.close(checkpointChannel, channel);
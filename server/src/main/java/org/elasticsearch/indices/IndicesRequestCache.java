@@ -74,6 +74,12 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         new TimeValue(0),
         Property.NodeScope
     );
+    public static final Setting<CacheBuilder.EvictionPolicy> INDICES_CACHE_QUERY_EVICTION_POLICY = Setting.enumSetting(
+        CacheBuilder.EvictionPolicy.class,
+        "indices.requests.cache.eviction_policy",
+        CacheBuilder.EvictionPolicy.LRU,
+        Property.NodeScope
+    );
 
     private final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
     private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
@@ -88,6 +94,7 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.<Key, BytesReference>builder()
             .setMaximumWeight(sizeInBytes)
             .weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed())
+            .setEvictionPolicy(INDICES_CACHE_QUERY_EVICTION_POLICY.get(settings))
             .removalListener(this);
         if (expire != null) {
             cacheBuilder.setExpireAfterAccess(expire);
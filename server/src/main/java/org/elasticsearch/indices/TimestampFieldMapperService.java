@@ -15,6 +15,7 @@ import org.elasticsearch.ElasticsearchTimeoutException;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterStateApplier;
+import org.elasticsearch.cluster.ClusterStateChangeSet;
 import org.elasticsearch.cluster.metadata.DataStream;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.Metadata;
@@ -94,12 +95,22 @@ public class TimestampFieldMapperService extends AbstractLifecycleComponent impl
             return;
         }
 
+        // only the indices that were removed or whose metadata changed since the last applied state need to be looked at
+        final ClusterStateChangeSet changeSet = event.changeSet();
+
         // clear out mappers for indices that no longer exist or whose timestamp range is no longer known
-        fieldTypesByIndex.keySet().removeIf(index -> hasUsefulTimestampField(metadata.index(index)) == false);
+        for (Index index : changeSet.indicesRemovedFromMetadata()) {
+            fieldTypesByIndex.remove(index);
+        }
+        for (Index index : changeSet.indicesWithChangedMetadata()) {
+            if (hasUsefulTimestampField(metadata.index(index)) == false) {
+                fieldTypesByIndex.remove(index);
+            }
+        }
 
         // capture mappers for indices that do exist
-        for (IndexMetadata indexMetadata : indices.values()) {
-            final Index index = indexMetadata.getIndex();
+        for (Index index : changeSet.indicesWithChangedMetadata()) {
+            final IndexMetadata indexMetadata = metadata.index(index);
 
             if (hasUsefulTimestampField(indexMetadata) && fieldTypesByIndex.containsKey(index) == false) {
                 logger.trace("computing timestamp mapping for {}", index);
@@ -19,6 +19,7 @@ import org.elasticsearch.client.internal.node.NodeClient;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateApplier;
+import org.elasticsearch.cluster.ClusterStateChangeSet;
 import org.elasticsearch.cluster.action.shard.ShardStateAction;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.node.DiscoveryNode;
@@ -522,8 +523,13 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
             return;
         }
         final ClusterState state = event.state();
-        for (AllocatedIndex<? extends Shard> indexService : indicesService) {
-            final Index index = indexService.index();
+        assert assertUnchangedIndicesUpToDate(event);
+        // only the indices whose metadata changed since the last applied state need to be updated
+        for (Index index : event.changeSet().indicesWithChangedMetadata()) {
+            final AllocatedIndex<? extends Shard> indexService = indicesService.indexService(index);
+            if (indexService == null) {
+                continue;
+            }
             final IndexMetadata currentIndexMetadata = indexService.getIndexSettings().getIndexMetadata();
             final IndexMetadata newIndexMetadata = state.metadata().index(index);
             assert newIndexMetadata != null : "index " + index + " should have been removed by deleteIndices";
@@ -557,6 +563,22 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
         }
     }
 
+    /**
+     * Asserts that the indices whose metadata didn't change since the last applied cluster state, which {@link #updateIndices} skips,
+     * already have the metadata of the new cluster state.
+     */
+    private boolean assertUnchangedIndicesUpToDate(ClusterChangedEvent event) {
+        final ClusterStateChangeSet changeSet = event.changeSet();
+        for (AllocatedIndex<? extends Shard> indexService : indicesService) {
+            final Index index = indexService.index();
+            if (changeSet.indexMetadataChanged(index) == false) {
+                assert indexService.getIndexSettings().getIndexMetadata() == event.state().metadata().index(index)
+                    : "metadata of index " + index + " didn't change but isn't up to date";
+            }
+        }
+        return true;
+    }
+
     private void createOrUpdateShards(final ClusterState state) {
         RoutingNode localRoutingNode = state.getRoutingNodes().node(state.nodes().getLocalNodeId());
         if (localRoutingNode == null) {
@@ -576,6 +598,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
                     assert shardRouting.initializing() : shardRouting + " should have been removed by failMissingShards";
                     createShard(nodes, routingTable, shardRouting, state);
                 } else {
+                    // even if its routing didn't change, the shard needs the version of the applied cluster state
                     updateShard(nodes, shardRouting, shard, routingTable, state);
                 }
             }
@@ -47,13 +47,21 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         new ByteSizeValue(-1),
         Property.NodeScope
     );
+    public static final Setting<CacheBuilder.EvictionPolicy> INDICES_FIELDDATA_CACHE_EVICTION_POLICY = Setting.enumSetting(
+        CacheBuilder.EvictionPolicy.class,
+        "indices.fielddata.cache.eviction_policy",
+        CacheBuilder.EvictionPolicy.LRU,
+        Property.NodeScope
+    );
     private final IndexFieldDataCache.Listener indicesFieldDataCacheListener;
     private final Cache<Key, Accountable> cache;
 
     public IndicesFieldDataCache(Settings settings, IndexFieldDataCache.Listener indicesFieldDataCacheListener) {
         this.indicesFieldDataCacheListener = indicesFieldDataCacheListener;
         final long sizeInBytes = INDICES_FIELDDATA_CACHE_SIZE_KEY.get(settings).getBytes();
-        CacheBuilder<Key, Accountable> cacheBuilder = CacheBuilder.<Key, Accountable>builder().removalListener(this);
+        CacheBuilder<Key, Accountable> cacheBuilder = CacheBuilder.<Key, Accountable>builder()
+            .setEvictionPolicy(INDICES_FIELDDATA_CACHE_EVICTION_POLICY.get(settings))
+            .removalListener(this);
         if (sizeInBytes > 0) {
             cacheBuilder.setMaximumWeight(sizeInBytes).weigher(new FieldDataWeigher());
         }
@@ -14,6 +14,7 @@ import org.elasticsearch.Assertions;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.util.concurrent.AsyncIOProcessor;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.seqno.LocalCheckpointTracker;
@@ -44,14 +45,27 @@ import static org.elasticsearch.index.seqno.SequenceNumbers.UNASSIGNED_SEQ_NO;
  * greater than {@code maxConcurrentFileChunks}), the sending/requesting thread will abort its execution. That process will be resumed by
  * one of the networking threads which receive/handle the responses of the current pending file chunk requests. This process will continue
  * until all chunk requests are sent/responded.
+ * <p>
+ * If the recovery target writes file chunks at their position as soon as it receives them, it doesn't buffer any chunk, so a single slow
+ * chunk doesn't need to hold back the chunks after it. In that case the sender/requestor keeps up to {@code maxConcurrentFileChunks}
+ * requests in flight, and only stops if the oldest un-replied request is more than {@link #OUT_OF_ORDER_WINDOW_FACTOR} times
+ * {@code maxConcurrentFileChunks} requests behind, which bounds what a target that still reassembles chunks in order may buffer.
+ * <p>
+ * Preparing a chunk request may involve reading from disk. Subclasses that prepare their chunk requests asynchronously return
+ * {@code null} from {@link #nextChunkRequest} while the next chunk isn't ready yet and call {@link #resume()} once it is, rather than
+ * blocking the thread that handles the responses.
  */
 public abstract class MultiChunkTransfer<Source, Request extends MultiChunkTransfer.ChunkRequest> implements Closeable {
+    static final int OUT_OF_ORDER_WINDOW_FACTOR = 4;
+
     private Status status = Status.PROCESSING;
     private final Logger logger;
     private final ActionListener<Void> listener;
     private final LocalCheckpointTracker requestSeqIdTracker = new LocalCheckpointTracker(NO_OPS_PERFORMED, NO_OPS_PERFORMED);
     private final AsyncIOProcessor<FileChunkResponseItem<Source>> processor;
     private final int maxConcurrentChunks;
+    private final boolean outOfOrderWrites;
+    private int inFlightChunks = 0;
     private Source currentSource = null;
     private final Iterator<Source> remainingSources;
     private Tuple<Source, Request> readAheadRequest = null;
@@ -62,9 +76,24 @@ public abstract class MultiChunkTransfer<Source, Request extends MultiChunkTrans
         ActionListener<Void> listener,
         int maxConcurrentChunks,
         List<Source> sources
+    ) {
+        this(logger, threadContext, listener, maxConcurrentChunks, sources, false);
+    }
+
+    /**
+     * @param outOfOrderWrites whether the recovery target writes the chunks at their position as soon as it receives them
+     */
+    protected MultiChunkTransfer(
+        Logger logger,
+        ThreadContext threadContext,
+        ActionListener<Void> listener,
+        int maxConcurrentChunks,
+        List<Source> sources,
+        boolean outOfOrderWrites
     ) {
         this.logger = logger;
         this.maxConcurrentChunks = maxConcurrentChunks;
+        this.outOfOrderWrites = outOfOrderWrites;
         this.listener = listener;
         this.processor = new AsyncIOProcessor<>(logger, maxConcurrentChunks, threadContext) {
             @Override
@@ -79,13 +108,22 @@ public abstract class MultiChunkTransfer<Source, Request extends MultiChunkTrans
         addItem(UNASSIGNED_SEQ_NO, null, null); // put a dummy item to start the processor
     }
 
+    /**
+     * Resumes sending chunk requests after {@link #nextChunkRequest} returned {@code null} because the next chunk wasn't ready yet.
+     */
+    protected final void resume() {
+        addItem(UNASSIGNED_SEQ_NO, null, null);
+    }
+
     private void addItem(long requestSeqId, Source resource, Exception failure) {
         processor.put(new FileChunkResponseItem<>(requestSeqId, resource, failure), e -> { assert e == null : e; });
     }
 
     private void handleItems(List<Tuple<FileChunkResponseItem<Source>, Consumer<Exception>>> items) {
         if (status != Status.PROCESSING) {
-            assert status == Status.FAILED : "must not receive any response after the transfer was completed";
+            // a resume may race with the completion of the transfer, but no actual responses may arrive after it
+            assert status == Status.FAILED || items.stream().allMatch(item -> item.v1().requestSeqId == UNASSIGNED_SEQ_NO)
+                : "must not receive any response after the transfer was completed";
             // These exceptions will be ignored as we record only the first failure, log them for debugging purpose.
             items.stream()
                 .filter(item -> item.v1().failure != null)
@@ -104,12 +142,13 @@ public abstract class MultiChunkTransfer<Source, Request extends MultiChunkTrans
                     continue; // not an actual item
                 }
                 requestSeqIdTracker.markSeqNoAsProcessed(resp.requestSeqId);
+                inFlightChunks--;
                 if (resp.failure != null) {
                     handleError(resp.source, resp.failure);
                     throw resp.failure;
                 }
             }
-            while (requestSeqIdTracker.getMaxSeqNo() - requestSeqIdTracker.getProcessedCheckpoint() < maxConcurrentChunks) {
+            while (canSendMoreChunks()) {
                 final Tuple<Source, Request> request = readAheadRequest != null ? readAheadRequest : getNextRequest();
                 readAheadRequest = null;
                 if (request == null) {
@@ -119,7 +158,11 @@ public abstract class MultiChunkTransfer<Source, Request extends MultiChunkTrans
                     }
                     return;
                 }
+                if (request.v2() == null) {
+                    return; // the next chunk isn't ready yet, we are resumed once it is
+                }
                 final long requestSeqId = requestSeqIdTracker.generateSeqNo();
+                inFlightChunks++;
                 executeChunkRequest(
                     request.v2(),
                     ActionListener.wrap(r -> addItem(requestSeqId, request.v1(), null), e -> addItem(requestSeqId, request.v1(), e))
@@ -128,13 +171,22 @@ public abstract class MultiChunkTransfer<Source, Request extends MultiChunkTrans
             // While we are waiting for the responses, we can prepare the next request in advance
             // so we can send it immediately when the responses arrive to reduce the transfer time.
             if (readAheadRequest == null) {
-                readAheadRequest = getNextRequest();
+                final Tuple<Source, Request> nextRequest = getNextRequest();
+                readAheadRequest = nextRequest != null && nextRequest.v2() == null ? null : nextRequest;
             }
         } catch (Exception e) {
             onCompleted(e);
         }
     }
 
+    private boolean canSendMoreChunks() {
+        final long unrepliedRange = requestSeqIdTracker.getMaxSeqNo() - requestSeqIdTracker.getProcessedCheckpoint();
+        if (outOfOrderWrites) {
+            return inFlightChunks < maxConcurrentChunks && unrepliedRange < (long) maxConcurrentChunks * OUT_OF_ORDER_WINDOW_FACTOR;
+        }
+        return unrepliedRange < maxConcurrentChunks;
+    }
+
     protected boolean assertOnSuccess() {
         return true;
     }
@@ -166,7 +218,7 @@ public abstract class MultiChunkTransfer<Source, Request extends MultiChunkTrans
             }
             final Source md = currentSource;
             final Request request = nextChunkRequest(md);
-            if (request.lastChunk()) {
+            if (request != null && request.lastChunk()) {
                 currentSource = null;
             }
             return Tuple.tuple(md, request);
@@ -184,6 +236,13 @@ public abstract class MultiChunkTransfer<Source, Request extends MultiChunkTrans
 
     }
 
+    /**
+     * Prepares the next chunk request of the given source.
+     *
+     * @return the next chunk request, or {@code null} if it isn't ready yet in which case the subclass must call {@link #resume()} once
+     *         it is
+     */
+    @Nullable
     protected abstract Request nextChunkRequest(Source resource) throws IOException;
 
     protected abstract void executeChunkRequest(Request request, ActionListener<Void> listener);
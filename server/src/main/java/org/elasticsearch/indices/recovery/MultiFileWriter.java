@@ -9,6 +9,9 @@ package org.elasticsearch.indices.recovery;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.util.BytesRef;
@@ -18,6 +21,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.index.store.Store;
@@ -27,6 +31,9 @@ import org.elasticsearch.transport.Transports;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -35,15 +42,40 @@ import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MultiFileWriter extends AbstractRefCounted implements Releasable {
 
     public MultiFileWriter(Store store, RecoveryState.Index indexState, String tempFilePrefix, Logger logger, Runnable ensureOpen) {
+        this(store, indexState, tempFilePrefix, logger, ensureOpen, false);
+    }
+
+    /**
+     * @param positionalWrites whether file chunks should be written at their position as soon as they are received, rather than buffered
+     *                         in memory until the chunks before them have been written. The integrity of the files is then verified once
+     *                         all their bytes have been written. This is only possible if the store is backed by a {@link FSDirectory},
+     *                         chunks are written in order otherwise.
+     */
+    public MultiFileWriter(
+        Store store,
+        RecoveryState.Index indexState,
+        String tempFilePrefix,
+        Logger logger,
+        Runnable ensureOpen,
+        boolean positionalWrites
+    ) {
         this.store = store;
         this.indexState = indexState;
         this.tempFilePrefix = tempFilePrefix;
         this.logger = logger;
         this.ensureOpen = ensureOpen;
+        this.fsDirectory = positionalWrites ? unwrapFSDirectory(store.directory()) : null;
+    }
+
+    @Nullable
+    private static FSDirectory unwrapFSDirectory(Directory directory) {
+        final Directory unwrapped = FilterDirectory.unwrap(directory);
+        return unwrapped instanceof FSDirectory fsDirectory ? fsDirectory : null;
     }
 
     private final Runnable ensureOpen;
@@ -52,15 +84,27 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
     private final Store store;
     private final RecoveryState.Index indexState;
     private final String tempFilePrefix;
+    @Nullable // if chunks are written in order
+    private final FSDirectory fsDirectory;
 
     private final ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
     private final ConcurrentMap<String, FileChunkWriter> fileChunkWriters = ConcurrentCollections.newConcurrentMap();
+    private final Map<String, PositionalFileWriter> positionalFileWriters = ConcurrentCollections.newConcurrentMap();
 
     final Map<String, String> tempFileNames = ConcurrentCollections.newConcurrentMap();
 
     public void writeFileChunk(StoreFileMetadata fileMetadata, long position, ReleasableBytesReference content, boolean lastChunk)
         throws IOException {
         assert Transports.assertNotTransportThread("multi_file_writer");
+        if (fsDirectory != null) {
+            incRef();
+            try {
+                positionalFileWriter(fileMetadata).writeChunk(position, content);
+            } finally {
+                decRef();
+            }
+            return;
+        }
         final FileChunkWriter writer = fileChunkWriters.computeIfAbsent(fileMetadata.name(), name -> new FileChunkWriter());
         incRef();
         try {
@@ -70,6 +114,35 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
         }
     }
 
+    /**
+     * Returns whether file chunks are written at their position as soon as they are received.
+     */
+    public boolean positionalWrites() {
+        return fsDirectory != null;
+    }
+
+    private PositionalFileWriter positionalFileWriter(StoreFileMetadata fileMetadata) throws IOException {
+        synchronized (positionalFileWriters) {
+            final PositionalFileWriter existing = positionalFileWriters.get(fileMetadata.name());
+            if (existing != null) {
+                return existing;
+            }
+            ensureOpen.run();
+            final String tempFileName = getTempNameForFile(fileMetadata.name());
+            if (tempFileNames.containsKey(tempFileName)) {
+                throw new IllegalStateException("output for file [" + fileMetadata.name() + "] has already been created");
+            }
+            // add first, before it's created
+            tempFileNames.put(tempFileName, fileMetadata.name());
+            // create the file through the store so that its directory wrappers know about it, the chunks are then written to it directly
+            store.directory().createOutput(tempFileName, IOContext.DEFAULT).close();
+            final FileChannel channel = FileChannel.open(fsDirectory.getDirectory().resolve(tempFileName), StandardOpenOption.WRITE);
+            final PositionalFileWriter writer = new PositionalFileWriter(fileMetadata, tempFileName, channel);
+            positionalFileWriters.put(fileMetadata.name(), writer);
+            return writer;
+        }
+    }
+
     public void writeFile(StoreFileMetadata fileMetadata, long readSnapshotFileBufferSize, InputStream stream) throws Exception {
         ensureOpen.run();
         assert Transports.assertNotTransportThread("multi_file_writer");
@@ -209,6 +282,8 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
     protected void closeInternal() {
         Releasables.close(fileChunkWriters.values());
         fileChunkWriters.clear();
+        Releasables.close(positionalFileWriters.values());
+        positionalFileWriters.clear();
         // clean open index outputs
         Iterator<Map.Entry<String, IndexOutput>> iterator = openIndexOutputs.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -293,4 +368,54 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
             Releasables.close(pendingChunks);
         }
     }
+
+    /**
+     * Writes the chunks of a file at their position in the order they are received, so that a slow chunk doesn't hold back the chunks
+     * after it. Chunks never overlap, so the file is complete once as many bytes as its length have been written.
+     */
+    private final class PositionalFileWriter implements Releasable {
+        final StoreFileMetadata md;
+        final String tempFileName;
+        final FileChannel channel;
+        final AtomicLong remainingBytes;
+
+        PositionalFileWriter(StoreFileMetadata md, String tempFileName, FileChannel channel) {
+            this.md = md;
+            this.tempFileName = tempFileName;
+            this.channel = channel;
+            this.remainingBytes = new AtomicLong(md.length());
+        }
+
+        void writeChunk(long position, BytesReference content) throws IOException {
+            final BytesRefIterator iterator = content.iterator();
+            long filePosition = position;
+            BytesRef scratch;
+            while ((scratch = iterator.next()) != null) { // we iterate over all pages - this is a 0-copy for all core impls
+                final ByteBuffer buffer = ByteBuffer.wrap(scratch.bytes, scratch.offset, scratch.length);
+                while (buffer.hasRemaining()) {
+                    filePosition += channel.write(buffer, filePosition);
+                }
+            }
+            indexState.addRecoveredBytesToFile(md.name(), content.length());
+            final long remaining = remainingBytes.addAndGet(-content.length());
+            assert remaining >= 0 : "wrote past the end of " + md + " by [" + -remaining + "] bytes";
+            if (remaining == 0) {
+                // all chunks were written, we are done
+                channel.close();
+                Store.checkIntegrity(tempFileName, md, store.directory());
+                store.directory().sync(Collections.singleton(tempFileName));
+                final PositionalFileWriter removed = positionalFileWriters.remove(md.name());
+                assert removed == this : "positional writer [" + md + "] was not removed";
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug(() -> new ParameterizedMessage("error while closing recovery output [{}]", tempFileName), e);
+            }
+        }
+    }
 }
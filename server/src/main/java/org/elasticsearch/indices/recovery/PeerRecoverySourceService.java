@@ -365,6 +365,7 @@ public class PeerRecoverySourceService extends AbstractLifecycleComponent implem
                     recoverySettings.getMaxConcurrentOperations(),
                     recoverySettings.getMaxConcurrentSnapshotFileDownloads(),
                     recoverySettings.getUseSnapshotsDuringRecovery(),
+                    recoverySettings.isParallelFileTransfer(),
                     recoveryPlannerService
                 );
                 return Tuple.tuple(handler, recoveryTarget);
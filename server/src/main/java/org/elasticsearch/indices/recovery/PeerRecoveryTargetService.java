@@ -82,6 +82,7 @@ public class PeerRecoveryTargetService implements IndexEventListener {
         public static final String FILES_INFO = "internal:index/shard/recovery/filesInfo";
         public static final String RESTORE_FILE_FROM_SNAPSHOT = "internal:index/shard/recovery/restore_file_from_snapshot";
         public static final String FILE_CHUNK = "internal:index/shard/recovery/file_chunk";
+        public static final String SMALL_FILES = "internal:index/shard/recovery/small_files";
         public static final String CLEAN_FILES = "internal:index/shard/recovery/clean_files";
         public static final String TRANSLOG_OPS = "internal:index/shard/recovery/translog_ops";
         public static final String PREPARE_TRANSLOG = "internal:index/shard/recovery/prepare_translog";
@@ -111,7 +112,7 @@ public class PeerRecoveryTargetService implements IndexEventListener {
         this.recoverySettings = recoverySettings;
         this.clusterService = clusterService;
         this.snapshotFilesProvider = snapshotFilesProvider;
-        this.onGoingRecoveries = new RecoveriesCollection(logger, threadPool);
+        this.onGoingRecoveries = new RecoveriesCollection(logger, threadPool, recoverySettings::isParallelFileTransfer);
 
         transportService.registerRequestHandler(
             Actions.FILES_INFO,
@@ -131,6 +132,12 @@ public class PeerRecoveryTargetService implements IndexEventListener {
             RecoveryFileChunkRequest::new,
             new FileChunkTransportRequestHandler()
         );
+        transportService.registerRequestHandler(
+            Actions.SMALL_FILES,
+            ThreadPool.Names.GENERIC,
+            RecoverySmallFilesRequest::new,
+            new SmallFilesTransportRequestHandler()
+        );
         transportService.registerRequestHandler(
             Actions.CLEAN_FILES,
             ThreadPool.Names.GENERIC,
@@ -547,10 +554,29 @@ public class PeerRecoveryTargetService implements IndexEventListener {
         }
     }
 
-    class FileChunkTransportRequestHandler implements TransportRequestHandler<RecoveryFileChunkRequest> {
+    // How many bytes we've copied since we last called RateLimiter.pause
+    private final AtomicLong bytesSinceLastPause = new AtomicLong();
+
+    private void throttleFileTransfer(RecoveryTarget recoveryTarget, long sourceThrottleTimeInNanos, int bytes) throws IOException {
+        final RecoveryState.Index indexState = recoveryTarget.state().getIndex();
+        if (sourceThrottleTimeInNanos != RecoveryState.Index.UNKNOWN) {
+            indexState.addSourceThrottling(sourceThrottleTimeInNanos);
+        }
+
+        RateLimiter rateLimiter = recoverySettings.rateLimiter();
+        if (rateLimiter != null) {
+            long bytesToPause = bytesSinceLastPause.addAndGet(bytes);
+            if (bytesToPause > rateLimiter.getMinPauseCheckBytes()) {
+                // Time to pause
+                bytesSinceLastPause.addAndGet(-bytesToPause);
+                long throttleTimeInNanos = rateLimiter.pause(bytesToPause);
+                indexState.addTargetThrottling(throttleTimeInNanos);
+                recoveryTarget.indexShard().recoveryStats().addThrottleTime(throttleTimeInNanos);
+            }
+        }
+    }
 
-        // How many bytes we've copied since we last called RateLimiter.pause
-        final AtomicLong bytesSinceLastPause = new AtomicLong();
+    class FileChunkTransportRequestHandler implements TransportRequestHandler<RecoveryFileChunkRequest> {
 
         @Override
         public void messageReceived(final RecoveryFileChunkRequest request, TransportChannel channel, Task task) throws Exception {
@@ -561,22 +587,7 @@ public class PeerRecoveryTargetService implements IndexEventListener {
                     return;
                 }
 
-                final RecoveryState.Index indexState = recoveryTarget.state().getIndex();
-                if (request.sourceThrottleTimeInNanos() != RecoveryState.Index.UNKNOWN) {
-                    indexState.addSourceThrottling(request.sourceThrottleTimeInNanos());
-                }
-
-                RateLimiter rateLimiter = recoverySettings.rateLimiter();
-                if (rateLimiter != null) {
-                    long bytes = bytesSinceLastPause.addAndGet(request.content().length());
-                    if (bytes > rateLimiter.getMinPauseCheckBytes()) {
-                        // Time to pause
-                        bytesSinceLastPause.addAndGet(-bytes);
-                        long throttleTimeInNanos = rateLimiter.pause(bytes);
-                        indexState.addTargetThrottling(throttleTimeInNanos);
-                        recoveryTarget.indexShard().recoveryStats().addThrottleTime(throttleTimeInNanos);
-                    }
-                }
+                throttleFileTransfer(recoveryTarget, request.sourceThrottleTimeInNanos(), request.content().length());
                 recoveryTarget.writeFileChunk(
                     request.metadata(),
                     request.position(),
@@ -589,6 +600,23 @@ public class PeerRecoveryTargetService implements IndexEventListener {
         }
     }
 
+    class SmallFilesTransportRequestHandler implements TransportRequestHandler<RecoverySmallFilesRequest> {
+
+        @Override
+        public void messageReceived(final RecoverySmallFilesRequest request, TransportChannel channel, Task task) throws Exception {
+            try (RecoveryRef recoveryRef = onGoingRecoveries.getRecoverySafe(request.recoveryId(), request.shardId())) {
+                final RecoveryTarget recoveryTarget = recoveryRef.target();
+                final ActionListener<Void> listener = createOrFinishListener(recoveryRef, channel, Actions.SMALL_FILES, request);
+                if (listener == null) {
+                    return;
+                }
+
+                throttleFileTransfer(recoveryTarget, request.sourceThrottleTimeInNanos(), request.content().length());
+                recoveryTarget.writeSmallFiles(request.files(), request.content(), request.totalTranslogOps(), listener);
+            }
+        }
+    }
+
     class RestoreFileFromSnapshotTransportRequestHandler implements TransportRequestHandler<RecoverySnapshotFileRequest> {
         @Override
         public void messageReceived(final RecoverySnapshotFileRequest request, TransportChannel channel, Task task) throws Exception {
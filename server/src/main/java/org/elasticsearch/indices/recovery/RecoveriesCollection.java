@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 /**
  * This class holds a collection of all on going recoveries on the current node (i.e., the node is the target node
@@ -41,10 +42,20 @@ public class RecoveriesCollection {
 
     private final Logger logger;
     private final ThreadPool threadPool;
+    private final BooleanSupplier positionalFileWrites;
 
     public RecoveriesCollection(Logger logger, ThreadPool threadPool) {
+        this(logger, threadPool, () -> false);
+    }
+
+    /**
+     * @param positionalFileWrites whether new recoveries should write file chunks at their position as soon as they arrive, see
+     *                             {@link RecoverySettings#INDICES_RECOVERY_PARALLEL_FILE_TRANSFER_SETTING}
+     */
+    public RecoveriesCollection(Logger logger, ThreadPool threadPool, BooleanSupplier positionalFileWrites) {
         this.logger = logger;
         this.threadPool = threadPool;
+        this.positionalFileWrites = positionalFileWrites;
     }
 
     /**
@@ -65,7 +76,8 @@ public class RecoveriesCollection {
             sourceNode,
             snapshotFilesProvider,
             snapshotFileDownloadsPermit,
-            listener
+            listener,
+            positionalFileWrites.getAsBoolean()
         );
         startRecoveryInternal(recoveryTarget, activityTimeout);
         return recoveryTarget.recoveryId();
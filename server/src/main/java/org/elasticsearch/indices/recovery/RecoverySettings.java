@@ -106,6 +106,18 @@ public class RecoverySettings {
         Property.NodeScope
     );
 
+    /**
+     * Controls whether file chunks are written by the target node at their position as soon as they are received, which lets the source
+     * node keep sending chunks while an older chunk is still outstanding, and whether the source node sends files that are smaller than a
+     * chunk together in a single request.
+     */
+    public static final Setting<Boolean> INDICES_RECOVERY_PARALLEL_FILE_TRANSFER_SETTING = Setting.boolSetting(
+        "indices.recovery.parallel_file_transfer",
+        false,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
     /**
      * Controls the maximum number of operation chunk requests that can be sent concurrently from the source node to the target node.
      */
@@ -241,6 +253,7 @@ public class RecoverySettings {
 
     private volatile ByteSizeValue maxBytesPerSec;
     private volatile int maxConcurrentFileChunks;
+    private volatile boolean parallelFileTransfer;
     private volatile int maxConcurrentOperations;
     private volatile SimpleRateLimiter rateLimiter;
     private volatile TimeValue retryDelayStateSync;
@@ -260,6 +273,7 @@ public class RecoverySettings {
     public RecoverySettings(Settings settings, ClusterSettings clusterSettings) {
         this.retryDelayStateSync = INDICES_RECOVERY_RETRY_DELAY_STATE_SYNC_SETTING.get(settings);
         this.maxConcurrentFileChunks = INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING.get(settings);
+        this.parallelFileTransfer = INDICES_RECOVERY_PARALLEL_FILE_TRANSFER_SETTING.get(settings);
         this.maxConcurrentOperations = INDICES_RECOVERY_MAX_CONCURRENT_OPERATIONS_SETTING.get(settings);
         // doesn't have to be fast as nodes are reconnected every 10s by default (see InternalClusterService.ReconnectToNodes)
         // and we want to give the master time to remove a faulty node
@@ -285,6 +299,7 @@ public class RecoverySettings {
 
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING, this::setMaxBytesPerSec);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING, this::setMaxConcurrentFileChunks);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_PARALLEL_FILE_TRANSFER_SETTING, this::setParallelFileTransfer);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_CONCURRENT_OPERATIONS_SETTING, this::setMaxConcurrentOperations);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_RETRY_DELAY_STATE_SYNC_SETTING, this::setRetryDelayStateSync);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_RETRY_DELAY_NETWORK_SETTING, this::setRetryDelayNetwork);
@@ -383,6 +398,14 @@ public class RecoverySettings {
         this.maxConcurrentFileChunks = maxConcurrentFileChunks;
     }
 
+    public boolean isParallelFileTransfer() {
+        return parallelFileTransfer;
+    }
+
+    private void setParallelFileTransfer(boolean parallelFileTransfer) {
+        this.parallelFileTransfer = parallelFileTransfer;
+    }
+
     public int getMaxConcurrentOperations() {
         return maxConcurrentOperations;
     }
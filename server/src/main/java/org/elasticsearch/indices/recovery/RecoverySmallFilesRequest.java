@@ -0,0 +1,121 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.RefCounted;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.StoreFileMetadata;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Carries the whole contents of several small files in a single request, so that recovering a shard made of many tiny files doesn't cost
+ * a round trip per file. The contents of the files are concatenated in the order of {@link #files()}.
+ */
+public final class RecoverySmallFilesRequest extends RecoveryTransportRequest implements RefCounted {
+    private final long recoveryId;
+    private final ShardId shardId;
+    private final List<StoreFileMetadata> files;
+    private final ReleasableBytesReference content;
+    private final int totalTranslogOps;
+    private final long sourceThrottleTimeInNanos;
+
+    public RecoverySmallFilesRequest(StreamInput in) throws IOException {
+        super(in);
+        recoveryId = in.readLong();
+        shardId = new ShardId(in);
+        files = in.readList(StoreFileMetadata::new);
+        content = in.readReleasableBytesReference();
+        totalTranslogOps = in.readVInt();
+        sourceThrottleTimeInNanos = in.readLong();
+    }
+
+    public RecoverySmallFilesRequest(
+        long recoveryId,
+        long requestSeqNo,
+        ShardId shardId,
+        List<StoreFileMetadata> files,
+        ReleasableBytesReference content,
+        int totalTranslogOps,
+        long sourceThrottleTimeInNanos
+    ) {
+        super(requestSeqNo);
+        assert content.length() == files.stream().mapToLong(StoreFileMetadata::length).sum() : "content doesn't match " + files;
+        this.recoveryId = recoveryId;
+        this.shardId = shardId;
+        this.files = files;
+        this.content = content.retain();
+        this.totalTranslogOps = totalTranslogOps;
+        this.sourceThrottleTimeInNanos = sourceThrottleTimeInNanos;
+    }
+
+    public long recoveryId() {
+        return recoveryId;
+    }
+
+    public ShardId shardId() {
+        return shardId;
+    }
+
+    public List<StoreFileMetadata> files() {
+        return files;
+    }
+
+    public ReleasableBytesReference content() {
+        return content;
+    }
+
+    public int totalTranslogOps() {
+        return totalTranslogOps;
+    }
+
+    public long sourceThrottleTimeInNanos() {
+        return sourceThrottleTimeInNanos;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeLong(recoveryId);
+        shardId.writeTo(out);
+        out.writeList(files);
+        out.writeBytesReference(content);
+        out.writeVInt(totalTranslogOps);
+        out.writeLong(sourceThrottleTimeInNanos);
+    }
+
+    @Override
+    public String toString() {
+        return shardId + ": files=" + files.size() + ", length=" + content.length();
+    }
+
+    @Override
+    public void incRef() {
+        content.incRef();
+    }
+
+    @Override
+    public boolean tryIncRef() {
+        return content.tryIncRef();
+    }
+
+    @Override
+    public boolean decRef() {
+        return content.decRef();
+    }
+
+    @Override
+    public boolean hasReferences() {
+        return content.hasReferences();
+    }
+}
@@ -18,6 +18,7 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.RateLimiter;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.SetOnce;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
@@ -60,6 +61,7 @@ import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetadata;
+import org.elasticsearch.index.translog.ReadAheadSnapshotReader;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.recovery.plan.RecoveryPlannerService;
 import org.elasticsearch.indices.recovery.plan.ShardRecoveryPlan;
@@ -71,7 +73,6 @@ import org.elasticsearch.transport.Transports;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
@@ -119,6 +120,7 @@ public class RecoverySourceHandler {
     private final int maxConcurrentOperations;
     private final int maxConcurrentSnapshotFileDownloads;
     private final boolean useSnapshots;
+    private final boolean parallelFileTransfer;
     private final ThreadPool threadPool;
     private final RecoveryPlannerService recoveryPlannerService;
     private final CancellableThreads cancellableThreads = new CancellableThreads();
@@ -136,6 +138,39 @@ public class RecoverySourceHandler {
         int maxConcurrentSnapshotFileDownloads,
         boolean useSnapshots,
         RecoveryPlannerService recoveryPlannerService
+    ) {
+        this(
+            shard,
+            recoveryTarget,
+            threadPool,
+            request,
+            fileChunkSizeInBytes,
+            maxConcurrentFileChunks,
+            maxConcurrentOperations,
+            maxConcurrentSnapshotFileDownloads,
+            useSnapshots,
+            false,
+            recoveryPlannerService
+        );
+    }
+
+    /**
+     * @param parallelFileTransfer whether to batch small files together and to keep sending file chunks while older chunks are still
+     *                             outstanding, see {@link RecoverySettings#INDICES_RECOVERY_PARALLEL_FILE_TRANSFER_SETTING}. Ignored if
+     *                             the target node doesn't support it.
+     */
+    public RecoverySourceHandler(
+        IndexShard shard,
+        RecoveryTargetHandler recoveryTarget,
+        ThreadPool threadPool,
+        StartRecoveryRequest request,
+        int fileChunkSizeInBytes,
+        int maxConcurrentFileChunks,
+        int maxConcurrentOperations,
+        int maxConcurrentSnapshotFileDownloads,
+        boolean useSnapshots,
+        boolean parallelFileTransfer,
+        RecoveryPlannerService recoveryPlannerService
     ) {
         this.shard = shard;
         this.recoveryTarget = recoveryTarget;
@@ -149,6 +184,7 @@ public class RecoverySourceHandler {
         this.maxConcurrentOperations = maxConcurrentOperations;
         this.maxConcurrentSnapshotFileDownloads = maxConcurrentSnapshotFileDownloads;
         this.useSnapshots = useSnapshots;
+        this.parallelFileTransfer = parallelFileTransfer && request.targetNode().getVersion().onOrAfter(Version.V_8_1_0);
     }
 
     public StartRecoveryRequest getRequest() {
@@ -353,6 +389,8 @@ public class RecoverySourceHandler {
                 final long maxSeqNoOfUpdatesOrDeletes = shard.getMaxSeqNoOfUpdatesOrDeletes();
                 final RetentionLeases retentionLeases = shard.getRetentionLeases();
                 final long mappingVersionOnPrimary = shard.indexSettings().getIndexMetadata().getMappingVersion();
+                // phase 2 owns the snapshot from now on, it must not be closed while a batch is read from it on another thread
+                resources.remove(phase2Snapshot);
                 phase2(
                     startingSeqNo,
                     endingSeqNo,
@@ -1044,7 +1082,7 @@ public class RecoverySourceHandler {
      * @param startingSeqNo              the sequence number to start recovery from, or {@link SequenceNumbers#UNASSIGNED_SEQ_NO} if all
      *                                   ops should be sent
      * @param endingSeqNo                the highest sequence number that should be sent
-     * @param snapshot                   a snapshot of the translog
+     * @param snapshot                   a snapshot of the translog, which is closed by this method or once the operations were sent
      * @param maxSeenAutoIdTimestamp     the max auto_id_timestamp of append-only requests on the primary
      * @param maxSeqNoOfUpdatesOrDeletes the max seq_no of updates or deletes on the primary after these operations were executed on it.
      * @param listener                   a listener which will be notified with the local checkpoint on the target.
@@ -1060,6 +1098,7 @@ public class RecoverySourceHandler {
         final ActionListener<SendSnapshotResult> listener
     ) throws IOException {
         if (shard.state() == IndexShardState.CLOSED) {
+            IOUtils.closeWhileHandlingException(snapshot);
             throw new IndexShardClosedException(request.shardId());
         }
         logger.trace("recovery [phase2]: sending transaction log operations (from [" + startingSeqNo + "] to [" + endingSeqNo + "]");
@@ -1075,6 +1114,8 @@ public class RecoverySourceHandler {
             mappingVersion,
             sendListener
         );
+        // closing the sender on cancellation or failure closes the snapshot once no batch is read from it anymore
+        resources.add(sender);
         sendListener.whenComplete(ignored -> {
             final long skippedOps = sender.skippedOps.get();
             final int totalSentOps = sender.sentOps.get();
@@ -1115,6 +1156,7 @@ public class RecoverySourceHandler {
         private final long startingSeqNo;
         private final long endingSeqNo;
         private final Translog.Snapshot snapshot;
+        private final ReadAheadSnapshotReader<OperationChunkRequest> reader;
         private final long maxSeenAutoIdTimestamp;
         private final long maxSeqNoOfUpdatesOrDeletes;
         private final RetentionLeases retentionLeases;
@@ -1142,12 +1184,17 @@ public class RecoverySourceHandler {
             this.maxSeqNoOfUpdatesOrDeletes = maxSeqNoOfUpdatesOrDeletes;
             this.retentionLeases = retentionLeases;
             this.mappingVersion = mappingVersion;
+            // reads the operations on the generic pool ahead of sending them, rather than on the thread that handles the responses
+            this.reader = new ReadAheadSnapshotReader<>(snapshot, threadPool.generic(), this::readChunkRequest, r -> r.lastChunk);
         }
 
         @Override
-        protected synchronized OperationChunkRequest nextChunkRequest(Translog.Snapshot snapshot) throws IOException {
-            // We need to synchronized Snapshot#next() because it's called by different threads through sendBatch.
-            // Even though those calls are not concurrent, Snapshot#next() uses non-synchronized state and is not multi-thread-compatible.
+        protected OperationChunkRequest nextChunkRequest(Translog.Snapshot snapshot) throws IOException {
+            return reader.poll(this::resume);
+        }
+
+        private OperationChunkRequest readChunkRequest(Translog.Snapshot snapshot) throws IOException {
+            // Snapshot#next() uses non-synchronized state and is not multi-thread-compatible, the reader never calls it concurrently
             assert Transports.assertNotTransportThread("[phase2]");
             cancellableThreads.checkForCancel();
             final List<Translog.Operation> ops = lastBatchCount > 0 ? new ArrayList<>(lastBatchCount) : new ArrayList<>();
@@ -1199,7 +1246,7 @@ public class RecoverySourceHandler {
 
         @Override
         public void close() throws IOException {
-            snapshot.close();
+            reader.close();
         }
     }
 
@@ -1295,6 +1342,8 @@ public class RecoverySourceHandler {
 
     private static class FileChunk implements MultiChunkTransfer.ChunkRequest, Releasable {
         final StoreFileMetadata md;
+        @Nullable // unless this chunk carries the whole contents of several small files
+        final List<StoreFileMetadata> smallFiles;
         final BytesReference content;
         final long position;
         final boolean lastChunk;
@@ -1302,12 +1351,22 @@ public class RecoverySourceHandler {
 
         FileChunk(StoreFileMetadata md, BytesReference content, long position, boolean lastChunk, Releasable onClose) {
             this.md = md;
+            this.smallFiles = null;
             this.content = content;
             this.position = position;
             this.lastChunk = lastChunk;
             this.onClose = onClose;
         }
 
+        FileChunk(List<StoreFileMetadata> smallFiles, BytesReference content, Releasable onClose) {
+            this.md = null;
+            this.smallFiles = smallFiles;
+            this.content = content;
+            this.position = 0;
+            this.lastChunk = true;
+            this.onClose = onClose;
+        }
+
         @Override
         public boolean lastChunk() {
             return lastChunk;
@@ -1326,12 +1385,13 @@ public class RecoverySourceHandler {
         Releasable temporaryStoreRef = acquireStore(store);
         try {
             final Releasable storeRef = temporaryStoreRef;
-            final MultiChunkTransfer<StoreFileMetadata, FileChunk> multiFileSender = new MultiChunkTransfer<>(
+            final MultiChunkTransfer<StoreFileMetadata[], FileChunk> multiFileSender = new MultiChunkTransfer<>(
                 logger,
                 threadPool.getThreadContext(),
                 listener,
                 maxConcurrentFileChunks,
-                Arrays.asList(files)
+                groupFiles(files, bufferSize),
+                parallelFileTransfer
             ) {
 
                 final Deque<byte[]> buffers = new ConcurrentLinkedDeque<>();
@@ -1340,11 +1400,12 @@ public class RecoverySourceHandler {
                 long offset = 0;
 
                 @Override
-                protected void onNewResource(StoreFileMetadata md) throws IOException {
+                protected void onNewResource(StoreFileMetadata[] group) throws IOException {
                     offset = 0;
                     IOUtils.close(currentInput);
-                    if (md.hashEqualsContents()) {
-                        // we already have the file contents on heap no need to open the file again
+                    final StoreFileMetadata md = group[0];
+                    if (group.length > 1 || md.hashEqualsContents()) {
+                        // small files are read at once, and we already have the contents of some files on heap
                         currentInput = null;
                     } else {
                         currentInput = store.directory().openInput(md.name(), IOContext.READONCE);
@@ -1352,9 +1413,13 @@ public class RecoverySourceHandler {
                 }
 
                 @Override
-                protected FileChunk nextChunkRequest(StoreFileMetadata md) throws IOException {
+                protected FileChunk nextChunkRequest(StoreFileMetadata[] group) throws IOException {
                     assert Transports.assertNotTransportThread("read file chunk");
                     cancellableThreads.checkForCancel();
+                    if (group.length > 1) {
+                        return readSmallFiles(group);
+                    }
+                    final StoreFileMetadata md = group[0];
                     if (currentInput == null) {
                         // no input => reading directly from the metadata
                         assert md.hashEqualsContents();
@@ -1373,10 +1438,51 @@ public class RecoverySourceHandler {
                     return chunk;
                 }
 
+                private FileChunk readSmallFiles(StoreFileMetadata[] group) throws IOException {
+                    final byte[] buffer = Objects.requireNonNullElseGet(buffers.pollFirst(), () -> new byte[bufferSize]);
+                    assert liveBufferCount.incrementAndGet() > 0;
+                    final Releasable releaseBuffer = () -> {
+                        assert liveBufferCount.decrementAndGet() >= 0;
+                        buffers.addFirst(buffer);
+                    };
+                    boolean success = false;
+                    try {
+                        int length = 0;
+                        for (StoreFileMetadata md : group) {
+                            final int fileLength = Math.toIntExact(md.length());
+                            if (md.hashEqualsContents()) {
+                                final BytesRef hash = md.hash();
+                                System.arraycopy(hash.bytes, hash.offset, buffer, length, fileLength);
+                            } else {
+                                try (IndexInput input = store.directory().openInput(md.name(), IOContext.READONCE)) {
+                                    input.readBytes(buffer, length, fileLength, false);
+                                }
+                            }
+                            length += fileLength;
+                        }
+                        final FileChunk chunk = new FileChunk(List.of(group), new BytesArray(buffer, 0, length), releaseBuffer);
+                        success = true;
+                        return chunk;
+                    } finally {
+                        if (success == false) {
+                            releaseBuffer.close();
+                        }
+                    }
+                }
+
                 @Override
                 protected void executeChunkRequest(FileChunk request, ActionListener<Void> listener) {
                     cancellableThreads.checkForCancel();
                     final ReleasableBytesReference content = new ReleasableBytesReference(request.content, request);
+                    if (request.smallFiles != null) {
+                        recoveryTarget.writeSmallFiles(
+                            request.smallFiles,
+                            content,
+                            translogOps.getAsInt(),
+                            ActionListener.runBefore(listener, content::close)
+                        );
+                        return;
+                    }
                     recoveryTarget.writeFileChunk(
                         request.md,
                         request.position,
@@ -1388,8 +1494,8 @@ public class RecoverySourceHandler {
                 }
 
                 @Override
-                protected void handleError(StoreFileMetadata md, Exception e) throws Exception {
-                    handleErrorOnSendFiles(store, e, new StoreFileMetadata[] { md });
+                protected void handleError(StoreFileMetadata[] group, Exception e) throws Exception {
+                    handleErrorOnSendFiles(store, e, group);
                 }
 
                 @Override
@@ -1411,6 +1517,36 @@ public class RecoverySourceHandler {
         }
     }
 
+    /**
+     * Groups the given files, sorted by length, into the units that {@link #sendFiles} transfers: files are sent on their own, in chunks,
+     * except for runs of small files whose total length fits in a single chunk which are sent together in a single request if
+     * {@link #parallelFileTransfer} is enabled.
+     */
+    private List<StoreFileMetadata[]> groupFiles(StoreFileMetadata[] files, int bufferSize) {
+        final List<StoreFileMetadata[]> groups = new ArrayList<>(files.length);
+        if (parallelFileTransfer == false) {
+            for (StoreFileMetadata file : files) {
+                groups.add(new StoreFileMetadata[] { file });
+            }
+            return groups;
+        }
+        final List<StoreFileMetadata> group = new ArrayList<>();
+        long groupLength = 0;
+        for (StoreFileMetadata file : files) {
+            if (group.isEmpty() == false && groupLength + file.length() > bufferSize) {
+                groups.add(group.toArray(new StoreFileMetadata[0]));
+                group.clear();
+                groupLength = 0;
+            }
+            group.add(file);
+            groupLength += file.length();
+        }
+        if (group.isEmpty() == false) {
+            groups.add(group.toArray(new StoreFileMetadata[0]));
+        }
+        return groups;
+    }
+
     private void cleanFiles(
         Store store,
         Store.MetadataSnapshot sourceMetadata,
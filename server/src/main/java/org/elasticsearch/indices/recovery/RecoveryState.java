@@ -355,6 +355,8 @@ public class RecoveryState implements ToXContentFragment, Writeable {
         static final String SOURCE_THROTTLE_TIME_IN_MILLIS = "source_throttle_time_in_millis";
         static final String TARGET_THROTTLE_TIME = "target_throttle_time";
         static final String TARGET_THROTTLE_TIME_IN_MILLIS = "target_throttle_time_in_millis";
+        static final String THROUGHPUT = "throughput_per_sec";
+        static final String THROUGHPUT_IN_BYTES = "throughput_in_bytes_per_sec";
     }
 
     public static class Timer implements Writeable {
@@ -1008,6 +1010,14 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             return recovered;
         }
 
+        /**
+         * average number of bytes recovered per second since the start of the index recovery, or {@code 0} if no time has elapsed yet
+         */
+        public synchronized long recoveredBytesPerSecond() {
+            final long timeInMillis = time();
+            return timeInMillis <= 0 ? 0 : recoveredBytes() * 1000 / timeInMillis;
+        }
+
         public synchronized long recoveredFromSnapshotBytes() {
             long recoveredFromSnapshot = 0;
             for (FileDetail fileDetail : fileDetails.values()) {
@@ -1102,6 +1112,7 @@ public class RecoveryState implements ToXContentFragment, Writeable {
                 new ByteSizeValue(recoveredFromSnapshotBytes())
             );
             builder.field(Fields.PERCENT, String.format(Locale.ROOT, "%1.1f%%", recoveredBytesPercent()));
+            builder.humanReadableField(Fields.THROUGHPUT_IN_BYTES, Fields.THROUGHPUT, new ByteSizeValue(recoveredBytesPerSecond()));
             builder.endObject();
 
             builder.startObject(Fields.FILES);
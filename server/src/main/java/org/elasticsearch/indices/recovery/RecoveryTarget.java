@@ -103,6 +103,23 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
         SnapshotFilesProvider snapshotFilesProvider,
         @Nullable Releasable snapshotFileDownloadsPermit,
         PeerRecoveryTargetService.RecoveryListener listener
+    ) {
+        this(indexShard, sourceNode, snapshotFilesProvider, snapshotFileDownloadsPermit, listener, false);
+    }
+
+    /**
+     * Creates a new recovery target object that represents a recovery to the provided shard.
+     *
+     * @param positionalFileWrites              whether file chunks are written at their position as soon as they are received instead
+     *                                          of being reassembled in order, see {@link MultiFileWriter}
+     */
+    public RecoveryTarget(
+        IndexShard indexShard,
+        DiscoveryNode sourceNode,
+        SnapshotFilesProvider snapshotFilesProvider,
+        @Nullable Releasable snapshotFileDownloadsPermit,
+        PeerRecoveryTargetService.RecoveryListener listener,
+        boolean positionalFileWrites
     ) {
         this.cancellableThreads = new CancellableThreads();
         this.recoveryId = idGenerator.incrementAndGet();
@@ -119,7 +136,8 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
             indexShard.recoveryState().getIndex(),
             tempFilePrefix,
             logger,
-            this::ensureRefCount
+            this::ensureRefCount,
+            positionalFileWrites
         );
         this.store = indexShard.store();
         // make sure the store is not released until we are done.
@@ -137,7 +155,14 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
         // get released after the retry copy is created
         Releasable snapshotFileDownloadsPermitCopy = snapshotFileDownloadsPermit;
         snapshotFileDownloadsPermit = null;
-        return new RecoveryTarget(indexShard, sourceNode, snapshotFilesProvider, snapshotFileDownloadsPermitCopy, listener);
+        return new RecoveryTarget(
+            indexShard,
+            sourceNode,
+            snapshotFilesProvider,
+            snapshotFileDownloadsPermitCopy,
+            listener,
+            multiFileWriter.positionalWrites()
+        );
     }
 
     @Nullable
@@ -8,6 +8,7 @@
 package org.elasticsearch.indices.recovery;
 
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.GroupedActionListener;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.index.seqno.ReplicationTracker;
 import org.elasticsearch.index.seqno.RetentionLeases;
@@ -120,5 +121,25 @@ public interface RecoveryTargetHandler {
         ActionListener<Void> listener
     );
 
+    /**
+     * Writes several whole files to the target store, whose contents are concatenated in the given order in {@code content}. Sources only
+     * batch files that are smaller than a chunk, so that recovering many tiny files doesn't cost a round trip per file.
+     */
+    default void writeSmallFiles(
+        List<StoreFileMetadata> files,
+        ReleasableBytesReference content,
+        int totalTranslogOps,
+        ActionListener<Void> listener
+    ) {
+        final GroupedActionListener<Void> groupedListener = new GroupedActionListener<>(listener.map(r -> null), files.size());
+        int offset = 0;
+        for (StoreFileMetadata file : files) {
+            final int length = Math.toIntExact(file.length());
+            final ReleasableBytesReference fileContent = content.retainedSlice(offset, length);
+            writeFileChunk(file, 0, fileContent, true, totalTranslogOps, ActionListener.runBefore(groupedListener, fileContent::close));
+            offset += length;
+        }
+    }
+
     default void cancel() {}
 }
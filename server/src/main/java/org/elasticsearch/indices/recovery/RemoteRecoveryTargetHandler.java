@@ -254,28 +254,7 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
         int totalTranslogOps,
         ActionListener<Void> listener
     ) {
-        // Pause using the rate limiter, if desired, to throttle the recovery
-        final long throttleTimeInNanos;
-        // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
-        final RateLimiter rl = recoverySettings.rateLimiter();
-        if (rl != null) {
-            long bytes = bytesSinceLastPause.addAndGet(content.length());
-            if (bytes > rl.getMinPauseCheckBytes()) {
-                // Time to pause
-                bytesSinceLastPause.addAndGet(-bytes);
-                try {
-                    throttleTimeInNanos = rl.pause(bytes);
-                    onSourceThrottle.accept(throttleTimeInNanos);
-                } catch (IOException e) {
-                    throw new ElasticsearchException("failed to pause recovery", e);
-                }
-            } else {
-                throttleTimeInNanos = 0;
-            }
-        } else {
-            throttleTimeInNanos = 0;
-        }
-
+        final long throttleTimeInNanos = pauseIfNeeded(content.length());
         final String action = PeerRecoveryTargetService.Actions.FILE_CHUNK;
         final long requestSeqNo = requestSeqNoGenerator.getAndIncrement();
         /* we send estimateTotalOperations with every request since we collect stats on the target and that way we can
@@ -313,6 +292,66 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
             );
     }
 
+    @Override
+    public void writeSmallFiles(
+        List<StoreFileMetadata> files,
+        ReleasableBytesReference content,
+        int totalTranslogOps,
+        ActionListener<Void> listener
+    ) {
+        final long throttleTimeInNanos = pauseIfNeeded(content.length());
+        final String action = PeerRecoveryTargetService.Actions.SMALL_FILES;
+        final long requestSeqNo = requestSeqNoGenerator.getAndIncrement();
+        final RecoverySmallFilesRequest request = new RecoverySmallFilesRequest(
+            recoveryId,
+            requestSeqNo,
+            shardId,
+            files,
+            content,
+            totalTranslogOps,
+            throttleTimeInNanos
+        );
+        final Writeable.Reader<TransportResponse.Empty> reader = in -> TransportResponse.Empty.INSTANCE;
+        threadPool.generic()
+            .execute(
+                ActionRunnable.wrap(
+                    listener,
+                    l -> executeRetryableAction(
+                        action,
+                        request,
+                        fileChunkRequestOptions,
+                        ActionListener.runBefore(l.map(r -> null), request::decRef),
+                        reader
+                    )
+                )
+            );
+    }
+
+    /**
+     * Pauses using the rate limiter, if desired, to throttle the recovery.
+     *
+     * @return the time spent pausing, in nanoseconds
+     */
+    private long pauseIfNeeded(int bytesToSend) {
+        // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
+        final RateLimiter rl = recoverySettings.rateLimiter();
+        if (rl != null) {
+            long bytes = bytesSinceLastPause.addAndGet(bytesToSend);
+            if (bytes > rl.getMinPauseCheckBytes()) {
+                // Time to pause
+                bytesSinceLastPause.addAndGet(-bytes);
+                try {
+                    final long throttleTimeInNanos = rl.pause(bytes);
+                    onSourceThrottle.accept(throttleTimeInNanos);
+                    return throttleTimeInNanos;
+                } catch (IOException e) {
+                    throw new ElasticsearchException("failed to pause recovery", e);
+                }
+            }
+        }
+        return 0;
+    }
+
     @Override
     public void cancel() {
         isCancelled = true;
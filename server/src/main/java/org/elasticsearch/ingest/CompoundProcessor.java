@@ -9,6 +9,8 @@
 package org.elasticsearch.ingest;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.core.Tuple;
 
 import java.util.ArrayList;
@@ -131,11 +133,15 @@ public class CompoundProcessor implements Processor {
         Tuple<Processor, IngestMetric> processorWithMetric = processorsWithMetrics.get(currentProcessor);
         final Processor processor = processorWithMetric.v1();
         final IngestMetric metric = processorWithMetric.v2();
+        final IngestProfile.Sample sample = ingestDocument.isProfiled() ? IngestProfile.startSample() : null;
         final long startTimeInNanos = relativeTimeProvider.getAsLong();
         metric.preIngest();
         processor.execute(ingestDocument, (result, e) -> {
             long ingestTimeInNanos = relativeTimeProvider.getAsLong() - startTimeInNanos;
             metric.postIngest(ingestTimeInNanos);
+            if (sample != null) {
+                metric.recordProfile(sample, ingestTimeInNanos, result, e);
+            }
 
             if (e != null) {
                 metric.ingestFailed();
@@ -159,6 +165,82 @@ public class CompoundProcessor implements Processor {
         });
     }
 
+    @Override
+    public void executeBatch(List<IngestDocument> ingestDocuments, BatchHandler handler) {
+        final int[] slots = new int[ingestDocuments.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = i;
+        }
+        innerExecuteBatch(0, ingestDocuments, slots, handler);
+    }
+
+    /**
+     * Executes the processors on a batch of documents, one processor at a time: a processor is only executed once the previous
+     * processor completed for all documents of the batch. Documents that fail or get dropped leave the batch, and failed documents go
+     * through the on failure processors on their own.
+     *
+     * @param slots the slots of the documents in the batch that was passed to the handler
+     */
+    void innerExecuteBatch(int currentProcessor, List<IngestDocument> ingestDocuments, int[] slots, BatchHandler handler) {
+        if (ingestDocuments.isEmpty()) {
+            return;
+        }
+        if (currentProcessor == processorsWithMetrics.size()) {
+            for (int i = 0; i < ingestDocuments.size(); i++) {
+                handler.accept(slots[i], ingestDocuments.get(i), null);
+            }
+            return;
+        }
+
+        Tuple<Processor, IngestMetric> processorWithMetric = processorsWithMetrics.get(currentProcessor);
+        final Processor processor = processorWithMetric.v1();
+        final IngestMetric metric = processorWithMetric.v2();
+        final AtomicArray<IngestDocument> results = new AtomicArray<>(ingestDocuments.size());
+        final CountDown countDown = new CountDown(ingestDocuments.size());
+        final long startTimeInNanos = relativeTimeProvider.getAsLong();
+        metric.preIngest(ingestDocuments.size());
+        processor.executeBatch(ingestDocuments, (slot, result, e) -> {
+            final IngestDocument ingestDocument = ingestDocuments.get(slot);
+            if (e != null) {
+                metric.ingestFailed();
+                if (ignoreFailure) {
+                    results.set(slot, ingestDocument);
+                } else {
+                    IngestProcessorException compoundProcessorException = newCompoundProcessorException(e, processor, ingestDocument);
+                    if (onFailureProcessors.isEmpty()) {
+                        handler.accept(slots[slot], null, compoundProcessorException);
+                    } else {
+                        executeOnFailureAsync(
+                            0,
+                            ingestDocument,
+                            compoundProcessorException,
+                            (onFailureResult, onFailureException) -> handler.accept(slots[slot], onFailureResult, onFailureException)
+                        );
+                    }
+                }
+            } else if (result != null) {
+                results.set(slot, result);
+            } else {
+                handler.accept(slots[slot], null, null);
+            }
+
+            if (countDown.countDown()) {
+                long ingestTimeInNanos = relativeTimeProvider.getAsLong() - startTimeInNanos;
+                metric.postIngest(ingestDocuments.size(), ingestTimeInNanos);
+                final List<IngestDocument> nextDocuments = new ArrayList<>(ingestDocuments.size());
+                final int[] nextSlots = new int[ingestDocuments.size()];
+                for (int i = 0; i < ingestDocuments.size(); i++) {
+                    final IngestDocument nextDocument = results.get(i);
+                    if (nextDocument != null) {
+                        nextSlots[nextDocuments.size()] = slots[i];
+                        nextDocuments.add(nextDocument);
+                    }
+                }
+                innerExecuteBatch(currentProcessor + 1, nextDocuments, nextSlots, handler);
+            }
+        });
+    }
+
     void executeOnFailureAsync(
         int currentOnFailureProcessor,
         IngestDocument ingestDocument,
@@ -10,6 +10,7 @@ package org.elasticsearch.ingest;
 
 import org.elasticsearch.common.logging.DeprecationCategory;
 import org.elasticsearch.common.logging.DeprecationLogger;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.script.DynamicMap;
 import org.elasticsearch.script.IngestConditionalScript;
 import org.elasticsearch.script.Script;
@@ -97,11 +98,15 @@ public class ConditionalProcessor extends AbstractProcessor implements WrappingP
         }
 
         if (matches) {
+            final IngestProfile.Sample sample = ingestDocument.isProfiled() ? IngestProfile.startSample() : null;
             final long startTimeInNanos = relativeTimeProvider.getAsLong();
             metric.preIngest();
             processor.execute(ingestDocument, (result, e) -> {
                 long ingestTimeInNanos = relativeTimeProvider.getAsLong() - startTimeInNanos;
                 metric.postIngest(ingestTimeInNanos);
+                if (sample != null) {
+                    metric.recordProfile(sample, ingestTimeInNanos, result, e);
+                }
                 if (e != null) {
                     metric.ingestFailed();
                     handler.accept(null, e);
@@ -114,6 +119,46 @@ public class ConditionalProcessor extends AbstractProcessor implements WrappingP
         }
     }
 
+    @Override
+    public void executeBatch(List<IngestDocument> ingestDocuments, BatchHandler handler) {
+        // only the documents that match the condition are passed on to the wrapped processor, as a batch of their own
+        final List<IngestDocument> matchingDocuments = new ArrayList<>(ingestDocuments.size());
+        final int[] matchingSlots = new int[ingestDocuments.size()];
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            final IngestDocument ingestDocument = ingestDocuments.get(i);
+            final boolean matches;
+            try {
+                matches = evaluate(ingestDocument);
+            } catch (Exception e) {
+                handler.accept(i, null, e);
+                continue;
+            }
+            if (matches) {
+                matchingSlots[matchingDocuments.size()] = i;
+                matchingDocuments.add(ingestDocument);
+            } else {
+                handler.accept(i, ingestDocument, null);
+            }
+        }
+        if (matchingDocuments.isEmpty()) {
+            return;
+        }
+
+        final CountDown countDown = new CountDown(matchingDocuments.size());
+        final long startTimeInNanos = relativeTimeProvider.getAsLong();
+        metric.preIngest(matchingDocuments.size());
+        processor.executeBatch(matchingDocuments, (slot, result, e) -> {
+            if (e != null) {
+                metric.ingestFailed();
+            }
+            if (countDown.countDown()) {
+                long ingestTimeInNanos = relativeTimeProvider.getAsLong() - startTimeInNanos;
+                metric.postIngest(matchingDocuments.size(), ingestTimeInNanos);
+            }
+            handler.accept(matchingSlots[slot], e != null ? null : result, e);
+        });
+    }
+
     @Override
     public IngestDocument execute(IngestDocument ingestDocument) throws Exception {
         throw new UnsupportedOperationException("this method should not get executed");
@@ -53,6 +53,9 @@ public final class IngestDocument {
     // Contains all pipelines that have been executed for this document
     private final Set<String> executedPipelines = new LinkedHashSet<>();
 
+    // Whether the processors record a profile of their execution on this document, see IngestService#INGEST_PROFILE_SAMPLE_INTERVAL
+    private boolean profiled;
+
     public IngestDocument(String index, String id, String routing, Long version, VersionType versionType, Map<String, Object> source) {
         this.sourceAndMetadata = new HashMap<>();
         this.sourceAndMetadata.putAll(source);
@@ -88,6 +91,14 @@ public final class IngestDocument {
         this.ingestMetadata = ingestMetadata;
     }
 
+    boolean isProfiled() {
+        return profiled;
+    }
+
+    void setProfiled(boolean profiled) {
+        this.profiled = profiled;
+    }
+
     /**
      * Returns the value contained in the document for the provided path
      * @param path The path within the document in dot-notation
@@ -808,6 +819,43 @@ public final class IngestDocument {
         }
     }
 
+    /**
+     * Executes the given pipeline for a batch of documents, skipping the documents that the pipeline has already been executed for,
+     * see {@link #executePipeline(Pipeline, BiConsumer)}.
+     *
+     * @param pipeline the pipeline to execute
+     * @param ingestDocuments the documents to execute the pipeline for
+     * @param handler handles the result or failure of every document
+     */
+    public static void executePipeline(Pipeline pipeline, List<IngestDocument> ingestDocuments, Processor.BatchHandler handler) {
+        final List<IngestDocument> executedDocuments = new ArrayList<>(ingestDocuments.size());
+        final int[] slots = new int[ingestDocuments.size()];
+        final Object[] previousPipelines = new Object[ingestDocuments.size()];
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            final IngestDocument ingestDocument = ingestDocuments.get(i);
+            if (ingestDocument.executedPipelines.add(pipeline.getId())) {
+                previousPipelines[executedDocuments.size()] = ingestDocument.ingestMetadata.put("pipeline", pipeline.getId());
+                slots[executedDocuments.size()] = i;
+                executedDocuments.add(ingestDocument);
+            } else {
+                handler.accept(i, null, new IllegalStateException(PIPELINE_CYCLE_ERROR_MESSAGE + pipeline.getId()));
+            }
+        }
+        if (executedDocuments.isEmpty()) {
+            return;
+        }
+        pipeline.executeBatch(executedDocuments, (slot, result, e) -> {
+            final IngestDocument ingestDocument = executedDocuments.get(slot);
+            ingestDocument.executedPipelines.remove(pipeline.getId());
+            if (previousPipelines[slot] != null) {
+                ingestDocument.ingestMetadata.put("pipeline", previousPipelines[slot]);
+            } else {
+                ingestDocument.ingestMetadata.remove("pipeline");
+            }
+            handler.accept(slots[slot], result, e);
+        });
+    }
+
     /**
      * @return a pipeline stack; all pipelines that are in execution by this document in reverse order
      */
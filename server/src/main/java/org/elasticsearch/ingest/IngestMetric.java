@@ -39,6 +39,10 @@ class IngestMetric {
      * The only increasing count of failures
      */
     private final CounterMetric ingestFailed = new CounterMetric();
+    /**
+     * The profile of the executions on documents that were sampled for profiling, only created once a document got sampled.
+     */
+    private volatile IngestProfile profile;
 
     /**
      * Call this prior to the ingest action.
@@ -58,6 +62,25 @@ class IngestMetric {
         ingestCount.inc();
     }
 
+    /**
+     * Call this prior to the ingest action of a batch of the given number of items.
+     */
+    void preIngest(int count) {
+        ingestCurrent.addAndGet(count);
+    }
+
+    /**
+     * Call this after performing the ingest action of a batch of the given number of items, even if the action failed for some of them.
+     * @param count The number of items of the batch.
+     * @param ingestTimeInNanos The time it took to perform the action for the whole batch.
+     */
+    void postIngest(int count, long ingestTimeInNanos) {
+        long current = ingestCurrent.addAndGet(-count);
+        assert current >= 0 : "ingest metric current count double-decremented";
+        this.ingestTimeInNanos.inc(ingestTimeInNanos);
+        ingestCount.inc(count);
+    }
+
     /**
      * Call this if the ingest action failed.
      */
@@ -65,6 +88,27 @@ class IngestMetric {
         ingestFailed.inc();
     }
 
+    /**
+     * Call this after performing the ingest action on a document that was sampled for profiling, even if the action failed.
+     * @see IngestProfile#record(IngestProfile.Sample, long, IngestDocument, Exception)
+     */
+    void recordProfile(IngestProfile.Sample sample, long ingestTimeInNanos, IngestDocument result, Exception e) {
+        profile().record(sample, ingestTimeInNanos, result, e);
+    }
+
+    private IngestProfile profile() {
+        IngestProfile profile = this.profile;
+        if (profile == null) {
+            synchronized (this) {
+                profile = this.profile;
+                if (profile == null) {
+                    this.profile = profile = new IngestProfile();
+                }
+            }
+        }
+        return profile;
+    }
+
     /**
      * <p>Add two sets of metrics together.
      * <p><strong>Note -</strong> this method does <strong>not</strong> add the current count values.
@@ -76,6 +120,10 @@ class IngestMetric {
         ingestCount.inc(metrics.ingestCount.count());
         ingestTimeInNanos.inc(metrics.ingestTimeInNanos.count());
         ingestFailed.inc(metrics.ingestFailed.count());
+        IngestProfile otherProfile = metrics.profile;
+        if (otherProfile != null) {
+            profile().add(otherProfile);
+        }
     }
 
     /**
@@ -86,4 +134,12 @@ class IngestMetric {
         long ingestTimeInMillis = TimeUnit.NANOSECONDS.toMillis(ingestTimeInNanos.count());
         return new IngestStats.Stats(ingestCount.count(), ingestTimeInMillis, ingestCurrent.get(), ingestFailed.count());
     }
+
+    /**
+     * Creates a serializable representation of the profile of these metrics, {@code null} if no document was sampled for profiling.
+     */
+    IngestStats.ProcessorProfile createProfile() {
+        IngestProfile profile = this.profile;
+        return profile == null ? null : profile.createProfile();
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.ingest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.monitor.jvm.SunThreadInfo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Profile of the executions of a processor on the documents that were sampled for profiling, see
+ * {@link IngestService#INGEST_PROFILE_SAMPLE_INTERVAL}.
+ * <p>Records the distribution of the time it took to execute the processor, the bytes that the executing thread allocated while
+ * executing it and why the processor failed or dropped documents. Allocations are only recorded when the processor completes on the
+ * thread that it was started on, which isn't the case for processors that wait on other node services such as the enrich processor.
+ */
+final class IngestProfile {
+
+    /**
+     * The latencies are recorded with two significant digits, which keeps the histogram of a processor within a few tens of kilobytes.
+     */
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+
+    private final ConcurrentHistogram timeInNanos = new ConcurrentHistogram(SIGNIFICANT_VALUE_DIGITS);
+    private final LongAdder allocationCount = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> failures = ConcurrentCollections.newConcurrentMap();
+
+    /**
+     * The state of an execution that is being profiled.
+     */
+    record Sample(Thread thread, long allocatedBytes) {}
+
+    /**
+     * Call this prior to executing a processor on a profiled document.
+     */
+    static Sample startSample() {
+        final Thread thread = Thread.currentThread();
+        return new Sample(thread, allocatedBytes(thread));
+    }
+
+    private static long allocatedBytes(Thread thread) {
+        final SunThreadInfo threadInfo = SunThreadInfo.INSTANCE;
+        if (threadInfo.isThreadAllocatedMemorySupported() == false || threadInfo.isThreadAllocatedMemoryEnabled() == false) {
+            return -1;
+        }
+        return threadInfo.getThreadAllocatedBytes(thread.getId());
+    }
+
+    /**
+     * Call this after the processor completed on a profiled document, even if it failed.
+     * @param sample The sample that was started before executing the processor.
+     * @param ingestTimeInNanos The time it took to execute the processor.
+     * @param result The document that the processor returned, {@code null} if it dropped the document or failed.
+     * @param e The exception that the processor failed with, if any.
+     */
+    void record(Sample sample, long ingestTimeInNanos, IngestDocument result, Exception e) {
+        timeInNanos.recordValue(Math.max(0, ingestTimeInNanos));
+        if (sample.allocatedBytes() >= 0 && sample.thread() == Thread.currentThread()) {
+            final long allocated = allocatedBytes(sample.thread()) - sample.allocatedBytes();
+            if (allocated >= 0) {
+                allocationCount.increment();
+                allocatedBytes.add(allocated);
+            }
+        }
+        if (e != null) {
+            failures.computeIfAbsent(failureReason(e), k -> new LongAdder()).increment();
+        } else if (result == null) {
+            dropped.increment();
+        }
+    }
+
+    static String failureReason(Exception e) {
+        return ElasticsearchException.getExceptionName(ExceptionsHelper.unwrapCause(e));
+    }
+
+    /**
+     * Adds the recorded executions of another profile to this one.
+     */
+    void add(IngestProfile other) {
+        timeInNanos.add(other.timeInNanos);
+        allocationCount.add(other.allocationCount.sum());
+        allocatedBytes.add(other.allocatedBytes.sum());
+        dropped.add(other.dropped.sum());
+        other.failures.forEach((reason, count) -> failures.computeIfAbsent(reason, k -> new LongAdder()).add(count.sum()));
+    }
+
+    /**
+     * Creates a serializable representation of this profile.
+     */
+    IngestStats.ProcessorProfile createProfile() {
+        final Map<String, Long> failureCounts = new HashMap<>(failures.size());
+        failures.forEach((reason, count) -> failureCounts.put(reason, count.sum()));
+        return new IngestStats.ProcessorProfile(
+            timeInNanos.getTotalCount(),
+            timeInNanos.getValueAtPercentile(50),
+            timeInNanos.getValueAtPercentile(90),
+            timeInNanos.getValueAtPercentile(99),
+            timeInNanos.getMaxValue(),
+            allocationCount.sum(),
+            allocatedBytes.sum(),
+            dropped.sum(),
+            failureCounts
+        );
+    }
+}
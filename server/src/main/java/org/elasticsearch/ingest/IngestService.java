@@ -22,6 +22,7 @@ import org.elasticsearch.action.admin.cluster.node.info.NodesInfoResponse;
 import org.elasticsearch.action.bulk.TransportBulkAction;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.ingest.DeletePipelineRequest;
+import org.elasticsearch.action.ingest.ProfilePipelineResponse;
 import org.elasticsearch.action.ingest.PutPipelineRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.client.internal.Client;
@@ -41,8 +42,12 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.core.Tuple;
@@ -58,20 +63,26 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
@@ -87,6 +98,45 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
 
     public static final String INGEST_ORIGIN = "ingest";
 
+    /**
+     * The number of documents of a bulk request that are sent through a pipeline together, see
+     * {@link Processor#executeBatch(List, Processor.BatchHandler)}. Documents are executed one by one by default.
+     */
+    public static final Setting<Integer> INGEST_BATCH_SIZE = Setting.intSetting("ingest.batch_size", 1, 1, Setting.Property.NodeScope);
+
+    /**
+     * One in every this many pipeline executions is sampled for profiling: the processors record a profile of their execution on the
+     * document, see {@link IngestStats.ProcessorProfile}, and a copy of the document is kept so that the pipeline can be profiled on
+     * demand, see {@link #profilePipeline}. Profiling is disabled by default.
+     */
+    public static final Setting<Integer> INGEST_PROFILE_SAMPLE_INTERVAL = Setting.intSetting(
+        "ingest.profile.sample_interval",
+        0,
+        0,
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * The number of documents most recently sampled for profiling that are kept per pipeline.
+     */
+    public static final Setting<Integer> INGEST_PROFILE_RECENT_DOCUMENTS = Setting.intSetting(
+        "ingest.profile.recent_documents",
+        10,
+        0,
+        1000,
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * The maximum size of the documents sampled for profiling that are kept on a node, across all pipelines. The size of a document is
+     * estimated from the size of its source. Documents that don't fit are not kept.
+     */
+    public static final Setting<ByteSizeValue> INGEST_PROFILE_RECENT_DOCUMENTS_MAX_SIZE = Setting.byteSizeSetting(
+        "ingest.profile.recent_documents_max_size",
+        ByteSizeValue.ofMb(10),
+        Setting.Property.NodeScope
+    );
+
     private static final Logger logger = LogManager.getLogger(IngestService.class);
     private static final IndexNameExpressionResolver.DateMathExpressionResolver DATE_MATH_EXPRESSION_RESOLVER =
         new IndexNameExpressionResolver.DateMathExpressionResolver();
@@ -103,8 +153,16 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
     private final IngestMetric totalMetrics = new IngestMetric();
     private final List<Consumer<ClusterState>> ingestClusterStateListeners = new CopyOnWriteArrayList<>();
     private volatile ClusterState state;
+    private final int batchSize;
+    private final int profileSampleInterval;
+    private final int profileRecentDocuments;
+    private final long profileRecentDocumentsMaxSizeInBytes;
+    private final AtomicLong profileSampleCounter = new AtomicLong();
+    private final Map<String, Deque<ProfiledDocument>> profiledDocuments = ConcurrentCollections.newConcurrentMap();
+    private final AtomicLong profiledDocumentsSizeInBytes = new AtomicLong();
 
     public IngestService(
+        Settings settings,
         ClusterService clusterService,
         ThreadPool threadPool,
         Environment env,
@@ -131,6 +189,10 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         );
 
         this.threadPool = threadPool;
+        this.batchSize = INGEST_BATCH_SIZE.get(settings);
+        this.profileSampleInterval = INGEST_PROFILE_SAMPLE_INTERVAL.get(settings);
+        this.profileRecentDocuments = INGEST_PROFILE_RECENT_DOCUMENTS.get(settings);
+        this.profileRecentDocumentsMaxSizeInBytes = INGEST_PROFILE_RECENT_DOCUMENTS_MAX_SIZE.get(settings).getBytes();
     }
 
     private static Map<String, Processor.Factory> processorFactories(List<IngestPlugin> ingestPlugins, Processor.Parameters parameters) {
@@ -616,6 +678,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                 final Thread originalThread = Thread.currentThread();
                 final AtomicInteger counter = new AtomicInteger(numberOfActionRequests);
                 int i = 0;
+                List<BatchItem> batch = new ArrayList<>(batchSize);
                 for (DocWriteRequest<?> actionRequest : actionRequests) {
                     IndexRequest indexRequest = TransportBulkAction.getIndexWriteRequest(actionRequest);
                     if (indexRequest == null) {
@@ -650,20 +713,31 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                         continue;
                     }
 
-                    executePipelines(
-                        i,
-                        pipelines.iterator(),
-                        hasFinalPipeline,
-                        indexRequest,
-                        onDropped,
-                        onFailure,
-                        counter,
-                        onCompletion,
-                        originalThread
-                    );
+                    if (batchSize > 1) {
+                        batch.add(new BatchItem(i, indexRequest, pipelines.iterator(), hasFinalPipeline));
+                        if (batch.size() == batchSize) {
+                            executePipelines(batch, onDropped, onFailure, counter, onCompletion, originalThread);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    } else {
+                        executePipelines(
+                            i,
+                            pipelines.iterator(),
+                            hasFinalPipeline,
+                            indexRequest,
+                            onDropped,
+                            onFailure,
+                            counter,
+                            onCompletion,
+                            originalThread
+                        );
+                    }
 
                     i++;
                 }
+                if (batch.isEmpty() == false) {
+                    executePipelines(batch, onDropped, onFailure, counter, onCompletion, originalThread);
+                }
             }
         });
     }
@@ -688,17 +762,9 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
             }
             Pipeline pipeline = holder.pipeline;
             String originalIndex = indexRequest.indices()[0];
-            innerExecute(slot, indexRequest, pipeline, onDropped, e -> {
+            innerExecute(slot, indexRequest, pipeline, sampleForProfiling(), onDropped, e -> {
                 if (e != null) {
-                    logger.debug(
-                        () -> new ParameterizedMessage(
-                            "failed to execute pipeline [{}] for document [{}/{}]",
-                            pipelineId,
-                            indexRequest.index(),
-                            indexRequest.id()
-                        ),
-                        e
-                    );
+                    logPipelineFailure(pipelineId, indexRequest, e);
                     onFailure.accept(slot, e);
                 }
 
@@ -745,15 +811,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                 }
             });
         } catch (Exception e) {
-            logger.debug(
-                () -> new ParameterizedMessage(
-                    "failed to execute pipeline [{}] for document [{}/{}]",
-                    pipelineId,
-                    indexRequest.index(),
-                    indexRequest.id()
-                ),
-                e
-            );
+            logPipelineFailure(pipelineId, indexRequest, e);
             onFailure.accept(slot, e);
             if (counter.decrementAndGet() == 0) {
                 onCompletion.accept(originalThread, null);
@@ -762,6 +820,141 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         }
     }
 
+    /**
+     * Executes the next pipeline of every document of a batch, sending documents that go through the same pipeline through it
+     * together, and moves on to the following pipelines once all documents of the batch completed their pipeline.
+     */
+    private void executePipelines(
+        final List<BatchItem> items,
+        final IntConsumer onDropped,
+        final BiConsumer<Integer, Exception> onFailure,
+        final AtomicInteger counter,
+        final BiConsumer<Thread, Exception> onCompletion,
+        final Thread originalThread
+    ) {
+        final Map<String, List<BatchItem>> itemsByPipeline = new LinkedHashMap<>();
+        for (BatchItem item : items) {
+            itemsByPipeline.computeIfAbsent(item.pipelines.next(), k -> new ArrayList<>()).add(item);
+        }
+        final Queue<BatchItem> nextItems = ConcurrentCollections.newQueue();
+        final CountDown countDown = new CountDown(items.size());
+        final BiConsumer<BatchItem, Boolean> onItemCompleted = (item, hasNextPipeline) -> {
+            if (hasNextPipeline) {
+                nextItems.add(item);
+            } else if (counter.decrementAndGet() == 0) {
+                onCompletion.accept(originalThread, null);
+            }
+            assert counter.get() >= 0;
+            if (countDown.countDown() && nextItems.isEmpty() == false) {
+                final List<BatchItem> nextBatch = new ArrayList<>(nextItems);
+                nextBatch.sort(Comparator.comparingInt(nextItem -> nextItem.slot));
+                executePipelines(nextBatch, onDropped, onFailure, counter, onCompletion, originalThread);
+            }
+        };
+
+        for (Map.Entry<String, List<BatchItem>> entry : itemsByPipeline.entrySet()) {
+            final String pipelineId = entry.getKey();
+            final PipelineHolder holder = pipelines.get(pipelineId);
+            final List<BatchItem> pipelineItems = new ArrayList<>(entry.getValue().size());
+            final List<IngestDocument> ingestDocuments = new ArrayList<>(entry.getValue().size());
+            for (BatchItem item : entry.getValue()) {
+                try {
+                    if (holder == null) {
+                        throw new IllegalArgumentException("pipeline with id [" + pipelineId + "] does not exist");
+                    }
+                    if (sampleForProfiling()) {
+                        // documents that are profiled go through the pipeline on their own, so that the processors measure them alone
+                        final String originalIndex = item.indexRequest.indices()[0];
+                        innerExecute(item.slot, item.indexRequest, holder.pipeline, true, onDropped, e -> {
+                            if (e != null) {
+                                logPipelineFailure(pipelineId, item.indexRequest, e);
+                                onFailure.accept(item.slot, e);
+                            }
+                            onItemCompleted.accept(item, moveToNextPipeline(item, pipelineId, originalIndex, onFailure));
+                        });
+                        continue;
+                    }
+                    ingestDocuments.add(newIngestDocument(item.indexRequest));
+                    pipelineItems.add(item);
+                } catch (Exception e) {
+                    logPipelineFailure(pipelineId, item.indexRequest, e);
+                    onFailure.accept(item.slot, e);
+                    onItemCompleted.accept(item, false);
+                }
+            }
+            if (pipelineItems.isEmpty()) {
+                continue;
+            }
+
+            final String[] originalIndices = new String[pipelineItems.size()];
+            for (int i = 0; i < pipelineItems.size(); i++) {
+                originalIndices[i] = pipelineItems.get(i).indexRequest.indices()[0];
+            }
+            innerExecute(pipelineItems, ingestDocuments, holder.pipeline, onDropped, (slot, e) -> {
+                final BatchItem item = pipelineItems.get(slot);
+                if (e != null) {
+                    logPipelineFailure(pipelineId, item.indexRequest, e);
+                    onFailure.accept(item.slot, e);
+                }
+                onItemCompleted.accept(item, moveToNextPipeline(item, pipelineId, originalIndices[slot], onFailure));
+            });
+        }
+    }
+
+    /**
+     * Moves a document of a batch to the pipelines that it goes through after the given pipeline, which change if the pipeline changed
+     * the target index of the document, and returns whether there are any left.
+     */
+    private boolean moveToNextPipeline(BatchItem item, String pipelineId, String originalIndex, BiConsumer<Integer, Exception> onFailure) {
+        final IndexRequest indexRequest = item.indexRequest;
+        if (Objects.equals(originalIndex, indexRequest.indices()[0]) == false) {
+            if (item.hasFinalPipeline && item.pipelines.hasNext() == false) {
+                totalMetrics.ingestFailed();
+                onFailure.accept(item.slot, new IllegalStateException("final pipeline [" + pipelineId + "] can't change the target index"));
+            } else {
+                indexRequest.isPipelineResolved(false);
+                resolvePipelines(null, indexRequest, state.metadata());
+                if (IngestService.NOOP_PIPELINE_NAME.equals(indexRequest.getFinalPipeline()) == false) {
+                    item.pipelines = Collections.singleton(indexRequest.getFinalPipeline()).iterator();
+                    item.hasFinalPipeline = true;
+                } else {
+                    item.pipelines = Collections.emptyIterator();
+                }
+            }
+        }
+        return item.pipelines.hasNext();
+    }
+
+    private static void logPipelineFailure(String pipelineId, IndexRequest indexRequest, Exception e) {
+        logger.debug(
+            () -> new ParameterizedMessage(
+                "failed to execute pipeline [{}] for document [{}/{}]",
+                pipelineId,
+                indexRequest.index(),
+                indexRequest.id()
+            ),
+            e
+        );
+    }
+
+    /**
+     * A document of a bulk request that is executed as part of a batch, along with the pipelines that it still needs to go through.
+     */
+    private static final class BatchItem {
+
+        private final int slot;
+        private final IndexRequest indexRequest;
+        private Iterator<String> pipelines;
+        private boolean hasFinalPipeline;
+
+        BatchItem(int slot, IndexRequest indexRequest, Iterator<String> pipelines, boolean hasFinalPipeline) {
+            this.slot = slot;
+            this.indexRequest = indexRequest;
+            this.pipelines = pipelines;
+            this.hasFinalPipeline = hasFinalPipeline;
+        }
+    }
+
     public IngestStats stats() {
         IngestStats.Builder statsBuilder = new IngestStats.Builder();
         statsBuilder.addTotalMetrics(totalMetrics);
@@ -817,6 +1010,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         int slot,
         IndexRequest indexRequest,
         Pipeline pipeline,
+        boolean profile,
         IntConsumer itemDroppedHandler,
         Consumer<Exception> handler
     ) {
@@ -829,13 +1023,11 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         // the pipeline specific stat holder may not exist and that is fine:
         // (e.g. the pipeline may have been removed while we're ingesting a document
         totalMetrics.preIngest();
-        String index = indexRequest.index();
-        String id = indexRequest.id();
-        String routing = indexRequest.routing();
-        Long version = indexRequest.version();
-        VersionType versionType = indexRequest.versionType();
-        Map<String, Object> sourceAsMap = indexRequest.sourceAsMap();
-        IngestDocument ingestDocument = new IngestDocument(index, id, routing, version, versionType, sourceAsMap);
+        IngestDocument ingestDocument = newIngestDocument(indexRequest);
+        if (profile) {
+            keepProfiledDocument(pipeline.getId(), ingestDocument, indexRequest.source().length());
+            ingestDocument.setProfiled(true);
+        }
         ingestDocument.executePipeline(pipeline, (result, e) -> {
             long ingestTimeInNanos = System.nanoTime() - startTimeInNanos;
             totalMetrics.postIngest(ingestTimeInNanos);
@@ -846,35 +1038,201 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                 itemDroppedHandler.accept(slot);
                 handler.accept(null);
             } else {
-                Map<IngestDocument.Metadata, Object> metadataMap = ingestDocument.extractMetadata();
-
-                String newIndex = (String) metadataMap.get(IngestDocument.Metadata.INDEX);
-                // it's fine to set all metadata fields all the time, as ingest document holds their starting values
-                // before ingestion, which might also get modified during ingestion.
-                indexRequest.index(newIndex);
-                indexRequest.id((String) metadataMap.get(IngestDocument.Metadata.ID));
-                indexRequest.routing((String) metadataMap.get(IngestDocument.Metadata.ROUTING));
-                indexRequest.version(((Number) metadataMap.get(IngestDocument.Metadata.VERSION)).longValue());
-                if (metadataMap.get(IngestDocument.Metadata.VERSION_TYPE) != null) {
-                    indexRequest.versionType(VersionType.fromString((String) metadataMap.get(IngestDocument.Metadata.VERSION_TYPE)));
-                }
-                if (metadataMap.get(IngestDocument.Metadata.IF_SEQ_NO) != null) {
-                    indexRequest.setIfSeqNo(((Number) metadataMap.get(IngestDocument.Metadata.IF_SEQ_NO)).longValue());
+                updateIndexRequest(indexRequest, ingestDocument);
+                handler.accept(null);
+            }
+        });
+    }
+
+    /**
+     * Executes a pipeline on a batch of documents and calls the handler with the slot of every document in the batch, see
+     * {@link Pipeline#executeBatch(List, Processor.BatchHandler)}.
+     */
+    private void innerExecute(
+        List<BatchItem> items,
+        List<IngestDocument> ingestDocuments,
+        Pipeline pipeline,
+        IntConsumer itemDroppedHandler,
+        BiConsumer<Integer, Exception> handler
+    ) {
+        if (pipeline.getProcessors().isEmpty()) {
+            for (int i = 0; i < items.size(); i++) {
+                handler.accept(i, null);
+            }
+            return;
+        }
+
+        final CountDown countDown = new CountDown(items.size());
+        final long startTimeInNanos = System.nanoTime();
+        totalMetrics.preIngest(items.size());
+        IngestDocument.executePipeline(pipeline, ingestDocuments, (slot, result, e) -> {
+            if (countDown.countDown()) {
+                long ingestTimeInNanos = System.nanoTime() - startTimeInNanos;
+                totalMetrics.postIngest(items.size(), ingestTimeInNanos);
+            }
+            if (e != null) {
+                totalMetrics.ingestFailed();
+                handler.accept(slot, e);
+            } else if (result == null) {
+                itemDroppedHandler.accept(items.get(slot).slot);
+                handler.accept(slot, null);
+            } else {
+                updateIndexRequest(items.get(slot).indexRequest, ingestDocuments.get(slot));
+                handler.accept(slot, null);
+            }
+        });
+    }
+
+    /**
+     * Returns whether the next pipeline execution is sampled for profiling, see {@link #INGEST_PROFILE_SAMPLE_INTERVAL}.
+     */
+    private boolean sampleForProfiling() {
+        return profileSampleInterval > 0 && profileSampleCounter.incrementAndGet() % profileSampleInterval == 0;
+    }
+
+    /**
+     * Keeps a copy of a document that is about to be profiled, replacing the oldest documents kept for the pipeline if needed. The
+     * document isn't kept if the documents of other pipelines use up {@link #INGEST_PROFILE_RECENT_DOCUMENTS_MAX_SIZE}.
+     */
+    private void keepProfiledDocument(String pipelineId, IngestDocument ingestDocument, long sizeInBytes) {
+        if (profileRecentDocuments == 0 || sizeInBytes > profileRecentDocumentsMaxSizeInBytes) {
+            return;
+        }
+        final Deque<ProfiledDocument> documents = profiledDocuments.computeIfAbsent(pipelineId, k -> new ArrayDeque<>());
+        synchronized (documents) {
+            if (profiledDocuments.get(pipelineId) != documents) {
+                // the pipeline was removed in the meantime
+                return;
+            }
+            if (documents.size() == profileRecentDocuments) {
+                profiledDocumentsSizeInBytes.addAndGet(-documents.removeFirst().sizeInBytes());
+            }
+            while (profiledDocumentsSizeInBytes.addAndGet(sizeInBytes) > profileRecentDocumentsMaxSizeInBytes) {
+                profiledDocumentsSizeInBytes.addAndGet(-sizeInBytes);
+                if (documents.isEmpty()) {
+                    return;
                 }
-                if (metadataMap.get(IngestDocument.Metadata.IF_PRIMARY_TERM) != null) {
-                    indexRequest.setIfPrimaryTerm(((Number) metadataMap.get(IngestDocument.Metadata.IF_PRIMARY_TERM)).longValue());
+                profiledDocumentsSizeInBytes.addAndGet(-documents.removeFirst().sizeInBytes());
+            }
+            documents.addLast(new ProfiledDocument(new IngestDocument(ingestDocument), sizeInBytes));
+        }
+    }
+
+    private void removeProfiledDocuments(String pipelineId) {
+        final Deque<ProfiledDocument> documents = profiledDocuments.remove(pipelineId);
+        if (documents != null) {
+            synchronized (documents) {
+                for (ProfiledDocument document : documents) {
+                    profiledDocumentsSizeInBytes.addAndGet(-document.sizeInBytes());
                 }
-                indexRequest.source(ingestDocument.getSourceAndMetadata(), indexRequest.getContentType());
-                if (metadataMap.get(IngestDocument.Metadata.DYNAMIC_TEMPLATES) != null) {
-                    Map<String, String> mergedDynamicTemplates = new HashMap<>(indexRequest.getDynamicTemplates());
-                    @SuppressWarnings("unchecked")
-                    Map<String, String> map = (Map<String, String>) metadataMap.get(IngestDocument.Metadata.DYNAMIC_TEMPLATES);
-                    mergedDynamicTemplates.putAll(map);
-                    indexRequest.setDynamicTemplates(mergedDynamicTemplates);
+                documents.clear();
+            }
+        }
+    }
+
+    /**
+     * The total size of the documents kept for profiling, for testing.
+     */
+    long profiledDocumentsSizeInBytes() {
+        return profiledDocumentsSizeInBytes.get();
+    }
+
+    private record ProfiledDocument(IngestDocument document, long sizeInBytes) {}
+
+    /**
+     * Profiles a pipeline on copies of the documents that were most recently sampled for profiling on this node, see
+     * {@link #INGEST_PROFILE_SAMPLE_INTERVAL}. The documents go through a new instance of the pipeline, so that the stats and profiles
+     * of the response only cover these executions.
+     *
+     * @param pipelineId the id of the pipeline to profile
+     * @param maxDocuments the maximum number of documents to profile the pipeline on, the most recent ones are used
+     * @param listener the listener to notify with the profile once all documents went through the pipeline
+     */
+    public void profilePipeline(String pipelineId, int maxDocuments, ActionListener<ProfilePipelineResponse> listener) throws Exception {
+        final PipelineHolder holder = pipelines.get(pipelineId);
+        if (holder == null) {
+            throw new IllegalArgumentException("pipeline with id [" + pipelineId + "] does not exist");
+        }
+        final Pipeline pipeline = Pipeline.create(pipelineId, holder.configuration.getConfigAsMap(), processorFactories, scriptService);
+        final List<IngestDocument> documents = new ArrayList<>();
+        final Deque<ProfiledDocument> recentDocuments = profiledDocuments.get(pipelineId);
+        if (recentDocuments != null) {
+            synchronized (recentDocuments) {
+                final Iterator<ProfiledDocument> it = recentDocuments.descendingIterator();
+                while (it.hasNext() && documents.size() < maxDocuments) {
+                    documents.add(new IngestDocument(it.next().document()));
                 }
-                handler.accept(null);
             }
-        });
+        }
+        if (documents.isEmpty()) {
+            listener.onResponse(profileResponse(pipeline, 0));
+            return;
+        }
+
+        final CountDown countDown = new CountDown(documents.size());
+        for (IngestDocument ingestDocument : documents) {
+            ingestDocument.setProfiled(true);
+            ingestDocument.executePipeline(pipeline, (result, e) -> {
+                if (countDown.countDown()) {
+                    listener.onResponse(profileResponse(pipeline, documents.size()));
+                }
+            });
+        }
+    }
+
+    private static ProfilePipelineResponse profileResponse(Pipeline pipeline, int documentCount) {
+        List<Tuple<Processor, IngestMetric>> processorMetrics = new ArrayList<>();
+        getProcessorMetrics(pipeline.getCompoundProcessor(), processorMetrics);
+        List<IngestStats.ProcessorStat> processorStats = new ArrayList<>(processorMetrics.size());
+        for (Tuple<Processor, IngestMetric> processorMetric : processorMetrics) {
+            Processor processor = processorMetric.v1();
+            IngestMetric metric = processorMetric.v2();
+            String name = getProcessorName(processor);
+            processorStats.add(new IngestStats.ProcessorStat(name, processor.getType(), metric.createStats(), metric.createProfile()));
+        }
+        return new ProfilePipelineResponse(pipeline.getId(), documentCount, pipeline.getMetrics().createStats(), processorStats);
+    }
+
+    private static IngestDocument newIngestDocument(IndexRequest indexRequest) {
+        String index = indexRequest.index();
+        String id = indexRequest.id();
+        String routing = indexRequest.routing();
+        Long version = indexRequest.version();
+        VersionType versionType = indexRequest.versionType();
+        Map<String, Object> sourceAsMap = indexRequest.sourceAsMap();
+        return new IngestDocument(index, id, routing, version, versionType, sourceAsMap);
+    }
+
+    /**
+     * Updates an index request with the metadata and source of the ingest document that a pipeline was executed on.
+     */
+    private static void updateIndexRequest(IndexRequest indexRequest, IngestDocument ingestDocument) {
+        Map<IngestDocument.Metadata, Object> metadataMap = ingestDocument.extractMetadata();
+
+        String newIndex = (String) metadataMap.get(IngestDocument.Metadata.INDEX);
+        // it's fine to set all metadata fields all the time, as ingest document holds their starting values
+        // before ingestion, which might also get modified during ingestion.
+        indexRequest.index(newIndex);
+        indexRequest.id((String) metadataMap.get(IngestDocument.Metadata.ID));
+        indexRequest.routing((String) metadataMap.get(IngestDocument.Metadata.ROUTING));
+        indexRequest.version(((Number) metadataMap.get(IngestDocument.Metadata.VERSION)).longValue());
+        if (metadataMap.get(IngestDocument.Metadata.VERSION_TYPE) != null) {
+            indexRequest.versionType(VersionType.fromString((String) metadataMap.get(IngestDocument.Metadata.VERSION_TYPE)));
+        }
+        if (metadataMap.get(IngestDocument.Metadata.IF_SEQ_NO) != null) {
+            indexRequest.setIfSeqNo(((Number) metadataMap.get(IngestDocument.Metadata.IF_SEQ_NO)).longValue());
+        }
+        if (metadataMap.get(IngestDocument.Metadata.IF_PRIMARY_TERM) != null) {
+            indexRequest.setIfPrimaryTerm(((Number) metadataMap.get(IngestDocument.Metadata.IF_PRIMARY_TERM)).longValue());
+        }
+        indexRequest.source(ingestDocument.getSourceAndMetadata(), indexRequest.getContentType());
+        if (metadataMap.get(IngestDocument.Metadata.DYNAMIC_TEMPLATES) != null) {
+            Map<String, String> mergedDynamicTemplates = new HashMap<>(indexRequest.getDynamicTemplates());
+            @SuppressWarnings("unchecked")
+            Map<String, String> map = (Map<String, String>) metadataMap.get(IngestDocument.Metadata.DYNAMIC_TEMPLATES);
+            mergedDynamicTemplates.putAll(map);
+            indexRequest.setDynamicTemplates(mergedDynamicTemplates);
+        }
     }
 
     @Override
@@ -984,6 +1342,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                     newPipelines = new HashMap<>(existingPipelines);
                 }
                 newPipelines.remove(entry.getKey());
+                removeProfiledDocuments(entry.getKey());
             }
         }
 
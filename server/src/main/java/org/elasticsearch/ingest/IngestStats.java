@@ -8,11 +8,15 @@
 
 package org.elasticsearch.ingest;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.ToXContentObject;
 import org.elasticsearch.xcontent.XContentBuilder;
 
 import java.io.IOException;
@@ -22,9 +26,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 public class IngestStats implements Writeable, ToXContentFragment {
+
+    /**
+     * The parameter that includes the profiles of the processors when rendering the stats, see {@link ProcessorProfile}.
+     */
+    public static final String PROFILE_PARAM = "profile";
+
     private final Stats totalStats;
     private final List<PipelineStat> pipelineStats;
     private final Map<String, List<ProcessorStat>> processorStats;
@@ -59,7 +70,11 @@ public class IngestStats implements Writeable, ToXContentFragment {
                 String processorName = in.readString();
                 String processorType = in.readString();
                 Stats processorStat = new Stats(in);
-                processorStatsPerPipeline.add(new ProcessorStat(processorName, processorType, processorStat));
+                ProcessorProfile processorProfile = null;
+                if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+                    processorProfile = in.readOptionalWriteable(ProcessorProfile::new);
+                }
+                processorStatsPerPipeline.add(new ProcessorStat(processorName, processorType, processorStat, processorProfile));
             }
             this.processorStats.put(pipelineId, processorStatsPerPipeline);
         }
@@ -81,6 +96,9 @@ public class IngestStats implements Writeable, ToXContentFragment {
                     out.writeString(processorStat.getName());
                     out.writeString(processorStat.getType());
                     processorStat.getStats().writeTo(out);
+                    if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+                        out.writeOptionalWriteable(processorStat.getProfile());
+                    }
                 }
             }
         }
@@ -100,14 +118,7 @@ public class IngestStats implements Writeable, ToXContentFragment {
             builder.startArray("processors");
             if (processorStatsForPipeline != null) {
                 for (ProcessorStat processorStat : processorStatsForPipeline) {
-                    builder.startObject();
-                    builder.startObject(processorStat.getName());
-                    builder.field("type", processorStat.getType());
-                    builder.startObject("stats");
-                    processorStat.getStats().toXContent(builder, params);
-                    builder.endObject();
-                    builder.endObject();
-                    builder.endObject();
+                    processorStat.toXContent(builder, params);
                 }
             }
             builder.endArray();
@@ -251,7 +262,7 @@ public class IngestStats implements Writeable, ToXContentFragment {
 
         Builder addProcessorMetrics(String pipelineId, String processorName, String processorType, IngestMetric metric) {
             this.processorStats.computeIfAbsent(pipelineId, k -> new ArrayList<>())
-                .add(new ProcessorStat(processorName, processorType, metric.createStats()));
+                .add(new ProcessorStat(processorName, processorType, metric.createStats(), metric.createProfile()));
             return this;
         }
 
@@ -297,15 +308,21 @@ public class IngestStats implements Writeable, ToXContentFragment {
     /**
      * Container for processor stats.
      */
-    public static class ProcessorStat {
+    public static class ProcessorStat implements ToXContentObject {
         private final String name;
         private final String type;
         private final Stats stats;
+        private final ProcessorProfile profile;
 
         public ProcessorStat(String name, String type, Stats stats) {
+            this(name, type, stats, null);
+        }
+
+        public ProcessorStat(String name, String type, Stats stats, @Nullable ProcessorProfile profile) {
             this.name = name;
             this.type = type;
             this.stats = stats;
+            this.profile = profile;
         }
 
         public String getName() {
@@ -320,17 +337,214 @@ public class IngestStats implements Writeable, ToXContentFragment {
             return stats;
         }
 
+        /**
+         * @return The profile of the processor, {@code null} if no document was sampled for profiling.
+         */
+        @Nullable
+        public ProcessorProfile getProfile() {
+            return profile;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.startObject(name);
+            builder.field("type", type);
+            builder.startObject("stats");
+            stats.toXContent(builder, params);
+            builder.endObject();
+            if (profile != null && params.paramAsBoolean(PROFILE_PARAM, false)) {
+                builder.startObject("profile");
+                profile.toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+            builder.endObject();
+            return builder;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             IngestStats.ProcessorStat that = (IngestStats.ProcessorStat) o;
-            return Objects.equals(name, that.name) && Objects.equals(type, that.type) && Objects.equals(stats, that.stats);
+            return Objects.equals(name, that.name)
+                && Objects.equals(type, that.type)
+                && Objects.equals(stats, that.stats)
+                && Objects.equals(profile, that.profile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, type, stats, profile);
+        }
+    }
+
+    /**
+     * Profile of a processor, built from the documents that were sampled for profiling. The latencies are percentiles of the
+     * distribution of the time it took to execute the processor. The allocated bytes are only known for the executions that
+     * completed on the thread they started on.
+     */
+    public static class ProcessorProfile implements Writeable, ToXContentFragment {
+
+        private final long count;
+        private final long p50TimeInNanos;
+        private final long p90TimeInNanos;
+        private final long p99TimeInNanos;
+        private final long maxTimeInNanos;
+        private final long allocationCount;
+        private final long allocatedBytes;
+        private final long droppedCount;
+        private final Map<String, Long> failures;
+
+        public ProcessorProfile(
+            long count,
+            long p50TimeInNanos,
+            long p90TimeInNanos,
+            long p99TimeInNanos,
+            long maxTimeInNanos,
+            long allocationCount,
+            long allocatedBytes,
+            long droppedCount,
+            Map<String, Long> failures
+        ) {
+            this.count = count;
+            this.p50TimeInNanos = p50TimeInNanos;
+            this.p90TimeInNanos = p90TimeInNanos;
+            this.p99TimeInNanos = p99TimeInNanos;
+            this.maxTimeInNanos = maxTimeInNanos;
+            this.allocationCount = allocationCount;
+            this.allocatedBytes = allocatedBytes;
+            this.droppedCount = droppedCount;
+            this.failures = Objects.requireNonNull(failures);
+        }
+
+        /**
+         * Read from a stream.
+         */
+        public ProcessorProfile(StreamInput in) throws IOException {
+            count = in.readVLong();
+            p50TimeInNanos = in.readVLong();
+            p90TimeInNanos = in.readVLong();
+            p99TimeInNanos = in.readVLong();
+            maxTimeInNanos = in.readVLong();
+            allocationCount = in.readVLong();
+            allocatedBytes = in.readVLong();
+            droppedCount = in.readVLong();
+            failures = in.readMap(StreamInput::readString, StreamInput::readVLong);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(count);
+            out.writeVLong(p50TimeInNanos);
+            out.writeVLong(p90TimeInNanos);
+            out.writeVLong(p99TimeInNanos);
+            out.writeVLong(maxTimeInNanos);
+            out.writeVLong(allocationCount);
+            out.writeVLong(allocatedBytes);
+            out.writeVLong(droppedCount);
+            out.writeMap(failures, StreamOutput::writeString, StreamOutput::writeVLong);
+        }
+
+        /**
+         * @return The number of profiled executions of the processor.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50TimeInNanos() {
+            return p50TimeInNanos;
+        }
+
+        public long getP90TimeInNanos() {
+            return p90TimeInNanos;
+        }
+
+        public long getP99TimeInNanos() {
+            return p99TimeInNanos;
+        }
+
+        public long getMaxTimeInNanos() {
+            return maxTimeInNanos;
+        }
+
+        /**
+         * @return The number of profiled executions for which the allocated bytes are known.
+         */
+        public long getAllocationCount() {
+            return allocationCount;
+        }
+
+        /**
+         * @return The total number of bytes that were allocated by the profiled executions for which the allocated bytes are known.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return The number of profiled documents that the processor dropped.
+         */
+        public long getDroppedCount() {
+            return droppedCount;
+        }
+
+        /**
+         * @return The number of profiled documents that the processor failed on, keyed by the name of the exception it failed with.
+         */
+        public Map<String, Long> getFailures() {
+            return failures;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field("count", count);
+            builder.startObject("time_in_nanos");
+            builder.field("p50", p50TimeInNanos);
+            builder.field("p90", p90TimeInNanos);
+            builder.field("p99", p99TimeInNanos);
+            builder.field("max", maxTimeInNanos);
+            builder.endObject();
+            builder.startObject("allocations");
+            builder.field("count", allocationCount);
+            builder.humanReadableField("allocated_in_bytes", "allocated", new ByteSizeValue(allocatedBytes));
+            builder.endObject();
+            builder.field("dropped", droppedCount);
+            builder.field("failures", new TreeMap<>(failures));
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            IngestStats.ProcessorProfile that = (IngestStats.ProcessorProfile) o;
+            return count == that.count
+                && p50TimeInNanos == that.p50TimeInNanos
+                && p90TimeInNanos == that.p90TimeInNanos
+                && p99TimeInNanos == that.p99TimeInNanos
+                && maxTimeInNanos == that.maxTimeInNanos
+                && allocationCount == that.allocationCount
+                && allocatedBytes == that.allocatedBytes
+                && droppedCount == that.droppedCount
+                && Objects.equals(failures, that.failures);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(name, type, stats);
+            return Objects.hash(
+                count,
+                p50TimeInNanos,
+                p90TimeInNanos,
+                p99TimeInNanos,
+                maxTimeInNanos,
+                allocationCount,
+                allocatedBytes,
+                droppedCount,
+                failures
+            );
         }
     }
 }
@@ -9,6 +9,7 @@
 package org.elasticsearch.ingest;
 
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.script.ScriptService;
 
@@ -124,6 +125,26 @@ public final class Pipeline {
         });
     }
 
+    /**
+     * Modifies the data of a batch of documents to be indexed based on the processor this pipeline holds, and calls the handler once
+     * for every document of the batch, see {@link Processor#executeBatch(List, Processor.BatchHandler)}.
+     */
+    public void executeBatch(List<IngestDocument> ingestDocuments, Processor.BatchHandler handler) {
+        final CountDown countDown = new CountDown(ingestDocuments.size());
+        final long startTimeInNanos = relativeTimeProvider.getAsLong();
+        metrics.preIngest(ingestDocuments.size());
+        compoundProcessor.executeBatch(ingestDocuments, (slot, result, e) -> {
+            if (e != null) {
+                metrics.ingestFailed();
+            }
+            if (countDown.countDown()) {
+                long ingestTimeInNanos = relativeTimeProvider.getAsLong() - startTimeInNanos;
+                metrics.postIngest(ingestDocuments.size(), ingestTimeInNanos);
+            }
+            handler.accept(slot, result, e);
+        });
+    }
+
     /**
      * The unique id of this pipeline
      */
@@ -15,6 +15,7 @@ import org.elasticsearch.index.analysis.AnalysisRegistry;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.threadpool.Scheduler;
 
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -54,6 +55,22 @@ public interface Processor {
      */
     IngestDocument execute(IngestDocument ingestDocument) throws Exception;
 
+    /**
+     * Introspect and potentially modify a batch of documents, for instance the documents of a bulk request that go through the same
+     * pipeline. The handler must be called exactly once for every document, with the slot of the document in the batch and the same
+     * result or failure that {@link #execute(IngestDocument, BiConsumer)} would return for it. The handler may be called from
+     * different threads, and before all documents of the batch completed.
+     *
+     * Expert method: only override this method if a processor implementation can share work between the documents of a batch, by
+     * default the documents are executed one by one.
+     */
+    default void executeBatch(List<IngestDocument> ingestDocuments, BatchHandler handler) {
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            final int slot = i;
+            execute(ingestDocuments.get(slot), (result, e) -> handler.accept(slot, result, e));
+        }
+    }
+
     /**
      * Gets the type of a processor
      */
@@ -69,6 +86,20 @@ public interface Processor {
      */
     String getDescription();
 
+    /**
+     * Receives the result of executing a document of a batch, see {@link #executeBatch(List, BatchHandler)}.
+     */
+    @FunctionalInterface
+    interface BatchHandler {
+
+        /**
+         * @param slot      the slot of the document in the batch
+         * @param result    the resulting document, or <code>null</code> if the document was dropped or failed
+         * @param e         the failure of the document, or <code>null</code>
+         */
+        void accept(int slot, IngestDocument result, Exception e);
+    }
+
     /**
      * A factory that knows how to construct a processor based on a map of maps.
      */
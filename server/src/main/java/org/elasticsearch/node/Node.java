@@ -459,6 +459,7 @@ public class Node implements Closeable {
                 );
             }
             final IngestService ingestService = new IngestService(
+                settings,
                 clusterService,
                 threadPool,
                 this.environment,
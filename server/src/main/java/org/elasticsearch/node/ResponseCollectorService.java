@@ -16,6 +16,8 @@ import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import java.io.IOException;
@@ -24,11 +26,18 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
 
 /**
  * Collects statistics about queue size, response time, and service time of
  * tasks executed on each node, making the EWMA of the values available to the
  * coordinating node.
+ * <p>
+ * It also tracks the search requests that are in flight to each node and the
+ * requests that each node rejected. These live signals are only taken into
+ * account by the ranking if {@link #IN_FLIGHT_FEEDBACK_SETTING} is enabled, so
+ * that a node that stops responding, for instance because of a long GC, stops
+ * receiving requests before its response time statistics catch up with it.
  */
 public final class ResponseCollectorService implements ClusterStateListener {
 
@@ -37,12 +46,37 @@ public final class ResponseCollectorService implements ClusterStateListener {
      */
     public static final double ALPHA = 0.3;
 
+    public static final Setting<Boolean> IN_FLIGHT_FEEDBACK_SETTING = Setting.boolSetting(
+        "cluster.routing.adaptive_replica_selection.in_flight_feedback",
+        false,
+        Setting.Property.Dynamic,
+        Setting.Property.NodeScope
+    );
+
     private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, InFlightRequests> nodeIdToInFlightRequests = ConcurrentCollections.newConcurrentMap();
+    private final LongSupplier relativeNanoTimeSupplier;
+    private volatile boolean inFlightFeedback;
 
     public ResponseCollectorService(ClusterService clusterService) {
+        this(clusterService.getClusterSettings(), System::nanoTime);
         clusterService.addListener(this);
     }
 
+    /**
+     * Creates a collector that doesn't listen to cluster state updates and measures time with the given supplier, which is meant for
+     * simulations and tests.
+     */
+    public ResponseCollectorService(ClusterSettings clusterSettings, LongSupplier relativeNanoTimeSupplier) {
+        this.relativeNanoTimeSupplier = relativeNanoTimeSupplier;
+        this.inFlightFeedback = clusterSettings.get(IN_FLIGHT_FEEDBACK_SETTING);
+        clusterSettings.addSettingsUpdateConsumer(IN_FLIGHT_FEEDBACK_SETTING, this::setInFlightFeedback);
+    }
+
+    void setInFlightFeedback(boolean inFlightFeedback) {
+        this.inFlightFeedback = inFlightFeedback;
+    }
+
     @Override
     public void clusterChanged(ClusterChangedEvent event) {
         if (event.nodesRemoved()) {
@@ -54,6 +88,7 @@ public final class ResponseCollectorService implements ClusterStateListener {
 
     void removeNode(String nodeId) {
         nodeIdToStats.remove(nodeId);
+        nodeIdToInFlightRequests.remove(nodeId);
     }
 
     public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long avgServiceTimeNanos) {
@@ -61,7 +96,8 @@ public final class ResponseCollectorService implements ClusterStateListener {
             if (ns == null) {
                 ExponentiallyWeightedMovingAverage queueEWMA = new ExponentiallyWeightedMovingAverage(ALPHA, queueSize);
                 ExponentiallyWeightedMovingAverage responseEWMA = new ExponentiallyWeightedMovingAverage(ALPHA, responseTimeNanos);
-                return new NodeStatistics(nodeId, queueEWMA, responseEWMA, avgServiceTimeNanos);
+                ExponentiallyWeightedMovingAverage rejectionEWMA = new ExponentiallyWeightedMovingAverage(ALPHA, 0);
+                return new NodeStatistics(nodeId, queueEWMA, responseEWMA, avgServiceTimeNanos, rejectionEWMA);
             } else {
                 ns.queueSize.addValue((double) queueSize);
                 ns.responseTime.addValue((double) responseTimeNanos);
@@ -71,11 +107,64 @@ public final class ResponseCollectorService implements ClusterStateListener {
         });
     }
 
+    /**
+     * Records that a search request was sent to the given node.
+     */
+    public void onRequestSent(String nodeId) {
+        final long nowNanos = relativeNanoTimeSupplier.getAsLong();
+        nodeIdToInFlightRequests.compute(nodeId, (id, inFlight) -> {
+            if (inFlight == null) {
+                inFlight = new InFlightRequests();
+            }
+            if (inFlight.count == 0) {
+                // the node can't be stalled if it had nothing to do
+                inFlight.lastProgressNanos = nowNanos;
+            }
+            inFlight.count++;
+            return inFlight;
+        });
+    }
+
+    /**
+     * Records that a search request that was sent to the given node completed, and whether the node rejected it. Rejections are only
+     * tracked for nodes that have statistics already.
+     */
+    public void onRequestCompleted(String nodeId, boolean rejected) {
+        final long nowNanos = relativeNanoTimeSupplier.getAsLong();
+        nodeIdToInFlightRequests.computeIfPresent(nodeId, (id, inFlight) -> {
+            inFlight.count--;
+            inFlight.lastProgressNanos = nowNanos;
+            return inFlight.count > 0 ? inFlight : null;
+        });
+        nodeIdToStats.computeIfPresent(nodeId, (id, ns) -> {
+            ns.rejections.addValue(rejected ? 1 : 0);
+            return ns;
+        });
+    }
+
+    /**
+     * Returns for how long the given node has had requests in flight without completing any of them.
+     */
+    private long stallTimeNanos(String nodeId) {
+        final InFlightRequests inFlight = nodeIdToInFlightRequests.get(nodeId);
+        if (inFlight == null || inFlight.count <= 0) {
+            return 0;
+        }
+        return Math.max(0, relativeNanoTimeSupplier.getAsLong() - inFlight.lastProgressNanos);
+    }
+
+    private ComputedNodeStats computedNodeStats(int clientNum, NodeStatistics nodeStats) {
+        if (inFlightFeedback) {
+            return new ComputedNodeStats(clientNum, nodeStats, stallTimeNanos(nodeStats.nodeId), nodeStats.rejections.getAverage());
+        }
+        return new ComputedNodeStats(clientNum, nodeStats);
+    }
+
     public Map<String, ComputedNodeStats> getAllNodeStatistics() {
         final int clientNum = nodeIdToStats.size();
         // Transform the mutable object internally used for accounting into the computed version
         Map<String, ComputedNodeStats> nodeStats = new HashMap<>(nodeIdToStats.size());
-        nodeIdToStats.forEach((k, v) -> { nodeStats.put(k, new ComputedNodeStats(clientNum, v)); });
+        nodeIdToStats.forEach((k, v) -> { nodeStats.put(k, computedNodeStats(clientNum, v)); });
         return nodeStats;
     }
 
@@ -90,19 +179,22 @@ public final class ResponseCollectorService implements ClusterStateListener {
      */
     public Optional<ComputedNodeStats> getNodeStatistics(final String nodeId) {
         final int clientNum = nodeIdToStats.size();
-        return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> new ComputedNodeStats(clientNum, ns));
+        return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> computedNodeStats(clientNum, ns));
     }
 
     /**
      * Struct-like class encapsulating a point-in-time snapshot of a particular
      * node's statistics. This includes the EWMA of queue size, response time,
-     * and service time.
+     * and service time. The stall time and the rejection rate are only used to
+     * rank the node locally and aren't serialized.
      */
     public static class ComputedNodeStats implements Writeable {
         // We store timestamps with nanosecond precision, however, the
         // formula specifies milliseconds, therefore we need to convert
         // the values so the times don't unduely weight the formula
         private final double FACTOR = 1000000.0;
+        // a node that rejects every request is ranked as if its queue was ten times as long
+        private static final double MAX_REJECTION_RATE = 0.9;
         private final int clientNum;
 
         private double cachedRank = 0;
@@ -111,13 +203,29 @@ public final class ResponseCollectorService implements ClusterStateListener {
         public final int queueSize;
         public final double responseTime;
         public final double serviceTime;
+        public final double stallTime;
+        public final double rejectionRate;
 
         public ComputedNodeStats(String nodeId, int clientNum, int queueSize, double responseTime, double serviceTime) {
+            this(nodeId, clientNum, queueSize, responseTime, serviceTime, 0, 0);
+        }
+
+        public ComputedNodeStats(
+            String nodeId,
+            int clientNum,
+            int queueSize,
+            double responseTime,
+            double serviceTime,
+            double stallTime,
+            double rejectionRate
+        ) {
             this.nodeId = nodeId;
             this.clientNum = clientNum;
             this.queueSize = queueSize;
             this.responseTime = responseTime;
             this.serviceTime = serviceTime;
+            this.stallTime = stallTime;
+            this.rejectionRate = rejectionRate;
         }
 
         ComputedNodeStats(int clientNum, NodeStatistics nodeStats) {
@@ -130,12 +238,26 @@ public final class ResponseCollectorService implements ClusterStateListener {
             );
         }
 
+        ComputedNodeStats(int clientNum, NodeStatistics nodeStats, double stallTime, double rejectionRate) {
+            this(
+                nodeStats.nodeId,
+                clientNum,
+                (int) nodeStats.queueSize.getAverage(),
+                nodeStats.responseTime.getAverage(),
+                nodeStats.serviceTime,
+                stallTime,
+                rejectionRate
+            );
+        }
+
         ComputedNodeStats(StreamInput in) throws IOException {
             this.nodeId = in.readString();
             this.clientNum = in.readInt();
             this.queueSize = in.readInt();
             this.responseTime = in.readDouble();
             this.serviceTime = in.readDouble();
+            this.stallTime = 0;
+            this.rejectionRate = 0;
         }
 
         @Override
@@ -164,9 +286,13 @@ public final class ResponseCollectorService implements ClusterStateListener {
             // EWMA of queue size
             double qBar = queueSize;
             double qHatS = 1 + concurrencyCompensation + qBar;
+            // A node that rejected a fraction of the recent requests has a full
+            // queue, rank it as if its queue was longer by the same proportion
+            qHatS /= 1 - Math.min(rejectionRate, MAX_REJECTION_RATE);
 
-            // EWMA of response time
-            double rS = responseTime / FACTOR;
+            // EWMA of response time, or for how long the node has had requests
+            // in flight without completing any if that is longer already
+            double rS = Math.max(responseTime, stallTime) / FACTOR;
             // EWMA of service time. We match the paper's notation, which
             // defines service time as the inverse of service rate (muBarS).
             double muBarSInverse = serviceTime / FACTOR;
@@ -190,6 +316,10 @@ public final class ResponseCollectorService implements ClusterStateListener {
             sb.append(", queue: ").append(queueSize);
             sb.append(", response time: ").append(String.format(Locale.ROOT, "%.1f", responseTime));
             sb.append(", service time: ").append(String.format(Locale.ROOT, "%.1f", serviceTime));
+            if (stallTime > 0 || rejectionRate > 0) {
+                sb.append(", stall time: ").append(String.format(Locale.ROOT, "%.1f", stallTime));
+                sb.append(", rejection rate: ").append(String.format(Locale.ROOT, "%.2f", rejectionRate));
+            }
             sb.append(", rank: ").append(String.format(Locale.ROOT, "%.1f", rank(1)));
             sb.append(")");
             return sb.toString();
@@ -206,17 +336,30 @@ public final class ResponseCollectorService implements ClusterStateListener {
         final ExponentiallyWeightedMovingAverage queueSize;
         final ExponentiallyWeightedMovingAverage responseTime;
         double serviceTime;
+        // the EWMA of 1 for each rejected request and 0 for each other completed request
+        final ExponentiallyWeightedMovingAverage rejections;
 
         NodeStatistics(
             String nodeId,
             ExponentiallyWeightedMovingAverage queueSizeEWMA,
             ExponentiallyWeightedMovingAverage responseTimeEWMA,
-            double serviceTimeEWMA
+            double serviceTimeEWMA,
+            ExponentiallyWeightedMovingAverage rejectionsEWMA
         ) {
             this.nodeId = nodeId;
             this.queueSize = queueSizeEWMA;
             this.responseTime = responseTimeEWMA;
             this.serviceTime = serviceTimeEWMA;
+            this.rejections = rejectionsEWMA;
         }
     }
+
+    /**
+     * The number of search requests in flight to a node and the last time a request to the node was sent while it had nothing to do
+     * or completed, only mutated while holding the entry of its node in the map.
+     */
+    private static class InFlightRequests {
+        volatile int count;
+        volatile long lastProgressNanos;
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest.action.ingest;
+
+import org.elasticsearch.action.ingest.ProfilePipelineAction;
+import org.elasticsearch.action.ingest.ProfilePipelineRequest;
+import org.elasticsearch.client.internal.node.NodeClient;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestToXContentListener;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+public class RestProfilePipelineAction extends BaseRestHandler {
+
+    @Override
+    public List<Route> routes() {
+        return List.of(new Route(GET, "/_ingest/pipeline/{id}/_profile"), new Route(POST, "/_ingest/pipeline/{id}/_profile"));
+    }
+
+    @Override
+    public String getName() {
+        return "ingest_profile_pipeline_action";
+    }
+
+    @Override
+    public RestChannelConsumer prepareRequest(RestRequest restRequest, NodeClient client) throws IOException {
+        ProfilePipelineRequest request = new ProfilePipelineRequest(restRequest.param("id"));
+        request.setSize(restRequest.paramAsInt("size", request.getSize()));
+        return channel -> client.execute(ProfilePipelineAction.INSTANCE, request, new RestToXContentListener<>(channel));
+    }
+}
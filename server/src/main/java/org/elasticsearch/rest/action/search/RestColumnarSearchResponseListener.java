@@ -0,0 +1,362 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.action.RestResponseListener;
+import org.elasticsearch.rest.columnar.ColumnarMediaType;
+import org.elasticsearch.rest.columnar.ColumnarWriter;
+import org.elasticsearch.search.DocValueColumns;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.PipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.CardinalityAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MedianAbsoluteDeviationAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregation;
+import org.elasticsearch.search.aggregations.metrics.SumAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ValueCountAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.WeightedAvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.AvgBucketPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.BucketScriptPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.BucketSelectorPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.BucketSortPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.CumulativeSumPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.DerivativePipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.MaxBucketPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.MinBucketPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.MovFnPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.SerialDiffPipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.SumBucketPipelineAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.subphase.FieldAndFormat;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends a {@link SearchResponse} in the binary columnar format of {@link ColumnarWriter}. The response is made of these tables:
+ * <ul>
+ *     <li>{@code response}: a single row with the {@code took}, {@code timed_out}, {@code total}, {@code successful},
+ *     {@code skipped} and {@code failed} shards, {@code total_hits}, {@code total_hits_relation} and {@code max_score}
+ *     columns</li>
+ *     <li>{@code hits}: a row per hit with the {@code _index}, {@code _id} and {@code _score} columns and a column per field that
+ *     was fetched with {@code fields} or {@code docvalue_fields}. The {@code _source} of the hits isn't encoded. The values of the
+ *     {@code docvalue_fields} are requested {@link SearchRequest#columnarDocValueFields() column by column} from the shards.</li>
+ *     <li>a table per top level aggregation, named after the aggregation. Multi-bucket aggregations have a row per bucket with a
+ *     {@code key} column, or a column per key of the buckets of a {@code composite} aggregation, a {@code doc_count} column and a
+ *     column per numeric single-value metrics sub-aggregation. Numeric single-value metrics aggregations have a single row with a
+ *     {@code value} column. The {@code after_key} of a {@code composite} aggregation is returned as a single row table named
+ *     {@code <name>.after_key}.</li>
+ * </ul>
+ * Requests with any other kind of aggregation, or with fields or aggregations whose columns or tables would have the same name, are
+ * rejected by {@link #validate} before they are executed.
+ */
+public class RestColumnarSearchResponseListener extends RestResponseListener<SearchResponse> {
+
+    private static final Set<String> HIT_METADATA_COLUMNS = Set.of("_index", "_id", "_score");
+    private static final Set<String> METADATA_TABLES = Set.of("response", "hits");
+    private static final String KEY_COLUMN = "key";
+    private static final String DOC_COUNT_COLUMN = "doc_count";
+    private static final String AFTER_KEY_SUFFIX = ".after_key";
+
+    /**
+     * The metrics aggregations that return a {@link NumericMetricsAggregation.SingleValue}.
+     */
+    private static final Set<String> SINGLE_VALUE_METRICS = Set.of(
+        AvgAggregationBuilder.NAME,
+        CardinalityAggregationBuilder.NAME,
+        MaxAggregationBuilder.NAME,
+        MedianAbsoluteDeviationAggregationBuilder.NAME,
+        MinAggregationBuilder.NAME,
+        SumAggregationBuilder.NAME,
+        ValueCountAggregationBuilder.NAME,
+        WeightedAvgAggregationBuilder.NAME
+    );
+
+    /**
+     * The pipeline aggregations that return a {@link NumericMetricsAggregation.SingleValue}.
+     */
+    private static final Set<String> SINGLE_VALUE_PIPELINES = Set.of(
+        AvgBucketPipelineAggregationBuilder.NAME,
+        BucketScriptPipelineAggregationBuilder.NAME,
+        CumulativeSumPipelineAggregationBuilder.NAME,
+        DerivativePipelineAggregationBuilder.NAME,
+        MaxBucketPipelineAggregationBuilder.NAME,
+        MinBucketPipelineAggregationBuilder.NAME,
+        MovFnPipelineAggregationBuilder.NAME,
+        SerialDiffPipelineAggregationBuilder.NAME,
+        SumBucketPipelineAggregationBuilder.NAME
+    );
+
+    /**
+     * The pipeline aggregations that only filter or sort the buckets of their parent, without adding a sub-aggregation to them.
+     */
+    private static final Set<String> BUCKET_PIPELINES = Set.of(
+        BucketSelectorPipelineAggregationBuilder.NAME,
+        BucketSortPipelineAggregationBuilder.NAME
+    );
+
+    public RestColumnarSearchResponseListener(RestChannel channel) {
+        super(channel);
+    }
+
+    /**
+     * Rejects requests whose response can't be encoded, so that they fail before the search is executed rather than after.
+     */
+    static void validate(SearchRequest request) {
+        final SearchSourceBuilder source = request.source();
+        if (source == null) {
+            return;
+        }
+        if (source.docValueFields() != null) {
+            for (FieldAndFormat field : source.docValueFields()) {
+                checkHitField(field.field);
+            }
+        }
+        if (source.fetchFields() != null) {
+            for (FieldAndFormat field : source.fetchFields()) {
+                checkHitField(field.field);
+            }
+        }
+        final AggregatorFactories.Builder aggregations = source.aggregations();
+        if (aggregations == null) {
+            return;
+        }
+        final Set<String> tables = new HashSet<>(METADATA_TABLES);
+        for (AggregationBuilder aggregation : aggregations.getAggregatorFactories()) {
+            if (SINGLE_VALUE_METRICS.contains(aggregation.getType()) == false) {
+                if (aggregation.bucketCardinality() != AggregationBuilder.BucketCardinality.MANY) {
+                    throw unsupportedAggregation(aggregation.getName(), aggregation.getType());
+                }
+                validateBucketColumns(aggregation);
+            }
+            addTable(tables, aggregation.getName());
+            if (aggregation instanceof CompositeAggregationBuilder) {
+                addTable(tables, aggregation.getName() + AFTER_KEY_SUFFIX);
+            }
+        }
+        for (PipelineAggregationBuilder pipeline : aggregations.getPipelineAggregatorFactories()) {
+            if (SINGLE_VALUE_PIPELINES.contains(pipeline.getType()) == false) {
+                throw unsupportedAggregation(pipeline.getName(), pipeline.getType());
+            }
+            addTable(tables, pipeline.getName());
+        }
+    }
+
+    private static void validateBucketColumns(AggregationBuilder aggregation) {
+        final List<String> columns = new ArrayList<>();
+        if (aggregation instanceof CompositeAggregationBuilder composite) {
+            for (CompositeValuesSourceBuilder<?> valuesSource : composite.sources()) {
+                columns.add(valuesSource.name());
+            }
+        } else {
+            columns.add(KEY_COLUMN);
+        }
+        columns.add(DOC_COUNT_COLUMN);
+        for (AggregationBuilder subAggregation : aggregation.getSubAggregations()) {
+            if (SINGLE_VALUE_METRICS.contains(subAggregation.getType()) == false) {
+                throw unsupportedAggregation(subAggregation.getName(), subAggregation.getType());
+            }
+            columns.add(subAggregation.getName());
+        }
+        for (PipelineAggregationBuilder pipeline : aggregation.getPipelineAggregations()) {
+            if (SINGLE_VALUE_PIPELINES.contains(pipeline.getType())) {
+                columns.add(pipeline.getName());
+            } else if (BUCKET_PIPELINES.contains(pipeline.getType()) == false) {
+                throw unsupportedAggregation(pipeline.getName(), pipeline.getType());
+            }
+        }
+        final Set<String> unique = new HashSet<>();
+        for (String column : columns) {
+            if (unique.add(column) == false) {
+                throw new IllegalArgumentException(
+                    "aggregation ["
+                        + aggregation.getName()
+                        + "] can't be returned in the ["
+                        + ColumnarMediaType.CONTENT_TYPE
+                        + "] format because more than one of its columns would be named ["
+                        + column
+                        + "], rename its sub-aggregations or sources"
+                );
+            }
+        }
+    }
+
+    private static void addTable(Set<String> tables, String table) {
+        if (tables.add(table) == false) {
+            throw new IllegalArgumentException(
+                "aggregation ["
+                    + table
+                    + "] can't be returned in the ["
+                    + ColumnarMediaType.CONTENT_TYPE
+                    + "] format because the response has another table with the same name, rename the aggregation"
+            );
+        }
+    }
+
+    private static String checkHitField(String field) {
+        if (HIT_METADATA_COLUMNS.contains(field)) {
+            throw new IllegalArgumentException(
+                "field ["
+                    + field
+                    + "] can't be returned in the ["
+                    + ColumnarMediaType.CONTENT_TYPE
+                    + "] format because the hits have a metadata column with the same name"
+            );
+        }
+        return field;
+    }
+
+    @Override
+    public RestResponse buildResponse(SearchResponse response) throws Exception {
+        return new BytesRestResponse(response.status(), ColumnarMediaType.CONTENT_TYPE, encode(response));
+    }
+
+    static BytesReference encode(SearchResponse response) throws IOException {
+        final ColumnarWriter writer = new ColumnarWriter();
+        final SearchHits hits = response.getHits();
+
+        final ColumnarWriter.Table metadata = writer.newTable("response");
+        metadata.add("took", response.getTook().millis())
+            .add("timed_out", response.isTimedOut())
+            .add("total_shards", response.getTotalShards())
+            .add("successful_shards", response.getSuccessfulShards())
+            .add("skipped_shards", response.getSkippedShards())
+            .add("failed_shards", response.getFailedShards());
+        final TotalHits totalHits = hits.getTotalHits();
+        if (totalHits != null) {
+            metadata.add("total_hits", totalHits.value)
+                .add("total_hits_relation", totalHits.relation == TotalHits.Relation.EQUAL_TO ? "eq" : "gte");
+        }
+        metadata.add("max_score", Float.isNaN(hits.getMaxScore()) ? null : hits.getMaxScore());
+        metadata.endRow();
+
+        final ColumnarWriter.Table hitsTable = writer.newTable("hits");
+        // make sure that the columns of the metadata come first
+        final ColumnarWriter.Table.Column index = hitsTable.column("_index");
+        final ColumnarWriter.Table.Column id = hitsTable.column("_id");
+        final ColumnarWriter.Table.Column score = hitsTable.column("_score");
+        final List<DocValueColumns.Column> docValueColumns = hits.getDocValueColumns() == null
+            ? List.of()
+            : List.copyOf(hits.getDocValueColumns().columns());
+        final List<ColumnarWriter.Table.Column> docValueTargets = new ArrayList<>(docValueColumns.size());
+        for (DocValueColumns.Column column : docValueColumns) {
+            docValueTargets.add(hitsTable.column(checkHitField(column.name())));
+        }
+        for (SearchHit hit : hits) {
+            final int row = hitsTable.rows();
+            index.add(hit.getIndex());
+            id.add(hit.getId());
+            score.add(Float.isNaN(hit.getScore()) ? null : hit.getScore());
+            // the values of the fields api, and the doc values of shards that don't return doc value columns
+            for (DocumentField field : hit.getDocumentFields().values()) {
+                final ColumnarWriter.Table.Column column = hitsTable.column(checkHitField(field.getName()));
+                for (Object value : field.getValues()) {
+                    column.add(value);
+                }
+            }
+            for (int c = 0; c < docValueColumns.size(); c++) {
+                final DocValueColumns.Column source = docValueColumns.get(c);
+                final ColumnarWriter.Table.Column target = docValueTargets.get(c);
+                for (int v = source.offset(row), end = v + source.valueCount(row); v < end; v++) {
+                    target.add(source.value(v));
+                }
+            }
+            hitsTable.endRow();
+        }
+
+        final Aggregations aggregations = response.getAggregations();
+        if (aggregations != null) {
+            for (Aggregation aggregation : aggregations) {
+                encodeAggregation(writer, aggregation);
+            }
+        }
+        return writer.bytes();
+    }
+
+    private static void encodeAggregation(ColumnarWriter writer, Aggregation aggregation) {
+        if (aggregation instanceof NumericMetricsAggregation.SingleValue metric) {
+            writer.newTable(aggregation.getName()).add("value", metricValue(metric)).endRow();
+        } else if (aggregation instanceof MultiBucketsAggregation multiBuckets) {
+            final ColumnarWriter.Table table = writer.newTable(aggregation.getName());
+            for (MultiBucketsAggregation.Bucket bucket : multiBuckets.getBuckets()) {
+                addKey(table, KEY_COLUMN, bucket.getKey());
+                table.add(DOC_COUNT_COLUMN, bucket.getDocCount());
+                for (Aggregation subAggregation : bucket.getAggregations()) {
+                    if (subAggregation instanceof NumericMetricsAggregation.SingleValue metric) {
+                        table.add(subAggregation.getName(), metricValue(metric));
+                    } else {
+                        throw unsupportedAggregation(subAggregation.getName(), subAggregation.getType());
+                    }
+                }
+                table.endRow();
+            }
+            if (aggregation instanceof CompositeAggregation composite && composite.afterKey() != null) {
+                final ColumnarWriter.Table afterKey = writer.newTable(aggregation.getName() + AFTER_KEY_SUFFIX);
+                addKey(afterKey, KEY_COLUMN, composite.afterKey());
+                afterKey.endRow();
+            }
+        } else {
+            throw unsupportedAggregation(aggregation.getName(), aggregation.getType());
+        }
+    }
+
+    private static void addKey(ColumnarWriter.Table table, String column, Object key) {
+        if (key instanceof Map<?, ?> compositeKey) {
+            for (Map.Entry<?, ?> entry : compositeKey.entrySet()) {
+                addKey(table, entry.getKey().toString(), entry.getValue());
+            }
+        } else if (key instanceof ZonedDateTime date) {
+            // like the key of date histograms in JSON responses
+            table.add(column, date.toInstant().toEpochMilli());
+        } else {
+            table.add(column, key);
+        }
+    }
+
+    private static Double metricValue(NumericMetricsAggregation.SingleValue metric) {
+        final double value = metric.value();
+        return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+    }
+
+    private static IllegalArgumentException unsupportedAggregation(String name, String type) {
+        return new IllegalArgumentException(
+            "aggregation ["
+                + name
+                + "] of type ["
+                + type
+                + "] can't be returned in the ["
+                + ColumnarMediaType.CONTENT_TYPE
+                + "] format"
+        );
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest.columnar;
+
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.xcontent.MediaType;
+import org.elasticsearch.xcontent.MediaTypeRegistry;
+import org.elasticsearch.xcontent.ParsedMediaType;
+
+import java.util.Set;
+
+/**
+ * The media type of responses that are encoded in the binary columnar format of {@link ColumnarWriter}. Clients ask for it with an
+ * {@code Accept: application/vnd.elasticsearch.columnar} header.
+ */
+public enum ColumnarMediaType implements MediaType {
+    INSTANCE;
+
+    public static final String CONTENT_TYPE = "application/vnd.elasticsearch.columnar";
+
+    public static final MediaTypeRegistry<ColumnarMediaType> MEDIA_TYPE_REGISTRY = new MediaTypeRegistry<ColumnarMediaType>().register(
+        values()
+    );
+
+    @Override
+    public String queryParameter() {
+        return "columnar_binary";
+    }
+
+    @Override
+    public Set<HeaderValue> headerValues() {
+        return Set.of(new HeaderValue(CONTENT_TYPE));
+    }
+
+    /**
+     * Returns whether the {@code Accept} header of the request asks for the columnar format.
+     */
+    public static boolean isAccepted(RestRequest request) {
+        final ParsedMediaType accept = request.getParsedAccept();
+        return accept != null && accept.toMediaType(MEDIA_TYPE_REGISTRY) == INSTANCE;
+    }
+}
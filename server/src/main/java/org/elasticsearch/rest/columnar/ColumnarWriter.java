@@ -0,0 +1,247 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest.columnar;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes tables of values column by column, in a binary format that clients can read into typed arrays without parsing every value
+ * like they would parse row oriented JSON.
+ * <p>
+ * The output starts with the {@link #MAGIC} bytes and the {@link #VERSION} of the format, followed by the number of tables as a
+ * vInt. Each table is written as its name, its number of rows and its number of columns, followed by its columns. Each column is
+ * written as its name, its {@code type} byte, the number of values of every row as vInts, where {@code 0} means that the row has no
+ * value, and then all the values of the column one after the other:
+ * <ul>
+ *     <li>{@link #TYPE_NULL}: no values at all</li>
+ *     <li>{@link #TYPE_LONG}: 8 bytes per value</li>
+ *     <li>{@link #TYPE_DOUBLE}: 8 bytes per value</li>
+ *     <li>{@link #TYPE_BOOLEAN}: one bit per value, packed into the bytes of a byte array that is prefixed by its length</li>
+ *     <li>{@link #TYPE_KEYWORD}: a dictionary of the distinct values as a vInt count followed by the strings, and then the ordinal of
+ *     each value in the dictionary as a vInt</li>
+ * </ul>
+ * Numbers are written in big endian order, strings like {@link StreamOutput#writeString} writes them. The type of a column is
+ * inferred from its values: columns of integral numbers are {@link #TYPE_LONG} columns, columns of numbers that aren't all integral
+ * are {@link #TYPE_DOUBLE} columns, and columns that mix different kinds of values are {@link #TYPE_KEYWORD} columns of the string
+ * representation of the values. This class is not thread-safe.
+ */
+public final class ColumnarWriter {
+
+    public static final byte[] MAGIC = new byte[] { 'E', 'S', 'C', 'F' };
+    public static final byte VERSION = 1;
+
+    public static final byte TYPE_NULL = 0;
+    public static final byte TYPE_LONG = 1;
+    public static final byte TYPE_DOUBLE = 2;
+    public static final byte TYPE_BOOLEAN = 3;
+    public static final byte TYPE_KEYWORD = 4;
+
+    private final List<Table> tables = new ArrayList<>();
+
+    /**
+     * Adds a new table to the output, the tables are written in the order they were added.
+     */
+    public Table newTable(String name) {
+        final Table table = new Table(name);
+        tables.add(table);
+        return table;
+    }
+
+    /**
+     * Encodes all the tables that were added so far.
+     */
+    public BytesReference bytes() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeBytes(MAGIC);
+            out.writeByte(VERSION);
+            out.writeVInt(tables.size());
+            for (Table table : tables) {
+                table.writeTo(out);
+            }
+            return out.bytes();
+        }
+    }
+
+    /**
+     * A table with named columns. Values are added to the columns of the current row, which is completed by {@link #endRow()}.
+     * Columns that are first used after some rows were completed have no values for these rows.
+     */
+    public static final class Table {
+        private final String name;
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+        private int rows;
+
+        private Table(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the column with the given name, adding it to the table if it doesn't exist yet.
+         */
+        public Column column(String name) {
+            return columns.computeIfAbsent(name, Column::new);
+        }
+
+        /**
+         * Adds a value to the column with the given name in the current row.
+         */
+        public Table add(String column, Object value) {
+            column(column).add(value);
+            return this;
+        }
+
+        /**
+         * Completes the current row.
+         */
+        public void endRow() {
+            rows++;
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        private void writeTo(StreamOutput out) throws IOException {
+            out.writeString(name);
+            out.writeVInt(rows);
+            out.writeVInt(columns.size());
+            for (Column column : columns.values()) {
+                column.writeTo(out, rows);
+            }
+        }
+
+        /**
+         * A column of a table, which is a list of values for every row.
+         */
+        public final class Column {
+            private final String name;
+            private int[] valueCounts = new int[8];
+            private final List<Object> values = new ArrayList<>();
+
+            private Column(String name) {
+                this.name = name;
+            }
+
+            /**
+             * Adds a value to the current row of this column. {@code null} values are ignored.
+             */
+            public Column add(Object value) {
+                if (value == null) {
+                    return this;
+                }
+                if (rows >= valueCounts.length) {
+                    valueCounts = ArrayUtil.grow(valueCounts, rows + 1);
+                }
+                valueCounts[rows]++;
+                values.add(value);
+                return this;
+            }
+
+            private void writeTo(StreamOutput out, int rows) throws IOException {
+                out.writeString(name);
+                final byte type = type(values);
+                out.writeByte(type);
+                for (int row = 0; row < rows; row++) {
+                    out.writeVInt(row < valueCounts.length ? valueCounts[row] : 0);
+                }
+                switch (type) {
+                    case TYPE_NULL -> {}
+                    case TYPE_LONG -> {
+                        for (Object value : values) {
+                            out.writeLong(((Number) value).longValue());
+                        }
+                    }
+                    case TYPE_DOUBLE -> {
+                        for (Object value : values) {
+                            out.writeDouble(((Number) value).doubleValue());
+                        }
+                    }
+                    case TYPE_BOOLEAN -> {
+                        final byte[] bits = new byte[(values.size() + 7) / 8];
+                        for (int i = 0; i < values.size(); i++) {
+                            if ((Boolean) values.get(i)) {
+                                bits[i >>> 3] |= (byte) (1 << (i & 7));
+                            }
+                        }
+                        out.writeByteArray(bits);
+                    }
+                    case TYPE_KEYWORD -> writeKeywords(out, values);
+                    default -> throw new IllegalStateException("unknown column type [" + type + "]");
+                }
+            }
+        }
+    }
+
+    private static void writeKeywords(StreamOutput out, List<Object> values) throws IOException {
+        final Map<String, Integer> dictionary = new HashMap<>();
+        final List<String> terms = new ArrayList<>();
+        final int[] ordinals = new int[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            final String term = values.get(i).toString();
+            Integer ordinal = dictionary.get(term);
+            if (ordinal == null) {
+                ordinal = terms.size();
+                dictionary.put(term, ordinal);
+                terms.add(term);
+            }
+            ordinals[i] = ordinal;
+        }
+        out.writeStringCollection(terms);
+        for (int ordinal : ordinals) {
+            out.writeVInt(ordinal);
+        }
+    }
+
+    static byte type(List<Object> values) {
+        if (values.isEmpty()) {
+            return TYPE_NULL;
+        }
+        boolean integral = true;
+        boolean numeric = true;
+        boolean bool = true;
+        for (Object value : values) {
+            if (value instanceof Number number) {
+                bool = false;
+                if (isIntegral(number) == false) {
+                    integral = false;
+                }
+            } else if (value instanceof Boolean) {
+                numeric = false;
+            } else {
+                return TYPE_KEYWORD;
+            }
+            if (numeric == false && bool == false) {
+                return TYPE_KEYWORD;
+            }
+        }
+        if (numeric) {
+            return integral ? TYPE_LONG : TYPE_DOUBLE;
+        }
+        return TYPE_BOOLEAN;
+    }
+
+    private static boolean isIntegral(Number number) {
+        if (number instanceof BigInteger bigInteger) {
+            // unsigned longs may not fit in a long
+            return bigInteger.bitLength() < Long.SIZE;
+        }
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+}
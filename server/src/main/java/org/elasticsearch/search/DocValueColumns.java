@@ -0,0 +1,220 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The values of the {@code docvalue_fields} of a list of hits, stored column by column rather than as a {@code DocumentField} per
+ * hit and field. Row {@code i} holds the values of the {@code i}-th hit of the {@link SearchHits} that the columns belong to.
+ * <p>
+ * Values are added to the columns of the current row, which is completed by {@link #endRow()}. Columns that are first used after some
+ * rows were completed have no values for these rows. This class is not thread-safe.
+ *
+ * @see org.elasticsearch.action.search.SearchRequest#columnarDocValueFields()
+ */
+public final class DocValueColumns implements Writeable {
+
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private int rows;
+
+    public DocValueColumns() {}
+
+    public DocValueColumns(StreamInput in) throws IOException {
+        rows = in.readVInt();
+        final int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            final Column column = new Column(in.readString());
+            column.valueCounts = new int[rows];
+            for (int row = 0; row < rows; row++) {
+                column.valueCounts[row] = in.readVInt();
+            }
+            final int numValues = in.readVInt();
+            for (int v = 0; v < numValues; v++) {
+                column.values.add(in.readGenericValue());
+            }
+            columns.put(column.name, column);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(rows);
+        out.writeVInt(columns.size());
+        for (Column column : columns.values()) {
+            out.writeString(column.name);
+            for (int row = 0; row < rows; row++) {
+                out.writeVInt(column.valueCount(row));
+            }
+            out.writeCollection(column.values, StreamOutput::writeGenericValue);
+        }
+    }
+
+    /**
+     * Returns the column of the given field, adding it if it doesn't exist yet.
+     */
+    public Column column(String field) {
+        return columns.computeIfAbsent(field, Column::new);
+    }
+
+    /**
+     * The columns, in the order they were added.
+     */
+    public Collection<Column> columns() {
+        return Collections.unmodifiableCollection(columns.values());
+    }
+
+    /**
+     * Completes the current row.
+     */
+    public void endRow() {
+        rows++;
+    }
+
+    /**
+     * Copies the values of a row of other columns to the current row of these columns and completes it. All the columns of the other
+     * columns are added to these columns, even if they have no values in that row.
+     */
+    public void copyRow(DocValueColumns from, int row) {
+        assert row < from.rows : "row [" + row + "] out of [" + from.rows + "]";
+        for (Column source : from.columns.values()) {
+            final Column target = column(source.name);
+            final int offset = source.offset(row);
+            final int count = source.valueCount(row);
+            for (int i = 0; i < count; i++) {
+                target.add(source.values.get(offset + i));
+            }
+        }
+        endRow();
+    }
+
+    /**
+     * The number of completed rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DocValueColumns that = (DocValueColumns) o;
+        return rows == that.rows && columns.equals(that.columns);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rows, columns);
+    }
+
+    /**
+     * The values of a field for every row.
+     */
+    public final class Column {
+        private final String name;
+        private int[] valueCounts = new int[8];
+        private final List<Object> values = new ArrayList<>();
+        // the offset of the first value of every row, computed on first use once the column is complete
+        private int[] offsets;
+
+        private Column(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Adds a value to the current row of this column.
+         */
+        public Column add(Object value) {
+            assert offsets == null : "can't add values to a column that was read already";
+            if (rows >= valueCounts.length) {
+                valueCounts = ArrayUtil.grow(valueCounts, rows + 1);
+            }
+            valueCounts[rows]++;
+            values.add(value);
+            return this;
+        }
+
+        /**
+         * The number of values of the given row.
+         */
+        public int valueCount(int row) {
+            return row < valueCounts.length ? valueCounts[row] : 0;
+        }
+
+        /**
+         * The value at the given index, the values of a row follow the values of the rows before it.
+         */
+        public Object value(int index) {
+            return values.get(index);
+        }
+
+        /**
+         * The index of the first value of the given row. Values can't be added to the column anymore once this is called.
+         */
+        public int offset(int row) {
+            if (offsets == null) {
+                offsets = new int[rows];
+                int offset = 0;
+                for (int r = 0; r < rows; r++) {
+                    offsets[r] = offset;
+                    offset += valueCount(r);
+                }
+            }
+            return offsets[row];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Column that = (Column) o;
+            if (name.equals(that.name) == false || values.equals(that.values) == false) {
+                return false;
+            }
+            // the columns of both tables have the same number of rows, see DocValueColumns#equals
+            for (int row = 0; row < rows; row++) {
+                if (valueCount(row) != that.valueCount(row)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, values, Arrays.hashCode(Arrays.copyOf(valueCounts, rows)));
+        }
+    }
+}
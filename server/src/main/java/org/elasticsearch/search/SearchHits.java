@@ -11,6 +11,7 @@ package org.elasticsearch.search;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHits.Relation;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.collect.Iterators;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -46,11 +47,17 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
     private final String collapseField;
     @Nullable
     private final Object[] collapseValues;
+    @Nullable
+    private final DocValueColumns docValueColumns;
 
     public SearchHits(SearchHit[] hits, @Nullable TotalHits totalHits, float maxScore) {
         this(hits, totalHits, maxScore, null, null, null);
     }
 
+    public SearchHits(SearchHit[] hits, @Nullable TotalHits totalHits, float maxScore, @Nullable DocValueColumns docValueColumns) {
+        this(hits, totalHits, maxScore, null, null, null, docValueColumns);
+    }
+
     public SearchHits(
         SearchHit[] hits,
         @Nullable TotalHits totalHits,
@@ -59,12 +66,27 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
         @Nullable String collapseField,
         @Nullable Object[] collapseValues
     ) {
+        this(hits, totalHits, maxScore, sortFields, collapseField, collapseValues, null);
+    }
+
+    public SearchHits(
+        SearchHit[] hits,
+        @Nullable TotalHits totalHits,
+        float maxScore,
+        @Nullable SortField[] sortFields,
+        @Nullable String collapseField,
+        @Nullable Object[] collapseValues,
+        @Nullable DocValueColumns docValueColumns
+    ) {
+        assert docValueColumns == null || docValueColumns.rows() == hits.length
+            : "expected a row per hit but got [" + docValueColumns.rows() + "] rows and [" + hits.length + "] hits";
         this.hits = hits;
         this.totalHits = totalHits;
         this.maxScore = maxScore;
         this.sortFields = sortFields;
         this.collapseField = collapseField;
         this.collapseValues = collapseValues;
+        this.docValueColumns = docValueColumns;
     }
 
     public SearchHits(StreamInput in) throws IOException {
@@ -87,6 +109,11 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
         sortFields = in.readOptionalArray(Lucene::readSortField, SortField[]::new);
         collapseField = in.readOptionalString();
         collapseValues = in.readOptionalArray(Lucene::readSortValue, Object[]::new);
+        if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+            docValueColumns = in.readOptionalWriteable(DocValueColumns::new);
+        } else {
+            docValueColumns = null;
+        }
     }
 
     @Override
@@ -106,6 +133,11 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
         out.writeOptionalArray(Lucene::writeSortField, sortFields);
         out.writeOptionalString(collapseField);
         out.writeOptionalArray(Lucene::writeSortValue, collapseValues);
+        if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+            out.writeOptionalWriteable(docValueColumns);
+        } else {
+            assert docValueColumns == null : "doc value columns are only requested from nodes that support them";
+        }
     }
 
     /**
@@ -163,6 +195,16 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
         return collapseValues;
     }
 
+    /**
+     * In case the values of the {@code docvalue_fields} were requested column by column, returns them with a row per hit, null
+     * otherwise. These values aren't part of the document fields of the hits and aren't rendered by {@link #toXContent}.
+     * @see org.elasticsearch.action.search.SearchRequest#columnarDocValueFields()
+     */
+    @Nullable
+    public DocValueColumns getDocValueColumns() {
+        return docValueColumns;
+    }
+
     @Override
     public Iterator<SearchHit> iterator() {
         return Iterators.forArray(getHits());
@@ -257,7 +299,8 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
             && Arrays.equals(hits, other.hits)
             && Arrays.equals(sortFields, other.sortFields)
             && Objects.equals(collapseField, other.collapseField)
-            && Arrays.equals(collapseValues, other.collapseValues);
+            && Arrays.equals(collapseValues, other.collapseValues)
+            && Objects.equals(docValueColumns, other.docValueColumns);
     }
 
     @Override
@@ -268,7 +311,8 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
             Arrays.hashCode(hits),
             Arrays.hashCode(sortFields),
             collapseField,
-            Arrays.hashCode(collapseValues)
+            Arrays.hashCode(collapseValues),
+            docValueColumns
         );
     }
 
@@ -182,6 +182,29 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         Property.NodeScope
     );
 
+    /**
+     * Enables searching slices of a shard concurrently on the {@link Names#SEARCH_WORKER} thread pool for the requests that support
+     * it, which currently are aggregation-only requests.
+     */
+    public static final Setting<Boolean> CONCURRENT_SEGMENT_SEARCH_ENABLED_SETTING = Setting.boolSetting(
+        "search.concurrent_segment_search.enabled",
+        false,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
+    /**
+     * The maximum number of slices that the segments of a shard are split into when searching concurrently. Defaults to the size
+     * of the {@link Names#SEARCH_WORKER} thread pool.
+     */
+    public static final Setting<Integer> CONCURRENT_SEGMENT_SEARCH_MAX_SLICES_SETTING = Setting.intSetting(
+        "search.concurrent_segment_search.max_slices",
+        -1,
+        -1,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
     public static final TimeValue NO_TIMEOUT = timeValueMillis(-1);
     public static final Setting<TimeValue> DEFAULT_SEARCH_TIMEOUT_SETTING = Setting.timeSetting(
         "search.default_search_timeout",
@@ -251,6 +274,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private volatile boolean lowLevelCancellation;
 
+    private volatile boolean concurrentSegmentSearchEnabled;
+
+    private volatile int concurrentSegmentSearchMaxSlices;
+
     private volatile int maxOpenScrollContext;
 
     private volatile boolean enableRewriteAggsToFilterByFilter;
@@ -314,6 +341,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         lowLevelCancellation = LOW_LEVEL_CANCELLATION_SETTING.get(settings);
         clusterService.getClusterSettings().addSettingsUpdateConsumer(LOW_LEVEL_CANCELLATION_SETTING, this::setLowLevelCancellation);
 
+        concurrentSegmentSearchEnabled = CONCURRENT_SEGMENT_SEARCH_ENABLED_SETTING.get(settings);
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(CONCURRENT_SEGMENT_SEARCH_ENABLED_SETTING, this::setConcurrentSegmentSearchEnabled);
+        concurrentSegmentSearchMaxSlices = CONCURRENT_SEGMENT_SEARCH_MAX_SLICES_SETTING.get(settings);
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(CONCURRENT_SEGMENT_SEARCH_MAX_SLICES_SETTING, this::setConcurrentSegmentSearchMaxSlices);
+
         enableRewriteAggsToFilterByFilter = ENABLE_REWRITE_AGGS_TO_FILTER_BY_FILTER.get(settings);
         clusterService.getClusterSettings()
             .addSettingsUpdateConsumer(ENABLE_REWRITE_AGGS_TO_FILTER_BY_FILTER, this::setEnableRewriteAggsToFilterByFilter);
@@ -363,6 +397,14 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         this.lowLevelCancellation = lowLevelCancellation;
     }
 
+    private void setConcurrentSegmentSearchEnabled(boolean concurrentSegmentSearchEnabled) {
+        this.concurrentSegmentSearchEnabled = concurrentSegmentSearchEnabled;
+    }
+
+    private void setConcurrentSegmentSearchMaxSlices(int concurrentSegmentSearchMaxSlices) {
+        this.concurrentSegmentSearchMaxSlices = concurrentSegmentSearchMaxSlices;
+    }
+
     private void setEnableRewriteAggsToFilterByFilter(boolean enableRewriteAggsToFilterByFilter) {
         this.enableRewriteAggsToFilterByFilter = enableRewriteAggsToFilterByFilter;
     }
@@ -1006,6 +1048,17 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 reader.indexShard().shardId(),
                 request.getClusterAlias()
             );
+            final Executor searchWorkerExecutor;
+            final int maxSliceCount;
+            if (concurrentSegmentSearchEnabled) {
+                searchWorkerExecutor = threadPool.executor(Names.SEARCH_WORKER);
+                maxSliceCount = concurrentSegmentSearchMaxSlices == -1
+                    ? threadPool.info(Names.SEARCH_WORKER).getMax()
+                    : concurrentSegmentSearchMaxSlices;
+            } else {
+                searchWorkerExecutor = null;
+                maxSliceCount = 1;
+            }
             searchContext = new DefaultSearchContext(
                 reader,
                 request,
@@ -1013,7 +1066,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 threadPool::relativeTimeInMillis,
                 timeout,
                 fetchPhase,
-                lowLevelCancellation
+                lowLevelCancellation,
+                searchWorkerExecutor,
+                maxSliceCount
             );
             // we clone the query shard context here just for rewriting otherwise we
             // might end up with incorrect state since we are using now() or script services
@@ -1196,31 +1251,34 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
         context.terminateAfter(source.terminateAfter());
         if (source.aggregations() != null && includeAggregations) {
-            AggregationContext aggContext = new ProductionAggregationContext(
-                indicesService.getAnalysis(),
-                context.getSearchExecutionContext(),
-                bigArrays,
-                source.aggregations().bytesToPreallocate(),
-                /*
-                 * The query on the search context right now doesn't include
-                 * the filter for nested documents or slicing so we have to
-                 * delay reading it until the aggs ask for it.
-                 */
-                () -> context.rewrittenQuery() == null ? new MatchAllDocsQuery() : context.rewrittenQuery(),
-                context.getProfilers() == null ? null : context.getProfilers().getAggregationProfiler(),
-                multiBucketConsumerService.create(),
-                () -> new SubSearchContext(context).parsedQuery(context.parsedQuery()).fetchFieldsContext(context.fetchFieldsContext()),
-                context.bitsetFilterCache(),
-                context.indexShard().shardId().hashCode(),
-                context::getRelativeTimeInMillis,
-                context::isCancelled,
-                context::buildFilteredQuery,
-                enableRewriteAggsToFilterByFilter
-            );
-            context.addReleasable(aggContext);
+            // slices of the shard that are searched concurrently each need their own context, the contexts aren't thread-safe
+            final CheckedSupplier<AggregatorFactories, IOException> factoriesSupplier = () -> {
+                AggregationContext aggContext = new ProductionAggregationContext(
+                    indicesService.getAnalysis(),
+                    context.getSearchExecutionContext(),
+                    bigArrays,
+                    source.aggregations().bytesToPreallocate(),
+                    /*
+                     * The query on the search context right now doesn't include
+                     * the filter for nested documents or slicing so we have to
+                     * delay reading it until the aggs ask for it.
+                     */
+                    () -> context.rewrittenQuery() == null ? new MatchAllDocsQuery() : context.rewrittenQuery(),
+                    context.getProfilers() == null ? null : context.getProfilers().getAggregationProfiler(),
+                    multiBucketConsumerService.create(),
+                    () -> new SubSearchContext(context).parsedQuery(context.parsedQuery()).fetchFieldsContext(context.fetchFieldsContext()),
+                    context.bitsetFilterCache(),
+                    context.indexShard().shardId().hashCode(),
+                    context::getRelativeTimeInMillis,
+                    context::isCancelled,
+                    context::buildFilteredQuery,
+                    enableRewriteAggsToFilterByFilter
+                );
+                context.addReleasable(aggContext);
+                return source.aggregations().build(aggContext, null);
+            };
             try {
-                AggregatorFactories factories = source.aggregations().build(aggContext, null);
-                context.aggregations(new SearchContextAggregations(factories));
+                context.aggregations(new SearchContextAggregations(factoriesSupplier.get(), factoriesSupplier));
             } catch (IOException e) {
                 throw new AggregationInitializationException("Failed to create aggregators", e);
             }
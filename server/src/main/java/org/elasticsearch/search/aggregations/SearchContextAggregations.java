@@ -7,25 +7,54 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.core.Nullable;
+
+import java.io.IOException;
+
 /**
  * The aggregation context that is part of the search context.
  */
 public class SearchContextAggregations {
 
     private final AggregatorFactories factories;
+    @Nullable
+    private final CheckedSupplier<AggregatorFactories, IOException> sliceFactories;
     private Aggregator[] aggregators;
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
      */
     public SearchContextAggregations(AggregatorFactories factories) {
+        this(factories, null);
+    }
+
+    /**
+     * Creates a new aggregation context with the parsed aggregator factories and a way to create more of them, each with an
+     * {@link org.elasticsearch.search.aggregations.support.AggregationContext} of its own, for the slices of a shard that are searched
+     * concurrently.
+     */
+    public SearchContextAggregations(
+        AggregatorFactories factories,
+        @Nullable CheckedSupplier<AggregatorFactories, IOException> sliceFactories
+    ) {
         this.factories = factories;
+        this.sliceFactories = sliceFactories;
     }
 
     public AggregatorFactories factories() {
         return factories;
     }
 
+    /**
+     * Creates the aggregator factories of another slice of the shard, or returns {@code null} if the aggregations can't be split
+     * into slices.
+     */
+    @Nullable
+    public CheckedSupplier<AggregatorFactories, IOException> sliceFactories() {
+        return sliceFactories;
+    }
+
     public Aggregator[] aggregators() {
         return aggregators;
     }
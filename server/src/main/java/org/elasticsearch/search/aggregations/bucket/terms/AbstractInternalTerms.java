@@ -126,7 +126,11 @@ public abstract class AbstractInternalTerms<A extends AbstractInternalTerms<A, B
         return thisReduceOrder != null ? thisReduceOrder : getOrder();
     }
 
-    private long getDocCountError(A terms) {
+    /**
+     * Returns the upper bound of the doc count that a shard or partially reduced {@code terms} may have missed for the terms that it
+     * didn't return, {@code -1} if unbounded.
+     */
+    static long getDocCountError(AbstractInternalTerms<?, ?> terms) {
         int size = terms.getBuckets().size();
         if (size == 0 || size < terms.getShardSize() || isKeyOrder(terms.getOrder())) {
             return 0;
@@ -0,0 +1,305 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalOrder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.search.aggregations.InternalOrder.isKeyAsc;
+import static org.elasticsearch.search.aggregations.InternalOrder.isKeyOrder;
+
+/**
+ * Partially reduces top level {@code terms} aggregations one shard result at a time. Instead of reducing a batch of shard results
+ * into a new list of buckets like {@link AbstractInternalTerms#reduce} does, the buckets of each shard result are merged into a hash
+ * of the terms and paged arrays of the doc counts and doc count errors that are allocated with {@link BigArrays}, so the memory
+ * used for the terms that were seen so far doesn't depend on the number of shard results that are merged at once and doesn't need
+ * to be rebuilt for each batch.
+ * <p>
+ * {@link #toPartialResult()} builds the same aggregations that a partial reduce of all the merged shard results would have built,
+ * so the final reduce remains unchanged. Only {@link StringTerms}, {@link LongTerms} and {@link UnmappedTerms} without
+ * sub-aggregations can be merged, {@link #accept} returns {@code false} for any other shard result, which then needs to be reduced
+ * the regular way. This class is not thread-safe.
+ */
+public final class StreamingTermsReducer implements Accountable, Releasable {
+
+    // marks the doc count error of a term as unbounded, like a reduced bucket with an error of -1
+    private static final long UNBOUNDED = Long.MIN_VALUE;
+
+    private final BigArrays bigArrays;
+    private final Map<String, TermsAccumulator> accumulators = new HashMap<>();
+
+    public StreamingTermsReducer(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+    }
+
+    /**
+     * Returns whether the top level aggregations of a request are all {@code terms} aggregations without sub-aggregations and may
+     * therefore be reduced by this class. The shard results may still contain types of terms that can't, like {@link DoubleTerms}.
+     */
+    public static boolean canStream(AggregatorFactories.Builder aggregations) {
+        if (aggregations == null || aggregations.getAggregatorFactories().isEmpty()) {
+            return false;
+        }
+        for (AggregationBuilder builder : aggregations.getAggregatorFactories()) {
+            if (builder instanceof TermsAggregationBuilder == false || builder.getSubAggregations().isEmpty() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merges the aggregations of a shard result or of a partial reduce if they can all be merged, leaves this reducer untouched
+     * and returns {@code false} otherwise.
+     */
+    public boolean accept(InternalAggregations aggregations) {
+        final List<InternalAggregation> results = aggregations.copyResults();
+        for (InternalAggregation aggregation : results) {
+            TermsAccumulator accumulator = accumulators.get(aggregation.getName());
+            if (canMerge(aggregation, accumulator == null ? null : accumulator.reference) == false) {
+                return false;
+            }
+        }
+        for (InternalAggregation aggregation : results) {
+            accumulators.computeIfAbsent(aggregation.getName(), name -> new TermsAccumulator()).merge((InternalTerms<?, ?>) aggregation);
+        }
+        return true;
+    }
+
+    private static boolean canMerge(InternalAggregation aggregation, InternalTerms<?, ?> reference) {
+        if (aggregation instanceof UnmappedTerms) {
+            return true;
+        }
+        if (aggregation instanceof StringTerms == false && aggregation instanceof LongTerms == false) {
+            return false;
+        }
+        InternalMappedTerms<?, ?> terms = (InternalMappedTerms<?, ?>) aggregation;
+        if (reference != null
+            && (reference.getClass() != terms.getClass()
+                || isUnsignedLong(((InternalMappedTerms<?, ?>) reference).format) != isUnsignedLong(terms.format))) {
+            // mixed field types and mixed long formats are handled by the regular reduce
+            return false;
+        }
+        if (terms.getBuckets().isEmpty() == false && isKeyOrder(terms.getReduceOrder()) == false) {
+            return false;
+        }
+        for (InternalTerms.Bucket<?> bucket : terms.getBuckets()) {
+            if (((InternalAggregations) bucket.getAggregations()).asList().isEmpty() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUnsignedLong(DocValueFormat format) {
+        return format == DocValueFormat.UNSIGNED_LONG_SHIFTED;
+    }
+
+    /**
+     * Returns whether any aggregation was merged into this reducer.
+     */
+    public boolean isEmpty() {
+        return accumulators.isEmpty();
+    }
+
+    /**
+     * Builds the partially reduced aggregations of all the shard results that were merged so far, or {@code null} if nothing was
+     * merged. The buckets are sorted by key, like the buckets of a regular partial reduce.
+     */
+    public InternalAggregations toPartialResult() {
+        if (accumulators.isEmpty()) {
+            return null;
+        }
+        List<InternalAggregation> aggregations = new ArrayList<>(accumulators.size());
+        for (TermsAccumulator accumulator : accumulators.values()) {
+            aggregations.add(accumulator.build());
+        }
+        return InternalAggregations.from(aggregations);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (TermsAccumulator accumulator : accumulators.values()) {
+            ramBytesUsed += accumulator.ramBytesUsed();
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(accumulators.values());
+        accumulators.clear();
+    }
+
+    /**
+     * The merged state of all the results of one top level {@code terms} aggregation.
+     */
+    private class TermsAccumulator implements Accountable, Releasable {
+        private int count;
+        // the first aggregation is returned as is if nothing else is merged, like a reduce of a single aggregation
+        private InternalTerms<?, ?> first;
+        private InternalTerms<?, ?> unmapped;
+        private InternalTerms<?, ?> reference;
+        private BucketOrder reduceOrder;
+        private long sumDocCountError;
+        private long otherDocCount;
+
+        private BytesRefHash stringKeys;
+        private LongHash longKeys;
+        private LongArray docCounts;
+        // the sum of the doc count errors of each term minus the doc count errors of the aggregations that returned the term
+        private LongArray docCountErrors;
+
+        void merge(InternalTerms<?, ?> terms) {
+            count++;
+            first = count == 1 ? terms : null;
+            otherDocCount += terms.getSumOfOtherDocCounts();
+            final long thisAggDocCountError = AbstractInternalTerms.getDocCountError(terms);
+            if (sumDocCountError != -1) {
+                sumDocCountError = thisAggDocCountError == -1 ? -1 : sumDocCountError + thisAggDocCountError;
+            }
+            if (terms.isMapped() == false) {
+                unmapped = unmapped == null ? terms : unmapped;
+                return;
+            }
+            if (reference == null) {
+                reference = terms;
+                if (terms instanceof StringTerms) {
+                    stringKeys = new BytesRefHash(terms.getBuckets().size(), bigArrays);
+                } else {
+                    longKeys = new LongHash(terms.getBuckets().size(), bigArrays);
+                }
+                docCounts = bigArrays.newLongArray(terms.getBuckets().size(), true);
+                docCountErrors = bigArrays.newLongArray(terms.getBuckets().size(), true);
+            }
+            if (terms.getBuckets().isEmpty() == false && reduceOrder == null) {
+                reduceOrder = InternalOrder.key(isKeyAsc(terms.getReduceOrder()));
+            }
+            for (InternalTerms.Bucket<?> bucket : terms.getBuckets()) {
+                long id = bucket instanceof StringTerms.Bucket stringBucket
+                    ? stringKeys.add(stringBucket.termBytes)
+                    : longKeys.add(((LongTerms.Bucket) bucket).term);
+                final long bucketDocCountError;
+                if (bucket.getShowDocCountError() == false || bucket.getDocCountError() - thisAggDocCountError == -1) {
+                    bucketDocCountError = UNBOUNDED;
+                } else {
+                    bucketDocCountError = bucket.getDocCountError() - thisAggDocCountError;
+                }
+                if (id < 0) {
+                    id = -1 - id;
+                    docCounts.increment(id, bucket.getDocCount());
+                    final long docCountError = docCountErrors.get(id);
+                    if (docCountError != UNBOUNDED) {
+                        docCountErrors.set(id, bucketDocCountError == UNBOUNDED ? UNBOUNDED : docCountError + bucketDocCountError);
+                    }
+                } else {
+                    docCounts = bigArrays.grow(docCounts, id + 1);
+                    docCountErrors = bigArrays.grow(docCountErrors, id + 1);
+                    docCounts.set(id, bucket.getDocCount());
+                    docCountErrors.set(id, bucketDocCountError);
+                }
+            }
+        }
+
+        InternalAggregation build() {
+            if (first != null) {
+                return first;
+            }
+            if (reference == null) {
+                // all the results were unmapped
+                return unmapped;
+            }
+            return reference instanceof StringTerms stringTerms ? buildStringTerms(stringTerms) : buildLongTerms((LongTerms) reference);
+        }
+
+        private StringTerms buildStringTerms(StringTerms reference) {
+            final List<StringTerms.Bucket> buckets = new ArrayList<>(Math.toIntExact(stringKeys.size()));
+            final BytesRef spare = new BytesRef();
+            for (long id = 0; id < stringKeys.size(); id++) {
+                buckets.add(
+                    new StringTerms.Bucket(
+                        BytesRef.deepCopyOf(stringKeys.get(id, spare)),
+                        docCounts.get(id),
+                        InternalAggregations.EMPTY,
+                        reference.showTermDocCountError,
+                        bucketDocCountError(id),
+                        reference.format
+                    )
+                );
+            }
+            final BucketOrder order = reduceOrder();
+            buckets.sort(order.comparator());
+            return reference.create(reference.getName(), buckets, order, sumDocCountError, otherDocCount);
+        }
+
+        private LongTerms buildLongTerms(LongTerms reference) {
+            final List<LongTerms.Bucket> buckets = new ArrayList<>(Math.toIntExact(longKeys.size()));
+            for (long id = 0; id < longKeys.size(); id++) {
+                buckets.add(
+                    new LongTerms.Bucket(
+                        longKeys.get(id),
+                        docCounts.get(id),
+                        InternalAggregations.EMPTY,
+                        reference.showTermDocCountError,
+                        bucketDocCountError(id),
+                        reference.format
+                    )
+                );
+            }
+            final BucketOrder order = reduceOrder();
+            buckets.sort(order.comparator());
+            return reference.create(reference.getName(), buckets, order, sumDocCountError, otherDocCount);
+        }
+
+        private BucketOrder reduceOrder() {
+            return reduceOrder != null ? reduceOrder : reference.getOrder();
+        }
+
+        private long bucketDocCountError(long id) {
+            final long docCountError = docCountErrors.get(id);
+            if (sumDocCountError == -1) {
+                return -1;
+            }
+            return (docCountError == UNBOUNDED ? -1 : docCountError) + sumDocCountError;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            if (reference == null) {
+                return 0;
+            }
+            final long keys = stringKeys != null ? stringKeys.ramBytesUsed() : longKeys.ramBytesUsed();
+            return keys + docCounts.ramBytesUsed() + docCountErrors.ramBytesUsed();
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(stringKeys, longKeys, docCounts, docCountErrors);
+        }
+    }
+}
@@ -9,8 +9,10 @@
 package org.elasticsearch.search.fetch;
 
 import org.apache.lucene.search.Query;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.search.DocValueColumns;
 import org.elasticsearch.search.SearchExtBuilder;
 import org.elasticsearch.search.fetch.subphase.FetchDocValuesContext;
 import org.elasticsearch.search.fetch.subphase.FetchFieldsContext;
@@ -36,6 +38,7 @@ public class FetchContext {
 
     private final SearchContext searchContext;
     private final SearchLookup searchLookup;
+    private final DocValueColumns docValueColumns;
 
     /**
      * Create a FetchContext based on a SearchContext
@@ -43,6 +46,15 @@ public class FetchContext {
     public FetchContext(SearchContext searchContext) {
         this.searchContext = searchContext;
         this.searchLookup = searchContext.getSearchExecutionContext().lookup();
+        this.docValueColumns = columnarDocValueFields(searchContext) ? new DocValueColumns() : null;
+    }
+
+    private static boolean columnarDocValueFields(SearchContext searchContext) {
+        // inner hits are returned with their top level hit, and collapsing reads the collapse field from the document fields of the hits
+        return searchContext.request() != null
+            && searchContext.request().columnarDocValueFields()
+            && searchContext.collapse() == null
+            && searchContext instanceof InnerHitSubContext == false;
     }
 
     /**
@@ -142,6 +154,16 @@ public class FetchContext {
         return dvContext;
     }
 
+    /**
+     * The columns that the values of the {@code docvalue_fields} are added to rather than to the document fields of the hits, with a
+     * row per hit in the order the hits are fetched, or null if they are added to the document fields.
+     * @see org.elasticsearch.action.search.SearchRequest#columnarDocValueFields()
+     */
+    @Nullable
+    public DocValueColumns docValueColumns() {
+        return docValueColumns;
+    }
+
     /**
      * Configuration for highlighting
      */
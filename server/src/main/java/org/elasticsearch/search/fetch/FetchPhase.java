@@ -24,6 +24,7 @@ import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.SourceFieldMapper;
 import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.search.DocValueColumns;
 import org.elasticsearch.search.LeafNestedDocuments;
 import org.elasticsearch.search.NestedDocuments;
 import org.elasticsearch.search.SearchContextSourcePrinter;
@@ -167,6 +168,9 @@ public class FetchPhase {
                 for (FetchSubPhaseProcessor processor : processors) {
                     processor.process(hit);
                 }
+                if (fetchContext.docValueColumns() != null) {
+                    fetchContext.docValueColumns().endRow();
+                }
                 hits[docs[index].index] = hit.hit();
             } catch (Exception e) {
                 throw new FetchPhaseExecutionException(context.shardTarget(), "Error running fetch phase for doc [" + docId + "]", e);
@@ -177,7 +181,24 @@ public class FetchPhase {
         }
 
         TotalHits totalHits = context.queryResult().getTotalHits();
-        return new SearchHits(hits, totalHits, context.queryResult().getMaxScore());
+        return new SearchHits(hits, totalHits, context.queryResult().getMaxScore(), docValueColumnsInHitOrder(fetchContext, docs));
+    }
+
+    private static DocValueColumns docValueColumnsInHitOrder(FetchContext fetchContext, DocIdToIndex[] docs) {
+        DocValueColumns columns = fetchContext.docValueColumns();
+        if (columns == null) {
+            return null;
+        }
+        // the rows were added in doc id order
+        int[] rows = new int[docs.length];
+        for (int row = 0; row < docs.length; row++) {
+            rows[docs[row].index] = row;
+        }
+        DocValueColumns ordered = new DocValueColumns();
+        for (int row : rows) {
+            ordered.copyRow(columns, row);
+        }
+        return ordered;
     }
 
     List<FetchSubPhaseProcessor> getProcessors(SearchShardTarget target, FetchContext context, Profiler profiler) {
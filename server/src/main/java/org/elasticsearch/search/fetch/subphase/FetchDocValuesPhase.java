@@ -11,7 +11,7 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.common.document.DocumentField;
 import org.elasticsearch.index.mapper.DocValueFetcher;
 import org.elasticsearch.index.mapper.MappedFieldType;
-import org.elasticsearch.index.mapper.ValueFetcher;
+import org.elasticsearch.search.DocValueColumns;
 import org.elasticsearch.search.fetch.FetchContext;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.fetch.FetchSubPhaseProcessor;
@@ -44,13 +44,21 @@ public final class FetchDocValuesPhase implements FetchSubPhase {
             if (ft == null) {
                 continue;
             }
-            ValueFetcher fetcher = new DocValueFetcher(
+            DocValueFetcher fetcher = new DocValueFetcher(
                 ft.docValueFormat(fieldAndFormat.format, null),
                 context.searchLookup().getForField(ft)
             );
             fields.add(new DocValueField(fieldAndFormat.field, fetcher));
         }
 
+        DocValueColumns columns = context.docValueColumns();
+        if (columns != null) {
+            for (DocValueField f : fields) {
+                // like with document fields, the column is returned even if no hit has a value
+                f.column = columns.column(f.field);
+            }
+        }
+
         return new FetchSubPhaseProcessor() {
             @Override
             public void setNextReader(LeafReaderContext readerContext) {
@@ -62,6 +70,11 @@ public final class FetchDocValuesPhase implements FetchSubPhase {
             @Override
             public void process(HitContext hit) throws IOException {
                 for (DocValueField f : fields) {
+                    if (f.column != null) {
+                        // the values are added to the row of the hit, see FetchContext#docValueColumns
+                        f.fetcher.fetchValues(hit.docId(), f.column);
+                        continue;
+                    }
                     DocumentField hitField = hit.hit().field(f.field);
                     if (hitField == null) {
                         hitField = new DocumentField(f.field, new ArrayList<>(2));
@@ -80,9 +93,10 @@ public final class FetchDocValuesPhase implements FetchSubPhase {
 
     private static class DocValueField {
         private final String field;
-        private final ValueFetcher fetcher;
+        private final DocValueFetcher fetcher;
+        private DocValueColumns.Column column;
 
-        DocValueField(String field, ValueFetcher fetcher) {
+        DocValueField(String field, DocValueFetcher fetcher) {
             this.field = field;
             this.fetcher = fetcher;
         }
@@ -16,6 +16,7 @@ import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.CollectionStatistics;
 import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConjunctionUtils;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
@@ -33,6 +34,9 @@ import org.apache.lucene.util.BitSet;
 import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.SparseFixedBitSet;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.lucene.util.CombinedBitSet;
 import org.elasticsearch.search.dfs.AggregatedDfs;
@@ -43,11 +47,17 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -62,6 +72,9 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     private AggregatedDfs aggregatedDfs;
     private QueryProfiler profiler;
     private MutableQueryTimeout cancellable;
+    @Nullable
+    private final Executor executor;
+    private final int maxSliceCount;
 
     public ContextIndexSearcher(
         IndexReader reader,
@@ -70,7 +83,34 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         QueryCachingPolicy queryCachingPolicy,
         boolean wrapWithExitableDirectoryReader
     ) throws IOException {
-        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader);
+        this(reader, similarity, queryCache, queryCachingPolicy, wrapWithExitableDirectoryReader, null, 1);
+    }
+
+    /**
+     * Creates a searcher that searches slices of the index concurrently when it is given a {@link CollectorManager}.
+     *
+     * @param executor the executor that slices are searched on, or {@code null} to search all leaves on the calling thread
+     * @param maxSliceCount the maximum number of slices that the leaves of the reader are split into
+     */
+    public ContextIndexSearcher(
+        IndexReader reader,
+        Similarity similarity,
+        QueryCache queryCache,
+        QueryCachingPolicy queryCachingPolicy,
+        boolean wrapWithExitableDirectoryReader,
+        @Nullable Executor executor,
+        int maxSliceCount
+    ) throws IOException {
+        this(
+            reader,
+            similarity,
+            queryCache,
+            queryCachingPolicy,
+            new MutableQueryTimeout(),
+            wrapWithExitableDirectoryReader,
+            executor,
+            maxSliceCount
+        );
     }
 
     private ContextIndexSearcher(
@@ -79,13 +119,20 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         QueryCache queryCache,
         QueryCachingPolicy queryCachingPolicy,
         MutableQueryTimeout cancellable,
-        boolean wrapWithExitableDirectoryReader
+        boolean wrapWithExitableDirectoryReader,
+        @Nullable Executor executor,
+        int maxSliceCount
     ) throws IOException {
         super(wrapWithExitableDirectoryReader ? new ExitableDirectoryReader((DirectoryReader) reader, cancellable) : reader);
+        if (maxSliceCount < 1) {
+            throw new IllegalArgumentException("maxSliceCount must be at least 1 but was [" + maxSliceCount + "]");
+        }
         setSimilarity(similarity);
         setQueryCache(queryCache);
         setQueryCachingPolicy(queryCachingPolicy);
         this.cancellable = cancellable;
+        this.executor = executor;
+        this.maxSliceCount = maxSliceCount;
     }
 
     public void setProfiler(QueryProfiler profiler) {
@@ -168,6 +215,120 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         }
     }
 
+    /**
+     * Returns whether this searcher splits its leaves into slices that are searched concurrently when
+     * {@link #search(Query, CollectorManager)} is called.
+     */
+    public boolean isConcurrentSearchEnabled() {
+        return executor != null && maxSliceCount > 1;
+    }
+
+    /**
+     * Searches the leaves of the reader in slices, each of them with its own collector. Slices are handed to the executor of this
+     * searcher but the calling thread searches the first slice and then any slice that no worker has picked up yet, so that a
+     * busy or rejecting executor never leaves the search waiting on queued work.
+     */
+    @Override
+    public <C extends Collector, T> T search(Query query, CollectorManager<C, T> collectorManager) throws IOException {
+        final List<List<LeafReaderContext>> slices = isConcurrentSearchEnabled()
+            ? computeSlices(getIndexReader().leaves(), maxSliceCount)
+            : List.of();
+        if (slices.size() <= 1) {
+            return super.search(query, collectorManager);
+        }
+        final List<C> collectors = new ArrayList<>(slices.size());
+        ScoreMode scoreMode = null;
+        for (int i = 0; i < slices.size(); i++) {
+            final C collector = collectorManager.newCollector();
+            if (scoreMode == null) {
+                scoreMode = collector.scoreMode();
+            } else if (scoreMode != collector.scoreMode()) {
+                throw new IllegalStateException("CollectorManager does not always produce collectors with the same score mode");
+            }
+            collectors.add(collector);
+        }
+        final Weight weight = createWeight(rewrite(query), scoreMode, 1);
+        final List<FutureTask<C>> tasks = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            final List<LeafReaderContext> leaves = slices.get(i);
+            final C collector = collectors.get(i);
+            tasks.add(new FutureTask<>(() -> {
+                search(leaves, weight, collector);
+                return collector;
+            }));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                executor.execute(tasks.get(i));
+            } catch (RejectedExecutionException e) {
+                // the calling thread searches this slice below
+            }
+        }
+        for (FutureTask<C> task : tasks) {
+            // no-op if a worker already started this slice
+            task.run();
+        }
+        // wait for every slice, even after a failure, so that no worker is still reading from the shard when we return
+        Throwable failure = null;
+        for (FutureTask<C> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                } else if (failure != e.getCause()) {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException ioException) {
+                throw ioException;
+            } else if (failure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (failure instanceof Error error) {
+                throw error;
+            }
+            throw new ElasticsearchException(failure);
+        }
+        return collectorManager.reduce(collectors);
+    }
+
+    /**
+     * Splits the provided leaves into at most {@code maxSliceCount} slices with a similar number of documents. Leaves are assigned
+     * largest first to the slice that holds the fewest documents so far, and each slice keeps its leaves in reader order.
+     */
+    static List<List<LeafReaderContext>> computeSlices(List<LeafReaderContext> leaves, int maxSliceCount) {
+        final int sliceCount = Math.min(leaves.size(), maxSliceCount);
+        if (sliceCount <= 1) {
+            return leaves.isEmpty() ? List.of() : List.of(leaves);
+        }
+        final List<LeafReaderContext> sortedLeaves = new ArrayList<>(leaves);
+        sortedLeaves.sort(Comparator.comparingInt((LeafReaderContext ctx) -> ctx.reader().maxDoc()).reversed());
+        final List<List<LeafReaderContext>> slices = new ArrayList<>(sliceCount);
+        final long[] docCounts = new long[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (LeafReaderContext ctx : sortedLeaves) {
+            int smallest = 0;
+            for (int i = 1; i < sliceCount; i++) {
+                if (docCounts[i] < docCounts[smallest]) {
+                    smallest = i;
+                }
+            }
+            slices.get(smallest).add(ctx);
+            docCounts[smallest] += ctx.reader().maxDoc();
+        }
+        for (List<LeafReaderContext> slice : slices) {
+            slice.sort(Comparator.comparingInt(ctx -> ctx.ord));
+        }
+        return slices;
+    }
+
     /**
      * Lower-level search API.
      *
@@ -17,7 +17,10 @@ import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.VectorValues;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.suggest.document.CompletionTerms;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
 import org.elasticsearch.common.lucene.index.SequentialStoredFieldsLeafReader;
@@ -103,6 +106,23 @@ class ExitableDirectoryReader extends FilterDirectoryReader {
                 : terms;
         }
 
+        @Override
+        public VectorValues getVectorValues(String field) throws IOException {
+            // checked once per segment, reading the vectors of a segment is bounded by the number of documents it scores
+            if (queryCancellation.isEnabled()) {
+                queryCancellation.checkCancelled();
+            }
+            return in.getVectorValues(field);
+        }
+
+        @Override
+        public TopDocs searchNearestVectors(String field, float[] target, int k, Bits acceptDocs) throws IOException {
+            if (queryCancellation.isEnabled()) {
+                queryCancellation.checkCancelled();
+            }
+            return in.searchNearestVectors(field, target, k, acceptDocs);
+        }
+
         @Override
         public CacheHelper getCoreCacheHelper() {
             return in.getCoreCacheHelper();
@@ -81,6 +81,7 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
 
     private boolean canReturnNullResponseIfMatchNoDocs;
     private SearchSortValuesAndFormats bottomSortValues;
+    private boolean columnarDocValueFields;
 
     // these are the only mutable fields, as they are subject to rewriting
     private AliasFilter aliasFilter;
@@ -151,6 +152,7 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
         // If allowPartialSearchResults is unset (ie null), the cluster-level default should have been substituted
         // at this stage. Any NPEs in the above are therefore an error in request preparation logic.
         assert searchRequest.allowPartialSearchResults() != null;
+        this.columnarDocValueFields = searchRequest.columnarDocValueFields();
     }
 
     private static final long[] EMPTY_LONG_ARRAY = new long[0];
@@ -277,6 +279,9 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
             waitForCheckpoint = SequenceNumbers.UNASSIGNED_SEQ_NO;
             waitForCheckpointsTimeout = SearchService.NO_TIMEOUT;
         }
+        if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+            columnarDocValueFields = in.readBoolean();
+        }
         originalIndices = OriginalIndices.readOriginalIndices(in);
     }
 
@@ -301,6 +306,7 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
         this.channelVersion = clone.channelVersion;
         this.waitForCheckpoint = clone.waitForCheckpoint;
         this.waitForCheckpointsTimeout = clone.waitForCheckpointsTimeout;
+        this.columnarDocValueFields = clone.columnarDocValueFields;
     }
 
     @Override
@@ -358,6 +364,9 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
                     + "] or greater."
             );
         }
+        if (asKey == false && out.getVersion().onOrAfter(Version.V_8_1_0)) {
+            out.writeBoolean(columnarDocValueFields);
+        }
     }
 
     @Override
@@ -470,6 +479,14 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
         this.canReturnNullResponseIfMatchNoDocs = value;
     }
 
+    /**
+     * Returns true if the values of the {@code docvalue_fields} of the top level hits should be returned column by column, see
+     * {@link SearchRequest#columnarDocValueFields()}.
+     */
+    public boolean columnarDocValueFields() {
+        return columnarDocValueFields;
+    }
+
     private static final ThreadLocal<BytesStreamOutput> scratch = ThreadLocal.withInitial(BytesStreamOutput::new);
 
     /**
@@ -0,0 +1,195 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.AggregationReduceContext;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.MultiBucketCollector;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Executes the query phase of aggregation-only requests by searching slices of the shard concurrently, each slice with its own
+ * tree of aggregators and its own aggregation context. The per-slice aggregations are then merged with a partial reduction, exactly
+ * like the coordinating node merges the results of several shards.
+ * <p>
+ * Each slice is built like the result of a shard, so aggregations that only keep their top buckets, like {@code terms}, keep up
+ * to {@code shard_size} of them per slice rather than per shard. The shard result then has the accuracy of a search over as many
+ * shards as there are slices: bucket counts and {@code doc_count_error_upper_bound} may differ from a sequential search of the
+ * shard, while aggregations that don't drop buckets come out the same.
+ */
+final class ConcurrentQueryPhase {
+
+    private ConcurrentQueryPhase() {}
+
+    /**
+     * Returns whether the query phase of the provided context can search slices of the shard concurrently. This is the case for
+     * requests that only compute aggregations and a hit count, without any collector that depends on the order of collection.
+     */
+    static boolean canExecute(SearchContext searchContext) {
+        if (searchContext.searcher().isConcurrentSearchEnabled() == false) {
+            return false;
+        }
+        final SearchContextAggregations aggregations = searchContext.aggregations();
+        return aggregations != null
+            && aggregations.factories().context() != null
+            && aggregations.sliceFactories() != null
+            && searchContext.size() == 0
+            && searchContext.scrollContext() == null
+            && searchContext.getProfilers() == null
+            && searchContext.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+            && searchContext.parsedPostFilter() == null
+            && searchContext.minimumScore() == null
+            && searchContext.collapse() == null
+            && searchContext.queryCollectors().keySet().equals(Set.of(AggregationPhase.class));
+    }
+
+    /**
+     * Searches the shard concurrently and sets the hit count and the aggregations on the query result of the provided context.
+     */
+    static void execute(SearchContext searchContext, ContextIndexSearcher searcher, Query query, boolean timeoutSet) throws IOException {
+        assert canExecute(searchContext);
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        final SliceCollectorManager collectorManager = new SliceCollectorManager(searchContext);
+        try {
+            searcher.search(query, collectorManager);
+        } catch (QueryPhase.TimeExceededException e) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            if (searchContext.request().allowPartialSearchResults() == false) {
+                // Can't rethrow TimeExceededException because not serializable
+                throw new QueryPhaseExecutionException(searchContext.shardTarget(), "Time exceeded");
+            }
+            queryResult.searchTimedOut(true);
+        }
+
+        final TotalHits totalHits = collectorManager.totalHits(searcher.getIndexReader(), query);
+        final TopDocs topDocs = searchContext.sort() != null
+            ? new TopFieldDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, searchContext.sort().sort.getSort())
+            : new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS);
+        queryResult.topDocs(new TopDocsAndMaxScore(topDocs, Float.NaN), null);
+        queryResult.aggregations(collectorManager.reduceAggregations());
+    }
+
+    /**
+     * Creates one hit count collector and one tree of top level aggregators per slice. The first slice reuses the aggregators that
+     * the {@link AggregationPhase} already created for the request, the others are created by factories with their own aggregation
+     * context since the bucket consumer and the releasables of a context must not be shared between threads.
+     */
+    private static class SliceCollectorManager implements CollectorManager<Collector, Void> {
+        private final SearchContext searchContext;
+        private final int trackTotalHitsUpTo;
+        private final List<TotalHitCountCollector> hitCountCollectors = new ArrayList<>();
+        private final List<Aggregator[]> sliceAggregators = new ArrayList<>();
+        private final List<AggregationContext> sliceContexts = new ArrayList<>();
+
+        SliceCollectorManager(SearchContext searchContext) {
+            this.searchContext = searchContext;
+            this.trackTotalHitsUpTo = searchContext.trackTotalHitsUpTo();
+        }
+
+        @Override
+        public Collector newCollector() throws IOException {
+            final SearchContextAggregations aggregations = searchContext.aggregations();
+            final BucketCollector bucketCollector;
+            if (sliceAggregators.isEmpty()) {
+                sliceAggregators.add(aggregations.aggregators());
+                sliceContexts.add(aggregations.factories().context());
+                bucketCollector = (BucketCollector) searchContext.queryCollectors().get(AggregationPhase.class);
+            } else {
+                final AggregatorFactories factories = aggregations.sliceFactories().get();
+                final Aggregator[] aggregators = factories.createTopLevelAggregators();
+                sliceAggregators.add(aggregators);
+                sliceContexts.add(factories.context());
+                bucketCollector = MultiBucketCollector.wrap(true, List.of(aggregators));
+                bucketCollector.preCollection();
+            }
+            if (trackTotalHitsUpTo == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+                return bucketCollector;
+            }
+            final TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+            hitCountCollectors.add(hitCountCollector);
+            return MultiCollector.wrap(hitCountCollector, bucketCollector);
+        }
+
+        @Override
+        public Void reduce(Collection<Collector> collectors) {
+            return null;
+        }
+
+        /**
+         * Reports the hit count the way a sequential search does: exact up to {@link SearchContext#trackTotalHitsUpTo()} and a lower
+         * bound beyond it, unless the count can be read from the index statistics anyway.
+         */
+        TotalHits totalHits(IndexReader reader, Query query) throws IOException {
+            if (trackTotalHitsUpTo == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+                // for bwc hit count is set to 0, it will be converted to -1 by the coordinating node
+                return new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+            }
+            long totalHits = 0;
+            for (TotalHitCountCollector collector : hitCountCollectors) {
+                totalHits += collector.getTotalHits();
+            }
+            if (totalHits > trackTotalHitsUpTo && TopDocsCollectorContext.shortcutTotalHitCount(reader, query) == -1) {
+                return new TotalHits(trackTotalHitsUpTo, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+            }
+            return new TotalHits(totalHits, TotalHits.Relation.EQUAL_TO);
+        }
+
+        InternalAggregations reduceAggregations() {
+            final List<InternalAggregations> slices = new ArrayList<>(sliceAggregators.size());
+            for (int slice = 0; slice < sliceAggregators.size(); slice++) {
+                final Aggregator[] aggregators = sliceAggregators.get(slice);
+                sliceContexts.get(slice).multiBucketConsumer().reset();
+                final List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+                for (Aggregator aggregator : aggregators) {
+                    try {
+                        aggregator.postCollection();
+                        aggregations.add(aggregator.buildTopLevel());
+                    } catch (IOException e) {
+                        throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+                    }
+                }
+                slices.add(InternalAggregations.from(aggregations));
+            }
+            if (slices.size() == 1) {
+                return slices.get(0);
+            }
+            final AggregationContext context = sliceContexts.get(0);
+            return InternalAggregations.reduce(
+                slices,
+                new AggregationReduceContext.ForPartial(context.bigArrays(), null, context::isCancelled)
+            );
+        }
+    }
+}
@@ -410,6 +410,13 @@ public class TaskManager implements ClusterStateApplier {
         bannedParents.remove(parentTaskId);
     }
 
+    /**
+     * Whether the given parent task was cancelled, in which case no more child tasks should start on its behalf.
+     */
+    public boolean isBanned(TaskId parentTaskId) {
+        return bannedParents.containsKey(parentTaskId);
+    }
+
     // for testing
     public Set<TaskId> getBannedTaskIds() {
         return Collections.unmodifiableSet(bannedParents.keySet());
@@ -508,6 +508,16 @@ public class NodeStatsTests extends ESTestCase {
                     assertEquals(limited, sum.getCompilationLimitTriggered());
                     assertEquals(compilations, sum.getCompilations());
                 }
+                IndexingPressureStats indexingPressureStats = nodeStats.getIndexingPressureStats();
+                IndexingPressureStats deserializedIndexingPressureStats = deserializedNodeStats.getIndexingPressureStats();
+                if (indexingPressureStats == null) {
+                    assertNull(deserializedIndexingPressureStats);
+                } else {
+                    assertEquals(indexingPressureStats.getMemoryLimit(), deserializedIndexingPressureStats.getMemoryLimit());
+                    assertEquals(indexingPressureStats.getCoalescedWrites(), deserializedIndexingPressureStats.getCoalescedWrites());
+                    assertEquals(indexingPressureStats.getCoalescedRequests(), deserializedIndexingPressureStats.getCoalescedRequests());
+                    assertEquals(indexingPressureStats.getCoalescedOps(), deserializedIndexingPressureStats.getCoalescedOps());
+                }
             }
         }
     }
@@ -881,6 +891,9 @@ public class NodeStatsTests extends ESTestCase {
                 randomLongBetween(0, maxStatValue),
                 randomLongBetween(0, maxStatValue),
                 randomLongBetween(0, maxStatValue),
+                randomLongBetween(0, maxStatValue),
+                randomLongBetween(0, maxStatValue),
+                randomLongBetween(0, maxStatValue),
                 randomLongBetween(0, maxStatValue)
             );
         }
@@ -0,0 +1,94 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class AdaptiveBulkLimitsTests extends ESTestCase {
+
+    private static final TimeValue TARGET_LATENCY = TimeValue.timeValueSeconds(1);
+
+    public void testRejectionsAndSlowAttemptsHalveTheLimits() {
+        AtomicInteger permits = new AtomicInteger(8);
+        AdaptiveBulkLimits limits = new AdaptiveBulkLimits(TARGET_LATENCY, 1000, 1 << 20, 8, permits::addAndGet);
+        assertLimits(limits, 1000, 1 << 20, 8);
+
+        limits.onAttempt(0, 10, true);
+        assertLimits(limits, 500, 1 << 19, 4);
+        assertThat(permits.get(), equalTo(4));
+
+        // attempts that started before the last decrease don't decrease the limits again
+        limits.onAttempt(5, 20, true);
+        limits.onAttempt(10, 10 + TARGET_LATENCY.nanos() + 1, false);
+        assertLimits(limits, 500, 1 << 19, 4);
+
+        limits.onAttempt(11, 11 + TARGET_LATENCY.nanos() + 1, false);
+        assertLimits(limits, 250, 1 << 18, 2);
+        assertThat(permits.get(), equalTo(2));
+
+        long now = 12 + TARGET_LATENCY.nanos();
+        for (int i = 0; i < 20; i++) {
+            now += 10;
+            limits.onAttempt(now, now + 1, true);
+        }
+        assertLimits(limits, 1000 / AdaptiveBulkLimits.MIN_FRACTION, (1 << 20) / AdaptiveBulkLimits.MIN_FRACTION, 1);
+        assertThat(permits.get(), equalTo(1));
+    }
+
+    public void testFastAttemptsGrowTheLimitsBack() {
+        AtomicInteger permits = new AtomicInteger(4);
+        AdaptiveBulkLimits limits = new AdaptiveBulkLimits(TARGET_LATENCY, 100, 1000, 4, permits::addAndGet);
+        limits.onAttempt(0, 1, true);
+        assertLimits(limits, 50, 500, 2);
+
+        // the flush thresholds grow back first, then the number of concurrent requests
+        for (int i = 0; i < 5; i++) {
+            limits.onAttempt(2, 3, false);
+        }
+        assertLimits(limits, 100, 1000, 2);
+        limits.onAttempt(2, 3, false);
+        assertLimits(limits, 100, 1000, 3);
+        for (int i = 0; i < 10; i++) {
+            limits.onAttempt(2, 3, false);
+        }
+        assertLimits(limits, 100, 1000, 4);
+        assertThat(permits.get(), equalTo(4));
+    }
+
+    public void testDisabledLimitsDontAdapt() {
+        AtomicInteger changes = new AtomicInteger();
+        AdaptiveBulkLimits limits = new AdaptiveBulkLimits(TARGET_LATENCY, -1, -1, 0, delta -> changes.incrementAndGet());
+        limits.onAttempt(0, 1, true);
+        assertLimits(limits, -1, -1, 0);
+        limits.onAttempt(2, 3, false);
+        assertLimits(limits, -1, -1, 0);
+        assertThat(changes.get(), equalTo(0));
+    }
+
+    public void testFreezeStopsAdapting() {
+        AtomicInteger permits = new AtomicInteger(4);
+        AdaptiveBulkLimits limits = new AdaptiveBulkLimits(TARGET_LATENCY, 100, 1000, 4, permits::addAndGet);
+        limits.onAttempt(0, 1, true);
+        assertThat(limits.freeze(), equalTo(2));
+        limits.onAttempt(2, 3, true);
+        assertLimits(limits, 50, 500, 2);
+        assertThat(permits.get(), equalTo(2));
+    }
+
+    private static void assertLimits(AdaptiveBulkLimits limits, int bulkActions, long bulkSize, int concurrentRequests) {
+        assertThat(limits.bulkActions(), equalTo(bulkActions));
+        assertThat(limits.bulkSize(), equalTo(bulkSize));
+        assertThat(limits.concurrentRequests(), equalTo(concurrentRequests));
+    }
+}
@@ -496,6 +496,67 @@ public class BulkProcessorTests extends ESTestCase {
         }
     }
 
+    public void testAdaptiveLimits() throws Exception {
+        final AtomicInteger attemptRef = new AtomicInteger();
+        final BulkResponse bulkResponse = new BulkResponse(
+            new BulkItemResponse[] { BulkItemResponse.success(0, randomFrom(DocWriteRequest.OpType.values()), mockResponse()) },
+            0
+        );
+        final BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer = (request, listener) -> {
+            if (attemptRef.incrementAndGet() == 1) {
+                listener.onFailure(new RemoteTransportException("remote", new EsRejectedExecutionException("indexing pressure")));
+            } else {
+                listener.onResponse(bulkResponse);
+            }
+        };
+
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        final BulkProcessor.Listener listener = new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {}
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                countDownLatch.countDown();
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                fail("afterBulk should not fail");
+            }
+        };
+
+        try (
+            BulkProcessor bulkProcessor = BulkProcessor.builder(consumer, listener, "BulkProcessorTests")
+                .setBackoffPolicy(BackoffPolicy.constantBackoff(TimeValue.ZERO, Integer.MAX_VALUE))
+                .setBulkActions(8)
+                .setBulkSize(new ByteSizeValue(-1))
+                .setConcurrentRequests(2)
+                .setAdaptive(TimeValue.timeValueMinutes(1))
+                .build()
+        ) {
+            BulkProcessorStats stats = bulkProcessor.stats();
+            assertThat(stats.getBulkActions(), equalTo(8));
+            assertThat(stats.getConcurrentRequests(), equalTo(2));
+
+            for (int i = 0; i < 8; i++) {
+                bulkProcessor.add(new IndexRequest());
+            }
+            assertTrue(countDownLatch.await(5, TimeUnit.SECONDS));
+            assertBusy(() -> assertThat(bulkProcessor.stats().getInFlightBulks(), equalTo(0L)));
+
+            // the rejection halved the limits and the successful retry grew the number of actions by one
+            stats = bulkProcessor.stats();
+            assertThat(stats.getBulks(), equalTo(1L));
+            assertThat(stats.getFailedBulks(), equalTo(0L));
+            assertThat(stats.getAttempts(), equalTo(2L));
+            assertThat(stats.getRejectedAttempts(), equalTo(1L));
+            assertThat(stats.getBulkActions(), equalTo(5));
+            assertThat(stats.getBulkSizeInBytes(), equalTo(-1L));
+            assertThat(stats.getConcurrentRequests(), equalTo(1));
+        }
+    }
+
     private BulkProcessor.Listener emptyListener() {
         return new BulkProcessor.Listener() {
             @Override
@@ -0,0 +1,272 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.IndexingPressure;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ShardBulkCoalescerTests extends ESTestCase {
+
+    private final ShardId shardId = new ShardId("index", "_na_", 0);
+    private final List<BulkShardRequest> executed = new ArrayList<>();
+    private final List<ActionListener<BulkShardResponse>> listeners = new ArrayList<>();
+    private final IndexingPressure indexingPressure = new IndexingPressure(Settings.EMPTY);
+    private final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+    private final List<String> executedAs = new ArrayList<>();
+    private final BooleanSupplier notCancelled = () -> false;
+
+    private ShardBulkCoalescer coalescer(int maxInFlight, int maxItems) {
+        return new ShardBulkCoalescer((request, listener) -> {
+            executed.add(request);
+            listeners.add(listener);
+            executedAs.add(threadContext.getHeader("user"));
+        }, indexingPressure, threadContext, maxInFlight, maxItems);
+    }
+
+    public void testCoalescesQueuedRequests() throws Exception {
+        ShardBulkCoalescer coalescer = coalescer(1, 1000);
+        PlainActionFuture<BulkShardResponse> first = PlainActionFuture.newFuture();
+        PlainActionFuture<BulkShardResponse> second = PlainActionFuture.newFuture();
+        PlainActionFuture<BulkShardResponse> third = PlainActionFuture.newFuture();
+        BulkShardRequest firstRequest = request(RefreshPolicy.NONE, 3, 7);
+        BulkShardRequest secondRequest = request(RefreshPolicy.NONE, 0, 5);
+        BulkShardRequest thirdRequest = request(RefreshPolicy.NONE, 2);
+        secondRequest.setParentTask("node", 1);
+        coalescer.execute(firstRequest, notCancelled, first);
+        coalescer.execute(secondRequest, notCancelled, second);
+        coalescer.execute(thirdRequest, notCancelled, third);
+
+        // only the first request is in flight, the others wait for it
+        assertThat(executed, hasSize(1));
+        assertThat(executed.get(0), sameInstance(firstRequest));
+        listeners.get(0).onResponse(successes(firstRequest));
+        assertThat(first.get().getResponses()[1].getItemId(), equalTo(7));
+
+        // the queued requests are merged and their items renumbered
+        assertThat(executed, hasSize(2));
+        BulkShardRequest merged = executed.get(1);
+        assertThat(merged.items(), arrayWithSize(3));
+        // the merged request acts for several bulk requests, so it has no parent task
+        assertFalse(merged.getParentTask().isSet());
+        for (int i = 0; i < merged.items().length; i++) {
+            assertThat(merged.items()[i].id(), equalTo(i));
+        }
+        assertThat(merged.items()[0].request(), sameInstance(secondRequest.items()[0].request()));
+        assertThat(merged.items()[2].request(), sameInstance(thirdRequest.items()[0].request()));
+        assertThat(indexingPressure.stats().getCoalescedWrites(), equalTo(1L));
+        assertThat(indexingPressure.stats().getCoalescedRequests(), equalTo(2L));
+        assertThat(indexingPressure.stats().getCoalescedOps(), equalTo(3L));
+
+        // the responses are handed back under the original ids
+        BulkShardResponse mergedResponse = new BulkShardResponse(
+            shardId,
+            new BulkItemResponse[] {
+                success(0),
+                BulkItemResponse.failure(1, DocWriteRequest.OpType.INDEX, new BulkItemResponse.Failure("index", "1", new Exception())),
+                success(2) }
+        );
+        listeners.get(1).onResponse(mergedResponse);
+        BulkItemResponse[] secondResponses = second.get().getResponses();
+        assertThat(secondResponses, arrayWithSize(2));
+        assertThat(secondResponses[0].getItemId(), equalTo(0));
+        assertFalse(secondResponses[0].isFailed());
+        assertThat(secondResponses[1].getItemId(), equalTo(5));
+        assertTrue(secondResponses[1].isFailed());
+        BulkItemResponse[] thirdResponses = third.get().getResponses();
+        assertThat(thirdResponses, arrayWithSize(1));
+        assertThat(thirdResponses[0].getItemId(), equalTo(2));
+        assertThat(thirdResponses[0].getResponse(), sameInstance(mergedResponse.getResponses()[2].getResponse()));
+        assertThat(coalescer.activeShards(), equalTo(0));
+    }
+
+    public void testOnlyCoalescesCompatibleRequestsUpToMaxItems() {
+        ShardBulkCoalescer coalescer = coalescer(1, 3);
+        coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, PlainActionFuture.newFuture());
+        coalescer.execute(request(RefreshPolicy.NONE, 0, 1), notCancelled, PlainActionFuture.newFuture());
+        coalescer.execute(request(RefreshPolicy.WAIT_UNTIL, 0), notCancelled, PlainActionFuture.newFuture());
+        coalescer.execute(request(RefreshPolicy.NONE, 0, 1), notCancelled, PlainActionFuture.newFuture());
+        coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, PlainActionFuture.newFuture());
+
+        completeLast();
+        // the request with another refresh policy and the one that doesn't fit anymore are skipped
+        assertThat(executed, hasSize(2));
+        assertThat(executed.get(1).items(), arrayWithSize(3));
+        completeLast();
+        assertThat(executed, hasSize(3));
+        assertThat(executed.get(2).getRefreshPolicy(), equalTo(RefreshPolicy.WAIT_UNTIL));
+        completeLast();
+        assertThat(executed, hasSize(4));
+        assertThat(executed.get(3).items(), arrayWithSize(2));
+        completeLast();
+        assertThat(executed, hasSize(4));
+        assertThat(coalescer.activeShards(), equalTo(0));
+    }
+
+    public void testOnlyCoalescesRequestsWithTheSameHeaders() {
+        ShardBulkCoalescer coalescer = coalescer(1, 1000);
+        for (String user : new String[] { "a", "b", "a", "b" }) {
+            try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+                threadContext.putHeader("user", user);
+                coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, PlainActionFuture.newFuture());
+            }
+        }
+        assertNull(threadContext.getHeader("user"));
+
+        // the queued requests execute in the context of the requests they were merged from
+        completeLast();
+        assertThat(executed, hasSize(2));
+        assertThat(executed.get(1).items(), arrayWithSize(2));
+        assertThat(executedAs.get(1), equalTo("b"));
+        completeLast();
+        assertThat(executed, hasSize(3));
+        assertThat(executed.get(2).items(), arrayWithSize(1));
+        assertThat(executedAs.get(2), equalTo("a"));
+        assertNull(threadContext.getHeader("user"));
+    }
+
+    public void testFailureIsPropagatedToAllCoalescedRequests() {
+        ShardBulkCoalescer coalescer = coalescer(1, 1000);
+        coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, PlainActionFuture.newFuture());
+        List<PlainActionFuture<BulkShardResponse>> futures = new ArrayList<>();
+        int queued = between(2, 5);
+        for (int i = 0; i < queued; i++) {
+            PlainActionFuture<BulkShardResponse> future = PlainActionFuture.newFuture();
+            futures.add(future);
+            coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, future);
+        }
+        completeLast();
+        Exception failure = new IllegalStateException("shard failed");
+        listeners.get(listeners.size() - 1).onFailure(failure);
+        for (PlainActionFuture<BulkShardResponse> future : futures) {
+            ExecutionException e = expectThrows(ExecutionException.class, future::get);
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+        assertThat(coalescer.activeShards(), equalTo(0));
+    }
+
+    public void testExecutesRightAwayBelowMaxInFlight() {
+        int maxInFlight = between(2, 5);
+        ShardBulkCoalescer coalescer = coalescer(maxInFlight, 1000);
+        for (int i = 0; i < maxInFlight; i++) {
+            coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, PlainActionFuture.newFuture());
+        }
+        assertThat(executed, hasSize(maxInFlight));
+        coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, PlainActionFuture.newFuture());
+        assertThat(executed, hasSize(maxInFlight));
+        assertThat(indexingPressure.stats().getCoalescedWrites(), equalTo(0L));
+    }
+
+    public void testFailsQueuedRequestsOfCancelledSenders() throws Exception {
+        ShardBulkCoalescer coalescer = coalescer(1, 1000);
+        AtomicBoolean senderCancelled = new AtomicBoolean();
+        coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, PlainActionFuture.newFuture());
+        List<PlainActionFuture<BulkShardResponse>> cancelled = new ArrayList<>();
+        List<PlainActionFuture<BulkShardResponse>> others = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            PlainActionFuture<BulkShardResponse> future = PlainActionFuture.newFuture();
+            if (i % 2 == 0) {
+                coalescer.execute(request(RefreshPolicy.NONE, 0), senderCancelled::get, future);
+                cancelled.add(future);
+            } else {
+                coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, future);
+                others.add(future);
+            }
+        }
+        senderCancelled.set(true);
+
+        completeLast();
+        for (PlainActionFuture<BulkShardResponse> future : cancelled) {
+            ExecutionException e = expectThrows(ExecutionException.class, future::get);
+            assertThat(e.getCause(), instanceOf(TaskCancelledException.class));
+        }
+        // only the requests of the other senders are merged
+        assertThat(executed, hasSize(2));
+        assertThat(executed.get(1).items(), arrayWithSize(others.size()));
+        completeLast();
+        for (PlainActionFuture<BulkShardResponse> future : others) {
+            assertThat(future.get().getResponses(), arrayWithSize(1));
+        }
+        assertThat(coalescer.activeShards(), equalTo(0));
+    }
+
+    public void testSynchronousCompletionsDoNotRecurse() throws Exception {
+        boolean[] completeRightAway = new boolean[1];
+        ShardBulkCoalescer coalescer = new ShardBulkCoalescer((request, listener) -> {
+            executed.add(request);
+            if (completeRightAway[0]) {
+                listener.onResponse(successes(request));
+            } else {
+                listeners.add(listener);
+            }
+        }, indexingPressure, threadContext, 1, 1);
+        coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, PlainActionFuture.newFuture());
+        // every queued request is sent on its own and completes on the thread that sends it
+        int queued = 10_000;
+        List<PlainActionFuture<BulkShardResponse>> futures = new ArrayList<>(queued);
+        for (int i = 0; i < queued; i++) {
+            PlainActionFuture<BulkShardResponse> future = PlainActionFuture.newFuture();
+            futures.add(future);
+            coalescer.execute(request(RefreshPolicy.NONE, 0), notCancelled, future);
+        }
+        completeRightAway[0] = true;
+        listeners.get(0).onResponse(successes(executed.get(0)));
+        assertThat(executed, hasSize(queued + 1));
+        for (PlainActionFuture<BulkShardResponse> future : futures) {
+            assertTrue(future.isDone());
+            future.get();
+        }
+        assertThat(coalescer.activeShards(), equalTo(0));
+    }
+
+    private void completeLast() {
+        listeners.get(listeners.size() - 1).onResponse(successes(executed.get(executed.size() - 1)));
+    }
+
+    private BulkShardRequest request(RefreshPolicy refreshPolicy, int... ids) {
+        BulkItemRequest[] items = new BulkItemRequest[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            items[i] = new BulkItemRequest(ids[i], new IndexRequest("index").id(randomAlphaOfLength(5)));
+        }
+        return new BulkShardRequest(shardId, refreshPolicy, items);
+    }
+
+    private BulkShardResponse successes(BulkShardRequest request) {
+        BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = success(request.items()[i].id());
+        }
+        return new BulkShardResponse(shardId, responses);
+    }
+
+    private BulkItemResponse success(int id) {
+        return BulkItemResponse.success(id, DocWriteRequest.OpType.INDEX, new IndexResponse(shardId, "id", 1, 1, 1, true));
+    }
+}
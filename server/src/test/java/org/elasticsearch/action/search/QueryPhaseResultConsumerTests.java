@@ -11,6 +11,7 @@ package org.elasticsearch.action.search;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
@@ -20,9 +21,13 @@ import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.AggregationReduceContext;
+import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
@@ -33,11 +38,15 @@ import org.junit.Before;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.hamcrest.Matchers.equalTo;
+
 public class QueryPhaseResultConsumerTests extends ESTestCase {
 
     private SearchPhaseController searchPhaseController;
@@ -127,6 +136,96 @@ public class QueryPhaseResultConsumerTests extends ESTestCase {
         assertEquals(1, searchProgressListener.onFinalReduce.get());
     }
 
+    public void testStreamingTermsReduce() throws Exception {
+        final long seed = randomLong();
+        final int numShards = randomIntBetween(2, 64);
+        final int batchReduceSize = randomIntBetween(2, 8);
+        final int shardSize = randomIntBetween(1, 20);
+        final int cardinality = randomIntBetween(shardSize, 200);
+        final SearchPhaseController.ReducedQueryPhase batched = reduceTerms(
+            new Random(seed),
+            numShards,
+            batchReduceSize,
+            shardSize,
+            cardinality,
+            false
+        );
+        final SearchPhaseController.ReducedQueryPhase streamed = reduceTerms(
+            new Random(seed),
+            numShards,
+            batchReduceSize,
+            shardSize,
+            cardinality,
+            true
+        );
+        assertThat(streamed.numReducePhases, equalTo(batched.numReducePhases));
+        assertThat(streamed.aggregations.get("terms"), equalTo(batched.aggregations.get("terms")));
+    }
+
+    private SearchPhaseController.ReducedQueryPhase reduceTerms(
+        Random random,
+        int numShards,
+        int batchReduceSize,
+        int shardSize,
+        int cardinality,
+        boolean streamingTermsReduce
+    ) throws Exception {
+        SearchRequest searchRequest = new SearchRequest("index");
+        searchRequest.source(new SearchSourceBuilder().size(0).aggregation(AggregationBuilders.terms("terms")));
+        searchRequest.setBatchedReduceSize(batchReduceSize);
+        try (
+            QueryPhaseResultConsumer queryPhaseResultConsumer = new QueryPhaseResultConsumer(
+                searchRequest,
+                executor,
+                new NoopCircuitBreaker(CircuitBreaker.REQUEST),
+                searchPhaseController,
+                () -> false,
+                SearchProgressListener.NOOP,
+                numShards,
+                e -> {},
+                streamingTermsReduce
+            )
+        ) {
+            CountDownLatch partialReduceLatch = new CountDownLatch(numShards);
+            for (int i = 0; i < numShards; i++) {
+                // every shard returns shard_size terms so that the doc count errors of the partial reduces don't depend on the batches
+                TreeSet<BytesRef> terms = new TreeSet<>();
+                while (terms.size() < shardSize) {
+                    terms.add(new BytesRef(Integer.toString(random.nextInt(cardinality))));
+                }
+                List<StringTerms.Bucket> buckets = new ArrayList<>();
+                for (BytesRef term : terms) {
+                    long docCount = 1 + random.nextInt(100);
+                    buckets.add(new StringTerms.Bucket(term, docCount, InternalAggregations.EMPTY, false, 0, DocValueFormat.RAW));
+                }
+                StringTerms stringTerms = new StringTerms(
+                    "terms",
+                    BucketOrder.key(true),
+                    BucketOrder.count(false),
+                    shardSize,
+                    1,
+                    null,
+                    DocValueFormat.RAW,
+                    shardSize,
+                    false,
+                    random.nextInt(100),
+                    buckets,
+                    null
+                );
+                SearchShardTarget searchShardTarget = new SearchShardTarget("node", new ShardId("index", "uuid", i), null);
+                QuerySearchResult querySearchResult = new QuerySearchResult();
+                TopDocs topDocs = new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+                querySearchResult.topDocs(new TopDocsAndMaxScore(topDocs, Float.NaN), new DocValueFormat[0]);
+                querySearchResult.aggregations(InternalAggregations.from(List.of(stringTerms)));
+                querySearchResult.setSearchShardTarget(searchShardTarget);
+                querySearchResult.setShardIndex(i);
+                queryPhaseResultConsumer.consumeResult(querySearchResult, partialReduceLatch::countDown);
+            }
+            assertTrue(partialReduceLatch.await(10, TimeUnit.SECONDS));
+            return queryPhaseResultConsumer.reduce();
+        }
+    }
+
     private static class ThrowingSearchProgressListener extends SearchProgressListener {
         private final AtomicInteger onQueryResult = new AtomicInteger(0);
         private final AtomicInteger onPartialReduce = new AtomicInteger(0);
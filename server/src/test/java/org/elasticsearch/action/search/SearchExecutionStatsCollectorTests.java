@@ -0,0 +1,68 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class SearchExecutionStatsCollectorTests extends ESTestCase {
+
+    public void testReportsEachSentRequestCompletedOnce() {
+        final AtomicLong nowNanos = new AtomicLong(randomNonNegativeLong() / 2);
+        final ResponseCollectorService service = new ResponseCollectorService(
+            new ClusterSettings(
+                Settings.builder().put(ResponseCollectorService.IN_FLIGHT_FEEDBACK_SETTING.getKey(), true).build(),
+                ClusterSettings.BUILT_IN_CLUSTER_SETTINGS
+            ),
+            nowNanos::get
+        );
+        service.addNodeStatistics("node", 1, 100, 10);
+
+        // a request that is never sent isn't in flight
+        new SearchExecutionStatsCollector(ActionListener.wrap(r -> {}, e -> {}), service, "node");
+        nowNanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(service.getNodeStatistics("node").get().stallTime, equalTo(0.0));
+
+        final SearchExecutionStatsCollector first = new SearchExecutionStatsCollector(new ActionListener<>() {
+            @Override
+            public void onResponse(SearchPhaseResult response) {
+                throw new IllegalStateException("boom");
+            }
+
+            @Override
+            public void onFailure(Exception e) {}
+        }, service, "node");
+        final SearchExecutionStatsCollector second = new SearchExecutionStatsCollector(
+            ActionListener.wrap(r -> {}, e -> {}),
+            service,
+            "node"
+        );
+        first.onRequestSent();
+        second.onRequestSent();
+
+        // the first request fails after its response was handled, the second one is still in flight
+        final IllegalStateException e = expectThrows(IllegalStateException.class, () -> first.onResponse(new QuerySearchResult()));
+        first.onFailure(e);
+        nowNanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(service.getNodeStatistics("node").get().stallTime, equalTo((double) TimeUnit.SECONDS.toNanos(1)));
+
+        second.onFailure(new IllegalStateException("boom"));
+        assertThat(service.getNodeStatistics("node").get().stallTime, equalTo(0.0));
+    }
+}
@@ -16,11 +16,14 @@ import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodeRole;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.gateway.GatewayService;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.TestCustomMetadata;
 
@@ -288,6 +291,52 @@ public class ClusterChangedEventTests extends ESTestCase {
         assertTrue(changedCustomMetadataTypeSet.contains(customMetadata1.getWriteableName()));
     }
 
+    /**
+     * Test that the change set only contains the indices and shards whose metadata or routing changed.
+     */
+    public void testChangeSet() {
+        final ClusterState previousState = createState(3, randomBoolean(), initialIndices);
+        final Index updatedIndex = initialIndices.get(0);
+        final Index deletedIndex = initialIndices.get(1);
+        final Index addedIndex = new Index("newIdx", UUIDs.randomBase64UUID());
+
+        final Metadata.Builder metadataBuilder = Metadata.builder(previousState.metadata())
+            .put(createIndexMetadata(updatedIndex, previousState.metadata().index(updatedIndex).getVersion() + 1), false)
+            .remove(deletedIndex.getName())
+            .put(createIndexMetadata(addedIndex), false);
+        final Metadata metadata = metadataBuilder.build();
+        // rebuild the routing table like the master does, so that the routing of the remaining indices is equal but not the same
+        final RoutingTable.Builder routingTableBuilder = RoutingTable.builder().version(2);
+        for (IndexRoutingTable indexRoutingTable : previousState.routingTable()) {
+            if (indexRoutingTable.getIndex().equals(deletedIndex) == false) {
+                final IndexRoutingTable.Builder indexRoutingTableBuilder = IndexRoutingTable.builder(indexRoutingTable.getIndex());
+                for (IndexShardRoutingTable indexShardRoutingTable : indexRoutingTable) {
+                    indexRoutingTableBuilder.addIndexShard(indexShardRoutingTable);
+                }
+                routingTableBuilder.add(indexRoutingTableBuilder);
+            }
+        }
+        routingTableBuilder.addAsNew(metadata.index(addedIndex));
+        final ClusterState state = ClusterState.builder(previousState).metadata(metadata).routingTable(routingTableBuilder.build()).build();
+        assertNotSame(previousState.routingTable().index(updatedIndex), state.routingTable().index(updatedIndex));
+
+        final ClusterChangedEvent event = new ClusterChangedEvent("_na_", state, previousState);
+        final ClusterStateChangeSet changeSet = event.changeSet();
+        assertSame(changeSet, event.changeSet());
+        assertThat(changeSet.indicesWithChangedMetadata(), equalTo(Set.of(updatedIndex, addedIndex)));
+        assertThat(changeSet.indicesRemovedFromMetadata(), equalTo(Set.of(deletedIndex)));
+        assertThat(changeSet.indicesWithChangedRouting(), equalTo(Set.of(deletedIndex, addedIndex)));
+        assertThat(changeSet.shardsWithChangedRouting(), equalTo(Set.of(new ShardId(deletedIndex, 0), new ShardId(addedIndex, 0))));
+        assertTrue(changeSet.indexMetadataChanged(updatedIndex));
+        assertFalse(changeSet.indexMetadataChanged(initialIndices.get(2)));
+        assertFalse(changeSet.shardRoutingChanged(new ShardId(updatedIndex, 0)));
+        assertTrue(changeSet.changedCustomMetadata().isEmpty());
+        assertFalse(changeSet.isEmpty());
+
+        assertTrue(new ClusterChangedEvent("_na_", previousState, previousState).changeSet().isEmpty());
+        assertTrue(ClusterStateChangeSet.between(state, ClusterState.builder(state).build()).isEmpty());
+    }
+
     private static class CustomMetadata2 extends TestCustomMetadata {
         protected CustomMetadata2(String data) {
             super(data);
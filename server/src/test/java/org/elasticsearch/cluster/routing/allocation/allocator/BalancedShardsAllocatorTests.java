@@ -11,22 +11,37 @@ package org.elasticsearch.cluster.routing.allocation.allocator;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.support.replication.ClusterStateCreationUtils;
 import org.elasticsearch.cluster.ClusterInfo;
+import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ESAllocationTestCase;
+import org.elasticsearch.cluster.EmptyClusterInfoService;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.cluster.metadata.RepositoriesMetadata;
+import org.elasticsearch.cluster.metadata.RepositoryMetadata;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.allocation.AllocateUnassignedDecision;
+import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDecider;
 import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
+import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.snapshots.SnapshotShardSizeInfo;
+import org.elasticsearch.test.gateway.TestGatewayAllocator;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class BalancedShardsAllocatorTests extends ESAllocationTestCase {
 
@@ -67,4 +82,102 @@ public class BalancedShardsAllocatorTests extends ESAllocationTestCase {
         assertNotNull(allocateDecision.getTargetNode().getId(), assignedShards.get(0).currentNodeId());
     }
 
+    public void testIncrementalBalanceReusesIndexDecisions() {
+        final AtomicInteger indexDecisions = new AtomicInteger();
+        final AllocationDecider decider = new AllocationDecider() {
+            @Override
+            public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
+                return canAllocateTo(shardRouting.getIndexName(), node);
+            }
+
+            @Override
+            public Decision canAllocate(IndexMetadata indexMetadata, RoutingNode node, RoutingAllocation allocation) {
+                indexDecisions.incrementAndGet();
+                return canAllocateTo(indexMetadata.getIndex().getName(), node);
+            }
+
+            private Decision canAllocateTo(String index, RoutingNode node) {
+                return index.equals("filtered") && node.nodeId().equals("node_0") ? Decision.NO : Decision.YES;
+            }
+        };
+        final AllocationService service = new MockAllocationService(
+            new AllocationDeciders(List.of(decider)),
+            new TestGatewayAllocator(),
+            new BalancedShardsAllocator(Settings.builder().put(BalancedShardsAllocator.INCREMENTAL_BALANCE_SETTING.getKey(), true).build()),
+            EmptyClusterInfoService.INSTANCE,
+            SNAPSHOT_INFO_SERVICE_WITH_NO_SHARD_SIZES
+        );
+
+        final Metadata.Builder metadataBuilder = Metadata.builder();
+        final RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
+        for (String index : List.of("index_0", "index_1", "index_2", "index_3", "index_4", "filtered")) {
+            final IndexMetadata indexMetadata = IndexMetadata.builder(index)
+                .settings(settings(Version.CURRENT))
+                .numberOfShards(3)
+                .numberOfReplicas(0)
+                .build();
+            metadataBuilder.put(indexMetadata, false);
+            routingTableBuilder.addAsNew(indexMetadata);
+        }
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT)
+            .nodes(DiscoveryNodes.builder().add(newNode("node_0")).add(newNode("node_1")).add(newNode("node_2")))
+            .metadata(metadataBuilder)
+            .routingTable(routingTableBuilder.build())
+            .build();
+        clusterState = applyStartedShardsUntilNoChange(service.reroute(clusterState, "test"), service);
+        assertBalanced(clusterState);
+
+        // nothing changed, all the decisions are cached
+        indexDecisions.set(0);
+        clusterState = service.reroute(clusterState, "test");
+        assertThat(indexDecisions.get(), equalTo(0));
+
+        // only the index whose metadata changed is re-evaluated
+        final IndexMetadata indexMetadata = clusterState.metadata().index("index_0");
+        clusterState = ClusterState.builder(clusterState)
+            .metadata(
+                Metadata.builder(clusterState.metadata())
+                    .put(IndexMetadata.builder(indexMetadata).settingsVersion(indexMetadata.getSettingsVersion() + 1))
+            )
+            .build();
+        indexDecisions.set(0);
+        clusterState = service.reroute(clusterState, "test");
+        assertThat(indexDecisions.get(), equalTo(3));
+
+        // all the indices are re-evaluated when custom metadata that deciders may read changes
+        clusterState = ClusterState.builder(clusterState)
+            .metadata(
+                Metadata.builder(clusterState.metadata())
+                    .putCustom(
+                        RepositoriesMetadata.TYPE,
+                        new RepositoriesMetadata(List.of(new RepositoryMetadata("repo", "fs", Settings.EMPTY)))
+                    )
+            )
+            .build();
+        indexDecisions.set(0);
+        clusterState = service.reroute(clusterState, "test");
+        assertThat(indexDecisions.get(), equalTo(6 * 3));
+
+        // all the indices are re-evaluated when the nodes change
+        clusterState = ClusterState.builder(clusterState)
+            .nodes(DiscoveryNodes.builder(clusterState.nodes()).add(newNode("node_3")))
+            .build();
+        indexDecisions.set(0);
+        clusterState = service.reroute(clusterState, "test");
+        assertThat(indexDecisions.get(), equalTo(6 * 4));
+
+        clusterState = applyStartedShardsUntilNoChange(clusterState, service);
+        assertBalanced(clusterState);
+    }
+
+    private static void assertBalanced(ClusterState clusterState) {
+        final int shardsPerNode = 18 / clusterState.nodes().getSize();
+        for (RoutingNode routingNode : clusterState.getRoutingNodes()) {
+            assertThat(routingNode.size(), greaterThanOrEqualTo(shardsPerNode - 1));
+            assertThat(routingNode.size(), lessThanOrEqualTo(shardsPerNode + 2));
+            for (ShardRouting shardRouting : routingNode) {
+                assertFalse(shardRouting.getIndexName().equals("filtered") && routingNode.nodeId().equals("node_0"));
+            }
+        }
+    }
 }
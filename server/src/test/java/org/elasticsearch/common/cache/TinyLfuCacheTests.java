@@ -0,0 +1,306 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+
+public class TinyLfuCacheTests extends ESTestCase {
+
+    private static <K, V> CacheBuilder<K, V> builder() {
+        return CacheBuilder.<K, V>builder().setEvictionPolicy(CacheBuilder.EvictionPolicy.TINY_LFU);
+    }
+
+    public void testBuilder() {
+        assertThat(builder().build(), instanceOf(TinyLfuCache.class));
+        assertThat(CacheBuilder.builder().build(), is(not(instanceOf(TinyLfuCache.class))));
+    }
+
+    public void testPutAndGet() {
+        int numberOfEntries = randomIntBetween(1, 1000);
+        Cache<Integer, String> cache = TinyLfuCacheTests.<Integer, String>builder().build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int i = 0; i < numberOfEntries; i++) {
+            assertEquals(Integer.toString(i), cache.get(i));
+        }
+        assertNull(cache.get(-1));
+        assertEquals(numberOfEntries, cache.count());
+        assertEquals(numberOfEntries, cache.weight());
+        Cache.CacheStats stats = cache.stats();
+        assertEquals(numberOfEntries, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0, stats.getEvictions());
+    }
+
+    public void testWeightIsBounded() {
+        int maximumWeight = randomIntBetween(10, 1000);
+        List<Integer> evicted = new ArrayList<>();
+        Cache<Integer, String> cache = TinyLfuCacheTests.<Integer, String>builder().setMaximumWeight(maximumWeight)
+            .weigher((k, v) -> v.length())
+            .removalListener(notification -> {
+                assertEquals(RemovalNotification.RemovalReason.EVICTED, notification.getRemovalReason());
+                evicted.add(notification.getKey());
+            })
+            .build();
+        int numberOfEntries = randomIntBetween(2 * maximumWeight, 10 * maximumWeight);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, randomAlphaOfLength(randomIntBetween(1, 5)));
+            assertThat(cache.weight(), lessThanOrEqualTo((long) maximumWeight));
+        }
+        assertThat(evicted.size(), greaterThan(0));
+        assertEquals(numberOfEntries, cache.count() + evicted.size());
+        assertEquals(evicted.size(), cache.stats().getEvictions());
+        for (Integer key : evicted) {
+            assertNull(cache.get(key));
+        }
+    }
+
+    public void testFrequentlyUsedEntriesSurviveScans() {
+        int maximumWeight = 100;
+        Cache<Integer, Integer> cache = TinyLfuCacheTests.<Integer, Integer>builder().setMaximumWeight(maximumWeight).build();
+        int hotKeys = maximumWeight / 2;
+        for (int i = 0; i < hotKeys; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < hotKeys; i++) {
+                assertEquals(i, cache.get(i).intValue());
+            }
+            // the read buffers drop accesses under contention, make sure they were all applied
+            cache.count();
+        }
+        // a scan over keys that are never read again must not evict the hot keys
+        for (int i = hotKeys; i < hotKeys + 10 * maximumWeight; i++) {
+            cache.put(i, i);
+        }
+        int survivors = 0;
+        for (int i = 0; i < hotKeys; i++) {
+            if (cache.get(i) != null) {
+                survivors++;
+            }
+        }
+        assertThat(survivors, greaterThan(hotKeys * 9 / 10));
+    }
+
+    public void testExpireAfterAccess() {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setExpireAfterAccessNanos(1);
+        Set<Integer> evicted = new HashSet<>();
+        cache.setRemovalListener(notification -> {
+            assertEquals(RemovalNotification.RemovalReason.EVICTED, notification.getRemovalReason());
+            evicted.add(notification.getKey());
+        });
+        int numberOfEntries = randomIntBetween(2, 1000);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        now.set(1);
+        for (int i = numberOfEntries; i < 2 * numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        // reading an entry resets its expiration
+        assertEquals("0", cache.get(0));
+        now.set(2);
+        assertNull(cache.get(1));
+        cache.refresh();
+        assertEquals(numberOfEntries + 1, cache.count());
+        for (int i = 1; i < numberOfEntries; i++) {
+            assertTrue(evicted.contains(i));
+        }
+        assertFalse(evicted.contains(0));
+    }
+
+    public void testExpireAfterWrite() {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setExpireAfterWriteNanos(1);
+        cache.put(0, "0");
+        now.set(1);
+        cache.put(1, "1");
+        assertEquals("0", cache.get(0));
+        now.set(2);
+        assertNull(cache.get(0));
+        assertEquals("1", cache.get(1));
+        cache.refresh();
+        assertEquals(1, cache.count());
+    }
+
+    public void testNotificationOnReplaceAndInvalidate() {
+        List<RemovalNotification<Integer, String>> notifications = new ArrayList<>();
+        Cache<Integer, String> cache = TinyLfuCacheTests.<Integer, String>builder().removalListener(notifications::add).build();
+        cache.put(0, "a");
+        cache.put(0, "b");
+        assertEquals(1, notifications.size());
+        assertEquals(RemovalNotification.RemovalReason.REPLACED, notifications.get(0).getRemovalReason());
+        assertEquals("a", notifications.get(0).getValue());
+        assertEquals(1, cache.count());
+
+        cache.invalidate(0, "a");
+        assertEquals("b", cache.get(0));
+        cache.invalidate(0, "b");
+        assertNull(cache.get(0));
+        assertEquals(2, notifications.size());
+        assertEquals(RemovalNotification.RemovalReason.INVALIDATED, notifications.get(1).getRemovalReason());
+
+        cache.put(1, "c");
+        cache.invalidate(1);
+        assertEquals(3, notifications.size());
+        assertEquals(RemovalNotification.RemovalReason.INVALIDATED, notifications.get(2).getRemovalReason());
+
+        int numberOfEntries = randomIntBetween(1, 100);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        cache.invalidateAll();
+        assertEquals(3 + numberOfEntries, notifications.size());
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.weight());
+    }
+
+    public void testRemoveUsingValuesIterator() {
+        Cache<Integer, String> cache = TinyLfuCacheTests.<Integer, String>builder().build();
+        int numberOfEntries = randomIntBetween(1, 100);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        int removed = 0;
+        for (Iterator<String> iterator = cache.values().iterator(); iterator.hasNext();) {
+            if (Integer.parseInt(iterator.next()) % 2 == 0) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        assertEquals(numberOfEntries - removed, cache.count());
+        for (Integer key : cache.keys()) {
+            assertEquals(1, key % 2);
+        }
+    }
+
+    public void testComputeIfAbsentCallsOnce() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 16);
+        int numberOfEntries = randomIntBetween(100, 1000);
+        final Cache<Integer, String> cache = TinyLfuCacheTests.<Integer, String>builder().build();
+        AtomicReferenceArray<Object> flags = new AtomicReferenceArray<>(numberOfEntries);
+        for (int j = 0; j < numberOfEntries; j++) {
+            flags.set(j, false);
+        }
+        CopyOnWriteArrayList<Exception> failures = new CopyOnWriteArrayList<>();
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        try {
+                            String value = cache.computeIfAbsent(j, key -> {
+                                assertTrue(flags.compareAndSet(key, false, true));
+                                return Integer.toString(key);
+                            });
+                            assertEquals(Integer.toString(j), value);
+                        } catch (ExecutionException e) {
+                            failures.add(e);
+                            break;
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+        assertThat(failures, is(empty()));
+        assertEquals(numberOfEntries, cache.count());
+    }
+
+    public void testComputeIfAbsentPropagatesFailures() {
+        Cache<Integer, String> cache = TinyLfuCacheTests.<Integer, String>builder().build();
+        ExecutionException e = expectThrows(ExecutionException.class, () -> cache.computeIfAbsent(1, k -> null));
+        assertThat(e.getCause(), instanceOf(NullPointerException.class));
+        e = expectThrows(ExecutionException.class, () -> cache.computeIfAbsent(1, k -> { throw new IllegalArgumentException("boom"); }));
+        assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        assertEquals(0, cache.count());
+        assertNull(cache.get(1));
+    }
+
+    public void testConcurrentReadsAndWrites() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 16);
+        int maximumWeight = randomIntBetween(10, 100);
+        final Cache<Integer, Integer> cache = TinyLfuCacheTests.<Integer, Integer>builder().setMaximumWeight(maximumWeight).build();
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        CopyOnWriteArrayList<Exception> failures = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int j = 0; j < 10_000; j++) {
+                        int key = randomIntBetween(0, 4 * maximumWeight);
+                        try {
+                            assertEquals(key, cache.computeIfAbsent(key, k -> k).intValue());
+                        } catch (ExecutionException e) {
+                            failures.add(e);
+                        }
+                        if (rarely()) {
+                            cache.invalidate(key);
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+        barrier.await();
+        barrier.await();
+        assertThat(failures, is(empty()));
+        assertThat(cache.weight(), lessThanOrEqualTo((long) maximumWeight));
+        int count = 0;
+        for (Integer ignored : cache.keys()) {
+            count++;
+        }
+        assertThat(cache.count(), equalTo(count));
+    }
+}
@@ -15,6 +15,7 @@ import org.elasticsearch.common.breaker.PreallocatedCircuitBreakerService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
@@ -31,6 +32,7 @@ import java.util.function.Function;
 import static org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
@@ -449,6 +451,118 @@ public class BigArraysTests extends ESTestCase {
         }
     }
 
+    public void testOffHeapLongArrayGrowth() {
+        final BigArrays bigArrays = new MockBigArrays(offHeapRecycler(ByteSizeValue.ofMb(16)), new NoneCircuitBreakerService());
+        final int totalLen = randomIntBetween(1, 1000000);
+        final int startLen = randomIntBetween(1, randomBoolean() ? 1000 : totalLen);
+        LongArray array = bigArrays.newLongArray(startLen, randomBoolean());
+        long[] ref = new long[totalLen];
+        for (int i = 0; i < totalLen; ++i) {
+            ref[i] = randomLong();
+            array = bigArrays.grow(array, i + 1);
+            array.set(i, ref[i]);
+        }
+        for (int i = 0; i < totalLen; ++i) {
+            assertEquals(ref[i], array.get(i));
+        }
+        array.close();
+    }
+
+    public void testOffHeapDoubleArrayGrowth() {
+        final BigArrays bigArrays = new MockBigArrays(offHeapRecycler(ByteSizeValue.ofMb(16)), new NoneCircuitBreakerService());
+        final int totalLen = randomIntBetween(1, 1000000);
+        final int startLen = randomIntBetween(1, randomBoolean() ? 1000 : totalLen);
+        DoubleArray array = bigArrays.newDoubleArray(startLen, randomBoolean());
+        double[] ref = new double[totalLen];
+        for (int i = 0; i < totalLen; ++i) {
+            ref[i] = randomDouble();
+            array = bigArrays.grow(array, i + 1);
+            array.set(i, ref[i]);
+        }
+        for (int i = 0; i < totalLen; ++i) {
+            assertEquals(ref[i], array.get(i), 0.001d);
+        }
+        array.close();
+    }
+
+    public void testOffHeapLongArrayBulkSetAndFill() {
+        final BigArrays bigArrays = new BigArrays(offHeapRecycler(ByteSizeValue.ofMb(1)), null, CircuitBreaker.REQUEST);
+        final int len = randomIntBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, 10 * PageCacheRecycler.LONG_PAGE_SIZE);
+        try (LongArray array = bigArrays.newLongArray(len)) {
+            assertThat(array, instanceOf(DirectBigLongArray.class));
+            final long[] ref = new long[len];
+            final byte[] bytes = new byte[len * Long.BYTES];
+            for (int i = 0; i < len; ++i) {
+                ref[i] = randomLong();
+                BigLongArray.VH_PLATFORM_NATIVE_LONG.set(bytes, i * Long.BYTES, ref[i]);
+            }
+            final int offset = randomIntBetween(0, len - 1);
+            array.set(offset, bytes, offset, len - offset);
+            for (int i = offset; i < len; ++i) {
+                assertEquals(ref[i], array.get(i));
+            }
+            final int fromIndex = randomIntBetween(0, len - 1);
+            final int toIndex = randomIntBetween(fromIndex, len);
+            final long value = randomLong();
+            array.fill(fromIndex, toIndex, value);
+            for (int i = fromIndex; i < toIndex; ++i) {
+                assertEquals(value, array.get(i));
+            }
+        }
+    }
+
+    public void testOffHeapFallsBackToHeap() {
+        final int pageSize = PageCacheRecycler.LONG_PAGE_SIZE;
+        final HierarchyCircuitBreakerService hcbs = new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false).build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)
+        );
+        final CircuitBreaker breaker = hcbs.getBreaker(CircuitBreaker.REQUEST);
+        // room for four off-heap pages
+        final BigArrays bigArrays = new BigArrays(
+            offHeapRecycler(ByteSizeValue.ofBytes(4L * PageCacheRecycler.PAGE_SIZE_IN_BYTES)),
+            hcbs,
+            CircuitBreaker.REQUEST
+        );
+
+        LongArray array = bigArrays.newLongArray(2 * pageSize);
+        assertThat(array, instanceOf(DirectBigLongArray.class));
+        // not enough pages left, the pages that could be obtained are given back
+        final LongArray onHeap = bigArrays.newLongArray(4 * pageSize);
+        assertThat(onHeap, instanceOf(BigLongArray.class));
+        assertEquals(array.ramBytesUsed() + onHeap.ramBytesUsed(), breaker.getUsed());
+
+        array = bigArrays.resize(array, 3 * pageSize);
+        assertThat(array, instanceOf(DirectBigLongArray.class));
+        final long[] ref = new long[3 * pageSize];
+        for (int i = 0; i < ref.length; ++i) {
+            ref[i] = randomLong();
+            array.set(i, ref[i]);
+        }
+        array = bigArrays.resize(array, 5 * pageSize);
+        assertThat(array, instanceOf(BigLongArray.class));
+        for (int i = 0; i < ref.length; ++i) {
+            assertEquals(ref[i], array.get(i));
+        }
+        assertEquals(array.ramBytesUsed() + onHeap.ramBytesUsed(), breaker.getUsed());
+        Releasables.close(array, onHeap);
+        assertEquals(0, breaker.getUsed());
+
+        // closing the array released its off-heap pages
+        try (DoubleArray doubleArray = bigArrays.newDoubleArray(4 * pageSize)) {
+            assertThat(doubleArray, instanceOf(DirectBigDoubleArray.class));
+            assertEquals(doubleArray.ramBytesUsed(), breaker.getUsed());
+        }
+        assertEquals(0, breaker.getUsed());
+    }
+
+    private static PageCacheRecycler offHeapRecycler(ByteSizeValue limit) {
+        return new MockPageCacheRecycler(
+            Settings.builder().put(PageCacheRecycler.LIMIT_OFF_HEAP_SETTING.getKey(), limit.getStringRep()).build()
+        );
+    }
+
     private List<BigArraysHelper> bigArrayCreators(final long maxSize, final boolean withBreaking) {
         final BigArrays byteBigArrays = newBigArraysInstance(maxSize, withBreaking);
         BigArraysHelper byteHelper = new BigArraysHelper(
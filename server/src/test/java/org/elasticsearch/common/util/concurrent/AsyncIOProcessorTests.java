@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Semaphore;
@@ -276,4 +277,48 @@ public class AsyncIOProcessorTests extends ESTestCase {
         assertEquals(threadCount, received.get());
         threads.forEach(t -> assertFalse(t.isAlive()));
     }
+
+    public void testBatchWindowGathersItems() throws InterruptedException {
+        final int threadCount = randomIntBetween(2, 10);
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final AtomicInteger notified = new AtomicInteger(0);
+
+        AsyncIOProcessor<Object> processor = new AsyncIOProcessor<Object>(logger, scaledRandomIntBetween(threadCount, 2024), threadContext) {
+            @Override
+            protected long batchWindowNanos(int batchSize, long waitedNanos) {
+                // wait until all threads joined the batch, the timeout only guards against hanging the test
+                return batchSize < threadCount ? Math.max(0L, TimeUnit.SECONDS.toNanos(10) - waitedNanos) : 0L;
+            }
+
+            @Override
+            protected void write(List<Tuple<Object, Consumer<Exception>>> candidates) throws IOException {
+                batchSizes.add(candidates.size());
+            }
+        };
+
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        List<Thread> threads = IntStream.range(0, threadCount).mapToObj(i -> new Thread(getTestName() + "_" + i) {
+            {
+                setDaemon(true);
+            }
+
+            @Override
+            public void run() {
+                latch.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                processor.put(new Object(), (e) -> notified.incrementAndGet());
+            }
+        }).collect(Collectors.toList());
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(20000);
+            assertFalse(thread.isAlive());
+        }
+        assertEquals(threadCount, notified.get());
+        assertEquals(List.of(threadCount), batchSizes);
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class PagedVersionMapTests extends ESTestCase {
+
+    private static BigArrays bigArrays() {
+        return new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), ByteSizeValue.ofMb(100));
+    }
+
+    private static BytesRef randomUid() {
+        return new BytesRef(TestUtil.randomSimpleString(random(), 1, 20));
+    }
+
+    private static IndexVersionValue randomIndexVersionValue() {
+        final Translog.Location location = randomBoolean()
+            ? null
+            : new Translog.Location(randomNonNegativeLong(), randomNonNegativeLong(), randomIntBetween(0, Integer.MAX_VALUE - 1));
+        return new IndexVersionValue(location, randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+    }
+
+    public void testPutGetRemove() {
+        final BigArrays bigArrays = bigArrays();
+        final Map<BytesRef, VersionValue> expected = new HashMap<>();
+        try (PagedVersionMap map = new PagedVersionMap(bigArrays, randomIntBetween(0, 1000))) {
+            final int iterations = randomIntBetween(1, 10_000);
+            for (int i = 0; i < iterations; i++) {
+                final BytesRef uid = randomUid();
+                if (rarely()) {
+                    assertEquals(expected.remove(uid), map.remove(uid));
+                } else {
+                    final IndexVersionValue value = randomIndexVersionValue();
+                    assertEquals(expected.put(uid, value), map.put(uid, value));
+                }
+                assertEquals(expected.size(), map.size());
+                assertEquals(expected.isEmpty(), map.isEmpty());
+            }
+            for (Map.Entry<BytesRef, VersionValue> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), map.get(entry.getKey()));
+            }
+            assertEquals(expected, new HashMap<>(map));
+            assertThat(map.ramBytesUsed(), greaterThan(0L));
+        }
+    }
+
+    public void testOnlyStoresIndexVersions() {
+        try (PagedVersionMap map = new PagedVersionMap(bigArrays(), 0)) {
+            expectThrows(IllegalArgumentException.class, () -> map.put(randomUid(), new DeleteVersionValue(1, 1, 1, 1)));
+            assertTrue(map.isEmpty());
+        }
+    }
+
+    public void testAccountsInBreakerAndReleasesOnClose() {
+        final BigArrays bigArrays = bigArrays();
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final PagedVersionMap map = new PagedVersionMap(bigArrays, 0);
+        final int numDocs = randomIntBetween(1000, 10_000);
+        for (int i = 0; i < numDocs; i++) {
+            map.put(new BytesRef(Integer.toString(i)), randomIndexVersionValue());
+        }
+        assertThat(map.ramBytesUsed(), greaterThan(0L));
+        assertThat(breaker.getUsed(), greaterThan(0L));
+
+        map.close();
+        assertThat(breaker.getUsed(), equalTo(0L));
+        assertThat(map.ramBytesUsed(), equalTo(0L));
+        // a closed map behaves like an empty map that ignores writes
+        assertNull(map.get(new BytesRef("0")));
+        assertNull(map.put(new BytesRef("0"), randomIndexVersionValue()));
+        assertNull(map.get(new BytesRef("0")));
+        assertTrue(map.isEmpty());
+    }
+
+    public void testVersionMapReleasesPagesOnRefresh() throws Exception {
+        final BigArrays bigArrays = bigArrays();
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final LiveVersionMap versionMap = new LiveVersionMap(bigArrays);
+        final long emptyBytes = breaker.getUsed();
+        final BytesRef uid = new BytesRef("test");
+        final IndexVersionValue value = randomIndexVersionValue();
+        try (Releasable ignored = versionMap.acquireLock(uid)) {
+            versionMap.putIndexUnderLock(uid, value);
+            assertEquals(value, versionMap.getUnderLock(uid));
+            assertThat(versionMap.ramBytesUsedForRefresh(), greaterThan(0L));
+
+            versionMap.beforeRefresh();
+            assertEquals(value, versionMap.getUnderLock(uid));
+            assertThat(versionMap.getRefreshingBytes(), greaterThan(0L));
+            versionMap.afterRefresh(randomBoolean());
+            assertNull(versionMap.getUnderLock(uid));
+            assertThat(versionMap.getRefreshingBytes(), equalTo(0L));
+        }
+        assertThat(breaker.getUsed(), equalTo(emptyBytes));
+        versionMap.clear();
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+}
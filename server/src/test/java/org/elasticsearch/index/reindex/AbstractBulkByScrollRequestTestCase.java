@@ -10,6 +10,8 @@ package org.elasticsearch.index.reindex;
 
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.support.ActiveShardCount;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.tasks.TaskId;
 import org.elasticsearch.test.AbstractXContentTestCase;
 import org.elasticsearch.test.ESTestCase;
@@ -40,6 +42,9 @@ public abstract class AbstractBulkByScrollRequestTestCase<R extends AbstractBulk
         if (randomBoolean()) {
             original.setMaxDocs(between(0, Integer.MAX_VALUE));
         }
+        if (randomBoolean()) {
+            original.setMaxInFlightBulkBytes(ByteSizeValue.ofBytes(randomLongBetween(1, ByteSizeUnit.GB.toBytes(1))));
+        }
 
         // it's not important how many slices there are, we just need a number for forSlice
         int actualSlices = between(2, 1000);
@@ -69,6 +74,12 @@ public abstract class AbstractBulkByScrollRequestTestCase<R extends AbstractBulk
                 : original.getMaxDocs() / actualSlices,
             forSliced.getMaxDocs()
         );
+        long maxInFlightBulkBytes = original.getMaxInFlightBulkBytes().getBytes();
+        assertEquals(
+            "max_in_flight_bulk_bytes is split between all workers",
+            maxInFlightBulkBytes == 0 ? 0 : Math.max(1, maxInFlightBulkBytes / actualSlices),
+            forSliced.getMaxInFlightBulkBytes().getBytes()
+        );
         assertEquals(slicingTask, forSliced.getParentTask());
 
         extraForSliceAssertions(original, forSliced);
@@ -65,6 +65,15 @@ public class BulkByScrollTaskStatusTests extends AbstractXContentTestCase<BulkBy
         assertEquals(expected.getRequestsPerSecond(), actual.getRequestsPerSecond(), 0f);
         assertEquals(expected.getReasonCancelled(), actual.getReasonCancelled());
         assertEquals(expected.getThrottledUntil(), actual.getThrottledUntil());
+        if (version.onOrAfter(Version.V_8_1_0)) {
+            assertEquals(expected.getInFlightBulks(), actual.getInFlightBulks());
+            assertEquals(expected.getInFlightBulksSizeInBytes(), actual.getInFlightBulksSizeInBytes());
+            assertEquals(expected.getBatchSize(), actual.getBatchSize());
+        } else {
+            assertEquals(0, actual.getInFlightBulks());
+            assertEquals(0, actual.getInFlightBulksSizeInBytes());
+            assertEquals(0, actual.getBatchSize());
+        }
         assertThat(actual.getSliceStatuses(), Matchers.hasSize(expected.getSliceStatuses().size()));
         for (int i = 0; i < expected.getSliceStatuses().size(); i++) {
             BulkByScrollTask.StatusOrException sliceStatus = expected.getSliceStatuses().get(i);
@@ -127,6 +136,10 @@ public class BulkByScrollTaskStatusTests extends AbstractXContentTestCase<BulkBy
         TimeUnit[] timeUnits = { TimeUnit.MILLISECONDS, TimeUnit.SECONDS, TimeUnit.MINUTES, TimeUnit.HOURS, TimeUnit.DAYS };
         TimeValue throttled = new TimeValue(randomIntBetween(0, 1000), randomFrom(timeUnits));
         TimeValue throttledUntil = new TimeValue(randomIntBetween(0, 1000), randomFrom(timeUnits));
+        // the in flight bulk requests are only rendered if the request pipelines them, which is when it has a batch size
+        int batchSize = randomBoolean() ? 0 : between(1, 1000);
+        int inFlightBulks = batchSize == 0 ? 0 : between(0, 10);
+        long inFlightBulksSizeInBytes = batchSize == 0 ? 0 : between(0, 10000000);
         return new BulkByScrollTask.Status(
             sliceId,
             total,
@@ -141,7 +154,10 @@ public class BulkByScrollTaskStatusTests extends AbstractXContentTestCase<BulkBy
             throttled,
             abs(Randomness.get().nextFloat()),
             randomBoolean() ? null : randomSimpleString(Randomness.get()),
-            throttledUntil
+            throttledUntil,
+            inFlightBulks,
+            inFlightBulksSizeInBytes,
+            batchSize
         );
     }
 
@@ -18,6 +18,7 @@ import org.elasticsearch.xcontent.json.JsonXContent;
 import java.io.IOException;
 import java.util.Arrays;
 
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static org.elasticsearch.core.TimeValue.parseTimeValue;
 import static org.elasticsearch.core.TimeValue.timeValueMillis;
@@ -153,6 +154,9 @@ public class BulkByScrollTaskTests extends ESTestCase {
         TimeValue mergedThrottled = timeValueNanos(0);
         float mergedRequestsPerSecond = 0;
         TimeValue mergedThrottledUntil = timeValueNanos(Integer.MAX_VALUE);
+        int mergedInFlightBulks = 0;
+        long mergedInFlightBulksSizeInBytes = 0;
+        int mergedBatchSize = 0;
         for (int i = 0; i < statuses.length; i++) {
             if (containsNullStatuses && rarely()) {
                 continue;
@@ -170,6 +174,9 @@ public class BulkByScrollTaskTests extends ESTestCase {
             float requestsPerSecond = randomValueOtherThanMany(r -> r <= 0, () -> randomFloat());
             String reasonCancelled = randomBoolean() ? null : "test";
             TimeValue throttledUntil = timeValueNanos(between(0, 1000));
+            int inFlightBulks = between(0, 10);
+            long inFlightBulksSizeInBytes = between(0, 10000);
+            int batchSize = between(0, 1000);
             statuses[i] = new BulkByScrollTask.StatusOrException(
                 new BulkByScrollTask.Status(
                     i,
@@ -185,7 +192,10 @@ public class BulkByScrollTaskTests extends ESTestCase {
                     throttled,
                     requestsPerSecond,
                     reasonCancelled,
-                    throttledUntil
+                    throttledUntil,
+                    inFlightBulks,
+                    inFlightBulksSizeInBytes,
+                    batchSize
                 )
             );
             mergedTotal += total;
@@ -200,6 +210,9 @@ public class BulkByScrollTaskTests extends ESTestCase {
             mergedThrottled = timeValueNanos(mergedThrottled.nanos() + throttled.nanos());
             mergedRequestsPerSecond += requestsPerSecond;
             mergedThrottledUntil = timeValueNanos(min(mergedThrottledUntil.nanos(), throttledUntil.nanos()));
+            mergedInFlightBulks += inFlightBulks;
+            mergedInFlightBulksSizeInBytes += inFlightBulksSizeInBytes;
+            mergedBatchSize = max(mergedBatchSize, batchSize);
         }
         String reasonCancelled = randomBoolean() ? randomAlphaOfLength(10) : null;
         BulkByScrollTask.Status merged = new BulkByScrollTask.Status(Arrays.asList(statuses), reasonCancelled);
@@ -216,6 +229,9 @@ public class BulkByScrollTaskTests extends ESTestCase {
         assertEquals(mergedRequestsPerSecond, merged.getRequestsPerSecond(), 0.0001f);
         assertEquals(mergedThrottledUntil, merged.getThrottledUntil());
         assertEquals(reasonCancelled, merged.getReasonCancelled());
+        assertEquals(mergedInFlightBulks, merged.getInFlightBulks());
+        assertEquals(mergedInFlightBulksSizeInBytes, merged.getInFlightBulksSizeInBytes());
+        assertEquals(mergedBatchSize, merged.getBatchSize());
     }
 
 }
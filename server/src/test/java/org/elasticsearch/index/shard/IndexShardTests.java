@@ -102,6 +102,7 @@ import org.elasticsearch.index.store.StoreUtils;
 import org.elasticsearch.index.translog.TestTranslog;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogStats;
+import org.elasticsearch.index.translog.TranslogSyncStats;
 import org.elasticsearch.indices.IndicesQueryCache;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
@@ -1542,6 +1543,26 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(shard);
     }
 
+    public void testTranslogSyncStats() throws IOException {
+        IndexShard shard = newStartedShard(true);
+        final int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            final Engine.IndexResult result = indexDoc(shard, "_doc", Integer.toString(i));
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            // no other thread syncs the translog so the sync completes on the calling thread
+            shard.sync(result.getTranslogLocation(), failure::set);
+            assertNull(failure.get());
+        }
+        final TranslogSyncStats syncStats = shard.translogStats().getSyncStats();
+        assertThat(syncStats.getRequests(), equalTo((long) numDocs));
+        assertThat(syncStats.getBatches(), equalTo((long) numDocs));
+        assertThat(syncStats.getMaxBatchSize(), equalTo(1L));
+        assertThat(syncStats.getFsyncs(), lessThanOrEqualTo((long) numDocs));
+        // a single stream of requests never waits for other requests to join its batch
+        assertThat(syncStats.getWaitTime().nanos(), equalTo(0L));
+        closeShards(shard);
+    }
+
     public void testShardStats() throws IOException {
 
         IndexShard shard = newStartedShard();
@@ -0,0 +1,128 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+public class ReadAheadSnapshotReaderTests extends ESTestCase {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    public void testReadsOneBatchAhead() throws IOException {
+        final int numOps = between(1, 100);
+        final int batchSize = between(1, 10);
+        final TestSnapshot snapshot = new TestSnapshot(numOps);
+        final ReadAheadSnapshotReader<List<Translog.Operation>> reader = reader(snapshot, batchSize, false);
+
+        final AtomicInteger notified = new AtomicInteger();
+        final List<Translog.Operation> seen = new ArrayList<>();
+        List<Translog.Operation> batch = reader.poll(notified::incrementAndGet);
+        assertNull(batch);
+        assertThat(tasks, hasSize(1));
+        while (true) {
+            runTasks();
+            batch = reader.poll(notified::incrementAndGet);
+            assertNotNull(batch);
+            seen.addAll(batch);
+            if (batch.size() < batchSize) {
+                break;
+            }
+            // the next batch is read in the background right away
+            assertThat(tasks, hasSize(1));
+        }
+        assertThat(tasks, hasSize(0));
+        assertThat(notified.get(), equalTo(1));
+        assertThat(seen, hasSize(numOps));
+        for (int i = 0; i < numOps; i++) {
+            assertThat(seen.get(i).seqNo(), equalTo((long) i));
+        }
+        reader.close();
+        assertTrue(snapshot.closed.get());
+    }
+
+    public void testNotifiesOnFailure() throws IOException {
+        final TestSnapshot snapshot = new TestSnapshot(between(1, 100));
+        final ReadAheadSnapshotReader<List<Translog.Operation>> reader = reader(snapshot, between(1, 10), true);
+        final AtomicInteger notified = new AtomicInteger();
+        assertNull(reader.poll(notified::incrementAndGet));
+        runTasks();
+        assertThat(notified.get(), equalTo(1));
+        final IOException e = expectThrows(IOException.class, () -> reader.poll(notified::incrementAndGet));
+        assertThat(e.getMessage(), equalTo("simulated"));
+        reader.close();
+        assertTrue(snapshot.closed.get());
+    }
+
+    public void testClosesSnapshotAfterReadInProgress() throws IOException {
+        final TestSnapshot snapshot = new TestSnapshot(between(1, 100));
+        final ReadAheadSnapshotReader<List<Translog.Operation>> reader = reader(snapshot, between(1, 10), randomBoolean());
+        final AtomicInteger notified = new AtomicInteger();
+        assertNull(reader.poll(notified::incrementAndGet));
+        reader.close();
+        assertFalse(snapshot.closed.get());
+        runTasks();
+        assertTrue(snapshot.closed.get());
+        assertThat(notified.get(), equalTo(0));
+    }
+
+    private ReadAheadSnapshotReader<List<Translog.Operation>> reader(TestSnapshot snapshot, int batchSize, boolean fail) {
+        return new ReadAheadSnapshotReader<>(snapshot, tasks::add, s -> {
+            if (fail) {
+                throw new IOException("simulated");
+            }
+            final List<Translog.Operation> batch = new ArrayList<>();
+            Translog.Operation operation;
+            while (batch.size() < batchSize && (operation = s.next()) != null) {
+                batch.add(operation);
+            }
+            return batch;
+        }, batch -> batch.size() < batchSize);
+    }
+
+    private void runTasks() {
+        while (tasks.isEmpty() == false) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private static final class TestSnapshot implements Translog.Snapshot {
+        private final int totalOperations;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private int next;
+
+        TestSnapshot(int totalOperations) {
+            this.totalOperations = totalOperations;
+        }
+
+        @Override
+        public int totalOperations() {
+            return totalOperations;
+        }
+
+        @Override
+        public Translog.Operation next() {
+            assertFalse(closed.get());
+            return next < totalOperations ? new Translog.NoOp(next++, 1, "test") : null;
+        }
+
+        @Override
+        public void close() {
+            assertTrue(closed.compareAndSet(false, true));
+        }
+    }
+}
@@ -524,7 +524,15 @@ public class TranslogTests extends ESTestCase {
                         "size_in_bytes": 326,
                         "uncommitted_operations": 4,
                         "uncommitted_size_in_bytes": 271,
-                        "earliest_last_modified_age": %s
+                        "earliest_last_modified_age": %s,
+                        "sync": {
+                          "batches": 0,
+                          "requests": 0,
+                          "max_batch_size": 0,
+                          "fsyncs": 0,
+                          "fsync_time_in_millis": 0,
+                          "wait_time_in_millis": 0
+                        }
                       }
                     }""".formatted(stats.getEarliestLastModifiedAge()))));
             }
@@ -661,6 +669,44 @@ public class TranslogTests extends ESTestCase {
         assertNull(translog.readOperation(new Location(100, 0, 0)));
     }
 
+    public void testLargeOperationsAreBufferedByReference() throws IOException {
+        ArrayList<Translog.Operation> ops = new ArrayList<>();
+        ArrayList<Translog.Location> locs = new ArrayList<>();
+        long copiedBytes = 0;
+        long referencedBytes = 0;
+        final int numOps = randomIntBetween(1, 100);
+        for (int i = 0; i < numOps; i++) {
+            final int size = randomBoolean()
+                ? randomIntBetween(1, 64)
+                : randomIntBetween(1, Translog.ADD_BY_REFERENCE_THRESHOLD_IN_BYTES * 4);
+            final byte[] source = randomByteArrayOfLength(size);
+            final Translog.Location location = addToTranslogAndList(
+                translog,
+                ops,
+                new Translog.Index(Integer.toString(i), i, primaryTerm.get(), source)
+            );
+            locs.add(location);
+            if (location.size >= Translog.ADD_BY_REFERENCE_THRESHOLD_IN_BYTES) {
+                referencedBytes += location.size;
+            } else {
+                copiedBytes += location.size;
+            }
+            assertThat(translog.getCopiedBytes(), equalTo(copiedBytes));
+            assertThat(translog.getReferencedBytes(), equalTo(referencedBytes));
+            if (rarely()) {
+                translog.sync();
+            }
+        }
+        // reading an operation writes out the buffered operations up to its location
+        for (int i = randomIntBetween(0, ops.size() - 1); i < ops.size(); i++) {
+            assertEquals(ops.get(i), translog.readOperation(locs.get(i)));
+        }
+        translog.sync();
+        try (Translog.Snapshot snapshot = translog.newSnapshot()) {
+            assertThat(snapshot, SnapshotMatchers.equalsTo(ops));
+        }
+    }
+
     public void testSnapshotWithNewTranslog() throws IOException {
         List<Closeable> toClose = new ArrayList<>();
         try {
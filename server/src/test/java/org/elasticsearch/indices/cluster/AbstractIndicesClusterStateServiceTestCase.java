@@ -335,6 +335,7 @@ public abstract class AbstractIndicesClusterStateServiceTestCase extends ESTestC
         private volatile Set<String> inSyncAllocationIds;
         private volatile IndexShardRoutingTable routingTable;
         private volatile long term;
+        private volatile long appliedClusterStateVersion = -1;
 
         public MockIndexShard(ShardRouting shardRouting, long term) {
             this.shardRouting = shardRouting;
@@ -383,6 +384,7 @@ public abstract class AbstractIndicesClusterStateServiceTestCase extends ESTestC
                 );
             }
             this.shardRouting = shardRouting;
+            this.appliedClusterStateVersion = applyingClusterStateVersion;
             if (shardRouting.primary()) {
                 term = newPrimaryTerm;
                 this.inSyncAllocationIds = inSyncAllocationIds;
@@ -404,6 +406,10 @@ public abstract class AbstractIndicesClusterStateServiceTestCase extends ESTestC
             return term;
         }
 
+        public long appliedClusterStateVersion() {
+            return appliedClusterStateVersion;
+        }
+
         public void updateTerm(long newTerm) {
             assertThat("term can only be incremented: " + shardRouting, newTerm, greaterThanOrEqualTo(term));
             if (shardRouting.primary() && shardRouting.active()) {
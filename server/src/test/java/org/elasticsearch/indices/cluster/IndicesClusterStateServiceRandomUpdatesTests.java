@@ -262,6 +262,39 @@ public class IndicesClusterStateServiceRandomUpdatesTests extends AbstractIndice
 
     }
 
+    public void testUpdatesStartedShardWithUnchangedRouting() {
+        disableRandomFailures();
+        String index = "index_" + randomAlphaOfLength(8).toLowerCase(Locale.ROOT);
+        ClusterState state = ClusterStateCreationUtils.state(index, true, ShardRoutingState.INITIALIZING);
+        ClusterState previousState = ClusterState.builder(state)
+            .metadata(Metadata.builder(state.metadata()).remove(index))
+            .routingTable(RoutingTable.builder().build())
+            .build();
+        final ShardId shardId = state.routingTable().index(index).shard(0).shardId();
+        DiscoveryNode node = state.nodes().getLocalNode();
+
+        IndicesClusterStateService indicesCSSvc = createIndicesClusterStateService(node, RecordingIndicesService::new);
+        indicesCSSvc.start();
+        indicesCSSvc.applyClusterState(new ClusterChangedEvent("create the primary", state, previousState));
+        previousState = state;
+        state = cluster.applyStartedShards(state, List.of(state.routingTable().index(index).shard(0).primaryShard()));
+        indicesCSSvc.applyClusterState(new ClusterChangedEvent("start the primary", state, previousState));
+        final MockIndexShard shard = ((RecordingIndicesService) indicesCSSvc.indicesService).getShardOrNull(shardId);
+        assertTrue(shard.routingEntry().started());
+
+        // a cluster state that changes neither the routing nor the metadata of the index
+        previousState = state;
+        state = ClusterState.builder(state)
+            .incrementVersion()
+            .metadata(
+                Metadata.builder(state.metadata())
+                    .persistentSettings(Settings.builder().put("cluster.routing.allocation.enable", "primaries").build())
+            )
+            .build();
+        indicesCSSvc.applyClusterState(new ClusterChangedEvent("update cluster settings", state, previousState));
+        assertThat(shard.appliedClusterStateVersion(), equalTo(state.version()));
+    }
+
     public void testRecoveryFailures() {
         disableRandomFailures();
         String index = "index_" + randomAlphaOfLength(8).toLowerCase(Locale.ROOT);
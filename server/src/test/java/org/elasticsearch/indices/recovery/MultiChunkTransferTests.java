@@ -0,0 +1,107 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class MultiChunkTransferTests extends ESTestCase {
+
+    public void testResumesOnceTheNextChunkIsReady() {
+        final int numChunks = between(1, 20);
+        final int maxConcurrentChunks = between(1, 5);
+        // the chunks are prepared and their responses arrive whenever the test decides to
+        final List<Runnable> pendingReads = new ArrayList<>();
+        final List<ActionListener<Void>> pendingResponses = new ArrayList<>();
+        final List<Integer> sent = new ArrayList<>();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final PlainActionFuture<Void> future = PlainActionFuture.newFuture();
+        final MultiChunkTransfer<String, TestChunk> transfer = new MultiChunkTransfer<>(
+            logger,
+            new ThreadContext(Settings.EMPTY),
+            future,
+            maxConcurrentChunks,
+            List.of("source")
+        ) {
+            private int nextChunk;
+            private TestChunk ready;
+            private boolean reading;
+
+            @Override
+            protected TestChunk nextChunkRequest(String source) {
+                if (ready != null) {
+                    final TestChunk chunk = ready;
+                    ready = null;
+                    return chunk;
+                }
+                if (reading == false) {
+                    reading = true;
+                    pendingReads.add(() -> {
+                        reading = false;
+                        ready = new TestChunk(nextChunk, nextChunk == numChunks - 1);
+                        nextChunk++;
+                        resume();
+                    });
+                }
+                return null;
+            }
+
+            @Override
+            protected void executeChunkRequest(TestChunk request, ActionListener<Void> listener) {
+                sent.add(request.id);
+                pendingResponses.add(listener);
+                assertThat(pendingResponses.size(), lessThanOrEqualTo(maxConcurrentChunks));
+            }
+
+            @Override
+            protected void handleError(String source, Exception e) throws Exception {
+                throw e;
+            }
+
+            @Override
+            public void close() {
+                assertTrue(closed.compareAndSet(false, true));
+            }
+        };
+
+        transfer.start();
+        while (future.isDone() == false) {
+            assertFalse("the transfer stalled", pendingReads.isEmpty() && pendingResponses.isEmpty());
+            if (pendingReads.isEmpty() == false && (pendingResponses.isEmpty() || randomBoolean())) {
+                assertThat(pendingReads.size(), equalTo(1));
+                pendingReads.remove(0).run();
+            } else {
+                pendingResponses.remove(between(0, pendingResponses.size() - 1)).onResponse(null);
+            }
+        }
+        future.actionGet();
+        assertTrue(closed.get());
+        assertTrue(pendingReads.isEmpty());
+        assertTrue(pendingResponses.isEmpty());
+        assertThat(sent.size(), equalTo(numChunks));
+        for (int i = 0; i < numChunks; i++) {
+            assertThat(sent.get(i), equalTo(i));
+        }
+
+        // a resume that races with the completion of the transfer is ignored
+        transfer.resume();
+    }
+
+    private record TestChunk(int id, boolean lastChunk) implements MultiChunkTransfer.ChunkRequest {}
+}
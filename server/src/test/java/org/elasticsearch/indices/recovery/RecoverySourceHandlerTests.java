@@ -119,6 +119,7 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
@@ -226,6 +227,93 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         IOUtils.close(reader, store, multiFileWriter, targetStore);
     }
 
+    public void testSendFilesWithParallelFileTransfer() throws Throwable {
+        final StartRecoveryRequest request = getStartRecoveryRequest();
+        Store store = newStore(createTempDir());
+        RandomIndexWriter writer = new RandomIndexWriter(random(), store.directory(), newIndexWriterConfig());
+        int numDocs = randomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            Document document = new Document();
+            document.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+            document.add(newField("field", randomUnicodeOfCodepointLengthBetween(1, 10), TextField.TYPE_STORED));
+            writer.addDocument(document);
+            if (rarely()) {
+                writer.commit();
+            }
+        }
+        writer.commit();
+        writer.close();
+
+        Store.MetadataSnapshot metadata = store.getMetadata(null);
+        List<StoreFileMetadata> metas = new ArrayList<>();
+        for (StoreFileMetadata md : metadata) {
+            metas.add(md);
+        }
+        Store targetStore = newStore(createTempDir());
+        MultiFileWriter multiFileWriter = new MultiFileWriter(targetStore, mock(RecoveryState.Index.class), "", logger, () -> {}, true);
+        assertTrue(multiFileWriter.positionalWrites());
+        final AtomicInteger smallFilesRequests = new AtomicInteger();
+        RecoveryTargetHandler target = new TestRecoveryTargetHandler() {
+            @Override
+            public void writeFileChunk(
+                StoreFileMetadata md,
+                long position,
+                ReleasableBytesReference content,
+                boolean lastChunk,
+                int totalTranslogOps,
+                ActionListener<Void> listener
+            ) {
+                ActionListener.completeWith(listener, () -> {
+                    multiFileWriter.writeFileChunk(md, position, content, lastChunk);
+                    return null;
+                });
+            }
+
+            @Override
+            public void writeSmallFiles(
+                List<StoreFileMetadata> files,
+                ReleasableBytesReference content,
+                int totalTranslogOps,
+                ActionListener<Void> listener
+            ) {
+                assertThat(files.size(), greaterThan(1));
+                smallFilesRequests.incrementAndGet();
+                super.writeSmallFiles(files, content, totalTranslogOps, listener);
+            }
+        };
+        final int chunkSize = between(1024, 8192);
+        RecoverySourceHandler handler = new RecoverySourceHandler(
+            null,
+            new AsyncRecoveryTarget(target, recoveryExecutor),
+            threadPool,
+            request,
+            chunkSize,
+            between(1, 8),
+            between(1, 5),
+            between(1, 5),
+            false,
+            true,
+            recoveryPlannerService
+        );
+        PlainActionFuture<Void> sendFilesFuture = new PlainActionFuture<>();
+        handler.sendFiles(store, metas.toArray(new StoreFileMetadata[0]), () -> 0, sendFilesFuture);
+        sendFilesFuture.actionGet();
+        Store.MetadataSnapshot targetStoreMetadata = targetStore.getMetadata(null);
+        Store.RecoveryDiff recoveryDiff = targetStoreMetadata.recoveryDiff(metadata);
+        assertEquals(metas.size(), recoveryDiff.identical.size());
+        assertEquals(0, recoveryDiff.different.size());
+        assertEquals(0, recoveryDiff.missing.size());
+
+        metas.sort(Comparator.comparingLong(StoreFileMetadata::length));
+        final long largestFile = metas.get(metas.size() - 1).length();
+        if (metas.size() >= 2 && metas.get(0).length() + metas.get(1).length() <= Math.min(chunkSize, largestFile)) {
+            assertThat(smallFilesRequests.get(), greaterThan(0));
+        }
+        IndexReader reader = DirectoryReader.open(targetStore.directory());
+        assertEquals(numDocs, reader.maxDoc());
+        IOUtils.close(reader, store, multiFileWriter, targetStore);
+    }
+
     public StartRecoveryRequest getStartRecoveryRequest() throws IOException {
         Store.MetadataSnapshot metadataSnapshot = randomBoolean()
             ? Store.MetadataSnapshot.EMPTY
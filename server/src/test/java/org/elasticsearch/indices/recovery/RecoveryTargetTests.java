@@ -326,6 +326,8 @@ public class RecoveryTargetTests extends ESTestCase {
             assertThat(filesToRecover.size(), equalTo(0));
             index.stop();
             assertThat(index.time(), greaterThanOrEqualTo(0L));
+            final long expectedThroughput = index.time() == 0 ? 0 : index.recoveredBytes() * 1000 / index.time();
+            assertThat(index.recoveredBytesPerSecond(), equalTo(expectedThroughput));
         }
 
         logger.info("testing serialized information");
@@ -411,6 +411,89 @@ public class CompoundProcessorTests extends ESTestCase {
         assertThat(ingestProcessorException.getHeader("pipeline_origin"), equalTo(List.of("2", "1")));
     }
 
+    public void testExecuteBatch() {
+        TestProcessor processor1 = new TestProcessor(null, "first", null, document -> {
+            if (document.hasField("fail")) {
+                throw new RuntimeException("error");
+            } else if (document.hasField("drop")) {
+                return null;
+            }
+            document.setFieldValue("first", true);
+            return document;
+        });
+        TestProcessor processor2 = new TestProcessor(document -> document.setFieldValue("second", true));
+        LongSupplier relativeTimeProvider = mock(LongSupplier.class);
+        when(relativeTimeProvider.getAsLong()).thenReturn(0L);
+        CompoundProcessor compoundProcessor = new CompoundProcessor(relativeTimeProvider, processor1, processor2);
+
+        List<IngestDocument> documents = List.of(
+            new IngestDocument(new HashMap<>(), new HashMap<>()),
+            new IngestDocument(new HashMap<>(Map.of("fail", true)), new HashMap<>()),
+            new IngestDocument(new HashMap<>(Map.of("drop", true)), new HashMap<>()),
+            new IngestDocument(new HashMap<>(), new HashMap<>())
+        );
+        int[] calls = new int[documents.size()];
+        IngestDocument[] results = new IngestDocument[documents.size()];
+        Exception[] failures = new Exception[documents.size()];
+        compoundProcessor.executeBatch(documents, (slot, result, e) -> {
+            calls[slot]++;
+            results[slot] = result;
+            failures[slot] = e;
+        });
+
+        assertThat(calls, equalTo(new int[] { 1, 1, 1, 1 }));
+        for (int slot : new int[] { 0, 3 }) {
+            assertThat(failures[slot], nullValue());
+            assertThat(results[slot], sameInstance(documents.get(slot)));
+            assertThat(results[slot].getFieldValue("first", Boolean.class), is(true));
+            assertThat(results[slot].getFieldValue("second", Boolean.class), is(true));
+        }
+        assertThat(results[1], nullValue());
+        assertThat(((ElasticsearchException) failures[1]).getRootCause().getMessage(), equalTo("error"));
+        assertThat(results[2], nullValue());
+        assertThat(failures[2], nullValue());
+        assertThat(processor1.getInvokedCounter(), equalTo(4));
+        assertThat(processor2.getInvokedCounter(), equalTo(2));
+        assertStats(0, compoundProcessor, 0, 4, 1, 0);
+        assertStats(1, compoundProcessor, 0, 2, 0, 0);
+    }
+
+    public void testExecuteBatchWithOnFailureProcessor() {
+        TestProcessor processor1 = new TestProcessor(null, "first", null, document -> {
+            if (document.hasField("fail")) {
+                throw new RuntimeException("error");
+            }
+            return document;
+        });
+        TestProcessor processor2 = new TestProcessor(document -> {
+            assertThat(document.getIngestMetadata().get(CompoundProcessor.ON_FAILURE_MESSAGE_FIELD), equalTo("error"));
+            document.setFieldValue("handled", true);
+        });
+        LongSupplier relativeTimeProvider = mock(LongSupplier.class);
+        when(relativeTimeProvider.getAsLong()).thenReturn(0L);
+        CompoundProcessor compoundProcessor = new CompoundProcessor(false, List.of(processor1), List.of(processor2), relativeTimeProvider);
+
+        List<IngestDocument> documents = List.of(
+            new IngestDocument(new HashMap<>(Map.of("fail", true)), new HashMap<>()),
+            new IngestDocument(new HashMap<>(), new HashMap<>()),
+            new IngestDocument(new HashMap<>(Map.of("fail", true)), new HashMap<>())
+        );
+        IngestDocument[] results = new IngestDocument[documents.size()];
+        Exception[] failures = new Exception[documents.size()];
+        compoundProcessor.executeBatch(documents, (slot, result, e) -> {
+            results[slot] = result;
+            failures[slot] = e;
+        });
+
+        assertThat(failures, equalTo(new Exception[3]));
+        assertThat(results[0].getFieldValue("handled", Boolean.class), is(true));
+        assertThat(results[1].hasField("handled"), is(false));
+        assertThat(results[2].getFieldValue("handled", Boolean.class), is(true));
+        assertThat(processor1.getInvokedCounter(), equalTo(3));
+        assertThat(processor2.getInvokedCounter(), equalTo(2));
+        assertStats(compoundProcessor, 3, 2, 0);
+    }
+
     private void assertStats(CompoundProcessor compoundProcessor, long count, long failed, long time) {
         assertStats(0, compoundProcessor, 0L, count, failed, time);
     }
@@ -23,7 +23,9 @@ import org.elasticsearch.action.bulk.TransportBulkAction;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.ingest.DeletePipelineRequest;
+import org.elasticsearch.action.ingest.ProfilePipelineResponse;
 import org.elasticsearch.action.ingest.PutPipelineRequest;
+import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.internal.Client;
@@ -95,6 +97,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
@@ -132,6 +135,7 @@ public class IngestServiceTests extends ESTestCase {
     public void testIngestPlugin() {
         Client client = mock(Client.class);
         IngestService ingestService = new IngestService(
+            Settings.EMPTY,
             mock(ClusterService.class),
             threadPool,
             null,
@@ -150,6 +154,7 @@ public class IngestServiceTests extends ESTestCase {
         IllegalArgumentException e = expectThrows(
             IllegalArgumentException.class,
             () -> new IngestService(
+                Settings.EMPTY,
                 mock(ClusterService.class),
                 threadPool,
                 null,
@@ -165,6 +170,7 @@ public class IngestServiceTests extends ESTestCase {
     public void testExecuteIndexPipelineDoesNotExist() {
         Client client = mock(Client.class);
         IngestService ingestService = new IngestService(
+            Settings.EMPTY,
             mock(ClusterService.class),
             threadPool,
             null,
@@ -1453,6 +1459,84 @@ public class IngestServiceTests extends ESTestCase {
         }
     }
 
+    public void testBulkRequestExecutionInBatches() throws Exception {
+        BulkRequest bulkRequest = new BulkRequest();
+        int numRequest = scaledRandomIntBetween(8, 64);
+        Map<Integer, String> actions = new HashMap<>();
+        for (int i = 0; i < numRequest; i++) {
+            if (rarely()) {
+                bulkRequest.add(new DeleteRequest("_index", "_id"));
+                continue;
+            }
+            String action = randomFrom("keep", "fail", "drop", "missing_pipeline");
+            String pipelineId = action.equals("missing_pipeline") ? "_missing" : "_id";
+            IndexRequest indexRequest = new IndexRequest("_index").id("_id").setPipeline(pipelineId).setFinalPipeline("_none");
+            indexRequest.source(Requests.INDEX_CONTENT_TYPE, "action", action);
+            bulkRequest.add(indexRequest);
+            actions.put(i, action);
+        }
+
+        TestProcessor processor = new TestProcessor(null, "test", null, ingestDocument -> {
+            String action = ingestDocument.getFieldValue("action", String.class);
+            if (action.equals("fail")) {
+                throw new IllegalStateException("failed");
+            } else if (action.equals("drop")) {
+                return null;
+            }
+            ingestDocument.setFieldValue("processed", true);
+            return ingestDocument;
+        });
+        IngestService ingestService = createWithProcessors(
+            Settings.builder().put(IngestService.INGEST_BATCH_SIZE.getKey(), between(2, 16)).build(),
+            Map.of("test", (factories, tag, description, config) -> processor)
+        );
+        PutPipelineRequest putRequest = new PutPipelineRequest(
+            "_id",
+            new BytesArray("{\"processors\": [{\"test\" : {}}]}"),
+            XContentType.JSON
+        );
+        ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).build(); // Start empty
+        ClusterState previousClusterState = clusterState;
+        clusterState = IngestService.innerPut(putRequest, clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+
+        Map<Integer, Exception> failures = new HashMap<>();
+        List<Integer> dropped = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        final BiConsumer<Thread, Exception> completionHandler = mock(BiConsumer.class);
+        ingestService.executeBulkRequest(
+            numRequest,
+            bulkRequest.requests(),
+            failures::put,
+            completionHandler,
+            dropped::add,
+            Names.WRITE
+        );
+
+        verify(completionHandler, times(1)).accept(Thread.currentThread(), null);
+        for (Map.Entry<Integer, String> entry : actions.entrySet()) {
+            int slot = entry.getKey();
+            IndexRequest indexRequest = TransportBulkAction.getIndexWriteRequest(bulkRequest.requests().get(slot));
+            switch (entry.getValue()) {
+                case "keep" -> {
+                    assertThat(failures.get(slot), nullValue());
+                    assertThat(indexRequest.sourceAsMap().get("processed"), equalTo(true));
+                }
+                case "fail" -> assertThat(failures.get(slot).getCause().getMessage(), equalTo("failed"));
+                case "drop" -> {
+                    assertThat(failures.get(slot), nullValue());
+                    assertThat(dropped.contains(slot), is(true));
+                }
+                case "missing_pipeline" -> assertThat(failures.get(slot).getMessage(), containsString("does not exist"));
+                default -> throw new AssertionError(entry.getValue());
+            }
+        }
+        long notKept = actions.values().stream().filter(action -> action.equals("keep") == false).count();
+        assertThat(failures.size() + dropped.size(), equalTo((int) notKept));
+        long executed = actions.values().stream().filter(action -> action.equals("missing_pipeline") == false).count();
+        assertThat(processor.getInvokedCounter(), equalTo((int) executed));
+    }
+
     public void testStats() throws Exception {
         final Processor processor = mock(Processor.class);
         final Processor processorFailure = mock(Processor.class);
@@ -1516,6 +1600,8 @@ public class IngestServiceTests extends ESTestCase {
 
         afterFirstRequestStats.getProcessorStats().get("_id1").forEach(p -> assertEquals(p.getName(), "mock:mockTag"));
         afterFirstRequestStats.getProcessorStats().get("_id2").forEach(p -> assertEquals(p.getName(), "mock:mockTag"));
+        // profiling is disabled by default
+        afterFirstRequestStats.getProcessorStats().get("_id1").forEach(p -> assertThat(p.getProfile(), nullValue()));
 
         // total
         assertStats(afterFirstRequestStats.getTotalStats(), 1, 0, 0);
@@ -1607,6 +1693,134 @@ public class IngestServiceTests extends ESTestCase {
         assertProcessorStats(0, afterForthRequestStats, "_id2", 1, 0, 0);
     }
 
+    public void testProfiling() throws Exception {
+        final int sampleInterval = between(1, 3);
+        final int recentDocuments = between(1, 4);
+        TestProcessor processor = new TestProcessor(null, "test", null, ingestDocument -> {
+            String action = ingestDocument.getFieldValue("action", String.class);
+            if (action.equals("fail")) {
+                throw new IllegalStateException("failed");
+            } else if (action.equals("drop")) {
+                return null;
+            }
+            return ingestDocument;
+        });
+        IngestService ingestService = createWithProcessors(
+            Settings.builder()
+                .put(IngestService.INGEST_BATCH_SIZE.getKey(), between(1, 8))
+                .put(IngestService.INGEST_PROFILE_SAMPLE_INTERVAL.getKey(), sampleInterval)
+                .put(IngestService.INGEST_PROFILE_RECENT_DOCUMENTS.getKey(), recentDocuments)
+                .build(),
+            Map.of("test", (factories, tag, description, config) -> processor)
+        );
+        PutPipelineRequest putRequest = new PutPipelineRequest(
+            "_id",
+            new BytesArray("{\"processors\": [{\"test\" : {}}]}"),
+            XContentType.JSON
+        );
+        ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).build(); // Start empty
+        ClusterState previousClusterState = clusterState;
+        clusterState = IngestService.innerPut(putRequest, clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+
+        BulkRequest bulkRequest = new BulkRequest();
+        int numRequest = scaledRandomIntBetween(12, 64);
+        List<String> sampledActions = new ArrayList<>();
+        for (int i = 0; i < numRequest; i++) {
+            String action = randomFrom("keep", "fail", "drop");
+            IndexRequest indexRequest = new IndexRequest("_index").id("_id").setPipeline("_id").setFinalPipeline("_none");
+            indexRequest.source(Requests.INDEX_CONTENT_TYPE, "action", action);
+            bulkRequest.add(indexRequest);
+            if ((i + 1) % sampleInterval == 0) {
+                sampledActions.add(action);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        final BiConsumer<Thread, Exception> completionHandler = mock(BiConsumer.class);
+        ingestService.executeBulkRequest(numRequest, bulkRequest.requests(), (slot, e) -> {}, completionHandler, slot -> {}, Names.WRITE);
+        verify(completionHandler, times(1)).accept(Thread.currentThread(), null);
+
+        IngestStats.ProcessorStat processorStat = ingestService.stats().getProcessorStats().get("_id").get(0);
+        assertThat(processorStat.getStats().getIngestCount(), equalTo((long) numRequest));
+        assertProfile(processorStat.getProfile(), sampledActions);
+
+        int size = between(1, 5);
+        PlainActionFuture<ProfilePipelineResponse> future = new PlainActionFuture<>();
+        ingestService.profilePipeline("_id", size, future);
+        ProfilePipelineResponse response = future.actionGet();
+        List<String> profiledActions = sampledActions.subList(
+            sampledActions.size() - Math.min(size, recentDocuments),
+            sampledActions.size()
+        );
+        assertThat(response.getPipelineId(), equalTo("_id"));
+        assertThat(response.getDocumentCount(), equalTo(profiledActions.size()));
+        assertThat(response.getPipelineStats().getIngestCount(), equalTo((long) profiledActions.size()));
+        assertThat(response.getProcessorStats().size(), equalTo(1));
+        assertThat(response.getProcessorStats().get(0).getName(), equalTo("test"));
+        assertProfile(response.getProcessorStats().get(0).getProfile(), profiledActions);
+
+        // profiling a pipeline on demand leaves the stats of the pipeline alone
+        IngestStats.ProcessorStat afterProfileStat = ingestService.stats().getProcessorStats().get("_id").get(0);
+        assertThat(afterProfileStat.getProfile(), equalTo(processorStat.getProfile()));
+
+        expectThrows(IllegalArgumentException.class, () -> ingestService.profilePipeline("_missing", size, new PlainActionFuture<>()));
+    }
+
+    public void testProfilingKeepsDocumentsWithinMaxSize() throws Exception {
+        final int documentSize = new IndexRequest("_index").source(Requests.INDEX_CONTENT_TYPE, "action", "keep").source().length();
+        final int fittingDocuments = between(1, 4);
+        IngestService ingestService = createWithProcessors(
+            Settings.builder()
+                .put(IngestService.INGEST_PROFILE_SAMPLE_INTERVAL.getKey(), 1)
+                .put(IngestService.INGEST_PROFILE_RECENT_DOCUMENTS.getKey(), 10)
+                .put(IngestService.INGEST_PROFILE_RECENT_DOCUMENTS_MAX_SIZE.getKey(), (fittingDocuments * documentSize) + "b")
+                .build(),
+            Map.of("test", (factories, tag, description, config) -> new TestProcessor(ingestDocument -> {}))
+        );
+        PutPipelineRequest putRequest = new PutPipelineRequest(
+            "_id",
+            new BytesArray("{\"processors\": [{\"test\" : {}}]}"),
+            XContentType.JSON
+        );
+        ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).build(); // Start empty
+        ClusterState previousClusterState = clusterState;
+        clusterState = IngestService.innerPut(putRequest, clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+
+        BulkRequest bulkRequest = new BulkRequest();
+        int numRequest = between(fittingDocuments, 10);
+        for (int i = 0; i < numRequest; i++) {
+            IndexRequest indexRequest = new IndexRequest("_index").id("_id").setPipeline("_id").setFinalPipeline("_none");
+            indexRequest.source(Requests.INDEX_CONTENT_TYPE, "action", "keep");
+            bulkRequest.add(indexRequest);
+        }
+        @SuppressWarnings("unchecked")
+        final BiConsumer<Thread, Exception> completionHandler = mock(BiConsumer.class);
+        ingestService.executeBulkRequest(numRequest, bulkRequest.requests(), (slot, e) -> {}, completionHandler, slot -> {}, Names.WRITE);
+        verify(completionHandler, times(1)).accept(Thread.currentThread(), null);
+
+        // the oldest documents are dropped to stay within the max size
+        assertThat(ingestService.profiledDocumentsSizeInBytes(), equalTo((long) fittingDocuments * documentSize));
+        PlainActionFuture<ProfilePipelineResponse> future = new PlainActionFuture<>();
+        ingestService.profilePipeline("_id", 10, future);
+        assertThat(future.actionGet().getDocumentCount(), equalTo(fittingDocuments));
+
+        previousClusterState = clusterState;
+        clusterState = IngestService.innerDelete(new DeletePipelineRequest("_id"), clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+        assertThat(ingestService.profiledDocumentsSizeInBytes(), equalTo(0L));
+    }
+
+    private static void assertProfile(IngestStats.ProcessorProfile profile, List<String> actions) {
+        assertThat(profile, notNullValue());
+        assertThat(profile.getCount(), equalTo((long) actions.size()));
+        assertThat(profile.getMaxTimeInNanos(), greaterThanOrEqualTo(profile.getP50TimeInNanos()));
+        assertThat(profile.getAllocationCount(), lessThanOrEqualTo((long) actions.size()));
+        assertThat(profile.getDroppedCount(), equalTo(actions.stream().filter(action -> action.equals("drop")).count()));
+        long failed = actions.stream().filter(action -> action.equals("fail")).count();
+        assertThat(profile.getFailures(), equalTo(failed == 0 ? Map.of() : Map.of("illegal_state_exception", failed)));
+    }
+
     public void testStatName() {
         Processor processor = mock(Processor.class);
         String name = randomAlphaOfLength(10);
@@ -1717,6 +1931,7 @@ public class IngestServiceTests extends ESTestCase {
         // Create ingest service:
         Client client = mock(Client.class);
         IngestService ingestService = new IngestService(
+            Settings.EMPTY,
             mock(ClusterService.class),
             threadPool,
             null,
@@ -1952,6 +2167,7 @@ public class IngestServiceTests extends ESTestCase {
         ClusterService clusterService = mock(ClusterService.class);
         when(clusterService.state()).thenReturn(clusterState);
         IngestService ingestService = new IngestService(
+            Settings.EMPTY,
             clusterService,
             threadPool,
             null,
@@ -2151,17 +2367,22 @@ public class IngestServiceTests extends ESTestCase {
     }
 
     private static IngestService createWithProcessors(Map<String, Processor.Factory> processors) {
+        return createWithProcessors(Settings.EMPTY, processors);
+    }
+
+    private static IngestService createWithProcessors(Settings settings, Map<String, Processor.Factory> processors) {
 
         Client client = mock(Client.class);
         ThreadPool threadPool = mock(ThreadPool.class);
         when(threadPool.generic()).thenReturn(EsExecutors.DIRECT_EXECUTOR_SERVICE);
         when(threadPool.executor(anyString())).thenReturn(EsExecutors.DIRECT_EXECUTOR_SERVICE);
-        return new IngestService(mock(ClusterService.class), threadPool, null, null, null, Collections.singletonList(new IngestPlugin() {
+        IngestPlugin ingestPlugin = new IngestPlugin() {
             @Override
             public Map<String, Processor.Factory> getProcessors(final Processor.Parameters parameters) {
                 return processors;
             }
-        }), client);
+        };
+        return new IngestService(settings, mock(ClusterService.class), threadPool, null, null, null, List.of(ingestPlugin), client);
     }
 
     private CompoundProcessor mockCompoundProcessor() {
@@ -46,7 +46,8 @@ public class IngestStatsTests extends ESTestCase {
         IngestStats.ProcessorStat processor3Stat = new IngestStats.ProcessorStat(
             "processor3",
             "type",
-            new IngestStats.Stats(47, 97, 197, 297)
+            new IngestStats.Stats(47, 97, 197, 297),
+            new IngestStats.ProcessorProfile(5, 100, 200, 300, 400, 4, 4096, 1, Map.of("illegal_argument_exception", 2L))
         );
         // pipeline1 -> processor1,processor2; pipeline2 -> processor3
         return MapBuilder.<String, List<IngestStats.ProcessorStat>>newMapBuilder()
@@ -97,6 +98,7 @@ public class IngestStatsTests extends ESTestCase {
                             assertEquals("_NOT_AVAILABLE", serializedProcessorStat.getType());
                         }
                         assertStats(ps.getStats(), serializedProcessorStat.getStats());
+                        assertEquals(ps.getProfile(), serializedProcessorStat.getProfile());
                     }
                     assertFalse(it.hasNext());
                 }
@@ -25,7 +25,10 @@ import org.junit.Before;
 
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 
@@ -137,4 +140,43 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertTrue(nodeStats.containsKey("node1"));
         assertFalse(nodeStats.containsKey("node2"));
     }
+
+    public void testInFlightFeedback() {
+        final ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        final AtomicLong nowNanos = new AtomicLong(randomNonNegativeLong() / 2);
+        final ResponseCollectorService service = new ResponseCollectorService(clusterSettings, nowNanos::get);
+        service.addNodeStatistics("node1", 1, 100, 10);
+        service.addNodeStatistics("node2", 1, 100, 10);
+
+        // node1 doesn't complete the request it was sent
+        service.onRequestSent("node1");
+        nowNanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        ResponseCollectorService.ComputedNodeStats node1 = service.getNodeStatistics("node1").get();
+        ResponseCollectorService.ComputedNodeStats node2 = service.getNodeStatistics("node2").get();
+        assertThat(node1.stallTime, equalTo(0.0));
+        assertThat(node1.rank(1), equalTo(node2.rank(1)));
+
+        clusterSettings.applySettings(Settings.builder().put(ResponseCollectorService.IN_FLIGHT_FEEDBACK_SETTING.getKey(), true).build());
+        node1 = service.getNodeStatistics("node1").get();
+        node2 = service.getNodeStatistics("node2").get();
+        assertThat(node1.stallTime, equalTo((double) TimeUnit.SECONDS.toNanos(1)));
+        assertThat(node2.stallTime, equalTo(0.0));
+        assertThat(node1.rank(1), greaterThan(node2.rank(1)));
+
+        // node1 makes progress again, node2 rejects a request
+        service.onRequestCompleted("node1", false);
+        service.onRequestSent("node2");
+        service.onRequestCompleted("node2", true);
+        node1 = service.getNodeStatistics("node1").get();
+        node2 = service.getNodeStatistics("node2").get();
+        assertThat(node1.stallTime, equalTo(0.0));
+        assertThat(node2.stallTime, equalTo(0.0));
+        assertThat(node1.rejectionRate, equalTo(0.0));
+        assertThat(node2.rejectionRate, closeTo(ResponseCollectorService.ALPHA, 0.0001));
+        assertThat(node2.rank(1), greaterThan(node1.rank(1)));
+        assertThat(service.getAllNodeStatistics().get("node2").rejectionRate, equalTo(node2.rejectionRate));
+
+        clusterSettings.applySettings(Settings.EMPTY);
+        assertThat(service.getNodeStatistics("node2").get().rejectionRate, equalTo(0.0));
+    }
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.rest.columnar.ColumnarMediaType;
+import org.elasticsearch.rest.columnar.ColumnarWriterTests;
+import org.elasticsearch.search.DocValueColumns;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.metrics.InternalMax;
+import org.elasticsearch.search.aggregations.metrics.InternalStats;
+import org.elasticsearch.search.aggregations.pipeline.BucketSelectorPipelineAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.rest.FakeRestRequest;
+import org.elasticsearch.xcontent.NamedXContentRegistry;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class RestColumnarSearchResponseListenerTests extends ESTestCase {
+
+    public void testIsAccepted() {
+        assertTrue(ColumnarMediaType.isAccepted(requestWithAccept(ColumnarMediaType.CONTENT_TYPE)));
+        assertFalse(ColumnarMediaType.isAccepted(requestWithAccept("application/json")));
+        assertFalse(ColumnarMediaType.isAccepted(new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY).build()));
+    }
+
+    public void testEncodeHitsAndAggregations() throws IOException {
+        final SearchHit first = new SearchHit(1, "1", Map.of("tags", new DocumentField("tags", List.of("a", "b"))), Map.of());
+        first.score(2.0f);
+        final SearchHit second = new SearchHit(2, "2", Map.of("tags", new DocumentField("tags", List.of("a"))), Map.of());
+        second.score(1.0f);
+        // the doc values are returned column by column
+        final DocValueColumns docValueColumns = new DocValueColumns();
+        docValueColumns.column("price").add(10L);
+        docValueColumns.column("sizes");
+        docValueColumns.endRow();
+        docValueColumns.column("sizes").add(1L).add(2L);
+        docValueColumns.endRow();
+        final SearchHits hits = new SearchHits(
+            new SearchHit[] { first, second },
+            new TotalHits(2, TotalHits.Relation.EQUAL_TO),
+            2.0f,
+            docValueColumns
+        );
+
+        final InternalAggregations bucketAggs = InternalAggregations.from(
+            List.of(new InternalMax("max_price", 10, DocValueFormat.RAW, null))
+        );
+        final StringTerms terms = new StringTerms(
+            "tags",
+            BucketOrder.key(true),
+            BucketOrder.count(false),
+            10,
+            1,
+            null,
+            DocValueFormat.RAW,
+            10,
+            false,
+            0,
+            List.of(
+                new StringTerms.Bucket(new BytesRef("a"), 2, bucketAggs, false, 0, DocValueFormat.RAW),
+                new StringTerms.Bucket(new BytesRef("b"), 1, bucketAggs, false, 0, DocValueFormat.RAW)
+            ),
+            null
+        );
+        final InternalAggregation max = new InternalMax("max", 10, DocValueFormat.RAW, null);
+
+        final Map<String, Map<String, List<List<Object>>>> tables = ColumnarWriterTests.read(
+            RestColumnarSearchResponseListener.encode(searchResponse(hits, InternalAggregations.from(List.of(terms, max))))
+        );
+        assertThat(tables.keySet(), contains("response", "hits", "tags", "max"));
+
+        final Map<String, List<List<Object>>> response = tables.get("response");
+        assertThat(response.get("total_hits"), equalTo(List.of(List.of(2L))));
+        assertThat(response.get("total_hits_relation"), equalTo(List.of(List.of("eq"))));
+        assertThat(response.get("timed_out"), equalTo(List.of(List.of(false))));
+
+        final Map<String, List<List<Object>>> hitsTable = tables.get("hits");
+        assertThat(hitsTable.get("_id"), equalTo(List.of(List.of("1"), List.of("2"))));
+        assertThat(hitsTable.get("_score"), equalTo(List.of(List.of(2.0d), List.of(1.0d))));
+        assertThat(hitsTable.keySet(), contains("_index", "_id", "_score", "price", "sizes", "tags"));
+        assertThat(hitsTable.get("price"), equalTo(List.of(List.of(10L), List.of())));
+        assertThat(hitsTable.get("sizes"), equalTo(List.of(List.of(), List.of(1L, 2L))));
+        assertThat(hitsTable.get("tags"), equalTo(List.of(List.of("a", "b"), List.of("a"))));
+
+        final Map<String, List<List<Object>>> termsTable = tables.get("tags");
+        assertThat(termsTable.get("key"), equalTo(List.of(List.of("a"), List.of("b"))));
+        assertThat(termsTable.get("doc_count"), equalTo(List.of(List.of(2L), List.of(1L))));
+        assertThat(termsTable.get("max_price"), equalTo(List.of(List.of(10d), List.of(10d))));
+
+        assertThat(tables.get("max").get("value"), equalTo(List.of(List.of(10d))));
+    }
+
+    public void testRejectsUnsupportedAggregations() {
+        final InternalStats stats = new InternalStats("stats", 1, 1, 1, 1, DocValueFormat.RAW, null);
+        final SearchHits hits = new SearchHits(new SearchHit[0], new TotalHits(0, TotalHits.Relation.EQUAL_TO), Float.NaN);
+        final IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> RestColumnarSearchResponseListener.encode(searchResponse(hits, InternalAggregations.from(List.of(stats))))
+        );
+        assertThat(e.getMessage(), containsString("aggregation [stats] of type [stats] can't be returned"));
+    }
+
+    public void testValidateRejectsUnsupportedAggregations() {
+        assertValidationFails(
+            new SearchSourceBuilder().aggregation(AggregationBuilders.stats("stats").field("price")),
+            "aggregation [stats] of type [stats] can't be returned"
+        );
+        assertValidationFails(
+            new SearchSourceBuilder().aggregation(AggregationBuilders.filter("filter", new MatchAllQueryBuilder())),
+            "aggregation [filter] of type [filter] can't be returned"
+        );
+        assertValidationFails(
+            new SearchSourceBuilder().aggregation(
+                AggregationBuilders.terms("tags").field("tags").subAggregation(AggregationBuilders.percentiles("p").field("price"))
+            ),
+            "aggregation [p] of type [percentiles] can't be returned"
+        );
+    }
+
+    public void testValidateRejectsCollidingNames() {
+        assertValidationFails(new SearchSourceBuilder().docValueField("_id"), "field [_id] can't be returned");
+        assertValidationFails(
+            new SearchSourceBuilder().fetchField("_score"),
+            "because the hits have a metadata column with the same name"
+        );
+        final String subAggregation = randomFrom("key", "doc_count");
+        assertValidationFails(
+            new SearchSourceBuilder().aggregation(
+                AggregationBuilders.terms("tags").field("tags").subAggregation(AggregationBuilders.max(subAggregation).field("price"))
+            ),
+            "more than one of its columns would be named [" + subAggregation + "]"
+        );
+        assertValidationFails(
+            new SearchSourceBuilder().aggregation(
+                new CompositeAggregationBuilder("composite", List.of(new TermsValuesSourceBuilder("max").field("tags"))).subAggregation(
+                    AggregationBuilders.max("max").field("price")
+                )
+            ),
+            "more than one of its columns would be named [max]"
+        );
+        assertValidationFails(
+            new SearchSourceBuilder().aggregation(AggregationBuilders.max(randomFrom("response", "hits")).field("price")),
+            "because the response has another table with the same name"
+        );
+        assertValidationFails(
+            new SearchSourceBuilder().aggregation(
+                new CompositeAggregationBuilder("composite", List.of(new TermsValuesSourceBuilder("tags").field("tags")))
+            ).aggregation(AggregationBuilders.max("composite.after_key").field("price")),
+            "because the response has another table with the same name"
+        );
+    }
+
+    public void testValidateAcceptsSupportedRequests() {
+        RestColumnarSearchResponseListener.validate(new SearchRequest());
+        RestColumnarSearchResponseListener.validate(
+            new SearchRequest().source(
+                new SearchSourceBuilder().docValueField("price")
+                    .fetchField("tags")
+                    .aggregation(AggregationBuilders.max("max").field("price"))
+                    .aggregation(
+                        AggregationBuilders.terms("tags")
+                            .field("tags")
+                            .subAggregation(AggregationBuilders.avg("avg").field("price"))
+                            .subAggregation(new BucketSelectorPipelineAggregationBuilder("selector", mockScript("s"), "avg"))
+                    )
+                    .aggregation(
+                        new CompositeAggregationBuilder("composite", List.of(new TermsValuesSourceBuilder("key").field("tags")))
+                            .subAggregation(AggregationBuilders.sum("sum").field("price"))
+                    )
+            )
+        );
+    }
+
+    private static void assertValidationFails(SearchSourceBuilder source, String message) {
+        final IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> RestColumnarSearchResponseListener.validate(new SearchRequest().source(source))
+        );
+        assertThat(e.getMessage(), containsString(message));
+    }
+
+    private static SearchResponse searchResponse(SearchHits hits, InternalAggregations aggregations) {
+        return new SearchResponse(
+            new InternalSearchResponse(hits, aggregations, null, null, false, null, 1),
+            null,
+            1,
+            1,
+            0,
+            0,
+            ShardSearchFailure.EMPTY_ARRAY,
+            SearchResponse.Clusters.EMPTY
+        );
+    }
+
+    private static FakeRestRequest requestWithAccept(String accept) {
+        return new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY).withHeaders(Map.of("Accept", List.of(accept))).build();
+    }
+}
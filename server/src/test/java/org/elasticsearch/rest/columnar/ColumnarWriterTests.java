@@ -0,0 +1,161 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest.columnar;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ColumnarWriterTests extends ESTestCase {
+
+    public void testEmpty() throws IOException {
+        assertThat(read(new ColumnarWriter().bytes()), equalTo(Map.of()));
+    }
+
+    public void testColumnTypes() throws IOException {
+        final ColumnarWriter writer = new ColumnarWriter();
+        final ColumnarWriter.Table table = writer.newTable("table");
+        table.add("long", 1).add("double", 1).add("boolean", true).add("keyword", "a").add("mixed", 1).add("unsigned", 1L);
+        table.endRow();
+        table.add("long", 2L).add("double", 2.5f).add("boolean", false).add("keyword", "b").add("mixed", false);
+        table.add("unsigned", BigInteger.ONE.shiftLeft(63));
+        table.endRow();
+        table.add("long", (short) 3).add("double", 3.5d).add("boolean", true).add("keyword", "a").add("mixed", "c").add("unsigned", 3);
+        table.endRow();
+        assertThat(table.rows(), equalTo(3));
+
+        final Map<String, Map<String, List<List<Object>>>> tables = read(writer.bytes());
+        final Map<String, List<List<Object>>> columns = tables.get("table");
+        assertThat(columns.keySet(), contains("long", "double", "boolean", "keyword", "mixed", "unsigned"));
+        assertThat(columns.get("long"), equalTo(List.of(List.of(1L), List.of(2L), List.of(3L))));
+        assertThat(columns.get("double"), equalTo(List.of(List.of(1d), List.of(2.5d), List.of(3.5d))));
+        assertThat(columns.get("boolean"), equalTo(List.of(List.of(true), List.of(false), List.of(true))));
+        assertThat(columns.get("keyword"), equalTo(List.of(List.of("a"), List.of("b"), List.of("a"))));
+        assertThat(columns.get("mixed"), equalTo(List.of(List.of("1"), List.of("false"), List.of("c"))));
+        assertThat(columns.get("unsigned"), equalTo(List.of(List.of(1d), List.of(Math.pow(2, 63)), List.of(3d))));
+    }
+
+    public void testMissingAndMultiValues() throws IOException {
+        final ColumnarWriter writer = new ColumnarWriter();
+        final ColumnarWriter.Table table = writer.newTable("table");
+        table.add("a", 1).add("a", 2);
+        table.endRow();
+        table.add("a", null);
+        table.endRow();
+        table.add("b", "x").add("a", 3);
+        table.endRow();
+        table.endRow();
+        table.column("empty").add(null);
+
+        final Map<String, List<List<Object>>> columns = read(writer.bytes()).get("table");
+        assertThat(columns.get("a"), equalTo(List.of(List.of(1L, 2L), List.of(), List.of(3L), List.of())));
+        assertThat(columns.get("b"), equalTo(List.of(List.of(), List.of(), List.of("x"), List.of())));
+        assertThat(columns.get("empty"), equalTo(List.of(List.of(), List.of(), List.of(), List.of())));
+    }
+
+    public void testRandomKeywords() throws IOException {
+        final ColumnarWriter writer = new ColumnarWriter();
+        final ColumnarWriter.Table table = writer.newTable(randomAlphaOfLength(5));
+        final List<List<Object>> expected = new ArrayList<>();
+        final int numRows = randomIntBetween(1, 1000);
+        for (int row = 0; row < numRows; row++) {
+            final List<Object> values = new ArrayList<>();
+            final int numValues = randomIntBetween(0, 3);
+            for (int v = 0; v < numValues; v++) {
+                final String value = randomAlphaOfLength(1);
+                values.add(value);
+                table.add("keyword", value);
+            }
+            expected.add(values);
+            table.endRow();
+        }
+        final Map<String, List<List<Object>>> columns = read(writer.bytes()).values().iterator().next();
+        if (expected.stream().allMatch(List::isEmpty)) {
+            assertTrue(columns.isEmpty());
+        } else {
+            assertThat(columns.get("keyword"), equalTo(expected));
+        }
+    }
+
+    /**
+     * Decodes the tables of the columnar format into maps of column names to the values of every row.
+     */
+    public static Map<String, Map<String, List<List<Object>>>> read(BytesReference bytes) throws IOException {
+        final Map<String, Map<String, List<List<Object>>>> tables = new LinkedHashMap<>();
+        try (StreamInput in = bytes.streamInput()) {
+            final byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+            in.readBytes(magic, 0, magic.length);
+            assertArrayEquals(ColumnarWriter.MAGIC, magic);
+            assertEquals(ColumnarWriter.VERSION, in.readByte());
+            final int numTables = in.readVInt();
+            for (int t = 0; t < numTables; t++) {
+                final String name = in.readString();
+                final int rows = in.readVInt();
+                final int numColumns = in.readVInt();
+                final Map<String, List<List<Object>>> columns = new LinkedHashMap<>();
+                for (int c = 0; c < numColumns; c++) {
+                    final String column = in.readString();
+                    final byte type = in.readByte();
+                    final int[] valueCounts = new int[rows];
+                    int numValues = 0;
+                    for (int row = 0; row < rows; row++) {
+                        valueCounts[row] = in.readVInt();
+                        numValues += valueCounts[row];
+                    }
+                    final List<Object> values = new ArrayList<>(numValues);
+                    switch (type) {
+                        case ColumnarWriter.TYPE_NULL -> {}
+                        case ColumnarWriter.TYPE_LONG -> {
+                            for (int v = 0; v < numValues; v++) {
+                                values.add(in.readLong());
+                            }
+                        }
+                        case ColumnarWriter.TYPE_DOUBLE -> {
+                            for (int v = 0; v < numValues; v++) {
+                                values.add(in.readDouble());
+                            }
+                        }
+                        case ColumnarWriter.TYPE_BOOLEAN -> {
+                            final byte[] bits = in.readByteArray();
+                            for (int v = 0; v < numValues; v++) {
+                                values.add((bits[v >>> 3] & (1 << (v & 7))) != 0);
+                            }
+                        }
+                        case ColumnarWriter.TYPE_KEYWORD -> {
+                            final List<String> dictionary = in.readStringList();
+                            for (int v = 0; v < numValues; v++) {
+                                values.add(dictionary.get(in.readVInt()));
+                            }
+                        }
+                        default -> throw new AssertionError("unknown type [" + type + "]");
+                    }
+                    final List<List<Object>> perRow = new ArrayList<>(rows);
+                    int offset = 0;
+                    for (int row = 0; row < rows; row++) {
+                        perRow.add(values.subList(offset, offset + valueCounts[row]));
+                        offset += valueCounts[row];
+                    }
+                    columns.put(column, perRow);
+                }
+                tables.put(name, columns);
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search;
+
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+public class DocValueColumnsTests extends ESTestCase {
+
+    public void testCopyRow() {
+        DocValueColumns columns = new DocValueColumns();
+        columns.column("number").add(1L);
+        columns.endRow();
+        columns.column("tags").add("a").add("b");
+        columns.endRow();
+        columns.column("number").add(3L).add(4L);
+        columns.endRow();
+
+        DocValueColumns reversed = new DocValueColumns();
+        for (int row = columns.rows() - 1; row >= 0; row--) {
+            reversed.copyRow(columns, row);
+        }
+        assertThat(reversed.rows(), equalTo(3));
+        assertThat(reversed.columns().stream().map(DocValueColumns.Column::name).toList(), contains("number", "tags"));
+        DocValueColumns.Column number = reversed.column("number");
+        DocValueColumns.Column tags = reversed.column("tags");
+        assertThat(values(number, 0), equalTo(List.of(3L, 4L)));
+        assertThat(values(tags, 0), equalTo(List.of()));
+        assertThat(values(number, 1), equalTo(List.of()));
+        assertThat(values(tags, 1), equalTo(List.of("a", "b")));
+        assertThat(values(number, 2), equalTo(List.of(1L)));
+        assertThat(values(tags, 2), equalTo(List.of()));
+    }
+
+    public void testSerialization() throws IOException {
+        DocValueColumns columns = randomColumns();
+        DocValueColumns copy = copyWriteable(columns, new NamedWriteableRegistry(List.of()), DocValueColumns::new);
+        assertThat(copy, equalTo(columns));
+        assertThat(copy.hashCode(), equalTo(columns.hashCode()));
+    }
+
+    private static DocValueColumns randomColumns() {
+        DocValueColumns columns = new DocValueColumns();
+        int numRows = between(0, 20);
+        List<String> names = randomList(1, 5, () -> randomAlphaOfLength(5));
+        for (int row = 0; row < numRows; row++) {
+            for (String name : names) {
+                int numValues = between(0, 3);
+                for (int v = 0; v < numValues; v++) {
+                    columns.column(name).add(randomBoolean() ? randomLong() : randomAlphaOfLength(3));
+                }
+            }
+            columns.endRow();
+        }
+        return columns;
+    }
+
+    static List<Object> values(DocValueColumns.Column column, int row) {
+        List<Object> values = new ArrayList<>();
+        int offset = column.offset(row);
+        for (int v = 0; v < column.valueCount(row); v++) {
+            values.add(column.value(offset + v));
+        }
+        return values;
+    }
+}
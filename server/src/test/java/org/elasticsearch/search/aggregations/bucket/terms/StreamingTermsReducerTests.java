@@ -0,0 +1,288 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.AggregationReduceContext;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class StreamingTermsReducerTests extends ESTestCase {
+
+    private static BigArrays bigArrays() {
+        return new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), ByteSizeValue.ofMb(100));
+    }
+
+    public void testCanStream() {
+        assertFalse(StreamingTermsReducer.canStream(null));
+        assertFalse(StreamingTermsReducer.canStream(new AggregatorFactories.Builder()));
+        assertTrue(
+            StreamingTermsReducer.canStream(
+                new AggregatorFactories.Builder().addAggregator(AggregationBuilders.terms("a"))
+                    .addAggregator(AggregationBuilders.terms("b"))
+            )
+        );
+        assertFalse(
+            StreamingTermsReducer.canStream(
+                new AggregatorFactories.Builder().addAggregator(AggregationBuilders.terms("a").subAggregation(AggregationBuilders.max("m")))
+            )
+        );
+        assertFalse(
+            StreamingTermsReducer.canStream(
+                new AggregatorFactories.Builder().addAggregator(AggregationBuilders.terms("a")).addAggregator(AggregationBuilders.max("m"))
+            )
+        );
+    }
+
+    public void testMergeMatchesPartialReduce() {
+        final long seed = randomLong();
+        final int numResults = randomIntBetween(2, 50);
+        final boolean longTerms = randomBoolean();
+        final int shardSize = randomIntBetween(1, 20);
+        final int cardinality = randomIntBetween(1, 200);
+        final List<InternalAggregations> expected = randomResults(new Random(seed), numResults, longTerms, shardSize, cardinality, true);
+        final List<InternalAggregations> actual = randomResults(new Random(seed), numResults, longTerms, shardSize, cardinality, true);
+
+        try (StreamingTermsReducer reducer = new StreamingTermsReducer(bigArrays())) {
+            assertTrue(reducer.isEmpty());
+            assertNull(reducer.toPartialResult());
+            for (InternalAggregations aggs : actual) {
+                assertTrue(reducer.accept(aggs));
+            }
+            assertFalse(reducer.isEmpty());
+            assertThat(reducer.ramBytesUsed(), greaterThan(0L));
+
+            final InternalAggregations reduced = InternalAggregations.topLevelReduce(
+                expected,
+                new AggregationReduceContext.ForPartial(BigArrays.NON_RECYCLING_INSTANCE, null, () -> false)
+            );
+            final InternalAggregations streamed = reducer.toPartialResult();
+            for (String name : List.of("first", "second")) {
+                assertThat(streamed.get(name), equalTo(reduced.get(name)));
+            }
+        }
+    }
+
+    public void testSingleResultIsReturnedAsIs() {
+        final InternalAggregations aggs = randomResults(random(), 1, randomBoolean(), 10, 100, false).get(0);
+        try (StreamingTermsReducer reducer = new StreamingTermsReducer(bigArrays())) {
+            assertTrue(reducer.accept(aggs));
+            assertThat(reducer.toPartialResult().get("first"), sameInstance(aggs.get("first")));
+        }
+    }
+
+    public void testUnmappedResults() {
+        try (StreamingTermsReducer reducer = new StreamingTermsReducer(bigArrays())) {
+            final int numResults = randomIntBetween(1, 5);
+            for (int i = 0; i < numResults; i++) {
+                assertTrue(reducer.accept(InternalAggregations.from(List.of(unmapped("first")))));
+            }
+            assertThat(reducer.toPartialResult().get("first"), equalTo(unmapped("first")));
+            assertThat(reducer.ramBytesUsed(), equalTo(0L));
+
+            final StringTerms mapped = (StringTerms) randomResults(random(), 1, false, 10, 100, false).get(0).get("first");
+            assertTrue(reducer.accept(InternalAggregations.from(List.of(mapped))));
+            final StringTerms merged = (StringTerms) reducer.toPartialResult().get("first");
+            assertThat(merged.getBuckets().size(), equalTo(mapped.getBuckets().size()));
+            for (int i = 0; i < mapped.getBuckets().size(); i++) {
+                assertThat(merged.getBuckets().get(i).getKey(), equalTo(mapped.getBuckets().get(i).getKey()));
+                assertThat(merged.getBuckets().get(i).getDocCount(), equalTo(mapped.getBuckets().get(i).getDocCount()));
+            }
+        }
+    }
+
+    public void testRejectsResultsThatCantBeStreamed() {
+        try (StreamingTermsReducer reducer = new StreamingTermsReducer(bigArrays())) {
+            final InternalAggregations strings = randomResults(random(), 1, false, 10, 100, false).get(0);
+            assertTrue(reducer.accept(strings));
+            final long ramBytesUsed = reducer.ramBytesUsed();
+
+            // mixed field types
+            final InternalAggregations longs = randomResults(random(), 1, true, 10, 100, false).get(0);
+            assertFalse(reducer.accept(longs));
+
+            // a shard result with sub-aggregations, the first aggregation of the result must not be merged either
+            final StringTerms first = (StringTerms) randomResults(random(), 1, false, 10, 100, false).get(0).get("first");
+            final List<StringTerms.Bucket> buckets = new ArrayList<>();
+            buckets.add(
+                new StringTerms.Bucket(
+                    new BytesRef("a"),
+                    1,
+                    InternalAggregations.from(List.of(unmapped("sub"))),
+                    true,
+                    0,
+                    DocValueFormat.RAW
+                )
+            );
+            assertFalse(reducer.accept(InternalAggregations.from(List.of(first, stringTerms("second", buckets, 10, true)))));
+
+            // double terms
+            final List<DoubleTerms.Bucket> doubleBuckets = List.of(
+                new DoubleTerms.Bucket(1.0, 1, InternalAggregations.EMPTY, true, 0, DocValueFormat.RAW)
+            );
+            assertFalse(
+                reducer.accept(
+                    InternalAggregations.from(
+                        List.of(
+                            new DoubleTerms(
+                                "first",
+                                BucketOrder.key(true),
+                                BucketOrder.count(false),
+                                10,
+                                1,
+                                null,
+                                DocValueFormat.RAW,
+                                10,
+                                true,
+                                0,
+                                doubleBuckets,
+                                null
+                            )
+                        )
+                    )
+                )
+            );
+            assertThat(reducer.ramBytesUsed(), equalTo(ramBytesUsed));
+            assertThat(reducer.toPartialResult().get("first"), sameInstance(strings.get("first")));
+        }
+    }
+
+    private static List<InternalAggregations> randomResults(
+        Random random,
+        int numResults,
+        boolean longTerms,
+        int shardSize,
+        int cardinality,
+        boolean withUnmapped
+    ) {
+        final boolean showDocCountError = random.nextBoolean();
+        final List<InternalAggregations> results = new ArrayList<>(numResults);
+        for (int i = 0; i < numResults; i++) {
+            final List<InternalAggregation> aggs = new ArrayList<>();
+            for (String name : List.of("first", "second")) {
+                if (withUnmapped && random.nextInt(10) == 0) {
+                    aggs.add(unmapped(name));
+                    continue;
+                }
+                final TreeSet<Long> keys = new TreeSet<>();
+                final int numBuckets = random.nextInt(shardSize + 1);
+                for (int b = 0; b < numBuckets; b++) {
+                    keys.add((long) random.nextInt(cardinality));
+                }
+                final long otherDocCount = random.nextBoolean() ? 0 : random.nextInt(1000);
+                if (longTerms) {
+                    final List<LongTerms.Bucket> buckets = new ArrayList<>();
+                    for (long key : keys) {
+                        final long docCountError = showDocCountError ? random.nextInt(3) : 0;
+                        buckets.add(
+                            new LongTerms.Bucket(
+                                key,
+                                1 + random.nextInt(1000),
+                                InternalAggregations.EMPTY,
+                                showDocCountError,
+                                docCountError,
+                                DocValueFormat.RAW
+                            )
+                        );
+                    }
+                    aggs.add(
+                        new LongTerms(
+                            name,
+                            BucketOrder.key(true),
+                            BucketOrder.count(false),
+                            shardSize,
+                            1,
+                            null,
+                            DocValueFormat.RAW,
+                            shardSize,
+                            showDocCountError,
+                            otherDocCount,
+                            buckets,
+                            random.nextBoolean() ? null : (long) random.nextInt(10)
+                        )
+                    );
+                } else {
+                    final List<StringTerms.Bucket> buckets = new ArrayList<>();
+                    // sorted by their string representation, which is the order of the keys of string terms
+                    final TreeSet<BytesRef> terms = new TreeSet<>();
+                    for (long key : keys) {
+                        terms.add(new BytesRef(Long.toString(key)));
+                    }
+                    for (BytesRef term : terms) {
+                        final long docCountError = showDocCountError ? random.nextInt(3) : 0;
+                        buckets.add(
+                            new StringTerms.Bucket(
+                                term,
+                                1 + random.nextInt(1000),
+                                InternalAggregations.EMPTY,
+                                showDocCountError,
+                                docCountError,
+                                DocValueFormat.RAW
+                            )
+                        );
+                    }
+                    aggs.add(stringTerms(name, buckets, shardSize, showDocCountError, otherDocCount));
+                }
+            }
+            results.add(InternalAggregations.from(aggs));
+        }
+        return results;
+    }
+
+    private static StringTerms stringTerms(String name, List<StringTerms.Bucket> buckets, int shardSize, boolean showDocCountError) {
+        return stringTerms(name, buckets, shardSize, showDocCountError, 0);
+    }
+
+    private static StringTerms stringTerms(
+        String name,
+        List<StringTerms.Bucket> buckets,
+        int shardSize,
+        boolean showDocCountError,
+        long otherDocCount
+    ) {
+        return new StringTerms(
+            name,
+            BucketOrder.key(true),
+            BucketOrder.count(false),
+            shardSize,
+            1,
+            null,
+            DocValueFormat.RAW,
+            shardSize,
+            showDocCountError,
+            otherDocCount,
+            buckets,
+            null
+        );
+    }
+
+    private static UnmappedTerms unmapped(String name) {
+        return new UnmappedTerms(name, BucketOrder.count(false), 10, 1, Collections.emptyMap());
+    }
+}
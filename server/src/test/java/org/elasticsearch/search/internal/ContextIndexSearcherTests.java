@@ -27,6 +27,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
@@ -40,6 +41,7 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Accountable;
@@ -63,9 +65,15 @@ import org.elasticsearch.test.IndexSettingsModule;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.elasticsearch.search.internal.ContextIndexSearcher.intersectScorerAndBitSet;
 import static org.elasticsearch.search.internal.ExitableDirectoryReader.ExitableLeafReader;
@@ -73,6 +81,7 @@ import static org.elasticsearch.search.internal.ExitableDirectoryReader.Exitable
 import static org.elasticsearch.search.internal.ExitableDirectoryReader.ExitableTerms;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class ContextIndexSearcherTests extends ESTestCase {
     public void testIntersectScorerAndRoleBits() throws Exception {
@@ -271,6 +280,91 @@ public class ContextIndexSearcherTests extends ESTestCase {
         IOUtils.close(reader, w, dir);
     }
 
+    public void testComputeSlices() throws IOException {
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+                int numSegments = randomIntBetween(1, 20);
+                for (int i = 0; i < numSegments; i++) {
+                    int numDocs = randomIntBetween(1, 50);
+                    for (int j = 0; j < numDocs; j++) {
+                        w.addDocument(new Document());
+                    }
+                    w.flush();
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                int maxSliceCount = randomIntBetween(1, 10);
+                List<List<LeafReaderContext>> slices = ContextIndexSearcher.computeSlices(reader.leaves(), maxSliceCount);
+                assertThat(slices.size(), equalTo(Math.min(maxSliceCount, reader.leaves().size())));
+                Set<LeafReaderContext> seen = new HashSet<>();
+                for (List<LeafReaderContext> slice : slices) {
+                    assertFalse(slice.isEmpty());
+                    for (int i = 0; i < slice.size(); i++) {
+                        assertTrue(seen.add(slice.get(i)));
+                        if (i > 0) {
+                            assertThat(slice.get(i - 1).ord, lessThanOrEqualTo(slice.get(i).ord));
+                        }
+                    }
+                }
+                assertEquals(reader.leaves().size(), seen.size());
+            }
+        }
+        assertTrue(ContextIndexSearcher.computeSlices(List.of(), randomIntBetween(1, 10)).isEmpty());
+    }
+
+    public void testConcurrentSearch() throws IOException {
+        try (Directory dir = newDirectory()) {
+            int numDocs = 0;
+            try (IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+                int numSegments = randomIntBetween(2, 10);
+                for (int i = 0; i < numSegments; i++) {
+                    int segmentDocs = randomIntBetween(1, 100);
+                    for (int j = 0; j < segmentDocs; j++) {
+                        Document doc = new Document();
+                        doc.add(new StringField("foo", j % 2 == 0 ? "bar" : "baz", Field.Store.NO));
+                        w.addDocument(doc);
+                        if (j % 2 == 0) {
+                            numDocs++;
+                        }
+                    }
+                    w.flush();
+                }
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                ContextIndexSearcher searcher = new ContextIndexSearcher(
+                    reader,
+                    IndexSearcher.getDefaultSimilarity(),
+                    IndexSearcher.getDefaultQueryCache(),
+                    IndexSearcher.getDefaultQueryCachingPolicy(),
+                    randomBoolean(),
+                    randomBoolean() ? executor : r -> { throw new RejectedExecutionException(); },
+                    randomIntBetween(2, 8)
+                );
+                assertTrue(searcher.isConcurrentSearchEnabled());
+                CollectorManager<TotalHitCountCollector, Integer> collectorManager = new CollectorManager<>() {
+                    @Override
+                    public TotalHitCountCollector newCollector() {
+                        return new TotalHitCountCollector();
+                    }
+
+                    @Override
+                    public Integer reduce(Collection<TotalHitCountCollector> collectors) {
+                        assertThat(collectors.size(), lessThanOrEqualTo(reader.leaves().size()));
+                        int total = 0;
+                        for (TotalHitCountCollector collector : collectors) {
+                            total += collector.getTotalHits();
+                        }
+                        return total;
+                    }
+                };
+                assertEquals(numDocs, searcher.search(new TermQuery(new Term("foo", "bar")), collectorManager).intValue());
+            } finally {
+                terminate(executor);
+            }
+        }
+    }
+
     private SparseFixedBitSet query(LeafReaderContext leaf, String field, String value) throws IOException {
         SparseFixedBitSet sparseFixedBitSet = new SparseFixedBitSet(leaf.reader().maxDoc());
         TermsEnum tenum = leaf.reader().terms(field).iterator();
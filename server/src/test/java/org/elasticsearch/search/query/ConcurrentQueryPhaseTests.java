@@ -0,0 +1,312 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.Avg;
+import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.sort.SortAndFormats;
+import org.elasticsearch.test.TestSearchContext;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the same requests through the query phase with a sequential and a concurrent searcher and checks that they produce the same
+ * shard results.
+ */
+public class ConcurrentQueryPhaseTests extends AggregatorTestCase {
+
+    private static final String KEYWORD_FIELD = "keyword";
+    private static final String NUMBER_FIELD = "number";
+
+    private Directory dir;
+    private DirectoryReader reader;
+    private ExecutorService executor;
+    private ThreadPool threadPool;
+    private IndexShard indexShard;
+
+    @Before
+    public void setUpIndex() throws IOException {
+        dir = newDirectory();
+        try (IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            int numSegments = randomIntBetween(2, 10);
+            for (int i = 0; i < numSegments; i++) {
+                int numDocs = randomIntBetween(1, 200);
+                for (int j = 0; j < numDocs; j++) {
+                    Document doc = new Document();
+                    String term = "t" + randomIntBetween(0, 9);
+                    doc.add(new StringField(KEYWORD_FIELD, term, Field.Store.NO));
+                    doc.add(new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef(term)));
+                    doc.add(new SortedNumericDocValuesField(NUMBER_FIELD, randomLongBetween(-1000, 1000)));
+                    w.addDocument(doc);
+                }
+                w.flush();
+            }
+        }
+        reader = DirectoryReader.open(dir);
+        executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        threadPool = new TestThreadPool(getTestName());
+        indexShard = mock(IndexShard.class);
+        when(indexShard.getThreadPool()).thenReturn(threadPool);
+        when(indexShard.shardId()).thenReturn(new ShardId("index", "_na_", 0));
+    }
+
+    @After
+    public void closeIndex() throws IOException {
+        IOUtils.close(reader, dir);
+        terminate(executor);
+        terminate(threadPool);
+    }
+
+    public void testAggregationsMatchSequentialSearch() throws IOException {
+        final Query query = randomQuery();
+        final int trackTotalHitsUpTo = randomTrackTotalHitsUpTo();
+        final SortAndFormats sort = randomBoolean() ? numberSort() : null;
+
+        final TestSearchContext sequential = newContext(false);
+        sequential.trackTotalHitsUpTo(trackTotalHitsUpTo);
+        sequential.sort(sort);
+        final QuerySearchResult expected = search(sequential, query, false);
+
+        final TestSearchContext concurrent = newContext(true);
+        concurrent.trackTotalHitsUpTo(trackTotalHitsUpTo);
+        concurrent.sort(sort);
+        final QuerySearchResult actual = search(concurrent, query, true);
+
+        assertSameAggregations(expected.aggregations().expand(), actual.aggregations().expand());
+        assertSameTotalHits(expected.topDocs().topDocs.totalHits, actual.topDocs().topDocs.totalHits, trackTotalHitsUpTo);
+        assertThat(actual.topDocs().topDocs.scoreDocs.length, equalTo(0));
+        if (sort != null) {
+            assertThat(actual.topDocs().topDocs, instanceOf(TopFieldDocs.class));
+            assertArrayEquals(((TopFieldDocs) expected.topDocs().topDocs).fields, ((TopFieldDocs) actual.topDocs().topDocs).fields);
+        }
+        assertFalse(actual.searchTimedOut());
+    }
+
+    public void testSortedTopDocsMatchSequentialSearch() throws IOException {
+        final Query query = randomQuery();
+        final int size = randomIntBetween(1, 50);
+        final boolean withAggregations = randomBoolean();
+
+        final TestSearchContext sequential = newContext(false);
+        sequential.size(size);
+        sequential.sort(numberSort());
+        final QuerySearchResult expected = search(sequential, query, false, withAggregations);
+
+        // requests that return hits are searched sequentially even if the searcher could search concurrently
+        final TestSearchContext concurrent = newContext(true);
+        concurrent.size(size);
+        concurrent.sort(numberSort());
+        final QuerySearchResult actual = search(concurrent, query, false, withAggregations);
+
+        final TopDocs expectedTopDocs = expected.topDocs().topDocs;
+        final TopDocs actualTopDocs = actual.topDocs().topDocs;
+        assertThat(actualTopDocs.totalHits, equalTo(expectedTopDocs.totalHits));
+        assertThat(actualTopDocs.scoreDocs.length, equalTo(expectedTopDocs.scoreDocs.length));
+        for (int i = 0; i < expectedTopDocs.scoreDocs.length; i++) {
+            final ScoreDoc expectedDoc = expectedTopDocs.scoreDocs[i];
+            final ScoreDoc actualDoc = actualTopDocs.scoreDocs[i];
+            assertThat(actualDoc.doc, equalTo(expectedDoc.doc));
+            assertArrayEquals(((FieldDoc) expectedDoc).fields, ((FieldDoc) actualDoc).fields);
+        }
+        if (withAggregations) {
+            assertSameAggregations(expected.aggregations().expand(), actual.aggregations().expand());
+        }
+    }
+
+    public void testTerminateAfterMatchesSequentialSearch() throws IOException {
+        final Query query = randomQuery();
+        final int terminateAfter = randomIntBetween(1, reader.maxDoc() + 10);
+
+        final TestSearchContext sequential = newContext(false);
+        sequential.terminateAfter(terminateAfter);
+        final QuerySearchResult expected = search(sequential, query, false);
+
+        // terminate_after depends on the order of collection, so these requests are searched sequentially
+        final TestSearchContext concurrent = newContext(true);
+        concurrent.terminateAfter(terminateAfter);
+        final QuerySearchResult actual = search(concurrent, query, false);
+
+        assertThat(actual.terminatedEarly(), equalTo(expected.terminatedEarly()));
+        assertThat(actual.topDocs().topDocs.totalHits, equalTo(expected.topDocs().topDocs.totalHits));
+        assertSameAggregations(expected.aggregations().expand(), actual.aggregations().expand());
+    }
+
+    public void testTimeoutMatchesSequentialSearch() throws IOException {
+        final Query query = randomQuery();
+        // every read of the clock after the start of the search is past the timeout
+        final QuerySearchResult expected = search(newTimingOutContext(false), query, false);
+        final QuerySearchResult actual = search(newTimingOutContext(true), query, true);
+
+        assertTrue(expected.searchTimedOut());
+        assertTrue(actual.searchTimedOut());
+        // what was collected before the timeout depends on how far each slice got, but the partial aggregations are still returned
+        assertTrue(expected.hasAggs());
+        assertTrue(actual.hasAggs());
+    }
+
+    private TestSearchContext newContext(boolean concurrent) throws IOException {
+        return new TestSearchContext(null, indexShard, newSearcher(concurrent));
+    }
+
+    private TestSearchContext newTimingOutContext(boolean concurrent) throws IOException {
+        final AtomicLong clock = new AtomicLong();
+        return new TestSearchContext(null, indexShard, newSearcher(concurrent)) {
+            @Override
+            public long getRelativeTimeInMillis() {
+                return clock.getAndIncrement();
+            }
+        };
+    }
+
+    private ContextIndexSearcher newSearcher(boolean concurrent) throws IOException {
+        return new ContextIndexSearcher(
+            reader,
+            IndexSearcher.getDefaultSimilarity(),
+            IndexSearcher.getDefaultQueryCache(),
+            IndexSearcher.getDefaultQueryCachingPolicy(),
+            true,
+            concurrent ? executor : null,
+            concurrent ? randomIntBetween(2, 8) : 1
+        );
+    }
+
+    private QuerySearchResult search(TestSearchContext context, Query query, boolean expectConcurrent) throws IOException {
+        return search(context, query, expectConcurrent, true);
+    }
+
+    private QuerySearchResult search(TestSearchContext context, Query query, boolean expectConcurrent, boolean withAggregations)
+        throws IOException {
+        context.parsedQuery(new ParsedQuery(query));
+        if (withAggregations) {
+            final TermsAggregationBuilder terms = new TermsAggregationBuilder("terms").field(KEYWORD_FIELD)
+                .subAggregation(new AvgAggregationBuilder("avg").field(NUMBER_FIELD));
+            final AggregatorFactories.Builder builder = new AggregatorFactories.Builder().addAggregator(terms)
+                .addAggregator(new AvgAggregationBuilder("avg").field(NUMBER_FIELD));
+            // every slice gets an aggregation context of its own, like SearchService creates them
+            final CheckedSupplier<AggregatorFactories, IOException> factories = () -> builder.build(
+                createAggregationContext(context.searcher(), query, keywordField(KEYWORD_FIELD), longField(NUMBER_FIELD)),
+                null
+            );
+            context.aggregations(new SearchContextAggregations(factories.get(), factories));
+        }
+        final AggregationPhase aggregationPhase = new AggregationPhase();
+        aggregationPhase.preProcess(context);
+        assertThat(ConcurrentQueryPhase.canExecute(context), equalTo(expectConcurrent));
+        QueryPhase.executeInternal(context);
+        aggregationPhase.execute(context);
+        return context.queryResult();
+    }
+
+    private Query randomQuery() {
+        return switch (between(0, 2)) {
+            case 0 -> new MatchAllDocsQuery();
+            case 1 -> new TermQuery(new Term(KEYWORD_FIELD, "t" + between(0, 9)));
+            // a query whose hit count can't be read from the index statistics
+            default -> new BooleanQuery.Builder().add(new TermQuery(new Term(KEYWORD_FIELD, "t" + between(0, 4))), Occur.SHOULD)
+                .add(new TermQuery(new Term(KEYWORD_FIELD, "t" + between(5, 9))), Occur.SHOULD)
+                .build();
+        };
+    }
+
+    private int randomTrackTotalHitsUpTo() {
+        return randomFrom(SearchContext.TRACK_TOTAL_HITS_DISABLED, SearchContext.TRACK_TOTAL_HITS_ACCURATE, randomIntBetween(1, 500));
+    }
+
+    private static SortAndFormats numberSort() {
+        return new SortAndFormats(
+            new Sort(new SortedNumericSortField(NUMBER_FIELD, SortField.Type.LONG)),
+            new DocValueFormat[] { DocValueFormat.RAW }
+        );
+    }
+
+    private static void assertSameTotalHits(TotalHits expected, TotalHits actual, int trackTotalHitsUpTo) {
+        assertThat(actual.value, equalTo(expected.value));
+        if (expected.value != trackTotalHitsUpTo) {
+            // a sequential search reports a lower bound if it stops counting right at the threshold, even if there are no more hits
+            assertThat(actual.relation, equalTo(expected.relation));
+        }
+    }
+
+    private static void assertSameAggregations(InternalAggregations expectedAggregations, InternalAggregations actualAggregations) {
+        final Terms expectedTerms = expectedAggregations.get("terms");
+        final Terms actualTerms = actualAggregations.get("terms");
+        assertThat(bucketsByKey(actualTerms), equalTo(bucketsByKey(expectedTerms)));
+        final Avg expectedAvg = expectedAggregations.get("avg");
+        final Avg actualAvg = actualAggregations.get("avg");
+        assertEquals(expectedAvg.getValue(), actualAvg.getValue(), 1e-9);
+    }
+
+    /**
+     * The buckets of a terms aggregation by key, with their document count and average. Partial reductions don't sort buckets by count,
+     * so the buckets are compared regardless of their order.
+     */
+    private static Map<String, List<Object>> bucketsByKey(Terms terms) {
+        final Map<String, List<Object>> buckets = new HashMap<>();
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            final Avg avg = bucket.getAggregations().get("avg");
+            buckets.put(bucket.getKeyAsString(), List.of(bucket.getDocCount(), avg.getValue()));
+        }
+        return buckets;
+    }
+}
@@ -1889,6 +1889,7 @@ public class SnapshotResiliencyTests extends ESTestCase {
                         transportService,
                         clusterService,
                         new IngestService(
+                            settings,
                             clusterService,
                             threadPool,
                             environment,
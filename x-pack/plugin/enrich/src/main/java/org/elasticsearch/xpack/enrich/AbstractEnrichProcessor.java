@@ -17,14 +17,17 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.xpack.core.enrich.EnrichPolicy;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public abstract class AbstractEnrichProcessor extends AbstractProcessor {
 
     private final String policyName;
     private final BiConsumer<SearchRequest, BiConsumer<List<Map<?, ?>>, Exception>> searchRunner;
+    private final Function<String, EnrichLookupTable> lookupTables;
     private final TemplateScript.Factory field;
     private final TemplateScript.Factory targetField;
     private final boolean ignoreMissing;
@@ -36,6 +39,7 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
         String tag,
         String description,
         BiConsumer<SearchRequest, BiConsumer<List<Map<?, ?>>, Exception>> searchRunner,
+        Function<String, EnrichLookupTable> lookupTables,
         String policyName,
         TemplateScript.Factory field,
         TemplateScript.Factory targetField,
@@ -47,6 +51,7 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
         super(tag, description);
         this.policyName = policyName;
         this.searchRunner = searchRunner;
+        this.lookupTables = lookupTables;
         this.field = field;
         this.targetField = targetField;
         this.ignoreMissing = ignoreMissing;
@@ -57,6 +62,12 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
 
     public abstract QueryBuilder getQueryBuilder(Object fieldValue);
 
+    /**
+     * Looks up the documents that match the given field value in the lookup table of the policy, or returns {@code null} if the enrich
+     * index needs to be searched for this value.
+     */
+    protected abstract List<Map<?, ?>> lookup(EnrichLookupTable lookupTable, Object fieldValue);
+
     @Override
     public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
         try {
@@ -68,44 +79,13 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
                 return;
             }
 
-            QueryBuilder queryBuilder = getQueryBuilder(value);
-            ConstantScoreQueryBuilder constantScore = new ConstantScoreQueryBuilder(queryBuilder);
-            SearchSourceBuilder searchBuilder = new SearchSourceBuilder();
-            searchBuilder.from(0);
-            searchBuilder.size(maxMatches);
-            searchBuilder.trackScores(false);
-            searchBuilder.fetchSource(true);
-            searchBuilder.query(constantScore);
-            SearchRequest req = new SearchRequest();
-            req.indices(EnrichPolicy.getBaseName(getPolicyName()));
-            req.preference(Preference.LOCAL.type());
-            req.source(searchBuilder);
-
-            searchRunner.accept(req, (searchHits, e) -> {
+            lookupOrSearch(lookupTables.apply(policyName), value, (searchHits, e) -> {
                 if (e != null) {
                     handler.accept(null, e);
                     return;
                 }
 
-                // If the index is empty, return the unchanged document
-                // If the enrich key does not exist in the index, throw an error
-                // If no documents match the key, return the unchanged document
-                if (searchHits.size() < 1) {
-                    handler.accept(ingestDocument, null);
-                    return;
-                }
-
-                String renderedTargetField = ingestDocument.renderTemplate(this.targetField);
-                if (overrideEnabled || ingestDocument.hasField(renderedTargetField) == false) {
-                    if (maxMatches == 1) {
-                        Map<?, ?> firstDocument = searchHits.get(0);
-                        ingestDocument.setFieldValue(renderedTargetField, firstDocument);
-                    } else {
-                        List<Map<?, ?>> enrichDocuments = new ArrayList<>(searchHits.size());
-                        enrichDocuments.addAll(searchHits);
-                        ingestDocument.setFieldValue(renderedTargetField, enrichDocuments);
-                    }
-                }
+                enrich(ingestDocument, searchHits);
                 handler.accept(ingestDocument, null);
             });
         } catch (Exception e) {
@@ -113,6 +93,117 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
         }
     }
 
+    @Override
+    public void executeBatch(List<IngestDocument> ingestDocuments, BatchHandler handler) {
+        // the documents of a batch that share the same value are enriched with a single lookup or search
+        final EnrichLookupTable lookupTable = lookupTables.apply(policyName);
+        final Map<Object, List<Integer>> slotsByValue = new LinkedHashMap<>();
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            final IngestDocument ingestDocument = ingestDocuments.get(i);
+            final Object value;
+            try {
+                String renderedField = ingestDocument.renderTemplate(this.field);
+                value = ingestDocument.getFieldValue(renderedField, Object.class, ignoreMissing);
+            } catch (Exception e) {
+                handler.accept(i, null, e);
+                continue;
+            }
+            if (value == null) {
+                handler.accept(i, ingestDocument, null);
+            } else {
+                slotsByValue.computeIfAbsent(value, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<Object, List<Integer>> entry : slotsByValue.entrySet()) {
+            final List<Integer> slots = entry.getValue();
+            final BiConsumer<List<Map<?, ?>>, Exception> listener = (searchHits, e) -> {
+                for (int i = 0; i < slots.size(); i++) {
+                    final int slot = slots.get(i);
+                    final IngestDocument ingestDocument = ingestDocuments.get(slot);
+                    if (e != null) {
+                        handler.accept(slot, null, e);
+                        continue;
+                    }
+                    final List<Map<?, ?>> documentHits;
+                    try {
+                        // every document gets its own copy of the enrich documents
+                        documentHits = i == 0 ? searchHits : copyOf(searchHits);
+                    } catch (IllegalArgumentException copyFailure) {
+                        // values that can't be copied are looked up again for this document alone
+                        execute(ingestDocument, (result, executeFailure) -> handler.accept(slot, result, executeFailure));
+                        continue;
+                    }
+                    try {
+                        enrich(ingestDocument, documentHits);
+                    } catch (Exception enrichFailure) {
+                        handler.accept(slot, null, enrichFailure);
+                        continue;
+                    }
+                    handler.accept(slot, ingestDocument, null);
+                }
+            };
+            try {
+                lookupOrSearch(lookupTable, entry.getKey(), listener);
+            } catch (Exception e) {
+                listener.accept(null, e);
+            }
+        }
+    }
+
+    private void lookupOrSearch(EnrichLookupTable lookupTable, Object value, BiConsumer<List<Map<?, ?>>, Exception> listener) {
+        if (lookupTable != null) {
+            final List<Map<?, ?>> documents = lookup(lookupTable, value);
+            if (documents != null) {
+                listener.accept(documents, null);
+                return;
+            }
+        }
+
+        QueryBuilder queryBuilder = getQueryBuilder(value);
+        ConstantScoreQueryBuilder constantScore = new ConstantScoreQueryBuilder(queryBuilder);
+        SearchSourceBuilder searchBuilder = new SearchSourceBuilder();
+        searchBuilder.from(0);
+        searchBuilder.size(maxMatches);
+        searchBuilder.trackScores(false);
+        searchBuilder.fetchSource(true);
+        searchBuilder.query(constantScore);
+        SearchRequest req = new SearchRequest();
+        req.indices(EnrichPolicy.getBaseName(getPolicyName()));
+        req.preference(Preference.LOCAL.type());
+        req.source(searchBuilder);
+        searchRunner.accept(req, listener);
+    }
+
+    private static List<Map<?, ?>> copyOf(List<Map<?, ?>> documents) {
+        final List<Map<?, ?>> copy = new ArrayList<>(documents.size());
+        for (Map<?, ?> document : documents) {
+            copy.add(IngestDocument.deepCopyMap(document));
+        }
+        return copy;
+    }
+
+    private void enrich(IngestDocument ingestDocument, List<Map<?, ?>> searchHits) {
+        // If the index is empty, return the unchanged document
+        // If the enrich key does not exist in the index, throw an error
+        // If no documents match the key, return the unchanged document
+        if (searchHits.size() < 1) {
+            return;
+        }
+
+        String renderedTargetField = ingestDocument.renderTemplate(this.targetField);
+        if (overrideEnabled || ingestDocument.hasField(renderedTargetField) == false) {
+            if (maxMatches == 1) {
+                Map<?, ?> firstDocument = searchHits.get(0);
+                ingestDocument.setFieldValue(renderedTargetField, firstDocument);
+            } else {
+                List<Map<?, ?>> enrichDocuments = new ArrayList<>(searchHits.size());
+                enrichDocuments.addAll(searchHits);
+                ingestDocument.setFieldValue(renderedTargetField, enrichDocuments);
+            }
+        }
+    }
+
     @Override
     public IngestDocument execute(IngestDocument ingestDocument) throws Exception {
         throw new UnsupportedOperationException("this method should not get executed");
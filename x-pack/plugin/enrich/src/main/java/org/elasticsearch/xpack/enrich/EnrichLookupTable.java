@@ -0,0 +1,140 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.enrich;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.xcontent.XContentType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, node-local copy of the documents of an enrich index, that enrich processors look up without searching the enrich index.
+ * The documents are kept in their serialized form in a direct byte buffer, so that a large enrich index adds neither objects nor heap
+ * usage to the ingest node, and are only parsed when a lookup returns them. Sub classes index the documents by their match field.
+ */
+abstract class EnrichLookupTable {
+
+    // each document is stored as the ordinal of its content type, its length and its source
+    private static final int DOCUMENT_HEADER_BYTES = Byte.BYTES + Integer.BYTES;
+
+    private final String enrichIndex;
+    private final ByteBuffer documents;
+
+    protected EnrichLookupTable(String enrichIndex, ByteBuffer documents) {
+        this.enrichIndex = enrichIndex;
+        this.documents = documents;
+    }
+
+    /**
+     * The enrich index that this table was loaded from.
+     */
+    String getEnrichIndex() {
+        return enrichIndex;
+    }
+
+    /**
+     * The number of bytes this table uses, most of which are off-heap.
+     */
+    long sizeInBytes() {
+        return documents.capacity();
+    }
+
+    /**
+     * Parses the document at the given offset into a new, modifiable map.
+     */
+    protected Map<String, Object> readDocument(int offset) {
+        final XContentType xContentType = XContentType.values()[documents.get(offset)];
+        final byte[] source = new byte[documents.getInt(offset + Byte.BYTES)];
+        documents.get(offset + DOCUMENT_HEADER_BYTES, source);
+        return XContentHelper.convertToMap(new BytesArray(source), false, xContentType).v2();
+    }
+
+    /**
+     * Parses the documents at the given offsets, in order.
+     */
+    protected List<Map<?, ?>> readDocuments(int[] offsets, int count) {
+        final List<Map<?, ?>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(readDocument(offsets[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Collects documents while an enrich index is loaded, and fails once they would exceed the allowed size.
+     */
+    abstract static class Builder {
+
+        protected final String enrichIndex;
+        protected final String matchField;
+        private final long maxSizeInBytes;
+        private final BytesStreamOutput documents = new BytesStreamOutput();
+
+        protected Builder(String enrichIndex, String matchField, long maxSizeInBytes) {
+            this.enrichIndex = enrichIndex;
+            this.matchField = matchField;
+            this.maxSizeInBytes = Math.min(maxSizeInBytes, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Adds a document of the enrich index with its source, both serialized and parsed.
+         */
+        abstract void addDocument(BytesReference source, XContentType xContentType, Map<String, Object> sourceAsMap) throws IOException;
+
+        abstract EnrichLookupTable build() throws IOException;
+
+        /**
+         * Stores the given source and returns its offset.
+         */
+        protected int storeDocument(BytesReference source, XContentType xContentType) throws IOException {
+            final long offset = documents.size();
+            ensureCapacity(offset + DOCUMENT_HEADER_BYTES + source.length());
+            documents.writeByte((byte) xContentType.ordinal());
+            documents.writeInt(source.length());
+            source.writeTo(documents);
+            return (int) offset;
+        }
+
+        /**
+         * Checks that the table stays within the allowed size if it uses the given number of bytes in total.
+         */
+        protected void ensureCapacity(long sizeInBytes) {
+            if (sizeInBytes > maxSizeInBytes) {
+                throw new IllegalStateException(
+                    "enrich index [" + enrichIndex + "] needs more than [" + maxSizeInBytes + "] bytes to be loaded into a lookup table"
+                );
+            }
+        }
+
+        protected long documentsSizeInBytes() {
+            return documents.size();
+        }
+
+        /**
+         * Copies the stored documents into a direct byte buffer.
+         */
+        protected ByteBuffer buildDocuments() throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect((int) documents.size());
+            final BytesRefIterator iterator = documents.bytes().iterator();
+            BytesRef ref;
+            while ((ref = iterator.next()) != null) {
+                buffer.put(ref.bytes, ref.offset, ref.length);
+            }
+            documents.close();
+            return buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.enrich;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.client.internal.OriginSettingClient;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexAbstraction;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.Preference;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.xpack.core.enrich.EnrichPolicy;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.elasticsearch.xpack.core.ClientHelper.ENRICH_ORIGIN;
+
+/**
+ * Loads the enrich index of every {@code match} and {@code geo_match} policy into a node-local {@link EnrichLookupTable}, so that enrich
+ * processors can enrich documents without searching the enrich index. A table is loaded when the alias of its policy points to a new
+ * enrich index, and replaces the previous table of the policy once it's complete, so that lookups either see the previous enrich index
+ * or the new one. Policies without a table, because it's still loading or because it would exceed
+ * {@link EnrichPlugin#LOOKUP_TABLE_MAX_SIZE}, are enriched by searching. Enrich indices that couldn't be searched, for instance because
+ * their shards weren't started yet, are loaded again on the next cluster state in which all their primaries are active.
+ */
+public class EnrichLookupTables implements Consumer<ClusterState> {
+
+    private static final Logger logger = LogManager.getLogger(EnrichLookupTables.class);
+
+    static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    private final boolean enabled;
+    private final long maxSizeInBytes;
+    private final int fetchSize;
+    private final Client client;
+    private final Consumer<Runnable> genericExecutor;
+
+    private final Map<String, EnrichLookupTable> tables = ConcurrentCollections.newConcurrentMap();
+    // the enrich index that the alias of each policy points to, and the tables that are being loaded
+    private final Map<String, String> currentIndices = new HashMap<>();
+    private final Map<String, String> loadingIndices = new HashMap<>();
+    // enrich indices that are too large to be loaded and are only retried once the policy is executed again
+    private final Set<String> failedIndices = new HashSet<>();
+    // enrich indices that couldn't be searched and are retried once their primaries are active
+    private final Set<String> retryIndices = new HashSet<>();
+    // enrich indices whose load failure was already logged at warn level
+    private final Set<String> warnedIndices = new HashSet<>();
+    private long sizeInBytes = 0;
+
+    EnrichLookupTables(Settings settings, Client client, Consumer<Runnable> genericExecutor) {
+        this.enabled = EnrichPlugin.LOOKUP_TABLE_ENABLED.get(settings) && DiscoveryNode.isIngestNode(settings);
+        this.maxSizeInBytes = EnrichPlugin.LOOKUP_TABLE_MAX_SIZE.get(settings).getBytes();
+        this.fetchSize = EnrichPlugin.ENRICH_FETCH_SIZE_SETTING.get(settings);
+        this.client = new OriginSettingClient(client, ENRICH_ORIGIN);
+        this.genericExecutor = genericExecutor;
+    }
+
+    /**
+     * Returns the lookup table of the given policy, or {@code null} if the enrich index of the policy needs to be searched.
+     */
+    EnrichLookupTable get(String policyName) {
+        return tables.get(policyName);
+    }
+
+    @Override
+    public void accept(ClusterState state) {
+        if (enabled == false) {
+            return;
+        }
+        final Map<String, EnrichPolicy> policies = EnrichStore.getPolicies(state);
+        final Map<String, String> indices = new HashMap<>();
+        for (Map.Entry<String, EnrichPolicy> entry : policies.entrySet()) {
+            final String policyType = entry.getValue().getType();
+            if (policyType.equals(EnrichPolicy.MATCH_TYPE) || policyType.equals(EnrichPolicy.GEO_MATCH_TYPE)) {
+                final IndexAbstraction alias = state.metadata().getIndicesLookup().get(EnrichPolicy.getBaseName(entry.getKey()));
+                if (alias != null) {
+                    indices.put(entry.getKey(), alias.getIndices().get(0).getName());
+                }
+            }
+        }
+        synchronized (this) {
+            if (indices.equals(currentIndices) && retryIndices.isEmpty()) {
+                return;
+            }
+            currentIndices.clear();
+            currentIndices.putAll(indices);
+            failedIndices.retainAll(indices.values());
+            retryIndices.retainAll(indices.values());
+            warnedIndices.retainAll(indices.values());
+            // the tables of removed policies aren't used anymore, but the tables of executed policies are used until they're replaced
+            for (String policyName : Set.copyOf(tables.keySet())) {
+                if (indices.containsKey(policyName) == false) {
+                    sizeInBytes -= tables.remove(policyName).sizeInBytes();
+                }
+            }
+            for (Map.Entry<String, String> entry : indices.entrySet()) {
+                final String policyName = entry.getKey();
+                final String enrichIndex = entry.getValue();
+                final EnrichLookupTable table = tables.get(policyName);
+                if ((table != null && table.getEnrichIndex().equals(enrichIndex))
+                    || enrichIndex.equals(loadingIndices.get(policyName))
+                    || failedIndices.contains(enrichIndex)
+                    || (retryIndices.contains(enrichIndex) && allPrimariesActive(state, enrichIndex) == false)) {
+                    continue;
+                }
+                retryIndices.remove(enrichIndex);
+                loadingIndices.put(policyName, enrichIndex);
+                final EnrichPolicy policy = policies.get(policyName);
+                final long remainingSizeInBytes = maxSizeInBytes - sizeInBytes + (table == null ? 0 : table.sizeInBytes());
+                genericExecutor.accept(() -> load(policyName, policy, enrichIndex, remainingSizeInBytes));
+            }
+        }
+    }
+
+    private static boolean allPrimariesActive(ClusterState state, String index) {
+        final IndexRoutingTable indexRoutingTable = state.routingTable().index(index);
+        return indexRoutingTable != null && indexRoutingTable.allPrimaryShardsActive();
+    }
+
+    private void load(String policyName, EnrichPolicy policy, String enrichIndex, long maxTableSizeInBytes) {
+        logger.debug("loading enrich index [{}] of policy [{}] into a lookup table", enrichIndex, policyName);
+        final EnrichLookupTable.Builder builder = policy.getType().equals(EnrichPolicy.GEO_MATCH_TYPE)
+            ? new GeoMatchLookupTable.Builder(enrichIndex, policy.getMatchField(), maxTableSizeInBytes)
+            : new MatchLookupTable.Builder(enrichIndex, policy.getMatchField(), maxTableSizeInBytes);
+        final SearchSourceBuilder source = new SearchSourceBuilder().size(fetchSize)
+            .sort(FieldSortBuilder.DOC_FIELD_NAME)
+            .fetchSource(true);
+        final SearchRequest request = new SearchRequest(enrichIndex).source(source)
+            .scroll(SCROLL_KEEP_ALIVE)
+            .preference(Preference.LOCAL.type());
+        client.search(request, new ActionListener<>() {
+            private String scrollId;
+
+            @Override
+            public void onResponse(SearchResponse response) {
+                scrollId = response.getScrollId();
+                final SearchHit[] hits = response.getHits().getHits();
+                final EnrichLookupTable table;
+                try {
+                    for (SearchHit hit : hits) {
+                        final BytesReference hitSource = hit.getSourceRef();
+                        builder.addDocument(hitSource, XContentHelper.xContentType(hitSource), hit.getSourceAsMap());
+                    }
+                    table = hits.length > 0 ? null : builder.build();
+                } catch (Exception e) {
+                    // the enrich index doesn't fit into a lookup table, and won't until the policy is executed again
+                    clearScroll(scrollId);
+                    onLoadFailed(policyName, enrichIndex, e, false);
+                    return;
+                }
+                if (table == null) {
+                    client.searchScroll(new SearchScrollRequest(scrollId).scroll(SCROLL_KEEP_ALIVE), this);
+                } else {
+                    clearScroll(scrollId);
+                    onLoaded(policyName, enrichIndex, table);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                clearScroll(scrollId);
+                onLoadFailed(policyName, enrichIndex, e, true);
+            }
+        });
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId != null) {
+            final ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+            clearScrollRequest.addScrollId(scrollId);
+            client.clearScroll(
+                clearScrollRequest,
+                ActionListener.wrap(r -> {}, e -> logger.debug(new ParameterizedMessage("failed to clear scroll [{}]", scrollId), e))
+            );
+        }
+    }
+
+    private synchronized void onLoaded(String policyName, String enrichIndex, EnrichLookupTable table) {
+        loadingIndices.remove(policyName, enrichIndex);
+        if (enrichIndex.equals(currentIndices.get(policyName)) == false) {
+            logger.debug("discarding lookup table of enrich index [{}], policy [{}] was executed or removed", enrichIndex, policyName);
+            return;
+        }
+        final EnrichLookupTable previous = tables.get(policyName);
+        final long newSizeInBytes = sizeInBytes + table.sizeInBytes() - (previous == null ? 0 : previous.sizeInBytes());
+        if (newSizeInBytes > maxSizeInBytes) {
+            // other tables were loaded in the meantime
+            onLoadFailed(
+                policyName,
+                enrichIndex,
+                new IllegalStateException("lookup tables would exceed [" + maxSizeInBytes + "] bytes"),
+                false
+            );
+            return;
+        }
+        tables.put(policyName, table);
+        sizeInBytes = newSizeInBytes;
+        logger.debug(
+            "loaded enrich index [{}] of policy [{}] into a lookup table of [{}] bytes",
+            enrichIndex,
+            policyName,
+            table.sizeInBytes()
+        );
+    }
+
+    private synchronized void onLoadFailed(String policyName, String enrichIndex, Exception e, boolean retryable) {
+        loadingIndices.remove(policyName, enrichIndex);
+        final ParameterizedMessage message = new ParameterizedMessage(
+            "failed to load enrich index [{}] of policy [{}] into a lookup table",
+            enrichIndex,
+            policyName
+        );
+        if (enrichIndex.equals(currentIndices.get(policyName)) == false) {
+            logger.debug(message, e);
+            return;
+        }
+        if (retryable) {
+            retryIndices.add(enrichIndex);
+        } else {
+            failedIndices.add(enrichIndex);
+        }
+        // the previous table is outdated and enrichment falls back to searching the new enrich index
+        final EnrichLookupTable previous = tables.remove(policyName);
+        if (previous != null) {
+            sizeInBytes -= previous.sizeInBytes();
+        }
+        // a failure that keeps being retried is only logged at warn level once per enrich index
+        if (warnedIndices.add(enrichIndex)) {
+            logger.warn(message, e);
+        } else {
+            logger.debug(message, e);
+        }
+    }
+
+    /**
+     * The number of bytes used by the lookup tables on this node.
+     */
+    synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+}
@@ -20,6 +20,7 @@ import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
@@ -129,6 +130,18 @@ public class EnrichPlugin extends Plugin implements SystemIndexPlugin, IngestPlu
 
     public static final Setting<Long> CACHE_SIZE = Setting.longSetting("enrich.cache_size", 1000, 0, Setting.Property.NodeScope);
 
+    public static final Setting<Boolean> LOOKUP_TABLE_ENABLED = Setting.boolSetting(
+        "enrich.lookup_table.enabled",
+        false,
+        Setting.Property.NodeScope
+    );
+
+    public static final Setting<ByteSizeValue> LOOKUP_TABLE_MAX_SIZE = Setting.byteSizeSetting(
+        "enrich.lookup_table.max_size",
+        ByteSizeValue.ofMb(256),
+        Setting.Property.NodeScope
+    );
+
     private final Settings settings;
     private final EnrichCache enrichCache;
 
@@ -139,8 +152,15 @@ public class EnrichPlugin extends Plugin implements SystemIndexPlugin, IngestPlu
 
     @Override
     public Map<String, Processor.Factory> getProcessors(Processor.Parameters parameters) {
-        EnrichProcessorFactory factory = new EnrichProcessorFactory(parameters.client, parameters.scriptService, enrichCache);
+        EnrichLookupTables lookupTables = new EnrichLookupTables(settings, parameters.client, parameters.genericExecutor);
+        EnrichProcessorFactory factory = new EnrichProcessorFactory(
+            parameters.client,
+            parameters.scriptService,
+            enrichCache,
+            lookupTables::get
+        );
         parameters.ingestService.addIngestClusterStateListener(factory);
+        parameters.ingestService.addIngestClusterStateListener(lookupTables);
         return Map.of(EnrichProcessorFactory.TYPE, factory);
     }
 
@@ -255,7 +275,9 @@ public class EnrichPlugin extends Plugin implements SystemIndexPlugin, IngestPlu
             COORDINATOR_PROXY_MAX_LOOKUPS_PER_REQUEST,
             COORDINATOR_PROXY_QUEUE_CAPACITY,
             ENRICH_MAX_FORCE_MERGE_ATTEMPTS,
-            CACHE_SIZE
+            CACHE_SIZE,
+            LOOKUP_TABLE_ENABLED,
+            LOOKUP_TABLE_MAX_SIZE
         );
     }
 
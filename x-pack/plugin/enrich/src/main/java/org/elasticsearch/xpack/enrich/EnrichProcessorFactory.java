@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.elasticsearch.xpack.core.ClientHelper.ENRICH_ORIGIN;
 
@@ -37,13 +38,24 @@ final class EnrichProcessorFactory implements Processor.Factory, Consumer<Cluste
     private final Client client;
     private final ScriptService scriptService;
     private final EnrichCache enrichCache;
+    private final Function<String, EnrichLookupTable> lookupTables;
 
     volatile Metadata metadata;
 
     EnrichProcessorFactory(Client client, ScriptService scriptService, EnrichCache enrichCache) {
+        this(client, scriptService, enrichCache, policyName -> null);
+    }
+
+    EnrichProcessorFactory(
+        Client client,
+        ScriptService scriptService,
+        EnrichCache enrichCache,
+        Function<String, EnrichLookupTable> lookupTables
+    ) {
         this.client = client;
         this.scriptService = scriptService;
         this.enrichCache = Objects.requireNonNull(enrichCache);
+        this.lookupTables = Objects.requireNonNull(lookupTables);
     }
 
     @Override
@@ -85,6 +97,7 @@ final class EnrichProcessorFactory implements Processor.Factory, Consumer<Cluste
                     tag,
                     description,
                     searchRunner,
+                    lookupTables,
                     policyName,
                     field,
                     targetField,
@@ -102,6 +115,7 @@ final class EnrichProcessorFactory implements Processor.Factory, Consumer<Cluste
                     tag,
                     description,
                     searchRunner,
+                    lookupTables,
                     policyName,
                     field,
                     targetField,
@@ -0,0 +1,229 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.enrich;
+
+import org.apache.lucene.geo.Component2D;
+import org.apache.lucene.geo.LatLonGeometry;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.geo.GeoShapeUtils;
+import org.elasticsearch.common.geo.GeometryParser;
+import org.elasticsearch.common.geo.ShapeRelation;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.geometry.Geometry;
+import org.elasticsearch.geometry.Point;
+import org.elasticsearch.xcontent.XContentType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lookup table for {@code geo_match} policies, which finds the shapes of the match field that relate to a point. The shapes are kept
+ * as {@link Component2D}s on heap, since that's what they're matched with, and are indexed in a uniform grid over their bounding box.
+ * Shapes that span many cells of the grid are kept apart and are checked for every lookup.
+ */
+final class GeoMatchLookupTable extends EnrichLookupTable {
+
+    static final int MAX_GRID_SIZE = 1024;
+    static final int MAX_CELLS_PER_SHAPE = 64;
+
+    private final Component2D[] shapes;
+    private final int[] documentOffsets;
+    private final double minX;
+    private final double minY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int gridSize;
+    // the shapes of cell i are cellShapes[cellStarts[i]] to cellShapes[cellStarts[i + 1] - 1]
+    private final int[] cellStarts;
+    private final int[] cellShapes;
+    private final int[] wideShapes;
+
+    private GeoMatchLookupTable(
+        String enrichIndex,
+        ByteBuffer documents,
+        Component2D[] shapes,
+        int[] documentOffsets,
+        double minX,
+        double minY,
+        double cellWidth,
+        double cellHeight,
+        int gridSize,
+        int[] cellStarts,
+        int[] cellShapes,
+        int[] wideShapes
+    ) {
+        super(enrichIndex, documents);
+        this.shapes = shapes;
+        this.documentOffsets = documentOffsets;
+        this.minX = minX;
+        this.minY = minY;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.gridSize = gridSize;
+        this.cellStarts = cellStarts;
+        this.cellShapes = cellShapes;
+        this.wideShapes = wideShapes;
+    }
+
+    @Override
+    long sizeInBytes() {
+        // the size of the shapes is not accounted for
+        final int ints = documentOffsets.length + cellStarts.length + cellShapes.length + wideShapes.length;
+        return super.sizeInBytes() + (long) Integer.BYTES * ints;
+    }
+
+    /**
+     * Returns up to {@code maxMatches} documents whose shape has the given relation with the point, which is what a
+     * {@code geo_shape} query on the match field returns. Returns {@code null} for the {@code within} relation, which is only
+     * supported by searching the enrich index.
+     */
+    List<Map<?, ?>> lookup(Point point, ShapeRelation relation, int maxMatches) {
+        final int[] offsets = new int[maxMatches];
+        int count = 0;
+        switch (relation) {
+            case INTERSECTS, CONTAINS -> {
+                // a shape that contains a point also intersects it
+                count = collectContaining(point, wideShapes, 0, wideShapes.length, offsets, count);
+                final int cell = cell(point);
+                if (cell >= 0) {
+                    count = collectContaining(point, cellShapes, cellStarts[cell], cellStarts[cell + 1], offsets, count);
+                }
+            }
+            case DISJOINT -> {
+                for (int shape = 0; shape < shapes.length && count < offsets.length; shape++) {
+                    if (shapes[shape].contains(point.getX(), point.getY()) == false) {
+                        offsets[count++] = documentOffsets[shape];
+                    }
+                }
+            }
+            default -> {
+                return null;
+            }
+        }
+        return readDocuments(offsets, count);
+    }
+
+    private int collectContaining(Point point, int[] candidates, int from, int to, int[] offsets, int count) {
+        for (int i = from; i < to && count < offsets.length; i++) {
+            final int shape = candidates[i];
+            if (shapes[shape].contains(point.getX(), point.getY())) {
+                offsets[count++] = documentOffsets[shape];
+            }
+        }
+        return count;
+    }
+
+    private int cell(Point point) {
+        final int column = (int) Math.floor((point.getX() - minX) / cellWidth);
+        final int row = (int) Math.floor((point.getY() - minY) / cellHeight);
+        if (column < 0 || row < 0 || column > gridSize || row > gridSize) {
+            return -1;
+        }
+        // points on the maximum edge of the bounding box belong to the last cell
+        return Math.min(row, gridSize - 1) * gridSize + Math.min(column, gridSize - 1);
+    }
+
+    static final class Builder extends EnrichLookupTable.Builder {
+
+        private final GeometryParser parser = new GeometryParser(true, true, true);
+        private final List<Component2D> shapes = new ArrayList<>();
+        private final List<Integer> documentOffsets = new ArrayList<>();
+
+        Builder(String enrichIndex, String matchField, long maxSizeInBytes) {
+            super(enrichIndex, matchField, maxSizeInBytes);
+        }
+
+        @Override
+        void addDocument(BytesReference source, XContentType xContentType, Map<String, Object> sourceAsMap) throws IOException {
+            final Object value = XContentMapValues.extractValue(matchField, sourceAsMap);
+            if (value == null) {
+                return;
+            }
+            final Geometry geometry = parser.parseGeometry(value);
+            final LatLonGeometry[] geometries = GeoShapeUtils.toLuceneGeometry(matchField, null, geometry, ShapeRelation.INTERSECTS);
+            if (geometries.length == 0) {
+                return;
+            }
+            shapes.add(LatLonGeometry.create(geometries));
+            documentOffsets.add(storeDocument(source, xContentType));
+            ensureCapacity(documentsSizeInBytes() + (long) Integer.BYTES * documentOffsets.size());
+        }
+
+        @Override
+        GeoMatchLookupTable build() throws IOException {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (Component2D shape : shapes) {
+                minX = Math.min(minX, shape.getMinX());
+                minY = Math.min(minY, shape.getMinY());
+                maxX = Math.max(maxX, shape.getMaxX());
+                maxY = Math.max(maxY, shape.getMaxY());
+            }
+            final int gridSize = shapes.isEmpty() ? 1 : Math.min(MAX_GRID_SIZE, (int) Math.ceil(Math.sqrt(shapes.size())));
+            // a grid over a single point or line still needs cells of a positive size
+            final double cellWidth = maxX > minX ? (maxX - minX) / gridSize : 1;
+            final double cellHeight = maxY > minY ? (maxY - minY) / gridSize : 1;
+
+            final int[] cellStarts = new int[gridSize * gridSize + 1];
+            final List<Integer> wideShapes = new ArrayList<>();
+            final int[][] ranges = new int[shapes.size()][];
+            for (int shape = 0; shape < shapes.size(); shape++) {
+                final Component2D component = shapes.get(shape);
+                final int minColumn = Math.min(gridSize - 1, (int) ((component.getMinX() - minX) / cellWidth));
+                final int maxColumn = Math.min(gridSize - 1, (int) ((component.getMaxX() - minX) / cellWidth));
+                final int minRow = Math.min(gridSize - 1, (int) ((component.getMinY() - minY) / cellHeight));
+                final int maxRow = Math.min(gridSize - 1, (int) ((component.getMaxY() - minY) / cellHeight));
+                if ((long) (maxColumn - minColumn + 1) * (maxRow - minRow + 1) > MAX_CELLS_PER_SHAPE) {
+                    wideShapes.add(shape);
+                    continue;
+                }
+                ranges[shape] = new int[] { minColumn, maxColumn, minRow, maxRow };
+                for (int row = minRow; row <= maxRow; row++) {
+                    for (int column = minColumn; column <= maxColumn; column++) {
+                        cellStarts[row * gridSize + column + 1]++;
+                    }
+                }
+            }
+            for (int cell = 0; cell < gridSize * gridSize; cell++) {
+                cellStarts[cell + 1] += cellStarts[cell];
+            }
+            final int[] cellShapes = new int[cellStarts[gridSize * gridSize]];
+            final int[] upTo = new int[gridSize * gridSize];
+            for (int shape = 0; shape < shapes.size(); shape++) {
+                final int[] range = ranges[shape];
+                if (range == null) {
+                    continue;
+                }
+                for (int row = range[2]; row <= range[3]; row++) {
+                    for (int column = range[0]; column <= range[1]; column++) {
+                        final int cell = row * gridSize + column;
+                        cellShapes[cellStarts[cell] + upTo[cell]++] = shape;
+                    }
+                }
+            }
+            return new GeoMatchLookupTable(
+                enrichIndex,
+                buildDocuments(),
+                shapes.toArray(new Component2D[0]),
+                documentOffsets.stream().mapToInt(Integer::intValue).toArray(),
+                minX,
+                minY,
+                cellWidth,
+                cellHeight,
+                gridSize,
+                cellStarts,
+                cellShapes,
+                wideShapes.stream().mapToInt(Integer::intValue).toArray()
+            );
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.elasticsearch.common.geo.GeometryParser;
 import org.elasticsearch.common.geo.Orientation;
 import org.elasticsearch.common.geo.ShapeRelation;
 import org.elasticsearch.geometry.Geometry;
+import org.elasticsearch.geometry.Point;
 import org.elasticsearch.index.query.GeoShapeQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.script.TemplateScript;
@@ -18,6 +19,7 @@ import org.elasticsearch.script.TemplateScript;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public final class GeoMatchProcessor extends AbstractEnrichProcessor {
 
@@ -28,6 +30,7 @@ public final class GeoMatchProcessor extends AbstractEnrichProcessor {
         String tag,
         String description,
         BiConsumer<SearchRequest, BiConsumer<List<Map<?, ?>>, Exception>> searchRunner,
+        Function<String, EnrichLookupTable> lookupTables,
         String policyName,
         TemplateScript.Factory field,
         TemplateScript.Factory targetField,
@@ -38,7 +41,19 @@ public final class GeoMatchProcessor extends AbstractEnrichProcessor {
         ShapeRelation shapeRelation,
         Orientation orientation
     ) {
-        super(tag, description, searchRunner, policyName, field, targetField, ignoreMissing, overrideEnabled, matchField, maxMatches);
+        super(
+            tag,
+            description,
+            searchRunner,
+            lookupTables,
+            policyName,
+            field,
+            targetField,
+            ignoreMissing,
+            overrideEnabled,
+            matchField,
+            maxMatches
+        );
         this.shapeRelation = shapeRelation;
         parser = new GeometryParser(orientation.getAsBoolean(), true, true);
     }
@@ -51,6 +66,17 @@ public final class GeoMatchProcessor extends AbstractEnrichProcessor {
         return shapeQuery;
     }
 
+    @Override
+    protected List<Map<?, ?>> lookup(EnrichLookupTable lookupTable, Object fieldValue) {
+        if (lookupTable instanceof GeoMatchLookupTable geoMatchLookupTable
+            && parser.parseGeometry(fieldValue) instanceof Point point
+            && point.isEmpty() == false) {
+            return geoMatchLookupTable.lookup(point, shapeRelation, maxMatches);
+        }
+        // only points are looked up, other shapes are matched by searching
+        return null;
+    }
+
     public ShapeRelation getShapeRelation() {
         return shapeRelation;
     }
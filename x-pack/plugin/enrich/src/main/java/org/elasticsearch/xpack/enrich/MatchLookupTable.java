@@ -0,0 +1,191 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.enrich;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.BytesRefs;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.xcontent.XContentType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lookup table for {@code match} policies: an open addressing hash table from the values of the match field to the documents that
+ * contain them. Both the slots and the keys are stored in a direct byte buffer next to the documents.
+ */
+final class MatchLookupTable extends EnrichLookupTable {
+
+    private static final int EMPTY_SLOT = -1;
+
+    // a power of two number of int slots, holding the offset of a key in keys or EMPTY_SLOT
+    private final ByteBuffer slots;
+    private final int mask;
+    // each key is stored as its hash, its length, its UTF-8 bytes, the number of its documents and their offsets
+    private final ByteBuffer keys;
+
+    private MatchLookupTable(String enrichIndex, ByteBuffer documents, ByteBuffer slots, ByteBuffer keys) {
+        super(enrichIndex, documents);
+        this.slots = slots;
+        this.mask = slots.capacity() / Integer.BYTES - 1;
+        this.keys = keys;
+    }
+
+    @Override
+    long sizeInBytes() {
+        return super.sizeInBytes() + slots.capacity() + keys.capacity();
+    }
+
+    /**
+     * Returns up to {@code maxMatches} documents whose match field contains the given value, or any of the given values if it's a list,
+     * which is what a {@code term} or {@code terms} query on the match field returns. Returns {@code null} if the value can't be looked
+     * up in this table, in which case the enrich index needs to be searched.
+     */
+    List<Map<?, ?>> lookup(Object value, int maxMatches) {
+        final int[] offsets = new int[maxMatches];
+        int count = 0;
+        final List<?> values = value instanceof List<?> list ? list : List.of(value);
+        for (Object v : values) {
+            if (isLookupValue(v) == false) {
+                return null;
+            }
+        }
+        for (Object v : values) {
+            final int key = findKey(BytesRefs.toBytesRef(v));
+            if (key == EMPTY_SLOT) {
+                continue;
+            }
+            final int keyLength = keys.getInt(key + Integer.BYTES);
+            final int docsStart = key + 2 * Integer.BYTES + keyLength;
+            final int numDocs = keys.getInt(docsStart);
+            for (int i = 0; i < numDocs && count < maxMatches; i++) {
+                final int offset = keys.getInt(docsStart + (i + 1) * Integer.BYTES);
+                if (contains(offsets, count, offset) == false) {
+                    offsets[count++] = offset;
+                }
+            }
+            if (count == maxMatches) {
+                break;
+            }
+        }
+        return readDocuments(offsets, count);
+    }
+
+    private int findKey(BytesRef key) {
+        final int hash = StringHelper.murmurhash3_x86_32(key, StringHelper.GOOD_FAST_HASH_SEED);
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            final int offset = slots.getInt(slot * Integer.BYTES);
+            if (offset == EMPTY_SLOT || (keys.getInt(offset) == hash && keyEquals(offset, key))) {
+                return offset;
+            }
+        }
+    }
+
+    private boolean keyEquals(int offset, BytesRef key) {
+        if (keys.getInt(offset + Integer.BYTES) != key.length) {
+            return false;
+        }
+        final int start = offset + 2 * Integer.BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (keys.get(start + i) != key.bytes[key.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] offsets, int count, int offset) {
+        for (int i = 0; i < count; i++) {
+            if (offsets[i] == offset) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the value is looked up the same way that a {@code term} query on the {@code keyword} match field of an enrich index
+     * looks it up, by its string representation.
+     */
+    private static boolean isLookupValue(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean;
+    }
+
+    static final class Builder extends EnrichLookupTable.Builder {
+
+        private final Map<BytesRef, List<Integer>> keyToDocuments = new LinkedHashMap<>();
+        private long keysSizeInBytes = 0;
+
+        Builder(String enrichIndex, String matchField, long maxSizeInBytes) {
+            super(enrichIndex, matchField, maxSizeInBytes);
+        }
+
+        @Override
+        void addDocument(BytesReference source, XContentType xContentType, Map<String, Object> sourceAsMap) throws IOException {
+            final Object value = XContentMapValues.extractValue(matchField, sourceAsMap);
+            final List<BytesRef> documentKeys = new ArrayList<>();
+            for (Object v : value instanceof List<?> list ? list : Collections.singletonList(value)) {
+                if (isLookupValue(v)) {
+                    documentKeys.add(BytesRefs.toBytesRef(v));
+                }
+            }
+            if (documentKeys.isEmpty()) {
+                // like an indexed document without a match field value, this document can't be found
+                return;
+            }
+            final int offset = storeDocument(source, xContentType);
+            for (BytesRef key : documentKeys) {
+                final List<Integer> documents = keyToDocuments.computeIfAbsent(key, k -> {
+                    keysSizeInBytes += 3L * Integer.BYTES + k.length;
+                    return new ArrayList<>(1);
+                });
+                documents.add(offset);
+                keysSizeInBytes += Integer.BYTES;
+            }
+            ensureCapacity(documentsSizeInBytes() + keysSizeInBytes + (long) slotCount() * Integer.BYTES);
+        }
+
+        private int slotCount() {
+            // keep the load factor at or below 0.5
+            return Integer.highestOneBit(Math.max(1, keyToDocuments.size()) * 2 - 1) << 1;
+        }
+
+        @Override
+        MatchLookupTable build() throws IOException {
+            final int slotCount = slotCount();
+            final ByteBuffer slots = ByteBuffer.allocateDirect(slotCount * Integer.BYTES);
+            for (int i = 0; i < slotCount; i++) {
+                slots.putInt(i * Integer.BYTES, EMPTY_SLOT);
+            }
+            final int mask = slotCount - 1;
+            final ByteBuffer keys = ByteBuffer.allocateDirect(Math.toIntExact(keysSizeInBytes));
+            for (Map.Entry<BytesRef, List<Integer>> entry : keyToDocuments.entrySet()) {
+                final BytesRef key = entry.getKey();
+                final int offset = keys.position();
+                final int hash = StringHelper.murmurhash3_x86_32(key, StringHelper.GOOD_FAST_HASH_SEED);
+                keys.putInt(hash).putInt(key.length).put(key.bytes, key.offset, key.length);
+                keys.putInt(entry.getValue().size());
+                for (int document : entry.getValue()) {
+                    keys.putInt(document);
+                }
+                int slot = hash & mask;
+                while (slots.getInt(slot * Integer.BYTES) != EMPTY_SLOT) {
+                    slot = (slot + 1) & mask;
+                }
+                slots.putInt(slot * Integer.BYTES, offset);
+            }
+            return new MatchLookupTable(enrichIndex, buildDocuments(), slots, keys.flip());
+        }
+    }
+}
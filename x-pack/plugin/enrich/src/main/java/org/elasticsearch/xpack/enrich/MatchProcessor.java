@@ -15,6 +15,7 @@ import org.elasticsearch.script.TemplateScript;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public final class MatchProcessor extends AbstractEnrichProcessor {
 
@@ -22,6 +23,7 @@ public final class MatchProcessor extends AbstractEnrichProcessor {
         String tag,
         String description,
         BiConsumer<SearchRequest, BiConsumer<List<Map<?, ?>>, Exception>> searchRunner,
+        Function<String, EnrichLookupTable> lookupTables,
         String policyName,
         TemplateScript.Factory field,
         TemplateScript.Factory targetField,
@@ -30,7 +32,19 @@ public final class MatchProcessor extends AbstractEnrichProcessor {
         String matchField,
         int maxMatches
     ) {
-        super(tag, description, searchRunner, policyName, field, targetField, ignoreMissing, overrideEnabled, matchField, maxMatches);
+        super(
+            tag,
+            description,
+            searchRunner,
+            lookupTables,
+            policyName,
+            field,
+            targetField,
+            ignoreMissing,
+            overrideEnabled,
+            matchField,
+            maxMatches
+        );
     }
 
     @Override
@@ -41,4 +55,9 @@ public final class MatchProcessor extends AbstractEnrichProcessor {
             return new TermQueryBuilder(matchField, fieldValue);
         }
     }
+
+    @Override
+    protected List<Map<?, ?>> lookup(EnrichLookupTable lookupTable, Object fieldValue) {
+        return lookupTable instanceof MatchLookupTable matchLookupTable ? matchLookupTable.lookup(fieldValue, maxMatches) : null;
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.enrich;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.geo.ShapeRelation;
+import org.elasticsearch.geometry.Point;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xcontent.XContentType;
+import org.elasticsearch.xcontent.json.JsonXContent;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+
+public class EnrichLookupTableTests extends ESTestCase {
+
+    public void testMatchLookup() throws IOException {
+        MatchLookupTable.Builder builder = new MatchLookupTable.Builder(".enrich-1", "domain", Long.MAX_VALUE);
+        addDocument(builder, Map.of("domain", "elastic.co", "tld", "co"));
+        addDocument(builder, Map.of("domain", List.of("elastic.org", "elasticsearch.org"), "tld", "org"));
+        addDocument(builder, Map.of("domain", 42, "tld", "number"));
+        addDocument(builder, Map.of("tld", "missing"));
+        for (int i = 0; i < 100; i++) {
+            addDocument(builder, Map.of("domain", "domain-" + i + ".com", "tld", "com"));
+        }
+        addDocument(builder, Map.of("domain", "domain-7.com", "tld", "duplicate"));
+        MatchLookupTable table = builder.build();
+        assertThat(table.getEnrichIndex(), equalTo(".enrich-1"));
+
+        assertThat(table.lookup("elastic.co", 1), equalTo(List.of(Map.of("domain", "elastic.co", "tld", "co"))));
+        assertThat(table.lookup("elasticsearch.org", 1), hasSize(1));
+        assertThat(table.lookup("elasticsearch.org", 1).get(0).get("tld"), equalTo("org"));
+        // like a term query on a keyword field, numbers match their string representation
+        assertThat(table.lookup(42, 1).get(0).get("tld"), equalTo("number"));
+        assertThat(table.lookup("42", 1).get(0).get("tld"), equalTo("number"));
+        assertThat(table.lookup("elastic.com", 1), empty());
+
+        assertThat(table.lookup("domain-7.com", 1), hasSize(1));
+        assertThat(tlds(table.lookup("domain-7.com", 8)), equalTo(Set.of("com", "duplicate")));
+        // like a terms query, a list matches any of its values, and documents are only returned once
+        assertThat(tlds(table.lookup(List.of("elastic.org", "elasticsearch.org", "elastic.co"), 8)), equalTo(Set.of("org", "co")));
+        assertThat(table.lookup(List.of("domain-1.com", "domain-2.com", "domain-3.com"), 2), hasSize(2));
+
+        // values that a term query can't look up by their string representation fall back to searching
+        assertThat(table.lookup(Map.of("domain", "elastic.co"), 1), nullValue());
+        assertThat(table.lookup(List.of("elastic.co", List.of()), 1), nullValue());
+    }
+
+    public void testMatchLookupReturnsCopies() throws IOException {
+        MatchLookupTable.Builder builder = new MatchLookupTable.Builder(".enrich-1", "domain", Long.MAX_VALUE);
+        addDocument(builder, Map.of("domain", "elastic.co", "tld", "co"));
+        MatchLookupTable table = builder.build();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> document = (Map<String, Object>) table.lookup("elastic.co", 1).get(0);
+        document.put("tld", "changed");
+        assertThat(table.lookup("elastic.co", 1).get(0).get("tld"), equalTo("co"));
+    }
+
+    public void testEmptyMatchLookup() throws IOException {
+        MatchLookupTable table = new MatchLookupTable.Builder(".enrich-1", "domain", Long.MAX_VALUE).build();
+        assertThat(table.lookup(randomAlphaOfLength(8), randomIntBetween(1, 8)), empty());
+    }
+
+    public void testGeoMatchLookup() throws IOException {
+        GeoMatchLookupTable.Builder builder = new GeoMatchLookupTable.Builder(".enrich-1", "shape", Long.MAX_VALUE);
+        // a grid of 10 by 10 squares of 1 degree
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                String polygon = "POLYGON((" + x + " " + y + ", " + (x + 1) + " " + y + ", " + (x + 1) + " " + (y + 1) + ", " + x + " "
+                    + (y + 1) + ", " + x + " " + y + "))";
+                addDocument(builder, Map.of("shape", polygon, "zone", x + "_" + y));
+            }
+        }
+        // a shape that covers the whole grid
+        addDocument(builder, Map.of("shape", "POLYGON((-1 -1, 11 -1, 11 11, -1 11, -1 -1))", "zone", "all"));
+        addDocument(builder, Map.of("zone", "missing"));
+        GeoMatchLookupTable table = builder.build();
+
+        Point point = new Point(3.5, 7.5);
+        assertThat(zones(table.lookup(point, ShapeRelation.INTERSECTS, 8)), equalTo(Set.of("3_7", "all")));
+        assertThat(zones(table.lookup(point, ShapeRelation.CONTAINS, 8)), equalTo(Set.of("3_7", "all")));
+        assertThat(table.lookup(point, ShapeRelation.INTERSECTS, 1), hasSize(1));
+        assertThat(table.lookup(point, ShapeRelation.DISJOINT, 8), hasSize(8));
+        assertThat(zones(table.lookup(point, ShapeRelation.DISJOINT, 128)), hasSize(99));
+        assertThat(table.lookup(point, ShapeRelation.WITHIN, 8), nullValue());
+
+        assertThat(zones(table.lookup(new Point(10.5, 10.5), ShapeRelation.INTERSECTS, 8)), equalTo(Set.of("all")));
+        assertThat(table.lookup(new Point(-50, 20), ShapeRelation.INTERSECTS, 8), empty());
+    }
+
+    public void testEmptyGeoMatchLookup() throws IOException {
+        GeoMatchLookupTable table = new GeoMatchLookupTable.Builder(".enrich-1", "shape", Long.MAX_VALUE).build();
+        Point point = new Point(randomDoubleBetween(-180, 180, true), randomDoubleBetween(-90, 90, true));
+        assertThat(table.lookup(point, ShapeRelation.INTERSECTS, randomIntBetween(1, 8)), empty());
+    }
+
+    public void testMaxSize() throws IOException {
+        MatchLookupTable.Builder builder = new MatchLookupTable.Builder(".enrich-1", "domain", 1024);
+        IllegalStateException e = expectThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                addDocument(builder, Map.of("domain", "domain-" + i + ".com", "tld", "com"));
+            }
+        });
+        assertThat(e.getMessage(), containsString("enrich index [.enrich-1] needs more than [1024] bytes"));
+    }
+
+    private static void addDocument(EnrichLookupTable.Builder builder, Map<String, Object> document) throws IOException {
+        BytesReference source = BytesReference.bytes(JsonXContent.contentBuilder().map(document));
+        builder.addDocument(source, XContentType.JSON, document);
+    }
+
+    private static Set<Object> tlds(List<Map<?, ?>> documents) {
+        return documents.stream().map(document -> document.get("tld")).collect(Collectors.toSet());
+    }
+
+    private static Set<Object> zones(List<Map<?, ?>> documents) {
+        return documents.stream().map(document -> document.get("zone")).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.enrich;
+
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ActionType;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.AliasMetadata;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.routing.TestShardRouting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.client.NoOpClient;
+import org.elasticsearch.xpack.core.enrich.EnrichPolicy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class EnrichLookupTablesTests extends ESTestCase {
+
+    public void testRetriesFailedLoadsOncePrimariesAreActive() {
+        final AtomicInteger searches = new AtomicInteger();
+        final AtomicBoolean failSearches = new AtomicBoolean(true);
+        try (NoOpClient client = new NoOpClient(getTestName()) {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected <Request extends ActionRequest, Response extends ActionResponse> void doExecute(
+                ActionType<Response> action,
+                Request request,
+                ActionListener<Response> listener
+            ) {
+                if (request instanceof SearchRequest) {
+                    searches.incrementAndGet();
+                    if (failSearches.get()) {
+                        listener.onFailure(new EsRejectedExecutionException("rejected"));
+                    } else {
+                        listener.onResponse((Response) emptySearchResponse());
+                    }
+                } else {
+                    listener.onResponse(null);
+                }
+            }
+        }) {
+            final Settings settings = Settings.builder().put(EnrichPlugin.LOOKUP_TABLE_ENABLED.getKey(), true).build();
+            final EnrichLookupTables lookupTables = new EnrichLookupTables(settings, client, Runnable::run);
+
+            lookupTables.accept(createState(false));
+            assertThat(searches.get(), equalTo(1));
+            assertThat(lookupTables.get("policy"), nullValue());
+
+            // the enrich index isn't searched again while its primaries aren't active
+            failSearches.set(false);
+            lookupTables.accept(createState(false));
+            assertThat(searches.get(), equalTo(1));
+            assertThat(lookupTables.get("policy"), nullValue());
+
+            lookupTables.accept(createState(true));
+            assertThat(searches.get(), equalTo(2));
+            assertThat(lookupTables.get("policy"), notNullValue());
+
+            // and it isn't loaded again once it's loaded
+            lookupTables.accept(createState(true));
+            assertThat(searches.get(), equalTo(2));
+        }
+    }
+
+    private static ClusterState createState(boolean primariesActive) {
+        final IndexMetadata indexMetadata = IndexMetadata.builder(EnrichPolicy.getBaseName("policy") + "-1")
+            .settings(settings(Version.CURRENT))
+            .numberOfShards(1)
+            .numberOfReplicas(0)
+            .putAlias(AliasMetadata.builder(EnrichPolicy.getBaseName("policy")).build())
+            .build();
+        final EnrichPolicy policy = new EnrichPolicy(EnrichPolicy.MATCH_TYPE, null, List.of("source"), "key", List.of("value"));
+        final Metadata metadata = Metadata.builder()
+            .put(indexMetadata, false)
+            .putCustom(EnrichMetadata.TYPE, new EnrichMetadata(Map.of("policy", policy)))
+            .build();
+        final RoutingTable.Builder routingTable = RoutingTable.builder();
+        if (primariesActive) {
+            final ShardId shardId = new ShardId(indexMetadata.getIndex(), 0);
+            routingTable.add(
+                IndexRoutingTable.builder(indexMetadata.getIndex())
+                    .addIndexShard(
+                        new IndexShardRoutingTable.Builder(shardId).addShard(
+                            TestShardRouting.newShardRouting(shardId, "node", true, ShardRoutingState.STARTED)
+                        ).build()
+                    )
+            );
+        } else {
+            routingTable.addAsNew(indexMetadata);
+        }
+        return ClusterState.builder(new ClusterName("test")).metadata(metadata).routingTable(routingTable.build()).build();
+    }
+
+    private static SearchResponse emptySearchResponse() {
+        InternalSearchResponse response = new InternalSearchResponse(
+            new SearchHits(new SearchHit[0], new TotalHits(0, TotalHits.Relation.EQUAL_TO), Float.NaN),
+            InternalAggregations.EMPTY,
+            null,
+            null,
+            false,
+            null,
+            1
+        );
+        return new SearchResponse(response, null, 1, 1, 0, 100, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+}
@@ -83,6 +83,7 @@ public class GeoMatchProcessorTests extends ESTestCase {
             "_tag",
             null,
             mockSearch,
+            policyName -> null,
             "_name",
             str("location"),
             str("entry"),
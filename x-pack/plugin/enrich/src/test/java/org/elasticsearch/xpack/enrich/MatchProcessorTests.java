@@ -9,6 +9,7 @@ package org.elasticsearch.xpack.enrich;
 import org.apache.lucene.util.SetOnce;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.cluster.routing.Preference;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
@@ -18,6 +19,8 @@ import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.TestTemplateService;
 import org.elasticsearch.script.TemplateScript;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xcontent.XContentType;
+import org.elasticsearch.xcontent.json.JsonXContent;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -40,6 +43,7 @@ public class MatchProcessorTests extends ESTestCase {
             "_tag",
             null,
             mockSearch,
+            policyName -> null,
             "_name",
             str("domain"),
             str("entry"),
@@ -95,6 +99,7 @@ public class MatchProcessorTests extends ESTestCase {
             "_tag",
             null,
             mockSearch,
+            policyName -> null,
             "_name",
             str("domain"),
             str("entry"),
@@ -142,6 +147,7 @@ public class MatchProcessorTests extends ESTestCase {
             "_tag",
             null,
             mockSearch,
+            policyName -> null,
             "_name",
             str("domain"),
             str("entry"),
@@ -193,6 +199,7 @@ public class MatchProcessorTests extends ESTestCase {
                 "_tag",
                 null,
                 mockedSearchFunction(),
+                policyName -> null,
                 "_name",
                 str("domain"),
                 str("entry"),
@@ -214,6 +221,7 @@ public class MatchProcessorTests extends ESTestCase {
                 "_tag",
                 null,
                 mockedSearchFunction(),
+                policyName -> null,
                 "_name",
                 str("domain"),
                 str("entry"),
@@ -241,6 +249,7 @@ public class MatchProcessorTests extends ESTestCase {
             "_tag",
             null,
             mockSearch,
+            policyName -> null,
             "_name",
             str("domain"),
             str("entry"),
@@ -268,6 +277,7 @@ public class MatchProcessorTests extends ESTestCase {
             "_tag",
             null,
             mockSearch,
+            policyName -> null,
             "_name",
             str("domain"),
             str("entry"),
@@ -292,12 +302,53 @@ public class MatchProcessorTests extends ESTestCase {
         assertThat(resultHolder[0].getFieldValue("tld", Object.class), equalTo(null));
     }
 
+    public void testLookupTable() throws Exception {
+        MatchLookupTable.Builder builder = new MatchLookupTable.Builder(".enrich-_name-1", "domain", Long.MAX_VALUE);
+        Map<String, Object> document = Map.of("domain", "elastic.co", "globalRank", 451, "tldRank", 23, "tld", "co");
+        builder.addDocument(BytesReference.bytes(JsonXContent.contentBuilder().map(document)), XContentType.JSON, document);
+        MatchLookupTable lookupTable = builder.build();
+        MockSearchFunction mockSearch = mockedSearchFunction(Map.of("globalRank", 451, "tldRank", 23, "tld", "co"));
+        MatchProcessor processor = new MatchProcessor(
+            "_tag",
+            null,
+            mockSearch,
+            policyName -> policyName.equals("_name") ? lookupTable : null,
+            "_name",
+            str("domain"),
+            str("entry"),
+            true,
+            false,
+            "domain",
+            1
+        );
+
+        IngestDocument ingestDocument = new IngestDocument(new HashMap<>(Map.of("domain", "elastic.co")), Map.of());
+        IngestDocument[] holder = new IngestDocument[1];
+        processor.execute(ingestDocument, (result, e) -> holder[0] = result);
+        assertThat(holder[0], notNullValue());
+        // the document is enriched without searching the enrich index
+        assertThat(mockSearch.getCapturedRequest(), nullValue());
+        assertThat(ingestDocument.getFieldValue("entry", Map.class), equalTo(document));
+
+        ingestDocument = new IngestDocument(new HashMap<>(Map.of("domain", "elastic.com")), Map.of());
+        processor.execute(ingestDocument, (result, e) -> holder[0] = result);
+        assertThat(holder[0], notNullValue());
+        assertThat(mockSearch.getCapturedRequest(), nullValue());
+        assertThat(ingestDocument.hasField("entry"), equalTo(false));
+
+        // values that the lookup table doesn't support are searched
+        ingestDocument = new IngestDocument(new HashMap<>(Map.of("domain", Map.of("name", "elastic.co"))), Map.of());
+        processor.execute(ingestDocument, (result, e) -> holder[0] = result);
+        assertThat(mockSearch.getCapturedRequest(), notNullValue());
+    }
+
     public void testNumericValue() {
         MockSearchFunction mockSearch = mockedSearchFunction(Map.of("globalRank", 451, "tldRank", 23, "tld", "co"));
         MatchProcessor processor = new MatchProcessor(
             "_tag",
             null,
             mockSearch,
+            policyName -> null,
             "_name",
             str("domain"),
             str("entry"),
@@ -335,6 +386,7 @@ public class MatchProcessorTests extends ESTestCase {
             "_tag",
             null,
             mockSearch,
+            policyName -> null,
             "_name",
             str("domain"),
             str("entry"),
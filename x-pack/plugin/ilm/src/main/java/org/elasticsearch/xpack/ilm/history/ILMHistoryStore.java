@@ -15,6 +15,7 @@ import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkProcessorStats;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
@@ -59,6 +60,8 @@ public class ILMHistoryStore implements Closeable {
         ).getBytes()
     );
 
+    private static final TimeValue ILM_HISTORY_BULK_TARGET_LATENCY = TimeValue.timeValueSeconds(5);
+
     private final boolean ilmHistoryEnabled;
     private final BulkProcessor processor;
     private final ThreadPool threadPool;
@@ -119,14 +122,19 @@ public class ILMHistoryStore implements Closeable {
                                 (msg1, msg2) -> Objects.equals(msg1, msg2) ? msg1 : msg1 + "," + msg2
                             )
                         );
-                    logger.error("failures: [{}]", failures);
+                    logger.error("failures: [{}], bulk processor stats: {}", failures, stats());
+                } else {
+                    logger.debug("ILM history bulk processor stats: {}", stats());
                 }
             }
 
             @Override
             public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
                 long items = request.numberOfActions();
-                logger.error(new ParameterizedMessage("failed to index {} items into ILM history index", items), failure);
+                logger.error(
+                    new ParameterizedMessage("failed to index {} items into ILM history index, bulk processor stats: {}", items, stats()),
+                    failure
+                );
             }
         }, "ilm-history-store")
             .setBulkActions(-1)
@@ -134,9 +142,18 @@ public class ILMHistoryStore implements Closeable {
             .setFlushInterval(TimeValue.timeValueSeconds(5))
             .setConcurrentRequests(1)
             .setBackoffPolicy(BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(1000), 3))
+            // history items are not urgent, so send smaller bulk requests when the cluster is under indexing pressure
+            .setAdaptive(ILM_HISTORY_BULK_TARGET_LATENCY)
             .build();
     }
 
+    /**
+     * The statistics of the bulk processor that indexes the history items, which are logged after every bulk request.
+     */
+    BulkProcessorStats stats() {
+        return processor.stats();
+    }
+
     /**
      * Attempts to asynchronously index an ILM history entry
      */
@@ -17,6 +17,7 @@ import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.bulk.BulkAction;
 import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessorStats;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
@@ -142,6 +143,12 @@ public class ILMHistoryStoreTests extends ESTestCase {
 
             historyStore.putAsync(record);
             assertBusy(() -> assertThat(calledTimes.get(), equalTo(1)));
+            assertBusy(() -> assertThat(historyStore.stats().getBulks(), equalTo(1L)));
+            BulkProcessorStats stats = historyStore.stats();
+            assertThat(stats.getFailedBulks(), equalTo(0L));
+            assertThat(stats.getAttempts(), equalTo(1L));
+            assertThat(stats.getRejectedAttempts(), equalTo(0L));
+            assertThat(stats.getConcurrentRequests(), equalTo(1));
         }
 
         {
@@ -135,7 +135,7 @@ public class TransportGetTrainedModelsStatsActionTests extends ESTestCase {
             )
         );
         clusterService = new ClusterService(settings, clusterSettings, tp);
-        ingestService = new IngestService(clusterService, tp, null, null, null, Collections.singletonList(SKINNY_INGEST_PLUGIN), client);
+        ingestService = new IngestService(Settings.EMPTY, clusterService, tp, null, null, null, Collections.singletonList(SKINNY_INGEST_PLUGIN), client);
     }
 
     public void testInferenceIngestStatsByModelId() {
@@ -33,6 +33,7 @@ public class Constants {
         "cluster:admin/indices/dangling/list",
         "cluster:admin/ingest/pipeline/delete",
         "cluster:admin/ingest/pipeline/get",
+        "cluster:admin/ingest/pipeline/profile",
         "cluster:admin/ingest/pipeline/put",
         "cluster:admin/ingest/pipeline/simulate",
         "cluster:admin/ingest/processor/grok/get",
@@ -8,6 +8,7 @@
 package org.elasticsearch.xpack.sql.plugin;
 
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.columnar.ColumnarMediaType;
 import org.elasticsearch.xcontent.MediaType;
 import org.elasticsearch.xcontent.MediaTypeRegistry;
 import org.elasticsearch.xcontent.ParsedMediaType;
@@ -22,7 +23,7 @@ import static org.elasticsearch.xpack.sql.action.Protocol.URL_PARAM_FORMAT;
 public class SqlMediaTypeParser {
     public static final MediaTypeRegistry<? extends MediaType> MEDIA_TYPE_REGISTRY = new MediaTypeRegistry<>().register(
         XContentType.values()
-    ).register(TextFormat.values());
+    ).register(TextFormat.values()).register(ColumnarMediaType.values());
 
     /*
      * Since we support {@link TextFormat} <strong>and</strong>
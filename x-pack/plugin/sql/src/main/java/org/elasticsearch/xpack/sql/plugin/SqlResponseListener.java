@@ -7,19 +7,27 @@
 
 package org.elasticsearch.xpack.sql.plugin;
 
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.action.RestResponseListener;
+import org.elasticsearch.rest.columnar.ColumnarMediaType;
+import org.elasticsearch.rest.columnar.ColumnarWriter;
 import org.elasticsearch.xcontent.MediaType;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentType;
 import org.elasticsearch.xpack.sql.action.SqlQueryRequest;
 import org.elasticsearch.xpack.sql.action.SqlQueryResponse;
+import org.elasticsearch.xpack.sql.proto.ColumnInfo;
+import org.elasticsearch.xpack.sql.proto.StringUtils;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static org.elasticsearch.xpack.sql.action.Protocol.HEADER_NAME_ASYNC_ID;
@@ -72,11 +80,15 @@ class SqlResponseListener extends RestResponseListener<SqlQueryResponse> {
             XContentBuilder builder = channel.newBuilder(request.getXContentType(), type, true);
             response.toXContent(builder, request);
             restResponse = new BytesRestResponse(RestStatus.OK, builder);
-        } else { // TextFormat
-            TextFormat type = (TextFormat) mediaType;
-            final String data = type.format(request, response);
-
-            restResponse = new BytesRestResponse(RestStatus.OK, type.contentType(request), data.getBytes(StandardCharsets.UTF_8));
+        } else {
+            if (mediaType == ColumnarMediaType.INSTANCE) {
+                restResponse = new BytesRestResponse(RestStatus.OK, ColumnarMediaType.CONTENT_TYPE, toColumnar(response));
+            } else { // TextFormat
+                TextFormat type = (TextFormat) mediaType;
+                final String data = type.format(request, response);
+
+                restResponse = new BytesRestResponse(RestStatus.OK, type.contentType(request), data.getBytes(StandardCharsets.UTF_8));
+            }
 
             if (response.hasCursor()) {
                 restResponse.addHeader(HEADER_NAME_CURSOR, response.cursor());
@@ -92,4 +104,36 @@ class SqlResponseListener extends RestResponseListener<SqlQueryResponse> {
         restResponse.addHeader(HEADER_NAME_TOOK_NANOS, Long.toString(System.nanoTime() - startNanos));
         return restResponse;
     }
+
+    /**
+     * Encodes the rows of the response as a single {@code rows} table of the columnar format. The columns are named after the columns
+     * of the response, or after their position on the pages of a cursor, which don't return the columns. Values that are neither
+     * numbers nor booleans are encoded as strings.
+     */
+    static BytesReference toColumnar(SqlQueryResponse response) throws IOException {
+        final ColumnarWriter writer = new ColumnarWriter();
+        final ColumnarWriter.Table table = writer.newTable("rows");
+        final List<ColumnInfo> columnInfos = response.columns();
+        final List<ColumnarWriter.Table.Column> columns = new ArrayList<>();
+        if (columnInfos != null) {
+            for (ColumnInfo columnInfo : columnInfos) {
+                columns.add(table.column(columnInfo.name()));
+            }
+        }
+        for (List<Object> row : response.rows()) {
+            for (int i = 0; i < row.size(); i++) {
+                if (i == columns.size()) {
+                    columns.add(table.column(Integer.toString(i)));
+                }
+                final Object value = row.get(i);
+                if (value == null || value instanceof Number || value instanceof Boolean) {
+                    columns.get(i).add(value);
+                } else {
+                    columns.get(i).add(StringUtils.toString(value));
+                }
+            }
+            table.endRow();
+        }
+        return writer.bytes();
+    }
 }
@@ -9,6 +9,7 @@ package org.elasticsearch.xpack.sql.plugin;
 
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.columnar.ColumnarMediaType;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.rest.FakeRestRequest;
 import org.elasticsearch.xcontent.MediaType;
@@ -47,6 +48,19 @@ public class SqlMediaTypeParserTests extends ESTestCase {
         assertThat(text, is(TSV));
     }
 
+    public void testColumnarDetection() {
+        MediaType columnar = getResponseMediaType(
+            reqWithAccept(ColumnarMediaType.CONTENT_TYPE),
+            createTestInstance(false, Mode.PLAIN, randomBoolean())
+        );
+        assertThat(columnar, is(ColumnarMediaType.INSTANCE));
+
+        RestRequest request = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY).withParams(Map.of("format", "columnar_binary"))
+            .build();
+        columnar = getResponseMediaType(request, createTestInstance(false, Mode.PLAIN, false));
+        assertThat(columnar, is(ColumnarMediaType.INSTANCE));
+    }
+
     public void testMediaTypeDetectionWithParameters() {
         assertThat(
             getResponseMediaType(reqWithAccept("text/plain; charset=utf-8"), createTestInstance(false, Mode.PLAIN, false)),
@@ -9,6 +9,9 @@ package org.elasticsearch.xpack.vectors.action;
 
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.StoredFieldsContext;
@@ -27,6 +30,7 @@ import java.util.List;
 import java.util.Objects;
 
 import static org.elasticsearch.xcontent.ConstructingObjectParser.constructorArg;
+import static org.elasticsearch.xcontent.ConstructingObjectParser.optionalConstructorArg;
 
 /**
  * A builder used in {@link RestKnnSearchAction} to convert the kNN REST request
@@ -179,6 +183,7 @@ class KnnSearchRequestBuilder {
         static final ParseField K_FIELD = new ParseField("k");
         static final ParseField NUM_CANDS_FIELD = new ParseField("num_candidates");
         static final ParseField QUERY_VECTOR_FIELD = new ParseField("query_vector");
+        static final ParseField FILTER_FIELD = new ParseField("filter");
 
         private static final ConstructingObjectParser<KnnSearch, Void> PARSER = new ConstructingObjectParser<>("knn", args -> {
             @SuppressWarnings("unchecked")
@@ -187,7 +192,9 @@ class KnnSearchRequestBuilder {
             for (int i = 0; i < vector.size(); i++) {
                 vectorArray[i] = vector.get(i);
             }
-            return new KnnSearch((String) args[0], vectorArray, (int) args[2], (int) args[3]);
+            @SuppressWarnings("unchecked")
+            List<QueryBuilder> filters = (List<QueryBuilder>) args[4];
+            return new KnnSearch((String) args[0], vectorArray, (int) args[2], (int) args[3], filters == null ? List.of() : filters);
         });
 
         static {
@@ -195,6 +202,12 @@ class KnnSearchRequestBuilder {
             PARSER.declareFloatArray(constructorArg(), QUERY_VECTOR_FIELD);
             PARSER.declareInt(constructorArg(), K_FIELD);
             PARSER.declareInt(constructorArg(), NUM_CANDS_FIELD);
+            PARSER.declareFieldArray(
+                optionalConstructorArg(),
+                (p, c) -> AbstractQueryBuilder.parseInnerQueryBuilder(p),
+                FILTER_FIELD,
+                ObjectParser.ValueType.OBJECT_ARRAY
+            );
         }
 
         public static KnnSearch parse(XContentParser parser) throws IOException {
@@ -205,6 +218,7 @@ class KnnSearchRequestBuilder {
         final float[] queryVector;
         final int k;
         final int numCands;
+        final List<QueryBuilder> filterQueries;
 
         /**
          * Defines a kNN search.
@@ -215,10 +229,33 @@ class KnnSearchRequestBuilder {
          * @param numCands the number of nearest neighbor candidates to consider per shard
          */
         KnnSearch(String field, float[] queryVector, int k, int numCands) {
+            this(field, queryVector, k, numCands, List.of());
+        }
+
+        /**
+         * Defines a kNN search that only considers the documents that match all the filter queries.
+         */
+        KnnSearch(String field, float[] queryVector, int k, int numCands, List<QueryBuilder> filterQueries) {
             this.field = field;
             this.queryVector = queryVector;
             this.k = k;
             this.numCands = numCands;
+            this.filterQueries = filterQueries;
+        }
+
+        /**
+         * The filter queries combined into a single query, or {@code null} if there are none.
+         */
+        QueryBuilder filterQuery() {
+            if (filterQueries.isEmpty()) {
+                return null;
+            }
+            if (filterQueries.size() == 1) {
+                return filterQueries.get(0);
+            }
+            BoolQueryBuilder boolQuery = new BoolQueryBuilder();
+            filterQueries.forEach(boolQuery::filter);
+            return boolQuery;
         }
 
         void build(SearchSourceBuilder builder) {
@@ -236,7 +273,7 @@ class KnnSearchRequestBuilder {
                 throw new IllegalArgumentException("[" + NUM_CANDS_FIELD.getPreferredName() + "] cannot exceed [" + NUM_CANDS_LIMIT + "]");
             }
 
-            builder.query(new KnnVectorQueryBuilder(field, queryVector, numCands));
+            builder.query(new KnnVectorQueryBuilder(field, queryVector, numCands, filterQuery()));
             builder.size(k);
         }
 
@@ -248,12 +285,13 @@ class KnnSearchRequestBuilder {
             return k == that.k
                 && numCands == that.numCands
                 && Objects.equals(field, that.field)
-                && Arrays.equals(queryVector, that.queryVector);
+                && Arrays.equals(queryVector, that.queryVector)
+                && Objects.equals(filterQueries, that.filterQueries);
         }
 
         @Override
         public int hashCode() {
-            int result = Objects.hash(field, k, numCands);
+            int result = Objects.hash(field, k, numCands, filterQueries);
             result = 31 * result + Arrays.hashCode(queryVector);
             return result;
         }
@@ -0,0 +1,153 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+
+/**
+ * Searches a hierarchical navigable small world graph, both while it is being built and once it has been written to disk. A searcher keeps
+ * its scratch state between searches, so it must not be shared between threads.
+ */
+final class HnswGraphSearcher {
+
+    /**
+     * The levels of a graph, where nodes are identified by their ordinal.
+     */
+    interface Graph {
+        int numLevels();
+
+        int entryNode();
+
+        /**
+         * Copies the neighbors of the node on the given level into the buffer and returns how many there are.
+         */
+        int neighbors(int level, int node, int[] buffer) throws IOException;
+    }
+
+    /**
+     * Scores nodes against the target of a search, higher scores meaning more similar.
+     */
+    interface Scorer {
+        float score(int node) throws IOException;
+    }
+
+    private final Graph graph;
+    private final int[] neighbors;
+    private final FixedBitSet visited;
+    private final NeighborHeap candidates;
+    private int[] visitedNodes = new int[16];
+    private int visitedCount;
+
+    HnswGraphSearcher(Graph graph, int size, int maxConn) {
+        this.graph = graph;
+        this.neighbors = new int[maxConn];
+        this.visited = new FixedBitSet(Math.max(1, size));
+        this.candidates = new NeighborHeap(maxConn, true);
+    }
+
+    /**
+     * Finds the {@code topK} nodes that are the most similar to the target of the scorer. Only nodes that are accepted count towards
+     * the results, though all nodes are used to navigate the graph.
+     *
+     * @return a min heap of at most {@code topK} nodes
+     */
+    NeighborHeap search(Scorer scorer, int topK, Bits acceptNodes) throws IOException {
+        final NeighborHeap results = new NeighborHeap(topK, false);
+        int entryNode = graph.entryNode();
+        if (entryNode < 0) {
+            return results;
+        }
+        final NeighborHeap entries = new NeighborHeap(1, false);
+        entries.add(entryNode, scorer.score(entryNode));
+        for (int level = graph.numLevels() - 1; level > 0; level--) {
+            final NeighborHeap closest = new NeighborHeap(1, false);
+            searchLevel(scorer, entries, 1, level, null, closest);
+            entries.clear();
+            entries.add(closest.topNode(), closest.topScore());
+        }
+        searchLevel(scorer, entries, topK, 0, acceptNodes, results);
+        return results;
+    }
+
+    /**
+     * Collects the {@code ef} accepted nodes that are the most similar to the target of the scorer on a single level of the graph into
+     * the results, starting from the given entries.
+     */
+    void searchLevel(Scorer scorer, NeighborHeap entries, int ef, int level, Bits acceptNodes, NeighborHeap results) throws IOException {
+        assert results.size() == 0;
+        clearVisited();
+        candidates.clear();
+        for (int i = 0; i < entries.size(); i++) {
+            final int node = entries.nodeAt(i);
+            final float score = entries.scoreAt(i);
+            visit(node);
+            candidates.add(node, score);
+            if (acceptNodes == null || acceptNodes.get(node)) {
+                collect(results, node, score, ef);
+            }
+        }
+        while (candidates.size() > 0) {
+            if (results.size() >= ef && candidates.topScore() < results.topScore()) {
+                // the best remaining candidate can't improve the results anymore
+                break;
+            }
+            final int candidate = candidates.pop();
+            final int count = graph.neighbors(level, candidate, neighbors);
+            for (int i = 0; i < count; i++) {
+                final int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visit(neighbor);
+                final float score = scorer.score(neighbor);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.add(neighbor, score);
+                    if (acceptNodes == null || acceptNodes.get(neighbor)) {
+                        collect(results, neighbor, score, ef);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The number of nodes that the last search visited on its last level.
+     */
+    int visitedCount() {
+        return visitedCount;
+    }
+
+    private static void collect(NeighborHeap results, int node, float score, int ef) {
+        results.add(node, score);
+        if (results.size() > ef) {
+            results.pop();
+        }
+    }
+
+    private void visit(int node) {
+        visited.set(node);
+        if (visitedCount == visitedNodes.length) {
+            visitedNodes = ArrayUtil.grow(visitedNodes, visitedCount + 1);
+        }
+        visitedNodes[visitedCount++] = node;
+    }
+
+    /**
+     * Only clears the bits that were set by the previous search, which are usually few compared to the size of the graph.
+     */
+    private void clearVisited() {
+        for (int i = 0; i < visitedCount; i++) {
+            visited.clear(visitedNodes[i]);
+        }
+        visitedCount = 0;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds a hierarchical navigable small world graph over quantized vectors, as described in
+ * <a href="https://arxiv.org/abs/1603.09320">the HNSW paper</a>. Nodes are inserted in ordinal order with a random level, and are
+ * connected to the most similar nodes that a search on each of their levels finds, favoring neighbors that aren't already connected
+ * through each other. Scores are computed on the dequantized vectors, so the graph only ever reads one byte per dimension.
+ */
+final class Int8HnswGraphBuilder implements HnswGraphSearcher.Graph {
+
+    /** Nodes above this level are so rare that they don't help navigating the graph. */
+    static final int MAX_LEVEL = 15;
+
+    private final QuantizedVectors vectors;
+    private final int size;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final NeighborList[] level0;
+    private final List<Map<Integer, NeighborList>> upperLevels = new ArrayList<>();
+    private final HnswGraphSearcher searcher;
+    private final float[] target;
+    private final float[] scratch;
+    private int entryNode = -1;
+
+    Int8HnswGraphBuilder(QuantizedVectors vectors, int size, int m, int efConstruction) {
+        if (m <= 0) {
+            throw new IllegalArgumentException("m must be positive but was [" + m + "]");
+        }
+        if (efConstruction <= 0) {
+            throw new IllegalArgumentException("ef_construction must be positive but was [" + efConstruction + "]");
+        }
+        this.vectors = vectors;
+        this.size = size;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(Math.max(2, m));
+        this.level0 = new NeighborList[size];
+        this.searcher = new HnswGraphSearcher(this, size, maxConn(0));
+        this.target = new float[vectors.dims()];
+        this.scratch = new float[vectors.dims()];
+    }
+
+    /**
+     * The maximum number of neighbors of a node on the given level. The bottom level, which all nodes share, allows twice as many.
+     */
+    int maxConn(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    void build() throws IOException {
+        for (int node = 0; node < size; node++) {
+            addNode(node);
+        }
+    }
+
+    private void addNode(int node) throws IOException {
+        final int nodeLevel = randomLevel();
+        vectors.dequantize(node, target);
+        final HnswGraphSearcher.Scorer scorer = other -> vectors.score(target, other);
+
+        final int previousLevels = numLevels();
+        for (int level = 0; level <= nodeLevel; level++) {
+            if (level > 0 && level > upperLevels.size()) {
+                upperLevels.add(new HashMap<>());
+            }
+            setNeighbors(level, node, new NeighborList(maxConn(level) + 1));
+        }
+        if (entryNode == -1) {
+            entryNode = node;
+            return;
+        }
+
+        NeighborHeap entries = new NeighborHeap(1, false);
+        entries.add(entryNode, scorer.score(entryNode));
+        for (int level = previousLevels - 1; level > nodeLevel; level--) {
+            final NeighborHeap closest = new NeighborHeap(1, false);
+            searcher.searchLevel(scorer, entries, 1, level, null, closest);
+            entries = closest;
+        }
+        for (int level = Math.min(nodeLevel, previousLevels - 1); level >= 0; level--) {
+            final NeighborHeap candidates = new NeighborHeap(efConstruction, false);
+            searcher.searchLevel(scorer, entries, efConstruction, level, null, candidates);
+            connect(level, node, candidates);
+            // the candidates of this level are the entry points of the next one
+            entries = candidates;
+        }
+        if (nodeLevel >= previousLevels) {
+            entryNode = node;
+        }
+    }
+
+    private int randomLevel() {
+        final double uniform = 1 - random.nextDouble(); // in (0, 1], so that the log is finite
+        return Math.min(MAX_LEVEL, (int) (-Math.log(uniform) * levelMultiplier));
+    }
+
+    /**
+     * Connects the node to the most diverse of its candidates on the given level, and each of these back to the node.
+     */
+    private void connect(int level, int node, NeighborHeap candidates) throws IOException {
+        final int count = candidates.size();
+        final int[] nodes = new int[count];
+        final float[] scores = new float[count];
+        // drain the min heap so that candidates are sorted by decreasing score
+        for (int i = count - 1; i >= 0; i--) {
+            scores[i] = candidates.topScore();
+            nodes[i] = candidates.pop();
+        }
+        // the candidates are popped, but the heap still holds them for the next level
+        for (int i = 0; i < count; i++) {
+            candidates.add(nodes[i], scores[i]);
+        }
+
+        final int maxConn = maxConn(level);
+        final NeighborList neighbors = getNeighbors(level, node);
+        final boolean[] selected = new boolean[count];
+        for (int i = 0; i < count && neighbors.size < maxConn; i++) {
+            if (isDiverse(nodes[i], scores[i], neighbors)) {
+                neighbors.insert(nodes[i], scores[i], maxConn);
+                selected[i] = true;
+            }
+        }
+        // keep the closest of the pruned candidates rather than leaving the node with few neighbors
+        for (int i = 0; i < count && neighbors.size < maxConn; i++) {
+            if (selected[i] == false) {
+                neighbors.insert(nodes[i], scores[i], maxConn);
+            }
+        }
+        for (int i = 0; i < neighbors.size; i++) {
+            getNeighbors(level, neighbors.nodes[i]).insert(node, neighbors.scores[i], maxConn);
+        }
+    }
+
+    /**
+     * Whether the candidate is closer to the node than it is to any of the neighbors that the node already has.
+     */
+    private boolean isDiverse(int candidate, float score, NeighborList neighbors) throws IOException {
+        vectors.dequantize(candidate, scratch);
+        for (int i = 0; i < neighbors.size; i++) {
+            if (vectors.score(scratch, neighbors.nodes[i]) >= score) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private NeighborList getNeighbors(int level, int node) {
+        return level == 0 ? level0[node] : upperLevels.get(level - 1).get(node);
+    }
+
+    private void setNeighbors(int level, int node, NeighborList neighbors) {
+        if (level == 0) {
+            level0[node] = neighbors;
+        } else {
+            upperLevels.get(level - 1).put(node, neighbors);
+        }
+    }
+
+    @Override
+    public int numLevels() {
+        return upperLevels.size() + 1;
+    }
+
+    @Override
+    public int entryNode() {
+        return entryNode;
+    }
+
+    @Override
+    public int neighbors(int level, int node, int[] buffer) {
+        final NeighborList neighbors = getNeighbors(level, node);
+        System.arraycopy(neighbors.nodes, 0, buffer, 0, neighbors.size);
+        return neighbors.size;
+    }
+
+    /**
+     * The sorted ordinals of the nodes on the given level, which must be above the bottom level.
+     */
+    int[] nodesOnLevel(int level) {
+        assert level > 0;
+        final int[] nodes = upperLevels.get(level - 1).keySet().stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(nodes);
+        return nodes;
+    }
+
+    /**
+     * The neighbors of a node, sorted by decreasing score.
+     */
+    static final class NeighborList {
+        private final int[] nodes;
+        private final float[] scores;
+        private int size;
+
+        NeighborList(int capacity) {
+            nodes = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        /**
+         * Inserts the node at its position, dropping the least similar neighbor if the list then has more than {@code maxSize} entries.
+         */
+        void insert(int node, float score, int maxSize) {
+            assert maxSize < nodes.length;
+            int i = size;
+            while (i > 0 && scores[i - 1] < score) {
+                i--;
+            }
+            if (i >= maxSize) {
+                return;
+            }
+            System.arraycopy(nodes, i, nodes, i + 1, size - i);
+            System.arraycopy(scores, i, scores, i + 1, size - i);
+            nodes[i] = node;
+            scores[i] = score;
+            size = Math.min(size + 1, maxSize);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.KnnVectorsReader;
+import org.apache.lucene.codecs.KnnVectorsWriter;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+
+import java.io.IOException;
+
+/**
+ * A vectors format that builds and searches its HNSW graph over vectors that are scalar quantized to one byte per dimension, which takes
+ * a quarter of the memory of the float vectors that {@code Lucene90HnswVectorsFormat} searches. The float vectors are still stored in a
+ * separate file, which is only read to return vector values and, if {@code rescore} is enabled, to recompute the exact scores of the
+ * top hits of a search.
+ * <p>
+ * The files of a field are:
+ * <ul>
+ *     <li>{@code .vemq}: metadata, that is the dimensions, the quantiles, the doc ids and the nodes on each level of the graph</li>
+ *     <li>{@code .veq}: the quantized vectors, with one byte per dimension</li>
+ *     <li>{@code .vecf}: the float vectors, little endian</li>
+ *     <li>{@code .vexq}: the neighbors of each node on each level, in fixed size slots</li>
+ * </ul>
+ */
+public final class Int8HnswVectorsFormat extends KnnVectorsFormat {
+
+    public static final String NAME = "ES81Int8HnswVectorsFormat";
+
+    public static final int DEFAULT_MAX_CONN = 16;
+    public static final int DEFAULT_BEAM_WIDTH = 100;
+
+    static final String META_CODEC_NAME = "ES81Int8HnswVectorsFormatMeta";
+    static final String QUANTIZED_DATA_CODEC_NAME = "ES81Int8HnswVectorsFormatQuantizedData";
+    static final String RAW_DATA_CODEC_NAME = "ES81Int8HnswVectorsFormatRawData";
+    static final String GRAPH_CODEC_NAME = "ES81Int8HnswVectorsFormatGraph";
+    static final String META_EXTENSION = "vemq";
+    static final String QUANTIZED_DATA_EXTENSION = "veq";
+    static final String RAW_DATA_EXTENSION = "vecf";
+    static final String GRAPH_EXTENSION = "vexq";
+
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    private final int maxConn;
+    private final int beamWidth;
+    private final boolean rescore;
+
+    /**
+     * Used by the SPI to read segments, for which the parameters that the graph was built with don't matter.
+     */
+    public Int8HnswVectorsFormat() {
+        this(DEFAULT_MAX_CONN, DEFAULT_BEAM_WIDTH, true);
+    }
+
+    public Int8HnswVectorsFormat(int maxConn, int beamWidth, boolean rescore) {
+        super(NAME);
+        this.maxConn = maxConn;
+        this.beamWidth = beamWidth;
+        this.rescore = rescore;
+    }
+
+    @Override
+    public KnnVectorsWriter fieldsWriter(SegmentWriteState state) throws IOException {
+        return new Int8HnswVectorsWriter(state, maxConn, beamWidth, rescore);
+    }
+
+    @Override
+    public KnnVectorsReader fieldsReader(SegmentReadState state) throws IOException {
+        return new Int8HnswVectorsReader(state);
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(maxConn=" + maxConn + ", beamWidth=" + beamWidth + ", rescore=" + rescore + ")";
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.KnnVectorsReader;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.index.VectorValues;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.core.internal.io.IOUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the files of the {@link Int8HnswVectorsFormat}. Searches navigate the graph with the quantized vectors, and, if the field was
+ * written with {@code rescore} enabled, collect more candidates than requested and keep those with the best exact scores as computed on
+ * the float vectors.
+ */
+final class Int8HnswVectorsReader extends KnnVectorsReader {
+
+    /**
+     * How many more candidates than requested a search collects when it rescores them.
+     */
+    static final int RESCORE_OVERSAMPLING = 2;
+
+    private static final long SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(Int8HnswVectorsReader.class);
+
+    private final FieldInfos fieldInfos;
+    private final Map<String, FieldEntry> fields = new HashMap<>();
+    private final IndexInput quantizedData;
+    private final IndexInput rawData;
+    private final IndexInput graphData;
+
+    Int8HnswVectorsReader(SegmentReadState state) throws IOException {
+        this.fieldInfos = state.fieldInfos;
+        final int versionMeta = readMetadata(state);
+        boolean success = false;
+        try {
+            quantizedData = openDataInput(
+                state,
+                versionMeta,
+                Int8HnswVectorsFormat.QUANTIZED_DATA_EXTENSION,
+                Int8HnswVectorsFormat.QUANTIZED_DATA_CODEC_NAME
+            );
+            rawData = openDataInput(
+                state,
+                versionMeta,
+                Int8HnswVectorsFormat.RAW_DATA_EXTENSION,
+                Int8HnswVectorsFormat.RAW_DATA_CODEC_NAME
+            );
+            graphData = openDataInput(state, versionMeta, Int8HnswVectorsFormat.GRAPH_EXTENSION, Int8HnswVectorsFormat.GRAPH_CODEC_NAME);
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
+    private int readMetadata(SegmentReadState state) throws IOException {
+        final String metaFileName = IndexFileNames.segmentFileName(
+            state.segmentInfo.name,
+            state.segmentSuffix,
+            Int8HnswVectorsFormat.META_EXTENSION
+        );
+        int versionMeta = -1;
+        try (ChecksumIndexInput meta = state.directory.openChecksumInput(metaFileName, state.context)) {
+            Throwable priorE = null;
+            try {
+                versionMeta = CodecUtil.checkIndexHeader(
+                    meta,
+                    Int8HnswVectorsFormat.META_CODEC_NAME,
+                    Int8HnswVectorsFormat.VERSION_START,
+                    Int8HnswVectorsFormat.VERSION_CURRENT,
+                    state.segmentInfo.getId(),
+                    state.segmentSuffix
+                );
+                readFields(meta);
+            } catch (Throwable exception) {
+                priorE = exception;
+            } finally {
+                CodecUtil.checkFooter(meta, priorE);
+            }
+        }
+        return versionMeta;
+    }
+
+    private void readFields(ChecksumIndexInput meta) throws IOException {
+        for (int fieldNumber = meta.readInt(); fieldNumber != -1; fieldNumber = meta.readInt()) {
+            final FieldInfo info = fieldInfos.fieldInfo(fieldNumber);
+            if (info == null) {
+                throw new CorruptIndexException("Invalid field number: " + fieldNumber, meta);
+            }
+            final FieldEntry entry = new FieldEntry(meta);
+            if (entry.dims != info.getVectorDimension()) {
+                throw new CorruptIndexException(
+                    "Inconsistent vector dimension for field=\"" + info.name + "\"; " + entry.dims + " != " + info.getVectorDimension(),
+                    meta
+                );
+            }
+            fields.put(info.name, entry);
+        }
+    }
+
+    private static IndexInput openDataInput(SegmentReadState state, int versionMeta, String fileExtension, String codecName)
+        throws IOException {
+        final String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, fileExtension);
+        final IndexInput in = state.directory.openInput(fileName, state.context);
+        boolean success = false;
+        try {
+            final int versionData = CodecUtil.checkIndexHeader(
+                in,
+                codecName,
+                Int8HnswVectorsFormat.VERSION_START,
+                Int8HnswVectorsFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(),
+                state.segmentSuffix
+            );
+            if (versionMeta != versionData) {
+                throw new CorruptIndexException("Format versions mismatch: meta=" + versionMeta + ", data=" + versionData, in);
+            }
+            CodecUtil.retrieveChecksum(in);
+            success = true;
+            return in;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(in);
+            }
+        }
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+        CodecUtil.checksumEntireFile(quantizedData);
+        CodecUtil.checksumEntireFile(rawData);
+        CodecUtil.checksumEntireFile(graphData);
+    }
+
+    @Override
+    public VectorValues getVectorValues(String field) throws IOException {
+        final FieldEntry entry = fields.get(field);
+        if (entry == null) {
+            return null;
+        }
+        return new OffHeapVectorValues(entry, rawData.slice("raw-vector-data", entry.rawDataOffset, entry.rawDataLength));
+    }
+
+    @Override
+    public TopDocs search(String field, float[] target, int k, Bits acceptDocs) throws IOException {
+        final FieldEntry entry = fields.get(field);
+        if (entry == null || entry.size == 0 || k <= 0) {
+            return new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+        }
+        k = Math.min(k, entry.size);
+        final QuantizedVectors vectors = new QuantizedVectors(
+            quantizedData.slice("quantized-vector-data", entry.quantizedDataOffset, entry.quantizedDataLength),
+            entry.dims,
+            entry.quantizer,
+            entry.similarity
+        );
+        final OffHeapGraph graph = new OffHeapGraph(entry, graphData.slice("graph-data", entry.graphDataOffset, entry.graphDataLength));
+        final HnswGraphSearcher searcher = new HnswGraphSearcher(graph, entry.size, 2 * entry.maxConn);
+        final Bits acceptOrds = acceptDocs == null ? null : new Bits() {
+            @Override
+            public boolean get(int ord) {
+                return acceptDocs.get(entry.ordToDoc[ord]);
+            }
+
+            @Override
+            public int length() {
+                return entry.size;
+            }
+        };
+        final int numCandidates = entry.rescore ? Math.min(entry.size, k * RESCORE_OVERSAMPLING) : k;
+        NeighborHeap results = searcher.search(ord -> vectors.score(target, ord), numCandidates, acceptOrds);
+        if (entry.rescore) {
+            results = rescore(entry, target, results, k);
+        }
+
+        final ScoreDoc[] scoreDocs = new ScoreDoc[results.size()];
+        for (int i = scoreDocs.length - 1; i >= 0; i--) {
+            final float score = results.topScore();
+            final int ord = results.pop();
+            scoreDocs[i] = new ScoreDoc(entry.ordToDoc[ord], score);
+        }
+        return new TopDocs(new TotalHits(searcher.visitedCount(), TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO), scoreDocs);
+    }
+
+    /**
+     * Recomputes the scores of the candidates with the float vectors and returns the {@code k} best of them.
+     */
+    private NeighborHeap rescore(FieldEntry entry, float[] target, NeighborHeap candidates, int k) throws IOException {
+        final OffHeapVectorValues rawVectors = new OffHeapVectorValues(
+            entry,
+            rawData.slice("raw-vector-data", entry.rawDataOffset, entry.rawDataLength)
+        );
+        final NeighborHeap results = new NeighborHeap(k, false);
+        for (int i = 0; i < candidates.size(); i++) {
+            final int ord = candidates.nodeAt(i);
+            results.add(ord, entry.similarity.compare(target, rawVectors.vectorValue(ord)));
+            if (results.size() > k) {
+                results.pop();
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = SHALLOW_SIZE;
+        for (FieldEntry entry : fields.values()) {
+            ramBytesUsed += entry.ramBytesUsed();
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(quantizedData, rawData, graphData);
+    }
+
+    private static final class FieldEntry {
+        final VectorSimilarityFunction similarity;
+        final int dims;
+        final int size;
+        final ScalarQuantizer quantizer;
+        final boolean rescore;
+        final long quantizedDataOffset;
+        final long quantizedDataLength;
+        final long rawDataOffset;
+        final long rawDataLength;
+        final long graphDataOffset;
+        final long graphDataLength;
+        final int[] ordToDoc;
+        final int maxConn;
+        final int entryNode;
+        // the nodes of each level above the bottom one, which all nodes are on
+        final int[][] nodesByLevel;
+        // the offsets of the neighbors of each level in the graph data of the field
+        final long[] levelOffsets;
+
+        FieldEntry(IndexInput meta) throws IOException {
+            final int similarityOrdinal = meta.readInt();
+            if (similarityOrdinal < 0 || similarityOrdinal >= VectorSimilarityFunction.values().length) {
+                throw new CorruptIndexException("Invalid similarity function id: " + similarityOrdinal, meta);
+            }
+            similarity = VectorSimilarityFunction.values()[similarityOrdinal];
+            dims = meta.readVInt();
+            size = meta.readInt();
+            quantizer = new ScalarQuantizer(Float.intBitsToFloat(meta.readInt()), Float.intBitsToFloat(meta.readInt()));
+            rescore = meta.readByte() == 1;
+            quantizedDataOffset = meta.readVLong();
+            quantizedDataLength = meta.readVLong();
+            rawDataOffset = meta.readVLong();
+            rawDataLength = meta.readVLong();
+            graphDataOffset = meta.readVLong();
+            graphDataLength = meta.readVLong();
+            ordToDoc = readSortedInts(meta);
+            if (ordToDoc.length != size) {
+                throw new CorruptIndexException("Expected " + size + " doc ids but got " + ordToDoc.length, meta);
+            }
+            maxConn = meta.readVInt();
+            final int numLevels = meta.readVInt();
+            entryNode = meta.readInt();
+            nodesByLevel = new int[numLevels][];
+            levelOffsets = new long[numLevels];
+            long offset = (long) size * slotBytes(0);
+            for (int level = 1; level < numLevels; level++) {
+                nodesByLevel[level] = readSortedInts(meta);
+                levelOffsets[level] = offset;
+                offset += (long) nodesByLevel[level].length * slotBytes(level);
+            }
+            if (offset != graphDataLength) {
+                throw new CorruptIndexException("Expected " + offset + " bytes of graph data but got " + graphDataLength, meta);
+            }
+        }
+
+        private static int[] readSortedInts(IndexInput meta) throws IOException {
+            final int[] values = new int[meta.readVInt()];
+            int previous = 0;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = previous + meta.readVInt();
+                previous = values[i];
+            }
+            return values;
+        }
+
+        int maxConn(int level) {
+            return level == 0 ? 2 * maxConn : maxConn;
+        }
+
+        int slotBytes(int level) {
+            return (1 + maxConn(level)) * Integer.BYTES;
+        }
+
+        long ramBytesUsed() {
+            long ramBytesUsed = RamUsageEstimator.sizeOf(ordToDoc) + RamUsageEstimator.sizeOf(levelOffsets);
+            for (int[] nodes : nodesByLevel) {
+                if (nodes != null) {
+                    ramBytesUsed += RamUsageEstimator.sizeOf(nodes);
+                }
+            }
+            return ramBytesUsed;
+        }
+    }
+
+    /**
+     * The graph of a field, which reads the neighbors of a node from its slot in the graph data.
+     */
+    private static final class OffHeapGraph implements HnswGraphSearcher.Graph {
+        private final FieldEntry entry;
+        private final IndexInput data;
+
+        OffHeapGraph(FieldEntry entry, IndexInput data) {
+            this.entry = entry;
+            this.data = data;
+        }
+
+        @Override
+        public int numLevels() {
+            return entry.nodesByLevel.length;
+        }
+
+        @Override
+        public int entryNode() {
+            return entry.entryNode;
+        }
+
+        @Override
+        public int neighbors(int level, int node, int[] buffer) throws IOException {
+            final int slot = level == 0 ? node : Arrays.binarySearch(entry.nodesByLevel[level], node);
+            assert slot >= 0 : "node [" + node + "] isn't on level [" + level + "]";
+            data.seek(entry.levelOffsets[level] + (long) slot * entry.slotBytes(level));
+            final int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                buffer[i] = data.readInt();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The float vectors of a field.
+     */
+    private static final class OffHeapVectorValues extends VectorValues {
+        private final FieldEntry entry;
+        private final IndexInput data;
+        private final ByteBuffer buffer;
+        private final BytesRef binaryValue;
+        private final float[] value;
+        private int ord = -1;
+        private int doc = -1;
+
+        OffHeapVectorValues(FieldEntry entry, IndexInput data) {
+            this.entry = entry;
+            this.data = data;
+            this.buffer = ByteBuffer.allocate(entry.dims * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            this.binaryValue = new BytesRef(buffer.array());
+            this.value = new float[entry.dims];
+        }
+
+        @Override
+        public int dimension() {
+            return entry.dims;
+        }
+
+        @Override
+        public int size() {
+            return entry.size;
+        }
+
+        @Override
+        public float[] vectorValue() throws IOException {
+            return vectorValue(ord);
+        }
+
+        float[] vectorValue(int targetOrd) throws IOException {
+            readVector(targetOrd);
+            buffer.asFloatBuffer().get(value);
+            return value;
+        }
+
+        @Override
+        public BytesRef binaryValue() throws IOException {
+            readVector(ord);
+            return binaryValue;
+        }
+
+        private void readVector(int targetOrd) throws IOException {
+            data.seek((long) targetOrd * buffer.capacity());
+            data.readBytes(buffer.array(), 0, buffer.capacity());
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            return advanceToOrd(ord + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            assert target > doc;
+            int index = Arrays.binarySearch(entry.ordToDoc, ord + 1, entry.size, target);
+            if (index < 0) {
+                index = -1 - index;
+            }
+            return advanceToOrd(index);
+        }
+
+        private int advanceToOrd(int targetOrd) {
+            ord = targetOrd;
+            doc = ord >= entry.size ? NO_MORE_DOCS : entry.ordToDoc[ord];
+            return doc;
+        }
+
+        @Override
+        public long cost() {
+            return entry.size;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.KnnVectorsReader;
+import org.apache.lucene.codecs.KnnVectorsWriter;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.VectorValues;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.core.internal.io.IOUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * Writes the files of the {@link Int8HnswVectorsFormat}. Each field is read twice: once to store the float vectors and to sample their
+ * components, which gives the quantiles to quantize with, and once to quantize them. The graph is then built over the quantized vectors
+ * of a temporary file, which is copied into the data file once the graph is complete.
+ */
+final class Int8HnswVectorsWriter extends KnnVectorsWriter {
+
+    private final SegmentWriteState state;
+    private final IndexOutput meta;
+    private final IndexOutput quantizedData;
+    private final IndexOutput rawData;
+    private final IndexOutput graphData;
+    private final int maxConn;
+    private final int beamWidth;
+    private final boolean rescore;
+    private boolean finished;
+
+    Int8HnswVectorsWriter(SegmentWriteState state, int maxConn, int beamWidth, boolean rescore) throws IOException {
+        this.state = state;
+        this.maxConn = maxConn;
+        this.beamWidth = beamWidth;
+        this.rescore = rescore;
+        boolean success = false;
+        try {
+            meta = createOutput(Int8HnswVectorsFormat.META_EXTENSION, Int8HnswVectorsFormat.META_CODEC_NAME);
+            quantizedData = createOutput(
+                Int8HnswVectorsFormat.QUANTIZED_DATA_EXTENSION,
+                Int8HnswVectorsFormat.QUANTIZED_DATA_CODEC_NAME
+            );
+            rawData = createOutput(Int8HnswVectorsFormat.RAW_DATA_EXTENSION, Int8HnswVectorsFormat.RAW_DATA_CODEC_NAME);
+            graphData = createOutput(Int8HnswVectorsFormat.GRAPH_EXTENSION, Int8HnswVectorsFormat.GRAPH_CODEC_NAME);
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
+    private IndexOutput createOutput(String extension, String codecName) throws IOException {
+        final String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, extension);
+        final IndexOutput output = state.directory.createOutput(fileName, state.context);
+        boolean success = false;
+        try {
+            CodecUtil.writeIndexHeader(
+                output,
+                codecName,
+                Int8HnswVectorsFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(),
+                state.segmentSuffix
+            );
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(output);
+            }
+        }
+        return output;
+    }
+
+    @Override
+    public void writeField(FieldInfo fieldInfo, KnnVectorsReader knnVectorsReader) throws IOException {
+        final int dims = fieldInfo.getVectorDimension();
+
+        // first pass: store the float vectors and sample their components
+        final long rawDataOffset = rawData.getFilePointer();
+        final ScalarQuantizer.Sampler sampler = new ScalarQuantizer.Sampler();
+        final ByteBuffer rawVector = ByteBuffer.allocate(dims * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int[] docIds = new int[16];
+        int size = 0;
+        VectorValues vectors = knnVectorsReader.getVectorValues(fieldInfo.name);
+        for (int doc = vectors.nextDoc(); doc != NO_MORE_DOCS; doc = vectors.nextDoc()) {
+            final float[] vector = vectors.vectorValue();
+            rawVector.asFloatBuffer().put(vector);
+            rawData.writeBytes(rawVector.array(), rawVector.capacity());
+            sampler.add(vector);
+            docIds = ArrayUtil.grow(docIds, size + 1);
+            docIds[size++] = doc;
+        }
+        final long rawDataLength = rawData.getFilePointer() - rawDataOffset;
+        final ScalarQuantizer quantizer = sampler.build(ScalarQuantizer.confidenceInterval(dims));
+
+        // second pass: quantize the vectors into a temporary file that the graph can read while it's being built
+        final byte[] quantized = new byte[dims];
+        final String tempFileName;
+        try (IndexOutput temp = state.directory.createTempOutput(quantizedData.getName(), "temp", state.context)) {
+            tempFileName = temp.getName();
+            vectors = knnVectorsReader.getVectorValues(fieldInfo.name);
+            for (int doc = vectors.nextDoc(); doc != NO_MORE_DOCS; doc = vectors.nextDoc()) {
+                quantizer.quantize(vectors.vectorValue(), quantized);
+                temp.writeBytes(quantized, dims);
+            }
+        }
+
+        try (IndexInput temp = state.directory.openInput(tempFileName, state.context)) {
+            final long quantizedDataOffset = quantizedData.getFilePointer();
+            quantizedData.copyBytes(temp, temp.length());
+            final long quantizedDataLength = quantizedData.getFilePointer() - quantizedDataOffset;
+
+            final QuantizedVectors quantizedVectors = new QuantizedVectors(temp, dims, quantizer, fieldInfo.getVectorSimilarityFunction());
+            final Int8HnswGraphBuilder graph = new Int8HnswGraphBuilder(quantizedVectors, size, maxConn, beamWidth);
+            graph.build();
+            final long graphDataOffset = graphData.getFilePointer();
+            writeGraph(graph, size);
+            final long graphDataLength = graphData.getFilePointer() - graphDataOffset;
+
+            meta.writeInt(fieldInfo.number);
+            meta.writeInt(fieldInfo.getVectorSimilarityFunction().ordinal());
+            meta.writeVInt(dims);
+            meta.writeInt(size);
+            meta.writeInt(Float.floatToIntBits(quantizer.minQuantile()));
+            meta.writeInt(Float.floatToIntBits(quantizer.maxQuantile()));
+            meta.writeByte((byte) (rescore ? 1 : 0));
+            meta.writeVLong(quantizedDataOffset);
+            meta.writeVLong(quantizedDataLength);
+            meta.writeVLong(rawDataOffset);
+            meta.writeVLong(rawDataLength);
+            meta.writeVLong(graphDataOffset);
+            meta.writeVLong(graphDataLength);
+            writeSortedInts(docIds, size);
+            meta.writeVInt(maxConn);
+            meta.writeVInt(graph.numLevels());
+            meta.writeInt(graph.entryNode());
+            for (int level = 1; level < graph.numLevels(); level++) {
+                final int[] nodes = graph.nodesOnLevel(level);
+                writeSortedInts(nodes, nodes.length);
+            }
+        } finally {
+            try {
+                state.directory.deleteFile(tempFileName);
+            } catch (IOException e) {
+                // ignore, the index deletion policy cleans up unreferenced files
+            }
+        }
+    }
+
+    /**
+     * Writes the neighbors of every node, level after level, into slots of {@code 1 + maxConn(level)} ints so that the reader can seek
+     * to the neighbors of a node without an index.
+     */
+    private void writeGraph(Int8HnswGraphBuilder graph, int size) throws IOException {
+        for (int level = 0; level < graph.numLevels(); level++) {
+            final int maxConnOnLevel = graph.maxConn(level);
+            final int[] neighbors = new int[maxConnOnLevel];
+            final int[] nodes = level == 0 ? null : graph.nodesOnLevel(level);
+            final int numNodes = level == 0 ? size : nodes.length;
+            for (int i = 0; i < numNodes; i++) {
+                final int count = graph.neighbors(level, level == 0 ? i : nodes[i], neighbors);
+                graphData.writeInt(count);
+                for (int j = 0; j < maxConnOnLevel; j++) {
+                    graphData.writeInt(j < count ? neighbors[j] : -1);
+                }
+            }
+        }
+    }
+
+    private void writeSortedInts(int[] values, int length) throws IOException {
+        meta.writeVInt(length);
+        int previous = 0;
+        for (int i = 0; i < length; i++) {
+            meta.writeVInt(values[i] - previous);
+            previous = values[i];
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("already finished");
+        }
+        finished = true;
+        // the end of the fields
+        meta.writeInt(-1);
+        CodecUtil.writeFooter(meta);
+        CodecUtil.writeFooter(quantizedData);
+        CodecUtil.writeFooter(rawData);
+        CodecUtil.writeFooter(graphData);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(meta, quantizedData, rawData, graphData);
+    }
+}
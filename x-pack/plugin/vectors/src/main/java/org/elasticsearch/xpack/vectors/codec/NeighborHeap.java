@@ -0,0 +1,107 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.NumericUtils;
+
+/**
+ * A binary heap of graph nodes and their scores, encoded together in a {@code long} so that the heap doesn't allocate per node. The top of
+ * a min heap is the node with the lowest score, the top of a max heap the node with the highest score.
+ */
+final class NeighborHeap {
+
+    private final boolean maxHeap;
+    private long[] heap;
+    private int size;
+
+    NeighborHeap(int initialCapacity, boolean maxHeap) {
+        this.maxHeap = maxHeap;
+        this.heap = new long[Math.max(1, initialCapacity)];
+    }
+
+    private static long encode(int node, float score) {
+        return ((long) NumericUtils.floatToSortableInt(score) << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    private boolean lessThan(long a, long b) {
+        return maxHeap ? a > b : a < b;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(int node, float score) {
+        if (size == heap.length) {
+            heap = ArrayUtil.grow(heap, size + 1);
+        }
+        int i = size++;
+        final long value = encode(node, score);
+        heap[i] = value;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (lessThan(value, heap[parent]) == false) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    int topNode() {
+        assert size > 0;
+        return (int) heap[0];
+    }
+
+    float topScore() {
+        assert size > 0;
+        return NumericUtils.sortableIntToFloat((int) (heap[0] >> 32));
+    }
+
+    /** The node at the given position of the heap, which is in no particular order beyond the top. */
+    int nodeAt(int i) {
+        assert i < size;
+        return (int) heap[i];
+    }
+
+    /** The score at the given position of the heap, which is in no particular order beyond the top. */
+    float scoreAt(int i) {
+        assert i < size;
+        return NumericUtils.sortableIntToFloat((int) (heap[i] >> 32));
+    }
+
+    /** Removes the top of the heap and returns its node. */
+    int pop() {
+        assert size > 0;
+        final int node = (int) heap[0];
+        final long value = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && lessThan(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (lessThan(heap[child], value) == false) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+        return node;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.store.IndexInput;
+
+import java.io.IOException;
+
+/**
+ * Random access to the quantized vectors of a field, which are stored one after the other with one byte per dimension.
+ */
+final class QuantizedVectors {
+
+    private final IndexInput data;
+    private final ScalarQuantizer quantizer;
+    private final VectorSimilarityFunction similarity;
+    private final byte[] quantized;
+    private final float[] scratch;
+
+    QuantizedVectors(IndexInput data, int dims, ScalarQuantizer quantizer, VectorSimilarityFunction similarity) {
+        this.data = data;
+        this.quantizer = quantizer;
+        this.similarity = similarity;
+        this.quantized = new byte[dims];
+        this.scratch = new float[dims];
+    }
+
+    int dims() {
+        return quantized.length;
+    }
+
+    void dequantize(int ord, float[] dest) throws IOException {
+        data.seek((long) ord * quantized.length);
+        data.readBytes(quantized, 0, quantized.length);
+        quantizer.dequantize(quantized, dest);
+    }
+
+    /**
+     * Scores the vector of the given ordinal against the target.
+     */
+    float score(float[] target, int ord) throws IOException {
+        dequantize(ord, scratch);
+        return similarity.compare(target, scratch);
+    }
+
+    /**
+     * A copy with its own file pointer and scratch buffers.
+     */
+    QuantizedVectors copy() {
+        return new QuantizedVectors(data.clone(), quantized.length, quantizer, similarity);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Maps floats to 7-bit integers, linearly between a lower and an upper quantile of all the vector components of a field in a segment.
+ * Components outside of these quantiles are clamped, which trades a little precision on outliers for a lot of precision everywhere else.
+ */
+final class ScalarQuantizer {
+
+    static final int QUANTIZED_MAX = 127;
+
+    private final float minQuantile;
+    private final float maxQuantile;
+    private final float scale;
+    private final float alpha;
+
+    ScalarQuantizer(float minQuantile, float maxQuantile) {
+        assert minQuantile <= maxQuantile : minQuantile + " > " + maxQuantile;
+        this.minQuantile = minQuantile;
+        this.maxQuantile = maxQuantile;
+        this.scale = maxQuantile > minQuantile ? QUANTIZED_MAX / (maxQuantile - minQuantile) : 0f;
+        this.alpha = (maxQuantile - minQuantile) / QUANTIZED_MAX;
+    }
+
+    float minQuantile() {
+        return minQuantile;
+    }
+
+    float maxQuantile() {
+        return maxQuantile;
+    }
+
+    void quantize(float[] vector, byte[] dest) {
+        assert vector.length == dest.length;
+        for (int i = 0; i < vector.length; i++) {
+            final float clamped = Math.max(minQuantile, Math.min(maxQuantile, vector[i]));
+            dest[i] = (byte) Math.round((clamped - minQuantile) * scale);
+        }
+    }
+
+    void dequantize(byte[] quantized, float[] dest) {
+        assert quantized.length == dest.length;
+        for (int i = 0; i < quantized.length; i++) {
+            dest[i] = minQuantile + quantized[i] * alpha;
+        }
+    }
+
+    /**
+     * The confidence interval used to pick the quantiles, which excludes more outliers on vectors with few dimensions.
+     */
+    static float confidenceInterval(int dims) {
+        return Math.max(0.9f, 1f - 1f / (dims + 1));
+    }
+
+    /**
+     * Keeps a uniform sample of the vector components that it is given, so that quantiles can be computed without holding all the
+     * vectors of a segment in memory.
+     */
+    static final class Sampler {
+        static final int MAX_SAMPLE_SIZE = 100_000;
+
+        private final float[] sample = new float[MAX_SAMPLE_SIZE];
+        private final Random random = new Random(42);
+        private long seen;
+
+        void add(float[] vector) {
+            for (float value : vector) {
+                if (seen < MAX_SAMPLE_SIZE) {
+                    sample[(int) seen] = value;
+                } else {
+                    final long slot = (long) (random.nextDouble() * (seen + 1));
+                    if (slot < MAX_SAMPLE_SIZE) {
+                        sample[(int) slot] = value;
+                    }
+                }
+                seen++;
+            }
+        }
+
+        ScalarQuantizer build(float confidenceInterval) {
+            final int size = (int) Math.min(seen, MAX_SAMPLE_SIZE);
+            if (size == 0) {
+                return new ScalarQuantizer(0f, 0f);
+            }
+            final float[] sorted = Arrays.copyOf(sample, size);
+            Arrays.sort(sorted);
+            final int excluded = (int) ((1 - confidenceInterval) / 2 * size);
+            return new ScalarQuantizer(sorted[excluded], sorted[size - 1 - excluded]);
+        }
+    }
+}
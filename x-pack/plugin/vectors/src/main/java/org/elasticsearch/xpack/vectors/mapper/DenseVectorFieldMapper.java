@@ -39,6 +39,8 @@ import org.elasticsearch.search.lookup.SearchLookup;
 import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentParser.Token;
+import org.elasticsearch.xpack.vectors.codec.Int8HnswVectorsFormat;
+import org.elasticsearch.xpack.vectors.query.FilteredKnnVectorQuery;
 import org.elasticsearch.xpack.vectors.query.KnnVectorFieldExistsQuery;
 import org.elasticsearch.xpack.vectors.query.VectorIndexFieldData;
 
@@ -165,6 +167,8 @@ public class DenseVectorFieldMapper extends FieldMapper implements PerFieldKnnVe
         IndexOptions(String type) {
             this.type = type;
         }
+
+        abstract KnnVectorsFormat getKnnVectorsFormat();
     }
 
     private static class HnswIndexOptions extends IndexOptions {
@@ -192,6 +196,11 @@ public class DenseVectorFieldMapper extends FieldMapper implements PerFieldKnnVe
             this.efConstruction = efConstruction;
         }
 
+        @Override
+        KnnVectorsFormat getKnnVectorsFormat() {
+            return new Lucene90HnswVectorsFormat(m, efConstruction);
+        }
+
         @Override
         public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
             builder.startObject();
@@ -221,6 +230,75 @@ public class DenseVectorFieldMapper extends FieldMapper implements PerFieldKnnVe
         }
     }
 
+    /**
+     * Builds the HNSW graph over vectors that are quantized to one byte per dimension, which takes a quarter of the memory of
+     * {@code hnsw} at the cost of some recall. The float vectors are kept on disk and, unless {@code rescore} is disabled, the top
+     * candidates of a search are rescored with them.
+     */
+    private static class Int8HnswIndexOptions extends IndexOptions {
+        private final int m;
+        private final int efConstruction;
+        private final boolean rescore;
+
+        static IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
+            Object mNode = indexOptionsMap.remove("m");
+            Object efConstructionNode = indexOptionsMap.remove("ef_construction");
+            Object rescoreNode = indexOptionsMap.remove("rescore");
+            if (mNode == null) {
+                throw new MapperParsingException("[index_options] of type [int8_hnsw] requires field [m] to be configured");
+            }
+            if (efConstructionNode == null) {
+                throw new MapperParsingException("[index_options] of type [int8_hnsw] requires field [ef_construction] to be configured");
+            }
+            int m = XContentMapValues.nodeIntegerValue(mNode);
+            int efConstruction = XContentMapValues.nodeIntegerValue(efConstructionNode);
+            boolean rescore = XContentMapValues.nodeBooleanValue(rescoreNode, "rescore", true);
+            MappingParser.checkNoRemainingFields(fieldName, indexOptionsMap);
+            return new Int8HnswIndexOptions(m, efConstruction, rescore);
+        }
+
+        private Int8HnswIndexOptions(int m, int efConstruction, boolean rescore) {
+            super("int8_hnsw");
+            this.m = m;
+            this.efConstruction = efConstruction;
+            this.rescore = rescore;
+        }
+
+        @Override
+        KnnVectorsFormat getKnnVectorsFormat() {
+            return new Int8HnswVectorsFormat(m, efConstruction, rescore);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("type", type);
+            builder.field("m", m);
+            builder.field("ef_construction", efConstruction);
+            builder.field("rescore", rescore);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Int8HnswIndexOptions that = (Int8HnswIndexOptions) o;
+            return m == that.m && efConstruction == that.efConstruction && rescore == that.rescore;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, m, efConstruction, rescore);
+        }
+
+        @Override
+        public String toString() {
+            return "{type=" + type + ", m=" + m + ", ef_construction=" + efConstruction + ", rescore=" + rescore + " }";
+        }
+    }
+
     public static final TypeParser PARSER = new TypeParser(
         (n, c) -> new Builder(n, c.indexVersionCreated()),
         notInMultiFields(CONTENT_TYPE)
@@ -298,6 +376,23 @@ public class DenseVectorFieldMapper extends FieldMapper implements PerFieldKnnVe
         }
 
         public KnnVectorQuery createKnnQuery(float[] queryVector, int numCands) {
+            checkKnnQuery(queryVector);
+            return new KnnVectorQuery(name(), queryVector, numCands);
+        }
+
+        /**
+         * Creates a kNN query that only returns documents that match the filter, which is applied while searching rather than to the
+         * top hits, so that selective filters still find {@code numCands} candidates per shard.
+         */
+        public Query createKnnQuery(float[] queryVector, int numCands, Query filter) {
+            if (filter == null) {
+                return createKnnQuery(queryVector, numCands);
+            }
+            checkKnnQuery(queryVector);
+            return new FilteredKnnVectorQuery(name(), queryVector, numCands, filter);
+        }
+
+        private void checkKnnQuery(float[] queryVector) {
             if (isIndexed() == false) {
                 throw new IllegalArgumentException(
                     "to perform knn search on field [" + name() + "], its mapping must have [index] set to [true]"
@@ -317,7 +412,6 @@ public class DenseVectorFieldMapper extends FieldMapper implements PerFieldKnnVe
                 }
                 checkVectorMagnitude(queryVector, squaredMagnitude);
             }
-            return new KnnVectorQuery(name(), queryVector, numCands);
         }
 
         private void checkVectorMagnitude(float[] vector, float squaredMagnitude) {
@@ -513,6 +607,8 @@ public class DenseVectorFieldMapper extends FieldMapper implements PerFieldKnnVe
         String type = XContentMapValues.nodeStringValue(typeNode);
         if (type.equals("hnsw")) {
             return HnswIndexOptions.parseIndexOptions(fieldName, indexOptionsMap);
+        } else if (type.equals("int8_hnsw")) {
+            return Int8HnswIndexOptions.parseIndexOptions(fieldName, indexOptionsMap);
         } else {
             throw new MapperParsingException("Unknown vector index options type [" + type + "] for field [" + fieldName + "]");
         }
@@ -523,8 +619,7 @@ public class DenseVectorFieldMapper extends FieldMapper implements PerFieldKnnVe
         if (indexOptions == null) {
             return null; // use default format
         } else {
-            HnswIndexOptions hnswIndexOptions = (HnswIndexOptions) indexOptions;
-            return new Lucene90HnswVectorsFormat(hnswIndexOptions.m, hnswIndexOptions.efConstruction);
+            return indexOptions.getKnnVectorsFormat();
         }
     }
 }
@@ -13,7 +13,6 @@ import org.elasticsearch.Version;
 import org.elasticsearch.xpack.vectors.mapper.VectorEncoderDecoder;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 public class BinaryDenseVectorScriptDocValues extends DenseVectorScriptDocValues {
 
@@ -57,12 +56,14 @@ public class BinaryDenseVectorScriptDocValues extends DenseVectorScriptDocValues
     private final BinaryDenseVectorSupplier bdvSupplier;
     private final Version indexVersion;
     private final float[] vector;
+    private final VectorKernels kernels;
 
     BinaryDenseVectorScriptDocValues(BinaryDenseVectorSupplier supplier, Version indexVersion, int dims) {
         super(supplier, dims);
         this.bdvSupplier = supplier;
         this.indexVersion = indexVersion;
         this.vector = new float[dims];
+        this.kernels = VectorKernels.get();
     }
 
     @Override
@@ -83,37 +84,16 @@ public class BinaryDenseVectorScriptDocValues extends DenseVectorScriptDocValues
 
     @Override
     public double dotProduct(float[] queryVector) {
-        BytesRef value = bdvSupplier.getInternal();
-        ByteBuffer byteBuffer = ByteBuffer.wrap(value.bytes, value.offset, value.length);
-
-        double dotProduct = 0;
-        for (float queryValue : queryVector) {
-            dotProduct += queryValue * byteBuffer.getFloat();
-        }
-        return (float) dotProduct;
+        return kernels.dotProduct(queryVector, bdvSupplier.getInternal());
     }
 
     @Override
     public double l1Norm(float[] queryVector) {
-        BytesRef value = bdvSupplier.getInternal();
-        ByteBuffer byteBuffer = ByteBuffer.wrap(value.bytes, value.offset, value.length);
-
-        double l1norm = 0;
-        for (float queryValue : queryVector) {
-            l1norm += Math.abs(queryValue - byteBuffer.getFloat());
-        }
-        return l1norm;
+        return kernels.l1Norm(queryVector, bdvSupplier.getInternal());
     }
 
     @Override
     public double l2Norm(float[] queryVector) {
-        BytesRef value = bdvSupplier.getInternal();
-        ByteBuffer byteBuffer = ByteBuffer.wrap(value.bytes, value.offset, value.length);
-        double l2norm = 0;
-        for (float queryValue : queryVector) {
-            double diff = queryValue - byteBuffer.getFloat();
-            l2norm += diff * diff;
-        }
-        return Math.sqrt(l2norm);
+        return kernels.l2Norm(queryVector, bdvSupplier.getInternal());
     }
 }
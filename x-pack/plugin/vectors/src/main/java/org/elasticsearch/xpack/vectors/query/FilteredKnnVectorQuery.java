@@ -0,0 +1,214 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.index.VectorValues;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FilteredDocIdSetIterator;
+import org.apache.lucene.search.HitQueue;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Finds the {@code k} nearest neighbors of a query vector among the documents that match a filter. The filter is evaluated into a bit
+ * set per segment before searching the HNSW graph, which only collects the documents of the bit set while it's traversed, so that
+ * selective filters still return {@code k} hits. When the filter matches fewer documents than a search of the graph is expected to
+ * visit, the documents of the filter are scored exactly instead. The number of segments searched either way is reported by the
+ * {@link KnnScoreDocQuery} that this query rewrites to, and so shows in the description of the query in the profile output.
+ */
+public class FilteredKnnVectorQuery extends Query {
+
+    private static final Logger logger = LogManager.getLogger(FilteredKnnVectorQuery.class);
+
+    private final String field;
+    private final float[] target;
+    private final int k;
+    private final Query filter;
+
+    public FilteredKnnVectorQuery(String field, float[] target, int k, Query filter) {
+        this.field = Objects.requireNonNull(field);
+        this.target = Objects.requireNonNull(target);
+        this.k = k;
+        this.filter = Objects.requireNonNull(filter);
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1, got: " + k);
+        }
+    }
+
+    /**
+     * A search of an HNSW graph of {@code size} vectors visits in the order of {@code k * log(size)} nodes. Scoring fewer documents
+     * exactly is both cheaper and exact.
+     */
+    static long expectedVisitedNodes(int k, int size) {
+        return Math.min(size, (long) Math.ceil(k * Math.log(Math.max(size, 2))));
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public float[] getTarget() {
+        return target;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public Query getFilter() {
+        return filter;
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        // the reader of a search checks for cancellation and the search timeout per segment, when its vectors are read, and while the
+        // terms and points of the filter are read, so that the searcher for the filter doesn't need to
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+        final Weight filterWeight = searcher.createWeight(searcher.rewrite(filter), ScoreMode.COMPLETE_NO_SCORES, 1f);
+
+        final TopDocs[] perLeafResults = new TopDocs[reader.leaves().size()];
+        final SearchedSegments searched = new SearchedSegments();
+        for (LeafReaderContext ctx : reader.leaves()) {
+            final TopDocs results = searchLeaf(ctx, filterWeight, searched);
+            for (ScoreDoc scoreDoc : results.scoreDocs) {
+                scoreDoc.doc += ctx.docBase;
+            }
+            perLeafResults[ctx.ord] = results;
+        }
+        final TopDocs topK = TopDocs.merge(k, perLeafResults);
+        if (topK.scoreDocs.length == 0) {
+            return new MatchNoDocsQuery();
+        }
+        return new KnnScoreDocQuery(topK.scoreDocs, reader, searched.exact, searched.approximate);
+    }
+
+    private TopDocs searchLeaf(LeafReaderContext ctx, Weight filterWeight, SearchedSegments searched) throws IOException {
+        final LeafReader reader = ctx.reader();
+        final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null || fieldInfo.getVectorDimension() == 0) {
+            return emptyTopDocs();
+        }
+        final VectorValues vectorValues = reader.getVectorValues(field);
+        final Scorer scorer = filterWeight.scorer(ctx);
+        if (scorer == null) {
+            return emptyTopDocs();
+        }
+        final BitSet acceptDocs = createBitSet(scorer.iterator(), reader.getLiveDocs(), reader.maxDoc());
+        final int cost = acceptDocs.cardinality();
+        if (cost == 0) {
+            return emptyTopDocs();
+        }
+
+        final long expectedVisitedNodes = expectedVisitedNodes(k, vectorValues.size());
+        if (cost <= expectedVisitedNodes) {
+            searched.exact++;
+            logger.trace("scoring [{}] filtered docs of [{}] exactly, below [{}] expected visits", cost, field, expectedVisitedNodes);
+            return exactSearch(vectorValues, fieldInfo.getVectorSimilarityFunction(), new BitSetIterator(acceptDocs, cost));
+        }
+        searched.approximate++;
+        logger.trace("searching the graph of [{}] for [{}] filtered docs, above [{}] expected visits", field, cost, expectedVisitedNodes);
+        return reader.searchNearestVectors(field, target, k, acceptDocs);
+    }
+
+    private static BitSet createBitSet(DocIdSetIterator iterator, Bits liveDocs, int maxDoc) throws IOException {
+        if (liveDocs == null) {
+            return BitSet.of(iterator, maxDoc);
+        }
+        return BitSet.of(new FilteredDocIdSetIterator(iterator) {
+            @Override
+            protected boolean match(int doc) {
+                return liveDocs.get(doc);
+            }
+        }, maxDoc);
+    }
+
+    private TopDocs exactSearch(VectorValues vectorValues, VectorSimilarityFunction similarity, DocIdSetIterator acceptIterator)
+        throws IOException {
+        final HitQueue queue = new HitQueue(k, false);
+        int scored = 0;
+        for (int doc = acceptIterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = acceptIterator.nextDoc()) {
+            final int vectorDoc = vectorValues.docID() < doc ? vectorValues.advance(doc) : vectorValues.docID();
+            if (vectorDoc != doc) {
+                // the document matches the filter but has no vector
+                continue;
+            }
+            // scored like the graph search scores its hits, so that higher is nearer and the hits of all segments can be merged
+            final float score = similarity.convertToScore(similarity.compare(target, vectorValues.vectorValue()));
+            queue.insertWithOverflow(new ScoreDoc(doc, score));
+            scored++;
+        }
+        final ScoreDoc[] topScoreDocs = new ScoreDoc[queue.size()];
+        for (int i = topScoreDocs.length - 1; i >= 0; i--) {
+            topScoreDocs[i] = queue.pop();
+        }
+        return new TopDocs(new TotalHits(scored, TotalHits.Relation.EQUAL_TO), topScoreDocs);
+    }
+
+    /**
+     * The number of segments of a single rewrite that were scored exactly and that were searched through the HNSW graph.
+     */
+    private static final class SearchedSegments {
+        int exact;
+        int approximate;
+    }
+
+    private static TopDocs emptyTopDocs() {
+        return new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(field)) {
+            visitor.visitLeaf(this);
+        }
+        filter.visit(visitor.getSubVisitor(BooleanClause.Occur.FILTER, this));
+    }
+
+    @Override
+    public String toString(String field) {
+        return getClass().getSimpleName() + ":" + this.field + "[" + target[0] + ",...][" + k + "][" + filter + "]";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        FilteredKnnVectorQuery other = (FilteredKnnVectorQuery) obj;
+        return k == other.k && field.equals(other.field) && Arrays.equals(target, other.target) && filter.equals(other.filter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), field, k, Arrays.hashCode(target), filter);
+    }
+}
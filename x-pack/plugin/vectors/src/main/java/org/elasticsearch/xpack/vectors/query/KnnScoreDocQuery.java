@@ -0,0 +1,204 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Matches the top documents of a kNN search with their scores. It's the result of rewriting a {@link FilteredKnnVectorQuery}, so it's
+ * only valid for the reader that it was rewritten against. It also records how many segments the kNN search scored exactly and how
+ * many it searched through the HNSW graph, which its description reports.
+ */
+final class KnnScoreDocQuery extends Query {
+    private final int[] docs;
+    private final float[] scores;
+    // the index in docs of the first doc of each segment, and the number of docs at the end
+    private final int[] segmentStarts;
+    private final Object contextIdentity;
+    private final int exactSegments;
+    private final int approximateSegments;
+
+    KnnScoreDocQuery(ScoreDoc[] scoreDocs, IndexReader reader, int exactSegments, int approximateSegments) {
+        final ScoreDoc[] sorted = scoreDocs.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(scoreDoc -> scoreDoc.doc));
+        this.docs = new int[sorted.length];
+        this.scores = new float[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            docs[i] = sorted[i].doc;
+            scores[i] = sorted[i].score;
+        }
+        this.segmentStarts = findSegmentStarts(reader, docs);
+        this.contextIdentity = reader.getContext().id();
+        this.exactSegments = exactSegments;
+        this.approximateSegments = approximateSegments;
+    }
+
+    /**
+     * The number of segments whose documents matching the filter were scored exactly.
+     */
+    int exactSegments() {
+        return exactSegments;
+    }
+
+    /**
+     * The number of segments that were searched by traversing the HNSW graph with the filter.
+     */
+    int approximateSegments() {
+        return approximateSegments;
+    }
+
+    private static int[] findSegmentStarts(IndexReader reader, int[] docs) {
+        final int[] starts = new int[reader.leaves().size() + 1];
+        starts[starts.length - 1] = docs.length;
+        int doc = 0;
+        for (int i = 0; i < reader.leaves().size(); i++) {
+            final int docBase = reader.leaves().get(i).docBase;
+            while (doc < docs.length && docs[doc] < docBase) {
+                doc++;
+            }
+            starts[i] = doc;
+        }
+        return starts;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+        if (searcher.getIndexReader().getContext().id() != contextIdentity) {
+            throw new IllegalStateException("This query was rewritten against a different reader");
+        }
+        return new Weight(this) {
+            @Override
+            public Explanation explain(LeafReaderContext context, int doc) {
+                final int found = Arrays.binarySearch(docs, doc + context.docBase);
+                if (found < 0) {
+                    return Explanation.noMatch("not in the top hits of the kNN search");
+                }
+                return Explanation.match(scores[found] * boost, "within the top hits of the kNN search");
+            }
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) {
+                final int lower = segmentStarts[context.ord];
+                final int upper = segmentStarts[context.ord + 1];
+                if (lower == upper) {
+                    return null;
+                }
+                return new Scorer(this) {
+                    int upTo = lower - 1;
+
+                    @Override
+                    public DocIdSetIterator iterator() {
+                        return new DocIdSetIterator() {
+                            @Override
+                            public int docID() {
+                                return currentDoc();
+                            }
+
+                            @Override
+                            public int nextDoc() {
+                                upTo++;
+                                return currentDoc();
+                            }
+
+                            @Override
+                            public int advance(int target) {
+                                do {
+                                    upTo++;
+                                } while (currentDoc() < target);
+                                return currentDoc();
+                            }
+
+                            @Override
+                            public long cost() {
+                                return upper - lower;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public float getMaxScore(int target) {
+                        float maxScore = 0;
+                        for (int i = lower; i < upper; i++) {
+                            maxScore = Math.max(maxScore, scores[i]);
+                        }
+                        return maxScore * boost;
+                    }
+
+                    @Override
+                    public float score() {
+                        return scores[upTo] * boost;
+                    }
+
+                    @Override
+                    public int docID() {
+                        return currentDoc();
+                    }
+
+                    private int currentDoc() {
+                        if (upTo < lower) {
+                            return -1;
+                        }
+                        if (upTo >= upper) {
+                            return DocIdSetIterator.NO_MORE_DOCS;
+                        }
+                        return docs[upTo] - context.docBase;
+                    }
+                };
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+        return "KnnScoreDocQuery["
+            + docs.length
+            + " docs, "
+            + exactSegments
+            + " exact segments, "
+            + approximateSegments
+            + " approximate segments]";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        KnnScoreDocQuery other = (KnnScoreDocQuery) obj;
+        return contextIdentity == other.contextIdentity && Arrays.equals(docs, other.docs) && Arrays.equals(scores, other.scores);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), contextIdentity, Arrays.hashCode(docs), Arrays.hashCode(scores));
+    }
+}
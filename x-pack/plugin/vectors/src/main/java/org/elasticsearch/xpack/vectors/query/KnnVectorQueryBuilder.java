@@ -8,10 +8,14 @@
 package org.elasticsearch.xpack.vectors.query;
 
 import org.apache.lucene.search.Query;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xpack.vectors.mapper.DenseVectorFieldMapper;
@@ -27,11 +31,20 @@ public class KnnVectorQueryBuilder extends AbstractQueryBuilder<KnnVectorQueryBu
     private final String fieldName;
     private final float[] queryVector;
     private final int numCands;
+    private final QueryBuilder filterQuery;
 
     public KnnVectorQueryBuilder(String fieldName, float[] queryVector, int numCands) {
+        this(fieldName, queryVector, numCands, null);
+    }
+
+    /**
+     * @param filterQuery restricts the search to the documents that match this query, or {@code null} to search all documents
+     */
+    public KnnVectorQueryBuilder(String fieldName, float[] queryVector, int numCands, QueryBuilder filterQuery) {
         this.fieldName = fieldName;
         this.queryVector = queryVector;
         this.numCands = numCands;
+        this.filterQuery = filterQuery;
     }
 
     public KnnVectorQueryBuilder(StreamInput in) throws IOException {
@@ -39,6 +52,11 @@ public class KnnVectorQueryBuilder extends AbstractQueryBuilder<KnnVectorQueryBu
         this.fieldName = in.readString();
         this.numCands = in.readVInt();
         this.queryVector = in.readFloatArray();
+        if (in.getVersion().onOrAfter(Version.V_8_1_0)) {
+            this.filterQuery = in.readOptionalNamedWriteable(QueryBuilder.class);
+        } else {
+            this.filterQuery = null;
+        }
     }
 
     public String getFieldName() {
@@ -53,16 +71,30 @@ public class KnnVectorQueryBuilder extends AbstractQueryBuilder<KnnVectorQueryBu
         return numCands;
     }
 
+    public QueryBuilder filterQuery() {
+        return filterQuery;
+    }
+
     @Override
     protected void doWriteTo(StreamOutput out) throws IOException {
         out.writeString(fieldName);
         out.writeVInt(numCands);
         out.writeFloatArray(queryVector);
+        if (out.getVersion().onOrAfter(Version.V_8_1_0)) {
+            out.writeOptionalNamedWriteable(filterQuery);
+        } else if (filterQuery != null) {
+            throw new IllegalArgumentException(
+                "[" + NAME + "] queries with a filter are not supported on nodes before version [" + Version.V_8_1_0 + "]"
+            );
+        }
     }
 
     @Override
     protected void doXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(NAME).field("field", fieldName).field("vector", queryVector).field("num_candidates", numCands);
+        if (filterQuery != null) {
+            builder.field("filter", filterQuery);
+        }
         builder.endObject();
     }
 
@@ -72,7 +104,21 @@ public class KnnVectorQueryBuilder extends AbstractQueryBuilder<KnnVectorQueryBu
     }
 
     @Override
-    protected Query doToQuery(SearchExecutionContext context) {
+    protected QueryBuilder doRewrite(QueryRewriteContext queryRewriteContext) throws IOException {
+        if (filterQuery != null) {
+            QueryBuilder rewrittenFilter = filterQuery.rewrite(queryRewriteContext);
+            if (rewrittenFilter instanceof MatchNoneQueryBuilder) {
+                return rewrittenFilter;
+            }
+            if (rewrittenFilter != filterQuery) {
+                return new KnnVectorQueryBuilder(fieldName, queryVector, numCands, rewrittenFilter);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    protected Query doToQuery(SearchExecutionContext context) throws IOException {
         MappedFieldType fieldType = context.getFieldType(fieldName);
         if (fieldType == null) {
             throw new IllegalArgumentException("field [" + fieldName + "] does not exist in the mapping");
@@ -85,16 +131,20 @@ public class KnnVectorQueryBuilder extends AbstractQueryBuilder<KnnVectorQueryBu
         }
 
         DenseVectorFieldType vectorFieldType = (DenseVectorFieldType) fieldType;
-        return vectorFieldType.createKnnQuery(queryVector, numCands);
+        Query filter = filterQuery == null ? null : filterQuery.toQuery(context);
+        return vectorFieldType.createKnnQuery(queryVector, numCands, filter);
     }
 
     @Override
     protected int doHashCode() {
-        return Objects.hash(fieldName, Arrays.hashCode(queryVector), numCands);
+        return Objects.hash(fieldName, Arrays.hashCode(queryVector), numCands, filterQuery);
     }
 
     @Override
     protected boolean doEquals(KnnVectorQueryBuilder other) {
-        return Objects.equals(fieldName, other.fieldName) && Arrays.equals(queryVector, other.queryVector) && numCands == other.numCands;
+        return Objects.equals(fieldName, other.fieldName)
+            && Arrays.equals(queryVector, other.queryVector)
+            && numCands == other.numCands
+            && Objects.equals(filterQuery, other.filterQuery);
     }
 }
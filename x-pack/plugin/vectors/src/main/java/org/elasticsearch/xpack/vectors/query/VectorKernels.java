@@ -0,0 +1,137 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.BytesRef;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Computes the similarity between a query vector and a dense vector as it is encoded in doc values, that is a sequence of big-endian
+ * floats, without decoding the dense vector first.
+ * <p>
+ * The kernels are implemented with the incubating Vector API when the {@code jdk.incubator.vector} module is available, which requires
+ * starting the JVM with {@code --add-modules=jdk.incubator.vector}. Otherwise they fall back to scalar loops.
+ */
+public abstract class VectorKernels {
+
+    private static final Logger logger = LogManager.getLogger(VectorKernels.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String PANAMA_KERNELS = "org.elasticsearch.xpack.vectors.query.PanamaVectorKernels";
+
+    static final VarHandle VH_BIG_ENDIAN_FLOAT = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VectorKernels SCALAR = new ScalarVectorKernels();
+    private static final VectorKernels INSTANCE = load();
+
+    private static VectorKernels load() {
+        VectorKernels kernels = SCALAR;
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                kernels = (VectorKernels) Class.forName(PANAMA_KERNELS).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+                logger.warn("failed to load the vectorized dense vector kernels, falling back to scalar kernels", e);
+            }
+        }
+        logger.debug("using [{}] dense vector kernels", kernels.name());
+        return kernels;
+    }
+
+    /**
+     * The kernels selected at startup.
+     */
+    public static VectorKernels get() {
+        return INSTANCE;
+    }
+
+    /**
+     * The scalar kernels, which are always available.
+     */
+    public static VectorKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * A short description of the implementation, for logging.
+     */
+    public abstract String name();
+
+    /**
+     * Dot product between the query vector and the encoded vector, which must have the same number of dimensions.
+     */
+    public abstract float dotProduct(float[] queryVector, BytesRef vector);
+
+    /**
+     * Manhattan distance between the query vector and the encoded vector, which must have the same number of dimensions.
+     */
+    public abstract double l1Norm(float[] queryVector, BytesRef vector);
+
+    /**
+     * Euclidean distance between the query vector and the encoded vector, which must have the same number of dimensions.
+     */
+    public abstract double l2Norm(float[] queryVector, BytesRef vector);
+
+    static float decodeFloat(byte[] bytes, int offset) {
+        return (float) VH_BIG_ENDIAN_FLOAT.get(bytes, offset);
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+
+    /**
+     * Scalar loops, which accumulate in doubles like the dense vector functions always did.
+     */
+    static final class ScalarVectorKernels extends VectorKernels {
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+
+        @Override
+        public float dotProduct(float[] queryVector, BytesRef vector) {
+            double dotProduct = 0;
+            int offset = vector.offset;
+            for (float queryValue : queryVector) {
+                dotProduct += queryValue * decodeFloat(vector.bytes, offset);
+                offset += Float.BYTES;
+            }
+            return (float) dotProduct;
+        }
+
+        @Override
+        public double l1Norm(float[] queryVector, BytesRef vector) {
+            double l1norm = 0;
+            int offset = vector.offset;
+            for (float queryValue : queryVector) {
+                l1norm += Math.abs(queryValue - decodeFloat(vector.bytes, offset));
+                offset += Float.BYTES;
+            }
+            return l1norm;
+        }
+
+        @Override
+        public double l2Norm(float[] queryVector, BytesRef vector) {
+            double l2norm = 0;
+            int offset = vector.offset;
+            for (float queryValue : queryVector) {
+                double diff = queryValue - decodeFloat(vector.bytes, offset);
+                l2norm += diff * diff;
+                offset += Float.BYTES;
+            }
+            return Math.sqrt(l2norm);
+        }
+    }
+}
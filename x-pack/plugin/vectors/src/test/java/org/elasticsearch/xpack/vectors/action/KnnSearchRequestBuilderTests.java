@@ -11,12 +11,16 @@ import org.elasticsearch.action.search.SearchAction;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.search.SearchModule;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.search.fetch.subphase.FieldAndFormat;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.rest.FakeRestRequest;
+import org.elasticsearch.xcontent.NamedXContentRegistry;
 import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentType;
@@ -26,6 +30,7 @@ import org.elasticsearch.xpack.vectors.query.KnnVectorQueryBuilder;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.elasticsearch.search.RandomSearchRequestGenerator.randomSearchSourceBuilder;
@@ -33,6 +38,11 @@ import static org.hamcrest.Matchers.containsString;
 
 public class KnnSearchRequestBuilderTests extends ESTestCase {
 
+    @Override
+    protected NamedXContentRegistry xContentRegistry() {
+        return new NamedXContentRegistry(new SearchModule(Settings.EMPTY, List.of()).getNamedXContents());
+    }
+
     public void testBuildSearchRequest() throws IOException {
         // Choose random REST parameters
         Map<String, String> params = new HashMap<>();
@@ -126,6 +136,58 @@ public class KnnSearchRequestBuilderTests extends ESTestCase {
         assertArrayEquals(new String[] { "field1", "field2", "field3" }, fetchSource.includes());
     }
 
+    public void testParseFilter() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        XContentBuilder builder = XContentBuilder.builder(xContentType.xContent())
+            .startObject()
+            .startObject(KnnSearchRequestBuilder.KNN_SECTION_FIELD.getPreferredName())
+            .field(KnnSearch.FIELD_FIELD.getPreferredName(), "field")
+            .field(KnnSearch.K_FIELD.getPreferredName(), 10)
+            .field(KnnSearch.NUM_CANDS_FIELD.getPreferredName(), 100)
+            .field(KnnSearch.QUERY_VECTOR_FIELD.getPreferredName(), new float[] { 1.0f, 2.0f, 3.0f })
+            .field(KnnSearch.FILTER_FIELD.getPreferredName(), QueryBuilders.termQuery("tenant", "acme"))
+            .endObject()
+            .endObject();
+
+        SearchRequest searchRequest = buildSearchRequest(builder).request();
+        KnnVectorQueryBuilder expected = new KnnVectorQueryBuilder(
+            "field",
+            new float[] { 1.0f, 2.0f, 3.0f },
+            100,
+            QueryBuilders.termQuery("tenant", "acme")
+        );
+        assertEquals(expected, searchRequest.source().query());
+    }
+
+    public void testParseMultipleFilters() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        XContentBuilder builder = XContentBuilder.builder(xContentType.xContent())
+            .startObject()
+            .startObject(KnnSearchRequestBuilder.KNN_SECTION_FIELD.getPreferredName())
+            .field(KnnSearch.FIELD_FIELD.getPreferredName(), "field")
+            .field(KnnSearch.K_FIELD.getPreferredName(), 10)
+            .field(KnnSearch.NUM_CANDS_FIELD.getPreferredName(), 100)
+            .field(KnnSearch.QUERY_VECTOR_FIELD.getPreferredName(), new float[] { 1.0f, 2.0f, 3.0f })
+            .startArray(KnnSearch.FILTER_FIELD.getPreferredName())
+            .value(QueryBuilders.termQuery("tenant", "acme"))
+            .value(QueryBuilders.rangeQuery("timestamp").gte("now-1d"))
+            .endArray()
+            .endObject()
+            .endObject();
+
+        SearchRequest searchRequest = buildSearchRequest(builder).request();
+        // all the filters must match
+        KnnVectorQueryBuilder expected = new KnnVectorQueryBuilder(
+            "field",
+            new float[] { 1.0f, 2.0f, 3.0f },
+            100,
+            QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery("tenant", "acme"))
+                .filter(QueryBuilders.rangeQuery("timestamp").gte("now-1d"))
+        );
+        assertEquals(expected, searchRequest.source().query());
+    }
+
     public void testMissingKnnSection() throws IOException {
         XContentType xContentType = randomFrom(XContentType.values());
         XContentBuilder builder = XContentBuilder.builder(xContentType.xContent())
@@ -0,0 +1,219 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene90.Lucene90Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.KnnVectorField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.index.VectorValues;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnVectorQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class Int8HnswVectorsFormatTests extends ESTestCase {
+
+    public void testQuantizeRoundTrip() {
+        int dims = randomIntBetween(1, 128);
+        ScalarQuantizer.Sampler sampler = new ScalarQuantizer.Sampler();
+        float[][] vectors = randomVectors(100, dims);
+        for (float[] vector : vectors) {
+            sampler.add(vector);
+        }
+        ScalarQuantizer quantizer = sampler.build(1f);
+        assertThat(quantizer.minQuantile(), greaterThanOrEqualTo(-1f));
+        assertThat(quantizer.maxQuantile(), lessThanOrEqualTo(1f));
+
+        byte[] quantized = new byte[dims];
+        float[] dequantized = new float[dims];
+        float maxError = (quantizer.maxQuantile() - quantizer.minQuantile()) / ScalarQuantizer.QUANTIZED_MAX / 2;
+        for (float[] vector : vectors) {
+            quantizer.quantize(vector, quantized);
+            quantizer.dequantize(quantized, dequantized);
+            for (int i = 0; i < dims; i++) {
+                assertThat(quantized[i], greaterThanOrEqualTo((byte) 0));
+                assertEquals(vector[i], dequantized[i], maxError + 1e-5f);
+            }
+        }
+    }
+
+    public void testVectorValues() throws IOException {
+        int dims = randomIntBetween(1, 64);
+        float[][] vectors = randomVectors(randomIntBetween(1, 300), dims);
+        for (int i = 1; i < vectors.length; i++) {
+            if (rarely()) {
+                vectors[i] = null;
+            }
+        }
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, config(randomBoolean()))) {
+            for (int i = 0; i < vectors.length; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                // some documents have no vector
+                if (vectors[i] != null) {
+                    doc.add(new KnnVectorField("vector", vectors[i], VectorSimilarityFunction.EUCLIDEAN));
+                }
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                LeafReader leaf = getOnlyLeafReader(reader);
+                VectorValues values = leaf.getVectorValues("vector");
+                assertThat(values.dimension(), equalTo(dims));
+                int count = 0;
+                for (int doc = values.nextDoc(); doc != NO_MORE_DOCS; doc = values.nextDoc()) {
+                    int id = Integer.parseInt(leaf.document(doc).get("id"));
+                    // the float vectors are kept as they were indexed
+                    assertArrayEquals(vectors[id], values.vectorValue(), 0f);
+                    count++;
+                }
+                assertThat(values.size(), equalTo(count));
+            }
+        }
+    }
+
+    public void testRecall() throws IOException {
+        assertRecall(true, 0.9);
+        assertRecall(false, 0.7);
+    }
+
+    private void assertRecall(boolean rescore, double minRecall) throws IOException {
+        int dims = 32;
+        int k = 10;
+        float[][] vectors = randomVectors(1000, dims);
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, config(rescore))) {
+            for (int i = 0; i < vectors.length; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                doc.add(new KnnVectorField("vector", vectors[i], VectorSimilarityFunction.EUCLIDEAN));
+                writer.addDocument(doc);
+                if (rarely()) {
+                    writer.commit();
+                }
+            }
+            // merges rebuild the graph from the float vectors of the merged segments
+            writer.forceMerge(1);
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                IndexSearcher searcher = newSearcher(reader);
+                int found = 0;
+                int numQueries = 20;
+                for (int q = 0; q < numQueries; q++) {
+                    float[] query = randomVector(dims);
+                    Set<Integer> expected = bruteForce(vectors, query, k);
+                    TopDocs topDocs = searcher.search(new KnnVectorQuery("vector", query, k), k);
+                    assertThat(topDocs.scoreDocs.length, equalTo(k));
+                    for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                        if (expected.contains(Integer.parseInt(searcher.doc(scoreDoc.doc).get("id")))) {
+                            found++;
+                        }
+                    }
+                }
+                double recall = (double) found / (numQueries * k);
+                assertThat("recall with rescore=" + rescore, recall, greaterThanOrEqualTo(minRecall));
+            }
+        }
+    }
+
+    public void testDeletedDocumentsAreNotReturned() throws IOException {
+        int dims = randomIntBetween(2, 32);
+        float[][] vectors = randomVectors(200, dims);
+        Set<Integer> deleted = new HashSet<>();
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, config(randomBoolean()))) {
+            for (int i = 0; i < vectors.length; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                doc.add(new KnnVectorField("vector", vectors[i], VectorSimilarityFunction.DOT_PRODUCT));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+            for (int i = 0; i < vectors.length; i++) {
+                if (randomBoolean()) {
+                    writer.deleteDocuments(new Term("id", Integer.toString(i)));
+                    deleted.add(i);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                IndexSearcher searcher = newSearcher(reader);
+                int k = randomIntBetween(1, 20);
+                TopDocs topDocs = searcher.search(new KnnVectorQuery("vector", randomVector(dims), k), k);
+                assertThat(topDocs.scoreDocs.length, equalTo(Math.min(k, vectors.length - deleted.size())));
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    int id = Integer.parseInt(searcher.doc(scoreDoc.doc).get("id"));
+                    assertFalse("deleted document [" + id + "] was returned", deleted.contains(id));
+                }
+            }
+        }
+    }
+
+    private static IndexWriterConfig config(boolean rescore) {
+        KnnVectorsFormat format = new Int8HnswVectorsFormat(randomIntBetween(8, 24), randomIntBetween(50, 150), rescore);
+        Codec codec = new Lucene90Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return format;
+            }
+        };
+        return new IndexWriterConfig().setCodec(codec);
+    }
+
+    private static Set<Integer> bruteForce(float[][] vectors, float[] query, int k) {
+        Set<Integer> topK = new HashSet<>();
+        IntStream.range(0, vectors.length)
+            .boxed()
+            .sorted(Comparator.comparingDouble(i -> -VectorSimilarityFunction.EUCLIDEAN.compare(query, vectors[i])))
+            .limit(k)
+            .forEach(topK::add);
+        return topK;
+    }
+
+    private static float[][] randomVectors(int count, int dims) {
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = randomVector(dims);
+        }
+        return vectors;
+    }
+
+    private static float[] randomVector(int dims) {
+        float[] vector = new float[dims];
+        double norm = 0;
+        for (int i = 0; i < dims; i++) {
+            vector[i] = randomFloat() * 2 - 1;
+            norm += vector[i] * vector[i];
+        }
+        // unit vectors, so that they can be compared with the dot product too
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < dims; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+        return vector;
+    }
+}
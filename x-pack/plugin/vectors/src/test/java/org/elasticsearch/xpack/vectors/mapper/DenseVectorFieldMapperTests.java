@@ -31,6 +31,7 @@ import org.elasticsearch.index.mapper.ParsedDocument;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xpack.vectors.DenseVectorPlugin;
+import org.elasticsearch.xpack.vectors.codec.Int8HnswVectorsFormat;
 import org.elasticsearch.xpack.vectors.mapper.DenseVectorFieldMapper.DenseVectorFieldType;
 import org.elasticsearch.xpack.vectors.mapper.DenseVectorFieldMapper.VectorSimilarity;
 import org.elasticsearch.xpack.vectors.query.KnnVectorFieldExistsQuery;
@@ -476,4 +477,75 @@ public class DenseVectorFieldMapperTests extends MapperTestCase {
             + ")";
         assertEquals(expectedString, knnVectorsFormat.toString());
     }
+
+    public void testInt8HnswKnnVectorsFormat() throws IOException {
+        final int m = randomIntBetween(1, DEFAULT_MAX_CONN + 10);
+        final int efConstruction = randomIntBetween(1, DEFAULT_BEAM_WIDTH + 10);
+        final Boolean rescore = randomFrom(true, false, null);
+        MapperService mapperService = createMapperService(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", 4);
+            b.field("index", true);
+            b.field("similarity", "dot_product");
+            b.startObject("index_options");
+            b.field("type", "int8_hnsw");
+            b.field("m", m);
+            b.field("ef_construction", efConstruction);
+            if (rescore != null) {
+                b.field("rescore", rescore);
+            }
+            b.endObject();
+        }));
+        CodecService codecService = new CodecService(mapperService);
+        Codec codec = codecService.codec("default");
+        assertThat(codec, instanceOf(PerFieldMapperCodec.class));
+        KnnVectorsFormat knnVectorsFormat = ((PerFieldMapperCodec) codec).getKnnVectorsFormatForField("field");
+        assertThat(knnVectorsFormat, instanceOf(Int8HnswVectorsFormat.class));
+        String expectedString = "ES81Int8HnswVectorsFormat(maxConn="
+            + m
+            + ", beamWidth="
+            + efConstruction
+            + ", rescore="
+            + (rescore == null || rescore)
+            + ")";
+        assertEquals(expectedString, knnVectorsFormat.toString());
+    }
+
+    public void testInvalidInt8HnswParameters() {
+        MapperParsingException e = expectThrows(
+            MapperParsingException.class,
+            () -> createDocumentMapper(
+                fieldMapping(
+                    b -> b.field("type", "dense_vector")
+                        .field("dims", 3)
+                        .field("similarity", "l2_norm")
+                        .field("index", true)
+                        .startObject("index_options")
+                        .field("type", "int8_hnsw")
+                        .field("ef_construction", 100)
+                        .endObject()
+                )
+            )
+        );
+        assertThat(e.getMessage(), containsString("[index_options] of type [int8_hnsw] requires field [m] to be configured"));
+
+        e = expectThrows(
+            MapperParsingException.class,
+            () -> createDocumentMapper(
+                fieldMapping(
+                    b -> b.field("type", "dense_vector")
+                        .field("dims", 3)
+                        .field("similarity", "l2_norm")
+                        .field("index", true)
+                        .startObject("index_options")
+                        .field("type", "int8_hnsw")
+                        .field("m", 5)
+                        .field("ef_construction", 100)
+                        .field("bits", 4)
+                        .endObject()
+                )
+            )
+        );
+        assertThat(e.getMessage(), containsString("has unsupported parameters:  [bits : 4]"));
+    }
 }
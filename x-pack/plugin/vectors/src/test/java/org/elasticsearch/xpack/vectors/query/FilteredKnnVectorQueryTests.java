@@ -0,0 +1,169 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.KnnVectorField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class FilteredKnnVectorQueryTests extends ESTestCase {
+
+    private static final int NUM_DOCS = 500;
+
+    public void testSelectiveFilterScoresExactly() throws IOException {
+        try (Directory dir = newDirectory()) {
+            float[][] vectors = indexVectors(dir, 4);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = newSearcher(reader);
+                float[] target = randomVector(4);
+                // only every 50th document is rare, far fewer than a search of the graph visits
+                FilteredKnnVectorQuery query = new FilteredKnnVectorQuery("vector", target, 5, new TermQuery(new Term("tag", "rare")));
+                KnnScoreDocQuery rewritten = (KnnScoreDocQuery) query.rewrite(reader);
+                assertThat(rewritten.exactSegments(), equalTo(1));
+                assertThat(rewritten.approximateSegments(), equalTo(0));
+                assertThat(rewritten.toString(), equalTo("KnnScoreDocQuery[5 docs, 1 exact segments, 0 approximate segments]"));
+                TopDocs topDocs = searcher.search(query, 5);
+
+                assertThat(topDocs.scoreDocs.length, equalTo(5));
+                // the rare documents, nearest first
+                Integer[] rare = new Integer[NUM_DOCS / 50];
+                for (int i = 0; i < rare.length; i++) {
+                    rare[i] = i * 50;
+                }
+                Arrays.sort(rare, Comparator.comparingDouble(i -> squareDistance(target, vectors[i])));
+                for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    assertThat(searcher.doc(scoreDoc.doc).get("tag"), equalTo("rare"));
+                    // exact scoring finds the true nearest neighbors, scored like a search of the graph scores them
+                    assertThat(Integer.parseInt(searcher.doc(scoreDoc.doc).get("id")), equalTo(rare[i]));
+                    assertEquals(1 / (1 + squareDistance(target, vectors[rare[i]])), scoreDoc.score, 1e-6f);
+                }
+            }
+        }
+    }
+
+    public void testBroadFilterSearchesTheGraph() throws IOException {
+        try (Directory dir = newDirectory()) {
+            indexVectors(dir, 4);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = newSearcher(reader);
+                FilteredKnnVectorQuery query = new FilteredKnnVectorQuery(
+                    "vector",
+                    randomVector(4),
+                    10,
+                    new TermQuery(new Term("parity", "even"))
+                );
+                KnnScoreDocQuery rewritten = (KnnScoreDocQuery) query.rewrite(reader);
+                assertThat(rewritten.exactSegments(), equalTo(0));
+                assertThat(rewritten.approximateSegments(), equalTo(1));
+                TopDocs topDocs = searcher.search(query, 10);
+                assertThat(topDocs.scoreDocs.length, equalTo(10));
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    // every hit matches the filter, instead of the filter being applied to the top hits
+                    assertThat(searcher.doc(scoreDoc.doc).get("parity"), equalTo("even"));
+                }
+            }
+        }
+    }
+
+    public void testDeletedDocumentsAreNotReturned() throws IOException {
+        try (Directory dir = newDirectory()) {
+            indexVectors(dir, 4);
+            try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig())) {
+                writer.deleteDocuments(new Term("parity", "odd"));
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = newSearcher(reader);
+                String tag = randomFrom("rare", "common");
+                TopDocs topDocs = searcher.search(
+                    new FilteredKnnVectorQuery("vector", randomVector(4), 5, new TermQuery(new Term("tag", tag))),
+                    5
+                );
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    assertThat(searcher.doc(scoreDoc.doc).get("parity"), equalTo("even"));
+                }
+            }
+        }
+    }
+
+    public void testNoMatchingDocuments() throws IOException {
+        try (Directory dir = newDirectory()) {
+            indexVectors(dir, 4);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                FilteredKnnVectorQuery query = new FilteredKnnVectorQuery(
+                    "vector",
+                    randomVector(4),
+                    5,
+                    new TermQuery(new Term("tag", "missing"))
+                );
+                assertThat(query.rewrite(reader), instanceOf(MatchNoDocsQuery.class));
+                FilteredKnnVectorQuery otherField = new FilteredKnnVectorQuery(
+                    "other",
+                    randomVector(4),
+                    5,
+                    new TermQuery(new Term("tag", "rare"))
+                );
+                assertThat(otherField.rewrite(reader), instanceOf(MatchNoDocsQuery.class));
+            }
+        }
+    }
+
+    private static float[][] indexVectors(Directory dir, int dims) throws IOException {
+        float[][] vectors = new float[NUM_DOCS][];
+        try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig())) {
+            for (int i = 0; i < NUM_DOCS; i++) {
+                vectors[i] = randomVector(dims);
+                Document doc = new Document();
+                doc.add(new KnnVectorField("vector", vectors[i], VectorSimilarityFunction.EUCLIDEAN));
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                doc.add(new StringField("tag", i % 50 == 0 ? "rare" : "common", Field.Store.YES));
+                doc.add(new StringField("parity", i % 2 == 0 ? "even" : "odd", Field.Store.YES));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        return vectors;
+    }
+
+    private static float squareDistance(float[] a, float[] b) {
+        float distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            distance += diff * diff;
+        }
+        return distance;
+    }
+
+    private static float[] randomVector(int dims) {
+        float[] vector = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            vector[i] = randomFloat();
+        }
+        return vector;
+    }
+}
@@ -9,9 +9,15 @@ package org.elasticsearch.xpack.vectors.query;
 
 import org.apache.lucene.search.KnnVectorQuery;
 import org.apache.lucene.search.Query;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.test.AbstractBuilderTestCase;
@@ -71,16 +77,51 @@ public class KnnVectorQueryBuilderTests extends AbstractQueryTestCase<KnnVectorQ
             vector[i] = randomFloat();
         }
         int numCands = randomIntBetween(1, 1000);
-        return new KnnVectorQueryBuilder(fieldName, vector, numCands);
+        QueryBuilder filterQuery = randomBoolean() ? QueryBuilders.termQuery(KEYWORD_FIELD_NAME, randomAlphaOfLength(5)) : null;
+        return new KnnVectorQueryBuilder(fieldName, vector, numCands, filterQuery);
     }
 
     @Override
-    protected void doAssertLuceneQuery(KnnVectorQueryBuilder queryBuilder, Query query, SearchExecutionContext context) {
-        assertTrue(query instanceof KnnVectorQuery);
-        KnnVectorQuery knnVectorQuery = (KnnVectorQuery) query;
-
+    protected void doAssertLuceneQuery(KnnVectorQueryBuilder queryBuilder, Query query, SearchExecutionContext context)
+        throws IOException {
         // The field should always be resolved to the concrete field
-        assertThat(knnVectorQuery, equalTo(new KnnVectorQuery(VECTOR_FIELD, queryBuilder.queryVector(), queryBuilder.numCands())));
+        if (queryBuilder.filterQuery() == null) {
+            assertTrue(query instanceof KnnVectorQuery);
+            assertThat(query, equalTo(new KnnVectorQuery(VECTOR_FIELD, queryBuilder.queryVector(), queryBuilder.numCands())));
+        } else {
+            assertTrue(query instanceof FilteredKnnVectorQuery);
+            Query filter = queryBuilder.filterQuery().toQuery(context);
+            assertThat(
+                query,
+                equalTo(new FilteredKnnVectorQuery(VECTOR_FIELD, queryBuilder.queryVector(), queryBuilder.numCands(), filter))
+            );
+        }
+    }
+
+    public void testRewriteFilter() throws IOException {
+        QueryRewriteContext context = createSearchExecutionContext();
+        float[] vector = new float[] { 1.0f, 2.0f, 3.0f };
+        // a bool query without clauses rewrites to a match_all query
+        KnnVectorQueryBuilder query = new KnnVectorQueryBuilder(VECTOR_FIELD, vector, 10, QueryBuilders.boolQuery());
+        assertThat(query.rewrite(context), equalTo(new KnnVectorQueryBuilder(VECTOR_FIELD, vector, 10, new MatchAllQueryBuilder())));
+
+        // a filter that can't match anything makes the whole query match nothing
+        query = new KnnVectorQueryBuilder(VECTOR_FIELD, vector, 10, new MatchNoneQueryBuilder());
+        assertThat(query.rewrite(context), equalTo(new MatchNoneQueryBuilder()));
+    }
+
+    public void testFilterSerializationToOlderVersion() throws IOException {
+        KnnVectorQueryBuilder query = new KnnVectorQueryBuilder(VECTOR_FIELD, new float[] { 1.0f, 2.0f, 3.0f }, 10);
+        assertSerialization(query, Version.V_8_0_0);
+
+        KnnVectorQueryBuilder filtered = new KnnVectorQueryBuilder(
+            VECTOR_FIELD,
+            new float[] { 1.0f, 2.0f, 3.0f },
+            10,
+            QueryBuilders.termQuery(KEYWORD_FIELD_NAME, "value")
+        );
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> assertSerialization(filtered, Version.V_8_0_0));
+        assertThat(e.getMessage(), containsString("[knn] queries with a filter are not supported on nodes before version [8.1.0]"));
     }
 
     public void testWrongDimension() {
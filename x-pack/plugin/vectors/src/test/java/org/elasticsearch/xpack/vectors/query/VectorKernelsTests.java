@@ -0,0 +1,65 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.Version;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.elasticsearch.xpack.vectors.query.BinaryDenseVectorScriptDocValuesTests.mockEncodeDenseVector;
+
+public class VectorKernelsTests extends ESTestCase {
+
+    public void testScalarKernels() {
+        float[] docVector = { 230.0f, 300.33f, -34.8988f, 15.555f, -200.0f };
+        float[] queryVector = { 0.5f, 111.3f, -13.0f, 14.8f, -156.0f };
+        BytesRef encoded = mockEncodeDenseVector(docVector, Version.CURRENT);
+
+        VectorKernels kernels = VectorKernels.scalar();
+        assertEquals(65425.6274, kernels.dotProduct(queryVector, encoded), 0.1);
+        assertEquals(485.1838, kernels.l1Norm(queryVector, encoded), 0.001);
+        assertEquals(301.3614, kernels.l2Norm(queryVector, encoded), 0.001);
+    }
+
+    public void testSelectedKernelsMatchScalarKernels() {
+        VectorKernels kernels = VectorKernels.get();
+        for (int iter = 0; iter < 100; iter++) {
+            int dims = randomIntBetween(1, 2048);
+            float[] docVector = new float[dims];
+            float[] queryVector = new float[dims];
+            for (int i = 0; i < dims; i++) {
+                docVector[i] = randomFloat() * 2 - 1;
+                queryVector[i] = randomFloat() * 2 - 1;
+            }
+            BytesRef encoded = mockEncodeDenseVector(docVector, Version.CURRENT);
+            // the vector doesn't always start at the beginning of the doc values page
+            int offset = randomIntBetween(0, 7);
+            byte[] bytes = new byte[offset + encoded.length + randomIntBetween(0, 7)];
+            System.arraycopy(encoded.bytes, encoded.offset, bytes, offset, encoded.length);
+            BytesRef shifted = new BytesRef(bytes, offset, encoded.length);
+
+            double expectedDotProduct = 0;
+            double expectedL1Norm = 0;
+            double expectedL2Norm = 0;
+            for (int i = 0; i < dims; i++) {
+                expectedDotProduct += queryVector[i] * docVector[i];
+                expectedL1Norm += Math.abs(queryVector[i] - docVector[i]);
+                double diff = queryVector[i] - docVector[i];
+                expectedL2Norm += diff * diff;
+            }
+            expectedL2Norm = Math.sqrt(expectedL2Norm);
+
+            // accumulating in floats loses some precision
+            double delta = 1e-5 * dims;
+            assertEquals(kernels.toString(), expectedDotProduct, kernels.dotProduct(queryVector, shifted), delta);
+            assertEquals(kernels.toString(), expectedL1Norm, kernels.l1Norm(queryVector, shifted), delta);
+            assertEquals(kernels.toString(), expectedL2Norm, kernels.l2Norm(queryVector, shifted), delta);
+            assertEquals(VectorKernels.scalar().dotProduct(queryVector, shifted), kernels.dotProduct(queryVector, shifted), delta);
+        }
+    }
+}
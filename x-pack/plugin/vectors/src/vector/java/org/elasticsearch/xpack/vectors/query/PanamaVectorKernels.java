@@ -0,0 +1,97 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.vectors.query;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import org.apache.lucene.util.BytesRef;
+
+import java.nio.ByteOrder;
+
+/**
+ * {@link VectorKernels} implemented with the incubating Vector API. Lanes accumulate in floats, so results may differ from the scalar
+ * kernels in the last bits. This class is compiled separately and only loaded by {@link VectorKernels} when the
+ * {@code jdk.incubator.vector} module is available.
+ */
+final class PanamaVectorKernels extends VectorKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    PanamaVectorKernels() {
+        if (SPECIES.length() < 4) {
+            // without SIMD registers of at least 128 bits the scalar loops are faster
+            throw new UnsupportedOperationException("preferred vector species [" + SPECIES + "] is too small");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "panama(" + SPECIES.vectorBitSize() + " bits)";
+    }
+
+    @Override
+    public float dotProduct(float[] queryVector, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        final int bound = SPECIES.loopBound(queryVector.length);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final FloatVector q = FloatVector.fromArray(SPECIES, queryVector, i);
+            final FloatVector v = FloatVector.fromByteArray(SPECIES, bytes, offset + i * Float.BYTES, ByteOrder.BIG_ENDIAN);
+            acc = q.fma(v, acc);
+        }
+        float result = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < queryVector.length; i++) {
+            result += queryVector[i] * decodeFloat(bytes, offset + i * Float.BYTES);
+        }
+        return result;
+    }
+
+    @Override
+    public double l1Norm(float[] queryVector, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        final int bound = SPECIES.loopBound(queryVector.length);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final FloatVector q = FloatVector.fromArray(SPECIES, queryVector, i);
+            final FloatVector v = FloatVector.fromByteArray(SPECIES, bytes, offset + i * Float.BYTES, ByteOrder.BIG_ENDIAN);
+            acc = acc.add(q.sub(v).abs());
+        }
+        double result = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < queryVector.length; i++) {
+            result += Math.abs(queryVector[i] - decodeFloat(bytes, offset + i * Float.BYTES));
+        }
+        return result;
+    }
+
+    @Override
+    public double l2Norm(float[] queryVector, BytesRef vector) {
+        final byte[] bytes = vector.bytes;
+        final int offset = vector.offset;
+        final int bound = SPECIES.loopBound(queryVector.length);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final FloatVector q = FloatVector.fromArray(SPECIES, queryVector, i);
+            final FloatVector v = FloatVector.fromByteArray(SPECIES, bytes, offset + i * Float.BYTES, ByteOrder.BIG_ENDIAN);
+            final FloatVector diff = q.sub(v);
+            acc = diff.fma(diff, acc);
+        }
+        double result = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < queryVector.length; i++) {
+            final double diff = queryVector[i] - decodeFloat(bytes, offset + i * Float.BYTES);
+            result += diff * diff;
+        }
+        return Math.sqrt(result);
+    }
+}